@@ -509,12 +509,8 @@ public class IndicesAdapterES7 implements IndicesAdapter {
 
     @Override
     public IndexRangeStats indexRangeStatsOfIndex(String index) {
-        final FilterAggregationBuilder builder = AggregationBuilders.filter("agg", QueryBuilders.existsQuery(Message.FIELD_TIMESTAMP))
-                .subAggregation(AggregationBuilders.min("ts_min").field(Message.FIELD_TIMESTAMP))
-                .subAggregation(AggregationBuilders.max("ts_max").field(Message.FIELD_TIMESTAMP))
-                .subAggregation(AggregationBuilders.terms("streams").size(Integer.MAX_VALUE).field(Message.FIELD_STREAMS));
         final SearchSourceBuilder query = SearchSourceBuilder.searchSource()
-                .aggregation(builder)
+                .aggregation(indexRangeStatsAggregation())
                 .size(0);
 
         final SearchRequest request = new SearchRequest()
@@ -537,6 +533,57 @@ public class IndicesAdapterES7 implements IndicesAdapter {
             return IndexRangeStats.EMPTY;
         }
 
+        return indexRangeStats(f);
+    }
+
+    @Override
+    public Map<String, IndexRangeStats> indexRangeStatsOfIndices(Collection<String> indices) {
+        if (indices.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final SearchSourceBuilder query = SearchSourceBuilder.searchSource()
+                .aggregation(AggregationBuilders.terms("indices")
+                        .field("_index")
+                        .size(indices.size())
+                        .subAggregation(indexRangeStatsAggregation()))
+                .size(0);
+
+        final SearchRequest request = new SearchRequest()
+                .source(query)
+                .indices(indices.toArray(new String[0]))
+                .searchType(SearchType.DFS_QUERY_THEN_FETCH)
+                .indicesOptions(IndicesOptions.lenientExpandOpen());
+
+        final SearchResponse result = client.execute((c, requestOptions) -> c.search(request, requestOptions),
+                "Couldn't build index ranges of indices " + indices);
+
+        // Results of partially failed searches are incomplete, so the indices have to be calculated one by one
+        if (result.getFailedShards() > 0 || result.getAggregations() == null) {
+            return Collections.emptyMap();
+        }
+        final Terms indexTerms = result.getAggregations().get("indices");
+        if (indexTerms == null) {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, IndexRangeStats> stats = new HashMap<>();
+        for (Terms.Bucket bucket : indexTerms.getBuckets()) {
+            final Filter f = bucket.getAggregations().get("agg");
+            if (f != null && f.getDocCount() > 0L && indices.contains(bucket.getKeyAsString())) {
+                stats.put(bucket.getKeyAsString(), indexRangeStats(f));
+            }
+        }
+        return stats;
+    }
+
+    private FilterAggregationBuilder indexRangeStatsAggregation() {
+        return AggregationBuilders.filter("agg", QueryBuilders.existsQuery(Message.FIELD_TIMESTAMP))
+                .subAggregation(AggregationBuilders.min("ts_min").field(Message.FIELD_TIMESTAMP))
+                .subAggregation(AggregationBuilders.max("ts_max").field(Message.FIELD_TIMESTAMP))
+                .subAggregation(AggregationBuilders.terms("streams").size(Integer.MAX_VALUE).field(Message.FIELD_STREAMS));
+    }
+
+    private IndexRangeStats indexRangeStats(Filter f) {
         final Min minAgg = f.getAggregations().get("ts_min");
         final long minUnixTime = Double.valueOf(minAgg.getValue()).longValue();
         final DateTime min = new DateTime(minUnixTime, DateTimeZone.UTC);
@@ -16,6 +16,8 @@
  */
 package org.graylog.storage.opensearch2.views;
 
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import jakarta.inject.Inject;
@@ -30,9 +32,11 @@ import org.graylog.plugins.views.search.SearchJob;
 import org.graylog.plugins.views.search.SearchType;
 import org.graylog.plugins.views.search.elasticsearch.IndexLookup;
 import org.graylog.plugins.views.search.engine.BackendQuery;
+import org.graylog.plugins.views.search.engine.GeneratedQueryContext;
 import org.graylog.plugins.views.search.engine.QueryBackend;
 import org.graylog.plugins.views.search.engine.QueryExecutionStats;
 import org.graylog.plugins.views.search.engine.monitoring.collection.StatsCollector;
+import org.graylog.plugins.views.search.errors.QueryError;
 import org.graylog.plugins.views.search.errors.SearchError;
 import org.graylog.plugins.views.search.errors.SearchTypeError;
 import org.graylog.plugins.views.search.errors.SearchTypeErrorParser;
@@ -81,6 +85,8 @@ import java.util.stream.Collectors;
 
 public class OpenSearchBackend implements QueryBackend<OSGeneratedQueryContext> {
     private static final Logger LOG = LoggerFactory.getLogger(OpenSearchBackend.class);
+    // Upper bound for the number of search types sent with a single multi search request when running queries as a batch
+    private static final int MAX_SEARCHES_PER_BATCH = 50;
 
     private final Map<String, Provider<OSSearchTypeHandler<? extends SearchType>>> openSearchSearchTypeHandlers;
     private final OpenSearchClient client;
@@ -233,21 +239,119 @@ public class OpenSearchBackend implements QueryBackend<OSGeneratedQueryContext>
     @WithSpan
     public QueryResult doRun(SearchJob job, Query query, OSGeneratedQueryContext queryContext) {
         if (query.searchTypes().isEmpty()) {
-            return QueryResult.builder()
-                    .query(query)
-                    .searchTypes(Collections.emptyMap())
-                    .errors(new HashSet<>(queryContext.errors()))
-                    .build();
+            return emptyResult(query, queryContext);
         }
         LOG.debug("Running query {} for job {}", query.id(), job.getId());
-        final HashMap<String, SearchType.Result> resultsMap = Maps.newHashMap();
 
+        final List<String> searchTypeIds = new ArrayList<>(queryContext.searchTypeQueries().keySet());
+        final List<SearchRequest> searches = searchRequests(job, query, queryContext, searchTypeIds);
+
+        final PlainActionFuture<MultiSearchResponse> mSearchFuture = client.cancellableMsearch(searches);
+        job.setSearchEngineTaskFuture(mSearchFuture);
+        final List<MultiSearchResponse.Item> results = getResults(mSearchFuture, searches.size());
+
+        final QueryResult result = extractResults(job, query, queryContext, searchTypeIds, results);
+        LOG.debug("Query {} ran for job {}", query.id(), job.getId());
+        return result;
+    }
+
+    /**
+     * Sends the search types of all queries with as few multi search requests as possible and routes the responses
+     * back to their queries.
+     */
+    @Override
+    @WithSpan
+    public List<QueryResult> runBatch(SearchJob job, List<Query> queries, List<GeneratedQueryContext> generatedQueryContexts) {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final QueryExecutionStats.Builder statsBuilder = QueryExecutionStats.builderWithCurrentTime();
+        final List<QueryResult> results = new ArrayList<>(Collections.nCopies(queries.size(), null));
+        final List<List<String>> searchTypeIdsByQuery = new ArrayList<>(queries.size());
+        final List<SearchRequest> searches = new ArrayList<>();
+
+        for (int i = 0; i < queries.size(); i++) {
+            final Query query = queries.get(i);
+            final OSGeneratedQueryContext queryContext = (OSGeneratedQueryContext) generatedQueryContexts.get(i);
+            if (query.searchTypes().isEmpty()) {
+                results.set(i, emptyResult(query, queryContext));
+                searchTypeIdsByQuery.add(List.of());
+                continue;
+            }
+            try {
+                final List<String> searchTypeIds = new ArrayList<>(queryContext.searchTypeQueries().keySet());
+                searches.addAll(searchRequests(job, query, queryContext, searchTypeIds));
+                searchTypeIdsByQuery.add(searchTypeIds);
+            } catch (Exception e) {
+                results.set(i, failedResult(query, queryContext, e));
+                searchTypeIdsByQuery.add(List.of());
+            }
+        }
+
+        LOG.debug("Running {} search types of {} queries for job {}", searches.size(), queries.size(), job.getId());
+        final List<MultiSearchResponse.Item> responses = new ArrayList<>(searches.size());
+        // A failed multi search request only fails the queries of its own searches
+        final List<Exception> batchFailures = new ArrayList<>(searches.size());
+        for (List<SearchRequest> batch : Lists.partition(searches, MAX_SEARCHES_PER_BATCH)) {
+            try {
+                final PlainActionFuture<MultiSearchResponse> mSearchFuture = client.cancellableMsearch(batch);
+                job.setSearchEngineTaskFuture(mSearchFuture);
+                responses.addAll(getResults(mSearchFuture, batch.size()));
+                batchFailures.addAll(Collections.nCopies(batch.size(), null));
+            } catch (Exception e) {
+                LOG.debug("Multi search request of job {} failed", job.getId(), e);
+                responses.addAll(Collections.nCopies(batch.size(), null));
+                batchFailures.addAll(Collections.nCopies(batch.size(), e));
+            }
+        }
+        stopwatch.stop();
+
+        int offset = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            if (results.get(i) != null) {
+                continue;
+            }
+            final Query query = queries.get(i);
+            final OSGeneratedQueryContext queryContext = (OSGeneratedQueryContext) generatedQueryContexts.get(i);
+            final List<String> searchTypeIds = searchTypeIdsByQuery.get(i);
+            final List<MultiSearchResponse.Item> queryResponses = responses.subList(offset, offset + searchTypeIds.size());
+            final Optional<Exception> batchFailure = batchFailures.subList(offset, offset + searchTypeIds.size()).stream()
+                    .filter(Objects::nonNull)
+                    .findFirst();
+            offset += searchTypeIds.size();
+            if (batchFailure.isPresent()) {
+                results.set(i, failedResult(query, queryContext, batchFailure.get()));
+                continue;
+            }
+            try {
+                final QueryResult result = extractResults(job, query, queryContext, searchTypeIds, queryResponses);
+                results.set(i, withExecutionStats(query, result, statsBuilder, stopwatch.elapsed(TimeUnit.MILLISECONDS)));
+            } catch (Exception e) {
+                results.set(i, failedResult(query, queryContext, e));
+            }
+        }
+        LOG.debug("Queries ran for job {}", job.getId());
+        return results;
+    }
+
+    private QueryResult emptyResult(Query query, OSGeneratedQueryContext queryContext) {
+        return QueryResult.builder()
+                .query(query)
+                .searchTypes(Collections.emptyMap())
+                .errors(new HashSet<>(queryContext.errors()))
+                .build();
+    }
+
+    private QueryResult failedResult(Query query, OSGeneratedQueryContext queryContext, Exception e) {
+        final QueryError queryError = new QueryError(query, e);
+        queryContext.addError(queryError);
+        return QueryResult.failedQueryWithError(query, queryError);
+    }
+
+    private List<SearchRequest> searchRequests(SearchJob job, Query query, OSGeneratedQueryContext queryContext, List<String> searchTypeIds) {
         final Set<String> affectedIndices = indexLookup.indexNamesForStreamsInTimeRange(query.usedStreamIds(), query.timerange());
 
         final Map<String, SearchSourceBuilder> searchTypeQueries = queryContext.searchTypeQueries();
-        final List<String> searchTypeIds = new ArrayList<>(searchTypeQueries.keySet());
 
-        final List<SearchRequest> searches = searchTypeIds
+        return searchTypeIds
                 .stream()
                 .map(searchTypeId -> {
                     final Set<String> affectedIndicesForSearchType = query.searchTypes().stream()
@@ -273,10 +377,11 @@ public class OpenSearchBackend implements QueryBackend<OSGeneratedQueryContext>
                     return searchRequest;
                 })
                 .toList();
+    }
 
-        final PlainActionFuture<MultiSearchResponse> mSearchFuture = client.cancellableMsearch(searches);
-        job.setSearchEngineTaskFuture(mSearchFuture);
-        final List<MultiSearchResponse.Item> results = getResults(mSearchFuture, searches.size());
+    private QueryResult extractResults(SearchJob job, Query query, OSGeneratedQueryContext queryContext, List<String> searchTypeIds,
+                                       List<MultiSearchResponse.Item> results) {
+        final HashMap<String, SearchType.Result> resultsMap = Maps.newHashMap();
 
         for (SearchType searchType : query.searchTypes()) {
             final String searchTypeId = searchType.id();
@@ -318,7 +423,6 @@ public class OpenSearchBackend implements QueryBackend<OSGeneratedQueryContext>
             }
         }
 
-        LOG.debug("Query {} ran for job {}", query.id(), job.getId());
         return QueryResult.builder()
                 .query(query)
                 .searchTypes(resultsMap)
@@ -18,10 +18,13 @@ package org.graylog.storage.opensearch2.views.export;
 
 import jakarta.inject.Inject;
 import org.graylog.plugins.views.search.export.ExportException;
+import org.graylog.shaded.opensearch2.org.opensearch.action.search.CreatePitRequest;
+import org.graylog.shaded.opensearch2.org.opensearch.action.search.DeletePitRequest;
 import org.graylog.shaded.opensearch2.org.opensearch.action.search.SearchRequest;
 import org.graylog.shaded.opensearch2.org.opensearch.action.search.SearchResponse;
 import org.graylog.shaded.opensearch2.org.opensearch.client.RequestOptions;
 import org.graylog.shaded.opensearch2.org.opensearch.client.RestHighLevelClient;
+import org.graylog.shaded.opensearch2.org.opensearch.common.unit.TimeValue;
 import org.graylog.shaded.opensearch2.org.opensearch.core.action.ShardOperationFailedException;
 import org.graylog.storage.opensearch2.OpenSearchClient;
 import org.graylog.storage.opensearch2.ThrowingBiFunction;
@@ -29,6 +32,7 @@ import org.graylog2.indexer.ElasticsearchException;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 public class ExportClient {
@@ -41,21 +45,46 @@ public class ExportClient {
 
     public SearchResponse search(SearchRequest request, String errorMessage) {
         try {
-            final SearchResponse response = this.client.search(request, errorMessage);
-            if (response.getFailedShards() > 0) {
-                final List<String> errors = Arrays.stream(response.getShardFailures())
-                        .map(ShardOperationFailedException::getCause)
-                        .map(Throwable::getMessage)
-                        .distinct()
-                        .toList();
-                throw new ElasticsearchException("Unable to perform export query: ", errors);
-            }
-            return response;
+            return checkShardFailures(this.client.search(request, errorMessage));
         } catch (Exception e) {
             throw wrapException(e);
         }
     }
 
+    /**
+     * Runs a search which isn't bundled into a multi search request, e.g. because it uses a point in time.
+     * Fails like {@link #search(SearchRequest, String)} if any of the shards failed.
+     */
+    public SearchResponse checkedSingleSearch(SearchRequest request, String errorMessage) {
+        try {
+            return checkShardFailures(this.client.singleSearch(request, errorMessage));
+        } catch (Exception e) {
+            throw wrapException(e);
+        }
+    }
+
+    private SearchResponse checkShardFailures(SearchResponse response) {
+        if (response.getFailedShards() > 0) {
+            final List<String> errors = Arrays.stream(response.getShardFailures())
+                    .map(ShardOperationFailedException::getCause)
+                    .map(Throwable::getMessage)
+                    .distinct()
+                    .toList();
+            throw new ElasticsearchException("Unable to perform export query: ", errors);
+        }
+        return response;
+    }
+
+    public String openPointInTime(Collection<String> indices, TimeValue keepAlive) {
+        final CreatePitRequest request = new CreatePitRequest(keepAlive, false, indices.toArray(new String[0]));
+        return execute((c, requestOptions) -> c.createPit(request, requestOptions), "Unable to open point in time for export")
+                .getId();
+    }
+
+    public void closePointInTime(String pitId) {
+        execute((c, requestOptions) -> c.deletePit(new DeletePitRequest(pitId), requestOptions), "Unable to close point in time of export");
+    }
+
     private ExportException wrapException(Exception e) {
         return new ExportException("Unable to complete export: ", new ElasticsearchException(e));
     }
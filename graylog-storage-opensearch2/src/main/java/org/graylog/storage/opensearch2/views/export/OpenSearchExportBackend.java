@@ -16,6 +16,10 @@
  */
 package org.graylog.storage.opensearch2.views.export;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import org.graylog.plugins.views.search.elasticsearch.ElasticsearchQueryString;
@@ -35,17 +39,24 @@ import org.graylog.shaded.opensearch2.org.opensearch.search.SearchHit;
 import org.graylog.shaded.opensearch2.org.opensearch.search.builder.SearchSourceBuilder;
 import org.graylog.storage.opensearch2.TimeRangeQueryFactory;
 import org.graylog2.plugin.Message;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toCollection;
 import static org.graylog.shaded.opensearch2.org.opensearch.index.query.QueryBuilders.boolQuery;
@@ -62,25 +73,90 @@ public class OpenSearchExportBackend implements ExportBackend {
     private final boolean allowLeadingWildcard;
 
     private final UsedSearchFiltersToQueryStringsMapper usedSearchFiltersToQueryStringsMapper;
+    private final ExportClient exportClient;
+    private final int parallelism;
+    private final int maxBufferedPages;
+    private final boolean keepOrder;
+    private final ThreadFactory sliceThreadFactory;
+    private final Meter exportedMessages;
+    private final Timer slicePageRequests;
 
     @Inject
     public OpenSearchExportBackend(IndexLookup indexLookup,
                                    RequestStrategy requestStrategy,
                                    @Named("allow_leading_wildcard_searches") boolean allowLeadingWildcard,
-                                   final UsedSearchFiltersToQueryStringsMapper usedSearchFiltersToQueryStringsMapper) {
+                                   final UsedSearchFiltersToQueryStringsMapper usedSearchFiltersToQueryStringsMapper,
+                                   ExportClient exportClient,
+                                   @Named("views_export_parallelism") int parallelism,
+                                   @Named("views_export_buffered_pages") int maxBufferedPages,
+                                   @Named("views_export_keep_order") boolean keepOrder,
+                                   MetricRegistry metricRegistry) {
         this.indexLookup = indexLookup;
         this.requestStrategy = requestStrategy;
         this.allowLeadingWildcard = allowLeadingWildcard;
         this.usedSearchFiltersToQueryStringsMapper = usedSearchFiltersToQueryStringsMapper;
+        this.exportClient = exportClient;
+        this.parallelism = parallelism;
+        this.maxBufferedPages = maxBufferedPages;
+        this.keepOrder = keepOrder;
+        this.sliceThreadFactory = new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("export-slice-%d")
+                .build();
+        this.exportedMessages = metricRegistry.meter(name(OpenSearchExportBackend.class, "exported-messages"));
+        this.slicePageRequests = metricRegistry.timer(name(OpenSearchExportBackend.class, "slice-page-requests"));
     }
 
     @Override
     public void run(ExportMessagesCommand command, Consumer<SimpleMessageChunk> chunkCollector) {
+        if (parallelism > 1) {
+            final Set<String> indices = indicesFor(command);
+            final List<AbsoluteRange> slices = slicesOf(command.timeRange(), parallelism);
+            if (!indices.isEmpty() && slices.size() > 1) {
+                runSliced(command, chunkCollector, indices, slices);
+                return;
+            }
+        }
+        publishChunks(command, chunkCollector, () -> search(command));
+    }
+
+    private void runSliced(ExportMessagesCommand command, Consumer<SimpleMessageChunk> chunkCollector, Set<String> indices, List<AbsoluteRange> slices) {
+        try (PointInTimeSlicedExport export = PointInTimeSlicedExport.start(exportClient,
+                Executors.newFixedThreadPool(slices.size(), sliceThreadFactory),
+                slicePageRequests,
+                indices,
+                slices,
+                maxBufferedPages,
+                keepOrder,
+                slice -> sliceSourceBuilderFrom(command, slice))) {
+            publishChunks(command, chunkCollector, export::nextPage);
+        }
+    }
+
+    /**
+     * Splits the time range into contiguous slices of about the same length. Slices include their start and exclude
+     * their end, like the time range filter of the export.
+     */
+    private static List<AbsoluteRange> slicesOf(AbsoluteRange timeRange, int count) {
+        final long from = timeRange.getFrom().getMillis();
+        final long to = timeRange.getTo().getMillis();
+        final int sliceCount = (int) Math.max(1, Math.min(count, to - from));
+        final List<AbsoluteRange> slices = new ArrayList<>(sliceCount);
+        DateTime sliceFrom = timeRange.getFrom();
+        for (int i = 1; i <= sliceCount; i++) {
+            final DateTime sliceTo = i == sliceCount ? timeRange.getTo() : new DateTime(from + (to - from) * i / sliceCount, sliceFrom.getZone());
+            slices.add(AbsoluteRange.create(sliceFrom, sliceTo));
+            sliceFrom = sliceTo;
+        }
+        return slices;
+    }
+
+    private void publishChunks(ExportMessagesCommand command, Consumer<SimpleMessageChunk> chunkCollector, Supplier<List<SearchHit>> nextChunk) {
         boolean isFirstChunk = true;
         int totalCount = 0;
 
         while (true) {
-            List<SearchHit> hits = search(command);
+            List<SearchHit> hits = nextChunk.get();
 
             if (hits.isEmpty()) {
                 publishChunk(chunkCollector, hits, command.fieldsInOrder(), command.timeZone(), SimpleMessageChunk.ChunkOrder.LAST);
@@ -93,6 +169,7 @@ public class OpenSearchExportBackend implements ExportBackend {
             }
 
             totalCount += hits.size();
+            exportedMessages.mark(hits.size());
             if (command.limit().isPresent() && totalCount >= command.limit().getAsInt()) {
                 LOG.info("Limit of {} reached. Stopping message retrieval.", command.limit().getAsInt());
                 publishChunk(chunkCollector, Collections.emptyList(), command.fieldsInOrder(), command.timeZone(), SimpleMessageChunk.ChunkOrder.LAST);
@@ -120,19 +197,26 @@ public class OpenSearchExportBackend implements ExportBackend {
     }
 
     private SearchSourceBuilder searchSourceBuilderFrom(ExportMessagesCommand command) {
-        QueryBuilder query = queryFrom(command);
+        return requestStrategy.configure(searchSourceBuilderFrom(command, queryFrom(command)));
+    }
+
+    private SearchSourceBuilder sliceSourceBuilderFrom(ExportMessagesCommand command, AbsoluteRange slice) {
+        final BoolQueryBuilder query = queryFrom(command)
+                .filter(requireNonNull(TimeRangeQueryFactory.create(slice)));
+        return searchSourceBuilderFrom(command, query);
+    }
 
+    private SearchSourceBuilder searchSourceBuilderFrom(ExportMessagesCommand command, QueryBuilder query) {
         SearchSourceBuilder ssb = new SearchSourceBuilder()
                 .query(query)
                 .size(command.chunkSize());
         if (!command.exportAllFields()) {
             ssb = ssb.fetchSource(command.fieldsInOrder().toArray(new String[]{}), null);
         }
-
-        return requestStrategy.configure(ssb);
+        return ssb;
     }
 
-    private QueryBuilder queryFrom(ExportMessagesCommand command) {
+    private BoolQueryBuilder queryFrom(ExportMessagesCommand command) {
         final BoolQueryBuilder boolQueryBuilder = boolQuery()
                 .filter(queryStringFilter(command.queryString()))
                 .filter(timestampFilter(command))
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.storage.opensearch2.views.export;
+
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Streams;
+import org.graylog.plugins.views.search.export.ExportException;
+import org.graylog.shaded.opensearch2.org.opensearch.action.search.SearchRequest;
+import org.graylog.shaded.opensearch2.org.opensearch.common.unit.TimeValue;
+import org.graylog.shaded.opensearch2.org.opensearch.search.SearchHit;
+import org.graylog.shaded.opensearch2.org.opensearch.search.builder.PointInTimeBuilder;
+import org.graylog.shaded.opensearch2.org.opensearch.search.builder.SearchSourceBuilder;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/**
+ * Reads the messages of an export with several concurrent requests.
+ * <p>
+ * The time range of the export is split into contiguous slices, which are read with search_after from a shared point
+ * in time, so all slices see the same snapshot of the indices. All slices share a budget of buffered pages. If the
+ * order is kept, the pages are returned slice by slice, so the messages keep the timestamp order of the sequential
+ * export, and the budget is used to read ahead the later slices. Otherwise, the pages of all slices are interleaved.
+ */
+class PointInTimeSlicedExport implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(PointInTimeSlicedExport.class);
+    private static final TimeValue KEEP_ALIVE = TimeValue.timeValueMinutes(5);
+
+    private final ExportClient client;
+    private final ExecutorService executor;
+    private final String pitId;
+    private final Timer pageTimer;
+    private final SlicePageBuffer<SearchHit> buffer;
+
+    private PointInTimeSlicedExport(ExportClient client, ExecutorService executor, String pitId, Timer pageTimer,
+                                    SlicePageBuffer<SearchHit> buffer) {
+        this.client = client;
+        this.executor = executor;
+        this.pitId = pitId;
+        this.pageTimer = pageTimer;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Opens a point in time for the given indices and starts reading all slices on the given executor.
+     * The executor is shut down when the export is closed.
+     *
+     * @param maxBufferedPages the number of pages all slices may buffer together
+     * @param keepOrder        whether the pages are returned in the order of the slices
+     * @param sourceForSlice   creates the search source (query, size and fetched fields) for a slice of the time range
+     */
+    static PointInTimeSlicedExport start(ExportClient client,
+                                         ExecutorService executor,
+                                         Timer pageTimer,
+                                         Collection<String> indices,
+                                         List<AbsoluteRange> slices,
+                                         int maxBufferedPages,
+                                         boolean keepOrder,
+                                         Function<AbsoluteRange, SearchSourceBuilder> sourceForSlice) {
+        final String pitId;
+        try {
+            pitId = client.openPointInTime(indices, KEEP_ALIVE);
+        } catch (RuntimeException e) {
+            executor.shutdownNow();
+            throw e;
+        }
+        final PointInTimeSlicedExport export = new PointInTimeSlicedExport(client, executor, pitId, pageTimer,
+                new SlicePageBuffer<>(slices.size(), maxBufferedPages, keepOrder));
+        try {
+            for (int i = 0; i < slices.size(); i++) {
+                final int slice = i;
+                executor.execute(() -> export.readSlice(slice, sourceForSlice.apply(slices.get(slice))));
+            }
+        } catch (RuntimeException e) {
+            export.close();
+            throw e;
+        }
+        return export;
+    }
+
+    /**
+     * Returns the next page of messages, waiting for it if necessary.
+     *
+     * @return the next page, an empty list if all slices have been read
+     */
+    List<SearchHit> nextPage() {
+        try {
+            return buffer.next();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExportException("Interrupted while waiting for export results", e);
+        }
+    }
+
+    private void readSlice(int slice, SearchSourceBuilder source) {
+        try {
+            SearchAfter.configureSort(source);
+            source.pointInTimeBuilder(new PointInTimeBuilder(pitId).setKeepAlive(KEEP_ALIVE));
+            while (!Thread.currentThread().isInterrupted()) {
+                buffer.reserve(slice);
+                final List<SearchHit> hits;
+                try (Timer.Context ignored = pageTimer.time()) {
+                    hits = Streams.stream(client.checkedSingleSearch(new SearchRequest().source(source), "Failed to execute sliced export request").getHits())
+                            .toList();
+                }
+                final boolean last = hits.size() < source.size();
+                buffer.put(slice, hits, last);
+                if (last) {
+                    return;
+                }
+                source.searchAfter(hits.get(hits.size() - 1).getSortValues());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            if (!executor.isShutdown()) {
+                buffer.fail(e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        // Stops slices which are still being read, e.g. because the limit of the export has been reached
+        executor.shutdownNow();
+        try {
+            client.closePointInTime(pitId);
+        } catch (ExportException e) {
+            // The point in time expires after its keep alive anyway
+            LOG.warn("Unable to close point in time of export", e);
+        }
+    }
+}
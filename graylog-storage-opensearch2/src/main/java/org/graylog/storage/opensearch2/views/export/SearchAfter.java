@@ -59,7 +59,7 @@ public class SearchAfter implements RequestStrategy {
         return client.search(search, "Failed to execute Search After request");
     }
 
-    private void configureSort(SearchSourceBuilder source) {
+    static void configureSort(SearchSourceBuilder source) {
         source.sort(SortBuilders.fieldSort("timestamp").order(SortOrder.ASC));
         source.sort(SortBuilders.fieldSort(DEFAULT_TIEBREAKER_FIELD).order(SortOrder.ASC).unmappedType("keyword"));
     }
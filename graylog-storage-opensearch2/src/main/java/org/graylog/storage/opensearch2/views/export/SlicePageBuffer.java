@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.storage.opensearch2.views.export;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers the pages of several concurrently read slices for a single consumer.
+ * <p>
+ * All slices share one budget of buffered pages. A reader has to {@link #reserve(int) reserve} a page before it
+ * requests it, so the readers stop once the budget is used up.
+ * <p>
+ * If the order has to be kept, the pages are returned slice by slice and the budget is used to read ahead the later
+ * slices. The slice which is currently returned may always read its next page once its own pages have been consumed,
+ * so it can't be starved by read-ahead pages of later slices. Otherwise, pages are returned as soon as any slice
+ * provides them.
+ *
+ * @param <T> the type of the elements of a page
+ */
+class SlicePageBuffer<T> {
+    private final int maxBufferedPages;
+    private final boolean keepOrder;
+    private final List<Deque<List<T>>> pages;
+    private final boolean[] finished;
+    private final Lock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    private int reservedPages = 0;
+    private int currentSlice = 0;
+    private RuntimeException failure = null;
+
+    SlicePageBuffer(int slices, int maxBufferedPages, boolean keepOrder) {
+        this.maxBufferedPages = maxBufferedPages;
+        this.keepOrder = keepOrder;
+        this.pages = new ArrayList<>(slices);
+        for (int i = 0; i < slices; i++) {
+            pages.add(new ArrayDeque<>());
+        }
+        this.finished = new boolean[slices];
+    }
+
+    /**
+     * Waits until the given slice may read another page and reserves it. Each reservation has to be followed by a
+     * call to {@link #put(int, List, boolean)}.
+     */
+    void reserve(int slice) throws InterruptedException {
+        lock.lock();
+        try {
+            while (reservedPages >= maxBufferedPages && !isUnblockedCurrentSlice(slice)) {
+                changed.await();
+            }
+            reservedPages++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isUnblockedCurrentSlice(int slice) {
+        return keepOrder && slice == currentSlice && pages.get(slice).isEmpty();
+    }
+
+    /**
+     * Adds a page which has been reserved before.
+     *
+     * @param page the read page, may be empty
+     * @param last whether this is the last page of the slice
+     */
+    void put(int slice, List<T> page, boolean last) {
+        lock.lock();
+        try {
+            if (page.isEmpty()) {
+                reservedPages--;
+            } else {
+                pages.get(slice).add(page);
+            }
+            finished[slice] = last;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fails the whole export. The failure is thrown by the next call to {@link #next()}.
+     */
+    void fail(RuntimeException e) {
+        lock.lock();
+        try {
+            if (failure == null) {
+                failure = e;
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the next page, waiting for it if necessary.
+     *
+     * @return the next page, an empty list if all slices have been read
+     */
+    List<T> next() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                if (failure != null) {
+                    throw failure;
+                }
+                while (currentSlice < pages.size() && finished[currentSlice] && pages.get(currentSlice).isEmpty()) {
+                    currentSlice++;
+                    // The new current slice may read past the budget
+                    changed.signalAll();
+                }
+                if (currentSlice == pages.size()) {
+                    return List.of();
+                }
+                final List<T> page = poll();
+                if (page != null) {
+                    reservedPages--;
+                    changed.signalAll();
+                    return page;
+                }
+                changed.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<T> poll() {
+        if (keepOrder) {
+            return pages.get(currentSlice).poll();
+        }
+        for (int i = currentSlice; i < pages.size(); i++) {
+            final List<T> page = pages.get(i).poll();
+            if (page != null) {
+                return page;
+            }
+        }
+        return null;
+    }
+}
@@ -28,6 +28,8 @@ import org.graylog.plugins.views.search.elasticsearch.IndexLookup;
 import org.graylog.plugins.views.search.engine.monitoring.collection.NoOpStatsCollector;
 import org.graylog.plugins.views.search.errors.SearchError;
 import org.graylog.shaded.opensearch2.org.opensearch.action.search.MultiSearchResponse;
+import org.graylog.shaded.opensearch2.org.opensearch.action.search.SearchResponse;
+import org.graylog.shaded.opensearch2.org.opensearch.action.support.PlainActionFuture;
 import org.graylog.storage.opensearch2.testing.TestMultisearchResponse;
 import org.graylog.storage.opensearch2.views.searchtypes.OSSearchTypeHandler;
 import org.graylog2.plugin.indexer.searches.timeranges.RelativeRange;
@@ -38,9 +40,12 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -118,6 +123,36 @@ public class OpenSearchBackendErrorHandlingTest extends OpensearchMockedClientTe
                         "\n\nOpenSearch exception [type=query_shard_exception, reason=Failed to parse query [[]].");
     }
 
+    @Test
+    public void failedMultiSearchRequestOnlyFailsQueriesOfItsBatch() throws Exception {
+        // The first query fills the first multi search request, the second query is sent with a separate one
+        final Query largeQuery = queryWithSearchTypes("query2", 50);
+        final Query smallQuery = queryWithSearchTypes("query3", 1);
+        final OSGeneratedQueryContext largeQueryContext = contextFor(largeQuery);
+        final OSGeneratedQueryContext smallQueryContext = contextFor(smallQuery);
+
+        final MultiSearchResponse.Item[] items = new MultiSearchResponse.Item[50];
+        Arrays.fill(items, new MultiSearchResponse.Item(mock(SearchResponse.class), null));
+        final PlainActionFuture<MultiSearchResponse> successfulFuture = PlainActionFuture.newFuture();
+        successfulFuture.onResponse(new MultiSearchResponse(items, 1L));
+        when(client.cancellableMsearch(any()))
+                .thenReturn(successfulFuture)
+                .thenThrow(new IllegalStateException("Connection reset"));
+
+        final List<QueryResult> results = this.backend.runBatch(searchJob, List.of(largeQuery, smallQuery),
+                List.of(largeQueryContext, smallQueryContext));
+
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0).state()).isNotEqualTo(QueryResult.State.FAILED);
+        assertThat(results.get(0).errors()).isEmpty();
+        assertThat(results.get(1).state()).isEqualTo(QueryResult.State.FAILED);
+        assertThat(results.get(1).errors())
+                .singleElement()
+                .extracting(SearchError::description)
+                .asString()
+                .contains("Connection reset");
+    }
+
     @Test
     public void deduplicateNumericShardErrorsOnSearchTypeLevel() throws Exception {
         final MultiSearchResponse multiSearchResult = TestMultisearchResponse.fromFixture("errorhandling/numericFailureOnSearchTypeLevel.json");
@@ -133,4 +168,27 @@ public class OpenSearchBackendErrorHandlingTest extends OpensearchMockedClientTe
                 .containsExactly("Unable to perform search query: " +
                         "\n\nOpenSearch exception [type=illegal_argument_exception, reason=Expected numeric type on field [facility], but got [keyword]].");
     }
+
+    private Query queryWithSearchTypes(String id, int count) {
+        final Set<SearchType> searchTypes = IntStream.range(0, count)
+                .mapToObj(i -> {
+                    final SearchType searchType = mock(SearchType.class);
+                    when(searchType.id()).thenReturn(id + "-" + i);
+                    when(searchType.type()).thenReturn("dummy");
+                    return searchType;
+                })
+                .collect(Collectors.toSet());
+        return Query.builder()
+                .id(id)
+                .timerange(RelativeRange.create(300))
+                .query(ElasticsearchQueryString.of("*"))
+                .searchTypes(searchTypes)
+                .build();
+    }
+
+    private OSGeneratedQueryContext contextFor(Query query) {
+        final OSGeneratedQueryContext context = ViewsUtils.createTestContext(backend);
+        query.searchTypes().forEach(context::searchSourceBuilder);
+        return context;
+    }
 }
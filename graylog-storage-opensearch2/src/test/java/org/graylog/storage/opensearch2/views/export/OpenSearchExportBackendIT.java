@@ -16,6 +16,7 @@
  */
 package org.graylog.storage.opensearch2.views.export;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableSet;
 import jakarta.annotation.Nonnull;
 import org.graylog.plugins.views.search.elasticsearch.ElasticsearchQueryString;
@@ -72,18 +73,26 @@ public class OpenSearchExportBackendIT extends ElasticsearchBaseTest {
     @Before
     public void setUp() {
         indexLookup = mock(IndexLookup.class);
-        backend = new OpenSearchExportBackend(indexLookup, requestStrategy(), false, new IgnoreSearchFilters());
+        backend = backendWithParallelism(1, true);
         helper = new OpenSearchExportITHelper(indexLookup, backend);
     }
 
+    private OpenSearchExportBackend backendWithParallelism(int parallelism, boolean keepOrder) {
+        return new OpenSearchExportBackend(indexLookup, requestStrategy(), false, new IgnoreSearchFilters(),
+                exportClient(), parallelism, 2, keepOrder, new MetricRegistry());
+    }
+
     @After
     public void afterEach() {
         openSearchInstance.cleanUp();
     }
 
+    private ExportClient exportClient() {
+        return new ExportClient(openSearchInstance.openSearchClient());
+    }
+
     private RequestStrategy requestStrategy() {
-        final ExportClient exportClient = new ExportClient(openSearchInstance.openSearchClient());
-        return new SearchAfter(exportClient);
+        return new SearchAfter(exportClient());
     }
 
     @Test
@@ -227,6 +236,40 @@ public class OpenSearchExportBackendIT extends ElasticsearchBaseTest {
                 "graylog_0, 2015-01-01T04:00:00.000Z, source-2, Ho");
     }
 
+    @Test
+    public void sortsByTimestampAscendingWithParallelSlices() {
+        importFixture("messages.json");
+        helper = new OpenSearchExportITHelper(indexLookup, backendWithParallelism(3, true));
+
+        ExportMessagesCommand command = helper.commandBuilderWithAllTestDefaultStreams()
+                .chunkSize(1)
+                .build();
+        helper.mockIndexLookupFor(command, "graylog_0", "graylog_1");
+
+        helper.runWithExpectedResult(command, "timestamp,source,message",
+                "graylog_0, 2015-01-01T01:00:00.000Z, source-1, Ha",
+                "graylog_1, 2015-01-01T01:59:59.999Z, source-2, He",
+                "graylog_0, 2015-01-01T03:00:00.000Z, source-1, Hi",
+                "graylog_0, 2015-01-01T04:00:00.000Z, source-2, Ho");
+    }
+
+    @Test
+    public void interleavesParallelSlicesIfOrderIsNotKept() {
+        importFixture("messages.json");
+        helper = new OpenSearchExportITHelper(indexLookup, backendWithParallelism(3, false));
+
+        ExportMessagesCommand command = helper.commandBuilderWithAllTestDefaultStreams()
+                .chunkSize(1)
+                .build();
+        helper.mockIndexLookupFor(command, "graylog_0", "graylog_1");
+
+        helper.runWithExpectedResultIgnoringSort(command, "timestamp,source,message",
+                "graylog_0, 2015-01-01T01:00:00.000Z, source-1, Ha",
+                "graylog_1, 2015-01-01T01:59:59.999Z, source-2, He",
+                "graylog_0, 2015-01-01T03:00:00.000Z, source-1, Hi",
+                "graylog_0, 2015-01-01T04:00:00.000Z, source-2, Ho");
+    }
+
     @Test
     public void usesProvidedTimeZone() {
         importFixture("messages.json");
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.storage.opensearch2.views.export;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Timeout(10)
+class SlicePageBufferTest {
+    @Test
+    void returnsPagesSliceBySliceIfOrderIsKept() throws Exception {
+        final SlicePageBuffer<String> buffer = new SlicePageBuffer<>(2, 10, true);
+
+        buffer.reserve(1);
+        buffer.put(1, List.of("b1"), true);
+        buffer.reserve(0);
+        buffer.put(0, List.of("a1"), false);
+        buffer.reserve(0);
+        buffer.put(0, List.of("a2"), true);
+
+        assertThat(buffer.next()).containsExactly("a1");
+        assertThat(buffer.next()).containsExactly("a2");
+        assertThat(buffer.next()).containsExactly("b1");
+        assertThat(buffer.next()).isEmpty();
+    }
+
+    @Test
+    void returnsPagesOfAnySliceIfOrderIsNotKept() throws Exception {
+        final SlicePageBuffer<String> buffer = new SlicePageBuffer<>(2, 10, false);
+
+        buffer.reserve(1);
+        buffer.put(1, List.of("b1"), false);
+
+        assertThat(buffer.next()).containsExactly("b1");
+
+        buffer.reserve(0);
+        buffer.put(0, List.of("a1"), true);
+        buffer.reserve(1);
+        buffer.put(1, List.of(), true);
+
+        assertThat(buffer.next()).containsExactly("a1");
+        assertThat(buffer.next()).isEmpty();
+    }
+
+    @Test
+    void blocksReadersWhenBudgetIsUsedUp() throws Exception {
+        final SlicePageBuffer<String> buffer = new SlicePageBuffer<>(3, 2, true);
+
+        buffer.reserve(1);
+        buffer.put(1, List.of("b1"), false);
+        buffer.reserve(2);
+        buffer.put(2, List.of("c1"), false);
+
+        final CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> reserve(buffer, 2));
+        assertThat(blocked).failsWithin(100, TimeUnit.MILLISECONDS).withThrowableThat().isInstanceOf(TimeoutException.class);
+
+        // The current slice isn't starved by the read-ahead pages of the later slices
+        buffer.reserve(0);
+        buffer.put(0, List.of("a1"), true);
+        assertThat(buffer.next()).containsExactly("a1");
+        assertThat(buffer.next()).containsExactly("b1");
+
+        blocked.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void throwsFailureOfAnySlice() throws Exception {
+        final SlicePageBuffer<String> buffer = new SlicePageBuffer<>(2, 10, true);
+
+        buffer.reserve(0);
+        buffer.put(0, List.of("a1"), false);
+        buffer.fail(new IllegalStateException("Boom"));
+
+        assertThatThrownBy(buffer::next).isInstanceOf(IllegalStateException.class).hasMessage("Boom");
+    }
+
+    @Test
+    void keepsOrderWithConcurrentReaders() throws Exception {
+        final int slices = 4;
+        final int pagesPerSlice = 50;
+        final SlicePageBuffer<Integer> buffer = new SlicePageBuffer<>(slices, 3, true);
+        final ExecutorService executor = Executors.newFixedThreadPool(slices);
+        try {
+            for (int i = 0; i < slices; i++) {
+                final int slice = i;
+                executor.execute(() -> {
+                    for (int page = 0; page < pagesPerSlice; page++) {
+                        reserve(buffer, slice);
+                        buffer.put(slice, List.of(slice * pagesPerSlice + page), page == pagesPerSlice - 1);
+                    }
+                });
+            }
+
+            final List<Integer> values = new ArrayList<>();
+            for (List<Integer> page = buffer.next(); !page.isEmpty(); page = buffer.next()) {
+                values.addAll(page);
+            }
+
+            assertThat(values).hasSize(slices * pagesPerSlice).isSorted();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void reserve(SlicePageBuffer<?> buffer, int slice) {
+        try {
+            buffer.reserve(slice);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -57,6 +57,10 @@ import org.graylog.events.processor.aggregation.AggregationSearch;
 import org.graylog.events.processor.aggregation.PivotAggregationSearch;
 import org.graylog.events.processor.storage.EventStorageHandlerEngine;
 import org.graylog.events.processor.storage.PersistToStreamsStorageHandler;
+import org.graylog.events.processor.streaming.StreamingFilterEventDispatcher;
+import org.graylog.events.processor.streaming.StreamingFilterProcessor;
+import org.graylog.events.processor.streaming.StreamingFilterRefresher;
+import org.graylog.events.processor.streaming.StreamingFilterRegistry;
 import org.graylog.events.processor.systemnotification.SystemNotificationEventEntityScope;
 import org.graylog.events.processor.systemnotification.SystemNotificationEventProcessor;
 import org.graylog.events.processor.systemnotification.SystemNotificationEventProcessorConfig;
@@ -107,6 +111,11 @@ public class EventsModule extends PluginModule {
 
         addPeriodical(EventNotificationStatusCleanUp.class);
 
+        bind(StreamingFilterRegistry.class).asEagerSingleton();
+        addPeriodical(StreamingFilterRefresher.class);
+        addMessageProcessor(StreamingFilterProcessor.class, StreamingFilterProcessor.Descriptor.class);
+        serviceBinder().addBinding().to(StreamingFilterEventDispatcher.class).in(Scopes.SINGLETON);
+
         addEntityFacade(ModelTypes.EVENT_DEFINITION_V1, EventDefinitionFacade.class);
         addEntityFacade(ModelTypes.NOTIFICATION_V1, NotificationFacade.class);
 
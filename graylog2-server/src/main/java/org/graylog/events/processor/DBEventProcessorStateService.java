@@ -20,6 +20,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 import com.mongodb.BasicDBObject;
 import org.bson.types.ObjectId;
+import org.graylog.events.processor.aggregation.AggregationSlices;
 import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
 import org.graylog2.database.MongoConnection;
 import org.graylog2.database.MongoDBUpsertRetryer;
@@ -34,12 +35,15 @@ import org.slf4j.LoggerFactory;
 
 import jakarta.inject.Inject;
 
+import javax.annotation.Nullable;
+
 import java.util.Optional;
 import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.util.Objects.requireNonNull;
+import static org.graylog.events.processor.EventProcessorStateDto.FIELD_AGGREGATION_SLICES;
 import static org.graylog.events.processor.EventProcessorStateDto.FIELD_EVENT_DEFINITION_ID;
 import static org.graylog.events.processor.EventProcessorStateDto.FIELD_MAX_PROCESSED_TIMESTAMP;
 import static org.graylog.events.processor.EventProcessorStateDto.FIELD_MIN_PROCESSED_TIMESTAMP;
@@ -151,6 +155,33 @@ public class DBEventProcessorStateService {
                 true)));
     }
 
+    /**
+     * Loads the partial aggregation results for the given event definition ID.
+     *
+     * @param eventDefinitionId the event definition ID to load the aggregation slices for
+     * @return filled optional with the aggregation slices if they exist, empty optional otherwise
+     */
+    public Optional<AggregationSlices> getAggregationSlices(String eventDefinitionId) {
+        return findByEventDefinitionId(eventDefinitionId).map(EventProcessorStateDto::aggregationSlices);
+    }
+
+    /**
+     * Replaces the partial aggregation results of an existing event processor state record. Nothing is stored if
+     * there is no state record for the given event definition ID, yet.
+     *
+     * @param eventDefinitionId the related event definition ID
+     * @param aggregationSlices the new aggregation slices, null removes the existing ones
+     */
+    public void setAggregationSlices(String eventDefinitionId, @Nullable AggregationSlices aggregationSlices) {
+        checkArgument(!isNullOrEmpty(eventDefinitionId), "eventDefinitionId cannot be null or empty");
+
+        final DBUpdate.Builder update = aggregationSlices == null
+                ? DBUpdate.unset(FIELD_AGGREGATION_SLICES)
+                : DBUpdate.set(FIELD_AGGREGATION_SLICES, aggregationSlices);
+
+        db.update(DBQuery.is(FIELD_EVENT_DEFINITION_ID, eventDefinitionId), update);
+    }
+
     /**
      * Only used to create an {@link UpdateOperationValue} for
      * {@link DBUpdate.Builder#addOperation(String, String, UpdateOperationValue)}.
@@ -17,6 +17,8 @@
 package org.graylog.events.processor;
 
 import com.github.joschi.jadconfig.Parameter;
+import com.github.joschi.jadconfig.util.Duration;
+import com.github.joschi.jadconfig.validators.PositiveDurationValidator;
 import com.github.joschi.jadconfig.validators.PositiveIntegerValidator;
 
 public class EventDefinitionConfiguration {
@@ -24,7 +26,68 @@ public class EventDefinitionConfiguration {
     @Parameter(value = "event_definition_max_event_limit", validators = PositiveIntegerValidator.class)
     private int maxEventLimit = 1000;
 
+    @Parameter(value = "event_definition_streaming_filters_enabled")
+    private boolean streamingFiltersEnabled = false;
+
+    @Parameter(value = "event_definition_streaming_filters_queue_size", validators = PositiveIntegerValidator.class)
+    private int streamingFiltersQueueSize = 10_000;
+
+    @Parameter(value = "event_definition_streaming_filters_refresh_interval", validators = PositiveDurationValidator.class)
+    private Duration streamingFiltersRefreshInterval = Duration.seconds(5);
+
+    @Parameter(value = "event_definition_search_batch_window")
+    private Duration searchBatchWindow = Duration.milliseconds(0);
+
+    @Parameter(value = "event_definition_search_batch_max_size", validators = PositiveIntegerValidator.class)
+    private int searchBatchMaxSize = 50;
+
+    @Parameter(value = "event_definition_incremental_aggregation_enabled")
+    private boolean incrementalAggregationEnabled = false;
+
+    @Parameter(value = "event_definition_incremental_aggregation_max_keys", validators = PositiveIntegerValidator.class)
+    private int incrementalAggregationMaxKeys = 10_000;
+
     public int getMaxEventLimit() {
         return maxEventLimit;
     }
+
+    /**
+     * Filter-only event definitions with a query that can be evaluated in memory are matched against messages in
+     * the processing chain instead of running a scheduled search. This has to be enabled on all nodes.
+     */
+    public boolean isStreamingFiltersEnabled() {
+        return streamingFiltersEnabled;
+    }
+
+    public int getStreamingFiltersQueueSize() {
+        return streamingFiltersQueueSize;
+    }
+
+    public Duration getStreamingFiltersRefreshInterval() {
+        return streamingFiltersRefreshInterval;
+    }
+
+    /**
+     * Aggregation searches of event definitions which are started within this window are combined into a single
+     * multi-search request. A window of zero disables batching.
+     */
+    public Duration getSearchBatchWindow() {
+        return searchBatchWindow;
+    }
+
+    public int getSearchBatchMaxSize() {
+        return searchBatchMaxSize;
+    }
+
+    /**
+     * Sliding-window aggregations keep partial results for each execution interval in the event processor state
+     * and only search the newest interval on each execution.
+     */
+    public boolean isIncrementalAggregationEnabled() {
+        return incrementalAggregationEnabled;
+    }
+
+    public int getIncrementalAggregationMaxKeys() {
+        return incrementalAggregationMaxKeys;
+    }
 }
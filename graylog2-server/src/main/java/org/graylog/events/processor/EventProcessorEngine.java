@@ -29,6 +29,7 @@ import org.graylog.events.processor.modifier.EventModifier;
 import org.graylog.events.processor.modifier.EventModifierException;
 import org.graylog.events.processor.storage.EventStorageHandlerEngine;
 import org.graylog.events.processor.storage.EventStorageHandlerException;
+import org.graylog2.plugin.Message;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -115,6 +116,49 @@ public class EventProcessorEngine {
         }
     }
 
+    /**
+     * Creates events for messages which have been matched against the given event definition in the processing
+     * chain. See {@link StreamingEventProcessor}.
+     */
+    public void executeStreaming(String definitionId, List<Message> messages) throws EventProcessorException {
+        final EventDefinitionDto definition = dbService.get(definitionId)
+                .orElseThrow(() -> new EventProcessorException("Event definition <" + definitionId + "> doesn't exist", true, definitionId));
+        // The definition might have been disabled since the processing chain loaded its filter
+        if (definition.state() != EventDefinition.State.ENABLED) {
+            LOG.debug("Skipping {} matched messages of disabled event definition <{}/{}>", messages.size(), definition.title(), definition.id());
+            return;
+        }
+        final EventProcessor.Factory factory = eventProcessorFactories.get(definition.config().type());
+
+        if (factory == null) {
+            throw new EventProcessorException("Couldn't find event processor factory for type " + definition.config().type(), true, definitionId, definition);
+        }
+        if (!(factory.create(definition) instanceof StreamingEventProcessor eventProcessor)) {
+            throw new EventProcessorException("Event processor type " + definition.config().type() + " doesn't support streaming", true, definitionId, definition);
+        }
+
+        LOG.debug("Executing streaming event processor <{}/{}/{}> for {} messages", definition.title(), definition.id(), definition.config().type(), messages.size());
+
+        final EventConsumer<List<EventWithContext>> eventConsumer = eventsWithContext -> emitEvents(eventProcessor, definition, eventsWithContext);
+
+        metrics.registerEventProcessor(eventProcessor, definitionId);
+        try {
+            metrics.recordExecutions(eventProcessor, definitionId);
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+            eventProcessor.createEventsFromMessages(eventFactoryProvider.get(), messages, eventConsumer);
+            stopwatch.stop();
+
+            metrics.recordExecutionTime(eventProcessor, definitionId, stopwatch.elapsed());
+            metrics.recordSuccess(eventProcessor, definitionId);
+        } catch (EventProcessorException e) {
+            metrics.recordException(eventProcessor, definitionId);
+            throw e;
+        } catch (Exception e) {
+            metrics.recordException(eventProcessor, definitionId);
+            throw new EventProcessorException("Couldn't create events for: " + definition.toString(), false, definition, e);
+        }
+    }
+
     private void emitEvents(EventProcessor eventProcessor, EventDefinition eventDefinition, List<EventWithContext> eventsWithContext) throws EventProcessorException {
         if (eventsWithContext.isEmpty()) {
             return;
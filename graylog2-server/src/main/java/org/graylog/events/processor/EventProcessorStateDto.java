@@ -20,6 +20,7 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.google.auto.value.AutoValue;
+import org.graylog.events.processor.aggregation.AggregationSlices;
 import org.joda.time.DateTime;
 import org.mongojack.Id;
 import org.mongojack.ObjectId;
@@ -33,6 +34,7 @@ public abstract class EventProcessorStateDto {
     static final String FIELD_EVENT_DEFINITION_ID = "event_definition_id";
     static final String FIELD_MIN_PROCESSED_TIMESTAMP = "min_processed_timestamp";
     static final String FIELD_MAX_PROCESSED_TIMESTAMP = "max_processed_timestamp";
+    static final String FIELD_AGGREGATION_SLICES = "aggregation_slices";
 
     @Id
     @ObjectId
@@ -49,6 +51,10 @@ public abstract class EventProcessorStateDto {
     @JsonProperty(FIELD_MAX_PROCESSED_TIMESTAMP)
     public abstract DateTime maxProcessedTimestamp();
 
+    @Nullable
+    @JsonProperty(FIELD_AGGREGATION_SLICES)
+    public abstract AggregationSlices aggregationSlices();
+
     public static Builder builder() {
         return Builder.create();
     }
@@ -76,6 +82,9 @@ public abstract class EventProcessorStateDto {
         @JsonProperty(FIELD_MAX_PROCESSED_TIMESTAMP)
         public abstract Builder maxProcessedTimestamp(DateTime maxProcessedTimestamp);
 
+        @JsonProperty(FIELD_AGGREGATION_SLICES)
+        public abstract Builder aggregationSlices(@Nullable AggregationSlices aggregationSlices);
+
         public abstract EventProcessorStateDto build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.processor;
+
+import org.graylog.events.event.EventFactory;
+import org.graylog.events.event.EventWithContext;
+import org.graylog2.plugin.Message;
+
+import java.util.List;
+
+/**
+ * Interface to be implemented by event processors which can create events from messages that have been matched
+ * in the processing chain instead of searching for them.
+ */
+public interface StreamingEventProcessor extends EventProcessor {
+    /**
+     * Creates events for the given messages by using the given {@link EventFactory} and passing them to the given
+     * {@link EventConsumer}.
+     *
+     * @param eventFactory   the event factory to create new {@link org.graylog.events.event.Event} instances
+     * @param messages       the messages which matched the event definition
+     * @param eventsConsumer the event consumer
+     * @throws EventProcessorException if the execution fails
+     */
+    void createEventsFromMessages(EventFactory eventFactory, List<Message> messages, EventConsumer<List<EventWithContext>> eventsConsumer) throws EventProcessorException;
+}
@@ -24,6 +24,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.Ints;
 import com.google.inject.assistedinject.Assisted;
+import com.mongodb.MongoException;
 import jakarta.inject.Inject;
 import org.graylog.events.conditions.BooleanNumberConditionsVisitor;
 import org.graylog.events.event.Event;
@@ -40,6 +41,9 @@ import org.graylog.events.processor.EventProcessorException;
 import org.graylog.events.processor.EventProcessorParameters;
 import org.graylog.events.processor.EventProcessorPreconditionException;
 import org.graylog.events.processor.EventStreamService;
+import org.graylog.events.processor.StreamingEventProcessor;
+import org.graylog.events.processor.streaming.StreamedMessageClaims;
+import org.graylog.events.processor.streaming.StreamingFilterCoverage;
 import org.graylog.events.search.MoreSearch;
 import org.graylog.plugins.views.search.SearchType;
 import org.graylog.plugins.views.search.elasticsearch.ElasticsearchQueryString;
@@ -50,6 +54,8 @@ import org.graylog.plugins.views.search.searchtypes.pivot.HasField;
 import org.graylog.plugins.views.search.searchtypes.pivot.SeriesSpec;
 import org.graylog.plugins.views.search.searchtypes.pivot.series.HasOptionalField;
 import org.graylog2.indexer.ElasticsearchException;
+import org.graylog2.indexer.IndexSet;
+import org.graylog2.indexer.messages.DocumentNotFoundException;
 import org.graylog2.indexer.messages.Messages;
 import org.graylog2.indexer.results.ResultMessage;
 import org.graylog2.notifications.Notification;
@@ -64,9 +70,14 @@ import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -80,7 +91,7 @@ import java.util.stream.Collectors;
 import static org.graylog.events.search.MoreSearch.luceneEscape;
 import static org.graylog2.notifications.Notification.Type.EVENT_LIMIT_REACHED;
 
-public class AggregationEventProcessor implements EventProcessor {
+public class AggregationEventProcessor implements StreamingEventProcessor {
     public interface Factory extends EventProcessor.Factory<AggregationEventProcessor> {
         @Override
         AggregationEventProcessor create(EventDefinition eventDefinition);
@@ -100,6 +111,8 @@ public class AggregationEventProcessor implements EventProcessor {
     private final PermittedStreams permittedStreams;
     private final Set<EventQuerySearchTypeSupplier> eventQueryModifiers;
     private final MessageFactory messageFactory;
+    private final StreamingFilterCoverage streamingFilterCoverage;
+    private final StreamedMessageClaims streamedMessageClaims;
 
     @Inject
     public AggregationEventProcessor(@Assisted EventDefinition eventDefinition,
@@ -111,7 +124,9 @@ public class AggregationEventProcessor implements EventProcessor {
                                      Messages messages, NotificationService notificationService,
                                      PermittedStreams permittedStreams,
                                      Set<EventQuerySearchTypeSupplier> eventQueryModifiers,
-                                     MessageFactory messageFactory) {
+                                     MessageFactory messageFactory,
+                                     StreamingFilterCoverage streamingFilterCoverage,
+                                     StreamedMessageClaims streamedMessageClaims) {
         this.eventDefinition = eventDefinition;
         this.config = (AggregationEventProcessorConfig) eventDefinition.config();
         this.aggregationSearchFactory = aggregationSearchFactory;
@@ -124,6 +139,8 @@ public class AggregationEventProcessor implements EventProcessor {
         this.permittedStreams = permittedStreams;
         this.eventQueryModifiers = eventQueryModifiers;
         this.messageFactory = messageFactory;
+        this.streamingFilterCoverage = streamingFilterCoverage;
+        this.streamedMessageClaims = streamedMessageClaims;
     }
 
     @Override
@@ -178,6 +195,13 @@ public class AggregationEventProcessor implements EventProcessor {
                 final ResultMessage message;
                 message = messages.get(esContext.messageId(), esContext.indexName());
                 messageConsumer.accept(Lists.newArrayList(new MessageSummary(message.getIndex(), message.getMessage())));
+            } catch (DocumentNotFoundException e) {
+                // Events created in the processing chain reference the write index alias of the message, which
+                // might point to a different index by now.
+                if (event.getTimerangeStart() == null || event.getTimerangeEnd() == null) {
+                    throw e;
+                }
+                searchSourceMessage(event, esContext.messageId(), messageConsumer);
             } catch (IOException e) {
                 throw new EventProcessorException("Failed to query origin context message", false, eventDefinition, e);
             }
@@ -207,6 +231,18 @@ public class AggregationEventProcessor implements EventProcessor {
         }
     }
 
+    private void searchSourceMessage(Event event, String messageId, Consumer<List<MessageSummary>> messageConsumer) throws EventProcessorException {
+        final MoreSearch.ScrollCallback callback = (messages, continueScrolling) -> {
+            messageConsumer.accept(messages.stream()
+                    .map(resultMessage -> new MessageSummary(resultMessage.getIndex(), resultMessage.getMessage()))
+                    .collect(Collectors.toList()));
+            continueScrolling.set(false);
+        };
+        final String query = new StringBuilder(Message.FIELD_ID).append(":\"").append(luceneEscape(messageId)).append("\"").toString();
+        final TimeRange timeRange = AbsoluteRange.create(event.getTimerangeStart(), event.getTimerangeEnd());
+        moreSearch.scrollQuery(query, event.getSourceStreams(), List.of(), Set.of(), timeRange, 1, callback);
+    }
+
     // Return the ES query string for the group by fields specified in event; or empty if none specified.
     // Search value is escaped and enclosed in quotes.
     private ElasticsearchQueryString groupByQueryString(Event event) {
@@ -239,28 +275,25 @@ public class AggregationEventProcessor implements EventProcessor {
             streams = new HashSet<>(permittedStreams.loadAllMessageStreams(streamId -> true));
         }
 
+        // For streamed event definitions the search only catches up on the time range the processing chain didn't cover
+        final StreamingFilterCoverage.Coverage coverage = streamingCoverage(parameters);
+        if (coverage.uncovered() == null) {
+            LOG.debug("Skipping search for <{}/{}>, the processing chain has created all events for timerange <{} to {}>.",
+                    eventDefinition.title(), eventDefinition.id(), parameters.timerange().getFrom(), parameters.timerange().getTo());
+            return;
+        }
+        final boolean streamed = coverage.streamed();
         final AtomicInteger messageCount = new AtomicInteger(0);
         final MoreSearch.ScrollCallback callback = (messages, continueScrolling) -> {
             final ImmutableList.Builder<EventWithContext> eventsWithContext = ImmutableList.builder();
+            final Set<String> claimed = streamed ? claim(messages.stream().map(m -> m.getMessage().getId()).toList()) : null;
 
             for (final ResultMessage resultMessage : messages) {
                 final Message msg = resultMessage.getMessage();
-                final Event event = eventFactory.createEvent(eventDefinition, msg.getTimestamp(), eventDefinition.title());
-                event.setOriginContext(EventOriginContext.elasticsearchMessage(resultMessage.getIndex(), msg.getId()));
-
-                // Ensure the event has values in the "source_streams" field for permission checks to work
-                eventStreamService.buildEventSourceStreams(getStreams(parameters), ImmutableSet.copyOf(msg.getStreamIds()))
-                        .forEach(event::addSourceStream);
-
-                event.setReplayInfo(EventReplayInfo.builder()
-                        .timerangeStart(parameters.timerange().getFrom())
-                        .timerangeEnd(parameters.timerange().getTo())
-                        .query(config.query())
-                        .streams(event.getSourceStreams())
-                        .filters(config.filters())
-                        .build());
-
-                eventsWithContext.add(EventWithContext.create(event, msg));
+                if (claimed != null && !claimed.contains(msg.getId())) {
+                    continue;
+                }
+                eventsWithContext.add(eventFromMessage(eventFactory, msg, resultMessage.getIndex(), getStreams(parameters), parameters.timerange()));
                 if (config.eventLimit() != 0) {
                     if (messageCount.incrementAndGet() >= config.eventLimit()) {
                         eventsConsumer.accept(eventsWithContext.build());
@@ -273,19 +306,124 @@ public class AggregationEventProcessor implements EventProcessor {
 
         try {
             moreSearch.scrollQuery(config.query(), streams, config.filters(), config.queryParameters(),
-                    parameters.timerange(), parameters.batchSize(), callback);
+                    coverage.uncovered(), parameters.batchSize(), callback);
         } catch (EventLimitReachedException e) {
-            notificationService.publishIfFirst(notificationService.buildNow()
-                    .addType(EVENT_LIMIT_REACHED)
-                    .addKey(eventDefinition.id())
-                    .addDetail("event_definition_title", eventDefinition.title())
-                    .addDetail("event_definition_id", eventDefinition.id())
-                    .addDetail("event_limit", config.eventLimit())
-                    .addSeverity(Notification.Severity.NORMAL)
-            );
-
-            LOG.debug("Event limit reached at {} for '{}/{}' event definition.", config.eventLimit(), eventDefinition.title(), eventDefinition.id());
+            publishEventLimitReached();
+        }
+    }
+
+    private StreamingFilterCoverage.Coverage streamingCoverage(AggregationEventProcessorParameters parameters) throws EventProcessorException {
+        // The processing chain only uses the streams of the event definition
+        if (!parameters.streams().isEmpty() && !parameters.streams().equals(config.streams())) {
+            return new StreamingFilterCoverage.Coverage(false, parameters.timerange());
+        }
+        try {
+            return streamingFilterCoverage.check(eventDefinition.id(), parameters.timerange());
+        } catch (MongoException e) {
+            throw new EventProcessorException("Couldn't check the coverage of the processing chain", false, eventDefinition, e);
+        }
+    }
+
+    @Override
+    public void createEventsFromMessages(EventFactory eventFactory, List<Message> messages,
+                                         EventConsumer<List<EventWithContext>> eventsConsumer) throws EventProcessorException {
+        final ImmutableList.Builder<EventWithContext> eventsWithContext = ImmutableList.builder();
+        // Same streams as the scheduled search uses, see #filterSearch
+        final Set<String> streams = config.streams().isEmpty()
+                ? ImmutableSet.copyOf(permittedStreams.loadAllMessageStreams(streamId -> true))
+                : config.streams();
+        final List<Message> matching = messages.stream()
+                .filter(msg -> msg.getStreamIds().stream().anyMatch(streams::contains))
+                .toList();
+        final Set<String> claimed = claim(matching.stream().map(Message::getId).toList());
+        // Messages which have already been claimed got their event from the scheduled search
+        final List<Message> unclaimed = matching.stream().filter(msg -> claimed.contains(msg.getId())).toList();
+
+        for (final Message msg : config.eventLimit() == 0 ? unclaimed : withinEventLimit(unclaimed)) {
+            // The message hasn't been indexed yet, so we can only reference the write index alias of its index set.
+            final String indexName = msg.getIndexSets().stream()
+                    .findFirst()
+                    .map(IndexSet::getWriteIndexAlias)
+                    .orElse(null);
+            final TimeRange timerange = AbsoluteRange.create(msg.getTimestamp().minus(config.searchWithinMs()), msg.getTimestamp());
+
+            final EventWithContext eventWithContext = eventFromMessage(eventFactory, msg, indexName, config.streams(), timerange);
+            eventWithContext.event().setTimerangeStart(timerange.getFrom());
+            eventWithContext.event().setTimerangeEnd(timerange.getTo());
+            eventsWithContext.add(eventWithContext);
+        }
+
+        eventsConsumer.accept(eventsWithContext.build());
+    }
+
+    // There are no executions for messages matched in the processing chain, so the event limit applies to the
+    // windows in which the scheduled search would have been executed. The windows are shared by all nodes.
+    private List<Message> withinEventLimit(List<Message> messages) throws EventProcessorException {
+        final long executeEveryMs = Math.max(1, config.executeEveryMs());
+        final Map<Long, List<Message>> messagesByWindow = messages.stream()
+                .collect(Collectors.groupingBy(msg -> Math.floorDiv(msg.getTimestamp().getMillis(), executeEveryMs) * executeEveryMs,
+                        LinkedHashMap::new, Collectors.toList()));
+
+        final List<Message> permitted = new ArrayList<>(messages.size());
+        boolean limitReached = false;
+        for (final Map.Entry<Long, List<Message>> window : messagesByWindow.entrySet()) {
+            final List<Message> windowMessages = window.getValue();
+            final int reserved;
+            try {
+                reserved = streamedMessageClaims.reserveEvents(eventDefinition.id(), new Date(window.getKey()), windowMessages.size(), config.eventLimit());
+            } catch (MongoException e) {
+                throw new EventProcessorException("Couldn't reserve events within the event limit", false, eventDefinition, e);
+            }
+            permitted.addAll(windowMessages.subList(0, reserved));
+            limitReached |= reserved < windowMessages.size();
+        }
+        if (limitReached) {
+            publishEventLimitReached();
+        }
+        return permitted;
+    }
+
+    private Set<String> claim(List<String> messageIds) throws EventProcessorException {
+        try {
+            return streamedMessageClaims.claim(eventDefinition.id(), messageIds);
+        } catch (MongoException e) {
+            throw new EventProcessorException("Couldn't claim matched messages for event creation", false, eventDefinition, e);
+        }
+    }
+
+    private EventWithContext eventFromMessage(EventFactory eventFactory, Message msg, @Nullable String indexName,
+                                              Set<String> streams, TimeRange timerange) {
+        final Event event = eventFactory.createEvent(eventDefinition, msg.getTimestamp(), eventDefinition.title());
+        if (indexName != null) {
+            event.setOriginContext(EventOriginContext.elasticsearchMessage(indexName, msg.getId()));
         }
+
+        // Ensure the event has values in the "source_streams" field for permission checks to work
+        eventStreamService.buildEventSourceStreams(streams, ImmutableSet.copyOf(msg.getStreamIds()))
+                .forEach(event::addSourceStream);
+
+        event.setReplayInfo(EventReplayInfo.builder()
+                .timerangeStart(timerange.getFrom())
+                .timerangeEnd(timerange.getTo())
+                .query(config.query())
+                .streams(event.getSourceStreams())
+                .filters(config.filters())
+                .build());
+
+        return EventWithContext.create(event, msg);
+    }
+
+    private void publishEventLimitReached() {
+        notificationService.publishIfFirst(notificationService.buildNow()
+                .addType(EVENT_LIMIT_REACHED)
+                .addKey(eventDefinition.id())
+                .addDetail("event_definition_title", eventDefinition.title())
+                .addDetail("event_definition_id", eventDefinition.id())
+                .addDetail("event_limit", config.eventLimit())
+                .addSeverity(Notification.Severity.NORMAL)
+        );
+
+        LOG.debug("Event limit reached at {} for '{}/{}' event definition.", config.eventLimit(), eventDefinition.title(), eventDefinition.id());
     }
 
     private void aggregatedSearch(EventFactory eventFactory, AggregationEventProcessorParameters parameters,
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.processor.aggregation;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Uninterruptibles;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.graylog.events.configuration.EventsConfigurationProvider;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.QueryResult;
+import org.graylog.plugins.views.search.Search;
+import org.graylog.plugins.views.search.SearchJob;
+import org.graylog.plugins.views.search.SearchType;
+import org.graylog.plugins.views.search.db.SearchJobService;
+import org.graylog.plugins.views.search.elasticsearch.ElasticsearchQueryString;
+import org.graylog.plugins.views.search.engine.QueryEngine;
+import org.graylog.plugins.views.search.errors.SearchError;
+import org.graylog.plugins.views.search.errors.SearchTypeError;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.graylog.plugins.views.search.SearchJob.NO_CANCELLATION;
+
+/**
+ * Combines the aggregation searches of event processors that are executed at the same time into a single search.
+ * <p>
+ * All search types of a batch are put into one query, so the search backend executes them with a single multi-search
+ * request. Every search type has to carry its own query, streams and timerange because the query of the combined
+ * search matches everything.
+ * <p>
+ * The first search of a batch waits for the configured batch window (or until the batch is full) and executes the
+ * combined search. All other searches of the batch wait for its result.
+ */
+@Singleton
+public class AggregationSearchBatcher {
+    private static final Logger LOG = LoggerFactory.getLogger(AggregationSearchBatcher.class);
+    private static final String BATCH_QUERY_ID = "aggregation-batch-query";
+    private static final String SEARCH_OWNER = "event-processor-aggregation-batch";
+
+    /**
+     * A single aggregation search.
+     *
+     * @param searchTypes         the search types to execute, the IDs must be unique across all event processors
+     * @param timerange           the timerange which covers the timeranges of all search types
+     * @param timezone            the timezone to execute the search in, only searches with the same timezone are batched
+     * @param unbatchedRoundTrips the number of search requests needed to execute the search on its own
+     */
+    public record Request(Set<SearchType> searchTypes, TimeRange timerange, DateTimeZone timezone, int unbatchedRoundTrips) {}
+
+    /**
+     * The results of a single aggregation search.
+     *
+     * @param query   the query which has been executed for the batch
+     * @param results the results of the search types of the request, keyed by search type ID
+     * @param errors  the errors of the search types of the request and all errors of the whole batch
+     */
+    public record Response(Query query, Map<String, SearchType.Result> results, Set<SearchError> errors) {}
+
+    private final SearchJobService searchJobService;
+    private final QueryEngine queryEngine;
+    private final EventsConfigurationProvider configurationProvider;
+    private final long batchWindowMs;
+    private final int maxBatchSize;
+
+    private final Histogram batchSize;
+    private final Meter executedBatches;
+    private final Counter savedRoundTrips;
+
+    private final Object lock = new Object();
+    private Batch pendingBatch;
+
+    @Inject
+    public AggregationSearchBatcher(SearchJobService searchJobService,
+                                    QueryEngine queryEngine,
+                                    EventsConfigurationProvider configurationProvider,
+                                    MetricRegistry metricRegistry,
+                                    @Named("event_definition_search_batch_window") Duration batchWindow,
+                                    @Named("event_definition_search_batch_max_size") int maxBatchSize) {
+        this.searchJobService = searchJobService;
+        this.queryEngine = queryEngine;
+        this.configurationProvider = configurationProvider;
+        this.batchWindowMs = batchWindow.toMilliseconds();
+        this.maxBatchSize = maxBatchSize;
+
+        this.batchSize = metricRegistry.histogram(name(AggregationSearchBatcher.class, "batchSize"));
+        this.executedBatches = metricRegistry.meter(name(AggregationSearchBatcher.class, "executedBatches"));
+        this.savedRoundTrips = metricRegistry.counter(name(AggregationSearchBatcher.class, "savedRoundTrips"));
+    }
+
+    public boolean isEnabled() {
+        return batchWindowMs > 0 && maxBatchSize > 0;
+    }
+
+    /**
+     * Executes the given request as part of a batch and blocks until the result is available.
+     *
+     * @param request the search request
+     * @return the search response for the request
+     * @throws ExecutionException if the batch search failed
+     * @throws TimeoutException   if the batch search didn't complete within the events search timeout
+     */
+    public Response execute(Request request) throws ExecutionException, TimeoutException {
+        final Batch batch;
+        final boolean leader;
+        synchronized (lock) {
+            if (pendingBatch != null && pendingBatch.tryAdd(request)) {
+                batch = pendingBatch;
+                leader = false;
+            } else {
+                batch = new Batch(maxBatchSize, request.timezone());
+                batch.tryAdd(request);
+                pendingBatch = batch;
+                leader = true;
+            }
+        }
+
+        if (leader) {
+            if (!batch.awaitFull(batchWindowMs)) {
+                LOG.trace("Batch window elapsed before the aggregation search batch was full");
+            }
+            synchronized (lock) {
+                batch.close();
+                if (pendingBatch == batch) {
+                    pendingBatch = null;
+                }
+            }
+            run(batch);
+        }
+
+        final long timeoutMs = configurationProvider.get().eventsSearchTimeout();
+        final Map<String, QueryResult> results = Uninterruptibles.getUninterruptibly(batch.result, timeoutMs, TimeUnit.MILLISECONDS);
+        return toResponse(request, results.get(BATCH_QUERY_ID));
+    }
+
+    private void run(Batch batch) {
+        final List<Request> requests = batch.requests();
+        final Set<SearchType> searchTypes = requests.stream()
+                .flatMap(request -> request.searchTypes().stream())
+                .collect(ImmutableSet.toImmutableSet());
+
+        batchSize.update(requests.size());
+        executedBatches.mark();
+        savedRoundTrips.inc(requests.stream().mapToInt(Request::unbatchedRoundTrips).sum() - 1);
+        LOG.debug("Executing aggregation search batch with {} searches and {} search types", requests.size(), searchTypes.size());
+
+        try {
+            final Query query = Query.builder()
+                    .id(BATCH_QUERY_ID)
+                    .query(ElasticsearchQueryString.empty())
+                    .timerange(spanningTimerange(requests))
+                    .searchTypes(searchTypes)
+                    .build();
+            final Search search = Search.builder()
+                    .queries(ImmutableSet.of(query))
+                    .build();
+            final SearchJob searchJob = queryEngine.execute(searchJobService.create(search, SEARCH_OWNER, NO_CANCELLATION),
+                    Collections.emptySet(), batch.timezone);
+
+            searchJob.getResultFuture()
+                    .thenApply(ignored -> searchJob.results())
+                    .whenComplete((results, throwable) -> {
+                        if (throwable != null) {
+                            batch.result.completeExceptionally(throwable);
+                        } else {
+                            batch.result.complete(results);
+                        }
+                    });
+        } catch (Exception e) {
+            batch.result.completeExceptionally(e);
+        }
+    }
+
+    private Response toResponse(Request request, QueryResult queryResult) throws ExecutionException {
+        if (queryResult == null) {
+            throw new ExecutionException(new IllegalStateException("Missing result for aggregation search batch"));
+        }
+        final Set<String> searchTypeIds = new HashSet<>();
+        request.searchTypes().forEach(searchType -> searchTypeIds.add(searchType.id()));
+
+        final Map<String, SearchType.Result> results = new HashMap<>();
+        queryResult.searchTypes().forEach((id, result) -> {
+            if (searchTypeIds.contains(id)) {
+                results.put(id, result);
+            }
+        });
+
+        // Errors of other search types in the batch must not fail this request, errors of the whole query must.
+        final Set<SearchError> errors = new HashSet<>();
+        if (queryResult.errors() != null) {
+            queryResult.errors().stream()
+                    .filter(error -> !(error instanceof SearchTypeError searchTypeError) || searchTypeIds.contains(searchTypeError.searchTypeId()))
+                    .forEach(errors::add);
+        }
+
+        return new Response(queryResult.query(), results, errors);
+    }
+
+    private static TimeRange spanningTimerange(List<Request> requests) {
+        DateTime from = null;
+        DateTime to = null;
+        for (final Request request : requests) {
+            final TimeRange timerange = request.timerange();
+            from = from == null || timerange.getFrom().isBefore(from) ? timerange.getFrom() : from;
+            to = to == null || timerange.getTo().isAfter(to) ? timerange.getTo() : to;
+        }
+        return AbsoluteRange.create(from, to);
+    }
+
+    private static class Batch {
+        private final int maxSize;
+        private final DateTimeZone timezone;
+        private final List<Request> requests = new ArrayList<>();
+        private final Set<String> searchTypeIds = new HashSet<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+        private final CompletableFuture<Map<String, QueryResult>> result = new CompletableFuture<>();
+        private boolean closed = false;
+
+        Batch(int maxSize, DateTimeZone timezone) {
+            this.maxSize = maxSize;
+            this.timezone = timezone;
+        }
+
+        // Must be called while holding the batcher lock
+        boolean tryAdd(Request request) {
+            if (closed || requests.size() >= maxSize || !timezone.equals(request.timezone())) {
+                return false;
+            }
+            for (final SearchType searchType : request.searchTypes()) {
+                if (searchTypeIds.contains(searchType.id())) {
+                    return false;
+                }
+            }
+            request.searchTypes().forEach(searchType -> searchTypeIds.add(searchType.id()));
+            requests.add(request);
+            if (requests.size() >= maxSize) {
+                full.countDown();
+            }
+            return true;
+        }
+
+        // Must be called while holding the batcher lock
+        void close() {
+            closed = true;
+        }
+
+        // Only called by the leader after the batch has been closed
+        List<Request> requests() {
+            return List.copyOf(requests);
+        }
+
+        boolean awaitFull(long timeoutMs) {
+            return Uninterruptibles.awaitUninterruptibly(full, timeoutMs, TimeUnit.MILLISECONDS);
+        }
+    }
+}
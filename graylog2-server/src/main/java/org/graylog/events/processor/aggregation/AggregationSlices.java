@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.processor.aggregation;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.joda.time.DateTime;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Partial aggregation results of an event definition, one entry per sub-window ("slice") of the search window.
+ *
+ * @param fingerprint identifies the aggregation configuration the slices have been computed for
+ * @param slices      the partial results ordered by time
+ */
+public record AggregationSlices(@JsonProperty(FIELD_FINGERPRINT) String fingerprint,
+                                @JsonProperty(FIELD_SLICES) List<Slice> slices) {
+    static final String FIELD_FINGERPRINT = "fingerprint";
+    static final String FIELD_SLICES = "slices";
+
+    /**
+     * @param from          start of the slice (inclusive)
+     * @param to            end of the slice (exclusive)
+     * @param total         number of aggregated messages attributed to the slice
+     * @param sourceStreams streams of the aggregated messages
+     * @param rows          the partial series values for each group-by key
+     */
+    public record Slice(@JsonProperty("from") DateTime from,
+                        @JsonProperty("to") DateTime to,
+                        @JsonProperty("total") long total,
+                        @JsonProperty("source_streams") Set<String> sourceStreams,
+                        @JsonProperty("rows") List<Row> rows) {}
+
+    /**
+     * @param key    the group-by key
+     * @param values the series values in the order of the configured series, null if the backend didn't return a value
+     */
+    public record Row(@JsonProperty("key") List<String> key,
+                      @JsonProperty("values") List<Double> values) {}
+}
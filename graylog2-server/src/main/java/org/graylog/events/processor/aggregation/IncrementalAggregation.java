@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.processor.aggregation;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.graylog.events.processor.DBEventProcessorStateService;
+import org.graylog.events.processor.EventDefinition;
+import org.graylog.events.processor.EventProcessorException;
+import org.graylog.plugins.views.search.SearchType;
+import org.graylog.plugins.views.search.searchtypes.pivot.SeriesSpec;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Count;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Max;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Min;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Sum;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Computes sliding-window aggregations incrementally.
+ * <p>
+ * If an event definition searches a window which is a multiple of its execution interval (e.g. the last hour every
+ * minute) every execution would aggregate mostly the same messages again. Instead, the search window is split into
+ * slices of the execution interval size. The partial results of each slice are kept in the event processor state
+ * and each execution only searches the newest slice and merges it with the stored ones.
+ * <p>
+ * This only works for series whose partial results can be merged exactly (count, sum, min and max). Other series
+ * like cardinality or percentiles always use the regular search. The group-by of the aggregation search is not
+ * limited, so the slices contain all keys and merging them doesn't lose any top-N entries. Messages which are
+ * indexed after their slice has been searched are not taken into account, just like with the regular search for the
+ * newest slice.
+ */
+@Singleton
+public class IncrementalAggregation {
+    private static final Logger LOG = LoggerFactory.getLogger(IncrementalAggregation.class);
+
+    /**
+     * Runs the aggregation search with one date range bucket per slice.
+     */
+    @FunctionalInterface
+    public interface SliceSearch {
+        SliceSearchResult search(AggregationEventProcessorParameters parameters, long sliceMs) throws EventProcessorException;
+    }
+
+    /**
+     * @param result        the aggregation result with one key result per slice and group-by key
+     * @param totals        the number of aggregated messages by slice end in milliseconds
+     * @param sourceStreams the streams of the aggregated messages by slice end in milliseconds
+     */
+    public record SliceSearchResult(AggregationResult result,
+                                    Map<Long, Long> totals,
+                                    Map<Long, Set<String>> sourceStreams) {}
+
+    private final DBEventProcessorStateService stateService;
+    private final boolean enabled;
+    private final int maxKeys;
+
+    @Inject
+    public IncrementalAggregation(DBEventProcessorStateService stateService,
+                                  @Named("event_definition_incremental_aggregation_enabled") boolean enabled,
+                                  @Named("event_definition_incremental_aggregation_max_keys") int maxKeys) {
+        this.stateService = stateService;
+        this.enabled = enabled;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Checks if the aggregation for the given configuration and parameters can be computed incrementally.
+     *
+     * @param config                the aggregation config
+     * @param parameters            the parameters of the current execution
+     * @param additionalSearchTypes search types added by event query modifiers
+     * @return true if the aggregation can be computed incrementally, false otherwise
+     */
+    public boolean isApplicable(AggregationEventProcessorConfig config,
+                                AggregationEventProcessorParameters parameters,
+                                List<SearchType> additionalSearchTypes) {
+        if (!enabled || !additionalSearchTypes.isEmpty() || config.series().isEmpty()) {
+            return false;
+        }
+        final long sliceMs = config.executeEveryMs();
+        final long windowMs = config.searchWithinMs();
+        if (sliceMs <= 0 || windowMs <= sliceMs || windowMs % sliceMs != 0) {
+            return false;
+        }
+        // Catch-up executions search more than one window and use the regular search
+        final long timerangeMs = parameters.timerange().getTo().getMillis() - parameters.timerange().getFrom().getMillis();
+        if (timerangeMs != windowMs) {
+            return false;
+        }
+        return config.series().stream().allMatch(IncrementalAggregation::isMergeable);
+    }
+
+    /**
+     * Computes the aggregation for the window of the given parameters from the stored slices and a search for the
+     * missing ones. The updated slices are stored for the next execution.
+     *
+     * @param eventDefinition the event definition
+     * @param config          the aggregation config
+     * @param parameters      the parameters of the current execution
+     * @param sliceSearch     the search to compute the missing slices
+     * @return the aggregation result for the whole window
+     * @throws EventProcessorException if the search fails
+     */
+    public AggregationResult search(EventDefinition eventDefinition,
+                                    AggregationEventProcessorConfig config,
+                                    AggregationEventProcessorParameters parameters,
+                                    SliceSearch sliceSearch) throws EventProcessorException {
+        final long sliceMs = config.executeEveryMs();
+        final int sliceCount = (int) (config.searchWithinMs() / sliceMs);
+        final DateTime windowFrom = parameters.timerange().getFrom();
+        final DateTime windowTo = parameters.timerange().getTo();
+        final String fingerprint = fingerprint(config, parameters);
+
+        final Map<Long, AggregationSlices.Slice> storedSlices = stateService.getAggregationSlices(eventDefinition.id())
+                .filter(slices -> fingerprint.equals(slices.fingerprint()))
+                .map(slices -> slices.slices().stream()
+                        .collect(Collectors.toMap(slice -> slice.from().getMillis(), slice -> slice, (a, b) -> b)))
+                .orElse(Map.of());
+
+        // Reuse the stored slices from the start of the window up to the first missing one
+        final List<AggregationSlices.Slice> slices = new ArrayList<>(sliceCount);
+        int firstMissing = 0;
+        while (firstMissing < sliceCount) {
+            final AggregationSlices.Slice slice = storedSlices.get(windowFrom.plus(firstMissing * sliceMs).getMillis());
+            if (slice == null || slice.to().getMillis() - slice.from().getMillis() != sliceMs) {
+                break;
+            }
+            slices.add(slice);
+            firstMissing++;
+        }
+
+        final DateTime searchFrom = windowFrom.plus(firstMissing * sliceMs);
+        LOG.debug("Reusing {} of {} aggregation slices for event definition <{}/{}>, searching from <{}> to <{}>",
+                firstMissing, sliceCount, eventDefinition.title(), eventDefinition.id(), searchFrom, windowTo);
+
+        final SliceSearchResult result = sliceSearch.search(
+                (AggregationEventProcessorParameters) parameters.withTimerange(searchFrom, windowTo), sliceMs);
+        slices.addAll(toSlices(config, result, searchFrom, sliceCount - firstMissing, sliceMs));
+
+        final int keyCount = slices.stream().mapToInt(slice -> slice.rows().size()).sum();
+        if (keyCount > maxKeys) {
+            LOG.debug("Not storing {} aggregation slice keys for event definition <{}/{}>, the limit is {}",
+                    keyCount, eventDefinition.title(), eventDefinition.id(), maxKeys);
+            stateService.setAggregationSlices(eventDefinition.id(), null);
+        } else {
+            stateService.setAggregationSlices(eventDefinition.id(), new AggregationSlices(fingerprint, slices));
+        }
+
+        return merge(config, slices, AbsoluteRange.create(windowFrom, windowTo));
+    }
+
+    private List<AggregationSlices.Slice> toSlices(AggregationEventProcessorConfig config, SliceSearchResult result,
+                                                   DateTime from, int count, long sliceMs) {
+        final Map<Long, List<AggregationSlices.Row>> rowsBySliceEnd = new HashMap<>();
+        for (final AggregationKeyResult keyResult : result.result().keyResults()) {
+            // The key result timestamp is the end of the date range bucket
+            final long sliceEnd = keyResult.timestamp().map(DateTime::getMillis).orElse(from.plus(count * sliceMs).getMillis());
+            final List<Double> values = new ArrayList<>(config.series().size());
+            for (final SeriesSpec series : config.series()) {
+                values.add(keyResult.seriesValues().stream()
+                        .filter(seriesValue -> seriesValue.series().equals(series))
+                        .map(AggregationSeriesValue::value)
+                        .filter(value -> !Double.isNaN(value))
+                        .findFirst()
+                        .orElse(null));
+            }
+            rowsBySliceEnd.computeIfAbsent(sliceEnd, k -> new ArrayList<>()).add(new AggregationSlices.Row(keyResult.key(), values));
+        }
+
+        final ImmutableList.Builder<AggregationSlices.Slice> slices = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            final DateTime sliceFrom = from.plus(i * sliceMs);
+            final DateTime sliceTo = sliceFrom.plus(sliceMs);
+            slices.add(new AggregationSlices.Slice(
+                    sliceFrom,
+                    sliceTo,
+                    result.totals().getOrDefault(sliceTo.getMillis(), 0L),
+                    ImmutableSet.copyOf(result.sourceStreams().getOrDefault(sliceTo.getMillis(), Set.of())),
+                    rowsBySliceEnd.getOrDefault(sliceTo.getMillis(), List.of())));
+        }
+        return slices.build();
+    }
+
+    private AggregationResult merge(AggregationEventProcessorConfig config, List<AggregationSlices.Slice> slices, AbsoluteRange timerange) {
+        final List<SeriesSpec> series = config.series();
+        final Map<List<String>, Double[]> merged = new LinkedHashMap<>();
+        final ImmutableSet.Builder<String> sourceStreams = ImmutableSet.builder();
+        long total = 0;
+
+        for (final AggregationSlices.Slice slice : slices) {
+            total += slice.total();
+            sourceStreams.addAll(slice.sourceStreams());
+            for (final AggregationSlices.Row row : slice.rows()) {
+                final Double[] values = merged.computeIfAbsent(row.key(), k -> new Double[series.size()]);
+                for (int i = 0; i < series.size(); i++) {
+                    values[i] = mergeValue(series.get(i), values[i], i < row.values().size() ? row.values().get(i) : null);
+                }
+            }
+        }
+
+        final ImmutableList.Builder<AggregationKeyResult> keyResults = ImmutableList.builder();
+        merged.forEach((key, values) -> {
+            final ImmutableList.Builder<AggregationSeriesValue> seriesValues = ImmutableList.builder();
+            for (int i = 0; i < series.size(); i++) {
+                seriesValues.add(AggregationSeriesValue.builder()
+                        .key(key)
+                        // The search backend returns no value for e.g. the max of a non-existent field, we use NaN
+                        // in that case just like the regular search.
+                        .value(values[i] == null ? Double.NaN : values[i])
+                        .series(series.get(i))
+                        .build());
+            }
+            keyResults.add(AggregationKeyResult.builder()
+                    .key(key)
+                    .timestamp(timerange.getTo())
+                    .seriesValues(seriesValues.build())
+                    .build());
+        });
+
+        return AggregationResult.builder()
+                .keyResults(keyResults.build())
+                .effectiveTimerange(timerange)
+                .totalAggregatedMessages(total)
+                .sourceStreams(sourceStreams.build())
+                .build();
+    }
+
+    private static Double mergeValue(SeriesSpec series, Double current, Double value) {
+        if (current == null) {
+            return value;
+        }
+        if (value == null) {
+            return current;
+        }
+        if (series instanceof Min) {
+            return Math.min(current, value);
+        }
+        if (series instanceof Max) {
+            return Math.max(current, value);
+        }
+        // Count and sum
+        return current + value;
+    }
+
+    private static boolean isMergeable(SeriesSpec series) {
+        return series instanceof Count || series instanceof Sum || series instanceof Min || series instanceof Max;
+    }
+
+    // Stored slices are discarded if anything that influences the aggregation result changes
+    private static String fingerprint(AggregationEventProcessorConfig config, AggregationEventProcessorParameters parameters) {
+        final Set<String> streams = new TreeSet<>(parameters.streams().isEmpty() ? config.streams() : parameters.streams());
+        final String value = String.join("\n",
+                config.query(),
+                String.join(",", streams),
+                String.join(",", config.groupBy()),
+                config.series().toString(),
+                config.filters().toString(),
+                String.valueOf(config.searchWithinMs()),
+                String.valueOf(config.executeEveryMs()));
+        return Hashing.sha256().hashString(value, StandardCharsets.UTF_8).toString();
+    }
+}
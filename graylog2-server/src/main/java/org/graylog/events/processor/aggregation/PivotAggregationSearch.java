@@ -42,6 +42,7 @@ import org.graylog.plugins.views.search.engine.QueryEngine;
 import org.graylog.plugins.views.search.errors.EmptyParameterError;
 import org.graylog.plugins.views.search.errors.QueryError;
 import org.graylog.plugins.views.search.errors.SearchError;
+import org.graylog.plugins.views.search.errors.SearchTypeError;
 import org.graylog.plugins.views.search.filter.OrFilter;
 import org.graylog.plugins.views.search.filter.StreamFilter;
 import org.graylog.plugins.views.search.rest.PermittedStreams;
@@ -62,8 +63,12 @@ import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -101,6 +106,8 @@ public class PivotAggregationSearch implements AggregationSearch {
     private final PermittedStreams permittedStreams;
     private final NotificationService notificationService;
     private final QueryStringDecorators queryStringDecorators;
+    private final AggregationSearchBatcher searchBatcher;
+    private final IncrementalAggregation incrementalAggregation;
 
     @Inject
     public PivotAggregationSearch(@Assisted AggregationEventProcessorConfig config,
@@ -114,7 +121,9 @@ public class PivotAggregationSearch implements AggregationSearch {
                                   MoreSearch moreSearch,
                                   PermittedStreams permittedStreams,
                                   NotificationService notificationService,
-                                  QueryStringDecorators queryStringDecorators) {
+                                  QueryStringDecorators queryStringDecorators,
+                                  AggregationSearchBatcher searchBatcher,
+                                  IncrementalAggregation incrementalAggregation) {
         this.config = config;
         this.parameters = parameters;
         this.searchOwner = searchOwner;
@@ -127,6 +136,8 @@ public class PivotAggregationSearch implements AggregationSearch {
         this.permittedStreams = permittedStreams;
         this.notificationService = notificationService;
         this.queryStringDecorators = queryStringDecorators;
+        this.searchBatcher = searchBatcher;
+        this.incrementalAggregation = incrementalAggregation;
     }
 
     private String metricName(SeriesSpec series) {
@@ -135,9 +146,52 @@ public class PivotAggregationSearch implements AggregationSearch {
 
     @Override
     public AggregationResult doSearch() throws EventProcessorException {
-        final SearchJob searchJob = getSearchJob(parameters, searchOwner, config.searchWithinMs(), config.executeEveryMs());
-        final QueryResult queryResult = searchJob.results().get(QUERY_ID);
-        final QueryResult streamQueryResult = searchJob.results().get(STREAMS_QUERY_ID);
+        if (incrementalAggregation.isApplicable(config, parameters, additionalSearchTypes)) {
+            // Only the slices which haven't been aggregated by previous executions are searched
+            return incrementalAggregation.search(eventDefinition, config, parameters,
+                    (sliceParameters, sliceMs) -> doSliceSearch(sliceParameters, sliceMs));
+        }
+        return doSearch(parameters, config.searchWithinMs(), config.executeEveryMs(), false).aggregation();
+    }
+
+    private IncrementalAggregation.SliceSearchResult doSliceSearch(AggregationEventProcessorParameters parameters, long sliceMs) throws EventProcessorException {
+        final SearchResults results = doSearch(parameters, sliceMs, sliceMs, true);
+        final Map<Long, Long> totals = new HashMap<>();
+        final Map<Long, Set<String>> sourceStreams = new HashMap<>();
+        if (results.streams() != null) {
+            for (final PivotResult.Row row : results.streams().rows()) {
+                if (row.key().isEmpty()) {
+                    continue;
+                }
+                final long sliceEnd = parseTimeKey(row.key().get(0)).getMillis();
+                if ("leaf".equals(row.source()) && row.key().size() > 1) {
+                    sourceStreams.computeIfAbsent(sliceEnd, k -> new HashSet<>()).add(row.key().get(1));
+                } else if (row.key().size() == 1) {
+                    // The rollup row of a date range bucket contains the number of messages in the slice
+                    row.values().stream()
+                            .filter(value -> !value.key().isEmpty() && STREAMS_PIVOT_COUNT_ID.equals(value.key().get(0)))
+                            .filter(value -> value.value() instanceof Number)
+                            .findFirst()
+                            .ifPresent(value -> totals.put(sliceEnd, ((Number) value.value()).longValue()));
+                }
+            }
+        }
+        return new IncrementalAggregation.SliceSearchResult(results.aggregation(), totals, sourceStreams);
+    }
+
+    private record SearchResults(AggregationResult aggregation, @Nullable PivotResult streams) {}
+
+    /**
+     * @param slicedStreams wrap the source streams pivot into the same date range buckets as the aggregation so the
+     *                      number of messages and the streams can be attributed to each bucket
+     */
+    private SearchResults doSearch(AggregationEventProcessorParameters parameters, long searchWithinMs, long executeEveryMs,
+                                   boolean slicedStreams) throws EventProcessorException {
+        final Map<String, QueryResult> results = isBatchable()
+                ? getBatchedResults(parameters, searchOwner, searchWithinMs, executeEveryMs, slicedStreams)
+                : getSearchJob(parameters, searchOwner, searchWithinMs, executeEveryMs, slicedStreams).results();
+        final QueryResult queryResult = results.get(QUERY_ID);
+        final QueryResult streamQueryResult = results.get(STREAMS_QUERY_ID);
         final Map<String, SearchType.Result> additionalResults = additionalSearchTypes.stream()
                 .filter(searchType -> queryResult.searchTypes().containsKey(searchType.id()))
                 .map(searchType -> queryResult.searchTypes().get(searchType.id()))
@@ -166,7 +220,7 @@ public class PivotAggregationSearch implements AggregationSearch {
 
             // If we have only EmptyParameterErrors, just return an empty Result
             if (errors.stream().allMatch(e -> e instanceof EmptyParameterError)) {
-                return AggregationResult.empty();
+                return new SearchResults(AggregationResult.empty(), null);
             }
 
             final String description = f("Event definition %s (%s) failed: %s",
@@ -191,21 +245,22 @@ public class PivotAggregationSearch implements AggregationSearch {
         final PivotResult pivotResult = (PivotResult) queryResult.searchTypes().get(PIVOT_ID);
         final PivotResult streamsResult = (PivotResult) streamQueryResult.searchTypes().get(STREAMS_PIVOT_ID);
 
-        return AggregationResult.builder()
+        return new SearchResults(AggregationResult.builder()
                 .keyResults(extractValues(pivotResult))
                 .effectiveTimerange(pivotResult.effectiveTimerange())
                 .totalAggregatedMessages(pivotResult.total())
                 .sourceStreams(extractSourceStreams(streamsResult))
                 .additionalResults(additionalResults)
-                .build();
+                .build(), streamsResult);
     }
 
     private ImmutableSet<String> extractSourceStreams(PivotResult pivotResult) {
         return pivotResult.rows().stream()
                 // "non-leaf" values can show up when the "rollup" feature is enabled in the pivot search type
                 .filter(row -> "leaf".equals(row.source()))
-                // We can just take the first key value because we only group by "streams"
-                .map(row -> row.key().get(0))
+                // We can just take the last key value because we only group by "streams", optionally wrapped
+                // in date range buckets
+                .map(row -> row.key().get(row.key().size() - 1))
                 .collect(ImmutableSet.toImmutableSet());
     }
 
@@ -354,15 +409,9 @@ public class PivotAggregationSearch implements AggregationSearch {
                 }
             }
 
-            DateTime resultTimestamp;
-            try {
-                resultTimestamp = DateTime.parse(timeKey).withZone(DateTimeZone.UTC);
-            } catch (IllegalArgumentException e) {
-                throw new IllegalStateException("Failed to create event for: " + eventDefinition.title() + " (possibly due to non-existing grouping fields)", e);
-            }
             results.add(AggregationKeyResult.builder()
                     .key(groupKey)
-                    .timestamp(resultTimestamp)
+                    .timestamp(parseTimeKey(timeKey))
                     .seriesValues(values.build())
                     .build());
         }
@@ -370,11 +419,20 @@ public class PivotAggregationSearch implements AggregationSearch {
         return results.build();
     }
 
+    private DateTime parseTimeKey(String timeKey) {
+        try {
+            return DateTime.parse(timeKey).withZone(DateTimeZone.UTC);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Failed to create event for: " + eventDefinition.title() + " (possibly due to non-existing grouping fields)", e);
+        }
+    }
+
     private SearchJob getSearchJob(AggregationEventProcessorParameters parameters, User user,
-                                   long searchWithinMs, long executeEveryMs) throws EventProcessorException {
+                                   long searchWithinMs, long executeEveryMs, boolean slicedStreams) throws EventProcessorException {
         final var username = user.name();
+        final DateRangeBucket streamsBuckets = slicedStreams ? buildDateRangeBuckets(parameters.timerange(), searchWithinMs, executeEveryMs) : null;
         Search search = Search.builder()
-                .queries(ImmutableSet.of(getAggregationQuery(parameters, searchWithinMs, executeEveryMs), getSourceStreamsQuery(parameters)))
+                .queries(ImmutableSet.of(getAggregationQuery(parameters, searchWithinMs, executeEveryMs), getSourceStreamsQuery(parameters, streamsBuckets)))
                 .parameters(config.queryParameters())
                 .build();
         // This adds all streams if none were provided
@@ -398,19 +456,85 @@ public class PivotAggregationSearch implements AggregationSearch {
         return searchJob;
     }
 
+    /**
+     * Searches with query parameters or additional search types need their own query and can't be batched with
+     * the searches of other event definitions.
+     */
+    private boolean isBatchable() {
+        return searchBatcher.isEnabled() && additionalSearchTypes.isEmpty() && config.queryParameters().isEmpty();
+    }
+
+    /**
+     * Executes the aggregation and source streams pivots together with the searches of other event definitions.
+     * The pivots carry their own query, streams and timerange and the results are returned in the same structure
+     * as the results of {@link #getSearchJob}.
+     */
+    private Map<String, QueryResult> getBatchedResults(AggregationEventProcessorParameters parameters, User user,
+                                                       long searchWithinMs, long executeEveryMs,
+                                                       boolean slicedStreams) throws EventProcessorException {
+        // The search type IDs must be unique within a batch
+        final String pivotId = f("%s-%s", eventDefinition.id(), PIVOT_ID);
+        final String streamsPivotId = f("%s-%s", eventDefinition.id(), STREAMS_PIVOT_ID);
+
+        // This adds all streams if none were provided, like Search#addStreamsToQueriesWithoutStreams does
+        final Set<String> configuredStreams = getStreams(parameters);
+        final Set<String> streams = configuredStreams.isEmpty()
+                ? permittedStreams.loadAllMessageStreams((streamId) -> true)
+                : configuredStreams;
+
+        final Pivot aggregationPivot = aggregationPivotBuilder(pivotId, parameters, searchWithinMs, executeEveryMs)
+                .query(decorateQuery(config))
+                .streams(streams)
+                .timerange(parameters.timerange())
+                .build();
+        final DateRangeBucket streamsBuckets = slicedStreams ? buildDateRangeBuckets(parameters.timerange(), searchWithinMs, executeEveryMs) : null;
+        final Pivot streamsPivot = sourceStreamsPivotBuilder(streamsPivotId, streamsBuckets)
+                .query(ElasticsearchQueryString.of(config.query()))
+                .streams(streams)
+                .timerange(parameters.timerange())
+                .build();
+
+        final AggregationSearchBatcher.Response response;
+        try {
+            response = searchBatcher.execute(new AggregationSearchBatcher.Request(
+                    ImmutableSet.of(aggregationPivot, streamsPivot), parameters.timerange(), user.timezone(), 1));
+        } catch (ExecutionException e) {
+            throw new EventProcessorException("Error executing search job: " + e.getMessage(), false, eventDefinition, e);
+        } catch (TimeoutException e) {
+            throw new EventProcessorException("Timeout while executing search job.", false, eventDefinition, e);
+        } catch (Exception e) {
+            throw new EventProcessorException("Unhandled exception in search job.", false, eventDefinition, e);
+        }
+
+        final Set<SearchError> streamErrors = response.errors().stream()
+                .filter(error -> error instanceof SearchTypeError searchTypeError && streamsPivotId.equals(searchTypeError.searchTypeId()))
+                .collect(toSet());
+        final Set<SearchError> aggregationErrors = Sets.difference(response.errors(), streamErrors).immutableCopy();
+
+        return Map.of(
+                QUERY_ID, batchedQueryResult(response, pivotId, PIVOT_ID, aggregationErrors),
+                STREAMS_QUERY_ID, batchedQueryResult(response, streamsPivotId, STREAMS_PIVOT_ID, streamErrors)
+        );
+    }
+
+    private QueryResult batchedQueryResult(AggregationSearchBatcher.Response response, String batchedId, String id, Set<SearchError> errors) {
+        final SearchType.Result result = response.results().get(batchedId);
+        return QueryResult.builder()
+                .query(response.query())
+                .searchTypes(result == null ? Collections.emptyMap() : Map.of(id, result))
+                .errors(errors)
+                .build();
+    }
+
     /**
      * Returns the query to compute the sources streams for the aggregation.
      *
-     * @param parameters processor parameters
+     * @param parameters     processor parameters
+     * @param dateRanges     optional date range buckets to compute the source streams for each bucket
      * @return source streams query
      */
-    private Query getSourceStreamsQuery(AggregationEventProcessorParameters parameters) {
-        final Pivot pivot = Pivot.builder()
-                .id(STREAMS_PIVOT_ID)
-                .rollup(true)
-                .rowGroups(ImmutableList.of(Values.builder().limit(Integer.MAX_VALUE).field("streams").build()))
-                .series(ImmutableList.of(Count.builder().id(STREAMS_PIVOT_COUNT_ID).build()))
-                .build();
+    private Query getSourceStreamsQuery(AggregationEventProcessorParameters parameters, @Nullable DateRangeBucket dateRanges) {
+        final Pivot pivot = sourceStreamsPivotBuilder(STREAMS_PIVOT_ID, dateRanges).build();
 
         final Set<SearchType> searchTypes = Collections.singleton(pivot);
         final Query.Builder queryBuilder = Query.builder()
@@ -436,8 +560,36 @@ public class PivotAggregationSearch implements AggregationSearch {
      * @return aggregation query
      */
     protected Query getAggregationQuery(AggregationEventProcessorParameters parameters, long searchWithinMs, long executeEveryMs) {
+        final Set<SearchType> searchTypes = Sets.newHashSet(aggregationPivotBuilder(PIVOT_ID, parameters, searchWithinMs, executeEveryMs).build());
+        searchTypes.addAll(additionalSearchTypes);
+
+        final Query.Builder queryBuilder = Query.builder()
+                .id(QUERY_ID)
+                .searchTypes(searchTypes)
+                .query(decorateQuery(config))
+                .timerange(parameters.timerange());
+
+        final Set<String> streams = getStreams(parameters);
+        if (!streams.isEmpty()) {
+            queryBuilder.filter(filteringForStreamIds(streams));
+        }
+
+        return queryBuilder.build();
+    }
+
+    private Pivot.Builder sourceStreamsPivotBuilder(String id, @Nullable DateRangeBucket dateRanges) {
+        final Values streams = Values.builder().limit(Integer.MAX_VALUE).field("streams").build();
+        return Pivot.builder()
+                .id(id)
+                .rollup(true)
+                .rowGroups(dateRanges == null ? ImmutableList.of(streams) : ImmutableList.of(dateRanges, streams))
+                .series(ImmutableList.of(Count.builder().id(STREAMS_PIVOT_COUNT_ID).build()));
+    }
+
+    private Pivot.Builder aggregationPivotBuilder(String id, AggregationEventProcessorParameters parameters,
+                                                  long searchWithinMs, long executeEveryMs) {
         final Pivot.Builder pivotBuilder = Pivot.builder()
-                .id(PIVOT_ID)
+                .id(id)
                 .rollup(true);
 
         final ImmutableList<SeriesSpec> series = config.series()
@@ -485,23 +637,7 @@ public class PivotAggregationSearch implements AggregationSearch {
          }
 
         // We always have row groups because of the date range buckets
-        pivotBuilder.rowGroups(groupBy);
-
-        final Set<SearchType> searchTypes = Sets.newHashSet(pivotBuilder.build());
-        searchTypes.addAll(additionalSearchTypes);
-
-        final Query.Builder queryBuilder = Query.builder()
-                .id(QUERY_ID)
-                .searchTypes(searchTypes)
-                .query(decorateQuery(config))
-                .timerange(parameters.timerange());
-
-        final Set<String> streams = getStreams(parameters);
-        if (!streams.isEmpty()) {
-            queryBuilder.filter(filteringForStreamIds(streams));
-        }
-
-        return queryBuilder.build();
+        return pivotBuilder.rowGroups(groupBy);
     }
 
     private BackendQuery decorateQuery(AggregationEventProcessorConfig config) {
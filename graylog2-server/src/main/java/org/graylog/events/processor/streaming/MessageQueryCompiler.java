@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.processor.streaming;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.graylog.plugins.views.search.validation.LuceneQueryParser;
+import org.graylog.plugins.views.search.validation.ParsedTerm;
+import org.graylog2.plugin.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles a search query string into a {@link Predicate} that can be evaluated against a {@link Message} without
+ * querying the search cluster.
+ * <p>
+ * Only the subset of the query language which can be evaluated in memory with the same result as the search
+ * backend is supported: boolean combinations of {@code _exists_} queries and of exact term, prefix and wildcard
+ * queries on fields which are indexed as {@code keyword}. Queries on other fields (analyzed text, numbers, dates,
+ * IP addresses, ...), queries without an explicit field, ranges, fuzzy and regular expression queries are not
+ * supported and yield an empty result, so callers can fall back to the search-based execution.
+ */
+public class MessageQueryCompiler {
+    private static final Logger LOG = LoggerFactory.getLogger(MessageQueryCompiler.class);
+
+    private static final String EXISTS_FIELD = "_exists_";
+
+    // Fields which are analyzed or handled specially by the default index mapping. Matching terms against the raw
+    // message value would yield different results than the search backend, so we don't support them.
+    private static final Set<String> UNSUPPORTED_FIELDS = ImmutableSet.of(
+            ParsedTerm.DEFAULT_FIELD,
+            Message.FIELD_MESSAGE,
+            Message.FIELD_FULL_MESSAGE,
+            Message.FIELD_STREAMS,
+            Message.FIELD_TIMESTAMP,
+            Message.FIELD_ID
+    );
+
+    private MessageQueryCompiler() {
+    }
+
+    /**
+     * Compiles the given query string.
+     *
+     * @param queryString    the query string to compile
+     * @param isKeywordField checks if a field is indexed as {@code keyword} in all indices the query runs on
+     * @return the compiled predicate or an empty optional if the query cannot be evaluated in memory
+     */
+    public static Optional<Predicate<Message>> compile(String queryString, Predicate<String> isKeywordField) {
+        if (StringUtils.isBlank(queryString) || "*".equals(queryString.trim())) {
+            return Optional.of(message -> true);
+        }
+
+        try {
+            final Query query = new KeywordQueryParser().parse(queryString);
+            return Optional.ofNullable(compile(query, isKeywordField));
+        } catch (ParseException | RuntimeException e) {
+            LOG.debug("Couldn't parse query <{}> for in-memory evaluation", queryString, e);
+            return Optional.empty();
+        }
+    }
+
+    // Returns null if the query (or one of its clauses) is not supported.
+    private static Predicate<Message> compile(Query query, Predicate<String> isKeywordField) {
+        if (query instanceof BoostQuery boostQuery) {
+            return compile(boostQuery.getQuery(), isKeywordField);
+        }
+        if (query instanceof MatchAllDocsQuery) {
+            return message -> true;
+        }
+        if (query instanceof BooleanQuery booleanQuery) {
+            return compileBoolean(booleanQuery, isKeywordField);
+        }
+        if (query instanceof TermQuery termQuery) {
+            return compileTerm(termQuery.getTerm(), isKeywordField);
+        }
+        if (query instanceof PrefixQuery prefixQuery) {
+            final Term prefix = prefixQuery.getPrefix();
+            if (!isSupportedField(prefix.field()) || !isKeywordLikeField(prefix.field(), isKeywordField)) {
+                return null;
+            }
+            final String field = prefix.field();
+            final String text = prefix.text();
+            return message -> anyValueMatches(message.getField(field), value -> value instanceof String s && s.startsWith(text));
+        }
+        if (query instanceof WildcardQuery wildcardQuery) {
+            final Term term = wildcardQuery.getTerm();
+            if (!isSupportedField(term.field())) {
+                return null;
+            }
+            final String field = term.field();
+            // "field:*" is treated as an exists query by the search backend
+            if ("*".equals(term.text())) {
+                return message -> message.hasField(field);
+            }
+            if (!isKeywordLikeField(field, isKeywordField)) {
+                return null;
+            }
+            final Pattern pattern = wildcardToPattern(term.text());
+            return message -> anyValueMatches(message.getField(field), value -> value instanceof String s && pattern.matcher(s).matches());
+        }
+
+        LOG.debug("Unsupported query type <{}> for in-memory evaluation", query.getClass().getSimpleName());
+        return null;
+    }
+
+    private static Predicate<Message> compileBoolean(BooleanQuery booleanQuery, Predicate<String> isKeywordField) {
+        final List<Predicate<Message>> required = new ArrayList<>();
+        final List<Predicate<Message>> optional = new ArrayList<>();
+        final List<Predicate<Message>> prohibited = new ArrayList<>();
+
+        for (final BooleanClause clause : booleanQuery.clauses()) {
+            final Predicate<Message> predicate = compile(clause.getQuery(), isKeywordField);
+            if (predicate == null) {
+                return null;
+            }
+            switch (clause.getOccur()) {
+                case MUST, FILTER -> required.add(predicate);
+                case SHOULD -> optional.add(predicate);
+                case MUST_NOT -> prohibited.add(predicate);
+            }
+        }
+
+        if (booleanQuery.getMinimumNumberShouldMatch() > 1) {
+            return null;
+        }
+
+        final List<Predicate<Message>> must = ImmutableList.copyOf(required);
+        final List<Predicate<Message>> should = ImmutableList.copyOf(optional);
+        final List<Predicate<Message>> mustNot = ImmutableList.copyOf(prohibited);
+
+        // Same semantics as the search backend: optional clauses are only relevant if there are no required
+        // clauses, and a purely negative query matches everything except the prohibited clauses.
+        return message -> {
+            for (final Predicate<Message> predicate : mustNot) {
+                if (predicate.test(message)) {
+                    return false;
+                }
+            }
+            for (final Predicate<Message> predicate : must) {
+                if (!predicate.test(message)) {
+                    return false;
+                }
+            }
+            if (!must.isEmpty() || should.isEmpty()) {
+                return true;
+            }
+            for (final Predicate<Message> predicate : should) {
+                if (predicate.test(message)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private static Predicate<Message> compileTerm(Term term, Predicate<String> isKeywordField) {
+        if (EXISTS_FIELD.equals(term.field())) {
+            final String field = term.text();
+            return isSupportedField(field) ? message -> message.hasField(field) : null;
+        }
+        if (!isSupportedField(term.field()) || !isKeywordLikeField(term.field(), isKeywordField)) {
+            return null;
+        }
+
+        final String field = term.field();
+        final String text = term.text();
+        final boolean ignoreCase = Message.FIELD_SOURCE.equals(field);
+
+        // Keyword fields index numbers and booleans with their JSON representation
+        return message -> anyValueMatches(message.getField(field), value -> {
+            if (value instanceof String s) {
+                return ignoreCase ? s.equalsIgnoreCase(text) : s.equals(text);
+            }
+            if (value instanceof Number || value instanceof Boolean) {
+                return value.toString().equals(text);
+            }
+            return false;
+        });
+    }
+
+    private static boolean anyValueMatches(Object fieldValue, Predicate<Object> predicate) {
+        if (fieldValue == null) {
+            return false;
+        }
+        if (fieldValue instanceof Collection<?> values) {
+            for (final Object value : values) {
+                if (predicate.test(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return predicate.test(fieldValue);
+    }
+
+    // The source field uses a lowercasing keyword analyzer in the default index mapping
+    private static boolean isKeywordLikeField(String field, Predicate<String> isKeywordField) {
+        return Message.FIELD_SOURCE.equals(field) || isKeywordField.test(field);
+    }
+
+    private static boolean isSupportedField(String field) {
+        return !UNSUPPORTED_FIELDS.contains(field) && !field.contains("*");
+    }
+
+    private static Pattern wildcardToPattern(String wildcard) {
+        final StringBuilder regex = new StringBuilder(wildcard.length() + 8);
+        final StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < wildcard.length(); i++) {
+            final char c = wildcard.charAt(i);
+            if (c == '\\' && i + 1 < wildcard.length()) {
+                literal.append(wildcard.charAt(++i));
+            } else if (c == '*' || c == '?') {
+                if (!literal.isEmpty()) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (!literal.isEmpty()) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    /**
+     * Query parser which doesn't split (quoted) terms into phrases because all supported fields are keyword fields
+     * which are matched as a whole.
+     */
+    private static class KeywordQueryParser extends QueryParser {
+        KeywordQueryParser() {
+            super(ParsedTerm.DEFAULT_FIELD, LuceneQueryParser.ANALYZER);
+            setSplitOnWhitespace(true);
+            setAllowLeadingWildcard(true);
+        }
+
+        @Override
+        protected Query getFieldQuery(String field, String queryText, boolean quoted) throws ParseException {
+            if (queryText.isEmpty()) {
+                throw new ParseException("Empty terms are not supported");
+            }
+            return newTermQuery(new Term(field, queryText), 1.0f);
+        }
+
+        @Override
+        protected Query getFieldQuery(String field, String queryText, int slop) throws ParseException {
+            return getFieldQuery(field, queryText, true);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.processor.streaming;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.bson.Document;
+import org.graylog2.database.MongoConnection;
+
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.in;
+
+/**
+ * Events of streamed event definitions can be created by the processing chain and by the scheduled search, which
+ * catches up on the time ranges the processing chain didn't cover (see {@link StreamingFilterCoverage}). Both paths
+ * claim their messages here before creating events, so each message creates exactly one event no matter which path
+ * sees it first.
+ * <p>
+ * A batch of messages is claimed with a single document. The unique index on its array of message IDs rejects the
+ * document if another batch has already claimed one of the messages, only then the claimed messages are looked up.
+ * <p>
+ * The event limit of streamed event definitions is enforced per execution window for all nodes here as well.
+ */
+@Singleton
+public class StreamedMessageClaims {
+    static final String COLLECTION_NAME = "event_definition_streamed_messages";
+    static final String EVENT_COUNTS_COLLECTION_NAME = "event_definition_streamed_event_counts";
+    private static final String FIELD_DEFINITION_ID = "definition_id";
+    private static final String FIELD_MESSAGE_IDS = "message_ids";
+    private static final String FIELD_CREATED_AT = "created_at";
+    private static final String FIELD_WINDOW_START = "window_start";
+    private static final String FIELD_COUNT = "count";
+
+    private final MongoCollection<Document> collection;
+    private final MongoCollection<Document> eventCounts;
+
+    @Inject
+    public StreamedMessageClaims(MongoConnection mongoConnection) {
+        this.collection = mongoConnection.getMongoDatabase().getCollection(COLLECTION_NAME);
+        this.eventCounts = mongoConnection.getMongoDatabase().getCollection(EVENT_COUNTS_COLLECTION_NAME);
+
+        collection.createIndex(Indexes.ascending(FIELD_DEFINITION_ID, FIELD_MESSAGE_IDS), new IndexOptions().unique(true));
+        // Claims only have to outlive the latest scheduled search which could see the message
+        collection.createIndex(Indexes.ascending(FIELD_CREATED_AT), new IndexOptions().expireAfter(7L, TimeUnit.DAYS));
+        eventCounts.createIndex(Indexes.ascending(FIELD_DEFINITION_ID, FIELD_WINDOW_START), new IndexOptions().unique(true));
+        eventCounts.createIndex(Indexes.ascending(FIELD_WINDOW_START), new IndexOptions().expireAfter(1L, TimeUnit.DAYS));
+    }
+
+    /**
+     * Claims the given messages for event creation.
+     *
+     * @param definitionId the event definition ID
+     * @param messageIds   the IDs of the matching messages
+     * @return the IDs of the messages which haven't been claimed before and need an event
+     */
+    public Set<String> claim(String definitionId, List<String> messageIds) {
+        final Set<String> unclaimed = new LinkedHashSet<>(messageIds);
+        while (!unclaimed.isEmpty()) {
+            try {
+                collection.insertOne(new Document(FIELD_DEFINITION_ID, definitionId)
+                        .append(FIELD_MESSAGE_IDS, List.copyOf(unclaimed))
+                        .append(FIELD_CREATED_AT, new Date()));
+                return unclaimed;
+            } catch (MongoWriteException e) {
+                if (ErrorCategory.fromErrorCode(e.getError().getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw e;
+                }
+                // Remove the messages claimed by other batches and try again, they might have claimed more in the meantime
+                collection.find(and(eq(FIELD_DEFINITION_ID, definitionId), in(FIELD_MESSAGE_IDS, unclaimed)))
+                        .projection(Projections.include(FIELD_MESSAGE_IDS))
+                        .forEach(claim -> claim.getList(FIELD_MESSAGE_IDS, String.class).forEach(unclaimed::remove));
+            }
+        }
+        return Set.of();
+    }
+
+    /**
+     * Reserves events of an event definition within the event limit of an execution window.
+     *
+     * @param definitionId the event definition ID
+     * @param windowStart  the start of the execution window
+     * @param count        the number of events to create
+     * @param limit        the event limit of the event definition
+     * @return the number of events which can be created, less than {@code count} if the limit has been reached
+     */
+    public int reserveEvents(String definitionId, Date windowStart, int count, int limit) {
+        final Document counter = eventCounts.findOneAndUpdate(
+                and(eq(FIELD_DEFINITION_ID, definitionId), eq(FIELD_WINDOW_START, windowStart)),
+                Updates.inc(FIELD_COUNT, count),
+                new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+        final int previousCount = counter == null ? 0 : counter.getInteger(FIELD_COUNT) - count;
+        return Math.max(0, Math.min(count, limit - previousCount));
+    }
+}
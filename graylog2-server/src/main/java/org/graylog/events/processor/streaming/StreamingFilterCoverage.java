@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.processor.streaming;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReplaceOptions;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.bson.Document;
+import org.graylog2.cluster.nodes.NodeService;
+import org.graylog2.cluster.nodes.ServerNodeDto;
+import org.graylog2.database.MongoConnection;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
+import org.graylog2.plugin.system.NodeId;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gte;
+
+/**
+ * Keeps track of the time ranges in which the processing chain of every node has created the events of a streamed
+ * event definition, so the scheduled search only has to catch up on the remaining time ranges.
+ * <p>
+ * Each node regularly reports, per event definition, since when it has matched every processed message against the
+ * loaded filter without dropping a match or failing to create its events, and until when all matches have been
+ * dispatched. Time ranges are compared with the message timestamps, assuming messages aren't processed before their
+ * timestamp.
+ */
+@Singleton
+public class StreamingFilterCoverage {
+    private static final Logger LOG = LoggerFactory.getLogger(StreamingFilterCoverage.class);
+
+    static final String COLLECTION_NAME = "event_definition_streaming_coverage";
+    private static final String FIELD_ID = "_id";
+    private static final String FIELD_COVERED_UNTIL = "covered_until";
+    private static final String FIELD_DEFINITIONS = "definitions";
+    private static final String FIELD_UPDATED_AT = "updated_at";
+
+    /**
+     * @param streamed  whether any node evaluates the event definition in the processing chain
+     * @param uncovered the time range the scheduled search has to catch up on, {@code null} if there is none
+     */
+    public record Coverage(boolean streamed, @Nullable TimeRange uncovered) {}
+
+    private record LoadedFilter(String query, Set<String> streams, long coveredSince) {}
+
+    private final MongoCollection<Document> collection;
+    private final NodeService<ServerNodeDto> nodeService;
+    private final String nodeId;
+    private final boolean enabled;
+    private final LongSupplier clock;
+    private final ConcurrentMap<String, LoadedFilter> loadedFilters = new ConcurrentHashMap<>();
+    private volatile long coveredUntil = 0;
+
+    @Inject
+    public StreamingFilterCoverage(MongoConnection mongoConnection,
+                                   NodeService<ServerNodeDto> nodeService,
+                                   NodeId nodeId,
+                                   @Named("event_definition_streaming_filters_enabled") boolean enabled) {
+        this(mongoConnection, nodeService, nodeId, enabled, System::currentTimeMillis);
+    }
+
+    @VisibleForTesting
+    StreamingFilterCoverage(MongoConnection mongoConnection, NodeService<ServerNodeDto> nodeService, NodeId nodeId,
+                            boolean enabled, LongSupplier clock) {
+        this.collection = mongoConnection.getMongoDatabase().getCollection(COLLECTION_NAME);
+        this.nodeService = nodeService;
+        this.nodeId = nodeId.getNodeId();
+        this.enabled = enabled;
+        this.clock = clock;
+
+        // Reports of nodes which have been shut down are ignored anyway
+        collection.createIndex(Indexes.ascending(FIELD_UPDATED_AT), new IndexOptions().expireAfter(1L, TimeUnit.DAYS));
+    }
+
+    /**
+     * Records the filters which have been loaded by the processing chain. The coverage of a new or changed filter
+     * starts now.
+     */
+    public void filtersLoaded(List<StreamingFilterRegistry.StreamingFilter> filters) {
+        final long now = clock.getAsLong();
+        final Map<String, LoadedFilter> loaded = new HashMap<>();
+        for (final StreamingFilterRegistry.StreamingFilter filter : filters) {
+            final LoadedFilter previous = loadedFilters.get(filter.definitionId());
+            final boolean unchanged = previous != null && previous.query().equals(filter.query()) && previous.streams().equals(filter.streams());
+            loaded.put(filter.definitionId(), unchanged ? previous : new LoadedFilter(filter.query(), filter.streams(), now));
+        }
+        loadedFilters.keySet().retainAll(loaded.keySet());
+        loaded.forEach((definitionId, filter) -> loadedFilters.merge(definitionId, filter,
+                // Keep a restart of the coverage which happened in the meantime
+                (current, update) -> update.coveredSince() > current.coveredSince() ? update : current));
+    }
+
+    /**
+     * Records that events for a match of the given event definition haven't been created, e.g. because the dispatcher
+     * queue was full. The coverage of the event definition starts again.
+     */
+    public void missed(String definitionId) {
+        final long now = clock.getAsLong();
+        loadedFilters.computeIfPresent(definitionId, (id, filter) -> new LoadedFilter(filter.query(), filter.streams(), now));
+    }
+
+    /**
+     * Records that all matches of messages processed before the given time have been dispatched.
+     */
+    public void dispatchedUntil(long timestamp) {
+        coveredUntil = Math.max(coveredUntil, timestamp);
+    }
+
+    /**
+     * Writes the coverage of this node to the database.
+     */
+    public void report() {
+        final Document definitions = new Document();
+        loadedFilters.forEach((definitionId, filter) -> definitions.append(definitionId, new Date(filter.coveredSince())));
+        final Document report = new Document(FIELD_ID, nodeId)
+                .append(FIELD_COVERED_UNTIL, new Date(coveredUntil))
+                .append(FIELD_DEFINITIONS, definitions)
+                .append(FIELD_UPDATED_AT, new Date(clock.getAsLong()));
+        try {
+            collection.replaceOne(eq(FIELD_ID, nodeId), report, new ReplaceOptions().upsert(true));
+        } catch (MongoException e) {
+            LOG.warn("Couldn't report coverage of streaming event definition filters", e);
+        }
+    }
+
+    /**
+     * Checks which part of the given time range of the given event definition hasn't been covered by the processing
+     * chain of all nodes which have been running in the time range.
+     */
+    public Coverage check(String definitionId, TimeRange timerange) {
+        // Streaming has to be enabled on all nodes or none
+        if (!enabled) {
+            return new Coverage(false, timerange);
+        }
+        final DateTime from = timerange.getFrom();
+        final DateTime to = timerange.getTo();
+        final Map<String, Document> reports = new HashMap<>();
+        // Nodes which have been stopped in the meantime might have lost matches which haven't been dispatched yet
+        collection.find(gte(FIELD_UPDATED_AT, from.toDate())).forEach(report -> reports.put(report.getString(FIELD_ID), report));
+        final Set<String> nodes = new HashSet<>(nodeService.allActive().keySet());
+        nodes.addAll(reports.keySet());
+
+        final boolean streamed = reports.values().stream()
+                .anyMatch(report -> report.get(FIELD_DEFINITIONS, Document.class).containsKey(definitionId));
+        if (!streamed) {
+            return new Coverage(false, timerange);
+        }
+
+        DateTime uncoveredUntil = null;
+        for (final String node : nodes) {
+            final Document report = reports.get(node);
+            // The node hasn't loaded the filter or might still have undispatched matches in the time range
+            if (report == null || report.getDate(FIELD_COVERED_UNTIL).getTime() < to.getMillis()) {
+                return new Coverage(true, timerange);
+            }
+            final Date coveredSince = report.get(FIELD_DEFINITIONS, Document.class).getDate(definitionId);
+            if (coveredSince == null) {
+                return new Coverage(true, timerange);
+            }
+            if (coveredSince.getTime() > from.getMillis()) {
+                final DateTime since = new DateTime(Math.min(coveredSince.getTime(), to.getMillis()), DateTimeZone.UTC);
+                uncoveredUntil = uncoveredUntil == null || since.isAfter(uncoveredUntil) ? since : uncoveredUntil;
+            }
+        }
+        return new Coverage(true, uncoveredUntil == null ? null : AbsoluteRange.create(from, uncoveredUntil));
+    }
+}
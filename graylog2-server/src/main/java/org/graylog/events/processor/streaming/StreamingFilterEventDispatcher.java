@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.processor.streaming;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.AbstractExecutionThreadService;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.graylog.events.processor.EventProcessorEngine;
+import org.graylog.events.processor.EventProcessorException;
+import org.graylog2.plugin.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Takes messages that matched a streaming event definition filter in the processing chain and creates events for
+ * them on a separate thread, so the processing chain is never blocked by event creation or notifications. Dropped
+ * matches and failed event creation are recorded in the {@link StreamingFilterCoverage}, so the scheduled search can
+ * catch up on them.
+ */
+@Singleton
+public class StreamingFilterEventDispatcher extends AbstractExecutionThreadService {
+    private static final Logger LOG = LoggerFactory.getLogger(StreamingFilterEventDispatcher.class);
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final long COVERAGE_REPORT_INTERVAL_MS = 1000;
+
+    private record MatchedMessage(String definitionId, Message message, long matchedAtMillis, long matchedAtNanos) {}
+
+    private final EventProcessorEngine eventProcessorEngine;
+    private final StreamingFilterCoverage coverage;
+    private final boolean enabled;
+    private final BlockingQueue<MatchedMessage> queue;
+    private final Meter matchedMessages;
+    private final Meter droppedMessages;
+    private final Timer dispatchLatency;
+    private long lastCoverageReport = 0;
+
+    @Inject
+    public StreamingFilterEventDispatcher(EventProcessorEngine eventProcessorEngine,
+                                          StreamingFilterCoverage coverage,
+                                          MetricRegistry metricRegistry,
+                                          @Named("event_definition_streaming_filters_enabled") boolean enabled,
+                                          @Named("event_definition_streaming_filters_queue_size") int queueSize) {
+        this.eventProcessorEngine = eventProcessorEngine;
+        this.coverage = coverage;
+        this.enabled = enabled;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.matchedMessages = metricRegistry.meter(name(StreamingFilterEventDispatcher.class, "matched"));
+        this.droppedMessages = metricRegistry.meter(name(StreamingFilterEventDispatcher.class, "dropped"));
+        this.dispatchLatency = metricRegistry.timer(name(StreamingFilterEventDispatcher.class, "dispatchLatency"));
+        metricRegistry.register(name(StreamingFilterEventDispatcher.class, "queueSize"), (Gauge<Integer>) queue::size);
+    }
+
+    /**
+     * Submits a matched message for event creation. Never blocks, the message is dropped if the queue is full.
+     *
+     * @param definitionId the ID of the matching event definition
+     * @param message      the matching message, must not be modified after submitting it
+     * @return true if the message has been accepted, false otherwise
+     */
+    public boolean submit(String definitionId, Message message) {
+        matchedMessages.mark();
+        if (!queue.offer(new MatchedMessage(definitionId, message, System.currentTimeMillis(), System.nanoTime()))) {
+            droppedMessages.mark();
+            coverage.missed(definitionId);
+            LOG.debug("Dropping matched message <{}> for event definition <{}> because the queue is full", message.getId(), definitionId);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected void run() throws Exception {
+        final List<MatchedMessage> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (isRunning() || !queue.isEmpty()) {
+            final long pollStartedAt = System.currentTimeMillis();
+            final MatchedMessage first = queue.poll(COVERAGE_REPORT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                // All messages matched before polling have been dispatched
+                coverage.dispatchedUntil(pollStartedAt);
+            } else {
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                dispatch(batch);
+                coverage.dispatchedUntil(batch.get(batch.size() - 1).matchedAtMillis());
+                batch.clear();
+            }
+            reportCoverage(false);
+        }
+        reportCoverage(true);
+    }
+
+    private void reportCoverage(boolean force) {
+        final long now = System.currentTimeMillis();
+        if (force || now - lastCoverageReport >= COVERAGE_REPORT_INTERVAL_MS) {
+            coverage.report();
+            lastCoverageReport = now;
+        }
+    }
+
+    private void dispatch(List<MatchedMessage> batch) {
+        final Map<String, List<Message>> messagesByDefinition = new LinkedHashMap<>();
+        for (final MatchedMessage matchedMessage : batch) {
+            messagesByDefinition.computeIfAbsent(matchedMessage.definitionId(), id -> new ArrayList<>())
+                    .add(matchedMessage.message());
+        }
+
+        messagesByDefinition.forEach((definitionId, messages) -> {
+            try {
+                eventProcessorEngine.executeStreaming(definitionId, messages);
+            } catch (EventProcessorException e) {
+                coverage.missed(definitionId);
+                LOG.error("Couldn't create events for {} matched messages of event definition <{}>", messages.size(), definitionId, e);
+            } catch (Exception e) {
+                coverage.missed(definitionId);
+                LOG.error("Caught an unhandled exception while creating events for event definition <{}>", definitionId, e);
+            }
+        });
+
+        final long now = System.nanoTime();
+        for (final MatchedMessage matchedMessage : batch) {
+            dispatchLatency.update(now - matchedMessage.matchedAtNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    protected void startUp() throws Exception {
+        LOG.debug("Starting streaming event definition filter dispatcher (enabled={})", enabled);
+    }
+
+    @Override
+    protected String serviceName() {
+        return "streaming-event-filter-dispatcher";
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.processor.streaming;
+
+import jakarta.inject.Inject;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.MessageFactory;
+import org.graylog2.plugin.Messages;
+import org.graylog2.plugin.messageprocessors.MessageProcessor;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Matches every processed message against the streaming event definition filters and hands matching messages
+ * to the {@link StreamingFilterEventDispatcher}. Messages are not modified.
+ */
+public class StreamingFilterProcessor implements MessageProcessor {
+    public static class Descriptor implements MessageProcessor.Descriptor {
+        @Override
+        public String name() {
+            return "Event Definition Filter Processor";
+        }
+
+        @Override
+        public String className() {
+            return StreamingFilterProcessor.class.getCanonicalName();
+        }
+    }
+
+    private final StreamingFilterRegistry registry;
+    private final StreamingFilterEventDispatcher dispatcher;
+    private final MessageFactory messageFactory;
+
+    @Inject
+    public StreamingFilterProcessor(StreamingFilterRegistry registry,
+                                    StreamingFilterEventDispatcher dispatcher,
+                                    MessageFactory messageFactory) {
+        this.registry = registry;
+        this.dispatcher = dispatcher;
+        this.messageFactory = messageFactory;
+    }
+
+    @Override
+    public Messages process(Messages messages) {
+        final List<StreamingFilterRegistry.StreamingFilter> filters = registry.getFilters();
+        if (filters.isEmpty()) {
+            return messages;
+        }
+
+        for (final Message message : messages) {
+            if (message.getFilterOut()) {
+                continue;
+            }
+            final Set<String> streamIds = message.getStreamIds();
+            Message snapshot = null;
+            for (final StreamingFilterRegistry.StreamingFilter filter : filters) {
+                if (filter.matches(message, streamIds)) {
+                    // The message might still be modified by subsequent processors, so events are created from a copy
+                    if (snapshot == null) {
+                        snapshot = snapshot(message);
+                    }
+                    dispatcher.submit(filter.definitionId(), snapshot);
+                }
+            }
+        }
+        return messages;
+    }
+
+    private Message snapshot(Message message) {
+        final Message snapshot = messageFactory.createMessage(new HashMap<>(message.getFields()));
+        snapshot.addStreams(message.getStreams());
+        return snapshot;
+    }
+}
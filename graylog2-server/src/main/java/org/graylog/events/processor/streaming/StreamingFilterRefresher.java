@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.processor.streaming;
+
+import com.github.joschi.jadconfig.util.Duration;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import org.graylog2.plugin.periodical.Periodical;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically reloads the streaming event definition filters on every node.
+ */
+public class StreamingFilterRefresher extends Periodical {
+    private static final Logger LOG = LoggerFactory.getLogger(StreamingFilterRefresher.class);
+
+    private final StreamingFilterRegistry registry;
+    private final Duration refreshInterval;
+
+    @Inject
+    public StreamingFilterRefresher(StreamingFilterRegistry registry,
+                                    @Named("event_definition_streaming_filters_refresh_interval") Duration refreshInterval) {
+        this.registry = registry;
+        this.refreshInterval = refreshInterval;
+    }
+
+    @Override
+    public boolean runsForever() {
+        return false;
+    }
+
+    @Override
+    public boolean stopOnGracefulShutdown() {
+        return true;
+    }
+
+    @Override
+    public boolean leaderOnly() {
+        return false;
+    }
+
+    @Override
+    public boolean startOnThisNode() {
+        return registry.isEnabled();
+    }
+
+    @Override
+    public boolean isDaemon() {
+        return true;
+    }
+
+    @Override
+    public int getInitialDelaySeconds() {
+        return 0;
+    }
+
+    @Override
+    public int getPeriodSeconds() {
+        return Math.max(1, (int) refreshInterval.toSeconds());
+    }
+
+    @Override
+    protected Logger getLogger() {
+        return LOG;
+    }
+
+    @Override
+    public void doRun() {
+        registry.refresh();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.processor.streaming;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.graylog.events.processor.DBEventDefinitionService;
+import org.graylog.events.processor.EventDefinition;
+import org.graylog.events.processor.aggregation.AggregationEventProcessorConfig;
+import org.graylog2.indexer.fieldtypes.FieldTypeDTO;
+import org.graylog2.indexer.fieldtypes.IndexFieldTypesDTO;
+import org.graylog2.indexer.fieldtypes.IndexFieldTypesService;
+import org.graylog2.messageprocessors.MessageProcessorsConfig;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.cluster.ClusterConfigService;
+import org.graylog2.streams.StreamService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the compiled in-memory matchers for all enabled event definitions that can be evaluated in the processing
+ * chain instead of running a scheduled search.
+ */
+@Singleton
+public class StreamingFilterRegistry {
+    private static final Logger LOG = LoggerFactory.getLogger(StreamingFilterRegistry.class);
+    private static final String KEYWORD_TYPE = "keyword";
+
+    public record StreamingFilter(String definitionId, String query, Set<String> streams, Predicate<Message> matcher) {
+        public boolean matches(Message message, Set<String> messageStreamIds) {
+            if (!streams.isEmpty() && messageStreamIds.stream().noneMatch(streams::contains)) {
+                return false;
+            }
+            return matcher.test(message);
+        }
+    }
+
+    private final DBEventDefinitionService eventDefinitionService;
+    private final IndexFieldTypesService indexFieldTypesService;
+    private final StreamService streamService;
+    private final ClusterConfigService clusterConfigService;
+    private final StreamingFilterCoverage coverage;
+    private final boolean enabled;
+    private final AtomicReference<List<StreamingFilter>> filters = new AtomicReference<>(ImmutableList.of());
+
+    @Inject
+    public StreamingFilterRegistry(DBEventDefinitionService eventDefinitionService,
+                                   IndexFieldTypesService indexFieldTypesService,
+                                   StreamService streamService,
+                                   ClusterConfigService clusterConfigService,
+                                   StreamingFilterCoverage coverage,
+                                   @Named("event_definition_streaming_filters_enabled") boolean enabled) {
+        this.eventDefinitionService = eventDefinitionService;
+        this.indexFieldTypesService = indexFieldTypesService;
+        this.streamService = streamService;
+        this.clusterConfigService = clusterConfigService;
+        this.coverage = coverage;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<StreamingFilter> getFilters() {
+        return filters.get();
+    }
+
+    /**
+     * Reloads all enabled event definitions from the database and replaces the compiled filters.
+     */
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        final List<StreamingFilter> newFilters = processorEnabled() ? loadFilters() : ImmutableList.of();
+        filters.set(newFilters);
+        coverage.filtersLoaded(newFilters);
+        LOG.debug("Loaded {} streaming event definition filters", newFilters.size());
+    }
+
+    // Matches aren't created at all if the filter processor has been disabled
+    private boolean processorEnabled() {
+        final MessageProcessorsConfig config = clusterConfigService.get(MessageProcessorsConfig.class);
+        return config == null || !config.disabledProcessors().contains(StreamingFilterProcessor.class.getCanonicalName());
+    }
+
+    private List<StreamingFilter> loadFilters() {
+        final List<EventDefinition> candidates;
+        try (var definitions = eventDefinitionService.streamAll()) {
+            candidates = definitions
+                    .filter(definition -> definition.state() == EventDefinition.State.ENABLED)
+                    .filter(definition -> simpleFilterConfig(definition).isPresent())
+                    .collect(ImmutableList.toImmutableList());
+        }
+
+        // The field types are loaded once for all fields used by the candidates
+        final Set<String> fields = new HashSet<>();
+        for (final EventDefinition definition : candidates) {
+            MessageQueryCompiler.compile(simpleFilterConfig(definition).orElseThrow().query(), field -> {
+                fields.add(field);
+                return true;
+            });
+        }
+        final Collection<IndexFieldTypesDTO> fieldTypes = fields.isEmpty() ? List.of() : indexFieldTypesService.findForFieldNames(fields);
+
+        return candidates.stream()
+                .map(definition -> compile(definition, fieldTypes))
+                .flatMap(Optional::stream)
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    private Optional<StreamingFilter> compile(EventDefinition eventDefinition, Collection<IndexFieldTypesDTO> fieldTypes) {
+        final AggregationEventProcessorConfig config = simpleFilterConfig(eventDefinition).orElseThrow();
+        // Without streams the scheduled search runs on all index sets
+        final Set<String> indexSetIds = config.streams().isEmpty() ? null : streamService.indexSetIdsByIds(config.streams());
+        final Predicate<String> isKeywordField = field -> isKeywordField(field, indexSetIds, fieldTypes);
+
+        return MessageQueryCompiler.compile(config.query(), isKeywordField)
+                .map(matcher -> new StreamingFilter(eventDefinition.id(), config.query(), ImmutableSet.copyOf(config.streams()), matcher));
+    }
+
+    // The field has to be a keyword field in all indices which are searched and contain it
+    private static boolean isKeywordField(String field, Set<String> indexSetIds, Collection<IndexFieldTypesDTO> fieldTypes) {
+        boolean found = false;
+        for (final IndexFieldTypesDTO indexFieldTypes : fieldTypes) {
+            if (indexSetIds != null && !indexSetIds.contains(indexFieldTypes.indexSetId())) {
+                continue;
+            }
+            for (final FieldTypeDTO fieldType : indexFieldTypes.fields()) {
+                if (fieldType.fieldName().equals(field)) {
+                    if (!KEYWORD_TYPE.equals(fieldType.physicalType())) {
+                        return false;
+                    }
+                    found = true;
+                }
+            }
+        }
+        return found;
+    }
+
+    // Only simple filter definitions are supported. Aggregations, search filters and query parameters need the
+    // search backend.
+    private static Optional<AggregationEventProcessorConfig> simpleFilterConfig(EventDefinition eventDefinition) {
+        if (!(eventDefinition.config() instanceof AggregationEventProcessorConfig config)) {
+            return Optional.empty();
+        }
+        if (!config.series().isEmpty() || !config.groupBy().isEmpty()
+                || !config.filters().isEmpty() || !config.queryParameters().isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(config);
+    }
+}
@@ -28,7 +28,7 @@ import org.graylog.plugins.views.search.errors.SearchException;
 import org.graylog.plugins.views.search.searchfilters.model.UsedSearchFilter;
 import org.graylog2.database.NotFoundException;
 import org.graylog2.indexer.ranges.IndexRange;
-import org.graylog2.indexer.ranges.IndexRangeService;
+import org.graylog2.indexer.ranges.IndexRangeCache;
 import org.graylog2.indexer.results.ResultMessage;
 import org.graylog2.indexer.searches.Sorting;
 import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
@@ -53,17 +53,17 @@ public class MoreSearch {
     private static final Logger LOG = LoggerFactory.getLogger(MoreSearch.class);
 
     private final StreamService streamService;
-    private final IndexRangeService indexRangeService;
+    private final IndexRangeCache indexRangeCache;
     private final QueryStringDecorators queryDecorators;
     private final MoreSearchAdapter moreSearchAdapter;
 
     @Inject
     public MoreSearch(StreamService streamService,
-                      IndexRangeService indexRangeService,
+                      IndexRangeCache indexRangeCache,
                       QueryStringDecorators queryDecorators,
                       MoreSearchAdapter moreSearchAdapter) {
         this.streamService = streamService;
-        this.indexRangeService = indexRangeService;
+        this.indexRangeCache = indexRangeCache;
         this.queryDecorators = queryDecorators;
         this.moreSearchAdapter = moreSearchAdapter;
     }
@@ -104,7 +104,7 @@ public class MoreSearch {
     }
 
     private Set<String> getAffectedIndices(Set<String> streamIds, TimeRange timeRange) {
-        final SortedSet<IndexRange> indexRanges = indexRangeService.find(timeRange.getFrom(), timeRange.getTo());
+        final SortedSet<IndexRange> indexRanges = indexRangeCache.find(timeRange.getFrom(), timeRange.getTo());
 
         // We support an empty streams list and return all affected indices in that case.
         if (streamIds.isEmpty()) {
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.inputs.delimited;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a single line of delimited values, e.g. CSV, into its fields.
+ * <p>
+ * The scanner works directly on the line and only copies the characters of each field. It handles the common cases:
+ * unquoted fields and quoted fields, with doubled quote characters as escaped quotes. For everything else, e.g. text
+ * between a closing quote and the next delimiter, an unterminated quoted field or line breaks, it returns
+ * {@code null} and the caller should fall back to a full CSV parser.
+ */
+public class DelimitedFieldScanner {
+    private final char delimiter;
+    private final char quote;
+
+    public DelimitedFieldScanner(char delimiter, char quote) {
+        this.delimiter = delimiter;
+        this.quote = quote;
+    }
+
+    /**
+     * Splits the given line into its fields.
+     *
+     * @param line the line to split
+     * @return the fields of the line with quotes removed, or {@code null} if the line can't be handled by the scanner
+     */
+    @Nullable
+    public List<String> scan(String line) {
+        final int length = line.length();
+        if (length == 0) {
+            return null;
+        }
+
+        final List<String> fields = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            if (pos < length && line.charAt(pos) == quote) {
+                StringBuilder unescaped = null;
+                int start = pos + 1;
+                int end = start;
+                while (true) {
+                    if (end >= length) {
+                        return null;
+                    }
+                    final char c = line.charAt(end);
+                    if (c == quote) {
+                        if (end + 1 < length && line.charAt(end + 1) == quote) {
+                            if (unescaped == null) {
+                                unescaped = new StringBuilder(end - start + 16);
+                            }
+                            unescaped.append(line, start, end + 1);
+                            end += 2;
+                            start = end;
+                            continue;
+                        }
+                        break;
+                    }
+                    if (c == '\r' || c == '\n') {
+                        return null;
+                    }
+                    end++;
+                }
+                fields.add(unescaped == null ? line.substring(start, end) : unescaped.append(line, start, end).toString());
+
+                pos = end + 1;
+                if (pos == length) {
+                    return fields;
+                }
+                if (line.charAt(pos) != delimiter) {
+                    return null;
+                }
+                pos++;
+            } else {
+                int end = pos;
+                while (end < length) {
+                    final char c = line.charAt(end);
+                    if (c == delimiter) {
+                        break;
+                    }
+                    if (c == '\r' || c == '\n') {
+                        return null;
+                    }
+                    end++;
+                }
+                fields.add(line.substring(pos, end));
+
+                if (end == length) {
+                    return fields;
+                }
+                pos = end + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.inputs.delimited;
+
+import org.joda.time.DateTimeZone;
+
+import javax.annotation.Nullable;
+
+/**
+ * Converts the raw value of a positional field into the value of the message field.
+ */
+@FunctionalInterface
+public interface FieldConverter {
+    /**
+     * @param rawValue the raw value of the field
+     * @param timezone the time zone for timestamps without a time zone
+     * @return the converted value, or {@code null} if the field should not be set
+     */
+    @Nullable
+    Object convert(String rawValue, DateTimeZone timezone);
+}
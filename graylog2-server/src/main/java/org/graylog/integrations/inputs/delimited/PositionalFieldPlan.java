@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.inputs.delimited;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import org.joda.time.DateTimeZone;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maps the fields of a delimited line to message fields by their position.
+ * <p>
+ * The plan is built once from a field template and holds the field name and converter of every position in arrays,
+ * so applying it to a line doesn't need any lookups.
+ * <p>
+ * If several positions map to the same field, differing non-empty values are collected in a list. Otherwise, the
+ * value of the later position replaces the earlier one.
+ */
+public class PositionalFieldPlan {
+    private final FieldConverter[] converters;
+    private final int[] slots;
+    private final String[] slotNames;
+    private final boolean[] sharedSlots;
+
+    private PositionalFieldPlan(FieldConverter[] converters, int[] slots, String[] slotNames, boolean[] sharedSlots) {
+        this.converters = converters;
+        this.slots = slots;
+        this.slotNames = slotNames;
+        this.sharedSlots = sharedSlots;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the message fields for the given values of a line.
+     *
+     * @param values   the values of the line
+     * @param timezone the time zone for timestamps without a time zone
+     * @return the message fields
+     */
+    public ImmutableMap<String, Object> apply(List<String> values, DateTimeZone timezone) {
+        final Object[] slotValues = new Object[slotNames.length];
+        final int count = Math.min(values.size(), converters.length);
+        for (int position = 0; position < count; position++) {
+            final FieldConverter converter = converters[position];
+            if (converter == null) {
+                continue;
+            }
+            final String rawValue = values.get(position);
+            final Object value = converter.convert(rawValue, timezone);
+            if (value == null) {
+                continue;
+            }
+            final int slot = slots[position];
+            slotValues[slot] = sharedSlots[slot] ? merge(slotValues[slot], value, rawValue) : value;
+        }
+
+        final ImmutableMap.Builder<String, Object> fields = ImmutableMap.builderWithExpectedSize(slotNames.length);
+        for (int slot = 0; slot < slotNames.length; slot++) {
+            if (slotValues[slot] != null) {
+                fields.put(slotNames[slot], slotValues[slot]);
+            }
+        }
+        return fields.buildOrThrow();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object merge(Object previous, Object value, String rawValue) {
+        if (previous == null || Strings.isNullOrEmpty(rawValue.trim()) || value.equals(previous)) {
+            return value;
+        }
+        if (previous instanceof List) {
+            ((List<Object>) previous).add(value);
+            return previous;
+        }
+        final List<Object> values = new ArrayList<>();
+        values.add(previous);
+        values.add(value);
+        return values;
+    }
+
+    public static class Builder {
+        private final TreeMap<Integer, Map.Entry<String, FieldConverter>> fields = new TreeMap<>();
+
+        /**
+         * Maps the value at the given position to a message field. Mapping the same position again replaces the
+         * previous mapping.
+         *
+         * @param position  the zero-based position of the value
+         * @param name      the name of the message field
+         * @param converter the converter for the value
+         */
+        public Builder field(int position, String name, FieldConverter converter) {
+            if (position < 0) {
+                throw new IllegalArgumentException("Position must not be negative: " + position);
+            }
+            fields.put(position, Map.entry(name, converter));
+            return this;
+        }
+
+        public PositionalFieldPlan build() {
+            final int length = fields.isEmpty() ? 0 : fields.lastKey() + 1;
+            final FieldConverter[] converters = new FieldConverter[length];
+            final int[] slots = new int[length];
+            final Map<String, Integer> slotsByName = new HashMap<>();
+            final List<String> slotNames = new ArrayList<>();
+            final List<Boolean> sharedSlots = new ArrayList<>();
+
+            fields.forEach((position, field) -> {
+                final Integer existingSlot = slotsByName.get(field.getKey());
+                if (existingSlot == null) {
+                    slotsByName.put(field.getKey(), slotNames.size());
+                    slots[position] = slotNames.size();
+                    slotNames.add(field.getKey());
+                    sharedSlots.add(false);
+                } else {
+                    slots[position] = existingSlot;
+                    sharedSlots.set(existingSlot, true);
+                }
+                converters[position] = field.getValue();
+            });
+
+            final boolean[] shared = new boolean[sharedSlots.size()];
+            for (int i = 0; i < shared.length; i++) {
+                shared[i] = sharedSlots.get(i);
+            }
+            return new PositionalFieldPlan(converters, slots, slotNames.toArray(new String[0]), shared);
+        }
+    }
+}
@@ -52,16 +52,21 @@ public class PaloAltoCodec implements Codec {
     private final Configuration configuration;
     private final MessageFactory messageFactory;
     private final PaloAltoParser parser;
-    private final PaloAltoTemplates templates;
+    private final PaloAltoTypeParser threatParser;
+    private final PaloAltoTypeParser systemParser;
+    private final PaloAltoTypeParser trafficParser;
 
     @AssistedInject
     public PaloAltoCodec(@Assisted Configuration configuration, MessageFactory messageFactory) {
         this.configuration = configuration;
         this.messageFactory = messageFactory;
         this.parser = new PaloAltoParser();
-        this.templates = PaloAltoTemplates.newInstance(configuration.getString(CK_SYSTEM_TEMPLATE, PaloAltoTemplateDefaults.SYSTEM_TEMPLATE),
+        final PaloAltoTemplates templates = PaloAltoTemplates.newInstance(configuration.getString(CK_SYSTEM_TEMPLATE, PaloAltoTemplateDefaults.SYSTEM_TEMPLATE),
                 configuration.getString(CK_THREAT_TEMPLATE, PaloAltoTemplateDefaults.THREAT_TEMPLATE),
                 configuration.getString(CK_TRAFFIC_TEMPLATE, PaloAltoTemplateDefaults.TRAFFIC_TEMPLATE));
+        this.threatParser = new PaloAltoTypeParser(templates.getThreatMessageTemplate());
+        this.systemParser = new PaloAltoTypeParser(templates.getSystemMessageTemplate());
+        this.trafficParser = new PaloAltoTypeParser(templates.getTrafficMessageTemplate());
     }
 
     @Nullable
@@ -85,16 +90,13 @@ public class PaloAltoCodec implements Codec {
 
         switch (p.panType()) {
             case "THREAT":
-                final PaloAltoTypeParser parserThreat = new PaloAltoTypeParser(templates.getThreatMessageTemplate());
-                message.addFields(parserThreat.parseFields(p.fields(), timezone));
+                message.addFields(threatParser.parseFields(p.fields(), timezone));
                 break;
             case "SYSTEM":
-                final PaloAltoTypeParser parserSystem = new PaloAltoTypeParser(templates.getSystemMessageTemplate());
-                message.addFields(parserSystem.parseFields(p.fields(), timezone));
+                message.addFields(systemParser.parseFields(p.fields(), timezone));
                 break;
             case "TRAFFIC":
-                final PaloAltoTypeParser parserTraffic = new PaloAltoTypeParser(templates.getTrafficMessageTemplate());
-                message.addFields(parserTraffic.parseFields(p.fields(), timezone));
+                message.addFields(trafficParser.parseFields(p.fields(), timezone));
                 break;
             default:
                 LOG.error("Unsupported PAN type [{}]. Not adding any parsed fields.", p.panType());
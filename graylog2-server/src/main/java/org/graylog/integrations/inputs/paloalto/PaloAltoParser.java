@@ -22,6 +22,7 @@ import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.lang.StringUtils;
+import org.graylog.integrations.inputs.delimited.DelimitedFieldScanner;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.format.DateTimeFormat;
@@ -65,6 +66,8 @@ public class PaloAltoParser {
     // Used to remove extra space between month and day, so date parsing works. eg. Apr  8 01:47:32 -> Apr 8 01:47:32
     private static final String DOUBLE_SPACE = "\\s{2}";
 
+    private static final DelimitedFieldScanner CSV_SCANNER = new DelimitedFieldScanner(',', '"');
+
     @Nullable
     public PaloAltoMessageBase parse(@NotNull String raw, DateTimeZone timezone) {
 
@@ -78,68 +81,55 @@ public class PaloAltoParser {
 
         // Trim off line breaks from the end of the message payload.
         raw = StringUtils.trim(raw);
-        if (PANORAMA_SYSLOG_PARSER.matcher(raw).matches()) {
+        final Matcher panoramaMatcher = PANORAMA_SYSLOG_PARSER.matcher(raw);
+        if (panoramaMatcher.matches()) {
             LOG.trace("Message is in Panorama format [{}]", raw);
-            final Matcher matcher = PANORAMA_SYSLOG_PARSER.matcher(raw);
-            if (matcher.find()) {
-
-                String timestampString = matcher.group(1);
-                String source = matcher.group(2);
-                String fieldsString = matcher.group(3);
-
-                DateTime timestamp;
-                // can't guarantee timestamp format, but the last 6 characters should contain either a Z or +/- if the
-                // timestamp has a timezone included. If it doesn't have a timezone, parse it with the input's
-                // configured timezone
-                if (timestampString.substring(timestampString.length() - 6).matches(".*[Z+-].*")) {
-                    timestamp = DateTime.parse(timestampString);
-                } else {
-                    timestamp = DateTime.parse(timestampString, ISODateTimeFormat.dateTimeParser().withZone(timezone));
-                }
-
-                return buildPaloAltoMessageBase(timestamp, fieldsString, source);
+
+            String timestampString = panoramaMatcher.group(1);
+            String source = panoramaMatcher.group(2);
+            String fieldsString = panoramaMatcher.group(3);
+
+            DateTime timestamp;
+            // can't guarantee timestamp format, but the last 6 characters should contain either a Z or +/- if the
+            // timestamp has a timezone included. If it doesn't have a timezone, parse it with the input's
+            // configured timezone
+            if (timestampString.substring(timestampString.length() - 6).matches(".*[Z+-].*")) {
+                timestamp = DateTime.parse(timestampString);
             } else {
-                LOG.error("Cannot parse malformed Panorama message: {}", raw);
-                return null;
+                timestamp = DateTime.parse(timestampString, ISODateTimeFormat.dateTimeParser().withZone(timezone));
             }
+
+            return buildPaloAltoMessageBase(timestamp, fieldsString, source);
         } else {
-            if (STANDARD_SYSLOG_PARSER.matcher(raw).matches()) {
+            final Matcher syslogMatcher = STANDARD_SYSLOG_PARSER.matcher(raw);
+            if (syslogMatcher.matches()) {
                 LOG.trace("Message is in structured syslog format [{}]", raw);
 
-                final Matcher matcher = STANDARD_SYSLOG_PARSER.matcher(raw);
-                if (matcher.matches()) {
-                    // Attempt to parse date in format: Aug 22 11:21:04
-                    // TODO This needs work.
-
-                    // Remove two spaces in one digit day number "Apr  8 01:47:32"
-                    // This solution feels terrible. Sorry.
-                    String dateWithoutYear = matcher.group(1).replaceFirst(DOUBLE_SPACE, SINGLE_SPACE);
-                    DateTime timestamp = SYSLOG_TIMESTAMP_FORMATTER.withZone(timezone).parseDateTime(dateWithoutYear + SINGLE_SPACE + DateTime.now(DateTimeZone.UTC).getYear());
-                    String source = matcher.group(2);
-                    String panData = matcher.group(3);
-
-                    return buildPaloAltoMessageBase(timestamp, panData, source);
-                } else {
-                    LOG.error("Cannot parse malformed Syslog message: {}", raw);
-                    return null;
-                }
-            } else if (STANDARD_SYSLOG_NO_HOST_PARSER.matcher(raw).matches()) {
+                // Attempt to parse date in format: Aug 22 11:21:04
+                // TODO This needs work.
+
+                // Remove two spaces in one digit day number "Apr  8 01:47:32"
+                // This solution feels terrible. Sorry.
+                String dateWithoutYear = syslogMatcher.group(1).replaceFirst(DOUBLE_SPACE, SINGLE_SPACE);
+                DateTime timestamp = SYSLOG_TIMESTAMP_FORMATTER.withZone(timezone).parseDateTime(dateWithoutYear + SINGLE_SPACE + DateTime.now(DateTimeZone.UTC).getYear());
+                String source = syslogMatcher.group(2);
+                String panData = syslogMatcher.group(3);
+
+                return buildPaloAltoMessageBase(timestamp, panData, source);
+            }
+
+            final Matcher noHostMatcher = STANDARD_SYSLOG_NO_HOST_PARSER.matcher(raw);
+            if (noHostMatcher.matches()) {
                 LOG.trace("Message is in structured syslog (with no hostname) format [{}]", raw);
 
-                final Matcher matcher = STANDARD_SYSLOG_NO_HOST_PARSER.matcher(raw);
-                if (matcher.matches()) {
-                    // Attempt to parse date in format: Aug 22 11:21:04
-                    // TODO This needs work.
-                    String dateWithoutYear = matcher.group(1).replaceFirst(DOUBLE_SPACE, SINGLE_SPACE);
-                    DateTime timestamp = SYSLOG_TIMESTAMP_FORMATTER.parseDateTime(dateWithoutYear + SINGLE_SPACE + DateTime.now(DateTimeZone.UTC).getYear()).withZone(timezone);
-                    String panData = matcher.group(2);
-
-                    // No source is supplied, so use a blank one
-                    return buildPaloAltoMessageBase(timestamp, panData, "");
-                } else {
-                    LOG.error("Cannot parse malformed Syslog message: {}", raw);
-                    return null;
-                }
+                // Attempt to parse date in format: Aug 22 11:21:04
+                // TODO This needs work.
+                String dateWithoutYear = noHostMatcher.group(1).replaceFirst(DOUBLE_SPACE, SINGLE_SPACE);
+                DateTime timestamp = SYSLOG_TIMESTAMP_FORMATTER.parseDateTime(dateWithoutYear + SINGLE_SPACE + DateTime.now(DateTimeZone.UTC).getYear()).withZone(timezone);
+                String panData = noHostMatcher.group(2);
+
+                // No source is supplied, so use a blank one
+                return buildPaloAltoMessageBase(timestamp, panData, "");
             }
         }
 
@@ -175,6 +165,12 @@ public class PaloAltoParser {
      */
     private ImmutableList<String> parseCSVFields(String messagePayload) {
 
+        // Most messages can be split without the overhead of a full CSV parser
+        final List<String> scannedFields = CSV_SCANNER.scan(messagePayload);
+        if (scannedFields != null) {
+            return ImmutableList.copyOf(scannedFields);
+        }
+
         Reader stringReader = new StringReader(messagePayload);
         List<CSVRecord> csvRecords = null;
         try {
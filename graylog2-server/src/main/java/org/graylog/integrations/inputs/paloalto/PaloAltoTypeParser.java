@@ -18,8 +18,9 @@ package org.graylog.integrations.inputs.paloalto;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
+import org.graylog.integrations.inputs.delimited.FieldConverter;
+import org.graylog.integrations.inputs.delimited.PositionalFieldPlan;
+import org.graylog2.utilities.date.FormatSniffingDateParser;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.format.DateTimeFormat;
@@ -28,101 +29,59 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
-import java.util.Map;
-
-import static org.graylog.integrations.inputs.paloalto.PaloAltoFieldType.BOOLEAN;
-import static org.graylog.integrations.inputs.paloalto.PaloAltoFieldType.LONG;
-import static org.graylog.integrations.inputs.paloalto.PaloAltoFieldType.STRING;
-import static org.graylog.integrations.inputs.paloalto.PaloAltoFieldType.TIMESTAMP;
 
 public class PaloAltoTypeParser {
 
     private static final Logger LOG = LoggerFactory.getLogger(PaloAltoTypeParser.class);
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormat.forPattern("yyyy/MM/dd HH:mm:ss ZZZ");
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormat.forPattern("yyyy/MM/dd HH:mm:ss");
 
-    private final PaloAltoMessageTemplate messageTemplate;
+    private final PositionalFieldPlan fieldPlan;
 
     public PaloAltoTypeParser(PaloAltoMessageTemplate messageTemplate) {
-        this.messageTemplate = messageTemplate;
+        final PositionalFieldPlan.Builder builder = PositionalFieldPlan.builder();
+        for (PaloAltoFieldTemplate template : messageTemplate.getFields()) {
+            builder.field(template.position(), template.field(), converter(template));
+        }
+        this.fieldPlan = builder.build();
     }
 
     public ImmutableMap<String, Object> parseFields(List<String> fields, DateTimeZone timezone) {
-        Map<String, Object> fieldMap = Maps.newHashMap();
-        List<PaloAltoFieldTemplate> templateFields = Lists.newArrayList(messageTemplate.getFields());
-
-        int fieldIndex = 0;
-        int templateIndex = 0;
-
-        while (fieldIndex < fields.size() && templateIndex < templateFields.size()) {
-            String rawValue = fields.get(fieldIndex);
-            PaloAltoFieldTemplate template = templateFields.get(templateIndex);
-
-            if (fieldIndex < template.position()) {
-                fieldIndex++;
-                continue;
-            } else if (fieldIndex == template.position()) {
-                Object value = rawValue;
+        return fieldPlan.apply(fields, timezone);
+    }
 
-                if (template.fieldType() == STRING) {
-                    if (rawValue.startsWith("\"") && rawValue.endsWith("\"")) {
-                        value = rawValue.substring(1, rawValue.length() - 1);
-                    }
-                } else if (template.fieldType() == LONG) {
-                    try {
-                        value = Strings.isNullOrEmpty(rawValue) ? 0L : Long.valueOf(rawValue);
-                    } catch (NumberFormatException ex) {
-                        LOG.error("Error parsing field {}, {} is not a valid numeric value", template.field(), rawValue);
-                        value = null;
-                    }
-                } else if (template.fieldType() == BOOLEAN) {
-                    value = Boolean.valueOf(rawValue);
-                } else if (template.fieldType() == TIMESTAMP) {
-                    String stringValue = rawValue;
-                    if (rawValue.startsWith("\"") && rawValue.endsWith("\"")) {
-                        stringValue = rawValue.substring(1, rawValue.length() - 1);
-                    }
-                    if (!Strings.isNullOrEmpty(stringValue)) {
-                        try {
-                            LOG.trace("Parsing timestamp {} with timezone {}", stringValue, timezone);
-                            value = DateTime.parse(stringValue + " " + timezone, DATE_TIME_FORMATTER).withZone(timezone);
-                            LOG.trace("Timestamp after parsing {}", value);
-                        } catch (Exception e) {
-                            LOG.debug("Error parsing field {}, {} is not a valid timestamp value", template.field(), stringValue, e);
-                        }
-                    }
-                } else {
-                    LOG.warn("Unrecognized data type [{}] for field [{}], handling as STRING",
-                            template.fieldType(), template.field());
+    private static FieldConverter converter(PaloAltoFieldTemplate template) {
+        return switch (template.fieldType()) {
+            case STRING -> (rawValue, timezone) -> unquote(rawValue);
+            case LONG -> (rawValue, timezone) -> {
+                try {
+                    return Strings.isNullOrEmpty(rawValue) ? 0L : Long.valueOf(rawValue);
+                } catch (NumberFormatException ex) {
+                    LOG.error("Error parsing field {}, {} is not a valid numeric value", template.field(), rawValue);
+                    return null;
                 }
-
-                // Handling of duplicate keys
-                if (fieldMap.containsKey(template.field())) {
-                    if (Strings.isNullOrEmpty(rawValue.trim()) || null == value
-                            || value.equals(fieldMap.get(template.field()))) {
-                        // Same value, do nothing
-                    } else if (fieldMap.get(template.field()) instanceof List) {
-                        List valueList = (List) fieldMap.get(template.field());
-                        valueList.add(value);
-                        value = valueList;
-                    } else {
-                        List valueList = Lists.newArrayList();
-                        valueList.add(fieldMap.get(template.field()));
-                        valueList.add(value);
-                        value = valueList;
-                    }
+            };
+            case BOOLEAN -> (rawValue, timezone) -> Boolean.valueOf(rawValue);
+            case TIMESTAMP -> (rawValue, timezone) -> {
+                final String stringValue = unquote(rawValue);
+                if (Strings.isNullOrEmpty(stringValue)) {
+                    return rawValue;
                 }
-                if (value != null) {
-                    fieldMap.put(template.field(), value);
+                LOG.trace("Parsing timestamp {} with timezone {}", stringValue, timezone);
+                final DateTime value = FormatSniffingDateParser.tryParse(DATE_TIME_FORMATTER.withZone(timezone), stringValue);
+                if (value == null) {
+                    LOG.debug("Error parsing field {}, {} is not a valid timestamp value", template.field(), stringValue);
+                    return rawValue;
                 }
+                LOG.trace("Timestamp after parsing {}", value);
+                return value;
+            };
+        };
+    }
 
-                fieldIndex++;
-                templateIndex++;
-            } else {
-                LOG.error("Not sure the template fields are properly sorted");
-                templateIndex++;
-            }
+    private static String unquote(String rawValue) {
+        if (rawValue.length() >= 2 && rawValue.startsWith("\"") && rawValue.endsWith("\"")) {
+            return rawValue.substring(1, rawValue.length() - 1);
         }
-
-        return ImmutableMap.copyOf(fieldMap);
+        return rawValue;
     }
-}
\ No newline at end of file
+}
@@ -133,7 +133,7 @@ public class PaloAlto9xCodec implements Codec {
 
         // Store full message if configured.
         if (configuration.getBoolean(CK_STORE_FULL_MESSAGE)) {
-            message.addField(Message.FIELD_FULL_MESSAGE, new String(rawMessage.getPayload(), StandardCharsets.UTF_8));
+            message.addField(Message.FIELD_FULL_MESSAGE, s);
         }
 
         LOG.trace("Successfully processed [{}] message with [{}] fields.", p.panType(), message.getFieldCount());
@@ -16,9 +16,14 @@
  */
 package org.graylog.plugins.beats;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.exc.StreamReadException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.assistedinject.Assisted;
 import jakarta.inject.Inject;
 import org.graylog2.plugin.Message;
@@ -53,9 +58,19 @@ public class Beats2Codec extends AbstractCodec {
     private static final String BEATS_UNKNOWN = "unknown";
     private static final String CK_NO_BEATS_PREFIX = "no_beats_prefix";
 
+    private static final String FIELD_METADATA = "@metadata";
+    private static final String FIELD_TIMESTAMP = "@timestamp";
+    private static final String FIELD_MESSAGE = "message";
+    private static final String FIELD_AGENT = "agent";
+    private static final String FIELD_BEAT = "beat";
+    // Stands in for the field prefix until it is known, see decodeStreaming()
+    private static final String PREFIX_PLACEHOLDER = "\u0000";
+
     private final ObjectMapper objectMapper;
     private final MessageFactory messageFactory;
     private final boolean noBeatsPrefix;
+    private final boolean useLongForInts;
+    private final boolean useBigIntegerForInts;
 
     @Inject
     public Beats2Codec(@Assisted Configuration configuration, ObjectMapper objectMapper, MessageFactory messageFactory) {
@@ -64,37 +79,238 @@ public class Beats2Codec extends AbstractCodec {
         this.noBeatsPrefix = configuration.getBoolean(CK_NO_BEATS_PREFIX, false);
         this.objectMapper = requireNonNull(objectMapper);
         this.messageFactory = messageFactory;
+        this.useLongForInts = objectMapper.isEnabled(DeserializationFeature.USE_LONG_FOR_INTS);
+        this.useBigIntegerForInts = objectMapper.isEnabled(DeserializationFeature.USE_BIG_INTEGER_FOR_INTS);
     }
 
     @Nullable
     @Override
     public Message decode(@Nonnull RawMessage rawMessage) {
         final byte[] payload = rawMessage.getPayload();
-        final JsonNode event;
         try {
-            event = objectMapper.readTree(payload);
-            if (event == null || event.isMissingNode()) {
-                throw new IOException("null result");
-            }
+            return decodeStreaming(payload);
         } catch (IOException e) {
             LOG.error("Couldn't decode raw message {}", rawMessage);
             return null;
         }
+    }
 
+    /**
+     * Decodes the event by flattening it straight from the JSON token stream, without building a tree.
+     * <p>
+     * The fields are flattened in a single pass and buffered until all fields which are needed to create the message
+     * have been read. The field prefix is taken from {@code @metadata}, which Beats write before the other fields.
+     * Fields before {@code @metadata} are flattened with a placeholder prefix which is replaced afterwards. Events
+     * which aren't JSON objects, contain duplicate keys or an empty Beats type after other fields are decoded with
+     * {@link #decodeTree(byte[])}, so the result is always the same.
+     */
+    @VisibleForTesting
+    Message decodeStreaming(byte[] payload) throws IOException {
+        final ObjectNode headerFields = objectMapper.getNodeFactory().objectNode();
+        final FlattenedFields fields = new FlattenedFields();
+        final StringBuilder path = new StringBuilder();
+        String prefix = noBeatsPrefix ? "" : null;
+        int placeholderFields = 0;
+
+        try (JsonParser parser = createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return decodeTree(payload);
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                token = parser.nextToken();
+                if (isHeaderField(name)) {
+                    final JsonNode value = parser.readValueAsTree();
+                    headerFields.set(name, value);
+                    if (prefix == null && FIELD_METADATA.equals(name)) {
+                        prefix = beatsType(headerFields);
+                        placeholderFields = fields.size();
+                    }
+                    // Fields that should not be duplicated with a prefix
+                    if (!FIELD_MESSAGE.equals(name) && !Message.FIELD_GL2_SOURCE_COLLECTOR.equals(name)) {
+                        addFlattened(fields, rootPath(prefix, name), value);
+                    }
+                } else {
+                    path.setLength(0);
+                    path.append(rootPath(prefix, name));
+                    flattenValue(parser, token, fields, path);
+                }
+            }
+            if (token != JsonToken.END_OBJECT) {
+                throw new IOException("Unexpected end of event");
+            }
+        } catch (StreamReadException e) {
+            if (isDuplicateKey(e)) {
+                return decodeTree(payload);
+            }
+            throw e;
+        }
+
+        if (prefix == null) {
+            prefix = beatsType(headerFields);
+            placeholderFields = fields.size();
+        }
+        if (prefix.isEmpty() && placeholderFields > 0) {
+            // Paths with an empty prefix have no separator, so the placeholder can't be replaced
+            return decodeTree(payload);
+        }
+
+        final Message message = createMessage(headerFields);
+        for (int i = 0; i < fields.size(); i++) {
+            final String key = fields.keys.get(i);
+            message.addField(i < placeholderFields ? prefix + key.substring(PREFIX_PLACEHOLDER.length()) : key,
+                    fields.values.get(i));
+        }
+        return message;
+    }
+
+    /**
+     * Decodes the event by reading it into a tree and flattening the tree.
+     */
+    @VisibleForTesting
+    Message decodeTree(byte[] payload) throws IOException {
+        final JsonNode event = objectMapper.readTree(payload);
+        if (event == null || event.isMissingNode()) {
+            throw new IOException("null result");
+        }
         return parseEvent(event);
     }
 
+    private JsonParser createParser(byte[] payload) throws IOException {
+        final JsonParser parser = objectMapper.createParser(payload);
+        // Keys of the same object must be unique, see decodeStreaming()
+        parser.enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION);
+        return parser;
+    }
+
+    private static boolean isDuplicateKey(StreamReadException e) {
+        return e.getOriginalMessage() != null && e.getOriginalMessage().startsWith("Duplicate field");
+    }
+
+    private static boolean isHeaderField(String name) {
+        return switch (name) {
+            case FIELD_METADATA, FIELD_TIMESTAMP, FIELD_MESSAGE, FIELD_AGENT, FIELD_BEAT,
+                    Message.FIELD_GL2_SOURCE_COLLECTOR -> true;
+            default -> false;
+        };
+    }
+
+    private static String rootPath(@Nullable String prefix, String name) {
+        if (prefix == null) {
+            return PREFIX_PLACEHOLDER + MAP_KEY_SEPARATOR + name;
+        }
+        return prefix.isEmpty() ? name : prefix + MAP_KEY_SEPARATOR + name;
+    }
+
+    private void flattenObject(JsonParser parser, FieldSink sink, StringBuilder path) throws IOException {
+        final int length = path.length();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            final JsonToken token = parser.nextToken();
+            if (length > 0) {
+                path.append(MAP_KEY_SEPARATOR);
+            }
+            path.append(name);
+            flattenValue(parser, token, sink, path);
+            path.setLength(length);
+        }
+    }
+
+    private void flattenValue(JsonParser parser, JsonToken token, FieldSink sink, StringBuilder path) throws IOException {
+        if (token == JsonToken.START_OBJECT) {
+            flattenObject(parser, sink, path);
+        } else if (token == JsonToken.START_ARRAY) {
+            flattenArray(parser, sink, path);
+        } else {
+            sink.addField(path.toString(), scalarValue(parser, token));
+        }
+    }
+
+    private void flattenArray(JsonParser parser, FieldSink sink, StringBuilder path) throws IOException {
+        final int length = path.length();
+        final List<Object> values = new ArrayList<>();
+        JsonToken token;
+        for (int i = 0; (token = parser.nextToken()) != JsonToken.END_ARRAY; i++) {
+            if (token == JsonToken.START_OBJECT) {
+                if (length > 0) {
+                    path.append(MAP_KEY_SEPARATOR).append(i);
+                }
+                flattenObject(parser, sink, path);
+                path.setLength(length);
+            } else if (token == JsonToken.START_ARRAY) {
+                // Nested arrays are not supported
+                parser.skipChildren();
+            } else {
+                values.add(scalarValue(parser, token));
+            }
+        }
+        sink.addField(path.toString(), values);
+    }
+
+    /**
+     * Returns the same value as {@link #valueNode(JsonNode)} for the node {@link ObjectMapper#readTree} creates.
+     */
+    @Nullable
+    private Object scalarValue(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            if (useBigIntegerForInts) {
+                return parser.getBigIntegerValue().longValue();
+            } else if (useLongForInts) {
+                return parser.getLongValue();
+            }
+            final JsonParser.NumberType numberType = parser.getNumberType();
+            if (numberType == JsonParser.NumberType.INT) {
+                return parser.getIntValue();
+            } else if (numberType == JsonParser.NumberType.LONG) {
+                return parser.getLongValue();
+            } else {
+                return parser.getBigIntegerValue().longValue();
+            }
+        } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDoubleValue();
+        } else if (token == JsonToken.VALUE_TRUE) {
+            return true;
+        } else if (token == JsonToken.VALUE_FALSE) {
+            return false;
+        } else if (token == JsonToken.VALUE_NULL) {
+            return null;
+        } else {
+            return parser.getText();
+        }
+    }
+
     private Message parseEvent(JsonNode event) {
-        final String beatsType = event.path("@metadata").path("beat").asText("beat");
-        final String rootPath = noBeatsPrefix ? "" : beatsType;
-        final String message = event.path("message").asText("-");
-        final String timestampField = event.path("@timestamp").asText();
+        final String rootPath = noBeatsPrefix ? "" : beatsType(event);
+        final Message gelfMessage = createMessage(event);
+
+        // Remove fields that should not be duplicated with a prefix
+        if (event.isObject()) {
+            ObjectNode onode = (ObjectNode) event;
+            onode.remove("message");
+            onode.remove(Message.FIELD_GL2_SOURCE_COLLECTOR);
+        }
+        addFlattened(gelfMessage::addField, rootPath, event);
+        return gelfMessage;
+    }
+
+    private static String beatsType(JsonNode event) {
+        return event.path(FIELD_METADATA).path("beat").asText("beat");
+    }
+
+    /**
+     * Creates the message with the fields which are not flattened.
+     */
+    private Message createMessage(JsonNode event) {
+        final String beatsType = beatsType(event);
+        final String message = event.path(FIELD_MESSAGE).asText("-");
+        final String timestampField = event.path(FIELD_TIMESTAMP).asText();
         final DateTime timestamp = Tools.dateTimeFromString(timestampField);
 
-        JsonNode agentOrBeat = event.path("agent");
+        JsonNode agentOrBeat = event.path(FIELD_AGENT);
         // backwards compatibility for beats < 7.0
         if (agentOrBeat.isMissingNode()) {
-            agentOrBeat = event.path("beat");
+            agentOrBeat = event.path(FIELD_BEAT);
         }
 
         JsonNode agentName = agentOrBeat.path("hostname");
@@ -113,24 +329,16 @@ public class Beats2Codec extends AbstractCodec {
         if (!gl2SourceCollector.isEmpty()) {
             gelfMessage.addField(Message.FIELD_GL2_SOURCE_COLLECTOR, gl2SourceCollector);
         }
-
-        // Remove fields that should not be duplicated with a prefix
-        if (event.isObject()) {
-            ObjectNode onode = (ObjectNode) event;
-            onode.remove("message");
-            onode.remove(Message.FIELD_GL2_SOURCE_COLLECTOR);
-        }
-        addFlattened(gelfMessage, rootPath, event);
         return gelfMessage;
     }
 
-    private void addFlattened(Message message, String currentPath, JsonNode jsonNode) {
+    private void addFlattened(FieldSink sink, String currentPath, JsonNode jsonNode) {
         if (jsonNode.isObject()) {
             final Iterator<Map.Entry<String, JsonNode>> it = jsonNode.fields();
             final String pathPrefix = currentPath.isEmpty() ? "" : currentPath + MAP_KEY_SEPARATOR;
             while (it.hasNext()) {
                 final Map.Entry<String, JsonNode> entry = it.next();
-                addFlattened(message, pathPrefix + entry.getKey(), entry.getValue());
+                addFlattened(sink, pathPrefix + entry.getKey(), entry.getValue());
             }
         } else if (jsonNode.isArray()) {
             final List<Object> values = new ArrayList<>(jsonNode.size());
@@ -138,14 +346,14 @@ public class Beats2Codec extends AbstractCodec {
                 final JsonNode currentNode = jsonNode.get(i);
                 if (currentNode.isObject()) {
                     final String pathPrefix = currentPath.isEmpty() ? "" : currentPath + MAP_KEY_SEPARATOR + i;
-                    addFlattened(message, pathPrefix, currentNode);
+                    addFlattened(sink, pathPrefix, currentNode);
                 } else if (currentNode.isValueNode()) {
                     values.add(valueNode(currentNode));
                 }
             }
-            message.addField(currentPath, values);
+            sink.addField(currentPath, values);
         } else if (jsonNode.isValueNode()) {
-            message.addField(currentPath, valueNode(jsonNode));
+            sink.addField(currentPath, valueNode(jsonNode));
         }
     }
 
@@ -168,6 +376,27 @@ public class Beats2Codec extends AbstractCodec {
         }
     }
 
+    private interface FieldSink {
+        void addField(String key, @Nullable Object value);
+    }
+
+    /**
+     * Flattened fields in the order they have been read.
+     */
+    private static class FlattenedFields implements FieldSink {
+        private final List<String> keys = new ArrayList<>();
+        private final List<Object> values = new ArrayList<>();
+
+        @Override
+        public void addField(String key, @Nullable Object value) {
+            keys.add(key);
+            values.add(value);
+        }
+
+        int size() {
+            return keys.size();
+        }
+    }
 
     @FactoryClass
     public interface Factory extends AbstractCodec.Factory<Beats2Codec> {
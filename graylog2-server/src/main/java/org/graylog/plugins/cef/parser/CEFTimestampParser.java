@@ -16,61 +16,46 @@
  */
 package org.graylog.plugins.cef.parser;
 
+import org.graylog2.utilities.date.FormatSniffingDateParser;
+import org.graylog2.utilities.date.FormatSniffingDateParser.Shape;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
 import org.joda.time.format.ISODateTimeFormat;
 
 import javax.annotation.Nullable;
 import java.util.Locale;
 
 public class CEFTimestampParser {
-    private static final DateTimeFormatter[] DATE_TIME_FORMATTERS = {
-            ISODateTimeFormat.dateTime(),
-            ISODateTimeFormat.dateTimeNoMillis(),
-            ISODateTimeFormat.basicDateTime(),
-            ISODateTimeFormat.basicDateTimeNoMillis(),
-
-            DateTimeFormat.forPattern("MMM dd HH:mm:ss.SSS ZZZ"),
-            DateTimeFormat.forPattern("MMM dd HH:mm:sss.SSS"),
-            DateTimeFormat.forPattern("MMM dd HH:mm:ss ZZZ"),
-            DateTimeFormat.forPattern("MMM dd HH:mm:ss"),
-            DateTimeFormat.forPattern("MMM dd yyyy HH:mm:ss.SSS ZZZ"),
-            DateTimeFormat.forPattern("MMM dd yyyy HH:mm:ss.SSS"),
-            DateTimeFormat.forPattern("MMM dd yyyy HH:mm:ss ZZZ"),
-            DateTimeFormat.forPattern("MMM dd yyyy HH:mm:ss"),
-
-            DateTimeFormat.fullDateTime(),
-            DateTimeFormat.mediumDateTime(),
-            DateTimeFormat.shortDateTime(),
-            DateTimeFormat.longDateTime()
-    };
+    private static final FormatSniffingDateParser PARSER = FormatSniffingDateParser.builder()
+            // UNIX epoch millisecond timestamp
+            .epochMillis()
+            .formats(Shape.ISO_EXTENDED,
+                    ISODateTimeFormat.dateTime(),
+                    ISODateTimeFormat.dateTimeNoMillis())
+            .formats(Shape.ISO_BASIC,
+                    ISODateTimeFormat.basicDateTime(),
+                    ISODateTimeFormat.basicDateTimeNoMillis())
+            .formats(Shape.SYSLOG,
+                    DateTimeFormat.forPattern("MMM dd HH:mm:ss.SSS ZZZ"),
+                    DateTimeFormat.forPattern("MMM dd HH:mm:sss.SSS"),
+                    DateTimeFormat.forPattern("MMM dd HH:mm:ss ZZZ"),
+                    DateTimeFormat.forPattern("MMM dd HH:mm:ss"))
+            .formats(Shape.SYSLOG_WITH_YEAR,
+                    DateTimeFormat.forPattern("MMM dd yyyy HH:mm:ss.SSS ZZZ"),
+                    DateTimeFormat.forPattern("MMM dd yyyy HH:mm:ss.SSS"),
+                    DateTimeFormat.forPattern("MMM dd yyyy HH:mm:ss ZZZ"),
+                    DateTimeFormat.forPattern("MMM dd yyyy HH:mm:ss"))
+            .formats(Shape.OTHER,
+                    DateTimeFormat.fullDateTime(),
+                    DateTimeFormat.mediumDateTime(),
+                    DateTimeFormat.shortDateTime(),
+                    DateTimeFormat.longDateTime())
+            .build();
 
     @Nullable
     public static DateTime parse(String s, DateTimeZone timeZone, Locale locale) {
-        // Trim input string and consolidate repeating blanks
-        final String text = s.trim().replaceAll("\\s{2,}", " ");
-
-        // First try UNIX epoch millisecond timestamp
-        try {
-            final long l = Long.parseLong(text);
-            return new DateTime(l, DateTimeZone.UTC);
-        } catch (NumberFormatException e) {
-            // ignore
-        }
-
-        for (DateTimeFormatter dateTimeFormatter : DATE_TIME_FORMATTERS) {
-            try {
-                return dateTimeFormatter
-                        .withZone(timeZone)
-                        .withLocale(locale)
-                        .parseDateTime(text);
-            } catch (Exception e) {
-                // ignore
-            }
-        }
-        return null;
+        return PARSER.parse(s, timeZone, locale);
     }
 
     @Nullable
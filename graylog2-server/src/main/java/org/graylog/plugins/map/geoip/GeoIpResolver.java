@@ -21,6 +21,7 @@ import com.codahale.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.net.InetAddress;
 import java.nio.file.Files;
@@ -30,7 +31,6 @@ public abstract class GeoIpResolver<V> {
 
     private static final Logger LOG = LoggerFactory.getLogger(GeoIpResolver.class);
 
-    protected String lastError = null;
     protected final Timer resolveTime;
     private final boolean enabled;
 
@@ -57,21 +57,43 @@ public abstract class GeoIpResolver<V> {
     abstract boolean createDataProvider(File configFile);
 
     public Optional<V> getGeoIpData(InetAddress address) {
-        lastError = null;
+        return resolve(address).data();
+    }
+
+    /**
+     * Looks up the given address. In contrast to {@link #getGeoIpData(InetAddress)}, the result tells a failed lookup
+     * apart from an address which isn't in the database.
+     */
+    public Result<V> resolve(InetAddress address) {
         if (!enabled || address == null) {
-            return Optional.empty();
+            return Result.empty();
         }
         return doGetGeoIpData(address);
     }
 
+    protected abstract Result<V> doGetGeoIpData(InetAddress address);
+
     /**
-     * Get the last error, if any, produced after having called {@link #getGeoIpData(InetAddress)}.
+     * The result of a lookup.
      *
-     * @return optional error message
+     * @param data  the data of the address, empty if the address wasn't found or the lookup failed
+     * @param error the error message if the lookup failed
      */
-    public Optional<String> getLastError() {
-        return Optional.ofNullable(lastError);
-    }
+    public record Result<V>(Optional<V> data, Optional<String> error) {
+        public static <V> Result<V> empty() {
+            return new Result<>(Optional.empty(), Optional.empty());
+        }
 
-    protected abstract Optional<V> doGetGeoIpData(InetAddress address);
+        public static <V> Result<V> of(@Nullable V data) {
+            return new Result<>(Optional.ofNullable(data), Optional.empty());
+        }
+
+        public static <V> Result<V> failed(Exception e) {
+            return new Result<>(Optional.empty(), Optional.of(e.getMessage() != null ? e.getMessage() : e.getClass().getName()));
+        }
+
+        public boolean isFailed() {
+            return error.isPresent();
+        }
+    }
 }
@@ -16,14 +16,19 @@
  */
 package org.graylog.plugins.map.geoip;
 
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
 import com.codahale.metrics.Timer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.net.InetAddresses;
 import org.apache.commons.lang3.StringUtils;
 import org.graylog.plugins.map.config.GeoIpResolverConfig;
 import org.graylog.plugins.map.config.S3GeoIpFileService;
 import org.graylog2.plugin.Message;
+import org.graylog2.shared.metrics.MetricUtils;
 import org.graylog2.utilities.ReservedIpChecker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +38,7 @@ import java.net.InetAddress;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -41,6 +47,7 @@ import static com.codahale.metrics.MetricRegistry.name;
 
 public class GeoIpResolverEngine {
     private static final Logger LOG = LoggerFactory.getLogger(GeoIpResolverEngine.class);
+    private static final int RESULT_CACHE_SIZE = 10_000;
 
     /**
      * This is a list of schema fields defined in package <b></b>org.graylog.schema</b> as of 2022-07-15 which we want to scan for IP addresses.  If the schema changes, or we need to add/remove fields,
@@ -74,10 +81,24 @@ public class GeoIpResolverEngine {
     private final boolean enabled;
     private final boolean enforceGraylogSchema;
 
+    // The engine is re-created when the configuration or the database files change, so the cached results never
+    // have to be invalidated.
+    private final Cache<InetAddress, Optional<GeoLocationInformation>> locationCache = Caffeine.newBuilder()
+            .maximumSize(RESULT_CACHE_SIZE)
+            .build();
+    private final Cache<InetAddress, Optional<GeoAsnInformation>> asnCache = Caffeine.newBuilder()
+            .maximumSize(RESULT_CACHE_SIZE)
+            .build();
+    private final Meter cacheHits;
+    private final Meter cacheMisses;
 
     public GeoIpResolverEngine(GeoIpVendorResolverService resolverService, GeoIpResolverConfig config, S3GeoIpFileService s3GeoIpFileService,
                                MetricRegistry metricRegistry) {
         Timer resolveTime = metricRegistry.timer(name(GeoIpResolverEngine.class, "resolveTime"));
+        cacheHits = metricRegistry.meter(name(GeoIpResolverEngine.class, "cache", "hits"));
+        cacheMisses = metricRegistry.meter(name(GeoIpResolverEngine.class, "cache", "misses"));
+        // The meters are shared by all engine instances, so registering the gauge once is enough
+        MetricUtils.safelyRegister(metricRegistry, name(GeoIpResolverEngine.class, "cache", "hitRatio"), new CacheHitRatio(cacheHits, cacheMisses));
 
         enforceGraylogSchema = config.enforceGraylogSchema();
         if (config.useS3()) {
@@ -114,7 +135,7 @@ public class GeoIpResolverEngine {
             // For reserved IPs just mark as reserved. Otherwise, enforce Graylog schema on only relevant IP fields
             // or add legacy fields on all IP fields in the message if enforcement is disabled.
             final String prefix = enforceGraylogSchema ? ipAddressFields.getOrDefault(key, key) : key;
-            if (ReservedIpChecker.getInstance().isReservedIpAddress(address.getHostAddress())) {
+            if (ReservedIpChecker.getInstance().isReservedIpAddress(address)) {
                 message.addField(prefix + "_reserved_ip", true);
             } else if (enforceGraylogSchema) {
                 addGIMGeoIpDataIfPresent(message, address, prefix);
@@ -128,7 +149,7 @@ public class GeoIpResolverEngine {
 
     // Pre-4.3 logic for adding geo fields to message.
     private void addLegacyGeoIpDataIfPresent(Message message, InetAddress address, String key) {
-        ipLocationResolver.getGeoIpData(address).ifPresent(locationInformation -> {
+        getCachedGeoIpData(locationCache, ipLocationResolver, address).ifPresent(locationInformation -> {
             // We will store the coordinates as a "lat,long" string
             message.addField(key + "_geolocation", locationInformation.latitude() + "," + locationInformation.longitude());
             message.addField(key + "_country_code", locationInformation.countryIsoCode());
@@ -137,7 +158,7 @@ public class GeoIpResolverEngine {
     }
 
     private void addGIMGeoIpDataIfPresent(Message message, InetAddress address, String newFieldPrefix) {
-        ipLocationResolver.getGeoIpData(address).ifPresent(locationInformation -> {
+        getCachedGeoIpData(locationCache, ipLocationResolver, address).ifPresent(locationInformation -> {
             message.addField(newFieldPrefix + "_geo_coordinates", locationInformation.latitude() + "," + locationInformation.longitude());
             message.addField(newFieldPrefix + "_geo_country_iso", locationInformation.countryIsoCode());
             message.addField(newFieldPrefix + "_geo_city", locationInformation.cityName());
@@ -154,13 +175,29 @@ public class GeoIpResolverEngine {
             }
         });
 
-        ipAsnResolver.getGeoIpData(address).ifPresent(info -> {
+        getCachedGeoIpData(asnCache, ipAsnResolver, address).ifPresent(info -> {
 
             message.addField(newFieldPrefix + "_as_organization", info.organization());
             message.addField(newFieldPrefix + "_as_number", info.asn());
         });
     }
 
+    private <V> Optional<V> getCachedGeoIpData(Cache<InetAddress, Optional<V>> cache, GeoIpResolver<V> resolver, InetAddress address) {
+        final Optional<V> cached = cache.getIfPresent(address);
+        if (cached != null) {
+            cacheHits.mark();
+            return cached;
+        }
+        cacheMisses.mark();
+
+        final GeoIpResolver.Result<V> result = resolver.resolve(address);
+        // Failed lookups are not cached, so they are retried with the next message
+        if (!result.isFailed()) {
+            cache.put(address, result.data());
+        }
+        return result.data();
+    }
+
     /**
      * Get the message fields that will be checked for IP addresses.
      *
@@ -207,8 +244,13 @@ public class GeoIpResolverEngine {
     @Nullable
     @VisibleForTesting
     InetAddress getIpFromFieldValue(String fieldValue) {
+        final String value = fieldValue.trim();
+        // Most field values are no IP addresses, so we avoid the exception thrown by InetAddresses#forString for them
+        if (!mightBeIpAddress(value)) {
+            return null;
+        }
         try {
-            return InetAddresses.forString(fieldValue.trim());
+            return InetAddresses.forString(value);
         } catch (IllegalArgumentException e) {
             // Do nothing, field is not an IP
         }
@@ -216,6 +258,66 @@ public class GeoIpResolverEngine {
         return null;
     }
 
+    /**
+     * Checks if the given value only contains characters which are valid in an IPv4 or IPv6 address literal as
+     * accepted by {@link InetAddresses#forString(String)}. This rejects most values which are no IP addresses
+     * without parsing them.
+     *
+     * @param value the trimmed field value
+     * @return false if the value is definitely not an IP address, true if it might be one
+     */
+    @VisibleForTesting
+    static boolean mightBeIpAddress(String value) {
+        final int length = value.length();
+        // "::" is the shortest IPv6 address, "1.1.1.1" the shortest IPv4 address
+        if (length < 2) {
+            return false;
+        }
+
+        boolean colon = false;
+        int dots = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c == ':') {
+                colon = true;
+            } else if (c == '.') {
+                dots++;
+            } else if (c == '%') {
+                // IPv6 scope ID, which can contain arbitrary characters
+                return colon;
+            } else if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f') && !(c >= 'A' && c <= 'F')) {
+                return false;
+            }
+        }
+        // Hex digits are only valid in IPv6 addresses, which are always recognized by their colons
+        return colon || (dots == 3 && length <= 15 && isDigitsAndDots(value));
+    }
+
+    private static boolean isDigitsAndDots(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c != '.' && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class CacheHitRatio extends RatioGauge {
+        private final Meter hits;
+        private final Meter misses;
+
+        private CacheHitRatio(Meter hits, Meter misses) {
+            this.hits = hits;
+            this.misses = misses;
+        }
+
+        @Override
+        protected Ratio getRatio() {
+            return Ratio.of(hits.getOneMinuteRate(), hits.getOneMinuteRate() + misses.getOneMinuteRate());
+        }
+    }
+
     private static Function<String, String> mapFieldNameToPrefix() {
         return string -> string.replace("_ip", "");
     }
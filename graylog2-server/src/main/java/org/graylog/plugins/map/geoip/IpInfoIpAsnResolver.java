@@ -26,7 +26,6 @@ import jakarta.inject.Named;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.util.Locale;
-import java.util.Optional;
 
 import static org.graylog.plugins.map.config.GeoIpProcessorConfig.DISABLE_IPINFO_DB_TYPE_CHECK;
 
@@ -44,20 +43,18 @@ public class IpInfoIpAsnResolver extends IpInfoIpResolver<GeoAsnInformation> {
     }
 
     @Override
-    protected Optional<GeoAsnInformation> doGetGeoIpData(InetAddress address) {
+    protected Result<GeoAsnInformation> doGetGeoIpData(InetAddress address) {
 
-        GeoAsnInformation info;
         try (Timer.Context ignored = resolveTime.time()) {
             final IPinfoASN ipInfoASN = adapter.ipInfoASN(address);
-            info = GeoAsnInformation.create(ipInfoASN.name(), ipInfoASN.type(), ipInfoASN.asn());
+            return Result.of(GeoAsnInformation.create(ipInfoASN.name(), ipInfoASN.type(), ipInfoASN.asn()));
         } catch (IOException | AddressNotFoundException | UnsupportedOperationException e) {
-            info = null;
-            if (!(e instanceof AddressNotFoundException)) {
-                String error = String.format(Locale.US, "Error getting ASN for IP Address '%s'. %s", address, e.getMessage());
-                LOG.warn(error, e);
-                lastError = e.getMessage();
+            if (e instanceof AddressNotFoundException) {
+                return Result.empty();
             }
+            String error = String.format(Locale.US, "Error getting ASN for IP Address '%s'. %s", address, e.getMessage());
+            LOG.warn(error, e);
+            return Result.failed(e);
         }
-        return Optional.ofNullable(info);
     }
 }
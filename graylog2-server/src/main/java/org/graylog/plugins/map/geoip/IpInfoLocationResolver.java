@@ -26,7 +26,6 @@ import jakarta.inject.Named;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.util.Locale;
-import java.util.Optional;
 
 import static org.graylog.plugins.map.config.GeoIpProcessorConfig.DISABLE_IPINFO_DB_TYPE_CHECK;
 
@@ -44,22 +43,20 @@ public class IpInfoLocationResolver extends IpInfoIpResolver<GeoLocationInformat
     }
 
     @Override
-    protected Optional<GeoLocationInformation> doGetGeoIpData(InetAddress address) {
-        GeoLocationInformation info;
+    protected Result<GeoLocationInformation> doGetGeoIpData(InetAddress address) {
 
         try (Timer.Context ignored = resolveTime.time()) {
             IPinfoStandardLocation loc = adapter.ipInfoStandardLocation(address);
-            info = GeoLocationInformation.create(loc.latitude(), loc.longitude(), loc.country(), "N/A",
-                    loc.city(), loc.region(), loc.timezone());
+            return Result.of(GeoLocationInformation.create(loc.latitude(), loc.longitude(), loc.country(), "N/A",
+                    loc.city(), loc.region(), loc.timezone()));
 
         } catch (NullPointerException | IOException | AddressNotFoundException | UnsupportedOperationException e) {
-            info = null;
-            if (!(e instanceof AddressNotFoundException)) {
-                String error = String.format(Locale.US, "Error getting IP location info for '%s'. %s", address, e.getMessage());
-                LOG.error(error, e);
-                lastError = e.getMessage();
+            if (e instanceof AddressNotFoundException) {
+                return Result.empty();
             }
+            String error = String.format(Locale.US, "Error getting IP location info for '%s'. %s", address, e.getMessage());
+            LOG.error(error, e);
+            return Result.failed(e);
         }
-        return Optional.ofNullable(info);
     }
 }
@@ -28,7 +28,6 @@ import jakarta.inject.Inject;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.util.Locale;
-import java.util.Optional;
 
 /**
  * A {@link GeoIpResolver} to load IP ASN data from {@link org.graylog.plugins.map.config.DatabaseVendorType#MAXMIND}.
@@ -43,22 +42,18 @@ public class MaxMindIpAsnResolver extends MaxMindIpResolver<GeoAsnInformation> {
     }
 
     @Override
-    protected Optional<GeoAsnInformation> doGetGeoIpData(InetAddress address) {
-        GeoAsnInformation asn;
+    protected Result<GeoAsnInformation> doGetGeoIpData(InetAddress address) {
         try (Timer.Context ignored = resolveTime.time()) {
             AsnResponse response = databaseReader.asn(address);
             String number = response.getAutonomousSystemNumber() == null ? "N/A" : response.getAutonomousSystemNumber().toString();
-            asn = GeoAsnInformation.create(response.getAutonomousSystemOrganization(), "N/A", number);
+            return Result.of(GeoAsnInformation.create(response.getAutonomousSystemOrganization(), "N/A", number));
         } catch (GeoIp2Exception | IOException | UnsupportedOperationException e) {
-            asn = null;
-
-            if (!(e instanceof AddressNotFoundException)) {
-                String error = String.format(Locale.US, "Error getting ASN for IP Address '%s'. %s", address, e.getMessage());
-                LOG.warn(error, e);
-                lastError = e.getMessage();
+            if (e instanceof AddressNotFoundException) {
+                return Result.empty();
             }
+            String error = String.format(Locale.US, "Error getting ASN for IP Address '%s'. %s", address, e.getMessage());
+            LOG.warn(error, e);
+            return Result.failed(e);
         }
-
-        return Optional.ofNullable(asn);
     }
 }
@@ -31,7 +31,6 @@ import jakarta.inject.Inject;
 
 import java.io.IOException;
 import java.net.InetAddress;
-import java.util.Optional;
 
 /**
  * A {@link GeoIpResolver} to load IP location data from {@link org.graylog.plugins.map.config.DatabaseVendorType#MAXMIND}.
@@ -46,7 +45,7 @@ public class MaxMindIpLocationResolver extends MaxMindIpResolver<GeoLocationInfo
     }
 
     @Override
-    public Optional<GeoLocationInformation> doGetGeoIpData(InetAddress address) {
+    public Result<GeoLocationInformation> doGetGeoIpData(InetAddress address) {
 
         try (Timer.Context ignored = getTimer()) {
             final CityResponse response = getCityResponse(address);
@@ -61,13 +60,13 @@ public class MaxMindIpLocationResolver extends MaxMindIpResolver<GeoLocationInfo
                     city.getGeoNameId() == null ? "N/A" : city.getName(),// calling to .getName() may throw a NPE
                     "N/A",
                     "N/A");
-            return Optional.of(info);
+            return Result.of(info);
         } catch (Exception e) {
-            if (!(e instanceof AddressNotFoundException)) {
-                LOG.debug("Could not get location from IP {}", address.getHostAddress(), e);
-                lastError = e.getMessage();
+            if (e instanceof AddressNotFoundException) {
+                return Result.empty();
             }
-            return Optional.empty();
+            LOG.debug("Could not get location from IP {}", address.getHostAddress(), e);
+            return Result.failed(e);
         }
     }
 
@@ -16,7 +16,9 @@
  */
 package org.graylog.plugins.netflow;
 
+import org.graylog.plugins.netflow.codecs.MongoNetFlowV9TemplateStore;
 import org.graylog.plugins.netflow.codecs.NetFlowCodec;
+import org.graylog.plugins.netflow.codecs.NetFlowV9TemplateStore;
 import org.graylog.plugins.netflow.inputs.NetFlowUdpInput;
 import org.graylog.plugins.netflow.transport.NetFlowUdpTransport;
 import org.graylog2.plugin.PluginConfigBean;
@@ -36,5 +38,6 @@ public class NetFlowPluginModule extends PluginModule {
         addMessageInput(NetFlowUdpInput.class);
         addCodec("netflow", NetFlowCodec.class);
         addTransport("netflow-udp", NetFlowUdpTransport.class);
+        bind(NetFlowV9TemplateStore.class).to(MongoNetFlowV9TemplateStore.class);
     }
 }
@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.netflow.codecs;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.graylog2.database.MongoConnection;
+import org.graylog2.system.shutdown.GracefulShutdownHook;
+import org.graylog2.system.shutdown.GracefulShutdownService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gte;
+import static com.mongodb.client.model.Updates.currentDate;
+import static com.mongodb.client.model.Updates.setOnInsert;
+import static org.graylog2.database.indices.MongoDbIndexTools.ensureTTLIndex;
+
+/**
+ * Template store implementation using MongoDB.
+ * <p>
+ * {@link #save} and {@link #findLatest} are called for every packet on the receive path of the NetFlow input, so
+ * they only use local caches. Templates are written to MongoDB in the background if they are new or haven't been
+ * written by this node for a minute. Templates received by other nodes are loaded on startup and, for unknown
+ * templates, in the background after the first lookup. Templates which haven't been received for
+ * {@link #TEMPLATE_TTL} are removed by MongoDB. Until a template has been written, {@link #isPersisted} returns
+ * {@code false} and journal entries contain the template instead of referencing it.
+ */
+@Singleton
+public class MongoNetFlowV9TemplateStore implements NetFlowV9TemplateStore, GracefulShutdownHook {
+    private static final Logger LOG = LoggerFactory.getLogger(MongoNetFlowV9TemplateStore.class);
+
+    public static final String COLLECTION_NAME = "netflow_v9_templates";
+    // Much longer than the default journal retention, so journal entries can still be decoded
+    static final Duration TEMPLATE_TTL = Duration.ofDays(7);
+    // Exporters resend their templates every few minutes, older templates are loaded on demand
+    private static final Duration STARTUP_LOAD_PERIOD = Duration.ofHours(1);
+    private static final long FLUSH_INTERVAL_MS = 1000;
+    // A template is only referenced by journal entries while it will be kept by MongoDB for days
+    private static final Duration PERSISTED_CHECK_PERIOD = Duration.ofDays(1);
+
+    static final String FIELD_EXPORTER = "exporter";
+    static final String FIELD_SOURCE_ID = "source_id";
+    static final String FIELD_TEMPLATE_ID = "template_id";
+    static final String FIELD_VERSION = "version";
+    static final String FIELD_OPTION_TEMPLATE = "option_template";
+    static final String FIELD_BYTES = "bytes";
+    static final String FIELD_UPDATED_AT = "updated_at";
+
+    private record ExporterTemplateKey(String exporter, long sourceId, int templateId) {}
+
+    private record VersionKey(int templateId, long version) {}
+
+    private final MongoCollection<Document> collection;
+    private final ScheduledExecutorService executor;
+    private final Cache<VersionKey, Template> templates;
+    private final Cache<ExporterTemplateKey, Template> latestTemplates;
+    private final Cache<ExporterTemplateKey, Long> recentlySaved;
+    private final Cache<ExporterTemplateKey, Boolean> recentMisses;
+    private final Cache<VersionKey, Boolean> recentVersionMisses;
+    private final Cache<VersionKey, Boolean> persistedVersions;
+    private final ConcurrentMap<ExporterTemplateKey, Template> pendingWrites = new ConcurrentHashMap<>();
+    private final Set<ExporterTemplateKey> pendingLoads = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    public MongoNetFlowV9TemplateStore(MongoConnection mongoConnection, GracefulShutdownService gracefulShutdownService) {
+        this.collection = mongoConnection.getMongoDatabase().getCollection(COLLECTION_NAME);
+        collection.createIndex(Indexes.ascending(FIELD_EXPORTER, FIELD_SOURCE_ID, FIELD_TEMPLATE_ID, FIELD_VERSION),
+                new IndexOptions().unique(true));
+        collection.createIndex(Indexes.ascending(FIELD_TEMPLATE_ID, FIELD_VERSION));
+        ensureTTLIndex(collection, TEMPLATE_TTL, FIELD_UPDATED_AT);
+
+        this.templates = CacheBuilder.newBuilder()
+                .maximumSize(5000)
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .build();
+        this.latestTemplates = CacheBuilder.newBuilder()
+                .maximumSize(5000)
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .build();
+        this.recentlySaved = CacheBuilder.newBuilder()
+                .maximumSize(5000)
+                .expireAfterWrite(1, TimeUnit.MINUTES)
+                .build();
+        // Avoid querying MongoDB for every data flow of an exporter whose templates no node has received yet
+        this.recentMisses = CacheBuilder.newBuilder()
+                .maximumSize(5000)
+                .expireAfterWrite(5, TimeUnit.SECONDS)
+                .build();
+        // Avoid querying MongoDB for every journal entry referencing a template which has expired
+        this.recentVersionMisses = CacheBuilder.newBuilder()
+                .maximumSize(5000)
+                .expireAfterWrite(5, TimeUnit.SECONDS)
+                .build();
+        this.persistedVersions = CacheBuilder.newBuilder()
+                .maximumSize(5000)
+                .expireAfterWrite(PERSISTED_CHECK_PERIOD)
+                .build();
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("netflow-v9-template-store-%d")
+                .setDaemon(true)
+                .build());
+        executor.execute(this::loadRecentTemplates);
+        executor.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        gracefulShutdownService.register(this);
+    }
+
+    @Override
+    public void save(String exporter, long sourceId, Template template) {
+        final ExporterTemplateKey key = new ExporterTemplateKey(exporter, sourceId, template.templateId());
+        templates.put(new VersionKey(template.templateId(), template.version()), template);
+        latestTemplates.put(key, template);
+        recentMisses.invalidate(key);
+
+        final Long savedVersion = recentlySaved.getIfPresent(key);
+        if (savedVersion != null && savedVersion == template.version()) {
+            return;
+        }
+        // A newer version of the template replaces a pending older one
+        pendingWrites.put(key, template);
+    }
+
+    @Override
+    public Optional<Template> findLatest(String exporter, long sourceId, int templateId) {
+        final ExporterTemplateKey key = new ExporterTemplateKey(exporter, sourceId, templateId);
+        final Template cached = latestTemplates.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        // The caller buffers the packet and asks again with the next packet of the exporter
+        if (recentMisses.getIfPresent(key) == null && pendingLoads.add(key)) {
+            executor.execute(() -> loadLatest(key));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Template> find(int templateId, long version) {
+        final VersionKey key = new VersionKey(templateId, version);
+        final Template cached = templates.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        if (recentVersionMisses.getIfPresent(key) != null) {
+            return Optional.empty();
+        }
+        final Document document = collection
+                .find(and(eq(FIELD_TEMPLATE_ID, templateId), eq(FIELD_VERSION, version)))
+                .first();
+        if (document == null) {
+            recentVersionMisses.put(key, Boolean.TRUE);
+            return Optional.empty();
+        }
+        final Template template = toTemplate(document);
+        templates.put(key, template);
+        markPersisted(document, template);
+        return Optional.of(template);
+    }
+
+    @Override
+    public boolean isPersisted(int templateId, long version) {
+        return persistedVersions.getIfPresent(new VersionKey(templateId, version)) != null;
+    }
+
+    @Override
+    public void doGracefulShutdown() throws Exception {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            LOG.warn("Timeout shutting down NetFlow v9 template store after 10 seconds");
+            executor.shutdownNow();
+        }
+        // Periodic flushes are cancelled on shutdown, write the templates which have been saved since the last one
+        flush();
+    }
+
+    private void flush() {
+        for (final ExporterTemplateKey key : pendingWrites.keySet()) {
+            final Template template = pendingWrites.remove(key);
+            if (template == null) {
+                continue;
+            }
+            try {
+                collection.updateOne(
+                        and(eq(FIELD_EXPORTER, key.exporter()),
+                                eq(FIELD_SOURCE_ID, key.sourceId()),
+                                eq(FIELD_TEMPLATE_ID, template.templateId()),
+                                eq(FIELD_VERSION, template.version())),
+                        Updates.combine(
+                                currentDate(FIELD_UPDATED_AT),
+                                setOnInsert(FIELD_OPTION_TEMPLATE, template.optionTemplate()),
+                                setOnInsert(FIELD_BYTES, new Binary(template.bytes()))
+                        ),
+                        new UpdateOptions().upsert(true));
+                recentlySaved.put(key, template.version());
+                persistedVersions.put(new VersionKey(template.templateId(), template.version()), Boolean.TRUE);
+            } catch (Exception e) {
+                // The template is still available on this node, other nodes have to wait for the exporter to resend it
+                LOG.warn("Couldn't save NetFlow v9 template {} of exporter {}/{}", template.templateId(), key.exporter(), key.sourceId(), e);
+            }
+        }
+    }
+
+    private void loadLatest(ExporterTemplateKey key) {
+        try {
+            final Document document = collection
+                    .find(and(eq(FIELD_EXPORTER, key.exporter()), eq(FIELD_SOURCE_ID, key.sourceId()), eq(FIELD_TEMPLATE_ID, key.templateId())))
+                    .sort(Sorts.descending(FIELD_UPDATED_AT))
+                    .first();
+            if (document == null) {
+                recentMisses.put(key, Boolean.TRUE);
+            } else {
+                cacheLatest(key, document);
+            }
+        } catch (MongoException e) {
+            recentMisses.put(key, Boolean.TRUE);
+            LOG.warn("Couldn't load NetFlow v9 template {} of exporter {}/{}", key.templateId(), key.exporter(), key.sourceId(), e);
+        } finally {
+            pendingLoads.remove(key);
+        }
+    }
+
+    private void loadRecentTemplates() {
+        final Date since = new Date(System.currentTimeMillis() - STARTUP_LOAD_PERIOD.toMillis());
+        int count = 0;
+        try {
+            // Descending order, so the latest version of a template is cached first
+            for (final Document document : collection.find(gte(FIELD_UPDATED_AT, since)).sort(Sorts.descending(FIELD_UPDATED_AT))) {
+                cacheLatest(new ExporterTemplateKey(document.getString(FIELD_EXPORTER), document.getLong(FIELD_SOURCE_ID),
+                        document.getInteger(FIELD_TEMPLATE_ID)), document);
+                count++;
+            }
+            LOG.debug("Loaded {} NetFlow v9 templates", count);
+        } catch (MongoException e) {
+            LOG.warn("Couldn't load NetFlow v9 templates, they will be loaded on demand", e);
+        }
+    }
+
+    private void cacheLatest(ExporterTemplateKey key, Document document) {
+        final Template template = toTemplate(document);
+        templates.put(new VersionKey(template.templateId(), template.version()), template);
+        markPersisted(document, template);
+        // Don't replace a template this node has received itself in the meantime
+        latestTemplates.asMap().putIfAbsent(key, template);
+    }
+
+    private void markPersisted(Document document, Template template) {
+        // Templates which haven't been updated for a while might be removed by MongoDB soon
+        final Date updatedAt = document.getDate(FIELD_UPDATED_AT);
+        if (updatedAt != null && updatedAt.getTime() > System.currentTimeMillis() - PERSISTED_CHECK_PERIOD.toMillis()) {
+            persistedVersions.put(new VersionKey(template.templateId(), template.version()), Boolean.TRUE);
+        }
+    }
+
+    private static Template toTemplate(Document document) {
+        return new Template(
+                document.getInteger(FIELD_TEMPLATE_ID),
+                document.getLong(FIELD_VERSION),
+                document.getBoolean(FIELD_OPTION_TEMPLATE, false),
+                document.get(FIELD_BYTES, Binary.class).getData());
+    }
+}
@@ -16,6 +16,8 @@
  */
 package org.graylog.plugins.netflow.codecs;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Maps;
 import com.google.inject.assistedinject.Assisted;
@@ -24,6 +26,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import jakarta.inject.Inject;
+import org.graylog.plugins.netflow.flows.EmptyTemplateException;
 import org.graylog.plugins.netflow.flows.FlowException;
 import org.graylog.plugins.netflow.flows.NetFlowFormatter;
 import org.graylog.plugins.netflow.v5.NetFlowV5Packet;
@@ -64,6 +67,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.graylog2.shared.utilities.StringUtils.f;
+
 @Codec(name = "netflow", displayName = "NetFlow")
 public class NetFlowCodec extends AbstractCodec implements MultiMessageCodec {
     /**
@@ -72,7 +78,7 @@ public class NetFlowCodec extends AbstractCodec implements MultiMessageCodec {
     public static final byte PASSTHROUGH_MARKER = 0x00;
     /**
      * Marker byte which signals that the contained netflow v9 packet is non-RFC:
-     * It contains all necessary template flows before any data flows and can be completely parsed without a template cache.
+     * It contains or references all necessary template flows and can be completely parsed without a template cache.
      */
     public static final byte ORDERED_V9_MARKER = 0x01;
     @VisibleForTesting
@@ -81,13 +87,18 @@ public class NetFlowCodec extends AbstractCodec implements MultiMessageCodec {
     private final NetFlowV9FieldTypeRegistry typeRegistry;
     private final NetflowV9CodecAggregator netflowV9CodecAggregator;
     private final NetFlowFormatter netFlowFormatter;
+    private final NetFlowV9TemplateStore templateStore;
+    private final Counter templateMissDrops;
 
     @Inject
     protected NetFlowCodec(@Assisted Configuration configuration, NetflowV9CodecAggregator netflowV9CodecAggregator,
-                           NetFlowFormatter netFlowFormatter) throws IOException {
+                           NetFlowFormatter netFlowFormatter, NetFlowV9TemplateStore templateStore,
+                           MetricRegistry metricRegistry) throws IOException {
         super(configuration);
         this.netflowV9CodecAggregator = netflowV9CodecAggregator;
         this.netFlowFormatter = netFlowFormatter;
+        this.templateStore = templateStore;
+        this.templateMissDrops = metricRegistry.counter(name(NetFlowCodec.class, "templateMissDrops"));
 
         final String netFlow9DefinitionsPath = configuration.getString(CK_NETFLOW9_DEFINITION_PATH);
         if (netFlow9DefinitionsPath == null || netFlow9DefinitionsPath.trim().isEmpty()) {
@@ -185,6 +196,22 @@ public class NetFlowCodec extends AbstractCodec implements MultiMessageCodec {
             optionTemplate[0] = NetFlowV9Parser.parseOptionTemplate(Unpooled.wrappedBuffer(byteString.toByteArray()), typeRegistry);
         });
 
+        // resolve the templates which are only referenced by their version
+        for (NetFlowV9Journal.TemplateRef templateRef : rawNetflowV9.getTemplateRefsList()) {
+            final NetFlowV9TemplateStore.Template template = templateStore.find(templateRef.getTemplateId(), templateRef.getVersion())
+                    .orElseThrow(() -> {
+                        templateMissDrops.inc();
+                        return new EmptyTemplateException(f("Unable to find NetFlow 9 template %d with version %d. Discarding packet.",
+                                templateRef.getTemplateId(), templateRef.getVersion()));
+                    });
+            final ByteBuf templateBuffer = Unpooled.wrappedBuffer(template.bytes());
+            if (template.optionTemplate()) {
+                optionTemplate[0] = NetFlowV9Parser.parseOptionTemplate(templateBuffer, typeRegistry);
+            } else {
+                templateMap.put(template.templateId(), NetFlowV9Parser.parseTemplate(templateBuffer, typeRegistry));
+            }
+        }
+
         return rawNetflowV9.getPacketsList().stream()
                 .map(bytes -> Unpooled.wrappedBuffer(bytes.toByteArray()))
                 .map(buf -> NetFlowV9Parser.parsePacket(buf, typeRegistry, templateMap, optionTemplate[0]))
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.netflow.codecs;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.net.InetAddresses;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Optional;
+
+/**
+ * Stores NetFlow v9 templates for all nodes in the cluster.
+ * <p>
+ * Templates are versioned by their content, so journal entries can reference a persisted template by its id and
+ * version instead of containing the template itself. Data flows arriving at a node which hasn't seen the template yet can be
+ * processed with a template another node has received.
+ */
+public interface NetFlowV9TemplateStore {
+    /**
+     * @param templateId     the template id
+     * @param version        the version of the template, see {@link #version(byte[], boolean)}
+     * @param optionTemplate whether this is an option template
+     * @param bytes          the raw template flow
+     */
+    record Template(int templateId, long version, boolean optionTemplate, byte[] bytes) {
+        public static Template create(int templateId, boolean optionTemplate, byte[] bytes) {
+            return new Template(templateId, NetFlowV9TemplateStore.version(bytes, optionTemplate), optionTemplate, bytes);
+        }
+    }
+
+    /**
+     * Saves the template received from the given exporter. This is called on the receive path of the input and must
+     * not block.
+     *
+     * @param exporter the address of the exporter, see {@link #exporterId(SocketAddress)}
+     * @param sourceId the source id of the exporter
+     * @param template the template
+     */
+    void save(String exporter, long sourceId, Template template);
+
+    /**
+     * Returns the template which has been received last from the given exporter. This is called on the receive path
+     * of the input and must not block, so templates received by other nodes might only be returned by later calls.
+     */
+    Optional<Template> findLatest(String exporter, long sourceId, int templateId);
+
+    /**
+     * Returns the template with the given version. This is called when decoding journal entries and might block if
+     * the template isn't cached, e.g. after a restart.
+     */
+    Optional<Template> find(int templateId, long version);
+
+    /**
+     * Returns whether the template with the given version has been persisted, so journal entries can reference it
+     * and {@link #find(int, long)} will return it on every node. Journal entries have to contain templates which
+     * haven't been persisted yet. This is called on the receive path of the input and must not block.
+     */
+    boolean isPersisted(int templateId, long version);
+
+    /**
+     * Computes the version of a template from its content, which makes the version independent of the node that
+     * received the template.
+     */
+    static long version(byte[] bytes, boolean optionTemplate) {
+        final Hasher hasher = Hashing.murmur3_128().newHasher();
+        hasher.putBoolean(optionTemplate);
+        hasher.putBytes(bytes);
+        return hasher.hash().asLong();
+    }
+
+    /**
+     * Returns the identifier of an exporter which is the same on all nodes.
+     */
+    static String exporterId(SocketAddress remoteAddress) {
+        if (remoteAddress instanceof InetSocketAddress inetSocketAddress && inetSocketAddress.getAddress() != null) {
+            return InetAddresses.toUriString(inetSocketAddress.getAddress()) + ":" + inetSocketAddress.getPort();
+        }
+        return String.valueOf(remoteAddress);
+    }
+}
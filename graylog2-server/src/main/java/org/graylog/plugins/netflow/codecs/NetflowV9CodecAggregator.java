@@ -16,6 +16,9 @@
  */
 package org.graylog.plugins.netflow.codecs;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
 import com.github.joschi.jadconfig.util.Size;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
@@ -24,6 +27,7 @@ import com.google.protobuf.ByteString;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
+import org.graylog.plugins.netflow.codecs.NetFlowV9TemplateStore.Template;
 import org.graylog.plugins.netflow.v9.NetFlowV9Journal;
 import org.graylog.plugins.netflow.v9.NetFlowV9Parser;
 import org.graylog.plugins.netflow.v9.RawNetFlowV9Packet;
@@ -40,27 +44,37 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import static com.codahale.metrics.MetricRegistry.name;
+
 /**
- * For Netflow v9 packets we want to prepend the corresponding flow template.
+ * For Netflow v9 packets we want to reference the corresponding flow templates.
  * If we don't have that template yet, we consider the flow packet to be incomplete and continue to wait for the template.
- * TODO consider sharing seen templates between nodes in the cluster to minimize wait time
+ * Templates are shared between the nodes in the cluster with the {@link NetFlowV9TemplateStore} to minimize wait time.
  */
 public class NetflowV9CodecAggregator implements RemoteAddressCodecAggregator {
     private static final Logger LOG = LoggerFactory.getLogger(NetflowV9CodecAggregator.class);
 
     private static final ByteBuf PASSTHROUGH_MARKER = Unpooled.wrappedBuffer(new byte[]{NetFlowCodec.PASSTHROUGH_MARKER});
 
-    private final Cache<TemplateKey, TemplateBytes> templateCache;
+    private final NetFlowV9TemplateStore templateStore;
+    private final Cache<TemplateKey, Template> templateCache;
     private final Cache<TemplateKey, Queue<PacketBytes>> packetCache;
+    private final Counter templateMissDrops;
+    private final Histogram journalBytesPerFlow;
 
     @Inject
-    public NetflowV9CodecAggregator() {
+    public NetflowV9CodecAggregator(NetFlowV9TemplateStore templateStore, MetricRegistry metricRegistry) {
+        this.templateStore = templateStore;
+        this.templateMissDrops = metricRegistry.counter(name(NetflowV9CodecAggregator.class, "templateMissDrops"));
+        this.journalBytesPerFlow = metricRegistry.histogram(name(NetflowV9CodecAggregator.class, "journalBytesPerFlow"));
+
         // TODO customize
         this.templateCache = CacheBuilder.newBuilder()
                 .maximumSize(5000)
@@ -70,7 +84,13 @@ public class NetflowV9CodecAggregator implements RemoteAddressCodecAggregator {
         this.packetCache = CacheBuilder.newBuilder()
                 .expireAfterWrite(1, TimeUnit.MINUTES)
                 .maximumWeight(Size.megabytes(1).toBytes())
-                .removalListener((RemovalListener<TemplateKey, Queue<PacketBytes>>) notification -> LOG.debug("Removed {} from packet cache for reason {}", notification.getKey(), notification.getCause()))
+                .removalListener((RemovalListener<TemplateKey, Queue<PacketBytes>>) notification -> {
+                    LOG.debug("Removed {} from packet cache for reason {}", notification.getKey(), notification.getCause());
+                    // the templates for these packets never arrived in time
+                    if (notification.wasEvicted() && notification.getValue() != null) {
+                        templateMissDrops.inc(notification.getValue().size());
+                    }
+                })
                 .weigher((key, value) -> value.stream().map(PacketBytes::readableBytes).reduce(0, Integer::sum))
                 .recordStats()
                 .build();
@@ -98,11 +118,14 @@ public class NetflowV9CodecAggregator implements RemoteAddressCodecAggregator {
             // since we do not want to do that again in the codec, we will violate the RFC when putting together
             // the packets again:
             // the codec can, contrary to https://tools.ietf.org/html/rfc3954#section-9, assume that for each packet/RawMessage
-            // the packet contains all necessary templates. This greatly simplifies parsing at the expense of larger RawMessages.
+            // the packet references all necessary templates by their version in the template store or, until the template
+            // store has persisted them, contains the templates. This greatly simplifies parsing without having to write the
+            // templates into every journal entry.
 
             // The rest of the code works as follows:
             // We shallowly parse the incoming packet, extracting all flows into ByteBufs.
-            // We then cache the raw bytes for template flows, keyed by remote ip and source id. These are used to reassemble the packet for the journal later.
+            // We then cache the raw bytes for template flows, keyed by remote ip and source id, and save them in the template store.
+            // Templates we haven't received ourselves are looked up in the template store, another node might have received them.
             // For each netflow v9 packet that we do not have a matching template for yet, we put it into a queue.
             // Once the template flow arrives we go back through the queue and remove now matching packets for further processing.
             if (LOG.isTraceEnabled()) {
@@ -110,6 +133,7 @@ public class NetflowV9CodecAggregator implements RemoteAddressCodecAggregator {
             }
             final RawNetFlowV9Packet rawNetFlowV9Packet = NetFlowV9Parser.parsePacketShallow(buf);
             final long sourceId = rawNetFlowV9Packet.header().sourceId();
+            final String exporter = NetFlowV9TemplateStore.exporterId(remoteAddress);
 
             LOG.trace("Incoming NetFlow V9 packet contains: {}", rawNetFlowV9Packet);
 
@@ -119,8 +143,9 @@ public class NetflowV9CodecAggregator implements RemoteAddressCodecAggregator {
                 final byte[] bytes = template.getValue();
 
                 final TemplateKey templateKey = new TemplateKey(remoteAddress, sourceId, templateId);
-                final TemplateBytes templateBytes = new TemplateBytes(bytes, false);
-                templateCache.put(templateKey, templateBytes);
+                final Template flowTemplate = Template.create(templateId, false, bytes);
+                templateCache.put(templateKey, flowTemplate);
+                templateStore.save(exporter, sourceId, flowTemplate);
             }
 
             final Map.Entry<Integer, byte[]> optionTemplate = rawNetFlowV9Packet.optionTemplate();
@@ -129,9 +154,24 @@ public class NetflowV9CodecAggregator implements RemoteAddressCodecAggregator {
                 final byte[] bytes = optionTemplate.getValue();
 
                 final TemplateKey templateKey = new TemplateKey(remoteAddress, sourceId, templateId);
-                final TemplateBytes templateBytes = new TemplateBytes(bytes, true);
+                final Template flowTemplate = Template.create(templateId, true, bytes);
 
-                templateCache.put(templateKey, templateBytes);
+                templateCache.put(templateKey, flowTemplate);
+                templateStore.save(exporter, sourceId, flowTemplate);
+            }
+
+            // look up the templates we haven't received ourselves
+            boolean sharedTemplatesFound = false;
+            for (int templateId : rawNetFlowV9Packet.usedTemplates()) {
+                final TemplateKey templateKey = new TemplateKey(remoteAddress, sourceId, templateId);
+                if (templateCache.getIfPresent(templateKey) == null) {
+                    final Optional<Template> sharedTemplate = templateStore.findLatest(exporter, sourceId, templateId);
+                    if (sharedTemplate.isPresent()) {
+                        LOG.debug("Using template {} received by another node", templateKey);
+                        templateCache.put(templateKey, sharedTemplate.get());
+                        sharedTemplatesFound = true;
+                    }
+                }
             }
 
             // this list of flows to return in the result
@@ -140,10 +180,10 @@ public class NetflowV9CodecAggregator implements RemoteAddressCodecAggregator {
             final Set<Integer> bufferedTemplateIds = new HashSet<>();
 
             // if we have new templates, figure out which buffered packets template requirements are now satisfied
-            if (!rawNetFlowV9Packet.templates().isEmpty() || rawNetFlowV9Packet.optionTemplate() != null) {
+            if (!rawNetFlowV9Packet.templates().isEmpty() || rawNetFlowV9Packet.optionTemplate() != null || sharedTemplatesFound) {
                 final Set<Integer> knownTemplateIds = new HashSet<>();
                 for (TemplateKey templateKey : templateCache.asMap().keySet()) {
-                    if (templateKey.getRemoteAddress() == remoteAddress && templateKey.getSourceId() == sourceId) {
+                    if (templateKey.getRemoteAddress().equals(remoteAddress) && templateKey.getSourceId() == sourceId) {
                         final Integer templateId = templateKey.getTemplateId();
                         knownTemplateIds.add(templateId);
                     }
@@ -181,7 +221,7 @@ public class NetflowV9CodecAggregator implements RemoteAddressCodecAggregator {
             bufferedTemplateIds.addAll(rawNetFlowV9Packet.usedTemplates());
             for (int templateId : bufferedTemplateIds) {
                 final TemplateKey templateKey = new TemplateKey(remoteAddress, sourceId, templateId);
-                final TemplateBytes template = templateCache.getIfPresent(templateKey);
+                final Template template = templateCache.getIfPresent(templateKey);
 
                 if (template == null) {
                     // we don't have the template, this packet needs to be buffered until we receive the templates
@@ -215,25 +255,34 @@ public class NetflowV9CodecAggregator implements RemoteAddressCodecAggregator {
                 return new Result(null, true);
             }
 
-            // add the used templates and option template to the journal message builder
+            // add the used templates and option template to the journal message builder. persisted templates are
+            // only referenced, all others are embedded so the journal entry can be decoded even if saving them fails
             final NetFlowV9Journal.RawNetflowV9.Builder builder = NetFlowV9Journal.RawNetflowV9.newBuilder();
             for (TemplateKey templateKey : templates) {
-                final TemplateBytes templateBytes = templateCache.getIfPresent(templateKey);
-                if (templateBytes == null) {
+                final Template template = templateCache.getIfPresent(templateKey);
+                if (template == null) {
                     LOG.warn("Template {} expired while processing, discarding netflow packet", templateKey);
-                } else if (templateBytes.isOptionTemplate()) {
-                    LOG.debug("Writing options template flow {}", templateKey);
-                    final byte[] bytes = templateBytes.getBytes();
-                    builder.putOptionTemplate(1, ByteString.copyFrom(bytes));
+                } else if (!templateStore.isPersisted(template.templateId(), template.version())) {
+                    LOG.debug("Writing {} {} version {}", template.optionTemplate() ? "options template flow" : "template", templateKey, template.version());
+                    if (template.optionTemplate()) {
+                        builder.putOptionTemplate(template.templateId(), ByteString.copyFrom(template.bytes()));
+                    } else {
+                        builder.putTemplates(template.templateId(), ByteString.copyFrom(template.bytes()));
+                    }
                 } else {
-                    LOG.debug("Writing template {}", templateKey);
-                    final byte[] bytes = templateBytes.getBytes();
-                    builder.putTemplates(templateKey.getTemplateId(), ByteString.copyFrom(bytes));
+                    LOG.debug("Writing reference to {} {} version {}", template.optionTemplate() ? "options template flow" : "template", templateKey, template.version());
+                    builder.addTemplateRefs(NetFlowV9Journal.TemplateRef.newBuilder()
+                            .setTemplateId(template.templateId())
+                            .setVersion(template.version())
+                            .setOptionTemplate(template.optionTemplate()));
                 }
             }
 
             // finally write out all the packets we had buffered as well as the current one
+            int flowCount = 0;
             for (ByteBuf packetBuffer : packetsToSend) {
+                // the number of flow records is part of the packet header, right after the version
+                flowCount += packetBuffer.getUnsignedShort(packetBuffer.readerIndex() + 2);
                 final byte[] bytes = ByteBufUtil.getBytes(packetBuffer);
                 final ByteString value = ByteString.copyFrom(bytes);
                 builder.addPackets(value);
@@ -243,6 +292,9 @@ public class NetflowV9CodecAggregator implements RemoteAddressCodecAggregator {
             final ByteBuf resultBuffer = Unpooled.buffer(bytes.length + 1)
                     .writeByte(NetFlowCodec.ORDERED_V9_MARKER)
                     .writeBytes(bytes);
+            if (flowCount > 0) {
+                journalBytesPerFlow.update(resultBuffer.readableBytes() / flowCount);
+            }
             return new Result(resultBuffer, true);
 
         } catch (Exception e) {
@@ -251,24 +303,6 @@ public class NetflowV9CodecAggregator implements RemoteAddressCodecAggregator {
         }
     }
 
-    private static class TemplateBytes {
-        private final byte[] bytes;
-        private final boolean optionTemplate;
-
-        public TemplateBytes(byte[] bytes, boolean optionTemplate) {
-            this.bytes = bytes;
-            this.optionTemplate = optionTemplate;
-        }
-
-        public byte[] getBytes() {
-            return bytes;
-        }
-
-        public boolean isOptionTemplate() {
-            return optionTemplate;
-        }
-    }
-
     public static class PacketBytes {
         private final byte[] bytes;
         private final Set<Integer> usedTemplates;
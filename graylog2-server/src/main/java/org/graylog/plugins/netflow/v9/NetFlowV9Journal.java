@@ -73,10 +73,11 @@ public final class NetFlowV9Journal {
      *
      * <code>map&lt;uint32, bytes&gt; templates = 1;</code>
      */
-
-    com.google.protobuf.ByteString getTemplatesOrDefault(
+    /* nullable */
+com.google.protobuf.ByteString getTemplatesOrDefault(
         int key,
-        com.google.protobuf.ByteString defaultValue);
+        /* nullable */
+com.google.protobuf.ByteString defaultValue);
     /**
      * <pre>
      * all applicable templates that are referenced by the packets
@@ -84,7 +85,6 @@ public final class NetFlowV9Journal {
      *
      * <code>map&lt;uint32, bytes&gt; templates = 1;</code>
      */
-
     com.google.protobuf.ByteString getTemplatesOrThrow(
         int key);
 
@@ -127,10 +127,11 @@ public final class NetFlowV9Journal {
      *
      * <code>map&lt;uint32, bytes&gt; optionTemplate = 2;</code>
      */
-
-    com.google.protobuf.ByteString getOptionTemplateOrDefault(
+    /* nullable */
+com.google.protobuf.ByteString getOptionTemplateOrDefault(
         int key,
-        com.google.protobuf.ByteString defaultValue);
+        /* nullable */
+com.google.protobuf.ByteString defaultValue);
     /**
      * <pre>
      * there is only one option template, but we need to know its template id, so a map is the easiest way to find it
@@ -138,7 +139,6 @@ public final class NetFlowV9Journal {
      *
      * <code>map&lt;uint32, bytes&gt; optionTemplate = 2;</code>
      */
-
     com.google.protobuf.ByteString getOptionTemplateOrThrow(
         int key);
 
@@ -150,6 +150,7 @@ public final class NetFlowV9Journal {
      * </pre>
      *
      * <code>repeated bytes packets = 3;</code>
+     * @return A list containing the packets.
      */
     java.util.List<com.google.protobuf.ByteString> getPacketsList();
     /**
@@ -160,6 +161,7 @@ public final class NetFlowV9Journal {
      * </pre>
      *
      * <code>repeated bytes packets = 3;</code>
+     * @return The count of packets.
      */
     int getPacketsCount();
     /**
@@ -170,106 +172,92 @@ public final class NetFlowV9Journal {
      * </pre>
      *
      * <code>repeated bytes packets = 3;</code>
+     * @param index The index of the element to return.
+     * @return The packets at the given index.
      */
     com.google.protobuf.ByteString getPackets(int index);
+
+    /**
+     * <pre>
+     * references to the templates in the cluster wide template store, used instead of embedding the templates
+     * in the templates and optionTemplate fields
+     * </pre>
+     *
+     * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+     */
+    java.util.List<org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef> 
+        getTemplateRefsList();
+    /**
+     * <pre>
+     * references to the templates in the cluster wide template store, used instead of embedding the templates
+     * in the templates and optionTemplate fields
+     * </pre>
+     *
+     * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+     */
+    org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef getTemplateRefs(int index);
+    /**
+     * <pre>
+     * references to the templates in the cluster wide template store, used instead of embedding the templates
+     * in the templates and optionTemplate fields
+     * </pre>
+     *
+     * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+     */
+    int getTemplateRefsCount();
+    /**
+     * <pre>
+     * references to the templates in the cluster wide template store, used instead of embedding the templates
+     * in the templates and optionTemplate fields
+     * </pre>
+     *
+     * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+     */
+    java.util.List<? extends org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRefOrBuilder> 
+        getTemplateRefsOrBuilderList();
+    /**
+     * <pre>
+     * references to the templates in the cluster wide template store, used instead of embedding the templates
+     * in the templates and optionTemplate fields
+     * </pre>
+     *
+     * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+     */
+    org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRefOrBuilder getTemplateRefsOrBuilder(
+        int index);
   }
   /**
    * Protobuf type {@code org.graylog.plugins.netflow.v9.RawNetflowV9}
    */
-  public  static final class RawNetflowV9 extends
+  public static final class RawNetflowV9 extends
       com.google.protobuf.GeneratedMessageV3 implements
       // @@protoc_insertion_point(message_implements:org.graylog.plugins.netflow.v9.RawNetflowV9)
       RawNetflowV9OrBuilder {
+  private static final long serialVersionUID = 0L;
     // Use RawNetflowV9.newBuilder() to construct.
     private RawNetflowV9(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
       super(builder);
     }
     private RawNetflowV9() {
-      packets_ = java.util.Collections.emptyList();
+      packets_ = emptyList(com.google.protobuf.ByteString.class);
+      templateRefs_ = java.util.Collections.emptyList();
     }
 
     @java.lang.Override
-    public final com.google.protobuf.UnknownFieldSet
-    getUnknownFields() {
-      return this.unknownFields;
-    }
-    private RawNetflowV9(
-        com.google.protobuf.CodedInputStream input,
-        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-        throws com.google.protobuf.InvalidProtocolBufferException {
-      this();
-      int mutable_bitField0_ = 0;
-      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
-          com.google.protobuf.UnknownFieldSet.newBuilder();
-      try {
-        boolean done = false;
-        while (!done) {
-          int tag = input.readTag();
-          switch (tag) {
-            case 0:
-              done = true;
-              break;
-            default: {
-              if (!parseUnknownField(input, unknownFields,
-                                     extensionRegistry, tag)) {
-                done = true;
-              }
-              break;
-            }
-            case 10: {
-              if (!((mutable_bitField0_ & 0x00000001) == 0x00000001)) {
-                templates_ = com.google.protobuf.MapField.newMapField(
-                    TemplatesDefaultEntryHolder.defaultEntry);
-                mutable_bitField0_ |= 0x00000001;
-              }
-              com.google.protobuf.MapEntry<java.lang.Integer, com.google.protobuf.ByteString>
-              templates = input.readMessage(
-                  TemplatesDefaultEntryHolder.defaultEntry.getParserForType(), extensionRegistry);
-              templates_.getMutableMap().put(templates.getKey(), templates.getValue());
-              break;
-            }
-            case 18: {
-              if (!((mutable_bitField0_ & 0x00000002) == 0x00000002)) {
-                optionTemplate_ = com.google.protobuf.MapField.newMapField(
-                    OptionTemplateDefaultEntryHolder.defaultEntry);
-                mutable_bitField0_ |= 0x00000002;
-              }
-              com.google.protobuf.MapEntry<java.lang.Integer, com.google.protobuf.ByteString>
-              optionTemplate = input.readMessage(
-                  OptionTemplateDefaultEntryHolder.defaultEntry.getParserForType(), extensionRegistry);
-              optionTemplate_.getMutableMap().put(optionTemplate.getKey(), optionTemplate.getValue());
-              break;
-            }
-            case 26: {
-              if (!((mutable_bitField0_ & 0x00000004) == 0x00000004)) {
-                packets_ = new java.util.ArrayList<com.google.protobuf.ByteString>();
-                mutable_bitField0_ |= 0x00000004;
-              }
-              packets_.add(input.readBytes());
-              break;
-            }
-          }
-        }
-      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
-        throw e.setUnfinishedMessage(this);
-      } catch (java.io.IOException e) {
-        throw new com.google.protobuf.InvalidProtocolBufferException(
-            e).setUnfinishedMessage(this);
-      } finally {
-        if (((mutable_bitField0_ & 0x00000004) == 0x00000004)) {
-          packets_ = java.util.Collections.unmodifiableList(packets_);
-        }
-        this.unknownFields = unknownFields.build();
-        makeExtensionsImmutable();
-      }
+    @SuppressWarnings({"unused"})
+    protected java.lang.Object newInstance(
+        UnusedPrivateParameter unused) {
+      return new RawNetflowV9();
     }
+
     public static final com.google.protobuf.Descriptors.Descriptor
         getDescriptor() {
       return org.graylog.plugins.netflow.v9.NetFlowV9Journal.internal_static_org_graylog_plugins_netflow_v9_RawNetflowV9_descriptor;
     }
 
     @SuppressWarnings({"rawtypes"})
-    protected com.google.protobuf.MapField internalGetMapField(
+    @java.lang.Override
+    protected com.google.protobuf.MapFieldReflectionAccessor internalGetMapFieldReflection(
         int number) {
       switch (number) {
         case 1:
@@ -281,6 +269,7 @@ public final class NetFlowV9Journal {
               "Invalid map field number: " + number);
       }
     }
+    @java.lang.Override
     protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
         internalGetFieldAccessorTable() {
       return org.graylog.plugins.netflow.v9.NetFlowV9Journal.internal_static_org_graylog_plugins_netflow_v9_RawNetflowV9_fieldAccessorTable
@@ -300,6 +289,7 @@ public final class NetFlowV9Journal {
                   com.google.protobuf.WireFormat.FieldType.BYTES,
                   com.google.protobuf.ByteString.EMPTY);
     }
+    @SuppressWarnings("serial")
     private com.google.protobuf.MapField<
         java.lang.Integer, com.google.protobuf.ByteString> templates_;
     private com.google.protobuf.MapField<java.lang.Integer, com.google.protobuf.ByteString>
@@ -310,7 +300,6 @@ public final class NetFlowV9Journal {
       }
       return templates_;
     }
-
     public int getTemplatesCount() {
       return internalGetTemplates().getMap().size();
     }
@@ -321,15 +310,16 @@ public final class NetFlowV9Journal {
      *
      * <code>map&lt;uint32, bytes&gt; templates = 1;</code>
      */
-
+    @java.lang.Override
     public boolean containsTemplates(
         int key) {
-      
+
       return internalGetTemplates().getMap().containsKey(key);
     }
     /**
      * Use {@link #getTemplatesMap()} instead.
      */
+    @java.lang.Override
     @java.lang.Deprecated
     public java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> getTemplates() {
       return getTemplatesMap();
@@ -341,7 +331,7 @@ public final class NetFlowV9Journal {
      *
      * <code>map&lt;uint32, bytes&gt; templates = 1;</code>
      */
-
+    @java.lang.Override
     public java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> getTemplatesMap() {
       return internalGetTemplates().getMap();
     }
@@ -352,11 +342,13 @@ public final class NetFlowV9Journal {
      *
      * <code>map&lt;uint32, bytes&gt; templates = 1;</code>
      */
-
-    public com.google.protobuf.ByteString getTemplatesOrDefault(
+    @java.lang.Override
+    public /* nullable */
+com.google.protobuf.ByteString getTemplatesOrDefault(
         int key,
-        com.google.protobuf.ByteString defaultValue) {
-      
+        /* nullable */
+com.google.protobuf.ByteString defaultValue) {
+
       java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> map =
           internalGetTemplates().getMap();
       return map.containsKey(key) ? map.get(key) : defaultValue;
@@ -368,10 +360,10 @@ public final class NetFlowV9Journal {
      *
      * <code>map&lt;uint32, bytes&gt; templates = 1;</code>
      */
-
+    @java.lang.Override
     public com.google.protobuf.ByteString getTemplatesOrThrow(
         int key) {
-      
+
       java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> map =
           internalGetTemplates().getMap();
       if (!map.containsKey(key)) {
@@ -392,6 +384,7 @@ public final class NetFlowV9Journal {
                   com.google.protobuf.WireFormat.FieldType.BYTES,
                   com.google.protobuf.ByteString.EMPTY);
     }
+    @SuppressWarnings("serial")
     private com.google.protobuf.MapField<
         java.lang.Integer, com.google.protobuf.ByteString> optionTemplate_;
     private com.google.protobuf.MapField<java.lang.Integer, com.google.protobuf.ByteString>
@@ -402,7 +395,6 @@ public final class NetFlowV9Journal {
       }
       return optionTemplate_;
     }
-
     public int getOptionTemplateCount() {
       return internalGetOptionTemplate().getMap().size();
     }
@@ -413,15 +405,16 @@ public final class NetFlowV9Journal {
      *
      * <code>map&lt;uint32, bytes&gt; optionTemplate = 2;</code>
      */
-
+    @java.lang.Override
     public boolean containsOptionTemplate(
         int key) {
-      
+
       return internalGetOptionTemplate().getMap().containsKey(key);
     }
     /**
      * Use {@link #getOptionTemplateMap()} instead.
      */
+    @java.lang.Override
     @java.lang.Deprecated
     public java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> getOptionTemplate() {
       return getOptionTemplateMap();
@@ -433,7 +426,7 @@ public final class NetFlowV9Journal {
      *
      * <code>map&lt;uint32, bytes&gt; optionTemplate = 2;</code>
      */
-
+    @java.lang.Override
     public java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> getOptionTemplateMap() {
       return internalGetOptionTemplate().getMap();
     }
@@ -444,11 +437,13 @@ public final class NetFlowV9Journal {
      *
      * <code>map&lt;uint32, bytes&gt; optionTemplate = 2;</code>
      */
-
-    public com.google.protobuf.ByteString getOptionTemplateOrDefault(
+    @java.lang.Override
+    public /* nullable */
+com.google.protobuf.ByteString getOptionTemplateOrDefault(
         int key,
-        com.google.protobuf.ByteString defaultValue) {
-      
+        /* nullable */
+com.google.protobuf.ByteString defaultValue) {
+
       java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> map =
           internalGetOptionTemplate().getMap();
       return map.containsKey(key) ? map.get(key) : defaultValue;
@@ -460,10 +455,10 @@ public final class NetFlowV9Journal {
      *
      * <code>map&lt;uint32, bytes&gt; optionTemplate = 2;</code>
      */
-
+    @java.lang.Override
     public com.google.protobuf.ByteString getOptionTemplateOrThrow(
         int key) {
-      
+
       java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> map =
           internalGetOptionTemplate().getMap();
       if (!map.containsKey(key)) {
@@ -473,7 +468,9 @@ public final class NetFlowV9Journal {
     }
 
     public static final int PACKETS_FIELD_NUMBER = 3;
-    private java.util.List<com.google.protobuf.ByteString> packets_;
+    @SuppressWarnings("serial")
+    private com.google.protobuf.Internal.ProtobufList<com.google.protobuf.ByteString> packets_ =
+        emptyList(com.google.protobuf.ByteString.class);
     /**
      * <pre>
      * the raw packets as received. it might contain templates as well, but even if it does the above fields will have that information, too
@@ -482,7 +479,9 @@ public final class NetFlowV9Journal {
      * </pre>
      *
      * <code>repeated bytes packets = 3;</code>
+     * @return A list containing the packets.
      */
+    @java.lang.Override
     public java.util.List<com.google.protobuf.ByteString>
         getPacketsList() {
       return packets_;
@@ -495,6 +494,7 @@ public final class NetFlowV9Journal {
      * </pre>
      *
      * <code>repeated bytes packets = 3;</code>
+     * @return The count of packets.
      */
     public int getPacketsCount() {
       return packets_.size();
@@ -507,12 +507,81 @@ public final class NetFlowV9Journal {
      * </pre>
      *
      * <code>repeated bytes packets = 3;</code>
+     * @param index The index of the element to return.
+     * @return The packets at the given index.
      */
     public com.google.protobuf.ByteString getPackets(int index) {
       return packets_.get(index);
     }
 
+    public static final int TEMPLATEREFS_FIELD_NUMBER = 4;
+    @SuppressWarnings("serial")
+    private java.util.List<org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef> templateRefs_;
+    /**
+     * <pre>
+     * references to the templates in the cluster wide template store, used instead of embedding the templates
+     * in the templates and optionTemplate fields
+     * </pre>
+     *
+     * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+     */
+    @java.lang.Override
+    public java.util.List<org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef> getTemplateRefsList() {
+      return templateRefs_;
+    }
+    /**
+     * <pre>
+     * references to the templates in the cluster wide template store, used instead of embedding the templates
+     * in the templates and optionTemplate fields
+     * </pre>
+     *
+     * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+     */
+    @java.lang.Override
+    public java.util.List<? extends org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRefOrBuilder> 
+        getTemplateRefsOrBuilderList() {
+      return templateRefs_;
+    }
+    /**
+     * <pre>
+     * references to the templates in the cluster wide template store, used instead of embedding the templates
+     * in the templates and optionTemplate fields
+     * </pre>
+     *
+     * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+     */
+    @java.lang.Override
+    public int getTemplateRefsCount() {
+      return templateRefs_.size();
+    }
+    /**
+     * <pre>
+     * references to the templates in the cluster wide template store, used instead of embedding the templates
+     * in the templates and optionTemplate fields
+     * </pre>
+     *
+     * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+     */
+    @java.lang.Override
+    public org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef getTemplateRefs(int index) {
+      return templateRefs_.get(index);
+    }
+    /**
+     * <pre>
+     * references to the templates in the cluster wide template store, used instead of embedding the templates
+     * in the templates and optionTemplate fields
+     * </pre>
+     *
+     * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+     */
+    @java.lang.Override
+    public org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRefOrBuilder getTemplateRefsOrBuilder(
+        int index) {
+      return templateRefs_.get(index);
+    }
+
     private byte memoizedIsInitialized = -1;
+    @java.lang.Override
     public final boolean isInitialized() {
       byte isInitialized = memoizedIsInitialized;
       if (isInitialized == 1) return true;
@@ -522,32 +591,31 @@ public final class NetFlowV9Journal {
       return true;
     }
 
+    @java.lang.Override
     public void writeTo(com.google.protobuf.CodedOutputStream output)
                         throws java.io.IOException {
-      for (java.util.Map.Entry<java.lang.Integer, com.google.protobuf.ByteString> entry
-           : internalGetTemplates().getMap().entrySet()) {
-        com.google.protobuf.MapEntry<java.lang.Integer, com.google.protobuf.ByteString>
-        templates = TemplatesDefaultEntryHolder.defaultEntry.newBuilderForType()
-            .setKey(entry.getKey())
-            .setValue(entry.getValue())
-            .build();
-        output.writeMessage(1, templates);
-      }
-      for (java.util.Map.Entry<java.lang.Integer, com.google.protobuf.ByteString> entry
-           : internalGetOptionTemplate().getMap().entrySet()) {
-        com.google.protobuf.MapEntry<java.lang.Integer, com.google.protobuf.ByteString>
-        optionTemplate = OptionTemplateDefaultEntryHolder.defaultEntry.newBuilderForType()
-            .setKey(entry.getKey())
-            .setValue(entry.getValue())
-            .build();
-        output.writeMessage(2, optionTemplate);
-      }
+      com.google.protobuf.GeneratedMessageV3
+        .serializeIntegerMapTo(
+          output,
+          internalGetTemplates(),
+          TemplatesDefaultEntryHolder.defaultEntry,
+          1);
+      com.google.protobuf.GeneratedMessageV3
+        .serializeIntegerMapTo(
+          output,
+          internalGetOptionTemplate(),
+          OptionTemplateDefaultEntryHolder.defaultEntry,
+          2);
       for (int i = 0; i < packets_.size(); i++) {
         output.writeBytes(3, packets_.get(i));
       }
-      unknownFields.writeTo(output);
+      for (int i = 0; i < templateRefs_.size(); i++) {
+        output.writeMessage(4, templateRefs_.get(i));
+      }
+      getUnknownFields().writeTo(output);
     }
 
+    @java.lang.Override
     public int getSerializedSize() {
       int size = memoizedSize;
       if (size != -1) return size;
@@ -556,22 +624,22 @@ public final class NetFlowV9Journal {
       for (java.util.Map.Entry<java.lang.Integer, com.google.protobuf.ByteString> entry
            : internalGetTemplates().getMap().entrySet()) {
         com.google.protobuf.MapEntry<java.lang.Integer, com.google.protobuf.ByteString>
-        templates = TemplatesDefaultEntryHolder.defaultEntry.newBuilderForType()
+        templates__ = TemplatesDefaultEntryHolder.defaultEntry.newBuilderForType()
             .setKey(entry.getKey())
             .setValue(entry.getValue())
             .build();
         size += com.google.protobuf.CodedOutputStream
-            .computeMessageSize(1, templates);
+            .computeMessageSize(1, templates__);
       }
       for (java.util.Map.Entry<java.lang.Integer, com.google.protobuf.ByteString> entry
            : internalGetOptionTemplate().getMap().entrySet()) {
         com.google.protobuf.MapEntry<java.lang.Integer, com.google.protobuf.ByteString>
-        optionTemplate = OptionTemplateDefaultEntryHolder.defaultEntry.newBuilderForType()
+        optionTemplate__ = OptionTemplateDefaultEntryHolder.defaultEntry.newBuilderForType()
             .setKey(entry.getKey())
             .setValue(entry.getValue())
             .build();
         size += com.google.protobuf.CodedOutputStream
-            .computeMessageSize(2, optionTemplate);
+            .computeMessageSize(2, optionTemplate__);
       }
       {
         int dataSize = 0;
@@ -582,12 +650,15 @@ public final class NetFlowV9Journal {
         size += dataSize;
         size += 1 * getPacketsList().size();
       }
-      size += unknownFields.getSerializedSize();
+      for (int i = 0; i < templateRefs_.size(); i++) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(4, templateRefs_.get(i));
+      }
+      size += getUnknownFields().getSerializedSize();
       memoizedSize = size;
       return size;
     }
 
-    private static final long serialVersionUID = 0L;
     @java.lang.Override
     public boolean equals(final java.lang.Object obj) {
       if (obj == this) {
@@ -598,15 +669,16 @@ public final class NetFlowV9Journal {
       }
       org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 other = (org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9) obj;
 
-      boolean result = true;
-      result = result && internalGetTemplates().equals(
-          other.internalGetTemplates());
-      result = result && internalGetOptionTemplate().equals(
-          other.internalGetOptionTemplate());
-      result = result && getPacketsList()
-          .equals(other.getPacketsList());
-      result = result && unknownFields.equals(other.unknownFields);
-      return result;
+      if (!internalGetTemplates().equals(
+          other.internalGetTemplates())) return false;
+      if (!internalGetOptionTemplate().equals(
+          other.internalGetOptionTemplate())) return false;
+      if (!getPacketsList()
+          .equals(other.getPacketsList())) return false;
+      if (!getTemplateRefsList()
+          .equals(other.getTemplateRefsList())) return false;
+      if (!getUnknownFields().equals(other.getUnknownFields())) return false;
+      return true;
     }
 
     @java.lang.Override
@@ -615,7 +687,7 @@ public final class NetFlowV9Journal {
         return memoizedHashCode;
       }
       int hash = 41;
-      hash = (19 * hash) + getDescriptorForType().hashCode();
+      hash = (19 * hash) + getDescriptor().hashCode();
       if (!internalGetTemplates().getMap().isEmpty()) {
         hash = (37 * hash) + TEMPLATES_FIELD_NUMBER;
         hash = (53 * hash) + internalGetTemplates().hashCode();
@@ -628,11 +700,26 @@ public final class NetFlowV9Journal {
         hash = (37 * hash) + PACKETS_FIELD_NUMBER;
         hash = (53 * hash) + getPacketsList().hashCode();
       }
-      hash = (29 * hash) + unknownFields.hashCode();
+      if (getTemplateRefsCount() > 0) {
+        hash = (37 * hash) + TEMPLATEREFS_FIELD_NUMBER;
+        hash = (53 * hash) + getTemplateRefsList().hashCode();
+      }
+      hash = (29 * hash) + getUnknownFields().hashCode();
       memoizedHashCode = hash;
       return hash;
     }
 
+    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 parseFrom(
+        java.nio.ByteBuffer data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 parseFrom(
+        java.nio.ByteBuffer data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
     public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 parseFrom(
         com.google.protobuf.ByteString data)
         throws com.google.protobuf.InvalidProtocolBufferException {
@@ -666,11 +753,13 @@ public final class NetFlowV9Journal {
       return com.google.protobuf.GeneratedMessageV3
           .parseWithIOException(PARSER, input, extensionRegistry);
     }
+
     public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 parseDelimitedFrom(java.io.InputStream input)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseDelimitedWithIOException(PARSER, input);
     }
+
     public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 parseDelimitedFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
@@ -692,6 +781,7 @@ public final class NetFlowV9Journal {
           .parseWithIOException(PARSER, input, extensionRegistry);
     }
 
+    @java.lang.Override
     public Builder newBuilderForType() { return newBuilder(); }
     public static Builder newBuilder() {
       return DEFAULT_INSTANCE.toBuilder();
@@ -699,6 +789,7 @@ public final class NetFlowV9Journal {
     public static Builder newBuilder(org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 prototype) {
       return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
     }
+    @java.lang.Override
     public Builder toBuilder() {
       return this == DEFAULT_INSTANCE
           ? new Builder() : new Builder().mergeFrom(this);
@@ -723,7 +814,7 @@ public final class NetFlowV9Journal {
       }
 
       @SuppressWarnings({"rawtypes"})
-      protected com.google.protobuf.MapField internalGetMapField(
+      protected com.google.protobuf.MapFieldReflectionAccessor internalGetMapFieldReflection(
           int number) {
         switch (number) {
           case 1:
@@ -736,7 +827,7 @@ public final class NetFlowV9Journal {
         }
       }
       @SuppressWarnings({"rawtypes"})
-      protected com.google.protobuf.MapField internalGetMutableMapField(
+      protected com.google.protobuf.MapFieldReflectionAccessor internalGetMutableMapFieldReflection(
           int number) {
         switch (number) {
           case 1:
@@ -748,6 +839,7 @@ public final class NetFlowV9Journal {
                 "Invalid map field number: " + number);
         }
       }
+      @java.lang.Override
       protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
           internalGetFieldAccessorTable() {
         return org.graylog.plugins.netflow.v9.NetFlowV9Journal.internal_static_org_graylog_plugins_netflow_v9_RawNetflowV9_fieldAccessorTable
@@ -757,37 +849,43 @@ public final class NetFlowV9Journal {
 
       // Construct using org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9.newBuilder()
       private Builder() {
-        maybeForceBuilderInitialization();
+
       }
 
       private Builder(
           com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
         super(parent);
-        maybeForceBuilderInitialization();
-      }
-      private void maybeForceBuilderInitialization() {
-        if (com.google.protobuf.GeneratedMessageV3
-                .alwaysUseFieldBuilders) {
-        }
+
       }
+      @java.lang.Override
       public Builder clear() {
         super.clear();
+        bitField0_ = 0;
         internalGetMutableTemplates().clear();
         internalGetMutableOptionTemplate().clear();
-        packets_ = java.util.Collections.emptyList();
-        bitField0_ = (bitField0_ & ~0x00000004);
+        packets_ = emptyList(com.google.protobuf.ByteString.class);
+        if (templateRefsBuilder_ == null) {
+          templateRefs_ = java.util.Collections.emptyList();
+        } else {
+          templateRefs_ = null;
+          templateRefsBuilder_.clear();
+        }
+        bitField0_ = (bitField0_ & ~0x00000008);
         return this;
       }
 
+      @java.lang.Override
       public com.google.protobuf.Descriptors.Descriptor
           getDescriptorForType() {
         return org.graylog.plugins.netflow.v9.NetFlowV9Journal.internal_static_org_graylog_plugins_netflow_v9_RawNetflowV9_descriptor;
       }
 
+      @java.lang.Override
       public org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 getDefaultInstanceForType() {
         return org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9.getDefaultInstance();
       }
 
+      @java.lang.Override
       public org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 build() {
         org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 result = buildPartial();
         if (!result.isInitialized()) {
@@ -796,48 +894,76 @@ public final class NetFlowV9Journal {
         return result;
       }
 
+      @java.lang.Override
       public org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 buildPartial() {
         org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 result = new org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9(this);
-        int from_bitField0_ = bitField0_;
-        result.templates_ = internalGetTemplates();
-        result.templates_.makeImmutable();
-        result.optionTemplate_ = internalGetOptionTemplate();
-        result.optionTemplate_.makeImmutable();
-        if (((bitField0_ & 0x00000004) == 0x00000004)) {
-          packets_ = java.util.Collections.unmodifiableList(packets_);
-          bitField0_ = (bitField0_ & ~0x00000004);
-        }
-        result.packets_ = packets_;
+        buildPartialRepeatedFields(result);
+        if (bitField0_ != 0) { buildPartial0(result); }
         onBuilt();
         return result;
       }
 
+      private void buildPartialRepeatedFields(org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 result) {
+        if (templateRefsBuilder_ == null) {
+          if (((bitField0_ & 0x00000008) != 0)) {
+            templateRefs_ = java.util.Collections.unmodifiableList(templateRefs_);
+            bitField0_ = (bitField0_ & ~0x00000008);
+          }
+          result.templateRefs_ = templateRefs_;
+        } else {
+          result.templateRefs_ = templateRefsBuilder_.build();
+        }
+      }
+
+      private void buildPartial0(org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 result) {
+        int from_bitField0_ = bitField0_;
+        if (((from_bitField0_ & 0x00000001) != 0)) {
+          result.templates_ = internalGetTemplates();
+          result.templates_.makeImmutable();
+        }
+        if (((from_bitField0_ & 0x00000002) != 0)) {
+          result.optionTemplate_ = internalGetOptionTemplate();
+          result.optionTemplate_.makeImmutable();
+        }
+        if (((from_bitField0_ & 0x00000004) != 0)) {
+          packets_.makeImmutable();
+          result.packets_ = packets_;
+        }
+      }
+
+      @java.lang.Override
       public Builder clone() {
-        return (Builder) super.clone();
+        return super.clone();
       }
+      @java.lang.Override
       public Builder setField(
           com.google.protobuf.Descriptors.FieldDescriptor field,
-          Object value) {
-        return (Builder) super.setField(field, value);
+          java.lang.Object value) {
+        return super.setField(field, value);
       }
+      @java.lang.Override
       public Builder clearField(
           com.google.protobuf.Descriptors.FieldDescriptor field) {
-        return (Builder) super.clearField(field);
+        return super.clearField(field);
       }
+      @java.lang.Override
       public Builder clearOneof(
           com.google.protobuf.Descriptors.OneofDescriptor oneof) {
-        return (Builder) super.clearOneof(oneof);
+        return super.clearOneof(oneof);
       }
+      @java.lang.Override
       public Builder setRepeatedField(
           com.google.protobuf.Descriptors.FieldDescriptor field,
-          int index, Object value) {
-        return (Builder) super.setRepeatedField(field, index, value);
+          int index, java.lang.Object value) {
+        return super.setRepeatedField(field, index, value);
       }
+      @java.lang.Override
       public Builder addRepeatedField(
           com.google.protobuf.Descriptors.FieldDescriptor field,
-          Object value) {
-        return (Builder) super.addRepeatedField(field, value);
+          java.lang.Object value) {
+        return super.addRepeatedField(field, value);
       }
+      @java.lang.Override
       public Builder mergeFrom(com.google.protobuf.Message other) {
         if (other instanceof org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9) {
           return mergeFrom((org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9)other);
@@ -851,42 +977,123 @@ public final class NetFlowV9Journal {
         if (other == org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9.getDefaultInstance()) return this;
         internalGetMutableTemplates().mergeFrom(
             other.internalGetTemplates());
+        bitField0_ |= 0x00000001;
         internalGetMutableOptionTemplate().mergeFrom(
             other.internalGetOptionTemplate());
+        bitField0_ |= 0x00000002;
         if (!other.packets_.isEmpty()) {
           if (packets_.isEmpty()) {
             packets_ = other.packets_;
-            bitField0_ = (bitField0_ & ~0x00000004);
+            packets_.makeImmutable();
+            bitField0_ |= 0x00000004;
           } else {
             ensurePacketsIsMutable();
             packets_.addAll(other.packets_);
           }
           onChanged();
         }
-        this.mergeUnknownFields(other.unknownFields);
+        if (templateRefsBuilder_ == null) {
+          if (!other.templateRefs_.isEmpty()) {
+            if (templateRefs_.isEmpty()) {
+              templateRefs_ = other.templateRefs_;
+              bitField0_ = (bitField0_ & ~0x00000008);
+            } else {
+              ensureTemplateRefsIsMutable();
+              templateRefs_.addAll(other.templateRefs_);
+            }
+            onChanged();
+          }
+        } else {
+          if (!other.templateRefs_.isEmpty()) {
+            if (templateRefsBuilder_.isEmpty()) {
+              templateRefsBuilder_.dispose();
+              templateRefsBuilder_ = null;
+              templateRefs_ = other.templateRefs_;
+              bitField0_ = (bitField0_ & ~0x00000008);
+              templateRefsBuilder_ = 
+                com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders ?
+                   getTemplateRefsFieldBuilder() : null;
+            } else {
+              templateRefsBuilder_.addAllMessages(other.templateRefs_);
+            }
+          }
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
         onChanged();
         return this;
       }
 
+      @java.lang.Override
       public final boolean isInitialized() {
         return true;
       }
 
+      @java.lang.Override
       public Builder mergeFrom(
           com.google.protobuf.CodedInputStream input,
           com.google.protobuf.ExtensionRegistryLite extensionRegistry)
           throws java.io.IOException {
-        org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 parsedMessage = null;
+        if (extensionRegistry == null) {
+          throw new java.lang.NullPointerException();
+        }
         try {
-          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+          boolean done = false;
+          while (!done) {
+            int tag = input.readTag();
+            switch (tag) {
+              case 0:
+                done = true;
+                break;
+              case 10: {
+                com.google.protobuf.MapEntry<java.lang.Integer, com.google.protobuf.ByteString>
+                templates__ = input.readMessage(
+                    TemplatesDefaultEntryHolder.defaultEntry.getParserForType(), extensionRegistry);
+                internalGetMutableTemplates().getMutableMap().put(
+                    templates__.getKey(), templates__.getValue());
+                bitField0_ |= 0x00000001;
+                break;
+              } // case 10
+              case 18: {
+                com.google.protobuf.MapEntry<java.lang.Integer, com.google.protobuf.ByteString>
+                optionTemplate__ = input.readMessage(
+                    OptionTemplateDefaultEntryHolder.defaultEntry.getParserForType(), extensionRegistry);
+                internalGetMutableOptionTemplate().getMutableMap().put(
+                    optionTemplate__.getKey(), optionTemplate__.getValue());
+                bitField0_ |= 0x00000002;
+                break;
+              } // case 18
+              case 26: {
+                com.google.protobuf.ByteString v = input.readBytes();
+                ensurePacketsIsMutable();
+                packets_.add(v);
+                break;
+              } // case 26
+              case 34: {
+                org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef m =
+                    input.readMessage(
+                        org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.PARSER,
+                        extensionRegistry);
+                if (templateRefsBuilder_ == null) {
+                  ensureTemplateRefsIsMutable();
+                  templateRefs_.add(m);
+                } else {
+                  templateRefsBuilder_.addMessage(m);
+                }
+                break;
+              } // case 34
+              default: {
+                if (!super.parseUnknownField(input, extensionRegistry, tag)) {
+                  done = true; // was an endgroup tag
+                }
+                break;
+              } // default:
+            } // switch (tag)
+          } // while (!done)
         } catch (com.google.protobuf.InvalidProtocolBufferException e) {
-          parsedMessage = (org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9) e.getUnfinishedMessage();
           throw e.unwrapIOException();
         } finally {
-          if (parsedMessage != null) {
-            mergeFrom(parsedMessage);
-          }
-        }
+          onChanged();
+        } // finally
         return this;
       }
       private int bitField0_;
@@ -894,7 +1101,7 @@ public final class NetFlowV9Journal {
       private com.google.protobuf.MapField<
           java.lang.Integer, com.google.protobuf.ByteString> templates_;
       private com.google.protobuf.MapField<java.lang.Integer, com.google.protobuf.ByteString>
-      internalGetTemplates() {
+          internalGetTemplates() {
         if (templates_ == null) {
           return com.google.protobuf.MapField.emptyMapField(
               TemplatesDefaultEntryHolder.defaultEntry);
@@ -902,8 +1109,7 @@ public final class NetFlowV9Journal {
         return templates_;
       }
       private com.google.protobuf.MapField<java.lang.Integer, com.google.protobuf.ByteString>
-      internalGetMutableTemplates() {
-        onChanged();
+          internalGetMutableTemplates() {
         if (templates_ == null) {
           templates_ = com.google.protobuf.MapField.newMapField(
               TemplatesDefaultEntryHolder.defaultEntry);
@@ -911,9 +1117,10 @@ public final class NetFlowV9Journal {
         if (!templates_.isMutable()) {
           templates_ = templates_.copy();
         }
+        bitField0_ |= 0x00000001;
+        onChanged();
         return templates_;
       }
-
       public int getTemplatesCount() {
         return internalGetTemplates().getMap().size();
       }
@@ -924,15 +1131,16 @@ public final class NetFlowV9Journal {
        *
        * <code>map&lt;uint32, bytes&gt; templates = 1;</code>
        */
-
+      @java.lang.Override
       public boolean containsTemplates(
           int key) {
-        
+
         return internalGetTemplates().getMap().containsKey(key);
       }
       /**
        * Use {@link #getTemplatesMap()} instead.
        */
+      @java.lang.Override
       @java.lang.Deprecated
       public java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> getTemplates() {
         return getTemplatesMap();
@@ -944,7 +1152,7 @@ public final class NetFlowV9Journal {
        *
        * <code>map&lt;uint32, bytes&gt; templates = 1;</code>
        */
-
+      @java.lang.Override
       public java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> getTemplatesMap() {
         return internalGetTemplates().getMap();
       }
@@ -955,11 +1163,13 @@ public final class NetFlowV9Journal {
        *
        * <code>map&lt;uint32, bytes&gt; templates = 1;</code>
        */
-
-      public com.google.protobuf.ByteString getTemplatesOrDefault(
+      @java.lang.Override
+      public /* nullable */
+com.google.protobuf.ByteString getTemplatesOrDefault(
           int key,
-          com.google.protobuf.ByteString defaultValue) {
-        
+          /* nullable */
+com.google.protobuf.ByteString defaultValue) {
+
         java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> map =
             internalGetTemplates().getMap();
         return map.containsKey(key) ? map.get(key) : defaultValue;
@@ -971,10 +1181,10 @@ public final class NetFlowV9Journal {
        *
        * <code>map&lt;uint32, bytes&gt; templates = 1;</code>
        */
-
+      @java.lang.Override
       public com.google.protobuf.ByteString getTemplatesOrThrow(
           int key) {
-        
+
         java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> map =
             internalGetTemplates().getMap();
         if (!map.containsKey(key)) {
@@ -982,9 +1192,10 @@ public final class NetFlowV9Journal {
         }
         return map.get(key);
       }
-
       public Builder clearTemplates() {
-        getMutableTemplates().clear();
+        bitField0_ = (bitField0_ & ~0x00000001);
+        internalGetMutableTemplates().getMutableMap()
+            .clear();
         return this;
       }
       /**
@@ -994,11 +1205,11 @@ public final class NetFlowV9Journal {
        *
        * <code>map&lt;uint32, bytes&gt; templates = 1;</code>
        */
-
       public Builder removeTemplates(
           int key) {
-        
-        getMutableTemplates().remove(key);
+
+        internalGetMutableTemplates().getMutableMap()
+            .remove(key);
         return this;
       }
       /**
@@ -1006,7 +1217,8 @@ public final class NetFlowV9Journal {
        */
       @java.lang.Deprecated
       public java.util.Map<java.lang.Integer, com.google.protobuf.ByteString>
-      getMutableTemplates() {
+          getMutableTemplates() {
+        bitField0_ |= 0x00000001;
         return internalGetMutableTemplates().getMutableMap();
       }
       /**
@@ -1019,9 +1231,11 @@ public final class NetFlowV9Journal {
       public Builder putTemplates(
           int key,
           com.google.protobuf.ByteString value) {
-        
-        if (value == null) { throw new java.lang.NullPointerException(); }
-        getMutableTemplates().put(key, value);
+
+        if (value == null) { throw new NullPointerException("map value"); }
+        internalGetMutableTemplates().getMutableMap()
+            .put(key, value);
+        bitField0_ |= 0x00000001;
         return this;
       }
       /**
@@ -1031,17 +1245,18 @@ public final class NetFlowV9Journal {
        *
        * <code>map&lt;uint32, bytes&gt; templates = 1;</code>
        */
-
       public Builder putAllTemplates(
           java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> values) {
-        getMutableTemplates().putAll(values);
+        internalGetMutableTemplates().getMutableMap()
+            .putAll(values);
+        bitField0_ |= 0x00000001;
         return this;
       }
 
       private com.google.protobuf.MapField<
           java.lang.Integer, com.google.protobuf.ByteString> optionTemplate_;
       private com.google.protobuf.MapField<java.lang.Integer, com.google.protobuf.ByteString>
-      internalGetOptionTemplate() {
+          internalGetOptionTemplate() {
         if (optionTemplate_ == null) {
           return com.google.protobuf.MapField.emptyMapField(
               OptionTemplateDefaultEntryHolder.defaultEntry);
@@ -1049,8 +1264,7 @@ public final class NetFlowV9Journal {
         return optionTemplate_;
       }
       private com.google.protobuf.MapField<java.lang.Integer, com.google.protobuf.ByteString>
-      internalGetMutableOptionTemplate() {
-        onChanged();;
+          internalGetMutableOptionTemplate() {
         if (optionTemplate_ == null) {
           optionTemplate_ = com.google.protobuf.MapField.newMapField(
               OptionTemplateDefaultEntryHolder.defaultEntry);
@@ -1058,9 +1272,10 @@ public final class NetFlowV9Journal {
         if (!optionTemplate_.isMutable()) {
           optionTemplate_ = optionTemplate_.copy();
         }
+        bitField0_ |= 0x00000002;
+        onChanged();
         return optionTemplate_;
       }
-
       public int getOptionTemplateCount() {
         return internalGetOptionTemplate().getMap().size();
       }
@@ -1071,15 +1286,16 @@ public final class NetFlowV9Journal {
        *
        * <code>map&lt;uint32, bytes&gt; optionTemplate = 2;</code>
        */
-
+      @java.lang.Override
       public boolean containsOptionTemplate(
           int key) {
-        
+
         return internalGetOptionTemplate().getMap().containsKey(key);
       }
       /**
        * Use {@link #getOptionTemplateMap()} instead.
        */
+      @java.lang.Override
       @java.lang.Deprecated
       public java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> getOptionTemplate() {
         return getOptionTemplateMap();
@@ -1091,7 +1307,7 @@ public final class NetFlowV9Journal {
        *
        * <code>map&lt;uint32, bytes&gt; optionTemplate = 2;</code>
        */
-
+      @java.lang.Override
       public java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> getOptionTemplateMap() {
         return internalGetOptionTemplate().getMap();
       }
@@ -1102,11 +1318,13 @@ public final class NetFlowV9Journal {
        *
        * <code>map&lt;uint32, bytes&gt; optionTemplate = 2;</code>
        */
-
-      public com.google.protobuf.ByteString getOptionTemplateOrDefault(
+      @java.lang.Override
+      public /* nullable */
+com.google.protobuf.ByteString getOptionTemplateOrDefault(
           int key,
-          com.google.protobuf.ByteString defaultValue) {
-        
+          /* nullable */
+com.google.protobuf.ByteString defaultValue) {
+
         java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> map =
             internalGetOptionTemplate().getMap();
         return map.containsKey(key) ? map.get(key) : defaultValue;
@@ -1118,10 +1336,10 @@ public final class NetFlowV9Journal {
        *
        * <code>map&lt;uint32, bytes&gt; optionTemplate = 2;</code>
        */
-
+      @java.lang.Override
       public com.google.protobuf.ByteString getOptionTemplateOrThrow(
           int key) {
-        
+
         java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> map =
             internalGetOptionTemplate().getMap();
         if (!map.containsKey(key)) {
@@ -1129,9 +1347,10 @@ public final class NetFlowV9Journal {
         }
         return map.get(key);
       }
-
       public Builder clearOptionTemplate() {
-        getMutableOptionTemplate().clear();
+        bitField0_ = (bitField0_ & ~0x00000002);
+        internalGetMutableOptionTemplate().getMutableMap()
+            .clear();
         return this;
       }
       /**
@@ -1141,11 +1360,11 @@ public final class NetFlowV9Journal {
        *
        * <code>map&lt;uint32, bytes&gt; optionTemplate = 2;</code>
        */
-
       public Builder removeOptionTemplate(
           int key) {
-        
-        getMutableOptionTemplate().remove(key);
+
+        internalGetMutableOptionTemplate().getMutableMap()
+            .remove(key);
         return this;
       }
       /**
@@ -1153,7 +1372,8 @@ public final class NetFlowV9Journal {
        */
       @java.lang.Deprecated
       public java.util.Map<java.lang.Integer, com.google.protobuf.ByteString>
-      getMutableOptionTemplate() {
+          getMutableOptionTemplate() {
+        bitField0_ |= 0x00000002;
         return internalGetMutableOptionTemplate().getMutableMap();
       }
       /**
@@ -1166,9 +1386,11 @@ public final class NetFlowV9Journal {
       public Builder putOptionTemplate(
           int key,
           com.google.protobuf.ByteString value) {
-        
-        if (value == null) { throw new java.lang.NullPointerException(); }
-        getMutableOptionTemplate().put(key, value);
+
+        if (value == null) { throw new NullPointerException("map value"); }
+        internalGetMutableOptionTemplate().getMutableMap()
+            .put(key, value);
+        bitField0_ |= 0x00000002;
         return this;
       }
       /**
@@ -1178,19 +1400,20 @@ public final class NetFlowV9Journal {
        *
        * <code>map&lt;uint32, bytes&gt; optionTemplate = 2;</code>
        */
-
       public Builder putAllOptionTemplate(
           java.util.Map<java.lang.Integer, com.google.protobuf.ByteString> values) {
-        getMutableOptionTemplate().putAll(values);
+        internalGetMutableOptionTemplate().getMutableMap()
+            .putAll(values);
+        bitField0_ |= 0x00000002;
         return this;
       }
 
-      private java.util.List<com.google.protobuf.ByteString> packets_ = java.util.Collections.emptyList();
+      private com.google.protobuf.Internal.ProtobufList<com.google.protobuf.ByteString> packets_ = emptyList(com.google.protobuf.ByteString.class);
       private void ensurePacketsIsMutable() {
-        if (!((bitField0_ & 0x00000004) == 0x00000004)) {
-          packets_ = new java.util.ArrayList<com.google.protobuf.ByteString>(packets_);
-          bitField0_ |= 0x00000004;
-         }
+        if (!packets_.isModifiable()) {
+          packets_ = makeMutableCopy(packets_);
+        }
+        bitField0_ |= 0x00000004;
       }
       /**
        * <pre>
@@ -1200,10 +1423,12 @@ public final class NetFlowV9Journal {
        * </pre>
        *
        * <code>repeated bytes packets = 3;</code>
+       * @return A list containing the packets.
        */
       public java.util.List<com.google.protobuf.ByteString>
           getPacketsList() {
-        return java.util.Collections.unmodifiableList(packets_);
+        packets_.makeImmutable();
+        return packets_;
       }
       /**
        * <pre>
@@ -1213,6 +1438,7 @@ public final class NetFlowV9Journal {
        * </pre>
        *
        * <code>repeated bytes packets = 3;</code>
+       * @return The count of packets.
        */
       public int getPacketsCount() {
         return packets_.size();
@@ -1225,6 +1451,8 @@ public final class NetFlowV9Journal {
        * </pre>
        *
        * <code>repeated bytes packets = 3;</code>
+       * @param index The index of the element to return.
+       * @return The packets at the given index.
        */
       public com.google.protobuf.ByteString getPackets(int index) {
         return packets_.get(index);
@@ -1237,14 +1465,16 @@ public final class NetFlowV9Journal {
        * </pre>
        *
        * <code>repeated bytes packets = 3;</code>
+       * @param index The index to set the value at.
+       * @param value The packets to set.
+       * @return This builder for chaining.
        */
       public Builder setPackets(
           int index, com.google.protobuf.ByteString value) {
-        if (value == null) {
-    throw new NullPointerException();
-  }
-  ensurePacketsIsMutable();
+        if (value == null) { throw new NullPointerException(); }
+        ensurePacketsIsMutable();
         packets_.set(index, value);
+        bitField0_ |= 0x00000004;
         onChanged();
         return this;
       }
@@ -1256,13 +1486,14 @@ public final class NetFlowV9Journal {
        * </pre>
        *
        * <code>repeated bytes packets = 3;</code>
+       * @param value The packets to add.
+       * @return This builder for chaining.
        */
       public Builder addPackets(com.google.protobuf.ByteString value) {
-        if (value == null) {
-    throw new NullPointerException();
-  }
-  ensurePacketsIsMutable();
+        if (value == null) { throw new NullPointerException(); }
+        ensurePacketsIsMutable();
         packets_.add(value);
+        bitField0_ |= 0x00000004;
         onChanged();
         return this;
       }
@@ -1274,12 +1505,15 @@ public final class NetFlowV9Journal {
        * </pre>
        *
        * <code>repeated bytes packets = 3;</code>
+       * @param values The packets to add.
+       * @return This builder for chaining.
        */
       public Builder addAllPackets(
           java.lang.Iterable<? extends com.google.protobuf.ByteString> values) {
         ensurePacketsIsMutable();
         com.google.protobuf.AbstractMessageLite.Builder.addAll(
             values, packets_);
+        bitField0_ |= 0x00000004;
         onChanged();
         return this;
       }
@@ -1291,57 +1525,1141 @@ public final class NetFlowV9Journal {
        * </pre>
        *
        * <code>repeated bytes packets = 3;</code>
+       * @return This builder for chaining.
        */
       public Builder clearPackets() {
-        packets_ = java.util.Collections.emptyList();
+        packets_ = emptyList(com.google.protobuf.ByteString.class);
         bitField0_ = (bitField0_ & ~0x00000004);
         onChanged();
         return this;
       }
-      public final Builder setUnknownFields(
-          final com.google.protobuf.UnknownFieldSet unknownFields) {
-        return super.setUnknownFields(unknownFields);
-      }
 
-      public final Builder mergeUnknownFields(
-          final com.google.protobuf.UnknownFieldSet unknownFields) {
-        return super.mergeUnknownFields(unknownFields);
+      private java.util.List<org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef> templateRefs_ =
+        java.util.Collections.emptyList();
+      private void ensureTemplateRefsIsMutable() {
+        if (!((bitField0_ & 0x00000008) != 0)) {
+          templateRefs_ = new java.util.ArrayList<org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef>(templateRefs_);
+          bitField0_ |= 0x00000008;
+         }
       }
 
+      private com.google.protobuf.RepeatedFieldBuilderV3<
+          org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef, org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.Builder, org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRefOrBuilder> templateRefsBuilder_;
 
-      // @@protoc_insertion_point(builder_scope:org.graylog.plugins.netflow.v9.RawNetflowV9)
-    }
-
-    // @@protoc_insertion_point(class_scope:org.graylog.plugins.netflow.v9.RawNetflowV9)
-    private static final org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 DEFAULT_INSTANCE;
-    static {
-      DEFAULT_INSTANCE = new org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9();
-    }
-
-    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 getDefaultInstance() {
-      return DEFAULT_INSTANCE;
-    }
-
-    @java.lang.Deprecated public static final com.google.protobuf.Parser<RawNetflowV9>
-        PARSER = new com.google.protobuf.AbstractParser<RawNetflowV9>() {
-      public RawNetflowV9 parsePartialFrom(
-          com.google.protobuf.CodedInputStream input,
-          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-          throws com.google.protobuf.InvalidProtocolBufferException {
-          return new RawNetflowV9(input, extensionRegistry);
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public java.util.List<org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef> getTemplateRefsList() {
+        if (templateRefsBuilder_ == null) {
+          return java.util.Collections.unmodifiableList(templateRefs_);
+        } else {
+          return templateRefsBuilder_.getMessageList();
+        }
       }
-    };
-
-    public static com.google.protobuf.Parser<RawNetflowV9> parser() {
-      return PARSER;
-    }
-
-    @java.lang.Override
-    public com.google.protobuf.Parser<RawNetflowV9> getParserForType() {
-      return PARSER;
-    }
-
-    public org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 getDefaultInstanceForType() {
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public int getTemplateRefsCount() {
+        if (templateRefsBuilder_ == null) {
+          return templateRefs_.size();
+        } else {
+          return templateRefsBuilder_.getCount();
+        }
+      }
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef getTemplateRefs(int index) {
+        if (templateRefsBuilder_ == null) {
+          return templateRefs_.get(index);
+        } else {
+          return templateRefsBuilder_.getMessage(index);
+        }
+      }
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public Builder setTemplateRefs(
+          int index, org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef value) {
+        if (templateRefsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureTemplateRefsIsMutable();
+          templateRefs_.set(index, value);
+          onChanged();
+        } else {
+          templateRefsBuilder_.setMessage(index, value);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public Builder setTemplateRefs(
+          int index, org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.Builder builderForValue) {
+        if (templateRefsBuilder_ == null) {
+          ensureTemplateRefsIsMutable();
+          templateRefs_.set(index, builderForValue.build());
+          onChanged();
+        } else {
+          templateRefsBuilder_.setMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public Builder addTemplateRefs(org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef value) {
+        if (templateRefsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureTemplateRefsIsMutable();
+          templateRefs_.add(value);
+          onChanged();
+        } else {
+          templateRefsBuilder_.addMessage(value);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public Builder addTemplateRefs(
+          int index, org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef value) {
+        if (templateRefsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureTemplateRefsIsMutable();
+          templateRefs_.add(index, value);
+          onChanged();
+        } else {
+          templateRefsBuilder_.addMessage(index, value);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public Builder addTemplateRefs(
+          org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.Builder builderForValue) {
+        if (templateRefsBuilder_ == null) {
+          ensureTemplateRefsIsMutable();
+          templateRefs_.add(builderForValue.build());
+          onChanged();
+        } else {
+          templateRefsBuilder_.addMessage(builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public Builder addTemplateRefs(
+          int index, org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.Builder builderForValue) {
+        if (templateRefsBuilder_ == null) {
+          ensureTemplateRefsIsMutable();
+          templateRefs_.add(index, builderForValue.build());
+          onChanged();
+        } else {
+          templateRefsBuilder_.addMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public Builder addAllTemplateRefs(
+          java.lang.Iterable<? extends org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef> values) {
+        if (templateRefsBuilder_ == null) {
+          ensureTemplateRefsIsMutable();
+          com.google.protobuf.AbstractMessageLite.Builder.addAll(
+              values, templateRefs_);
+          onChanged();
+        } else {
+          templateRefsBuilder_.addAllMessages(values);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public Builder clearTemplateRefs() {
+        if (templateRefsBuilder_ == null) {
+          templateRefs_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000008);
+          onChanged();
+        } else {
+          templateRefsBuilder_.clear();
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public Builder removeTemplateRefs(int index) {
+        if (templateRefsBuilder_ == null) {
+          ensureTemplateRefsIsMutable();
+          templateRefs_.remove(index);
+          onChanged();
+        } else {
+          templateRefsBuilder_.remove(index);
+        }
+        return this;
+      }
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.Builder getTemplateRefsBuilder(
+          int index) {
+        return getTemplateRefsFieldBuilder().getBuilder(index);
+      }
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRefOrBuilder getTemplateRefsOrBuilder(
+          int index) {
+        if (templateRefsBuilder_ == null) {
+          return templateRefs_.get(index);  } else {
+          return templateRefsBuilder_.getMessageOrBuilder(index);
+        }
+      }
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public java.util.List<? extends org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRefOrBuilder> 
+           getTemplateRefsOrBuilderList() {
+        if (templateRefsBuilder_ != null) {
+          return templateRefsBuilder_.getMessageOrBuilderList();
+        } else {
+          return java.util.Collections.unmodifiableList(templateRefs_);
+        }
+      }
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.Builder addTemplateRefsBuilder() {
+        return getTemplateRefsFieldBuilder().addBuilder(
+            org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.getDefaultInstance());
+      }
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.Builder addTemplateRefsBuilder(
+          int index) {
+        return getTemplateRefsFieldBuilder().addBuilder(
+            index, org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.getDefaultInstance());
+      }
+      /**
+       * <pre>
+       * references to the templates in the cluster wide template store, used instead of embedding the templates
+       * in the templates and optionTemplate fields
+       * </pre>
+       *
+       * <code>repeated .org.graylog.plugins.netflow.v9.TemplateRef templateRefs = 4;</code>
+       */
+      public java.util.List<org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.Builder> 
+           getTemplateRefsBuilderList() {
+        return getTemplateRefsFieldBuilder().getBuilderList();
+      }
+      private com.google.protobuf.RepeatedFieldBuilderV3<
+          org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef, org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.Builder, org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRefOrBuilder> 
+          getTemplateRefsFieldBuilder() {
+        if (templateRefsBuilder_ == null) {
+          templateRefsBuilder_ = new com.google.protobuf.RepeatedFieldBuilderV3<
+              org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef, org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.Builder, org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRefOrBuilder>(
+                  templateRefs_,
+                  ((bitField0_ & 0x00000008) != 0),
+                  getParentForChildren(),
+                  isClean());
+          templateRefs_ = null;
+        }
+        return templateRefsBuilder_;
+      }
+      @java.lang.Override
+      public final Builder setUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFields(unknownFields);
+      }
+
+      @java.lang.Override
+      public final Builder mergeUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+
+      // @@protoc_insertion_point(builder_scope:org.graylog.plugins.netflow.v9.RawNetflowV9)
+    }
+
+    // @@protoc_insertion_point(class_scope:org.graylog.plugins.netflow.v9.RawNetflowV9)
+    private static final org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9();
+    }
+
+    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    @java.lang.Deprecated public static final com.google.protobuf.Parser<RawNetflowV9>
+        PARSER = new com.google.protobuf.AbstractParser<RawNetflowV9>() {
+      @java.lang.Override
+      public RawNetflowV9 parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        Builder builder = newBuilder();
+        try {
+          builder.mergeFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          throw e.setUnfinishedMessage(builder.buildPartial());
+        } catch (com.google.protobuf.UninitializedMessageException e) {
+          throw e.asInvalidProtocolBufferException().setUnfinishedMessage(builder.buildPartial());
+        } catch (java.io.IOException e) {
+          throw new com.google.protobuf.InvalidProtocolBufferException(e)
+              .setUnfinishedMessage(builder.buildPartial());
+        }
+        return builder.buildPartial();
+      }
+    };
+
+    public static com.google.protobuf.Parser<RawNetflowV9> parser() {
+      return PARSER;
+    }
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<RawNetflowV9> getParserForType() {
+      return PARSER;
+    }
+
+    @java.lang.Override
+    public org.graylog.plugins.netflow.v9.NetFlowV9Journal.RawNetflowV9 getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+  }
+
+  public interface TemplateRefOrBuilder extends
+      // @@protoc_insertion_point(interface_extends:org.graylog.plugins.netflow.v9.TemplateRef)
+      com.google.protobuf.MessageOrBuilder {
+
+    /**
+     * <code>optional uint32 templateId = 1;</code>
+     * @return Whether the templateId field is set.
+     */
+    boolean hasTemplateId();
+    /**
+     * <code>optional uint32 templateId = 1;</code>
+     * @return The templateId.
+     */
+    int getTemplateId();
+
+    /**
+     * <pre>
+     * the version of the template, see NetFlowV9TemplateStore
+     * </pre>
+     *
+     * <code>optional uint64 version = 2;</code>
+     * @return Whether the version field is set.
+     */
+    boolean hasVersion();
+    /**
+     * <pre>
+     * the version of the template, see NetFlowV9TemplateStore
+     * </pre>
+     *
+     * <code>optional uint64 version = 2;</code>
+     * @return The version.
+     */
+    long getVersion();
+
+    /**
+     * <code>optional bool optionTemplate = 3;</code>
+     * @return Whether the optionTemplate field is set.
+     */
+    boolean hasOptionTemplate();
+    /**
+     * <code>optional bool optionTemplate = 3;</code>
+     * @return The optionTemplate.
+     */
+    boolean getOptionTemplate();
+  }
+  /**
+   * Protobuf type {@code org.graylog.plugins.netflow.v9.TemplateRef}
+   */
+  public static final class TemplateRef extends
+      com.google.protobuf.GeneratedMessageV3 implements
+      // @@protoc_insertion_point(message_implements:org.graylog.plugins.netflow.v9.TemplateRef)
+      TemplateRefOrBuilder {
+  private static final long serialVersionUID = 0L;
+    // Use TemplateRef.newBuilder() to construct.
+    private TemplateRef(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+      super(builder);
+    }
+    private TemplateRef() {
+    }
+
+    @java.lang.Override
+    @SuppressWarnings({"unused"})
+    protected java.lang.Object newInstance(
+        UnusedPrivateParameter unused) {
+      return new TemplateRef();
+    }
+
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return org.graylog.plugins.netflow.v9.NetFlowV9Journal.internal_static_org_graylog_plugins_netflow_v9_TemplateRef_descriptor;
+    }
+
+    @java.lang.Override
+    protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return org.graylog.plugins.netflow.v9.NetFlowV9Journal.internal_static_org_graylog_plugins_netflow_v9_TemplateRef_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.class, org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.Builder.class);
+    }
+
+    private int bitField0_;
+    public static final int TEMPLATEID_FIELD_NUMBER = 1;
+    private int templateId_ = 0;
+    /**
+     * <code>optional uint32 templateId = 1;</code>
+     * @return Whether the templateId field is set.
+     */
+    @java.lang.Override
+    public boolean hasTemplateId() {
+      return ((bitField0_ & 0x00000001) != 0);
+    }
+    /**
+     * <code>optional uint32 templateId = 1;</code>
+     * @return The templateId.
+     */
+    @java.lang.Override
+    public int getTemplateId() {
+      return templateId_;
+    }
+
+    public static final int VERSION_FIELD_NUMBER = 2;
+    private long version_ = 0L;
+    /**
+     * <pre>
+     * the version of the template, see NetFlowV9TemplateStore
+     * </pre>
+     *
+     * <code>optional uint64 version = 2;</code>
+     * @return Whether the version field is set.
+     */
+    @java.lang.Override
+    public boolean hasVersion() {
+      return ((bitField0_ & 0x00000002) != 0);
+    }
+    /**
+     * <pre>
+     * the version of the template, see NetFlowV9TemplateStore
+     * </pre>
+     *
+     * <code>optional uint64 version = 2;</code>
+     * @return The version.
+     */
+    @java.lang.Override
+    public long getVersion() {
+      return version_;
+    }
+
+    public static final int OPTIONTEMPLATE_FIELD_NUMBER = 3;
+    private boolean optionTemplate_ = false;
+    /**
+     * <code>optional bool optionTemplate = 3;</code>
+     * @return Whether the optionTemplate field is set.
+     */
+    @java.lang.Override
+    public boolean hasOptionTemplate() {
+      return ((bitField0_ & 0x00000004) != 0);
+    }
+    /**
+     * <code>optional bool optionTemplate = 3;</code>
+     * @return The optionTemplate.
+     */
+    @java.lang.Override
+    public boolean getOptionTemplate() {
+      return optionTemplate_;
+    }
+
+    private byte memoizedIsInitialized = -1;
+    @java.lang.Override
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1) return true;
+      if (isInitialized == 0) return false;
+
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    @java.lang.Override
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      if (((bitField0_ & 0x00000001) != 0)) {
+        output.writeUInt32(1, templateId_);
+      }
+      if (((bitField0_ & 0x00000002) != 0)) {
+        output.writeUInt64(2, version_);
+      }
+      if (((bitField0_ & 0x00000004) != 0)) {
+        output.writeBool(3, optionTemplate_);
+      }
+      getUnknownFields().writeTo(output);
+    }
+
+    @java.lang.Override
+    public int getSerializedSize() {
+      int size = memoizedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (((bitField0_ & 0x00000001) != 0)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(1, templateId_);
+      }
+      if (((bitField0_ & 0x00000002) != 0)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(2, version_);
+      }
+      if (((bitField0_ & 0x00000004) != 0)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBoolSize(3, optionTemplate_);
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSize = size;
+      return size;
+    }
+
+    @java.lang.Override
+    public boolean equals(final java.lang.Object obj) {
+      if (obj == this) {
+       return true;
+      }
+      if (!(obj instanceof org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef)) {
+        return super.equals(obj);
+      }
+      org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef other = (org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef) obj;
+
+      if (hasTemplateId() != other.hasTemplateId()) return false;
+      if (hasTemplateId()) {
+        if (getTemplateId()
+            != other.getTemplateId()) return false;
+      }
+      if (hasVersion() != other.hasVersion()) return false;
+      if (hasVersion()) {
+        if (getVersion()
+            != other.getVersion()) return false;
+      }
+      if (hasOptionTemplate() != other.hasOptionTemplate()) return false;
+      if (hasOptionTemplate()) {
+        if (getOptionTemplate()
+            != other.getOptionTemplate()) return false;
+      }
+      if (!getUnknownFields().equals(other.getUnknownFields())) return false;
+      return true;
+    }
+
+    @java.lang.Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptor().hashCode();
+      if (hasTemplateId()) {
+        hash = (37 * hash) + TEMPLATEID_FIELD_NUMBER;
+        hash = (53 * hash) + getTemplateId();
+      }
+      if (hasVersion()) {
+        hash = (37 * hash) + VERSION_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getVersion());
+      }
+      if (hasOptionTemplate()) {
+        hash = (37 * hash) + OPTIONTEMPLATE_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashBoolean(
+            getOptionTemplate());
+      }
+      hash = (29 * hash) + getUnknownFields().hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef parseFrom(
+        java.nio.ByteBuffer data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef parseFrom(
+        java.nio.ByteBuffer data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input);
+    }
+
+    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    @java.lang.Override
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder() {
+      return DEFAULT_INSTANCE.toBuilder();
+    }
+    public static Builder newBuilder(org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef prototype) {
+      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+    }
+    @java.lang.Override
+    public Builder toBuilder() {
+      return this == DEFAULT_INSTANCE
+          ? new Builder() : new Builder().mergeFrom(this);
+    }
+
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code org.graylog.plugins.netflow.v9.TemplateRef}
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
+        // @@protoc_insertion_point(builder_implements:org.graylog.plugins.netflow.v9.TemplateRef)
+        org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRefOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return org.graylog.plugins.netflow.v9.NetFlowV9Journal.internal_static_org_graylog_plugins_netflow_v9_TemplateRef_descriptor;
+      }
+
+      @java.lang.Override
+      protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return org.graylog.plugins.netflow.v9.NetFlowV9Journal.internal_static_org_graylog_plugins_netflow_v9_TemplateRef_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.class, org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.Builder.class);
+      }
+
+      // Construct using org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.newBuilder()
+      private Builder() {
+
+      }
+
+      private Builder(
+          com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+        super(parent);
+
+      }
+      @java.lang.Override
+      public Builder clear() {
+        super.clear();
+        bitField0_ = 0;
+        templateId_ = 0;
+        version_ = 0L;
+        optionTemplate_ = false;
+        return this;
+      }
+
+      @java.lang.Override
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return org.graylog.plugins.netflow.v9.NetFlowV9Journal.internal_static_org_graylog_plugins_netflow_v9_TemplateRef_descriptor;
+      }
+
+      @java.lang.Override
+      public org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef getDefaultInstanceForType() {
+        return org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.getDefaultInstance();
+      }
+
+      @java.lang.Override
+      public org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef build() {
+        org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      @java.lang.Override
+      public org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef buildPartial() {
+        org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef result = new org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef(this);
+        if (bitField0_ != 0) { buildPartial0(result); }
+        onBuilt();
+        return result;
+      }
+
+      private void buildPartial0(org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef result) {
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) != 0)) {
+          result.templateId_ = templateId_;
+          to_bitField0_ |= 0x00000001;
+        }
+        if (((from_bitField0_ & 0x00000002) != 0)) {
+          result.version_ = version_;
+          to_bitField0_ |= 0x00000002;
+        }
+        if (((from_bitField0_ & 0x00000004) != 0)) {
+          result.optionTemplate_ = optionTemplate_;
+          to_bitField0_ |= 0x00000004;
+        }
+        result.bitField0_ |= to_bitField0_;
+      }
+
+      @java.lang.Override
+      public Builder clone() {
+        return super.clone();
+      }
+      @java.lang.Override
+      public Builder setField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          java.lang.Object value) {
+        return super.setField(field, value);
+      }
+      @java.lang.Override
+      public Builder clearField(
+          com.google.protobuf.Descriptors.FieldDescriptor field) {
+        return super.clearField(field);
+      }
+      @java.lang.Override
+      public Builder clearOneof(
+          com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+        return super.clearOneof(oneof);
+      }
+      @java.lang.Override
+      public Builder setRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          int index, java.lang.Object value) {
+        return super.setRepeatedField(field, index, value);
+      }
+      @java.lang.Override
+      public Builder addRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          java.lang.Object value) {
+        return super.addRepeatedField(field, value);
+      }
+      @java.lang.Override
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef) {
+          return mergeFrom((org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef other) {
+        if (other == org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef.getDefaultInstance()) return this;
+        if (other.hasTemplateId()) {
+          setTemplateId(other.getTemplateId());
+        }
+        if (other.hasVersion()) {
+          setVersion(other.getVersion());
+        }
+        if (other.hasOptionTemplate()) {
+          setOptionTemplate(other.getOptionTemplate());
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        onChanged();
+        return this;
+      }
+
+      @java.lang.Override
+      public final boolean isInitialized() {
+        return true;
+      }
+
+      @java.lang.Override
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        if (extensionRegistry == null) {
+          throw new java.lang.NullPointerException();
+        }
+        try {
+          boolean done = false;
+          while (!done) {
+            int tag = input.readTag();
+            switch (tag) {
+              case 0:
+                done = true;
+                break;
+              case 8: {
+                templateId_ = input.readUInt32();
+                bitField0_ |= 0x00000001;
+                break;
+              } // case 8
+              case 16: {
+                version_ = input.readUInt64();
+                bitField0_ |= 0x00000002;
+                break;
+              } // case 16
+              case 24: {
+                optionTemplate_ = input.readBool();
+                bitField0_ |= 0x00000004;
+                break;
+              } // case 24
+              default: {
+                if (!super.parseUnknownField(input, extensionRegistry, tag)) {
+                  done = true; // was an endgroup tag
+                }
+                break;
+              } // default:
+            } // switch (tag)
+          } // while (!done)
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          throw e.unwrapIOException();
+        } finally {
+          onChanged();
+        } // finally
+        return this;
+      }
+      private int bitField0_;
+
+      private int templateId_ ;
+      /**
+       * <code>optional uint32 templateId = 1;</code>
+       * @return Whether the templateId field is set.
+       */
+      @java.lang.Override
+      public boolean hasTemplateId() {
+        return ((bitField0_ & 0x00000001) != 0);
+      }
+      /**
+       * <code>optional uint32 templateId = 1;</code>
+       * @return The templateId.
+       */
+      @java.lang.Override
+      public int getTemplateId() {
+        return templateId_;
+      }
+      /**
+       * <code>optional uint32 templateId = 1;</code>
+       * @param value The templateId to set.
+       * @return This builder for chaining.
+       */
+      public Builder setTemplateId(int value) {
+
+        templateId_ = value;
+        bitField0_ |= 0x00000001;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional uint32 templateId = 1;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearTemplateId() {
+        bitField0_ = (bitField0_ & ~0x00000001);
+        templateId_ = 0;
+        onChanged();
+        return this;
+      }
+
+      private long version_ ;
+      /**
+       * <pre>
+       * the version of the template, see NetFlowV9TemplateStore
+       * </pre>
+       *
+       * <code>optional uint64 version = 2;</code>
+       * @return Whether the version field is set.
+       */
+      @java.lang.Override
+      public boolean hasVersion() {
+        return ((bitField0_ & 0x00000002) != 0);
+      }
+      /**
+       * <pre>
+       * the version of the template, see NetFlowV9TemplateStore
+       * </pre>
+       *
+       * <code>optional uint64 version = 2;</code>
+       * @return The version.
+       */
+      @java.lang.Override
+      public long getVersion() {
+        return version_;
+      }
+      /**
+       * <pre>
+       * the version of the template, see NetFlowV9TemplateStore
+       * </pre>
+       *
+       * <code>optional uint64 version = 2;</code>
+       * @param value The version to set.
+       * @return This builder for chaining.
+       */
+      public Builder setVersion(long value) {
+
+        version_ = value;
+        bitField0_ |= 0x00000002;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * the version of the template, see NetFlowV9TemplateStore
+       * </pre>
+       *
+       * <code>optional uint64 version = 2;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearVersion() {
+        bitField0_ = (bitField0_ & ~0x00000002);
+        version_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      private boolean optionTemplate_ ;
+      /**
+       * <code>optional bool optionTemplate = 3;</code>
+       * @return Whether the optionTemplate field is set.
+       */
+      @java.lang.Override
+      public boolean hasOptionTemplate() {
+        return ((bitField0_ & 0x00000004) != 0);
+      }
+      /**
+       * <code>optional bool optionTemplate = 3;</code>
+       * @return The optionTemplate.
+       */
+      @java.lang.Override
+      public boolean getOptionTemplate() {
+        return optionTemplate_;
+      }
+      /**
+       * <code>optional bool optionTemplate = 3;</code>
+       * @param value The optionTemplate to set.
+       * @return This builder for chaining.
+       */
+      public Builder setOptionTemplate(boolean value) {
+
+        optionTemplate_ = value;
+        bitField0_ |= 0x00000004;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional bool optionTemplate = 3;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearOptionTemplate() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        optionTemplate_ = false;
+        onChanged();
+        return this;
+      }
+      @java.lang.Override
+      public final Builder setUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFields(unknownFields);
+      }
+
+      @java.lang.Override
+      public final Builder mergeUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+
+      // @@protoc_insertion_point(builder_scope:org.graylog.plugins.netflow.v9.TemplateRef)
+    }
+
+    // @@protoc_insertion_point(class_scope:org.graylog.plugins.netflow.v9.TemplateRef)
+    private static final org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef();
+    }
+
+    public static org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    @java.lang.Deprecated public static final com.google.protobuf.Parser<TemplateRef>
+        PARSER = new com.google.protobuf.AbstractParser<TemplateRef>() {
+      @java.lang.Override
+      public TemplateRef parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        Builder builder = newBuilder();
+        try {
+          builder.mergeFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          throw e.setUnfinishedMessage(builder.buildPartial());
+        } catch (com.google.protobuf.UninitializedMessageException e) {
+          throw e.asInvalidProtocolBufferException().setUnfinishedMessage(builder.buildPartial());
+        } catch (java.io.IOException e) {
+          throw new com.google.protobuf.InvalidProtocolBufferException(e)
+              .setUnfinishedMessage(builder.buildPartial());
+        }
+        return builder.buildPartial();
+      }
+    };
+
+    public static com.google.protobuf.Parser<TemplateRef> parser() {
+      return PARSER;
+    }
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<TemplateRef> getParserForType() {
+      return PARSER;
+    }
+
+    @java.lang.Override
+    public org.graylog.plugins.netflow.v9.NetFlowV9Journal.TemplateRef getDefaultInstanceForType() {
       return DEFAULT_INSTANCE;
     }
 
@@ -1362,6 +2680,11 @@ public final class NetFlowV9Journal {
   private static final 
     com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
       internal_static_org_graylog_plugins_netflow_v9_RawNetflowV9_OptionTemplateEntry_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_org_graylog_plugins_netflow_v9_TemplateRef_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_org_graylog_plugins_netflow_v9_TemplateRef_fieldAccessorTable;
 
   public static com.google.protobuf.Descriptors.FileDescriptor
       getDescriptor() {
@@ -1372,35 +2695,31 @@ public final class NetFlowV9Journal {
   static {
     java.lang.String[] descriptorData = {
       "\n#src/main/resources/netflow_v9.proto\022\036o" +
-      "rg.graylog.plugins.netflow.v9\"\262\002\n\014RawNet" +
+      "rg.graylog.plugins.netflow.v9\"\365\002\n\014RawNet" +
       "flowV9\022N\n\ttemplates\030\001 \003(\0132;.org.graylog." +
       "plugins.netflow.v9.RawNetflowV9.Template" +
       "sEntry\022X\n\016optionTemplate\030\002 \003(\0132@.org.gra" +
       "ylog.plugins.netflow.v9.RawNetflowV9.Opt" +
-      "ionTemplateEntry\022\017\n\007packets\030\003 \003(\014\0320\n\016Tem" +
-      "platesEntry\022\013\n\003key\030\001 \001(\r\022\r\n\005value\030\002 \001(\014:" +
-      "\0028\001\0325\n\023OptionTemplateEntry\022\013\n\003key\030\001 \001(\r\022" +
-      "\r\n\005value\030\002 \001(\014:\0028\001B2\n\036org.graylog.plugin",
-      "s.netflow.v9B\020NetFlowV9Journal"
+      "ionTemplateEntry\022\017\n\007packets\030\003 \003(\014\022A\n\014tem" +
+      "plateRefs\030\004 \003(\0132+.org.graylog.plugins.ne" +
+      "tflow.v9.TemplateRef\0320\n\016TemplatesEntry\022\013" +
+      "\n\003key\030\001 \001(\r\022\r\n\005value\030\002 \001(\014:\0028\001\0325\n\023Option" +
+      "TemplateEntry\022\013\n\003key\030\001 \001(\r\022\r\n\005value\030\002 \001(" +
+      "\014:\0028\001\"J\n\013TemplateRef\022\022\n\ntemplateId\030\001 \001(\r" +
+      "\022\017\n\007version\030\002 \001(\004\022\026\n\016optionTemplate\030\003 \001(" +
+      "\010B2\n\036org.graylog.plugins.netflow.v9B\020Net" +
+      "FlowV9Journal"
     };
-    com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
-        new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
-          public com.google.protobuf.ExtensionRegistry assignDescriptors(
-              com.google.protobuf.Descriptors.FileDescriptor root) {
-            descriptor = root;
-            return null;
-          }
-        };
-    com.google.protobuf.Descriptors.FileDescriptor
+    descriptor = com.google.protobuf.Descriptors.FileDescriptor
       .internalBuildGeneratedFileFrom(descriptorData,
         new com.google.protobuf.Descriptors.FileDescriptor[] {
-        }, assigner);
+        });
     internal_static_org_graylog_plugins_netflow_v9_RawNetflowV9_descriptor =
       getDescriptor().getMessageTypes().get(0);
     internal_static_org_graylog_plugins_netflow_v9_RawNetflowV9_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_org_graylog_plugins_netflow_v9_RawNetflowV9_descriptor,
-        new java.lang.String[] { "Templates", "OptionTemplate", "Packets", });
+        new java.lang.String[] { "Templates", "OptionTemplate", "Packets", "TemplateRefs", });
     internal_static_org_graylog_plugins_netflow_v9_RawNetflowV9_TemplatesEntry_descriptor =
       internal_static_org_graylog_plugins_netflow_v9_RawNetflowV9_descriptor.getNestedTypes().get(0);
     internal_static_org_graylog_plugins_netflow_v9_RawNetflowV9_TemplatesEntry_fieldAccessorTable = new
@@ -1413,6 +2732,12 @@ public final class NetFlowV9Journal {
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_org_graylog_plugins_netflow_v9_RawNetflowV9_OptionTemplateEntry_descriptor,
         new java.lang.String[] { "Key", "Value", });
+    internal_static_org_graylog_plugins_netflow_v9_TemplateRef_descriptor =
+      getDescriptor().getMessageTypes().get(1);
+    internal_static_org_graylog_plugins_netflow_v9_TemplateRef_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_org_graylog_plugins_netflow_v9_TemplateRef_descriptor,
+        new java.lang.String[] { "TemplateId", "Version", "OptionTemplate", });
   }
 
   // @@protoc_insertion_point(outer_class_scope)
@@ -22,8 +22,11 @@ import com.joestelmach.natty.Parser;
 import org.graylog.plugins.pipelineprocessor.EvaluationContext;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
 import org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor;
+import org.graylog2.utilities.date.FormatSniffingDateParser;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
 
 import javax.annotation.Nonnull;
 import java.util.List;
@@ -34,6 +37,9 @@ public class FlexParseDate extends TimezoneAwareFunction {
     public static final String VALUE = "value";
     public static final String NAME = "flex_parse_date";
     public static final String DEFAULT = "default";
+
+    private static final DateTimeFormatter ISO_DATE_TIME = ISODateTimeFormat.dateTimeParser();
+
     private final ParameterDescriptor<String, String> valueParam;
     private final ParameterDescriptor<DateTime, DateTime> defaultParam;
 
@@ -46,6 +52,18 @@ public class FlexParseDate extends TimezoneAwareFunction {
     protected DateTime evaluate(FunctionArgs args, EvaluationContext context, DateTimeZone timezone) {
         final String time = valueParam.required(args, context);
 
+        // ISO-8601 timestamps are unambiguous and don't need the natural language parser, which also ignores
+        // their fraction of seconds and offset
+        if (time != null) {
+            final String trimmed = time.trim();
+            if (FormatSniffingDateParser.sniff(trimmed) == FormatSniffingDateParser.Shape.ISO_EXTENDED) {
+                final DateTime dateTime = FormatSniffingDateParser.tryParse(ISO_DATE_TIME.withZone(timezone), trimmed);
+                if (dateTime != null) {
+                    return dateTime;
+                }
+            }
+        }
+
         final List<DateGroup> dates = new Parser(timezone.toTimeZone()).parse(time);
         if (dates.size() == 0) {
             final Optional<DateTime> defaultTime = defaultParam.optional(args, context);
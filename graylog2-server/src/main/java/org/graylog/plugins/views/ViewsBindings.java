@@ -50,6 +50,7 @@ import org.graylog.plugins.views.search.export.ExportBackend;
 import org.graylog.plugins.views.search.export.LegacyChunkDecorator;
 import org.graylog.plugins.views.search.export.MessagesExporter;
 import org.graylog.plugins.views.search.export.SimpleMessageChunkCsvWriter;
+import org.graylog.plugins.views.search.export.SimpleMessageChunkNdjsonWriter;
 import org.graylog.plugins.views.search.filter.AndFilter;
 import org.graylog.plugins.views.search.filter.OrFilter;
 import org.graylog.plugins.views.search.filter.QueryStringFilter;
@@ -78,6 +79,8 @@ import org.graylog.plugins.views.search.rest.exceptionmappers.PermissionExceptio
 import org.graylog.plugins.views.search.rest.export.AggregationWidgetExportResource;
 import org.graylog.plugins.views.search.rest.export.response.AggregationWidgetExportResponseWriter;
 import org.graylog.plugins.views.search.rest.remote.SearchJobsStatusResource;
+import org.graylog.plugins.views.search.rollups.RollupDefinitionsResource;
+import org.graylog.plugins.views.search.rollups.RollupMaterializationPeriodical;
 import org.graylog.plugins.views.search.searchtypes.MessageList;
 import org.graylog.plugins.views.search.searchtypes.events.EventList;
 import org.graylog.plugins.views.search.searchtypes.pivot.Pivot;
@@ -164,6 +167,7 @@ public class ViewsBindings extends ViewsModule {
         addSystemRestResource(SuggestionsResource.class);
         addSystemRestResource(QueryValidationResource.class);
         addSystemRestResource(EntitySuggestionResource.class);
+        addSystemRestResource(RollupDefinitionsResource.class);
 
         addPermissions(ViewsRestPermissions.class);
 
@@ -226,6 +230,7 @@ public class ViewsBindings extends ViewsModule {
         registerVisualizationConfigSubtypes();
 
         addPeriodical(SearchesCleanUpJob.class);
+        addPeriodical(RollupMaterializationPeriodical.class);
 
         addMigration(V20181220133700_AddViewsAdminRole.class);
         addMigration(V20190304102700_MigrateMessageListStructure.class);
@@ -256,10 +261,16 @@ public class ViewsBindings extends ViewsModule {
         registerExceptionMappers();
 
         addExportFormat(() -> MoreMediaTypes.TEXT_CSV_TYPE);
+        addExportFormat(() -> MoreMediaTypes.TEXT_CSV_GZIP_TYPE);
+        addExportFormat(() -> MoreMediaTypes.TEXT_CSV_ZSTD_TYPE);
+        addExportFormat(() -> MoreMediaTypes.APPLICATION_NDJSON_TYPE);
+        addExportFormat(() -> MoreMediaTypes.APPLICATION_NDJSON_GZIP_TYPE);
+        addExportFormat(() -> MoreMediaTypes.APPLICATION_NDJSON_ZSTD_TYPE);
 
 
         jerseyAdditionalComponentsBinder().addBinding().toInstance(AggregationWidgetExportResponseWriter.class);
         jerseyAdditionalComponentsBinder().addBinding().toInstance(SimpleMessageChunkCsvWriter.class);
+        jerseyAdditionalComponentsBinder().addBinding().toInstance(SimpleMessageChunkNdjsonWriter.class);
         jerseyAdditionalComponentsBinder().addBinding().toInstance(MessageExportFormatFilter.class);
         jerseyAdditionalComponentsBinder().addBinding().toInstance(SearchUserBinder.class);
 
@@ -17,6 +17,9 @@
 package org.graylog.plugins.views;
 
 import com.github.joschi.jadconfig.Parameter;
+import com.github.joschi.jadconfig.util.Size;
+import com.github.joschi.jadconfig.validators.PositiveIntegerValidator;
+import com.github.joschi.jadconfig.validators.PositiveSizeValidator;
 import org.graylog2.plugin.PluginConfigBean;
 import org.joda.time.Duration;
 
@@ -24,7 +27,59 @@ public class ViewsConfig implements PluginConfigBean {
     private static final Duration DEFAULT_MAXIMUM_AGE_FOR_SEARCHES = Duration.standardDays(4);
     private static final String PREFIX = "views_";
     private static final String MAX_SEARCH_AGE = PREFIX + "maximum_search_age";
+    private static final String RESULT_CACHE_ENABLED = PREFIX + "result_cache_enabled";
+    private static final String RESULT_CACHE_MAX_SIZE = PREFIX + "result_cache_max_size";
+    private static final String RESULT_CACHE_TTL = PREFIX + "result_cache_ttl";
+    private static final String EXPORT_PARALLELISM = PREFIX + "export_parallelism";
+    private static final String EXPORT_BUFFERED_PAGES = PREFIX + "export_buffered_pages";
+    private static final String EXPORT_KEEP_ORDER = PREFIX + "export_keep_order";
+    private static final String QUERY_ENGINE_THREADS = PREFIX + "query_engine_threads";
+    private static final String QUERY_ENGINE_MAX_QUEUED_QUERIES = PREFIX + "query_engine_max_queued_queries";
+    private static final String QUERY_ENGINE_MAX_RUNNING_QUERIES_PER_USER = PREFIX + "query_engine_max_running_queries_per_user";
+    private static final String QUERY_ENGINE_BATCH_QUERIES = PREFIX + "query_engine_batch_queries";
+    private static final String ROLLUPS_ENABLED = PREFIX + "rollups_enabled";
+    private static final String ROLLUPS_BACKFILL = PREFIX + "rollups_backfill";
+    private static final String SUGGESTIONS_CACHE_TTL = PREFIX + "suggestions_cache_ttl";
 
     @Parameter(MAX_SEARCH_AGE)
     private Duration maxSearchAge = DEFAULT_MAXIMUM_AGE_FOR_SEARCHES;
+
+    @Parameter(RESULT_CACHE_ENABLED)
+    private boolean resultCacheEnabled = false;
+
+    @Parameter(value = RESULT_CACHE_MAX_SIZE, validators = PositiveSizeValidator.class)
+    private Size resultCacheMaxSize = Size.megabytes(64);
+
+    @Parameter(RESULT_CACHE_TTL)
+    private Duration resultCacheTtl = Duration.standardMinutes(10);
+
+    @Parameter(value = EXPORT_PARALLELISM, validators = PositiveIntegerValidator.class)
+    private int exportParallelism = 1;
+
+    @Parameter(value = EXPORT_BUFFERED_PAGES, validators = PositiveIntegerValidator.class)
+    private int exportBufferedPages = 64;
+
+    @Parameter(EXPORT_KEEP_ORDER)
+    private boolean exportKeepOrder = true;
+
+    @Parameter(value = QUERY_ENGINE_THREADS, validators = PositiveIntegerValidator.class)
+    private int queryEngineThreads = 4;
+
+    @Parameter(QUERY_ENGINE_MAX_QUEUED_QUERIES)
+    private int queryEngineMaxQueuedQueries = 0;
+
+    @Parameter(QUERY_ENGINE_MAX_RUNNING_QUERIES_PER_USER)
+    private int queryEngineMaxRunningQueriesPerUser = 0;
+
+    @Parameter(QUERY_ENGINE_BATCH_QUERIES)
+    private boolean queryEngineBatchQueries = false;
+
+    @Parameter(ROLLUPS_ENABLED)
+    private boolean rollupsEnabled = false;
+
+    @Parameter(ROLLUPS_BACKFILL)
+    private Duration rollupsBackfill = Duration.standardDays(30);
+
+    @Parameter(SUGGESTIONS_CACHE_TTL)
+    private Duration suggestionsCacheTtl = Duration.standardSeconds(10);
 }
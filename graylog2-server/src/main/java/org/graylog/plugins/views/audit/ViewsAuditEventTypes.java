@@ -57,6 +57,10 @@ public class ViewsAuditEventTypes implements PluginAuditEventTypes {
     public static final String DYNAMIC_STARTUP_PAGE_ADD_FAVORITE_ITEM = PREFIX + DYNAMIC_STARTUP_PAGE + ":addFavoriteItem";
     public static final String DYNAMIC_STARTUP_PAGE_REMOVE_FAVORITE_ITEM = PREFIX + DYNAMIC_STARTUP_PAGE + ":removeFavoriteItem";
 
+    private static final String ROLLUP_DEFINITION = "rollup_definition";
+    public static final String ROLLUP_DEFINITION_CREATE = PREFIX + ROLLUP_DEFINITION + ":create";
+    public static final String ROLLUP_DEFINITION_DELETE = PREFIX + ROLLUP_DEFINITION + ":delete";
+
     private static final ImmutableSet<String> EVENT_TYPES = ImmutableSet.<String>builder()
             .add(VIEW_CREATE)
             .add(VIEW_UPDATE)
@@ -80,6 +84,9 @@ public class ViewsAuditEventTypes implements PluginAuditEventTypes {
             .add(DYNAMIC_STARTUP_PAGE_ADD_FAVORITE_ITEM)
             .add(DYNAMIC_STARTUP_PAGE_REMOVE_FAVORITE_ITEM)
 
+            .add(ROLLUP_DEFINITION_CREATE)
+            .add(ROLLUP_DEFINITION_DELETE)
+
             .build();
 
     @Override
@@ -20,7 +20,7 @@ import com.google.common.collect.Sets;
 import jakarta.inject.Inject;
 import org.graylog.plugins.views.search.IndexRangeContainsOneOfStreams;
 import org.graylog2.indexer.ranges.IndexRange;
-import org.graylog2.indexer.ranges.IndexRangeService;
+import org.graylog2.indexer.ranges.IndexRangeCache;
 import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
 import org.graylog2.plugin.streams.Stream;
 import org.graylog2.streams.StreamService;
@@ -31,22 +31,22 @@ import java.util.stream.Collectors;
 
 public class IndexLookup {
 
-    private final IndexRangeService indexRangeService;
+    private final IndexRangeCache indexRangeCache;
     private final StreamService streamService;
     private final IndexRangeContainsOneOfStreams indexRangeContainsOneOfStreams;
 
     @Inject
-    public IndexLookup(final IndexRangeService indexRangeService,
+    public IndexLookup(final IndexRangeCache indexRangeCache,
                        final StreamService streamService) {
-        this.indexRangeService = indexRangeService;
+        this.indexRangeCache = indexRangeCache;
         this.streamService = streamService;
         this.indexRangeContainsOneOfStreams = new IndexRangeContainsOneOfStreams();
     }
 
-    IndexLookup(final IndexRangeService indexRangeService,
+    IndexLookup(final IndexRangeCache indexRangeCache,
                 final StreamService streamService,
                 final IndexRangeContainsOneOfStreams indexRangeContainsOneOfStreams) {
-        this.indexRangeService = indexRangeService;
+        this.indexRangeCache = indexRangeCache;
         this.streamService = streamService;
         this.indexRangeContainsOneOfStreams = indexRangeContainsOneOfStreams;
     }
@@ -73,7 +73,7 @@ public class IndexLookup {
         var nonDataStreamIds = streamIds.stream().filter(s -> !s.startsWith(Stream.DATASTREAM_PREFIX)).collect(Collectors.toSet());
 
         final Set<Stream> usedStreams = streamService.loadByIds(nonDataStreamIds);
-        final SortedSet<IndexRange> candidateIndices = indexRangeService.find(timeRange.getFrom(), timeRange.getTo());
+        final SortedSet<IndexRange> candidateIndices = indexRangeCache.find(timeRange.getFrom(), timeRange.getTo());
 
         return candidateIndices.stream()
                 .filter(i -> indexRangeContainsOneOfStreams.test(i, usedStreams))
@@ -16,9 +16,12 @@
  */
 package org.graylog.plugins.views.search.elasticsearch;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
+import jakarta.inject.Singleton;
 import org.graylog.plugins.views.search.QueryMetadata;
 import org.graylog.plugins.views.search.validation.SubstringMultilinePosition;
 
@@ -31,13 +34,21 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+@Singleton
 public class QueryStringParser {
     private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\$([a-zA-Z_]\\w*)\\$");
 
+    // The same query strings are parsed over and over again, e.g. for every execution of a dashboard widget
+    private final Cache<String, QueryMetadata> parsedQueryStrings = Caffeine.newBuilder().maximumSize(1000).build();
+
     public QueryMetadata parse(String queryString) {
         if (Strings.isNullOrEmpty(queryString)) {
             return QueryMetadata.empty();
         }
+        return parsedQueryStrings.get(queryString, this::doParse);
+    }
+
+    private QueryMetadata doParse(String queryString) {
 
         Map<String, List<SubstringMultilinePosition>> positions = new LinkedHashMap<>();
 
@@ -35,6 +35,8 @@ import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -91,13 +93,7 @@ public interface QueryBackend<T extends GeneratedQueryContext> {
             //noinspection unchecked
             final QueryResult result = doRun(job, query, (T) generatedQueryContext);
             stopwatch.stop();
-            final QueryExecutionStats stats = statsBuilder.duration(stopwatch.elapsed(TimeUnit.MILLISECONDS))
-                    .effectiveTimeRange(effectiveTimeRangeForResult(query, result))
-                    .build();
-            getExecutionStatsCollector().storeStats(stats);
-            return result.toBuilder()
-                    .executionStats(stats)
-                    .build();
+            return withExecutionStats(query, result, statsBuilder, stopwatch.elapsed(TimeUnit.MILLISECONDS));
         } catch (Exception e) {
             // the backend has very likely created a more specific error and added it to the context, but we fall
             // back to a generic error so we never throw exceptions into the engine.
@@ -107,6 +103,36 @@ public interface QueryBackend<T extends GeneratedQueryContext> {
         }
     }
 
+    /**
+     * Runs several queries of the given job together, e.g. with a single request to the search backend.
+     * Like {@link #run(SearchJob, Query, GeneratedQueryContext)}, this never throws exceptions for failed queries,
+     * but returns failed results for them.
+     * <p>
+     * The default implementation runs the queries one after another.
+     *
+     * @param job                    currently executing job
+     * @param queries                the queries to run
+     * @param generatedQueryContexts the generated queries, in the same order as the queries
+     * @return the results, in the same order as the queries
+     */
+    default List<QueryResult> runBatch(SearchJob job, List<Query> queries, List<GeneratedQueryContext> generatedQueryContexts) {
+        final List<QueryResult> results = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            results.add(run(job, queries.get(i), generatedQueryContexts.get(i)));
+        }
+        return results;
+    }
+
+    default QueryResult withExecutionStats(Query query, QueryResult result, QueryExecutionStats.Builder statsBuilder, long durationMs) {
+        final QueryExecutionStats stats = statsBuilder.duration(durationMs)
+                .effectiveTimeRange(effectiveTimeRangeForResult(query, result))
+                .build();
+        getExecutionStatsCollector().storeStats(stats);
+        return result.toBuilder()
+                .executionStats(stats)
+                .build();
+    }
+
     /**
      * Run the generated query as part of the given query job.
      * <p>
@@ -16,9 +16,12 @@
  */
 package org.graylog.plugins.views.search.engine;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableSet;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 import org.graylog.plugins.views.search.ExplainResults;
 import org.graylog.plugins.views.search.Query;
@@ -27,22 +30,31 @@ import org.graylog.plugins.views.search.QueryMetadataDecorator;
 import org.graylog.plugins.views.search.QueryResult;
 import org.graylog.plugins.views.search.Search;
 import org.graylog.plugins.views.search.SearchJob;
+import org.graylog.plugins.views.search.SearchType;
 import org.graylog.plugins.views.search.errors.QueryError;
 import org.graylog.plugins.views.search.errors.SearchError;
 import org.graylog.plugins.views.search.errors.SearchException;
+import org.graylog.plugins.views.search.rollups.RollupQueryRewriter;
 import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import static com.codahale.metrics.MetricRegistry.name;
+
 @Singleton
 public class QueryEngine {
     private static final Logger LOG = LoggerFactory.getLogger(QueryEngine.class);
@@ -50,17 +62,32 @@ public class QueryEngine {
     private final Set<QueryMetadataDecorator> queryMetadataDecorators;
     private final QueryParser queryParser;
 
-    // TODO proper thread pool with tunable settings
-    private final Executor queryPool = Executors.newFixedThreadPool(4, new ThreadFactoryBuilder().setNameFormat("query-engine-%d").build());
+    private final QueryExecutor queryExecutor;
     private final QueryBackend<? extends GeneratedQueryContext> backend;
+    private final SearchTypeResultCache resultCache;
+    private final RollupQueryRewriter rollupQueryRewriter;
+    private final MetricRegistry metricRegistry;
+    private final Timer executionTimer;
+    private final boolean batchQueries;
 
     @Inject
     public QueryEngine(QueryBackend<? extends GeneratedQueryContext> backend,
                        Set<QueryMetadataDecorator> queryMetadataDecorators,
-                       QueryParser queryParser) {
+                       QueryParser queryParser,
+                       SearchTypeResultCache resultCache,
+                       RollupQueryRewriter rollupQueryRewriter,
+                       QueryExecutor queryExecutor,
+                       MetricRegistry metricRegistry,
+                       @Named("views_query_engine_batch_queries") boolean batchQueries) {
         this.backend = backend;
         this.queryMetadataDecorators = queryMetadataDecorators;
         this.queryParser = queryParser;
+        this.resultCache = resultCache;
+        this.rollupQueryRewriter = rollupQueryRewriter;
+        this.queryExecutor = queryExecutor;
+        this.metricRegistry = metricRegistry;
+        this.executionTimer = metricRegistry.timer(name(QueryEngine.class, "execution"));
+        this.batchQueries = batchQueries;
     }
 
     public QueryMetadata parse(Search search, Query query) {
@@ -90,44 +117,202 @@ public class QueryEngine {
                 .filter(query -> !isQueryWithError(validationErrors, query))
                 .collect(Collectors.toSet());
 
-        validQueries.forEach(query -> searchJob.addQueryResultFuture(query.id(),
-                // generate and run each query, making sure we never let an exception escape
-                // if need be we default to an empty result with a failed state and the wrapped exception
-                CompletableFuture.supplyAsync(() -> prepareAndRun(searchJob, query, validationErrors, timezone), queryPool)
-                        .handle((queryResult, throwable) -> {
-                            if (throwable != null) {
-                                final Throwable cause = throwable.getCause();
-                                final SearchError error;
-                                if (cause instanceof SearchException) {
-                                    error = ((SearchException) cause).error();
-                                } else {
-                                    error = new QueryError(query, cause);
-                                }
-                                LOG.debug("Running query {} failed: {}", query.id(), cause);
-                                searchJob.addError(error);
-                                return QueryResult.failedQueryWithError(query, error);
-                            }
-                            return queryResult;
-                        })
-        ));
+        if (batchQueries && validQueries.size() > 1) {
+            final CompletableFuture<Map<String, QueryResult>> batchResult = queryExecutor.submit(searchJob.getOwner(),
+                    () -> prepareAndRunBatch(searchJob, List.copyOf(validQueries), validationErrors, timezone));
+            validQueries.forEach(query -> searchJob.addQueryResultFuture(query.id(),
+                    batchResult.thenApply(results -> results.get(query.id()))
+                            .handle((queryResult, throwable) -> resultOrError(searchJob, query, queryResult, throwable))));
+        } else {
+            validQueries.forEach(query -> searchJob.addQueryResultFuture(query.id(),
+                    // generate and run each query, making sure we never let an exception escape
+                    // if need be we default to an empty result with a failed state and the wrapped exception
+                    queryExecutor.submit(searchJob.getOwner(), () -> prepareAndRun(searchJob, query, validationErrors, timezone))
+                            .handle((queryResult, throwable) -> resultOrError(searchJob, query, queryResult, throwable))
+            ));
+        }
 
         LOG.debug("Search job {} executing", searchJob.getId());
         return searchJob.seal();
     }
 
+    private QueryResult resultOrError(SearchJob searchJob, Query query, QueryResult queryResult, Throwable throwable) {
+        if (throwable != null) {
+            final Throwable cause = throwable.getCause();
+            final SearchError error = errorFor(query, cause);
+            LOG.debug("Running query {} failed: {}", query.id(), cause);
+            searchJob.addError(error);
+            return QueryResult.failedQueryWithError(query, error);
+        }
+        return queryResult;
+    }
+
+    private SearchError errorFor(Query query, Throwable cause) {
+        if (cause instanceof SearchException) {
+            return ((SearchException) cause).error();
+        }
+        return new QueryError(query, cause);
+    }
+
+    /**
+     * A query with the search types which have to be run because there are no cached results for them.
+     *
+     * @param remaining the query with the remaining search types, empty if there are cached results for all of them
+     * @param rollups   the parts of the remaining search types which are answered from rollups
+     */
+    private record PlannedQuery(Query query, Optional<Query> remaining, SearchTypeResultCache.Lookup cached,
+                                RollupQueryRewriter.Rewrite rollups) {}
+
+    private PlannedQuery plan(SearchJob searchJob, Query query, DateTimeZone timezone) {
+        final SearchTypeResultCache.Lookup cached = resultCache.lookup(searchJob.getSearch(), query, timezone);
+        if (cached.hits().isEmpty()) {
+            return withRollups(query, query, cached);
+        }
+
+        // Only run the search types without cached results
+        final ImmutableSet<SearchType> remainingSearchTypes = query.searchTypes().stream()
+                .filter(searchType -> !cached.hits().containsKey(searchType.id()))
+                .collect(ImmutableSet.toImmutableSet());
+        LOG.debug("[{}] Using cached results for search types {}", query.id(), cached.hits().keySet());
+        if (remainingSearchTypes.isEmpty()) {
+            return new PlannedQuery(query, Optional.empty(), cached, RollupQueryRewriter.Rewrite.none(query));
+        }
+        return withRollups(query, query.toBuilder().searchTypes(remainingSearchTypes).build(), cached);
+    }
+
+    private PlannedQuery withRollups(Query query, Query remaining, SearchTypeResultCache.Lookup cached) {
+        final RollupQueryRewriter.Rewrite rollups = rollupQueryRewriter.rewrite(remaining);
+        if (rollups.partials().isEmpty()) {
+            return new PlannedQuery(query, Optional.of(remaining), cached, rollups);
+        }
+        // The backend only returns parts of the results of search types answered from rollups, they can't be cached
+        final Map<String, SearchTypeResultCache.Key> cacheKeys = new HashMap<>(cached.keys());
+        cacheKeys.keySet().removeAll(rollups.partials().keySet());
+        return new PlannedQuery(query, Optional.of(rollups.query()),
+                new SearchTypeResultCache.Lookup(cached.hits(), cacheKeys), rollups);
+    }
+
+    /**
+     * Combines the result of the remaining search types with the parts answered from rollups and the cached results.
+     */
+    private QueryResult complete(PlannedQuery planned, @Nullable QueryResult remainingResult) {
+        final QueryResult result = remainingResult == null || planned.rollups().partials().isEmpty()
+                ? remainingResult
+                : rollupQueryRewriter.merge(planned.rollups(), remainingResult).toBuilder().query(planned.query()).build();
+        if (planned.cached().hits().isEmpty()) {
+            return result;
+        }
+        if (result == null) {
+            return QueryResult.builder()
+                    .query(planned.query())
+                    .searchTypes(planned.cached().hits())
+                    .build();
+        }
+        final Map<String, SearchType.Result> searchTypes = new HashMap<>(result.searchTypes());
+        searchTypes.putAll(planned.cached().hits());
+        return result.toBuilder()
+                .query(planned.query())
+                .searchTypes(searchTypes)
+                .build();
+    }
+
     private QueryResult prepareAndRun(SearchJob searchJob, Query query, Set<SearchError> validationErrors, DateTimeZone timezone) {
+        final PlannedQuery planned = plan(searchJob, query, timezone);
+        return complete(planned, planned.remaining()
+                .map(remaining -> run(searchJob, remaining, validationErrors, timezone, planned.cached()))
+                .orElse(null));
+    }
+
+    private QueryResult run(SearchJob searchJob, Query query, Set<SearchError> validationErrors, DateTimeZone timezone,
+                            SearchTypeResultCache.Lookup cached) {
         LOG.debug("[{}] Using {} to generate query", query.id(), backend);
         // with all the results done, we can execute the current query and eventually complete our own result
         // if any of this throws an exception, the handle in #execute will convert it to an error and return a "failed" result instead
         // if the backend already returns a "failed result" then nothing special happens here
         final GeneratedQueryContext generatedQueryContext = backend.generate(query, validationErrors, timezone);
         LOG.trace("[{}] Generated query {}, running it on backend {}", query.id(), generatedQueryContext, backend);
-        final QueryResult result = backend.run(searchJob, query, generatedQueryContext);
+        final long start = System.nanoTime();
+        final QueryResult result;
+        try {
+            result = backend.run(searchJob, query, generatedQueryContext);
+        } finally {
+            recordExecutionTime(query, System.nanoTime() - start);
+        }
         LOG.debug("[{}] Query returned {}", query.id(), result);
+        finish(searchJob, generatedQueryContext, cached, result);
+        return result;
+    }
+
+    /**
+     * Runs all queries of a search together, so the backend can combine their search types into fewer requests.
+     * Queries failing to generate don't affect the other queries.
+     *
+     * @return the results by query id
+     */
+    private Map<String, QueryResult> prepareAndRunBatch(SearchJob searchJob, List<Query> queries, Set<SearchError> validationErrors,
+                                                        DateTimeZone timezone) {
+        final Map<String, QueryResult> results = new HashMap<>();
+        final List<PlannedQuery> plannedQueries = new ArrayList<>();
+        final List<Query> queriesToRun = new ArrayList<>();
+        final List<GeneratedQueryContext> generatedQueryContexts = new ArrayList<>();
+
+        for (Query query : queries) {
+            final PlannedQuery planned = plan(searchJob, query, timezone);
+            if (planned.remaining().isEmpty()) {
+                results.put(query.id(), complete(planned, null));
+                continue;
+            }
+            try {
+                generatedQueryContexts.add(backend.generate(planned.remaining().get(), validationErrors, timezone));
+                plannedQueries.add(planned);
+                queriesToRun.add(planned.remaining().get());
+            } catch (Exception e) {
+                LOG.debug("Generating query {} failed: {}", query.id(), e);
+                final SearchError error = errorFor(query, e);
+                searchJob.addError(error);
+                results.put(query.id(), QueryResult.failedQueryWithError(query, error));
+            }
+        }
+        if (queriesToRun.isEmpty()) {
+            return results;
+        }
+
+        LOG.debug("Running {} queries of search job {} as a batch", queriesToRun.size(), searchJob.getId());
+        final long start = System.nanoTime();
+        final List<QueryResult> batchResults;
+        try {
+            batchResults = backend.runBatch(searchJob, queriesToRun, generatedQueryContexts);
+        } finally {
+            final long duration = System.nanoTime() - start;
+            queriesToRun.forEach(query -> recordExecutionTime(query, duration));
+        }
+        for (int i = 0; i < queriesToRun.size(); i++) {
+            final PlannedQuery planned = plannedQueries.get(i);
+            final QueryResult result = batchResults.get(i);
+            finish(searchJob, generatedQueryContexts.get(i), planned.cached(), result);
+            results.put(planned.query().id(), complete(planned, result));
+        }
+        return results;
+    }
+
+    private void finish(SearchJob searchJob, GeneratedQueryContext generatedQueryContext, SearchTypeResultCache.Lookup cached,
+                        QueryResult result) {
         if (!generatedQueryContext.errors().isEmpty()) {
             generatedQueryContext.errors().forEach(searchJob::addError);
         }
-        return result;
+        resultCache.store(cached, result, generatedQueryContext.errors());
+    }
+
+    /**
+     * The search types of a query are executed together, so the per search type timers record the execution time of
+     * the queries which contain a search type of the respective type.
+     */
+    private void recordExecutionTime(Query query, long nanos) {
+        executionTimer.update(nanos, TimeUnit.NANOSECONDS);
+        query.searchTypes().stream()
+                .map(SearchType::type)
+                .distinct()
+                .forEach(type -> metricRegistry.timer(name(QueryEngine.class, "execution", type)).update(nanos, TimeUnit.NANOSECONDS));
     }
 
     private boolean isQueryWithError(Collection<SearchError> validationErrors, Query query) {
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Runs the queries of the {@link QueryEngine} on a bounded number of threads.
+ * <p>
+ * Waiting queries are queued per user, and the queues are served round-robin, so a user with many queries (e.g. a
+ * dashboard with lots of widgets) can't hold back the queries of other users until all of their own queries are done.
+ * In addition to the overall limit given by the number of threads, the number of running queries per user and the
+ * number of waiting queries can be limited.
+ */
+@Singleton
+public class QueryExecutor {
+    private final Executor executor;
+    private final int threads;
+    private final int maxQueuedQueries;
+    private final int maxRunningQueriesPerUser;
+    private final Timer queueWaitTimer;
+
+    // Guarded by "this"
+    private final Map<String, ArrayDeque<Task<?>>> queuedTasks = new HashMap<>();
+    private final ArrayDeque<String> usersInTurn = new ArrayDeque<>();
+    private final Map<String, Integer> runningTasksByUser = new HashMap<>();
+    private int queued = 0;
+    private int running = 0;
+
+    private record Task<T>(String user, Supplier<T> supplier, CompletableFuture<T> future, long enqueuedAt) {}
+
+    @Inject
+    public QueryExecutor(@Named("views_query_engine_threads") int threads,
+                         @Named("views_query_engine_max_queued_queries") int maxQueuedQueries,
+                         @Named("views_query_engine_max_running_queries_per_user") int maxRunningQueriesPerUser,
+                         MetricRegistry metricRegistry) {
+        this(Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("query-engine-%d").build()),
+                threads, maxQueuedQueries, maxRunningQueriesPerUser, metricRegistry);
+    }
+
+    @VisibleForTesting
+    QueryExecutor(Executor executor, int threads, int maxQueuedQueries, int maxRunningQueriesPerUser, MetricRegistry metricRegistry) {
+        this.executor = executor;
+        this.threads = threads;
+        this.maxQueuedQueries = maxQueuedQueries;
+        this.maxRunningQueriesPerUser = maxRunningQueriesPerUser;
+        this.queueWaitTimer = metricRegistry.timer(name(QueryEngine.class, "queue-wait"));
+        metricRegistry.register(name(QueryEngine.class, "queued-queries"), (Gauge<Integer>) this::queued);
+        metricRegistry.register(name(QueryEngine.class, "running-queries"), (Gauge<Integer>) this::running);
+    }
+
+    /**
+     * Queues a query of the given user.
+     *
+     * @param user     the user who started the query, null for queries without an owner
+     * @param supplier runs the query
+     * @return a future with the result of the query, which fails with a {@link CompletionException} if the query
+     * failed or couldn't be queued
+     */
+    public <T> CompletableFuture<T> submit(@Nullable String user, Supplier<T> supplier) {
+        final Task<T> task = new Task<>(user == null ? "" : user, supplier, new CompletableFuture<>(), System.nanoTime());
+        synchronized (this) {
+            if (maxQueuedQueries > 0 && queued >= maxQueuedQueries) {
+                task.future().completeExceptionally(new CompletionException(
+                        new RejectedExecutionException("Too many queued queries, please try again later.")));
+                return task.future();
+            }
+            queuedTasks.computeIfAbsent(task.user(), u -> {
+                usersInTurn.addLast(u);
+                return new ArrayDeque<>();
+            }).addLast(task);
+            queued++;
+            dispatch();
+        }
+        return task.future();
+    }
+
+    /**
+     * Starts queued tasks as long as threads are available, taking one task of each user in turn.
+     */
+    private synchronized void dispatch() {
+        int skippedUsers = 0;
+        while (running < threads && skippedUsers < usersInTurn.size()) {
+            final String user = usersInTurn.pollFirst();
+            if (maxRunningQueriesPerUser > 0 && runningTasksByUser.getOrDefault(user, 0) >= maxRunningQueriesPerUser) {
+                usersInTurn.addLast(user);
+                skippedUsers++;
+                continue;
+            }
+            final ArrayDeque<Task<?>> tasks = queuedTasks.get(user);
+            final Task<?> task = tasks.pollFirst();
+            queued--;
+            if (tasks.isEmpty()) {
+                queuedTasks.remove(user);
+            } else {
+                usersInTurn.addLast(user);
+            }
+            if (task.future().isDone()) {
+                // Cancelled while waiting
+                continue;
+            }
+            skippedUsers = 0;
+            running++;
+            runningTasksByUser.merge(user, 1, Integer::sum);
+            start(task);
+        }
+    }
+
+    private <T> void start(Task<T> task) {
+        try {
+            executor.execute(() -> run(task));
+        } catch (RejectedExecutionException e) {
+            finished(task.user());
+            task.future().completeExceptionally(new CompletionException(e));
+        }
+    }
+
+    private <T> void run(Task<T> task) {
+        queueWaitTimer.update(System.nanoTime() - task.enqueuedAt(), TimeUnit.NANOSECONDS);
+        try {
+            task.future().complete(task.supplier().get());
+        } catch (Throwable t) {
+            task.future().completeExceptionally(t instanceof CompletionException ? t : new CompletionException(t));
+        } finally {
+            finished(task.user());
+        }
+    }
+
+    private synchronized void finished(String user) {
+        running--;
+        runningTasksByUser.computeIfPresent(user, (u, count) -> count > 1 ? count - 1 : null);
+        dispatch();
+    }
+
+    @VisibleForTesting
+    synchronized int queued() {
+        return queued;
+    }
+
+    @VisibleForTesting
+    synchronized int running() {
+        return running;
+    }
+}
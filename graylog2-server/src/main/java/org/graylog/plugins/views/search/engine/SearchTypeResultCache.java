@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.joschi.jadconfig.util.Size;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Ints;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.QueryResult;
+import org.graylog.plugins.views.search.Search;
+import org.graylog.plugins.views.search.SearchType;
+import org.graylog.plugins.views.search.elasticsearch.IndexLookup;
+import org.graylog.plugins.views.search.errors.SearchError;
+import org.graylog.plugins.views.search.errors.SearchTypeError;
+import org.graylog2.indexer.indices.Indices;
+import org.graylog2.indexer.indices.events.IndicesClosedEvent;
+import org.graylog2.indexer.indices.events.IndicesDeletedEvent;
+import org.graylog2.indexer.ranges.IndexRange;
+import org.graylog2.indexer.ranges.events.IndexRangesUpdatedEvent;
+import org.graylog2.plugin.indexer.searches.timeranges.RelativeRange;
+import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
+import org.graylog2.plugin.streams.Stream;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Node-local cache for the results of search types whose data can't change anymore.
+ * <p>
+ * A search type is cacheable if its effective time range ends in the past and all indices it touches have been
+ * created after that, i.e. the current write indices can't contain messages within the time range. The results are
+ * keyed by the normalized query, the search type, the search parameters, the resolved indices and the effective time
+ * range. Entries are invalidated if one of their indices is deleted or closed, or if its index range changes.
+ */
+@Singleton
+public class SearchTypeResultCache {
+    private static final Logger LOG = LoggerFactory.getLogger(SearchTypeResultCache.class);
+
+    /**
+     * The cached results of a query and the keys to store the results of the remaining cacheable search types.
+     *
+     * @param hits the cached results by search type ID
+     * @param keys the cache keys of the search types without cached results by search type ID
+     */
+    public record Lookup(Map<String, SearchType.Result> hits, Map<String, Key> keys) {
+        static final Lookup EMPTY = new Lookup(Map.of(), Map.of());
+    }
+
+    /**
+     * @param hash    hash of the normalized search type
+     * @param indices the indices the search type touches
+     */
+    public record Key(HashCode hash, Set<String> indices) {}
+
+    private record Entry(SearchType.Result result, Set<String> indices, int bytes) {}
+
+    private final boolean enabled;
+    private final IndexLookup indexLookup;
+    private final Indices indices;
+    private final ObjectMapper objectMapper;
+    private final Cache<HashCode, Entry> cache;
+    private final Cache<String, DateTime> indexCreationDates = Caffeine.newBuilder().maximumSize(1000).build();
+
+    private final Meter hits;
+    private final Meter misses;
+    private final Counter bytesSaved;
+
+    @Inject
+    public SearchTypeResultCache(@Named("views_result_cache_enabled") boolean enabled,
+                                 @Named("views_result_cache_max_size") Size maxSize,
+                                 @Named("views_result_cache_ttl") Duration ttl,
+                                 IndexLookup indexLookup,
+                                 Indices indices,
+                                 ObjectMapper objectMapper,
+                                 MetricRegistry metricRegistry,
+                                 EventBus eventBus) {
+        this.enabled = enabled;
+        this.indexLookup = indexLookup;
+        this.indices = indices;
+        // Keeps the cache keys of equal maps independent of their iteration order
+        this.objectMapper = objectMapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((HashCode key, Entry entry) -> entry.bytes())
+                .expireAfterWrite(ttl.getMillis(), TimeUnit.MILLISECONDS)
+                .build();
+
+        this.hits = metricRegistry.meter(name(SearchTypeResultCache.class, "hits"));
+        this.misses = metricRegistry.meter(name(SearchTypeResultCache.class, "misses"));
+        this.bytesSaved = metricRegistry.counter(name(SearchTypeResultCache.class, "bytes-saved"));
+        metricRegistry.register(name(SearchTypeResultCache.class, "hit-ratio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+        metricRegistry.register(name(SearchTypeResultCache.class, "entries"), (Gauge<Long>) cache::estimatedSize);
+
+        eventBus.register(this);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Looks up the cached results of the search types of the given query.
+     */
+    public Lookup lookup(Search search, Query query, DateTimeZone timezone) {
+        if (!enabled) {
+            return Lookup.EMPTY;
+        }
+        final DateTime now = DateTime.now(DateTimeZone.UTC);
+        final Map<String, SearchType.Result> results = new HashMap<>();
+        final Map<String, Key> keys = new HashMap<>();
+        final String queryJson;
+        try {
+            queryJson = objectMapper.writeValueAsString(query.toBuilder().searchTypes(ImmutableSet.of()).build())
+                    + objectMapper.writeValueAsString(search.parameters());
+        } catch (JsonProcessingException e) {
+            LOG.debug("Couldn't serialize query <{}>, not using cached results.", query.id(), e);
+            return Lookup.EMPTY;
+        }
+
+        for (SearchType searchType : query.searchTypes()) {
+            final Optional<Key> key = key(query, queryJson, searchType, timezone, now);
+            if (key.isEmpty()) {
+                continue;
+            }
+            final Entry entry = cache.getIfPresent(key.get().hash());
+            if (entry != null && entry.result().id().equals(searchType.id())) {
+                hits.mark();
+                bytesSaved.inc(entry.bytes());
+                results.put(searchType.id(), entry.result());
+            } else {
+                misses.mark();
+                keys.put(searchType.id(), key.get());
+            }
+        }
+        return new Lookup(results, keys);
+    }
+
+    /**
+     * Stores the results of the search types which haven't been found by the lookup.
+     *
+     * @param lookup the lookup for the query
+     * @param result the result of the query
+     * @param errors the errors of the query, results of search types with errors aren't stored
+     */
+    public void store(Lookup lookup, QueryResult result, Collection<SearchError> errors) {
+        if (lookup.keys().isEmpty() || result.state() != QueryResult.State.COMPLETED) {
+            return;
+        }
+        final Set<String> failedSearchTypes = errors.stream()
+                .filter(error -> error instanceof SearchTypeError)
+                .map(error -> ((SearchTypeError) error).searchTypeId())
+                .collect(Collectors.toSet());
+
+        lookup.keys().forEach((searchTypeId, key) -> {
+            final SearchType.Result searchTypeResult = result.searchTypes().get(searchTypeId);
+            if (searchTypeResult == null || failedSearchTypes.contains(searchTypeId)) {
+                return;
+            }
+            try {
+                final int bytes = Ints.saturatedCast(objectMapper.writeValueAsBytes(searchTypeResult).length);
+                cache.put(key.hash(), new Entry(searchTypeResult, key.indices(), bytes));
+            } catch (JsonProcessingException e) {
+                LOG.debug("Couldn't serialize result of search type <{}>, not caching it.", searchTypeId, e);
+            }
+        });
+    }
+
+    private Optional<Key> key(Query query, String queryJson, SearchType searchType, DateTimeZone timezone, DateTime now) {
+        final TimeRange timeRange = query.effectiveTimeRange(searchType);
+        if (timeRange instanceof RelativeRange relativeRange && relativeRange.isAllMessages()) {
+            return Optional.empty();
+        }
+        final DateTime from = timeRange.getFrom();
+        final DateTime to = timeRange.getTo();
+        if (from == null || to == null || !to.isBefore(now)) {
+            return Optional.empty();
+        }
+        final Set<String> streamIds = query.effectiveStreams(searchType);
+        if (streamIds.isEmpty() || streamIds.stream().anyMatch(streamId -> streamId.startsWith(Stream.DATASTREAM_PREFIX))) {
+            return Optional.empty();
+        }
+
+        final Set<String> indexNames = new TreeSet<>();
+        for (IndexRange indexRange : indexLookup.indexRangesForStreamsInTimeRange(streamIds, timeRange)) {
+            if (isUnknownRange(indexRange) && !isCreatedAfter(indexRange.indexName(), to)) {
+                // Probably a write index which may still receive messages within the time range
+                return Optional.empty();
+            }
+            indexNames.add(indexRange.indexName());
+        }
+
+        try {
+            final Hasher hasher = Hashing.murmur3_128().newHasher()
+                    .putString(queryJson, StandardCharsets.UTF_8)
+                    .putChar('\0')
+                    .putString(objectMapper.writeValueAsString(searchType), StandardCharsets.UTF_8)
+                    .putChar('\0')
+                    .putString(timezone.getID(), StandardCharsets.UTF_8)
+                    .putLong(from.getMillis())
+                    .putLong(to.getMillis());
+            indexNames.forEach(index -> hasher.putString(index, StandardCharsets.UTF_8).putChar('\0'));
+            return Optional.of(new Key(hasher.hash(), Collections.unmodifiableSet(indexNames)));
+        } catch (JsonProcessingException e) {
+            LOG.debug("Couldn't serialize search type <{}>, not using cached results.", searchType.id(), e);
+            return Optional.empty();
+        }
+    }
+
+    private boolean isUnknownRange(IndexRange indexRange) {
+        return indexRange.begin().getMillis() == 0 && indexRange.end().getMillis() == 0;
+    }
+
+    private boolean isCreatedAfter(String index, DateTime time) {
+        DateTime creationDate = indexCreationDates.getIfPresent(index);
+        if (creationDate == null) {
+            try {
+                creationDate = indices.indexCreationDate(index).orElse(null);
+            } catch (Exception e) {
+                LOG.debug("Couldn't get creation date of index <{}>.", index, e);
+            }
+            if (creationDate == null) {
+                return false;
+            }
+            indexCreationDates.put(index, creationDate);
+        }
+        return creationDate.isAfter(time);
+    }
+
+    @VisibleForTesting
+    long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private void invalidate(Collection<String> indexNames) {
+        if (!indexNames.isEmpty()) {
+            cache.asMap().values().removeIf(entry -> !Collections.disjoint(entry.indices(), indexNames));
+            indexNames.forEach(indexCreationDates::invalidate);
+        }
+    }
+
+    @Subscribe
+    public void handleIndicesDeleted(IndicesDeletedEvent event) {
+        invalidate(event.indices());
+    }
+
+    @Subscribe
+    public void handleIndicesClosed(IndicesClosedEvent event) {
+        invalidate(event.indices());
+    }
+
+    @Subscribe
+    public void handleIndexRangesUpdated(IndexRangesUpdatedEvent event) {
+        invalidate(event.indexNames());
+    }
+}
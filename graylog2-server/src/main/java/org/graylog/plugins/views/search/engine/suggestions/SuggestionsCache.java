@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine.suggestions;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.graylog.plugins.views.search.engine.QuerySuggestionsService;
+import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
+import org.joda.time.Duration;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived per-user cache for field value suggestions.
+ * <p>
+ * Suggestions are requested for every keystroke, so consecutive requests usually only differ by the input, which
+ * gets longer with each request. Values are always fetched with {@link #PREFETCH_SIZE}, so the result for an input
+ * often contains all values starting with it. Results for longer inputs are then filtered from the cached result
+ * instead of searching again. Identical requests which arrive while the first one is still running wait for its
+ * result instead of searching as well.
+ */
+@Singleton
+public class SuggestionsCache {
+    static final int PREFETCH_SIZE = 100;
+
+    private record Scope(String username, String field, SuggestionFieldType fieldType, Set<String> streams,
+                         TimeRange timerange) {}
+
+    private record Key(Scope scope, String input) {}
+
+    private final QuerySuggestionsService querySuggestionsService;
+    private final Cache<Key, SuggestionResponse> cache;
+
+    @Inject
+    public SuggestionsCache(QuerySuggestionsService querySuggestionsService,
+                            @Named("views_suggestions_cache_ttl") Duration ttl) {
+        this.querySuggestionsService = querySuggestionsService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(ttl.getMillis() > 0 ? 10_000 : 0)
+                .expireAfterWrite(Math.max(ttl.getMillis(), 1), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    public SuggestionResponse suggest(String username, SuggestionRequest req) {
+        final Scope scope = new Scope(username, req.field(), req.fieldType(), req.streams(), req.timerange());
+        final SuggestionResponse cached = cache.getIfPresent(new Key(scope, req.input()));
+        if (cached != null) {
+            return limit(cached, req.input(), req.size());
+        }
+        if (req.fieldType() == SuggestionFieldType.TEXTUAL) {
+            // Other field types are matched by their string representation on the search backend, which might differ
+            for (int length = req.input().length() - 1; length >= 0; length--) {
+                final SuggestionResponse broader = cache.getIfPresent(new Key(scope, req.input().substring(0, length)));
+                if (broader != null && isComplete(broader)) {
+                    final List<SuggestionEntry> matching = broader.suggestions().stream()
+                            .filter(entry -> entry.getValue().startsWith(req.input()))
+                            .toList();
+                    // Without matching values the backend returns spelling corrections, so we can't answer this
+                    if (!matching.isEmpty()) {
+                        return limit(SuggestionResponse.forSuggestions(req.field(), req.input(), matching, 0L), req.input(), req.size());
+                    }
+                    break;
+                }
+            }
+        }
+
+        final Key key = new Key(scope, req.input());
+        final SuggestionResponse response = cache.get(key, k -> querySuggestionsService.suggest(prefetchRequest(req)));
+        if (response.suggestionError().isPresent()) {
+            cache.invalidate(key);
+        }
+        return limit(response, req.input(), req.size());
+    }
+
+    private static SuggestionRequest prefetchRequest(SuggestionRequest req) {
+        return SuggestionRequest.builder()
+                .field(req.field())
+                .fieldType(req.fieldType())
+                .input(req.input())
+                .streams(req.streams())
+                .timerange(req.timerange())
+                .size(Math.max(req.size(), PREFETCH_SIZE))
+                .build();
+    }
+
+    /**
+     * A response is complete if it contains all values of the field which start with its input.
+     */
+    @VisibleForTesting
+    static boolean isComplete(SuggestionResponse response) {
+        return response.suggestionError().isEmpty()
+                && !response.suggestions().isEmpty()
+                && response.sumOtherDocsCount() != null
+                && response.sumOtherDocsCount() == 0;
+    }
+
+    /**
+     * Returns the first {@code size} suggestions of the response. The occurrences of the dropped suggestions are
+     * added to the count of other documents, like the search backend does for values exceeding the size.
+     */
+    @VisibleForTesting
+    static SuggestionResponse limit(SuggestionResponse response, String input, int size) {
+        if (response.suggestionError().isPresent()) {
+            return SuggestionResponse.forError(response.field(), input, response.suggestionError().get());
+        }
+        final List<SuggestionEntry> suggestions = response.suggestions();
+        if (suggestions.size() <= size) {
+            return SuggestionResponse.forSuggestions(response.field(), input, suggestions, response.sumOtherDocsCount());
+        }
+        final Long sumOtherDocsCount = response.sumOtherDocsCount() == null ? null : response.sumOtherDocsCount()
+                + suggestions.subList(size, suggestions.size()).stream().mapToLong(SuggestionEntry::getOccurrence).sum();
+        return SuggestionResponse.forSuggestions(response.field(), input, suggestions.subList(0, size), sumOtherDocsCount);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.export;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import jakarta.ws.rs.core.MediaType;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of exported messages, selected by the suffix of the requested media type, e.g. {@code text/csv+gzip}.
+ * <p>
+ * Every chunk of an export is compressed into a separate gzip member or zstd frame. Decompressing the concatenated
+ * members or frames yields the concatenated chunks, so the export can be streamed without holding more than one
+ * chunk in memory.
+ */
+public enum ExportCompression {
+    NONE("") {
+        @Override
+        OutputStream compress(OutputStream outputStream) {
+            return outputStream;
+        }
+    },
+    GZIP("+gzip") {
+        @Override
+        OutputStream compress(OutputStream outputStream) throws IOException {
+            return new GZIPOutputStream(outputStream, BUFFER_SIZE);
+        }
+    },
+    ZSTD("+zstd") {
+        @Override
+        OutputStream compress(OutputStream outputStream) throws IOException {
+            return new ZstdOutputStream(outputStream);
+        }
+    };
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String suffix;
+
+    ExportCompression(String suffix) {
+        this.suffix = suffix;
+    }
+
+    public interface ChunkWriter {
+        void write(OutputStream outputStream) throws IOException;
+    }
+
+    public static ExportCompression of(@Nullable MediaType mediaType) {
+        if (mediaType != null) {
+            final String subtype = mediaType.getSubtype();
+            for (ExportCompression compression : values()) {
+                if (compression != NONE && subtype.endsWith(compression.suffix)) {
+                    return compression;
+                }
+            }
+        }
+        return NONE;
+    }
+
+    abstract OutputStream compress(OutputStream outputStream) throws IOException;
+
+    /**
+     * Writes a chunk to the entity stream. The entity stream stays open, so further chunks can be written to it.
+     *
+     * @param entityStream the stream of the response
+     * @param chunkWriter  writes the uncompressed chunk, it may close the stream it is given
+     */
+    public void write(OutputStream entityStream, ChunkWriter chunkWriter) throws IOException {
+        if (this == NONE) {
+            chunkWriter.write(entityStream);
+            return;
+        }
+        try (OutputStream compressed = compress(CloseShieldOutputStream.wrap(entityStream))) {
+            chunkWriter.write(CloseShieldOutputStream.wrap(compressed));
+        }
+        entityStream.flush();
+    }
+}
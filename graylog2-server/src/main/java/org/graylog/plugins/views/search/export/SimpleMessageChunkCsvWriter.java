@@ -40,14 +40,16 @@ import java.util.List;
 import static java.util.stream.Collectors.toList;
 
 @Provider
-@Produces(MoreMediaTypes.TEXT_CSV)
+@Produces({MoreMediaTypes.TEXT_CSV, MoreMediaTypes.TEXT_CSV_GZIP, MoreMediaTypes.TEXT_CSV_ZSTD})
 public class SimpleMessageChunkCsvWriter extends SimpleMessageChunkWriter {
 
     private static final Logger LOG = LoggerFactory.getLogger(MessageBodyWriter.class);
 
     @Override
     public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
-        return typesMatch(type, genericType) && MoreMediaTypes.TEXT_CSV_TYPE.isCompatible(mediaType);
+        return typesMatch(type, genericType) && (MoreMediaTypes.TEXT_CSV_TYPE.isCompatible(mediaType)
+                || MoreMediaTypes.TEXT_CSV_GZIP_TYPE.isCompatible(mediaType)
+                || MoreMediaTypes.TEXT_CSV_ZSTD_TYPE.isCompatible(mediaType));
     }
 
     @Override
@@ -58,8 +60,11 @@ public class SimpleMessageChunkCsvWriter extends SimpleMessageChunkWriter {
             MediaType mediaType,
             MultivaluedMap<String, Object> httpHeaders,
             OutputStream entityStream) throws IOException, WebApplicationException {
+        ExportCompression.of(mediaType).write(entityStream, outputStream -> writeChunk(chunk, outputStream));
+    }
 
-        OutputStreamWriter writer = new OutputStreamWriter(entityStream, StandardCharsets.UTF_8);
+    private void writeChunk(SimpleMessageChunk chunk, OutputStream outputStream) throws IOException {
+        OutputStreamWriter writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
 
         try (CSVWriter csvWriter = new CSVWriter(writer)) {
 
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.Provider;
+import org.graylog2.rest.MoreMediaTypes;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Writes every message of a chunk as a JSON object on a separate line. The fields of a message are written in the
+ * requested order, fields which are missing from a message are left out.
+ */
+@Provider
+@Produces({MoreMediaTypes.APPLICATION_NDJSON, MoreMediaTypes.APPLICATION_NDJSON_GZIP, MoreMediaTypes.APPLICATION_NDJSON_ZSTD})
+public class SimpleMessageChunkNdjsonWriter extends SimpleMessageChunkWriter {
+    private final ObjectMapper objectMapper;
+
+    @Inject
+    public SimpleMessageChunkNdjsonWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return typesMatch(type, genericType) && (MoreMediaTypes.APPLICATION_NDJSON_TYPE.isCompatible(mediaType)
+                || MoreMediaTypes.APPLICATION_NDJSON_GZIP_TYPE.isCompatible(mediaType)
+                || MoreMediaTypes.APPLICATION_NDJSON_ZSTD_TYPE.isCompatible(mediaType));
+    }
+
+    @Override
+    public void writeTo(
+            SimpleMessageChunk chunk,
+            Class<?> type, Type genericType,
+            Annotation[] annotations,
+            MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders,
+            OutputStream entityStream) throws IOException, WebApplicationException {
+        ExportCompression.of(mediaType).write(entityStream, outputStream -> writeChunk(chunk, outputStream));
+    }
+
+    private void writeChunk(SimpleMessageChunk chunk, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Messages are separated by the line breaks only
+            generator.setRootValueSeparator(null);
+            for (SimpleMessage message : chunk.messages()) {
+                generator.writeStartObject();
+                for (String field : chunk.fieldsInOrder()) {
+                    final Object value = message.valueFor(field);
+                    if (value != null) {
+                        generator.writeFieldName(field);
+                        generator.writeObject(value);
+                    }
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.rest;
+
+import jakarta.inject.Singleton;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the latest request of each user for things like validating the query of a search bar or suggesting
+ * values while typing. Each keystroke supersedes the request for the previous one, so the earlier request can skip
+ * its remaining work, because its response would be discarded anyway.
+ */
+@Singleton
+public class LatestRequests {
+    private record Channel(String username, Object scope) {}
+
+    private final AtomicLong generations = new AtomicLong();
+    private final Map<Channel, Long> latest = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a new request, superseding the running request of the same user with an equal scope.
+     *
+     * @param username the user sending the request
+     * @param scope    identifies requests which supersede each other, e.g. the search bar the request belongs to
+     * @return the handle of the request, which has to be closed when the request is done
+     */
+    public Request start(String username, Object scope) {
+        final Channel channel = new Channel(username, scope);
+        final long generation = generations.incrementAndGet();
+        latest.put(channel, generation);
+        return new Request(channel, generation);
+    }
+
+    public class Request implements AutoCloseable {
+        private final Channel channel;
+        private final long generation;
+
+        private Request(Channel channel, long generation) {
+            this.channel = channel;
+            this.generation = generation;
+        }
+
+        /**
+         * @return true if a newer request of the same user with an equal scope has been started
+         */
+        public boolean isSuperseded() {
+            final Long current = latest.get(channel);
+            return current != null && current != generation;
+        }
+
+        @Override
+        public void close() {
+            latest.remove(channel, generation);
+        }
+    }
+}
@@ -103,11 +103,12 @@ public class MessagesResource extends RestResource implements PluginRestResource
     }
 
     @ApiOperation(
-            value = "Export messages as CSV",
+            value = "Export messages as CSV or NDJSON, optionally compressed with gzip or zstd",
             notes = "Use this endpoint, if you want to configure export parameters freely instead of relying on an existing Search"
     )
     @POST
-    @Produces(MoreMediaTypes.TEXT_CSV)
+    @Produces({MoreMediaTypes.TEXT_CSV, MoreMediaTypes.TEXT_CSV_GZIP, MoreMediaTypes.TEXT_CSV_ZSTD,
+            MoreMediaTypes.APPLICATION_NDJSON, MoreMediaTypes.APPLICATION_NDJSON_GZIP, MoreMediaTypes.APPLICATION_NDJSON_ZSTD})
     @NoAuditEvent("Has custom audit events")
     public ChunkedOutput<SimpleMessageChunk> retrieve(@ApiParam @Valid MessagesRequest rawrequest,
                                                       @Context SearchUser searchUser) {
@@ -152,10 +153,11 @@ public class MessagesResource extends RestResource implements PluginRestResource
                 : resultFormat.withTimeZone(searchUser.timeZone().orElse(FALLBACK_TIME_ZONE));
     }
 
-    @ApiOperation(value = "Export a search result as CSV")
+    @ApiOperation(value = "Export a search result as CSV or NDJSON, optionally compressed with gzip or zstd")
     @POST
     @Path("{searchId}")
-    @Produces(MoreMediaTypes.TEXT_CSV)
+    @Produces({MoreMediaTypes.TEXT_CSV, MoreMediaTypes.TEXT_CSV_GZIP, MoreMediaTypes.TEXT_CSV_ZSTD,
+            MoreMediaTypes.APPLICATION_NDJSON, MoreMediaTypes.APPLICATION_NDJSON_GZIP, MoreMediaTypes.APPLICATION_NDJSON_ZSTD})
     @NoAuditEvent("Has custom audit events")
     public ChunkedOutput<SimpleMessageChunk> retrieveForSearch(
             @ApiParam(value = "ID of an existing Search", name = "searchId") @PathParam("searchId") String searchId,
@@ -29,22 +29,27 @@ import jakarta.ws.rs.core.MediaType;
 import org.apache.shiro.authz.annotation.RequiresAuthentication;
 import org.graylog.plugins.views.search.ExplainResults;
 import org.graylog.plugins.views.search.Parameter;
+import org.graylog.plugins.views.search.engine.BackendQuery;
 import org.graylog.plugins.views.search.elasticsearch.IndexLookup;
 import org.graylog.plugins.views.search.permissions.SearchUser;
 import org.graylog.plugins.views.search.validation.QueryValidationService;
 import org.graylog.plugins.views.search.validation.ValidationMessage;
+import org.graylog.plugins.views.search.validation.ValidationMode;
 import org.graylog.plugins.views.search.validation.ValidationRequest;
 import org.graylog.plugins.views.search.validation.ValidationResponse;
 import org.graylog.plugins.views.search.validation.ValidationStatus;
 import org.graylog.plugins.views.search.validation.ValidationType;
 import org.graylog2.audit.jersey.NoAuditEvent;
 import org.graylog2.plugin.indexer.searches.timeranges.RelativeRange;
+import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
 import org.graylog2.plugin.rest.PluginRestResource;
 import org.graylog2.shared.rest.resources.RestResource;
 
 import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
@@ -61,11 +66,21 @@ public class QueryValidationResource extends RestResource implements PluginRestR
 
     private final IndexLookup indexLookup;
 
+    private final LatestRequests latestRequests;
+
+    /**
+     * Validation requests of a user with the same scope belong to the same search bar.
+     */
+    private record ValidationScope(Optional<String> clientId, Set<String> streams, TimeRange timerange,
+                                   Optional<BackendQuery> filter, ValidationMode validationMode) {}
+
     @Inject
     public QueryValidationResource(final QueryValidationService queryValidationService,
-                                   final IndexLookup indexLookup) {
+                                   final IndexLookup indexLookup,
+                                   final LatestRequests latestRequests) {
         this.queryValidationService = queryValidationService;
         this.indexLookup = indexLookup;
+        this.latestRequests = latestRequests;
     }
 
     @POST
@@ -77,11 +92,29 @@ public class QueryValidationResource extends RestResource implements PluginRestR
             @Context final SearchUser searchUser
     ) {
         ValidationRequest request = prepareRequest(validationRequest, searchUser);
-        final ValidationResponse response = queryValidationService.validate(request);
+        // Without a client ID, requests of different browser tabs can't be told apart
+        if (validationRequest.clientId().isEmpty()) {
+            return validate(request, () -> false);
+        }
+        final ValidationScope scope = new ValidationScope(validationRequest.clientId(), request.streams(),
+                request.timerange(), request.filter(), request.validationMode());
+        try (final LatestRequests.Request latest = latestRequests.start(searchUser.username(), scope)) {
+            return validate(request, latest::isSuperseded);
+        }
+    }
+
+    /**
+     * Validates the request unless the user already typed on, which the client would discard the response for.
+     */
+    private ValidationResponseDTO validate(ValidationRequest request, BooleanSupplier isSuperseded) {
+        final Optional<ValidationResponse> response = queryValidationService.validate(request, isSuperseded);
+        if (response.isEmpty() || isSuperseded.getAsBoolean()) {
+            return ValidationResponseDTO.create(ValidationStatusDTO.SUPERSEDED, List.of(), Set.of());
+        }
         Set<ExplainResults.IndexRangeResult> searchedIndexRanges = indexRanges(request);
         return ValidationResponseDTO.create(
-                toStatus(response.status(), containsWarmIndices(searchedIndexRanges)),
-                toExplanations(response),
+                toStatus(response.get().status(), containsWarmIndices(searchedIndexRanges)),
+                toExplanations(response.get()),
                 searchedIndexRanges);
     }
 
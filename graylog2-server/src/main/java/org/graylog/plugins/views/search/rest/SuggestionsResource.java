@@ -29,11 +29,11 @@ import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import org.apache.shiro.authz.annotation.RequiresAuthentication;
-import org.graylog.plugins.views.search.engine.QuerySuggestionsService;
 import org.graylog.plugins.views.search.engine.suggestions.FieldValueSuggestionMode;
 import org.graylog.plugins.views.search.engine.suggestions.SuggestionFieldType;
 import org.graylog.plugins.views.search.engine.suggestions.SuggestionRequest;
 import org.graylog.plugins.views.search.engine.suggestions.SuggestionResponse;
+import org.graylog.plugins.views.search.engine.suggestions.SuggestionsCache;
 import org.graylog.plugins.views.search.permissions.SearchUser;
 import org.graylog.plugins.views.search.querystrings.LastUsedQueryStringsService;
 import org.graylog.plugins.views.search.querystrings.QueryString;
@@ -77,7 +77,7 @@ public class SuggestionsResource extends RestResource implements PluginRestResou
 
     public static final int SUGGESTIONS_COUNT_MAX = 100;
     private final PermittedStreams permittedStreams;
-    private final QuerySuggestionsService querySuggestionsService;
+    private final SuggestionsCache suggestionsCache;
 
     private final MappedFieldTypesService mappedFieldTypesService;
 
@@ -85,22 +85,30 @@ public class SuggestionsResource extends RestResource implements PluginRestResou
     private final NodeService nodeService;
     private final LastUsedQueryStringsService lastUsedQueryStringsService;
     private final FieldValueSuggestionMode fieldValueSuggestionMode;
+    private final LatestRequests latestRequests;
+
+    /**
+     * Suggestion requests of a user with the same scope belong to the same value being typed.
+     */
+    private record SuggestionScope(String field, Set<String> streams, TimeRange timerange) {}
 
     @Inject
     public SuggestionsResource(PermittedStreams permittedStreams,
-                               QuerySuggestionsService querySuggestionsService,
+                               SuggestionsCache suggestionsCache,
                                MappedFieldTypesService mappedFieldTypesService,
                                EntityTitleService entityTitleService,
                                NodeService nodeService,
                                LastUsedQueryStringsService lastUsedQueryStringsService,
-                               Configuration configuration) {
+                               Configuration configuration,
+                               LatestRequests latestRequests) {
         this.permittedStreams = permittedStreams;
-        this.querySuggestionsService = querySuggestionsService;
+        this.suggestionsCache = suggestionsCache;
         this.mappedFieldTypesService = mappedFieldTypesService;
         this.entityTitleService = entityTitleService;
         this.nodeService = nodeService;
         this.lastUsedQueryStringsService = lastUsedQueryStringsService;
         this.fieldValueSuggestionMode = configuration.getFieldValueSuggestionMode();
+        this.latestRequests = latestRequests;
     }
 
     @GET
@@ -122,40 +130,45 @@ public class SuggestionsResource extends RestResource implements PluginRestResou
         final Set<String> streams = adaptStreams(suggestionsRequest.streams(), searchUser);
         final TimeRange timerange = Optional.ofNullable(suggestionsRequest.timerange()).orElse(defaultTimeRange());
         final String fieldName = suggestionsRequest.field();
-        final SuggestionFieldType suggestionFieldType = getFieldType(streams, timerange, fieldName);
-
-        if (fieldValueSuggestionMode == TEXTUAL_ONLY && suggestionFieldType != SuggestionFieldType.TEXTUAL) {
-            return getNoSuggestionResponse(suggestionsRequest.field(), suggestionsRequest.input());
+        try (final LatestRequests.Request latest = latestRequests.start(searchUser.username(), new SuggestionScope(fieldName, streams, timerange))) {
+            final Set<MappedFieldTypeDTO> fieldTypes = mappedFieldTypesService.fieldTypesByStreamIds(streams, timerange);
+            final Optional<FieldTypes.Type> mappedFieldType = fieldTypes.stream().filter(f -> f.name().equals(fieldName))
+                    .findFirst()
+                    .map(MappedFieldTypeDTO::type);
+            final SuggestionFieldType suggestionFieldType = mappedFieldType
+                    .map(SuggestionFieldType::fromFieldType)
+                    .orElse(SuggestionFieldType.OTHER);
+
+            // Superseded requests skip the search, the user already typed on
+            if (latest.isSuperseded() || (fieldValueSuggestionMode == TEXTUAL_ONLY && suggestionFieldType != SuggestionFieldType.TEXTUAL)) {
+                return getNoSuggestionResponse(suggestionsRequest.field(), suggestionsRequest.input());
+            }
+
+            var fieldType = mappedFieldType.orElse(FieldTypes.Type.createType("unknown", Collections.emptySet()));
+
+            final SuggestionRequest req = SuggestionRequest.builder()
+                    .field(fieldName)
+                    .fieldType(suggestionFieldType)
+                    .input(suggestionsRequest.input())
+                    .streams(streams)
+                    .size(Math.min(suggestionsRequest.size(), SUGGESTIONS_COUNT_MAX))
+                    .timerange(timerange)
+                    .build();
+
+            SuggestionResponse res = suggestionsCache.suggest(searchUser.username(), req);
+            final List<SuggestionEntryDTO> suggestions = augmentSuggestions(res.suggestions().stream()
+                    .map(s -> SuggestionEntryDTO.create(s.getValue(), s.getOccurrence()))
+                    .toList(), fieldType, searchUser);
+            final SuggestionsDTO.Builder suggestionsBuilder = SuggestionsDTO.builder(res.field(), res.input())
+                    .suggestions(suggestions)
+                    .sumOtherDocsCount(res.sumOtherDocsCount());
+
+            res.suggestionError()
+                    .map(e -> SuggestionsErrorDTO.create(e.type(), e.reason()))
+                    .ifPresent(suggestionsBuilder::error);
+
+            return suggestionsBuilder.build();
         }
-
-        final Set<MappedFieldTypeDTO> fieldTypes = mappedFieldTypesService.fieldTypesByStreamIds(streams, timerange);
-        var fieldType = fieldTypes.stream().filter(f -> f.name().equals(fieldName))
-                .findFirst()
-                .map(MappedFieldTypeDTO::type)
-                .orElse(FieldTypes.Type.createType("unknown", Collections.emptySet()));
-
-        final SuggestionRequest req = SuggestionRequest.builder()
-                .field(fieldName)
-                .fieldType(suggestionFieldType)
-                .input(suggestionsRequest.input())
-                .streams(streams)
-                .size(Math.min(suggestionsRequest.size(), SUGGESTIONS_COUNT_MAX))
-                .timerange(timerange)
-                .build();
-
-        SuggestionResponse res = querySuggestionsService.suggest(req);
-        final List<SuggestionEntryDTO> suggestions = augmentSuggestions(res.suggestions().stream()
-                .map(s -> SuggestionEntryDTO.create(s.getValue(), s.getOccurrence()))
-                .toList(), fieldType, searchUser);
-        final SuggestionsDTO.Builder suggestionsBuilder = SuggestionsDTO.builder(res.field(), res.input())
-                .suggestions(suggestions)
-                .sumOtherDocsCount(res.sumOtherDocsCount());
-
-        res.suggestionError()
-                .map(e -> SuggestionsErrorDTO.create(e.type(), e.reason()))
-                .ifPresent(suggestionsBuilder::error);
-
-        return suggestionsBuilder.build();
     }
 
     private List<SuggestionEntryDTO> augmentSuggestions(List<SuggestionEntryDTO> suggestions, FieldTypes.Type fieldType, SearchUser searchUser) {
@@ -218,15 +231,6 @@ public class SuggestionsResource extends RestResource implements PluginRestResou
         return permittedStreams.loadAllMessageStreams(searchUser);
     }
 
-    private SuggestionFieldType getFieldType(Set<String> streams, TimeRange timerange, final String fieldName) {
-        final Set<MappedFieldTypeDTO> fieldTypes = mappedFieldTypesService.fieldTypesByStreamIds(streams, timerange);
-        return fieldTypes.stream().filter(f -> f.name().equals(fieldName))
-                .findFirst()
-                .map(MappedFieldTypeDTO::type)
-                .map(SuggestionFieldType::fromFieldType)
-                .orElse(SuggestionFieldType.OTHER);
-    }
-
     private SuggestionsDTO getNoSuggestionResponse(final String fieldName,
                                                    final String input) {
         return SuggestionsDTO.builder(fieldName, input)
@@ -39,6 +39,7 @@ public abstract class ValidationRequestDTO {
 
     private static final String FIELD_STREAMS = "streams";
     private static final String FIELD_TIMERANGE = "timerange";
+    private static final String FIELD_CLIENT_ID = "client_id";
 
     @JsonProperty
     public abstract BackendQuery query();
@@ -67,6 +68,13 @@ public abstract class ValidationRequestDTO {
     @JsonProperty
     public abstract ValidationModeDTO validationMode();
 
+    /**
+     * Identifies the client sending the request, e.g. a browser tab. Only requests of the same client supersede
+     * each other.
+     */
+    @JsonProperty(FIELD_CLIENT_ID)
+    public abstract Optional<String> clientId();
+
     @AutoValue.Builder
     public abstract static class Builder {
 
@@ -101,6 +109,9 @@ public abstract class ValidationRequestDTO {
         @JsonProperty
         public abstract Builder validationMode(ValidationModeDTO mode);
 
+        @JsonProperty(FIELD_CLIENT_ID)
+        public abstract Builder clientId(@Nullable String clientId);
+
         public abstract ValidationRequestDTO build();
 
         @JsonCreator
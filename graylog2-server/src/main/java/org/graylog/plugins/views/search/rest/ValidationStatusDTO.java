@@ -19,5 +19,9 @@ package org.graylog.plugins.views.search.rest;
 public enum ValidationStatusDTO {
     OK,
     WARNING,
-    ERROR
+    ERROR,
+    /**
+     * A newer validation request of the same search bar has been received, so this one hasn't been validated.
+     */
+    SUPERSEDED
 }
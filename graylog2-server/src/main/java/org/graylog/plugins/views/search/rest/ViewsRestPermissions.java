@@ -31,12 +31,16 @@ public class ViewsRestPermissions implements PluginPermissions {
     public static final String VIEW_EDIT = "view:edit";
     public static final String VIEW_DELETE = "view:delete";
     public static final String DEFAULT_VIEW_SET = "default-view:set";
+    public static final String ROLLUP_DEFINITION_READ = "rollup_definition:read";
+    public static final String ROLLUP_DEFINITION_EDIT = "rollup_definition:edit";
 
     private final ImmutableSet<Permission> permissions = ImmutableSet.of(
             create(VIEW_READ, "Read available views"),
             create(VIEW_EDIT, "Edit view"),
             create(VIEW_DELETE, "Delete view"),
-            create(DEFAULT_VIEW_SET, "Set default view")
+            create(DEFAULT_VIEW_SET, "Set default view"),
+            create(ROLLUP_DEFINITION_READ, "Read rollup definitions"),
+            create(ROLLUP_DEFINITION_EDIT, "Create and delete rollup definitions")
     );
 
     @Override
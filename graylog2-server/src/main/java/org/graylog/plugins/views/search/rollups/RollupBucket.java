@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.rollups;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.graylog2.database.MongoEntity;
+import org.joda.time.DateTime;
+import org.mongojack.Id;
+import org.mongojack.ObjectId;
+
+import javax.annotation.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The materialized aggregates of one interval and group of a {@link RollupDefinition}.
+ *
+ * @param id           the ID of the bucket
+ * @param definitionId the ID of the rollup definition
+ * @param timestamp    the start of the interval
+ * @param key          the values of the group-by fields, as returned by the search backend
+ * @param count        the number of messages
+ * @param fields       the aggregates of the numeric fields by field name
+ */
+public record RollupBucket(@JsonProperty(FIELD_ID) @Nullable @Id @ObjectId String id,
+                           @JsonProperty(FIELD_DEFINITION_ID) String definitionId,
+                           @JsonProperty(FIELD_TIMESTAMP) DateTime timestamp,
+                           @JsonProperty(FIELD_KEY) List<String> key,
+                           @JsonProperty(FIELD_COUNT) long count,
+                           @JsonProperty(FIELD_FIELDS) Map<String, FieldStats> fields) implements MongoEntity {
+    public static final String FIELD_ID = "id";
+    public static final String FIELD_DEFINITION_ID = "definition_id";
+    public static final String FIELD_TIMESTAMP = "timestamp";
+    public static final String FIELD_KEY = "key";
+    public static final String FIELD_COUNT = "count";
+    public static final String FIELD_FIELDS = "fields";
+
+    public RollupBucket {
+        key = key == null ? List.of() : List.copyOf(key);
+        fields = fields == null ? Map.of() : Map.copyOf(fields);
+    }
+
+    /**
+     * The aggregates of a numeric field. Minimum and maximum are null if no message contains the field.
+     *
+     * @param count the number of values of the field
+     * @param sum   the sum of the values
+     * @param min   the smallest value
+     * @param max   the largest value
+     */
+    public record FieldStats(@JsonProperty("count") long count,
+                             @JsonProperty("sum") double sum,
+                             @JsonProperty("min") @Nullable Double min,
+                             @JsonProperty("max") @Nullable Double max) {
+        public static final FieldStats EMPTY = new FieldStats(0, 0, null, null);
+
+        public FieldStats merge(FieldStats other) {
+            return new FieldStats(count + other.count, sum + other.sum,
+                    min == null ? other.min : other.min == null ? min : Double.valueOf(Math.min(min, other.min)),
+                    max == null ? other.max : other.max == null ? max : Double.valueOf(Math.max(max, other.max)));
+        }
+    }
+}
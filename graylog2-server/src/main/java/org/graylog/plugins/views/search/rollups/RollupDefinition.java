@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.rollups;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.graylog2.database.MongoEntity;
+import org.joda.time.DateTime;
+import org.mongojack.Id;
+import org.mongojack.ObjectId;
+
+import javax.annotation.Nullable;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Declares which aggregates are kept for the messages of a set of streams.
+ * <p>
+ * For every interval and combination of values of the group-by fields the message count and the count, sum, minimum
+ * and maximum of each of the numeric fields are materialized.
+ *
+ * @param id                the ID of the definition
+ * @param title             a human-readable title
+ * @param streams           the streams whose messages are aggregated
+ * @param groupBy           the fields to group by, may be empty
+ * @param fields            the numeric fields to aggregate, may be empty
+ * @param intervalMs        the length of the materialized buckets, a multiple of one second
+ * @param maxGroups         the maximum number of groups per bucket, larger buckets stop the materialization
+ * @param materializedUntil the (exclusive) end of the materialized time range, null if nothing has been materialized yet
+ */
+public record RollupDefinition(@JsonProperty(FIELD_ID) @Nullable @Id @ObjectId String id,
+                               @JsonProperty(FIELD_TITLE) String title,
+                               @JsonProperty(FIELD_STREAMS) Set<String> streams,
+                               @JsonProperty(FIELD_GROUP_BY) List<String> groupBy,
+                               @JsonProperty(FIELD_FIELDS) List<String> fields,
+                               @JsonProperty(FIELD_INTERVAL_MS) long intervalMs,
+                               @JsonProperty(FIELD_MAX_GROUPS) int maxGroups,
+                               @JsonProperty(FIELD_MATERIALIZED_UNTIL) @Nullable DateTime materializedUntil) implements MongoEntity {
+    public static final String FIELD_ID = "id";
+    public static final String FIELD_TITLE = "title";
+    public static final String FIELD_STREAMS = "streams";
+    public static final String FIELD_GROUP_BY = "group_by";
+    public static final String FIELD_FIELDS = "fields";
+    public static final String FIELD_INTERVAL_MS = "interval_ms";
+    public static final String FIELD_MAX_GROUPS = "max_groups";
+    public static final String FIELD_MATERIALIZED_UNTIL = "materialized_until";
+
+    public RollupDefinition {
+        streams = streams == null ? Set.of() : Set.copyOf(streams);
+        groupBy = groupBy == null ? List.of() : List.copyOf(groupBy);
+        fields = fields == null ? List.of() : List.copyOf(fields);
+    }
+
+    public RollupDefinition withId(String id) {
+        return new RollupDefinition(id, title, streams, groupBy, fields, intervalMs, maxGroups, materializedUntil);
+    }
+
+    public RollupDefinition withMaterializedUntil(DateTime materializedUntil) {
+        return new RollupDefinition(id, title, streams, groupBy, fields, intervalMs, maxGroups, materializedUntil);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.rollups;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import org.apache.shiro.authz.annotation.RequiresAuthentication;
+import org.apache.shiro.authz.annotation.RequiresPermissions;
+import org.graylog.plugins.views.audit.ViewsAuditEventTypes;
+import org.graylog.plugins.views.search.rest.ViewsRestPermissions;
+import org.graylog2.audit.jersey.AuditEvent;
+import org.graylog2.shared.rest.resources.RestResource;
+
+import jakarta.inject.Inject;
+import jakarta.validation.constraints.NotNull;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+import java.util.List;
+
+@Api(value = "Search/Rollups", description = "Managing rollup definitions for long-range aggregations.")
+@Path("/views/rollups")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+@RequiresAuthentication
+public class RollupDefinitionsResource extends RestResource {
+    private final RollupService rollupService;
+
+    @Inject
+    public RollupDefinitionsResource(RollupService rollupService) {
+        this.rollupService = rollupService;
+    }
+
+    @GET
+    @ApiOperation("Get all rollup definitions")
+    @RequiresPermissions(ViewsRestPermissions.ROLLUP_DEFINITION_READ)
+    public List<RollupDefinition> list() {
+        return rollupService.definitions();
+    }
+
+    @GET
+    @Path("/{id}")
+    @ApiOperation("Get a rollup definition")
+    @RequiresPermissions(ViewsRestPermissions.ROLLUP_DEFINITION_READ)
+    public RollupDefinition get(@ApiParam(name = "id", required = true) @PathParam("id") String id) {
+        return rollupService.get(id).orElseThrow(() -> new NotFoundException("Rollup definition <" + id + "> not found"));
+    }
+
+    @POST
+    @ApiOperation("Create a rollup definition, its rollups are materialized in the background")
+    @RequiresPermissions(ViewsRestPermissions.ROLLUP_DEFINITION_EDIT)
+    @AuditEvent(type = ViewsAuditEventTypes.ROLLUP_DEFINITION_CREATE)
+    public RollupDefinition create(@ApiParam(name = "JSON body", required = true) @NotNull RollupDefinition definition) {
+        if (definition.streams().isEmpty()) {
+            throw new BadRequestException("A rollup definition needs at least one stream.");
+        }
+        if (definition.intervalMs() <= 0 || definition.intervalMs() % 1000 != 0) {
+            throw new BadRequestException("The interval of a rollup definition must be a positive number of seconds.");
+        }
+        if (definition.maxGroups() <= 0) {
+            throw new BadRequestException("The maximum number of groups of a rollup definition must be positive.");
+        }
+        return rollupService.create(definition);
+    }
+
+    @DELETE
+    @Path("/{id}")
+    @ApiOperation("Delete a rollup definition and its rollups")
+    @RequiresPermissions(ViewsRestPermissions.ROLLUP_DEFINITION_EDIT)
+    @AuditEvent(type = ViewsAuditEventTypes.ROLLUP_DEFINITION_DELETE)
+    public void delete(@ApiParam(name = "id", required = true) @PathParam("id") String id) {
+        if (!rollupService.delete(id)) {
+            throw new NotFoundException("Rollup definition <" + id + "> not found");
+        }
+    }
+}
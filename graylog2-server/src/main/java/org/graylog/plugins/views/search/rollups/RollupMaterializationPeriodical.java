@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.rollups;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import org.graylog2.plugin.periodical.Periodical;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the rollups of all rollup definitions up to date as indices are rotated and removed.
+ */
+public class RollupMaterializationPeriodical extends Periodical {
+    private static final Logger LOG = LoggerFactory.getLogger(RollupMaterializationPeriodical.class);
+
+    private final boolean enabled;
+    private final RollupService rollupService;
+    private final RollupMaterializer rollupMaterializer;
+
+    @Inject
+    public RollupMaterializationPeriodical(@Named("views_rollups_enabled") boolean enabled,
+                                           RollupService rollupService,
+                                           RollupMaterializer rollupMaterializer) {
+        this.enabled = enabled;
+        this.rollupService = rollupService;
+        this.rollupMaterializer = rollupMaterializer;
+    }
+
+    @Override
+    public boolean runsForever() {
+        return false;
+    }
+
+    @Override
+    public boolean stopOnGracefulShutdown() {
+        return true;
+    }
+
+    @Override
+    public boolean leaderOnly() {
+        return true;
+    }
+
+    @Override
+    public boolean startOnThisNode() {
+        return enabled;
+    }
+
+    @Override
+    public boolean isDaemon() {
+        return true;
+    }
+
+    @Override
+    public int getInitialDelaySeconds() {
+        return 60;
+    }
+
+    @Override
+    public int getPeriodSeconds() {
+        return 60;
+    }
+
+    @Override
+    protected Logger getLogger() {
+        return LOG;
+    }
+
+    @Override
+    public void doRun() {
+        for (RollupDefinition definition : rollupService.definitions()) {
+            try {
+                final DateTime now = DateTime.now(DateTimeZone.UTC);
+                rollupMaterializer.prune(definition, now);
+                rollupMaterializer.materialize(definition, now);
+            } catch (Exception e) {
+                LOG.warn("Couldn't materialize rollups of rollup definition <{}>: {}", definition.id(), e.getMessage());
+                LOG.debug("Materialization of rollup definition <{}> failed", definition.id(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.rollups;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Uninterruptibles;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.QueryResult;
+import org.graylog.plugins.views.search.Search;
+import org.graylog.plugins.views.search.SearchJob;
+import org.graylog.plugins.views.search.SearchType;
+import org.graylog.plugins.views.search.db.SearchJobService;
+import org.graylog.plugins.views.search.elasticsearch.ElasticsearchQueryString;
+import org.graylog.plugins.views.search.elasticsearch.IndexLookup;
+import org.graylog.plugins.views.search.engine.QueryEngine;
+import org.graylog.plugins.views.search.filter.StreamFilter;
+import org.graylog.plugins.views.search.searchtypes.pivot.BucketSpec;
+import org.graylog.plugins.views.search.searchtypes.pivot.Pivot;
+import org.graylog.plugins.views.search.searchtypes.pivot.PivotResult;
+import org.graylog.plugins.views.search.searchtypes.pivot.SeriesSpec;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.Time;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.TimeUnitInterval;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.Values;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Count;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Max;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Min;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Sum;
+import org.graylog2.indexer.indices.Indices;
+import org.graylog2.indexer.ranges.IndexRange;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.graylog.plugins.views.search.SearchJob.NO_CANCELLATION;
+
+/**
+ * Materializes the buckets of rollup definitions for time ranges whose messages can't change anymore.
+ * <p>
+ * A time range can't change anymore if it ends before the creation of the current write indices of the streams of a
+ * definition. Like {@link org.graylog.plugins.views.search.engine.SearchTypeResultCache} this assumes that messages
+ * are written to the write index shortly after their timestamp.
+ * <p>
+ * The buckets are computed by the search backend with a pivot search, so their group keys are exactly the keys the
+ * backend returns for the pivots which are answered from the rollups later on.
+ */
+public class RollupMaterializer {
+    private static final Logger LOG = LoggerFactory.getLogger(RollupMaterializer.class);
+
+    static final DateTimeFormatter TIME_KEY_FORMAT = ISODateTimeFormat.dateTime().withZoneUTC();
+    static final String TIMESTAMP_FIELD = Message.FIELD_TIMESTAMP;
+
+    private static final String SEARCH_OWNER = "views-rollup-materializer";
+    private static final String QUERY_ID = "rollup-query";
+    private static final String PIVOT_ID = "rollup-pivot";
+    private static final String COUNT_ID = "count()";
+    private static final int MAX_BUCKETS_PER_SEARCH = 10_000;
+    private static final int MAX_SEARCHES_PER_RUN = 50;
+    private static final long SEARCH_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final RollupService rollupService;
+    private final QueryEngine queryEngine;
+    private final SearchJobService searchJobService;
+    private final IndexLookup indexLookup;
+    private final Indices indices;
+    private final RollupRetention retention;
+    private final Duration backfill;
+
+    @Inject
+    public RollupMaterializer(RollupService rollupService,
+                              QueryEngine queryEngine,
+                              SearchJobService searchJobService,
+                              IndexLookup indexLookup,
+                              Indices indices,
+                              RollupRetention retention,
+                              @Named("views_rollups_backfill") Duration backfill) {
+        this.rollupService = rollupService;
+        this.queryEngine = queryEngine;
+        this.searchJobService = searchJobService;
+        this.indexLookup = indexLookup;
+        this.indices = indices;
+        this.retention = retention;
+        this.backfill = backfill;
+    }
+
+    /**
+     * Materializes the buckets of the given definition up to the start of its mutable time range. Large time ranges
+     * are split into several searches and the progress is stored after each of them.
+     *
+     * @param definition the definition
+     * @param now        the current time
+     */
+    public void materialize(RollupDefinition definition, DateTime now) throws ExecutionException, TimeoutException {
+        final long intervalMs = definition.intervalMs();
+        DateTime from = definition.materializedUntil() != null
+                ? definition.materializedUntil()
+                : alignDown(now.minus(backfill), intervalMs);
+        final DateTime until = alignDown(immutableUntil(definition.streams(), from, now), intervalMs);
+        final long searchMs = intervalMs * Math.max(1, MAX_BUCKETS_PER_SEARCH / Math.max(1, definition.maxGroups()));
+
+        RollupDefinition current = definition;
+        for (int i = 0; i < MAX_SEARCHES_PER_RUN && from.isBefore(until); i++) {
+            final DateTime to = from.plus(searchMs).isBefore(until) ? from.plus(searchMs) : until;
+            LOG.debug("Materializing rollup <{}> from {} to {}", definition.id(), from, to);
+            final List<RollupBucket> buckets = toBuckets(current, search(current, from, to));
+            rollupService.append(current, buckets, to);
+            current = current.withMaterializedUntil(to);
+            from = to;
+        }
+    }
+
+    /**
+     * Deletes the buckets of the given definition whose messages have been removed from the indices, e.g. by index
+     * retention. The bucket of the interval in which the oldest kept messages fall is deleted as well, because it
+     * contains removed messages.
+     *
+     * @param definition the definition
+     * @param now        the current time
+     */
+    public void prune(RollupDefinition definition, DateTime now) {
+        retention.retainedFrom(definition.streams(), AbsoluteRange.create(new DateTime(0L, DateTimeZone.UTC), now))
+                .ifPresent(retainedFrom -> {
+                    final long deleted = rollupService.deleteBuckets(definition.id(), alignUp(retainedFrom, definition.intervalMs()));
+                    if (deleted > 0) {
+                        LOG.debug("Deleted {} rollup buckets of rollup <{}> before {}", deleted, definition.id(), retainedFrom);
+                    }
+                });
+    }
+
+    /**
+     * Returns the time until which the messages of the given streams can't change anymore.
+     */
+    private DateTime immutableUntil(Set<String> streams, DateTime from, DateTime now) {
+        DateTime until = now;
+        for (IndexRange indexRange : indexLookup.indexRangesForStreamsInTimeRange(streams, AbsoluteRange.create(from, now))) {
+            if (indexRange.begin().getMillis() != 0 || indexRange.end().getMillis() != 0) {
+                continue;
+            }
+            // A write index or an index whose range hasn't been calculated yet
+            final DateTime creationDate = indices.indexCreationDate(indexRange.indexName()).orElse(null);
+            if (creationDate == null) {
+                return from;
+            }
+            until = creationDate.isBefore(until) ? creationDate : until;
+        }
+        return until;
+    }
+
+    private PivotResult search(RollupDefinition definition, DateTime from, DateTime to) throws ExecutionException, TimeoutException {
+        final Query query = Query.builder()
+                .id(QUERY_ID)
+                .query(ElasticsearchQueryString.empty())
+                // The end of absolute time ranges is inclusive
+                .timerange(AbsoluteRange.create(from, to.minus(1)))
+                .filter(StreamFilter.anyIdOf(definition.streams().toArray(new String[0])))
+                .searchTypes(ImmutableSet.of(materializationPivot(definition)))
+                .build();
+        final Search search = Search.builder()
+                .queries(ImmutableSet.of(query))
+                .build();
+        final SearchJob searchJob = queryEngine.execute(searchJobService.create(search, SEARCH_OWNER, NO_CANCELLATION),
+                Set.of(), DateTimeZone.UTC);
+        Uninterruptibles.getUninterruptibly(searchJob.getResultFuture(), SEARCH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        final QueryResult queryResult = searchJob.results().get(QUERY_ID);
+        if (!searchJob.getErrors().isEmpty() || queryResult == null || !(queryResult.searchTypes().get(PIVOT_ID) instanceof PivotResult)) {
+            throw new ExecutionException(new IllegalStateException("Rollup search failed: " + searchJob.getErrors()));
+        }
+        return (PivotResult) queryResult.searchTypes().get(PIVOT_ID);
+    }
+
+    /**
+     * The pivot which computes the buckets of the given definition.
+     */
+    static Pivot materializationPivot(RollupDefinition definition) {
+        final List<BucketSpec> rowGroups = new ArrayList<>();
+        rowGroups.add(Time.builder()
+                .field(TIMESTAMP_FIELD)
+                .interval(TimeUnitInterval.Builder.builder().timeunit(definition.intervalMs() / 1000 + "s").build())
+                .build());
+        if (!definition.groupBy().isEmpty()) {
+            rowGroups.add(Values.builder()
+                    .fields(definition.groupBy())
+                    .limit(definition.maxGroups())
+                    .build());
+        }
+
+        final List<SeriesSpec> series = new ArrayList<>();
+        series.add(Count.builder().id(COUNT_ID).build());
+        for (String field : definition.fields()) {
+            series.add(Count.builder().id(seriesId(Count.NAME, field)).field(field).build());
+            series.add(Sum.builder().id(seriesId(Sum.NAME, field)).field(field).build());
+            series.add(Min.builder().id(seriesId(Min.NAME, field)).field(field).build());
+            series.add(Max.builder().id(seriesId(Max.NAME, field)).field(field).build());
+        }
+
+        return Pivot.builder()
+                .id(PIVOT_ID)
+                .rowGroups(rowGroups)
+                .series(series)
+                .rollup(false)
+                .build();
+    }
+
+    /**
+     * Converts the result of the {@link #materializationPivot(RollupDefinition) materialization pivot} to buckets.
+     *
+     * @throws IllegalStateException if an interval contains the maximum number of groups, because the backend might
+     *                               have omitted groups in this case
+     */
+    static List<RollupBucket> toBuckets(RollupDefinition definition, SearchType.Result result) {
+        final List<RollupBucket> buckets = new ArrayList<>();
+        final Map<DateTime, Integer> groupsPerInterval = new HashMap<>();
+        for (PivotResult.Row row : ((PivotResult) result).rows()) {
+            if (row.key().isEmpty()) {
+                continue;
+            }
+            final DateTime timestamp = DateTime.parse(row.key().get(0)).withZone(DateTimeZone.UTC);
+            if (!definition.groupBy().isEmpty() && groupsPerInterval.merge(timestamp, 1, Integer::sum) >= definition.maxGroups()) {
+                throw new IllegalStateException(String.format(Locale.ENGLISH,
+                        "Interval starting at %s has at least %d groups, increase the maximum number of groups of the rollup definition.",
+                        timestamp, definition.maxGroups()));
+            }
+
+            final Map<String, Number> values = new HashMap<>();
+            row.values().forEach(value -> {
+                if (value.value() instanceof Number number && !value.key().isEmpty()) {
+                    values.put(value.key().get(value.key().size() - 1), number);
+                }
+            });
+            final long count = longValue(values.get(COUNT_ID));
+            if (count == 0) {
+                // Empty intervals between non-empty ones
+                continue;
+            }
+
+            final Map<String, RollupBucket.FieldStats> fields = new HashMap<>();
+            for (String field : definition.fields()) {
+                final long fieldCount = longValue(values.get(seriesId(Count.NAME, field)));
+                fields.put(field, fieldCount == 0
+                        ? RollupBucket.FieldStats.EMPTY
+                        : new RollupBucket.FieldStats(fieldCount,
+                        doubleValue(values.get(seriesId(Sum.NAME, field))),
+                        doubleValue(values.get(seriesId(Min.NAME, field))),
+                        doubleValue(values.get(seriesId(Max.NAME, field)))));
+            }
+            buckets.add(new RollupBucket(null, definition.id(), timestamp, row.key().subList(1, row.key().size()), count, fields));
+        }
+        return buckets;
+    }
+
+    static DateTime alignDown(DateTime time, long intervalMs) {
+        return new DateTime(Math.floorDiv(time.getMillis(), intervalMs) * intervalMs, DateTimeZone.UTC);
+    }
+
+    static DateTime alignUp(DateTime time, long intervalMs) {
+        final DateTime aligned = alignDown(time, intervalMs);
+        return aligned.getMillis() == time.getMillis() ? aligned : aligned.plus(intervalMs);
+    }
+
+    private static String seriesId(String type, String field) {
+        return type + "(" + field + ")";
+    }
+
+    private static long longValue(Number number) {
+        return number == null ? 0 : number.longValue();
+    }
+
+    private static double doubleValue(Number number) {
+        return number == null ? 0 : number.doubleValue();
+    }
+}
@@ -0,0 +1,549 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.rollups;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.graylog.plugins.views.search.Filter;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.QueryResult;
+import org.graylog.plugins.views.search.SearchType;
+import org.graylog.plugins.views.search.aggregations.MissingBucketConstants;
+import org.graylog.plugins.views.search.elasticsearch.ElasticsearchQueryString;
+import org.graylog.plugins.views.search.engine.BackendQuery;
+import org.graylog.plugins.views.search.filter.OrFilter;
+import org.graylog.plugins.views.search.filter.StreamFilter;
+import org.graylog.plugins.views.search.searchtypes.pivot.Pivot;
+import org.graylog.plugins.views.search.searchtypes.pivot.PivotResult;
+import org.graylog.plugins.views.search.searchtypes.pivot.SeriesSpec;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.Time;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.TimeUnitInterval;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.Values;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Average;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Count;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Max;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Min;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Sum;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.graylog2.plugin.indexer.searches.timeranges.RelativeRange;
+import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+
+import static org.graylog.plugins.views.search.rollups.RollupMaterializer.TIMESTAMP_FIELD;
+import static org.graylog.plugins.views.search.rollups.RollupMaterializer.TIME_KEY_FORMAT;
+import static org.graylog.plugins.views.search.rollups.RollupMaterializer.alignDown;
+import static org.graylog.plugins.views.search.rollups.RollupMaterializer.alignUp;
+
+/**
+ * Answers pivots over long time ranges partly from materialized rollups.
+ * <p>
+ * A pivot is compatible with a {@link RollupDefinition} if its query only filters by the streams of the definition,
+ * it groups by a fixed time interval which is a multiple of the interval of the definition, optionally followed by
+ * the group-by fields of the definition, and it only uses mergeable series over the fields of the definition. The
+ * whole intervals of its time range which have been materialized and whose messages are still kept in the indices are
+ * answered from the rollups. The pivot is only executed for the remaining time range at the end and, if the rollups
+ * don't start at the beginning of the time range, for the time range before them. The rows of all parts are merged
+ * into a result equal to the one of the original pivot.
+ */
+@Singleton
+public class RollupQueryRewriter {
+    private static final Logger LOG = LoggerFactory.getLogger(RollupQueryRewriter.class);
+
+    static final String HEAD_SUFFIX = "-rollup-head";
+    private static final String HELPER_PREFIX = "rollup-helper-";
+    private static final String KEY_SEPARATOR = "\u2E31";
+    private static final Map<String, Long> UNIT_MILLIS = Map.of(
+            "s", TimeUnit.SECONDS.toMillis(1),
+            "m", TimeUnit.MINUTES.toMillis(1),
+            "h", TimeUnit.HOURS.toMillis(1),
+            "d", TimeUnit.DAYS.toMillis(1));
+
+    /**
+     * A query with the compatible pivots replaced by the pivots for the parts which aren't answered from rollups.
+     *
+     * @param query    the query to execute
+     * @param partials the parts answered from rollups by pivot ID
+     */
+    public record Rewrite(Query query, Map<String, Partial> partials) {
+        public static Rewrite none(Query query) {
+            return new Rewrite(query, Map.of());
+        }
+    }
+
+    /**
+     * The part of a pivot which is answered from rollups.
+     *
+     * @param pivot      the original pivot
+     * @param range      the time range of the original pivot
+     * @param from       the start of the part answered from rollups (inclusive)
+     * @param to         the end of the part answered from rollups (exclusive)
+     * @param intervalMs the interval of the pivot
+     * @param rows       the rows of the part
+     * @param totals     the aggregates of all messages of the part
+     */
+    public record Partial(Pivot pivot, AbsoluteRange range, DateTime from, DateTime to, long intervalMs,
+                          List<PivotResult.Row> rows, Cell totals) {
+        boolean hasHead() {
+            return range.getFrom().isBefore(from);
+        }
+    }
+
+    /**
+     * Mergeable aggregates of a set of messages.
+     */
+    public record Cell(long count, Map<String, RollupBucket.FieldStats> fields) {
+        static final Cell EMPTY = new Cell(0, Map.of());
+
+        Cell merge(long otherCount, Map<String, RollupBucket.FieldStats> otherFields) {
+            final Map<String, RollupBucket.FieldStats> mergedFields = new HashMap<>(fields);
+            otherFields.forEach((field, stats) -> mergedFields.merge(field, stats, RollupBucket.FieldStats::merge));
+            return new Cell(count + otherCount, mergedFields);
+        }
+
+        Cell merge(Cell other) {
+            return merge(other.count(), other.fields());
+        }
+
+        RollupBucket.FieldStats field(String field) {
+            return fields.getOrDefault(field, RollupBucket.FieldStats.EMPTY);
+        }
+    }
+
+    private final boolean enabled;
+    private final RollupService rollupService;
+    private final RollupRetention retention;
+    private final Supplier<List<RollupDefinition>> definitions;
+
+    @Inject
+    public RollupQueryRewriter(@Named("views_rollups_enabled") boolean enabled,
+                               RollupService rollupService,
+                               RollupRetention retention) {
+        this.enabled = enabled;
+        this.rollupService = rollupService;
+        this.retention = retention;
+        this.definitions = Suppliers.memoizeWithExpiration(rollupService::definitions, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Rewrites the compatible pivots of the given query.
+     */
+    public Rewrite rewrite(Query query) {
+        if (!enabled || !onlyFiltersByStreams(query)) {
+            return Rewrite.none(query);
+        }
+        final Map<String, Partial> partials = new HashMap<>();
+        final Set<SearchType> searchTypes = new LinkedHashSet<>();
+        for (SearchType searchType : query.searchTypes()) {
+            final Optional<Partial> partial = searchType instanceof Pivot pivot ? partial(query, pivot) : Optional.empty();
+            if (partial.isPresent()) {
+                LOG.debug("[{}] Answering pivot {} from rollups between {} and {}", query.id(), searchType.id(), partial.get().from(), partial.get().to());
+                partials.put(searchType.id(), partial.get());
+                searchTypes.addAll(remainingPivots(partial.get()));
+            } else {
+                searchTypes.add(searchType);
+            }
+        }
+        if (partials.isEmpty()) {
+            return Rewrite.none(query);
+        }
+        return new Rewrite(query.toBuilder().searchTypes(ImmutableSet.copyOf(searchTypes)).build(), partials);
+    }
+
+    /**
+     * Combines the results of the pivots of the rewritten query with the parts answered from rollups.
+     */
+    public QueryResult merge(Rewrite rewrite, QueryResult result) {
+        if (rewrite.partials().isEmpty()) {
+            return result;
+        }
+        final Map<String, SearchType.Result> searchTypes = new HashMap<>(result.searchTypes());
+        rewrite.partials().forEach((id, partial) -> {
+            final SearchType.Result head = searchTypes.remove(id + HEAD_SUFFIX);
+            // Failed parts have been reported as errors already
+            if (searchTypes.get(id) instanceof PivotResult tail && (!partial.hasHead() || head instanceof PivotResult)) {
+                searchTypes.put(id, merge(partial, (PivotResult) head, tail));
+            }
+        });
+        return result.toBuilder().searchTypes(searchTypes).build();
+    }
+
+    private static boolean onlyFiltersByStreams(Query query) {
+        return query.query() instanceof ElasticsearchQueryString queryString && queryString.isEmpty()
+                && (query.filters() == null || query.filters().isEmpty())
+                && query.globalOverride().isEmpty()
+                && (query.filter() == null || isStreamFilter(query.filter()));
+    }
+
+    private static boolean isStreamFilter(Filter filter) {
+        if (filter instanceof StreamFilter) {
+            return true;
+        }
+        return filter instanceof OrFilter && filter.filters() != null && filter.filters().stream().allMatch(RollupQueryRewriter::isStreamFilter);
+    }
+
+    private static boolean isEmpty(Optional<BackendQuery> query) {
+        return query.isEmpty() || query.get() instanceof ElasticsearchQueryString queryString && queryString.isEmpty();
+    }
+
+    private Optional<Partial> partial(Query query, Pivot pivot) {
+        if (pivot.filter() != null || !pivot.filters().isEmpty() || !isEmpty(pivot.query())
+                || !pivot.columnGroups().isEmpty() || !pivot.sort().isEmpty()
+                || pivot.rowGroups().isEmpty() || pivot.rowGroups().size() > 2
+                || !(pivot.rowGroups().get(0) instanceof Time time) || !time.fields().equals(List.of(TIMESTAMP_FIELD))) {
+            return Optional.empty();
+        }
+        final Values values;
+        if (pivot.rowGroups().size() == 1) {
+            values = null;
+        } else if (pivot.rowGroups().get(1) instanceof Values pivotValues) {
+            values = pivotValues;
+        } else {
+            return Optional.empty();
+        }
+        final Optional<Long> intervalMs = intervalMs(time);
+        final TimeRange timeRange = query.effectiveTimeRange(pivot);
+        if (intervalMs.isEmpty() || timeRange instanceof RelativeRange relativeRange && relativeRange.isAllMessages()
+                || timeRange.getFrom() == null || timeRange.getTo() == null
+                || !pivot.streams().isEmpty() && query.filter() != null) {
+            return Optional.empty();
+        }
+        final Set<String> streams = query.effectiveStreams(pivot);
+
+        return definitions.get().stream()
+                .filter(definition -> definition.materializedUntil() != null
+                        && definition.streams().equals(streams)
+                        && intervalMs.get() % definition.intervalMs() == 0
+                        && (values == null || values.fields().equals(definition.groupBy()))
+                        && pivot.series().stream().allMatch(series -> isSupported(series, definition)))
+                .max(Comparator.comparingLong(RollupDefinition::intervalMs))
+                .flatMap(definition -> partial(pivot, values, intervalMs.get(),
+                        AbsoluteRange.create(timeRange.getFrom(), timeRange.getTo()), definition));
+    }
+
+    private Optional<Partial> partial(Pivot pivot, @Nullable Values values, long intervalMs, AbsoluteRange range, RollupDefinition definition) {
+        // Rollups of messages removed by index retention might not have been pruned yet
+        final Optional<DateTime> retainedFrom = retention.retainedFrom(definition.streams(), range);
+        if (retainedFrom.isEmpty()) {
+            return Optional.empty();
+        }
+        final DateTime from = alignUp(retainedFrom.get().isAfter(range.getFrom()) ? retainedFrom.get() : range.getFrom(), intervalMs);
+        final DateTime rangeEnd = alignDown(range.getTo(), intervalMs);
+        final DateTime materializedEnd = alignDown(definition.materializedUntil(), intervalMs);
+        final DateTime to = rangeEnd.isBefore(materializedEnd) ? rangeEnd : materializedEnd;
+        if (!from.isBefore(to)) {
+            return Optional.empty();
+        }
+
+        final Map<Long, Map<List<String>, Cell>> cells = new TreeMap<>();
+        Cell totals = Cell.EMPTY;
+        for (RollupBucket bucket : rollupService.buckets(definition.id(), from, to)) {
+            final long interval = alignDown(bucket.timestamp(), intervalMs).getMillis();
+            final List<String> key = values == null ? List.of() : bucket.key();
+            cells.computeIfAbsent(interval, i -> new HashMap<>())
+                    .merge(key, new Cell(bucket.count(), bucket.fields()), Cell::merge);
+            totals = totals.merge(bucket.count(), bucket.fields());
+        }
+
+        final List<PivotResult.Row> rows = new ArrayList<>();
+        cells.forEach((interval, cellsByKey) -> {
+            final String timeKey = TIME_KEY_FORMAT.print(interval);
+            if (values == null) {
+                rows.add(leafRow(pivot, List.of(timeKey), cellsByKey.get(List.<String>of())));
+            } else {
+                groups(values, cellsByKey).forEach(key -> rows.add(leafRow(pivot,
+                        ImmutableList.<String>builder().add(timeKey).addAll(key).build(), cellsByKey.get(key))));
+            }
+        });
+        return Optional.of(new Partial(pivot, range, from, to, intervalMs, rows, totals));
+    }
+
+    /**
+     * Returns the group keys of an interval in the order and number the search backend would return them: Groups
+     * with at least one value are ordered by count and key and limited, the group without any values comes last.
+     */
+    private static List<List<String>> groups(Values values, Map<List<String>, Cell> cellsByKey) {
+        final int limit = values.limit() == null ? Values.DEFAULT_LIMIT : values.limit();
+        final Comparator<List<String>> order = Comparator.<List<String>>comparingLong(key -> cellsByKey.get(key).count())
+                .reversed()
+                .thenComparing(key -> Joiner.on(KEY_SEPARATOR).join(key));
+        final List<List<String>> groups = new ArrayList<>();
+        cellsByKey.keySet().stream()
+                .filter(key -> !key.stream().allMatch(MissingBucketConstants.MISSING_BUCKET_NAME::equals))
+                .filter(key -> !values.skipEmptyValues() || !key.contains(MissingBucketConstants.MISSING_BUCKET_NAME))
+                .sorted(order)
+                .limit(limit)
+                .forEach(groups::add);
+        if (!values.skipEmptyValues()) {
+            cellsByKey.keySet().stream()
+                    .filter(key -> key.stream().allMatch(MissingBucketConstants.MISSING_BUCKET_NAME::equals))
+                    .forEach(groups::add);
+        }
+        return groups;
+    }
+
+    /**
+     * The pivots for the parts of the time range of a pivot which aren't answered from rollups.
+     */
+    private static List<Pivot> remainingPivots(Partial partial) {
+        final Pivot pivot = withHelperSeries(partial.pivot());
+        final List<Pivot> pivots = new ArrayList<>();
+        pivots.add(pivot.toBuilder()
+                .timerange(AbsoluteRange.create(partial.to(), partial.range().getTo()))
+                .build());
+        if (partial.hasHead()) {
+            // The end of absolute time ranges is inclusive
+            pivots.add(pivot.toBuilder()
+                    .id(pivot.id() + HEAD_SUFFIX)
+                    .timerange(AbsoluteRange.create(partial.range().getFrom(), partial.from().minus(1)))
+                    .build());
+        }
+        return pivots;
+    }
+
+    /**
+     * Averages of the whole time range can't be computed from the averages of its parts, so the sums and counts of
+     * the fields are needed for the totals.
+     */
+    private static Pivot withHelperSeries(Pivot pivot) {
+        if (!pivot.rollup()) {
+            return pivot;
+        }
+        final List<SeriesSpec> series = new ArrayList<>(pivot.series());
+        pivot.series().stream()
+                .filter(Average.class::isInstance)
+                .map(average -> ((Average) average).field())
+                .distinct()
+                .forEach(field -> {
+                    series.add(Sum.builder().id(HELPER_PREFIX + Sum.NAME + "(" + field + ")").field(field).build());
+                    series.add(Count.builder().id(HELPER_PREFIX + Count.NAME + "(" + field + ")").field(field).build());
+                });
+        return series.size() == pivot.series().size() ? pivot : pivot.toBuilder().series(series).build();
+    }
+
+    private static PivotResult merge(Partial partial, @Nullable PivotResult head, PivotResult tail) {
+        final Pivot pivot = partial.pivot();
+        final List<PivotResult.Row> rows = new ArrayList<>();
+        Cell totals = partial.totals();
+        long total = partial.totals().count() + tail.total();
+        if (head != null) {
+            rows.addAll(leafRows(head));
+            totals = totals.merge(totalsOf(head, withHelperSeries(pivot)));
+            total += head.total();
+        }
+        rows.addAll(partial.rows());
+        rows.addAll(leafRows(tail));
+        totals = totals.merge(totalsOf(tail, withHelperSeries(pivot)));
+
+        final PivotResult.Builder result = PivotResult.builder()
+                .id(pivot.id())
+                .effectiveTimerange(partial.range())
+                .total(total)
+                .rows(ImmutableList.copyOf(pivot.rowGroups().size() == 1 ? withEmptyIntervals(pivot, rows, partial.intervalMs()) : rows));
+        pivot.name().ifPresent(result::name);
+        if (pivot.rollup()) {
+            result.addRow(row(pivot, List.of(), totals, "non-leaf", "row-inner"));
+        }
+        return result.build();
+    }
+
+    /**
+     * The search backend returns a row for every interval between the first and the last non-empty interval.
+     */
+    private static List<PivotResult.Row> withEmptyIntervals(Pivot pivot, List<PivotResult.Row> rows, long intervalMs) {
+        final List<PivotResult.Row> result = new ArrayList<>();
+        Long previous = null;
+        for (PivotResult.Row row : rows) {
+            final long interval = DateTime.parse(row.key().get(0)).getMillis();
+            for (long missing = previous == null ? interval : previous + intervalMs; missing < interval; missing += intervalMs) {
+                result.add(leafRow(pivot, List.of(TIME_KEY_FORMAT.print(missing)), Cell.EMPTY));
+            }
+            result.add(row);
+            previous = interval;
+        }
+        return result;
+    }
+
+    private static List<PivotResult.Row> leafRows(PivotResult result) {
+        return result.rows().stream()
+                .filter(row -> !row.key().isEmpty())
+                .map(RollupQueryRewriter::withoutHelperSeries)
+                .toList();
+    }
+
+    private static PivotResult.Row withoutHelperSeries(PivotResult.Row row) {
+        return PivotResult.Row.builder()
+                .key(row.key())
+                .source(row.source())
+                .values(row.values().stream()
+                        .filter(value -> value.key().isEmpty() || !value.key().get(value.key().size() - 1).startsWith(HELPER_PREFIX))
+                        .collect(ImmutableList.toImmutableList()))
+                .build();
+    }
+
+    /**
+     * Reads the aggregates of all messages from the totals row of a result.
+     */
+    private static Cell totalsOf(PivotResult result, Pivot pivot) {
+        final Optional<PivotResult.Row> totalsRow = result.rows().stream().filter(row -> row.key().isEmpty()).findFirst();
+        if (totalsRow.isEmpty()) {
+            return Cell.EMPTY;
+        }
+        final Map<String, Number> values = new HashMap<>();
+        totalsRow.get().values().forEach(value -> {
+            if (value.value() instanceof Number number && !value.key().isEmpty()) {
+                values.put(value.key().get(value.key().size() - 1), number);
+            }
+        });
+
+        long count = 0;
+        final Map<String, RollupBucket.FieldStats> fields = new HashMap<>();
+        for (SeriesSpec series : pivot.series()) {
+            final Number number = values.get(series.id());
+            if (number == null) {
+                continue;
+            }
+            if (series instanceof Count countSeries) {
+                if (countSeries.field().isEmpty()) {
+                    count = number.longValue();
+                } else {
+                    fields.compute(countSeries.field().get(), (field, stats) -> withCount(stats, number.longValue()));
+                }
+            } else if (series instanceof Sum sum) {
+                fields.compute(sum.field(), (field, stats) -> withSum(stats, number.doubleValue()));
+            } else if (series instanceof Min min && Double.isFinite(number.doubleValue())) {
+                fields.compute(min.field(), (field, stats) -> withMin(stats, number.doubleValue()));
+            } else if (series instanceof Max max && Double.isFinite(number.doubleValue())) {
+                fields.compute(max.field(), (field, stats) -> withMax(stats, number.doubleValue()));
+            }
+        }
+        return new Cell(count, fields);
+    }
+
+    private static RollupBucket.FieldStats withCount(@Nullable RollupBucket.FieldStats stats, long count) {
+        final RollupBucket.FieldStats s = stats == null ? RollupBucket.FieldStats.EMPTY : stats;
+        return new RollupBucket.FieldStats(count, s.sum(), s.min(), s.max());
+    }
+
+    private static RollupBucket.FieldStats withSum(@Nullable RollupBucket.FieldStats stats, double sum) {
+        final RollupBucket.FieldStats s = stats == null ? RollupBucket.FieldStats.EMPTY : stats;
+        return new RollupBucket.FieldStats(s.count(), sum, s.min(), s.max());
+    }
+
+    private static RollupBucket.FieldStats withMin(@Nullable RollupBucket.FieldStats stats, double min) {
+        final RollupBucket.FieldStats s = stats == null ? RollupBucket.FieldStats.EMPTY : stats;
+        return new RollupBucket.FieldStats(s.count(), s.sum(), min, s.max());
+    }
+
+    private static RollupBucket.FieldStats withMax(@Nullable RollupBucket.FieldStats stats, double max) {
+        final RollupBucket.FieldStats s = stats == null ? RollupBucket.FieldStats.EMPTY : stats;
+        return new RollupBucket.FieldStats(s.count(), s.sum(), s.min(), max);
+    }
+
+    private static PivotResult.Row leafRow(Pivot pivot, List<String> key, Cell cell) {
+        return row(pivot, key, cell, "leaf", "row-leaf");
+    }
+
+    private static PivotResult.Row row(Pivot pivot, List<String> key, Cell cell, String rowSource, String valueSource) {
+        final PivotResult.Row.Builder row = PivotResult.Row.builder()
+                .key(ImmutableList.copyOf(key))
+                .source(rowSource);
+        pivot.series().forEach(series -> row.addValue(PivotResult.Value.create(List.of(series.id()), value(series, cell), true, valueSource)));
+        return row.build();
+    }
+
+    /**
+     * Computes the value of a series like the search backend does, including the values for empty intervals.
+     */
+    private static Object value(SeriesSpec series, Cell cell) {
+        if (series instanceof Count count) {
+            return count.field().map(field -> cell.field(field).count()).orElse(cell.count());
+        }
+        if (series instanceof Sum sum) {
+            return cell.field(sum.field()).sum();
+        }
+        if (series instanceof Min min) {
+            final Double value = cell.field(min.field()).min();
+            return value == null ? Double.POSITIVE_INFINITY : value;
+        }
+        if (series instanceof Max max) {
+            final Double value = cell.field(max.field()).max();
+            return value == null ? Double.NEGATIVE_INFINITY : value;
+        }
+        if (series instanceof Average average) {
+            final RollupBucket.FieldStats stats = cell.field(average.field());
+            final double value = stats.count() == 0 ? Double.NaN : stats.sum() / stats.count();
+            if (average.wholeNumber()) {
+                return Double.isNaN(value) || Double.isInfinite(value) ? 0.0 : (double) Math.round(value);
+            }
+            return value;
+        }
+        throw new IllegalArgumentException("Unsupported series " + series.type());
+    }
+
+    private static boolean isSupported(SeriesSpec series, RollupDefinition definition) {
+        if (series instanceof Count count) {
+            return count.field().map(definition.fields()::contains).orElse(true);
+        }
+        if (series instanceof Sum sum) {
+            return definition.fields().contains(sum.field());
+        }
+        if (series instanceof Min min) {
+            return definition.fields().contains(min.field());
+        }
+        if (series instanceof Max max) {
+            return definition.fields().contains(max.field());
+        }
+        if (series instanceof Average average) {
+            return definition.fields().contains(average.field());
+        }
+        return false;
+    }
+
+    private static Optional<Long> intervalMs(Time time) {
+        if (!(time.interval() instanceof TimeUnitInterval timeUnitInterval)) {
+            return Optional.empty();
+        }
+        final Matcher matcher = TimeUnitInterval.TIMEUNIT_PATTERN.matcher(timeUnitInterval.timeunit());
+        if (!matcher.matches() || !UNIT_MILLIS.containsKey(matcher.group("unit"))) {
+            // Weeks, months and years are calendar intervals
+            return Optional.empty();
+        }
+        return Optional.of(Long.parseLong(matcher.group("quantity")) * UNIT_MILLIS.get(matcher.group("unit")));
+    }
+}
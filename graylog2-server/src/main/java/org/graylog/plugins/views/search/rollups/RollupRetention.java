@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.rollups;
+
+import jakarta.inject.Inject;
+import org.graylog.plugins.views.search.elasticsearch.IndexLookup;
+import org.graylog2.indexer.ranges.IndexRange;
+import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
+import org.joda.time.DateTime;
+
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Looks up from when on the messages of the streams of rollup definitions are still kept in the indices, so rollups
+ * of messages which have been removed by index retention aren't used anymore.
+ */
+public class RollupRetention {
+    private final IndexLookup indexLookup;
+
+    @Inject
+    public RollupRetention(IndexLookup indexLookup) {
+        this.indexLookup = indexLookup;
+    }
+
+    /**
+     * Returns the earliest time of the messages of the given streams in the indices overlapping the given time range.
+     * The begin of write indices isn't known, they are assumed to start when their range has been created.
+     *
+     * @return the earliest time, empty if there are no indices in the time range
+     */
+    public Optional<DateTime> retainedFrom(Set<String> streams, TimeRange timeRange) {
+        return indexLookup.indexRangesForStreamsInTimeRange(streams, timeRange).stream()
+                .map(RollupRetention::begin)
+                .min(Comparator.naturalOrder());
+    }
+
+    private static DateTime begin(IndexRange indexRange) {
+        final boolean unknown = indexRange.begin().getMillis() == 0 && indexRange.end().getMillis() == 0;
+        return unknown ? indexRange.calculatedAt() : indexRange.begin();
+    }
+}
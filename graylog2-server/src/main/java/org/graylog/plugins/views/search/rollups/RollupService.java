@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.rollups;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import jakarta.inject.Inject;
+import org.graylog2.database.MongoCollections;
+import org.graylog2.database.utils.MongoUtils;
+import org.joda.time.DateTime;
+
+import java.util.List;
+import java.util.Optional;
+
+public class RollupService {
+    public static final String DEFINITIONS_COLLECTION_NAME = "views_rollup_definitions";
+    public static final String BUCKETS_COLLECTION_NAME = "views_rollup_buckets";
+
+    private final MongoCollection<RollupDefinition> definitions;
+    private final MongoCollection<RollupBucket> buckets;
+    private final MongoUtils<RollupDefinition> definitionUtils;
+
+    @Inject
+    public RollupService(MongoCollections mongoCollections) {
+        this.definitions = mongoCollections.collection(DEFINITIONS_COLLECTION_NAME, RollupDefinition.class);
+        this.buckets = mongoCollections.collection(BUCKETS_COLLECTION_NAME, RollupBucket.class);
+        this.definitionUtils = mongoCollections.utils(definitions);
+
+        buckets.createIndex(Indexes.ascending(RollupBucket.FIELD_DEFINITION_ID, RollupBucket.FIELD_TIMESTAMP));
+    }
+
+    public List<RollupDefinition> definitions() {
+        return MongoUtils.stream(definitions.find()).toList();
+    }
+
+    public Optional<RollupDefinition> get(String id) {
+        return definitionUtils.getById(id);
+    }
+
+    public RollupDefinition create(RollupDefinition definition) {
+        final RollupDefinition newDefinition = definition.withId(null).withMaterializedUntil(null);
+        return newDefinition.withId(MongoUtils.insertedIdAsString(definitions.insertOne(newDefinition)));
+    }
+
+    public boolean delete(String id) {
+        buckets.deleteMany(Filters.eq(RollupBucket.FIELD_DEFINITION_ID, id));
+        return definitionUtils.deleteById(id);
+    }
+
+    /**
+     * Returns the buckets of a definition, ordered by time.
+     *
+     * @param definitionId the ID of the definition
+     * @param from         the start of the time range (inclusive)
+     * @param to           the end of the time range (exclusive)
+     */
+    public List<RollupBucket> buckets(String definitionId, DateTime from, DateTime to) {
+        return MongoUtils.stream(buckets.find(Filters.and(
+                        Filters.eq(RollupBucket.FIELD_DEFINITION_ID, definitionId),
+                        Filters.gte(RollupBucket.FIELD_TIMESTAMP, from.toDate()),
+                        Filters.lt(RollupBucket.FIELD_TIMESTAMP, to.toDate())))
+                .sort(Sorts.ascending(RollupBucket.FIELD_TIMESTAMP)))
+                .toList();
+    }
+
+    /**
+     * Deletes the buckets of a definition before the given time.
+     *
+     * @param definitionId the ID of the definition
+     * @param before       the time (exclusive)
+     * @return the number of deleted buckets
+     */
+    public long deleteBuckets(String definitionId, DateTime before) {
+        return buckets.deleteMany(Filters.and(
+                Filters.eq(RollupBucket.FIELD_DEFINITION_ID, definitionId),
+                Filters.lt(RollupBucket.FIELD_TIMESTAMP, before.toDate()))).getDeletedCount();
+    }
+
+    /**
+     * Stores the buckets of a newly materialized time range and moves the end of the materialized time range of the
+     * definition. Buckets left over by an interrupted earlier attempt are replaced.
+     *
+     * @param definition        the definition
+     * @param newBuckets        the buckets of the time range
+     * @param materializedUntil the end of the time range (exclusive)
+     */
+    public void append(RollupDefinition definition, List<RollupBucket> newBuckets, DateTime materializedUntil) {
+        final var bucketsOfDefinition = Filters.eq(RollupBucket.FIELD_DEFINITION_ID, definition.id());
+        buckets.deleteMany(definition.materializedUntil() == null
+                ? bucketsOfDefinition
+                : Filters.and(bucketsOfDefinition, Filters.gte(RollupBucket.FIELD_TIMESTAMP, definition.materializedUntil().toDate())));
+        if (!newBuckets.isEmpty()) {
+            buckets.insertMany(newBuckets);
+        }
+        definitions.updateOne(MongoUtils.idEq(definition.id()),
+                Updates.set(RollupDefinition.FIELD_MATERIALIZED_UNTIL, materializedUntil.toDate()));
+    }
+}
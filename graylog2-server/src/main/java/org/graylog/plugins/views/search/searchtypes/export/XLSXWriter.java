@@ -16,8 +16,10 @@
  */
 package org.graylog.plugins.views.search.searchtypes.export;
 
+import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.RichTextString;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -27,15 +29,26 @@ import java.util.Calendar;
 import java.util.Date;
 
 public class XLSXWriter {
+    /**
+     * Number of rows which are kept in memory while writing a sheet. Older rows are flushed to a temporary file,
+     * so the workbook doesn't grow with the number of exported rows. The data rows themselves are still fully
+     * held by the {@link ExportTabularResultResponse}.
+     */
+    private static final int ROW_ACCESS_WINDOW_SIZE = 100;
+
     public static void writeXlsx(final ExportTabularResultResponse widgetExportResponse,
                                 final OutputStream outputStream) throws IOException {
-        try (var wb = new XSSFWorkbook()) {
+        final var wb = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE);
+        try (wb) {
             createWorksheetFor(wb, "export", widgetExportResponse);
             wb.write(outputStream);
+        } finally {
+            // Removes the temporary files of the flushed rows
+            wb.dispose();
         }
     }
 
-    public static void createWorksheetFor(final XSSFWorkbook wb, final String sheetName, final ExportTabularResultResponse data) {
+    public static void createWorksheetFor(final Workbook wb, final String sheetName, final ExportTabularResultResponse data) {
         final var sheet = wb.createSheet(sheetName);
 
         // write header
@@ -49,32 +62,34 @@ public class XLSXWriter {
         for(int r = 0; r < data.dataRows().size(); r++) {
             row = sheet.createRow(r + 1);
             final var rowData = data.dataRows().get(r).row();
-            // TODO: change to switch statement with Java 21
             for(int c = 0; c < rowData.size(); c++) {
-                final var cell = row.createCell(c);
-                final var rawData = rowData.get(c);
-                if(rawData instanceof Integer i) {
-                    cell.setCellValue(i);
-                } else if(rawData instanceof Double d) {
-                    cell.setCellValue(d);
-                } else if(rawData instanceof Boolean b) {
-                    cell.setCellValue(b);
-                } if(rawData instanceof Date d) {
-                    cell.setCellValue(d);
-                } if(rawData instanceof LocalDateTime ldt) {
-                    cell.setCellValue(ldt);
-                } if(rawData instanceof Calendar cal) {
-                    cell.setCellValue(cal);
-                } if(rawData instanceof String s) {
-                    cell.setCellValue(s);
-                } if(rawData instanceof RichTextString rts) {
-                    cell.setCellValue(rts);
-                } if(rawData instanceof LocalDate ld) {
-                    cell.setCellValue(ld);
-                } else {
-                    cell.setCellValue(rawData.toString());
-                }
+                setCellValue(row.createCell(c), rowData.get(c));
             }
         }
     }
+
+    // TODO: change to switch statement with Java 21
+    private static void setCellValue(final Cell cell, final Object rawData) {
+        if(rawData == null) {
+            cell.setBlank();
+        } else if(rawData instanceof Number n) {
+            cell.setCellValue(n.doubleValue());
+        } else if(rawData instanceof Boolean b) {
+            cell.setCellValue(b);
+        } else if(rawData instanceof Date d) {
+            cell.setCellValue(d);
+        } else if(rawData instanceof LocalDateTime ldt) {
+            cell.setCellValue(ldt);
+        } else if(rawData instanceof Calendar cal) {
+            cell.setCellValue(cal);
+        } else if(rawData instanceof String s) {
+            cell.setCellValue(s);
+        } else if(rawData instanceof RichTextString rts) {
+            cell.setCellValue(rts);
+        } else if(rawData instanceof LocalDate ld) {
+            cell.setCellValue(ld);
+        } else {
+            cell.setCellValue(rawData.toString());
+        }
+    }
 }
@@ -16,6 +16,8 @@
  */
 package org.graylog.plugins.views.search.validation;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
 import org.apache.lucene.queryparser.classic.ParseException;
@@ -23,12 +25,19 @@ import org.apache.lucene.search.Query;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
+import jakarta.inject.Singleton;
 
+/**
+ * Parses query strings for validation. Parsed queries are memoized by query string, because the same query is usually
+ * validated several times while it is being typed and again when it is executed.
+ */
+@Singleton
 public class LuceneQueryParser {
 
     public static final Analyzer ANALYZER = new WhitespaceAnalyzer();
 
     private final boolean allowLeadingWildcard;
+    private final Cache<String, ParsedQuery> parsedQueries = Caffeine.newBuilder().maximumSize(1000).build();
 
     @Inject
     public LuceneQueryParser(@Named("allow_leading_wildcard_searches") final boolean allowLeadingWildcard) {
@@ -36,6 +45,17 @@ public class LuceneQueryParser {
     }
 
     public ParsedQuery parse(final String query) throws ParseException {
+        final ParsedQuery cached = parsedQueries.getIfPresent(query);
+        if (cached != null) {
+            return cached;
+        }
+        // Queries which can't be parsed aren't cached, they are rejected early by the parser anyway
+        final ParsedQuery parsedQuery = doParse(query);
+        parsedQueries.put(query, parsedQuery);
+        return parsedQuery;
+    }
+
+    private ParsedQuery doParse(final String query) throws ParseException {
         final TokenCollectingQueryParser parser = new TokenCollectingQueryParser(ParsedTerm.DEFAULT_FIELD, ANALYZER);
         parser.setSplitOnWhitespace(true);
         parser.setAllowLeadingWildcard(allowLeadingWildcard);
@@ -16,6 +16,19 @@
  */
 package org.graylog.plugins.views.search.validation;
 
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
 public interface QueryValidationService {
     ValidationResponse validate(final ValidationRequest request);
+
+    /**
+     * Validates the request unless it is superseded, e.g. because the user typed on in the meantime.
+     *
+     * @param isSuperseded checked before the expensive steps of the validation
+     * @return the response, empty if the validation has been stopped
+     */
+    default Optional<ValidationResponse> validate(final ValidationRequest request, final BooleanSupplier isSuperseded) {
+        return isSuperseded.getAsBoolean() ? Optional.empty() : Optional.of(validate(request));
+    }
 }
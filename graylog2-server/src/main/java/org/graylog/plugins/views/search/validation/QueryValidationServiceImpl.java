@@ -16,6 +16,7 @@
  */
 package org.graylog.plugins.views.search.validation;
 
+import org.graylog.plugins.views.search.rest.MappedFieldTypeDTO;
 import org.graylog.plugins.views.search.validation.validators.ValidationErrors;
 import org.graylog2.indexer.fieldtypes.MappedFieldTypesService;
 
@@ -23,7 +24,9 @@ import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 @Singleton
@@ -44,28 +47,39 @@ public class QueryValidationServiceImpl implements QueryValidationService {
 
     @Override
     public ValidationResponse validate(ValidationRequest req) {
+        return validate(req, () -> false).orElseThrow();
+    }
 
+    @Override
+    public Optional<ValidationResponse> validate(ValidationRequest req, BooleanSupplier isSuperseded) {
+        if (isSuperseded.getAsBoolean()) {
+            return Optional.empty();
+        }
         if (req.isEmptyQuery()) {
-            return ValidationResponse.ok();
+            return Optional.of(ValidationResponse.ok());
         }
 
         try {
             final ParsedQuery parsedQuery = luceneQueryParser.parse(req.rawQuery());
+            final Set<MappedFieldTypeDTO> availableFields = fields.fieldTypesByStreamIds(req.streams(), req.timerange());
+            if (isSuperseded.getAsBoolean()) {
+                return Optional.empty();
+            }
 
             final ValidationContext context = ValidationContext.builder()
                     .request(req)
                     .query(parsedQuery)
-                    .availableFields(fields.fieldTypesByStreamIds(req.streams(), req.timerange()))
+                    .availableFields(availableFields)
                     .build();
 
             final List<ValidationMessage> explanations = validators.stream()
                     .flatMap(val -> val.validate(context).stream())
                     .collect(Collectors.toList());
 
-            return ValidationResponse.withDetectedStatus(explanations);
+            return Optional.of(ValidationResponse.withDetectedStatus(explanations));
 
         } catch (Exception e) {
-            return ValidationResponse.error(ValidationErrors.create(e));
+            return Optional.of(ValidationResponse.error(ValidationErrors.create(e)));
         }
     }
 }
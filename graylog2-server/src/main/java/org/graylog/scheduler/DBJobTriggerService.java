@@ -25,6 +25,7 @@ import com.mongodb.client.model.Accumulators;
 import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.ReturnDocument;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
@@ -347,12 +348,84 @@ public class DBJobTriggerService {
     public Optional<JobTriggerDto> nextRunnableTrigger() {
         final DateTime now = clock.nowUTC();
 
-        // exclude triggers which require a constraint that is not satisfied by this node
-        final var constraintsQuery = not(
-                elemMatch(FIELD_CONSTRAINTS, new Document("$nin", schedulerCapabilitiesService.getNodeCapabilities()))
+        // Atomically update, lock and return the next runnable trigger
+        // We want to lock the trigger with the oldest next time
+        final JobTriggerDto trigger = collection.findOneAndUpdate(runnableTriggersFilter(now), lockUpdate(now),
+                new FindOneAndUpdateOptions().sort(ascending(FIELD_NEXT_TIME)).returnDocument(ReturnDocument.AFTER)
         );
 
-        final var filter = or(and(
+        return Optional.ofNullable(trigger);
+    }
+
+    /**
+     * Locks and returns up to {@code limit} runnable triggers, oldest next time first. This needs three database
+     * round trips regardless of the number of triggers, compared to one round trip per trigger with
+     * {@link #nextRunnableTrigger()}. The caller needs to take care of releasing the trigger locks.
+     * <p>
+     * Fewer triggers than requested might be returned if other nodes lock some of the same triggers concurrently.
+     *
+     * @param limit the maximum number of triggers to lock
+     * @return the locked triggers, might be empty
+     */
+    public List<JobTriggerDto> nextRunnableTriggers(int limit) {
+        if (limit < 1) {
+            return List.of();
+        }
+        final DateTime now = clock.nowUTC();
+        final Bson filter = runnableTriggersFilter(now);
+
+        final List<ObjectId> candidates = stream(collection.withDocumentClass(Document.class).find(filter)
+                .sort(ascending(FIELD_NEXT_TIME))
+                .projection(Projections.include(FIELD_ID))
+                .limit(limit))
+                .map(document -> document.getObjectId(FIELD_ID))
+                .toList();
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        // The filter is applied again, so we don't take over triggers which have been locked by other nodes in the
+        // meantime.
+        collection.updateMany(and(in(FIELD_ID, candidates), filter), lockUpdate(now));
+
+        // The lock time is refreshed by #updateLockedJobTriggers, so we identify the locked triggers by their
+        // trigger time.
+        return stream(collection.find(and(
+                in(FIELD_ID, candidates),
+                eq(FIELD_LOCK_OWNER, nodeId),
+                eq(FIELD_STATUS, JobTriggerStatus.RUNNING),
+                eq(FIELD_TRIGGERED_AT, Optional.of(now))
+        )).sort(ascending(FIELD_NEXT_TIME))).toList();
+    }
+
+    /**
+     * Returns the next time of the first trigger that will become runnable after now.
+     *
+     * @return the next time, an empty {@link Optional} if there are no upcoming triggers
+     */
+    public Optional<DateTime> nextUpcomingTriggerTime() {
+        final DateTime now = clock.nowUTC();
+        final JobTriggerDto trigger = collection.find(and(
+                        eq(FIELD_LOCK_OWNER, null),
+                        eq(FIELD_STATUS, JobTriggerStatus.RUNNABLE),
+                        constraintsFilter(),
+                        gt(FIELD_NEXT_TIME, now)
+                ))
+                .sort(ascending(FIELD_NEXT_TIME))
+                .first();
+
+        return Optional.ofNullable(trigger).map(JobTriggerDto::nextTime);
+    }
+
+    private Bson constraintsFilter() {
+        // exclude triggers which require a constraint that is not satisfied by this node
+        return not(elemMatch(FIELD_CONSTRAINTS, new Document("$nin", schedulerCapabilitiesService.getNodeCapabilities())));
+    }
+
+    private Bson runnableTriggersFilter(DateTime now) {
+        final var constraintsQuery = constraintsFilter();
+
+        return or(and(
                         // We cannot lock a trigger that is already locked by another node
                         eq(FIELD_LOCK_OWNER, null),
                         eq(FIELD_STATUS, JobTriggerStatus.RUNNABLE),
@@ -374,23 +447,16 @@ public class DBJobTriggerService {
                         constraintsQuery,
                         lt(FIELD_LAST_LOCK_TIME, now.minus(lockExpirationDuration.toMilliseconds())))
         );
-        // We want to lock the trigger with the oldest next time
-        final var sort = ascending(FIELD_NEXT_TIME);
+    }
 
-        final var lockUpdate = combine(
+    private Bson lockUpdate(DateTime now) {
+        return combine(
                 set(FIELD_LOCK_OWNER, nodeId),
                 set(FIELD_LAST_LOCK_OWNER, nodeId),
                 set(FIELD_STATUS, JobTriggerStatus.RUNNING),
                 set(FIELD_TRIGGERED_AT, Optional.of(now)),
                 set(FIELD_LAST_LOCK_TIME, now)
         );
-
-        // Atomically update, lock and return the next runnable trigger
-        final JobTriggerDto trigger = collection.findOneAndUpdate(filter, lockUpdate,
-                new FindOneAndUpdateOptions().sort(sort).returnDocument(ReturnDocument.AFTER)
-        );
-
-        return Optional.ofNullable(trigger);
     }
 
     /**
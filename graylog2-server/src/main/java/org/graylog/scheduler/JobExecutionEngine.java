@@ -84,6 +84,7 @@ public class JobExecutionEngine {
     private final Meter executionDenied;
     private final Meter executionRescheduled;
     private final Timer executionTime;
+    private final Timer dispatchLatency;
     private final LoadingCache<String, Long> gaugeCache;
 
     private final AtomicBoolean isRunning = new AtomicBoolean(true);
@@ -132,6 +133,7 @@ public class JobExecutionEngine {
         this.executionDenied = metricRegistry.meter(MetricRegistry.name(getClass(), "executions", "denied"));
         this.executionRescheduled = metricRegistry.meter(MetricRegistry.name(getClass(), "executions", "rescheduled"));
         this.executionTime = metricRegistry.timer(MetricRegistry.name(getClass(), "executions", "time"));
+        this.dispatchLatency = metricRegistry.timer(MetricRegistry.name(getClass(), "executions", "dispatch-latency"));
 
         // We use a cache to avoid having every gauge metric hitting the database.
         this.gaugeCache = Caffeine.newBuilder()
@@ -198,15 +200,33 @@ public class JobExecutionEngine {
             final Optional<JobTriggerDto> triggerOptional = jobTriggerService.nextRunnableTrigger();
 
             if (triggerOptional.isPresent()) {
-                final JobTriggerDto trigger = triggerOptional.get();
+                return dispatch(triggerOptional.get());
+            }
+        }
+        executionDenied.mark();
+        return false;
+    }
 
-                if (!workerPool.execute(() -> handleTriggerWithConcurrencyLimit(trigger))) {
-                    // The job couldn't be executed so we have to release the trigger again with the same nextTime
-                    jobTriggerService.releaseTrigger(trigger, JobTriggerUpdate.withNextTime(trigger.nextTime()));
-                    executionDenied.mark();
-                    return false;
-                }
+    /**
+     * Execute the engine in batch mode. This will lock as many triggers as there are free slots in the worker pool
+     * with a single batch of database operations and execute the related jobs.
+     *
+     * @return true if at least one job trigger has been locked and the related job has been triggered, false otherwise
+     */
+    public boolean executeBatch() {
+        // Cleanup stale scheduler state *before* processing any triggers for the first time.
+        // This is a no-op after the first invocation.
+        if (shouldCleanup.get()) {
+            cleanup();
+        }
 
+        final int freeSlots = workerPool.freeSlots();
+        if (isRunning.get() && freeSlots > 0) {
+            boolean dispatched = false;
+            for (final JobTriggerDto trigger : jobTriggerService.nextRunnableTriggers(freeSlots)) {
+                dispatched |= dispatch(trigger);
+            }
+            if (dispatched) {
                 return true;
             }
         }
@@ -214,6 +234,36 @@ public class JobExecutionEngine {
         return false;
     }
 
+    /**
+     * Returns the time to wait until the next trigger becomes runnable, so the scheduler loop can wake up exactly at
+     * that time instead of sleeping for its full loop duration.
+     *
+     * @param maxWaitMillis the maximum time to wait
+     * @return the time to wait in milliseconds, between zero and {@code maxWaitMillis}
+     */
+    public long millisUntilNextTrigger(long maxWaitMillis) {
+        // Job completion wakes up the scheduler loop, so there is no point in waking up earlier without free slots
+        if (!isRunning.get() || !workerPool.hasFreeSlots()) {
+            return maxWaitMillis;
+        }
+        return jobTriggerService.nextUpcomingTriggerTime()
+                .map(nextTime -> nextTime.getMillis() - DateTime.now(DateTimeZone.UTC).getMillis())
+                .map(waitMillis -> Math.max(0, Math.min(waitMillis, maxWaitMillis)))
+                .orElse(maxWaitMillis);
+    }
+
+    private boolean dispatch(JobTriggerDto trigger) {
+        if (!workerPool.execute(() -> handleTriggerWithConcurrencyLimit(trigger))) {
+            // The job couldn't be executed so we have to release the trigger again with the same nextTime
+            jobTriggerService.releaseTrigger(trigger, JobTriggerUpdate.withNextTime(trigger.nextTime()));
+            executionDenied.mark();
+            return false;
+        }
+        dispatchLatency.update(Math.max(0, DateTime.now(DateTimeZone.UTC).getMillis() - trigger.nextTime().getMillis()),
+                TimeUnit.MILLISECONDS);
+        return true;
+    }
+
     public void updateLockedJobs() {
         if (workerPool.anySlotsUsed()) {
             jobTriggerService.updateLockedJobTriggers();
@@ -34,6 +34,7 @@ public class JobSchedulerConfiguration implements PluginConfigBean {
     public static final String LOOP_SLEEP_DURATION = "job_scheduler_loop_sleep_duration";
     public static final String LOCK_EXPIRATION_DURATION = "job_scheduler_lock_expiration_duration";
     public static final String CONCURRENCY_LIMITS = "job_scheduler_concurrency_limits";
+    public static final String BATCH_DISPATCH = "job_scheduler_batch_dispatch";
 
     @Parameter(value = LOOP_SLEEP_DURATION, validators = PositiveDurationValidator.class)
     private final Duration loopSleepDuration = Duration.seconds(1);
@@ -44,6 +45,9 @@ public class JobSchedulerConfiguration implements PluginConfigBean {
     @Parameter(value = CONCURRENCY_LIMITS, converter = MapConverter.StringInteger.class)
     private final Map<String, Integer> concurrencyLimits = Map.of();
 
+    @Parameter(value = BATCH_DISPATCH)
+    private final boolean batchDispatch = false;
+
     /**
      * Concurrency limits per job type. A missing entry signifies unlimited concurrency. (up to the number of worker threads)
      *
@@ -61,6 +65,16 @@ public class JobSchedulerConfiguration implements PluginConfigBean {
         return lockExpirationDuration;
     }
 
+    /**
+     * Lock runnable triggers in batches for all free worker threads and wake up the scheduler loop when the next
+     * trigger becomes runnable.
+     *
+     * @return true if batch dispatch is enabled
+     */
+    public boolean isBatchDispatch() {
+        return batchDispatch;
+    }
+
     public static class Minimum1MinuteValidator implements Validator<Duration> {
         @Override
         public void validate(final String name, final Duration value) throws ValidationException {
@@ -51,6 +51,7 @@ public class JobSchedulerService extends AbstractExecutionThreadService {
     private final ServerStatus serverStatus;
     private final JobWorkerPool workerPool;
     private final Duration loopSleepDuration;
+    private final boolean batchDispatch;
     private final InterruptibleSleeper sleeper = new InterruptibleSleeper();
     private final ScheduledExecutorService jobHeartbeatExecutor;
     private Thread executionThread;
@@ -62,7 +63,8 @@ public class JobSchedulerService extends AbstractExecutionThreadService {
                                JobSchedulerClock clock,
                                JobSchedulerEventBus schedulerEventBus,
                                ServerStatus serverStatus,
-                               @Named(JobSchedulerConfiguration.LOOP_SLEEP_DURATION) Duration loopSleepDuration) {
+                               @Named(JobSchedulerConfiguration.LOOP_SLEEP_DURATION) Duration loopSleepDuration,
+                               @Named(JobSchedulerConfiguration.BATCH_DISPATCH) boolean batchDispatch) {
         jobHeartbeatExecutor = createJobHeartbeatExecutor();
         workerPool = workerPoolFactory.create("system", schedulerConfig.numberOfWorkerThreads(), this::shutdownJobHeartbeatExecutor);
         this.jobExecutionEngine = engineFactory.create(workerPool);
@@ -71,6 +73,7 @@ public class JobSchedulerService extends AbstractExecutionThreadService {
         this.schedulerEventBus = schedulerEventBus;
         this.serverStatus = serverStatus;
         this.loopSleepDuration = loopSleepDuration;
+        this.batchDispatch = batchDispatch;
     }
 
     private ScheduledExecutorService createJobHeartbeatExecutor() {
@@ -117,7 +120,16 @@ public class JobSchedulerService extends AbstractExecutionThreadService {
 
             LOG.debug("Starting scheduler loop iteration");
             try {
-                if (!jobExecutionEngine.execute() && isRunning()) {
+                if (batchDispatch) {
+                    if (!jobExecutionEngine.executeBatch() && isRunning()) {
+                        // Same as below, but we wake up as soon as the next trigger becomes runnable
+                        final long sleepMillis = jobExecutionEngine.millisUntilNextTrigger(loopSleepDuration.toMilliseconds());
+                        if (sleepMillis > 0 && sleeper.sleep(sleepMillis, TimeUnit.MILLISECONDS)) {
+                            LOG.debug("Waited for {} ms because there are either no free worker threads or no runnable triggers",
+                                    sleepMillis);
+                        }
+                    }
+                } else if (!jobExecutionEngine.execute() && isRunning()) {
                     // When the execution engine returned false, there are either no free worker threads or no
                     // runnable triggers. To avoid busy spinning we sleep for the configured duration or until
                     // we receive a job completion event via the scheduler event bus.
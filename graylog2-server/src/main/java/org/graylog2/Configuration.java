@@ -94,6 +94,9 @@ public class Configuration extends CaConfiguration {
     @Parameter(value = "outputbuffer_processor_threads_core_pool_size", required = true, validators = PositiveIntegerValidator.class)
     private int outputBufferProcessorThreadsCorePoolSize = 3;
 
+    @Parameter(value = "stream_output_queue_size", validators = PositiveIntegerValidator.class)
+    private int streamOutputQueueSize = 10000;
+
     @Parameter(value = "node_id_file", validators = NodeIdFileValidator.class)
     private String nodeIdFile = "/etc/graylog/server/node-id";
 
@@ -131,6 +134,12 @@ public class Configuration extends CaConfiguration {
     @Parameter(value = "output_module_timeout", validators = PositiveLongValidator.class)
     private long outputModuleTimeout = 10000;
 
+    @Parameter(value = "input_fair_share_throttling")
+    private boolean inputFairShareThrottling = false;
+
+    @Parameter(value = "input_fair_share_throttling_critical_journal_utilization", validators = PositiveIntegerValidator.class)
+    private int inputFairShareThrottlingCriticalJournalUtilization = 90;
+
     @Parameter(value = "output_fault_count_threshold", validators = PositiveLongValidator.class)
     private long outputFaultCountThreshold = 5;
 
@@ -180,6 +189,12 @@ public class Configuration extends CaConfiguration {
     @Parameter(value = "index_ranges_cleanup_interval", validators = PositiveDurationValidator.class)
     private Duration indexRangesCleanupInterval = Duration.hours(1L);
 
+    @Parameter(value = "index_ranges_rebuild_concurrency", validators = PositiveIntegerValidator.class)
+    private int indexRangesRebuildConcurrency = 4;
+
+    @Parameter(value = "index_ranges_rebuild_batch_size", validators = PositiveIntegerValidator.class)
+    private int indexRangesRebuildBatchSize = 20;
+
     @Parameter(value = "trusted_proxies", converter = IPSubnetConverter.class)
     private Set<IpSubnet> trustedProxies = Collections.emptySet();
 
@@ -338,6 +353,10 @@ public class Configuration extends CaConfiguration {
         return outputBufferProcessorThreadsCorePoolSize;
     }
 
+    public int getStreamOutputQueueSize() {
+        return streamOutputQueueSize;
+    }
+
     public boolean isCloud() {
         return isCloud;
     }
@@ -402,6 +421,14 @@ public class Configuration extends CaConfiguration {
         return outputModuleTimeout;
     }
 
+    public boolean isInputFairShareThrottling() {
+        return inputFairShareThrottling;
+    }
+
+    public int getInputFairShareThrottlingCriticalJournalUtilization() {
+        return inputFairShareThrottlingCriticalJournalUtilization;
+    }
+
     public long getOutputFaultCountThreshold() {
         return outputFaultCountThreshold;
     }
@@ -464,6 +491,14 @@ public class Configuration extends CaConfiguration {
         return indexRangesCleanupInterval;
     }
 
+    public int getIndexRangesRebuildConcurrency() {
+        return indexRangesRebuildConcurrency;
+    }
+
+    public int getIndexRangesRebuildBatchSize() {
+        return indexRangesRebuildBatchSize;
+    }
+
     public Set<IpSubnet> getTrustedProxies() {
         return trustedProxies;
     }
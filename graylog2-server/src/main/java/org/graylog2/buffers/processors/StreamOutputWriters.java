@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.buffers.processors;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.InstrumentedExecutorService;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.graylog2.outputs.OutputRegistry;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.outputs.MessageOutput;
+import org.graylog2.plugin.utilities.ratelimitedlog.RateLimitedLogFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Writes messages to stream outputs asynchronously.
+ * <p>
+ * Every stream output gets a bounded queue which is drained in batches and written with
+ * {@link MessageOutput#write(List)} by a shared pool of writer threads. This decouples the output buffer processors
+ * from the stream outputs: if an output is too slow to keep up and its queue is full, messages for this output are
+ * dropped instead of blocking the output buffer. The default output is not written by this class, see
+ * {@link OutputBufferProcessor}.
+ * <p>
+ * Before an output is stopped, its queue has to be written with {@link #drain(MessageOutput)}, see
+ * {@link OutputRegistry} and {@link #shutdown()}.
+ */
+@Singleton
+public class StreamOutputWriters {
+    private static final Logger LOG = LoggerFactory.getLogger(StreamOutputWriters.class);
+    private static final Logger RATE_LIMITED_LOG = RateLimitedLogFactory.createRateLimitedLog(LOG, 1, Duration.ofSeconds(5));
+    // A busy output gives up its thread after this many batches, so it can't starve the other outputs
+    private static final int MAX_BATCHES_PER_RUN = 10;
+
+    private final OutputRegistry outputRegistry;
+    private final MetricRegistry metricRegistry;
+    private final int queueSize;
+    private final int batchSize;
+    private final long drainTimeoutMs;
+    private final ExecutorService executor;
+    private final Map<MessageOutput, Writer> writers = new ConcurrentHashMap<>();
+    // A restarted output is a new instance with the same ID, so the writers of both instances share the metrics
+    private final Map<String, Integer> writersByMetricPrefix = new HashMap<>();
+
+    @Inject
+    public StreamOutputWriters(OutputRegistry outputRegistry,
+                               MetricRegistry metricRegistry,
+                               @Named("stream_output_queue_size") int queueSize,
+                               @Named("output_batch_size") int batchSize,
+                               @Named("outputbuffer_processors") int outputBufferProcessors,
+                               @Named("outputbuffer_processor_threads_core_pool_size") int threadsPerProcessor,
+                               @Named("output_module_timeout") long drainTimeoutMs) {
+        this.outputRegistry = outputRegistry;
+        this.metricRegistry = metricRegistry;
+        this.queueSize = queueSize;
+        this.batchSize = batchSize;
+        this.drainTimeoutMs = drainTimeoutMs;
+        // Same number of threads the output buffer processors used to write the stream outputs
+        this.executor = new InstrumentedExecutorService(
+                Executors.newFixedThreadPool(outputBufferProcessors * threadsPerProcessor, new ThreadFactoryBuilder()
+                        .setNameFormat("stream-output-writer-%d")
+                        .setDaemon(true)
+                        .build()),
+                metricRegistry,
+                name(StreamOutputWriters.class, "executor-service"));
+    }
+
+    /**
+     * Queues the message for the given output without blocking.
+     *
+     * @return {@code false} if the message has been dropped because the queue of the output is full
+     */
+    public boolean offer(MessageOutput output, Message message) {
+        final Writer writer = writers.computeIfAbsent(output, this::createWriter);
+        return writer.offer(message);
+    }
+
+    /**
+     * Waits until the messages queued for the given output have been written, but at most for
+     * {@code output_module_timeout}. Messages which haven't been written by then are dropped.
+     * The output must not receive new messages anymore.
+     */
+    public void drain(MessageOutput output) {
+        final Writer writer = writers.remove(output);
+        if (writer != null) {
+            writer.drain(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMs));
+        }
+    }
+
+    /**
+     * Drains the queues of all outputs within {@code output_module_timeout} and stops the writer threads.
+     */
+    public void shutdown() {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMs);
+        for (final MessageOutput output : List.copyOf(writers.keySet())) {
+            final Writer writer = writers.remove(output);
+            if (writer != null) {
+                writer.drain(deadline);
+            }
+        }
+        executor.shutdown();
+    }
+
+    @VisibleForTesting
+    int queuedMessages(MessageOutput output) {
+        final Writer writer = writers.get(output);
+        return writer == null ? 0 : writer.queue.size();
+    }
+
+    private int queuedMessages(String metricPrefix) {
+        return writers.values().stream()
+                .filter(writer -> writer.metricPrefix.equals(metricPrefix))
+                .mapToInt(writer -> writer.queue.size())
+                .sum();
+    }
+
+    private void acquireMetrics(String metricPrefix) {
+        synchronized (writersByMetricPrefix) {
+            if (writersByMetricPrefix.merge(metricPrefix, 1, Integer::sum) == 1) {
+                metricRegistry.register(name(metricPrefix, "queueSize"), (Gauge<Integer>) () -> queuedMessages(metricPrefix));
+            }
+        }
+    }
+
+    private void releaseMetrics(String metricPrefix) {
+        synchronized (writersByMetricPrefix) {
+            if (writersByMetricPrefix.merge(metricPrefix, -1, Integer::sum) == 0) {
+                writersByMetricPrefix.remove(metricPrefix);
+                metricRegistry.removeMatching((name, metric) -> name.startsWith(metricPrefix + "."));
+            }
+        }
+    }
+
+    private Writer createWriter(MessageOutput output) {
+        final String outputId = outputRegistry.getIdForOutput(output).orElse(output.getClass().getSimpleName());
+        LOG.debug("Created writer for output <{}>", outputId);
+        return new Writer(output, name(StreamOutputWriters.class, outputId));
+    }
+
+    private record Entry(Message message, long enqueuedNanos) {}
+
+    /**
+     * Holds the queue of an output. The writer is submitted to the thread pool when messages are queued and at most
+     * one thread writes the messages of an output at a time.
+     */
+    private class Writer implements Runnable {
+        private final MessageOutput output;
+        private final String metricPrefix;
+        private final BlockingQueue<Entry> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private final AtomicBoolean released = new AtomicBoolean(false);
+        private final Lock lock = new ReentrantLock();
+        // Signalled whenever a writer thread is done with the queue
+        private final Condition idle = lock.newCondition();
+        private final Meter written;
+        private final Meter dropped;
+        private final Meter failed;
+        private final Timer latency;
+        private final Timer writeTime;
+        private final Histogram batchSizes;
+
+        Writer(MessageOutput output, String metricPrefix) {
+            this.output = output;
+            this.metricPrefix = metricPrefix;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+            acquireMetrics(metricPrefix);
+            this.written = metricRegistry.meter(name(metricPrefix, "written"));
+            this.dropped = metricRegistry.meter(name(metricPrefix, "dropped"));
+            this.failed = metricRegistry.meter(name(metricPrefix, "failed"));
+            this.latency = metricRegistry.timer(name(metricPrefix, "latency"));
+            this.writeTime = metricRegistry.timer(name(metricPrefix, "writeTime"));
+            this.batchSizes = metricRegistry.histogram(name(metricPrefix, "batchSize"));
+        }
+
+        boolean offer(Message message) {
+            if (queue.offer(new Entry(message, System.nanoTime()))) {
+                schedule();
+                return true;
+            }
+            dropped.mark();
+            RATE_LIMITED_LOG.warn("Queue of output [{}] is full, dropping messages.", output.getClass());
+            return false;
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // The writers are shutting down, the queue is discarded by the drain
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!output.isRunning()) {
+                    // The output has been stopped without draining the queue first
+                    writers.remove(output, this);
+                    discard();
+                    return;
+                }
+                final List<Entry> entries = new ArrayList<>(batchSize);
+                for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+                    queue.drainTo(entries, batchSize);
+                    if (entries.isEmpty()) {
+                        break;
+                    }
+                    write(entries);
+                    entries.clear();
+                }
+            } finally {
+                scheduled.set(false);
+                lock.lock();
+                try {
+                    idle.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                if (!queue.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+
+        private void write(List<Entry> entries) {
+            final List<Message> messages = new ArrayList<>(entries.size());
+            entries.forEach(entry -> messages.add(entry.message()));
+            batchSizes.update(messages.size());
+            try (Timer.Context ignored = writeTime.time()) {
+                output.write(messages);
+                written.mark(messages.size());
+            } catch (Exception e) {
+                failed.mark(messages.size());
+                LOG.error("Error in output [" + output.getClass() + "].", e);
+            }
+            final long now = System.nanoTime();
+            entries.forEach(entry -> latency.update(now - entry.enqueuedNanos(), TimeUnit.NANOSECONDS));
+        }
+
+        void drain(long deadlineNanos) {
+            schedule();
+            lock.lock();
+            try {
+                long remainingNanos = deadlineNanos - System.nanoTime();
+                while ((!queue.isEmpty() || scheduled.get()) && remainingNanos > 0) {
+                    remainingNanos = idle.awaitNanos(remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+            discard();
+        }
+
+        private void discard() {
+            final List<Entry> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            if (!remaining.isEmpty()) {
+                dropped.mark(remaining.size());
+                LOG.warn("Output [{}] has been stopped, dropping {} queued messages.", output.getClass(), remaining.size());
+            }
+            if (released.compareAndSet(false, true)) {
+                releaseMetrics(metricPrefix);
+            }
+        }
+    }
+}
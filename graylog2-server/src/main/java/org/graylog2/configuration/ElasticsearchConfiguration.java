@@ -90,6 +90,9 @@ public class ElasticsearchConfiguration {
     @Parameter(value = "index_field_type_periodical_full_refresh_interval", validators = {PositiveDurationValidator.class})
     private Duration indexFieldTypePeriodicalFullRefreshInterval = Duration.minutes(5);
 
+    @Parameter(value = "index_field_type_periodical_concurrency", validators = PositiveIntegerValidator.class)
+    private int indexFieldTypePeriodicalConcurrency = 10;
+
     @Parameter(value = "retention_strategy", required = true)
     private String retentionStrategy = DeletionRetentionStrategy.NAME;
 
@@ -219,6 +222,10 @@ public class ElasticsearchConfiguration {
         return indexFieldTypePeriodicalFullRefreshInterval;
     }
 
+    public int getIndexFieldTypePeriodicalConcurrency() {
+        return indexFieldTypePeriodicalConcurrency;
+    }
+
     public String getRotationStrategy() {
         return rotationStrategy;
     }
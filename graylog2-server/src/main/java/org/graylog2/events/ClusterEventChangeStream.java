@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.events;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.conversions.Bson;
+import org.graylog2.plugin.Tools;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Receives the cluster events written by other nodes with a MongoDB change stream on a dedicated thread.
+ * <p>
+ * The change stream is reopened after errors until it is {@link #stop() stopped} or MongoDB turns out not to support
+ * change streams (i.e. it is a standalone server).
+ */
+class ClusterEventChangeStream {
+    private static final Logger LOG = LoggerFactory.getLogger(ClusterEventChangeStream.class);
+
+    @VisibleForTesting
+    static final int MAX_BATCH_SIZE = 100;
+    // Error code of MongoDB for change streams on a standalone server
+    private static final int CHANGE_STREAMS_NOT_SUPPORTED = 40573;
+
+    private final MongoCollection<ClusterEvent> collection;
+    private final List<Bson> pipeline;
+    private final Consumer<List<ClusterEvent>> eventConsumer;
+    private final Runnable openListener;
+    private final long retryDelayMs;
+
+    private volatile boolean active = false;
+    private volatile boolean stopped = false;
+    private volatile Thread thread;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<ClusterEvent>> cursor;
+
+    /**
+     * @param eventConsumer receives the events in batches of the events which are available at once
+     * @param openListener  is called whenever the change stream has been (re)opened
+     */
+    ClusterEventChangeStream(MongoCollection<ClusterEvent> collection,
+                             String nodeId,
+                             Consumer<List<ClusterEvent>> eventConsumer,
+                             Runnable openListener,
+                             long retryDelayMs) {
+        this.collection = checkNotNull(collection);
+        this.pipeline = List.of(Aggregates.match(Filters.and(
+                Filters.eq("operationType", "insert"),
+                Filters.nin("fullDocument.consumers", nodeId))));
+        this.eventConsumer = checkNotNull(eventConsumer);
+        this.openListener = checkNotNull(openListener);
+        this.retryDelayMs = retryDelayMs;
+    }
+
+    synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this::watch, "cluster-event-change-stream");
+        thread.setDaemon(true);
+        thread.setUncaughtExceptionHandler(new Tools.LogUncaughtExceptionHandler(LOG));
+        thread.start();
+    }
+
+    /**
+     * Closes the change stream and stops the thread. The change stream can't be started again afterwards.
+     */
+    void stop() {
+        stopped = true;
+        final MongoChangeStreamCursor<ChangeStreamDocument<ClusterEvent>> currentCursor = cursor;
+        if (currentCursor != null) {
+            try {
+                currentCursor.close();
+            } catch (Exception e) {
+                LOG.debug("Error while closing MongoDB change stream", e);
+            }
+        }
+        final Thread currentThread = thread;
+        if (currentThread != null) {
+            currentThread.interrupt();
+        }
+    }
+
+    /**
+     * Whether the change stream is currently open.
+     */
+    boolean isActive() {
+        return active;
+    }
+
+    @VisibleForTesting
+    Thread thread() {
+        return thread;
+    }
+
+    private void watch() {
+        while (!stopped) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<ClusterEvent>> openedCursor = collection.watch(pipeline).cursor()) {
+                cursor = openedCursor;
+                // stop() might have missed the cursor
+                if (stopped) {
+                    return;
+                }
+                LOG.debug("Receiving cluster events with a MongoDB change stream");
+                active = true;
+                openListener.run();
+
+                while (!stopped) {
+                    eventConsumer.accept(nextBatch(openedCursor, MAX_BATCH_SIZE));
+                }
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == CHANGE_STREAMS_NOT_SUPPORTED) {
+                    LOG.info("MongoDB doesn't support change streams, polling for cluster events.");
+                    return;
+                }
+                logError(e);
+            } catch (Exception e) {
+                logError(e);
+            } finally {
+                active = false;
+                cursor = null;
+            }
+
+            try {
+                Thread.sleep(retryDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void logError(Exception e) {
+        // Closing the cursor on stop makes the pending read fail
+        if (!stopped) {
+            LOG.warn("Error while receiving cluster events from MongoDB change stream, retrying.", e);
+        }
+    }
+
+    /**
+     * Waits for the next event and drains the events which are already available, so the consumers can be updated
+     * at once.
+     */
+    @VisibleForTesting
+    static List<ClusterEvent> nextBatch(MongoChangeStreamCursor<ChangeStreamDocument<ClusterEvent>> cursor, int maxSize) {
+        final List<ClusterEvent> batch = new ArrayList<>();
+        batch.add(cursor.next().getFullDocument());
+        ChangeStreamDocument<ClusterEvent> next;
+        while (batch.size() < maxSize && (next = cursor.tryNext()) != null) {
+            batch.add(next.getFullDocument());
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.events;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.eventbus.EventBus;
+import org.graylog2.plugin.Tools;
+import org.graylog2.security.RestrictedChainingClassLoader;
+import org.graylog2.security.UnsafeClassLoadingAttemptException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Posts cluster events to the local event bus and marks them as consumed by this node.
+ * <p>
+ * Events can be received by the change stream and by polling at the same time, so the IDs of the delivered events
+ * are remembered for a while and events which have already been delivered are skipped.
+ */
+class ClusterEventDelivery {
+    private static final Logger LOG = LoggerFactory.getLogger(ClusterEventDelivery.class);
+
+    private final ObjectMapper objectMapper;
+    private final RestrictedChainingClassLoader chainingClassLoader;
+    private final EventBus serverEventBus;
+    private final Consumer<List<String>> consumerUpdater;
+    private final Timer deliveryLatency;
+    private final Cache<String, Boolean> deliveredEventIds = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * @param consumerUpdater adds this node to the consumers of the events with the given IDs
+     */
+    ClusterEventDelivery(ObjectMapper objectMapper,
+                         RestrictedChainingClassLoader chainingClassLoader,
+                         EventBus serverEventBus,
+                         Consumer<List<String>> consumerUpdater,
+                         Timer deliveryLatency) {
+        this.objectMapper = checkNotNull(objectMapper);
+        this.chainingClassLoader = chainingClassLoader;
+        this.serverEventBus = checkNotNull(serverEventBus);
+        this.consumerUpdater = checkNotNull(consumerUpdater);
+        this.deliveryLatency = checkNotNull(deliveryLatency);
+    }
+
+    /**
+     * Posts the events to the local event bus and updates the consumers of all of them at once. Events with an
+     * invalid payload are marked as consumed as well, so they aren't read again.
+     */
+    synchronized void deliver(List<ClusterEvent> clusterEvents, Meter transportMeter) {
+        final List<String> deliveredIds = new ArrayList<>(clusterEvents.size());
+        for (ClusterEvent clusterEvent : clusterEvents) {
+            if (clusterEvent == null || clusterEvent.id() == null || deliveredEventIds.getIfPresent(clusterEvent.id()) != null) {
+                continue;
+            }
+            LOG.trace("Processing cluster event: {}", clusterEvent);
+
+            Object payload = extractPayload(clusterEvent.payload(), clusterEvent.eventClass());
+            if (payload != null) {
+                serverEventBus.post(payload);
+                transportMeter.mark();
+                deliveryLatency.update(Math.max(0, Tools.nowUTC().getMillis() - clusterEvent.timestamp()), TimeUnit.MILLISECONDS);
+            } else {
+                LOG.warn("Couldn't extract payload of cluster event with ID <{}>", clusterEvent.id());
+                LOG.debug("Invalid payload in cluster event: {}", clusterEvent);
+            }
+
+            deliveredEventIds.put(clusterEvent.id(), Boolean.TRUE);
+            deliveredIds.add(clusterEvent.id());
+        }
+        if (!deliveredIds.isEmpty()) {
+            consumerUpdater.accept(deliveredIds);
+        }
+    }
+
+    private Object extractPayload(Object payload, String eventClass) {
+        try {
+            final Class<?> clazz = chainingClassLoader.loadClassSafely(eventClass);
+            return objectMapper.convertValue(payload, clazz);
+        } catch (ClassNotFoundException e) {
+            LOG.debug("Couldn't load class <" + eventClass + "> for event", e);
+        } catch (IllegalArgumentException e) {
+            LOG.debug("Error while deserializing payload", e);
+        } catch (UnsafeClassLoadingAttemptException e) {
+            LOG.warn("Couldn't load class <{}>.", eventClass, e);
+        }
+        return null;
+    }
+}
@@ -16,6 +16,8 @@
  */
 package org.graylog2.events;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.eventbus.DeadEvent;
@@ -28,38 +30,60 @@ import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
 import com.mongodb.MongoException;
 import com.mongodb.WriteConcern;
+import com.mongodb.client.MongoCollection;
 import jakarta.inject.Inject;
+import org.bson.types.ObjectId;
 import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
+import org.graylog2.database.MongoCollections;
 import org.graylog2.database.MongoConnection;
 import org.graylog2.plugin.periodical.Periodical;
 import org.graylog2.plugin.system.NodeId;
 import org.graylog2.security.RestrictedChainingClassLoader;
 import org.graylog2.security.SafeClasses;
-import org.graylog2.security.UnsafeClassLoadingAttemptException;
 import org.graylog2.shared.plugins.ChainingClassLoader;
 import org.graylog2.shared.utilities.AutoValueUtils;
 import org.mongojack.DBCursor;
 import org.mongojack.DBSort;
-import org.mongojack.DBUpdate;
 import org.mongojack.JacksonDBCollection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+/**
+ * Delivers cluster events written by other nodes to the local event bus.
+ * <p>
+ * New events are pushed by a MongoDB change stream if the MongoDB deployment supports it (i.e. it is a replica set or
+ * sharded cluster). The collection is still polled every second as long as the change stream isn't available, and
+ * every {@link #CHANGE_STREAM_POLL_INTERVAL_MS} ms while it is, to pick up events the change stream might have missed,
+ * e.g. while reconnecting.
+ */
 public class ClusterEventPeriodical extends Periodical {
     private static final Logger LOG = LoggerFactory.getLogger(ClusterEventPeriodical.class);
 
     @VisibleForTesting
     static final String COLLECTION_NAME = "cluster_events";
+    private static final long CHANGE_STREAM_POLL_INTERVAL_MS = 30_000;
+    private static final long CHANGE_STREAM_RETRY_DELAY_MS = 5_000;
+    private static final int CONSUMER_UPDATE_BATCH_SIZE = 100;
 
     private final JacksonDBCollection<ClusterEvent, String> dbCollection;
+    @Nullable
+    private final ClusterEventChangeStream changeStream;
     private final NodeId nodeId;
-    private final ObjectMapper objectMapper;
     private final EventBus serverEventBus;
-    private final RestrictedChainingClassLoader chainingClassLoader;
+    private final ClusterEventDelivery delivery;
+
+    private volatile long lastPollMillis = 0;
+
+    private final Meter eventsByChangeStream;
+    private final Meter eventsByPolling;
 
     @Inject
     public ClusterEventPeriodical(final MongoJackObjectMapperProvider mapperProvider,
@@ -67,9 +91,11 @@ public class ClusterEventPeriodical extends Periodical {
                                   final NodeId nodeId,
                                   final RestrictedChainingClassLoader chainingClassLoader,
                                   final EventBus serverEventBus,
-                                  final ClusterEventBus clusterEventBus) {
+                                  final ClusterEventBus clusterEventBus,
+                                  final MetricRegistry metricRegistry) {
         this(JacksonDBCollection.wrap(prepareCollection(mongoConnection), ClusterEvent.class, String.class, mapperProvider.get()),
-                nodeId, mapperProvider.get(), chainingClassLoader, serverEventBus, clusterEventBus);
+                new MongoCollections(mapperProvider, mongoConnection).nonEntityCollection(COLLECTION_NAME, ClusterEvent.class),
+                nodeId, mapperProvider.get(), chainingClassLoader, serverEventBus, clusterEventBus, metricRegistry);
     }
 
     @Deprecated
@@ -80,22 +106,32 @@ public class ClusterEventPeriodical extends Periodical {
                                   final EventBus serverEventBus,
                                   final ClusterEventBus clusterEventBus) {
         this(JacksonDBCollection.wrap(prepareCollection(mongoConnection), ClusterEvent.class, String.class,
-                        mapperProvider.get()), nodeId, mapperProvider.get(),
+                        mapperProvider.get()), null, nodeId, mapperProvider.get(),
                 new RestrictedChainingClassLoader(chainingClassLoader, SafeClasses.allGraylogInternal()),
-                serverEventBus, clusterEventBus);
+                serverEventBus, clusterEventBus, new MetricRegistry());
     }
 
     private ClusterEventPeriodical(final JacksonDBCollection<ClusterEvent, String> dbCollection,
+                                   @Nullable final MongoCollection<ClusterEvent> changeStreamCollection,
                                    final NodeId nodeId,
                                    final ObjectMapper objectMapper,
                                    final RestrictedChainingClassLoader chainingClassLoader,
                                    final EventBus serverEventBus,
-                                   final ClusterEventBus clusterEventBus) {
+                                   final ClusterEventBus clusterEventBus,
+                                   final MetricRegistry metricRegistry) {
         this.nodeId = checkNotNull(nodeId);
         this.dbCollection = checkNotNull(dbCollection);
-        this.objectMapper = checkNotNull(objectMapper);
-        this.chainingClassLoader = chainingClassLoader;
         this.serverEventBus = checkNotNull(serverEventBus);
+        this.eventsByChangeStream = metricRegistry.meter(name(ClusterEventPeriodical.class, "events", "change-stream"));
+        this.eventsByPolling = metricRegistry.meter(name(ClusterEventPeriodical.class, "events", "polling"));
+        this.delivery = new ClusterEventDelivery(objectMapper, chainingClassLoader, serverEventBus,
+                this::updateConsumers, metricRegistry.timer(name(ClusterEventPeriodical.class, "delivery-latency")));
+        this.changeStream = changeStreamCollection == null ? null : new ClusterEventChangeStream(
+                changeStreamCollection, nodeId.getNodeId(),
+                batch -> delivery.deliver(batch, eventsByChangeStream),
+                // Pick up the events which have been written before the change stream was opened
+                () -> lastPollMillis = 0,
+                CHANGE_STREAM_RETRY_DELAY_MS);
 
         checkNotNull(clusterEventBus).registerClusterEventSubscriber(this);
     }
@@ -116,6 +152,20 @@ public class ClusterEventPeriodical extends Periodical {
         return coll;
     }
 
+    @Override
+    public void initialize() {
+        if (changeStream != null) {
+            changeStream.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (changeStream != null) {
+            changeStream.stop();
+        }
+    }
+
     @Override
     public boolean runsForever() {
         return false;
@@ -158,26 +208,26 @@ public class ClusterEventPeriodical extends Periodical {
 
     @Override
     public void doRun() {
+        if (changeStream != null && changeStream.isActive() && System.currentTimeMillis() - lastPollMillis < CHANGE_STREAM_POLL_INTERVAL_MS) {
+            return;
+        }
+        lastPollMillis = System.currentTimeMillis();
+
         LOG.debug("Opening MongoDB cursor on \"{}\"", COLLECTION_NAME);
         try (DBCursor<ClusterEvent> cursor = eventCursor(nodeId)) {
             if (LOG.isTraceEnabled()) {
                 LOG.trace("MongoDB query plan: {}", cursor.explain());
             }
 
+            final List<ClusterEvent> batch = new ArrayList<>(CONSUMER_UPDATE_BATCH_SIZE);
             while (cursor.hasNext()) {
-                ClusterEvent clusterEvent = cursor.next();
-                LOG.trace("Processing cluster event: {}", clusterEvent);
-
-                Object payload = extractPayload(clusterEvent.payload(), clusterEvent.eventClass());
-                if (payload != null) {
-                    serverEventBus.post(payload);
-                } else {
-                    LOG.warn("Couldn't extract payload of cluster event with ID <{}>", clusterEvent.id());
-                    LOG.debug("Invalid payload in cluster event: {}", clusterEvent);
+                batch.add(cursor.next());
+                if (batch.size() == CONSUMER_UPDATE_BATCH_SIZE) {
+                    delivery.deliver(batch, eventsByPolling);
+                    batch.clear();
                 }
-
-                updateConsumers(clusterEvent.id(), nodeId);
             }
+            delivery.deliver(batch, eventsByPolling);
         } catch (Exception e) {
             LOG.warn("Error while reading cluster events from MongoDB, retrying.", e);
         }
@@ -214,21 +264,12 @@ public class ClusterEventPeriodical extends Periodical {
         return dbCollection.find(query).sort(DBSort.asc("timestamp"));
     }
 
-    private void updateConsumers(final String eventId, final NodeId nodeId) {
-        dbCollection.updateById(eventId, DBUpdate.addToSet("consumers", nodeId.getNodeId()));
-    }
-
-    private Object extractPayload(Object payload, String eventClass) {
-        try {
-            final Class<?> clazz = chainingClassLoader.loadClassSafely(eventClass);
-            return objectMapper.convertValue(payload, clazz);
-        } catch (ClassNotFoundException e) {
-            LOG.debug("Couldn't load class <" + eventClass + "> for event", e);
-        } catch (IllegalArgumentException e) {
-            LOG.debug("Error while deserializing payload", e);
-        } catch (UnsafeClassLoadingAttemptException e) {
-            LOG.warn("Couldn't load class <{}>.", eventClass, e);
-        }
-        return null;
+    private void updateConsumers(final List<String> eventIds) {
+        final BasicDBList objectIds = new BasicDBList();
+        eventIds.stream().map(ObjectId::new).forEach(objectIds::add);
+        dbCollection.getDbCollection().update(
+                new BasicDBObject("_id", new BasicDBObject("$in", objectIds)),
+                new BasicDBObject("$addToSet", new BasicDBObject("consumers", nodeId.getNodeId())),
+                false, true);
     }
 }
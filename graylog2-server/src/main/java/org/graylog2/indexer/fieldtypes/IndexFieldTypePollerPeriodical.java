@@ -17,12 +17,20 @@
 package org.graylog2.indexer.fieldtypes;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.graylog2.events.ClusterEventBus;
 import org.graylog2.indexer.IndexSet;
 import org.graylog2.indexer.MongoIndexSet;
 import org.graylog2.indexer.cluster.Cluster;
+import org.graylog2.indexer.fieldtypes.events.IndexFieldTypesUpdatedEvent;
 import org.graylog2.indexer.indexset.IndexSetConfig;
 import org.graylog2.indexer.indexset.IndexSetService;
 import org.graylog2.indexer.indexset.events.IndexSetCreatedEvent;
@@ -31,6 +39,7 @@ import org.graylog2.indexer.indices.Indices;
 import org.graylog2.indexer.indices.TooManyAliasesException;
 import org.graylog2.indexer.indices.events.IndicesDeletedEvent;
 import org.graylog2.plugin.ServerStatus;
+import org.graylog2.plugin.Tools;
 import org.graylog2.plugin.lifecycles.Lifecycle;
 import org.graylog2.plugin.periodical.Periodical;
 import org.joda.time.Duration;
@@ -40,12 +49,21 @@ import org.slf4j.LoggerFactory;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
@@ -58,44 +76,83 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
 
     private final IndexFieldTypePoller poller;
     private final IndexFieldTypesService dbService;
+    private final IndexFieldTypesCatalog catalog;
     private final IndexSetService indexSetService;
     private final Indices indices;
     private final MongoIndexSet.Factory mongoIndexSetFactory;
     private final Cluster cluster;
+    private final ClusterEventBus clusterEventBus;
     private final ServerStatus serverStatus;
     private final com.github.joschi.jadconfig.util.Duration fullRefreshInterval;
-    private final ScheduledExecutorService scheduler;
+    // Refreshes and polls block while waiting for the search backend, so they don't run on the shared scheduler
+    private final ExecutorService executor;
 
     private volatile Set<IndexSetConfig> allIndexSetConfigs;
     private volatile Instant lastFullRefresh = Instant.MIN;
     private final ConcurrentHashMap<String, Instant> lastPoll = new ConcurrentHashMap<>();
+    // Index sets whose poll is queued or running
     private final ConcurrentHashMap<String, Boolean> pollInProgress = new ConcurrentHashMap<>();
+    // Fingerprints of the field types stored in the database, by index name
+    private final ConcurrentHashMap<String, HashCode> fingerprints = new ConcurrentHashMap<>();
 
     @Inject
     public IndexFieldTypePollerPeriodical(final IndexFieldTypePoller poller,
                                           final IndexFieldTypesService dbService,
+                                          final IndexFieldTypesCatalog catalog,
                                           // We are NOT using IndexSetRegistry here because of this: https://github.com/Graylog2/graylog2-server/issues/4625
                                           final IndexSetService indexSetService,
                                           final Indices indices,
                                           final MongoIndexSet.Factory mongoIndexSetFactory,
                                           final Cluster cluster,
                                           final EventBus eventBus,
+                                          final ClusterEventBus clusterEventBus,
                                           final ServerStatus serverStatus,
                                           @Named("index_field_type_periodical_full_refresh_interval") final com.github.joschi.jadconfig.util.Duration fullRefreshInterval,
-                                          @Named("daemonScheduler") final ScheduledExecutorService scheduler) {
+                                          @Named("index_field_type_periodical_concurrency") final int concurrency) {
+        this(poller, dbService, catalog, indexSetService, indices, mongoIndexSetFactory, cluster, eventBus,
+                clusterEventBus, serverStatus, fullRefreshInterval, createExecutor(concurrency));
+    }
+
+    @VisibleForTesting
+    IndexFieldTypePollerPeriodical(final IndexFieldTypePoller poller,
+                                   final IndexFieldTypesService dbService,
+                                   final IndexFieldTypesCatalog catalog,
+                                   final IndexSetService indexSetService,
+                                   final Indices indices,
+                                   final MongoIndexSet.Factory mongoIndexSetFactory,
+                                   final Cluster cluster,
+                                   final EventBus eventBus,
+                                   final ClusterEventBus clusterEventBus,
+                                   final ServerStatus serverStatus,
+                                   final com.github.joschi.jadconfig.util.Duration fullRefreshInterval,
+                                   final ExecutorService executor) {
         this.poller = poller;
         this.dbService = dbService;
+        this.catalog = catalog;
         this.indexSetService = indexSetService;
         this.indices = indices;
         this.mongoIndexSetFactory = mongoIndexSetFactory;
         this.cluster = cluster;
+        this.clusterEventBus = clusterEventBus;
         this.serverStatus = serverStatus;
         this.fullRefreshInterval = fullRefreshInterval;
-        this.scheduler = scheduler;
+        this.executor = executor;
 
         eventBus.register(this);
     }
 
+    private static ExecutorService createExecutor(int concurrency) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrency, concurrency, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("index-field-type-poller-%d")
+                        .setDaemon(true)
+                        .setUncaughtExceptionHandler(new Tools.LogUncaughtExceptionHandler(LOG))
+                        .build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private static final Set<Lifecycle> skippedLifecycles = ImmutableSet.of(Lifecycle.STARTING, Lifecycle.HALTING, Lifecycle.PAUSED, Lifecycle.FAILED, Lifecycle.UNINITIALIZED);
 
     @Override
@@ -141,27 +198,59 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
         LOG.debug("Refreshing index field types for {} index sets.", indexSetConfigs.size());
 
         // this is the first time we run, or the index sets have changed, so we re-initialize the field types
-        indexSetConfigs.forEach(indexSetConfig -> {
-            final String indexSetId = indexSetConfig.id();
-            final String indexSetTitle = indexSetConfig.title();
+        final List<Future<?>> refreshes = new ArrayList<>(indexSetConfigs.size());
+        try {
+            for (final IndexSetConfig indexSetConfig : indexSetConfigs) {
+                refreshes.add(executor.submit(() -> refreshFieldTypes(indexSetConfig)));
+            }
+            for (final Future<?> refresh : refreshes) {
+                try {
+                    refresh.get();
+                } catch (ExecutionException e) {
+                    LOG.error("Couldn't refresh index field types", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted while refreshing index field types");
+            Thread.currentThread().interrupt();
+        }
+    }
 
-            try {
-                final Set<IndexFieldTypesDTO> existingIndexTypes = ImmutableSet.copyOf(dbService.findForIndexSet(indexSetId));
+    private void refreshFieldTypes(IndexSetConfig indexSetConfig) {
+        final String indexSetId = indexSetConfig.id();
+        final String indexSetTitle = indexSetConfig.title();
 
-                final IndexSet indexSet = mongoIndexSetFactory.create(indexSetConfig);
+        try {
+            final Set<IndexFieldTypesDTO> existingIndexTypes = ImmutableSet.copyOf(dbService.findForIndexSet(indexSetId));
+            existingIndexTypes.forEach(types -> fingerprints.put(types.indexName(), fingerprint(types.fields(), types.hasStreamData())));
 
-                // We check that we have the field types for all existing indices
-                LOG.debug("Refreshing index field types for index set <{}/{}>", indexSetTitle, indexSetId);
-                poller.poll(indexSet, existingIndexTypes).forEach(dbService::upsert);
+            final IndexSet indexSet = mongoIndexSetFactory.create(indexSetConfig);
 
-                // Cleanup orphaned field type entries that haven't been removed by the event handler
-                dbService.findForIndexSet(indexSetId).stream()
-                        .filter(types -> !indices.exists(types.indexName()))
-                        .forEach(types -> dbService.delete(types.id()));
-            } finally {
-                lastPoll.put(indexSetId, Instant.now());
-            }
-        });
+            // We check that we have the field types for all existing indices
+            LOG.debug("Refreshing index field types for index set <{}/{}>", indexSetTitle, indexSetId);
+            final Set<String> changedIndices = new HashSet<>();
+            poller.poll(indexSet, existingIndexTypes).forEach(types -> {
+                if (store(types)) {
+                    changedIndices.add(types.indexName());
+                }
+            });
+
+            // Cleanup orphaned field type entries that haven't been removed by the event handler
+            final Set<String> orphanedIndices = new HashSet<>();
+            existingIndexTypes.stream()
+                    .filter(types -> !indices.exists(types.indexName()))
+                    .forEach(types -> {
+                        dbService.delete(types.id());
+                        fingerprints.remove(types.indexName());
+                        orphanedIndices.add(types.indexName());
+                    });
+            catalog.remove(orphanedIndices);
+            changedIndices.addAll(orphanedIndices);
+
+            postUpdatedEvent(indexSetId, changedIndices);
+        } finally {
+            lastPoll.put(indexSetId, Instant.now());
+        }
     }
 
     private void poll(Collection<IndexSetConfig> indexSetConfigs) {
@@ -183,38 +272,114 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
         final String indexSetTitle = indexSetConfig.title();
         final String indexSetId = indexSetConfig.id();
 
-        scheduler.submit(() -> {
-            if (this.pollInProgress.containsKey(indexSetId)) {
-                LOG.debug("Poll for index set <{}> is already in progress", indexSetTitle);
-                return;
-            }
-            LOG.debug("Starting poll for index set <{}>, current polls in progress {}", indexSetTitle, this.pollInProgress.keySet());
+        // Polls wait in the queue of the executor while all threads are busy, e.g. with a full refresh. There is at
+        // most one queued or running poll per index set.
+        if (pollInProgress.putIfAbsent(indexSetId, Boolean.TRUE) != null) {
+            LOG.debug("Poll for index set <{}> is already in progress", indexSetTitle);
+            return;
+        }
+        try {
+            executor.submit(() -> pollIndexSet(indexSetConfig));
+        } catch (RuntimeException e) {
+            pollInProgress.remove(indexSetId);
+            throw e;
+        }
+    }
 
-            final Stopwatch stopwatch = Stopwatch.createStarted();
-            try {
-                this.pollInProgress.put(indexSetId, Boolean.TRUE);
-                final MongoIndexSet indexSet = mongoIndexSetFactory.create(indexSetConfig);
-                // Only check the active write index on a regular basis, the others don't change anymore
-                final String activeWriteIndex = indexSet.getActiveWriteIndex();
-                if (activeWriteIndex != null) {
-                    LOG.debug("Updating index field types for active write index <{}> in index set <{}/{}>",
-                            activeWriteIndex, indexSetTitle, indexSetId);
-                    poller.pollIndex(activeWriteIndex, indexSetId).ifPresent(dbService::upsert);
-                } else {
-                    LOG.warn("Active write index for index set \"{}\" ({}) doesn't exist yet",
-                            indexSetTitle, indexSetId);
-                }
-            } catch (TooManyAliasesException e) {
-                LOG.error("Couldn't get active write index", e);
-            } catch (Exception e) {
-                LOG.error("Couldn't update field types for index set <{}/{}>", indexSetTitle, indexSetId, e);
-            } finally {
-                this.pollInProgress.remove(indexSetId);
-                lastPoll.put(indexSetId, Instant.now());
-                stopwatch.stop();
-                LOG.debug("Polling index set <{}> took {}ms", indexSetTitle, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+    private void pollIndexSet(IndexSetConfig indexSetConfig) {
+        final String indexSetTitle = indexSetConfig.title();
+        final String indexSetId = indexSetConfig.id();
+
+        LOG.debug("Starting poll for index set <{}>, current polls in progress {}", indexSetTitle, this.pollInProgress.keySet());
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+            final MongoIndexSet indexSet = mongoIndexSetFactory.create(indexSetConfig);
+            // Only check the active write index on a regular basis, the others don't change anymore
+            final String activeWriteIndex = indexSet.getActiveWriteIndex();
+            if (activeWriteIndex != null) {
+                LOG.debug("Updating index field types for active write index <{}> in index set <{}/{}>",
+                        activeWriteIndex, indexSetTitle, indexSetId);
+                poller.pollIndex(activeWriteIndex, indexSetId)
+                        .filter(this::store)
+                        .ifPresent(types -> postUpdatedEvent(indexSetId, Set.of(types.indexName())));
+            } else {
+                LOG.warn("Active write index for index set \"{}\" ({}) doesn't exist yet",
+                        indexSetTitle, indexSetId);
             }
-        });
+        } catch (TooManyAliasesException e) {
+            LOG.error("Couldn't get active write index", e);
+        } catch (Exception e) {
+            LOG.error("Couldn't update field types for index set <{}/{}>", indexSetTitle, indexSetId, e);
+        } finally {
+            this.pollInProgress.remove(indexSetId);
+            lastPoll.put(indexSetId, Instant.now());
+            stopwatch.stop();
+            LOG.debug("Polling index set <{}> took {}ms", indexSetTitle, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Stores the field types in the database and in the local catalog. Nothing is written if the fingerprint of the
+     * field types didn't change, and only the new fields are written if fields have been added.
+     *
+     * @return true if the field types of the index have changed
+     */
+    private boolean store(IndexFieldTypesDTO types) {
+        final HashCode fingerprint = fingerprint(types.fields(), types.hasStreamData());
+        final HashCode previousFingerprint = fingerprints.get(types.indexName());
+        if (fingerprint.equals(previousFingerprint)) {
+            LOG.trace("Field types of index <{}> didn't change", types.indexName());
+            return false;
+        }
+
+        if (previousFingerprint == null || !addNewFields(types, previousFingerprint)) {
+            dbService.upsert(types);
+        }
+        fingerprints.put(types.indexName(), fingerprint);
+        return catalog.update(types);
+    }
+
+    private boolean addNewFields(IndexFieldTypesDTO types, HashCode previousFingerprint) {
+        // The catalog only tells us which fields are new if it knows exactly what is stored in the database
+        final Optional<Set<FieldTypeDTO>> previousFields = catalog.fields(types.indexName())
+                .filter(fields -> previousFingerprint.equals(fingerprint(fields, types.hasStreamData())));
+        if (previousFields.isEmpty() || !types.fields().containsAll(previousFields.get())) {
+            return false;
+        }
+        final Set<FieldTypeDTO> newFields = Sets.difference(types.fields(), previousFields.get());
+        LOG.debug("Adding {} new fields to field types of index <{}>", newFields.size(), types.indexName());
+        return dbService.addFields(types.indexSetId(), types.indexName(), newFields);
+    }
+
+    /**
+     * Returns a fingerprint of the given field types which doesn't depend on the iteration order of the sets.
+     */
+    @VisibleForTesting
+    static HashCode fingerprint(Set<FieldTypeDTO> fields, boolean hasStreamData) {
+        final List<HashCode> hashes = new ArrayList<>(fields.size() + 1);
+        hashes.add(Hashing.murmur3_128().hashInt(hasStreamData ? 1 : 0));
+        for (final FieldTypeDTO field : fields) {
+            final Hasher hasher = Hashing.murmur3_128().newHasher()
+                    .putString(field.fieldName(), StandardCharsets.UTF_8)
+                    .putChar('\0')
+                    .putString(field.physicalType(), StandardCharsets.UTF_8)
+                    .putChar('\0');
+            field.properties().stream().map(Enum::name).sorted()
+                    .forEach(property -> hasher.putString(property, StandardCharsets.UTF_8).putChar('\0'));
+            hasher.putChar('\1');
+            field.streams().stream().sorted()
+                    .forEach(stream -> hasher.putString(stream, StandardCharsets.UTF_8).putChar('\0'));
+            hashes.add(hasher.hash());
+        }
+        return Hashing.combineUnordered(hashes);
+    }
+
+    private void postUpdatedEvent(String indexSetId, Set<String> indexNames) {
+        if (!indexNames.isEmpty()) {
+            // The catalog of this node has already been updated, it reloads the same field types for the local delivery
+            clusterEventBus.post(IndexFieldTypesUpdatedEvent.create(indexSetId, ImmutableSet.copyOf(indexNames)));
+        }
     }
 
     private boolean needsFullRefresh() {
@@ -271,9 +436,15 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
         event.indices().forEach(indexName -> {
             LOG.debug("Removing field type information for deleted index <{}>", indexName);
             dbService.delete(indexName);
+            fingerprints.remove(indexName);
         });
     }
 
+    @Override
+    public void stop() {
+        executor.shutdownNow();
+    }
+
     @Override
     public boolean runsForever() {
         return false;
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.fieldtypes;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.graylog2.indexer.fieldtypes.events.IndexFieldTypesUpdatedEvent;
+import org.graylog2.indexer.indexset.events.IndexSetDeletedEvent;
+import org.graylog2.indexer.indices.events.IndicesDeletedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Node-local copy of the index field types stored by {@link IndexFieldTypesService}.
+ * <p>
+ * Indices with the same fields share a single {@link Schema}, so a lookup for many indices usually only returns a
+ * handful of schemas. Schemas are immutable and their IDs are never reused, which allows callers to cache results
+ * computed from a set of schemas by their IDs.
+ * <p>
+ * The field types of an index set are loaded on first use. Changes are applied from {@link IndexFieldTypesUpdatedEvent}
+ * cluster events and index deletions. As a safety net for missed events, index sets are loaded again from the database
+ * after the full refresh interval of the {@link IndexFieldTypePollerPeriodical}.
+ */
+@Singleton
+public class IndexFieldTypesCatalog {
+    private static final Logger LOG = LoggerFactory.getLogger(IndexFieldTypesCatalog.class);
+    private static final long DEFAULT_MAX_AGE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    /**
+     * The fields of one or more indices.
+     *
+     * @param id     unique ID of the schema, never reused for different fields
+     * @param fields the fields of the indices
+     */
+    public record Schema(int id, Set<FieldTypeDTO> fields) {}
+
+    private record IndexEntry(String indexSetId, Schema schema) {}
+
+    private final IndexFieldTypesService indexFieldTypesService;
+    private final long maxAgeNanos;
+    private final Ticker ticker;
+
+    private final Map<String, IndexEntry> indices = new ConcurrentHashMap<>();
+    private final Map<String, Long> loadedIndexSets = new ConcurrentHashMap<>();
+    // Only accessed while holding the lock on this instance
+    private final Map<Set<FieldTypeDTO>, Schema> schemas = new HashMap<>();
+    private final AtomicInteger nextSchemaId = new AtomicInteger();
+
+    @Inject
+    public IndexFieldTypesCatalog(final IndexFieldTypesService indexFieldTypesService,
+                                  final EventBus eventBus,
+                                  @Named("index_field_type_periodical_full_refresh_interval") final com.github.joschi.jadconfig.util.Duration fullRefreshInterval) {
+        this(indexFieldTypesService, fullRefreshInterval, Ticker.systemTicker());
+        eventBus.register(this);
+    }
+
+    @VisibleForTesting
+    IndexFieldTypesCatalog(final IndexFieldTypesService indexFieldTypesService,
+                           final com.github.joschi.jadconfig.util.Duration fullRefreshInterval,
+                           final Ticker ticker) {
+        this.indexFieldTypesService = indexFieldTypesService;
+        // Full refreshes can be disabled, we still want to pick up changes we might have missed
+        this.maxAgeNanos = fullRefreshInterval.toNanoseconds() > 0 ? fullRefreshInterval.toNanoseconds() : DEFAULT_MAX_AGE_NANOS;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Returns the distinct schemas of the given indices, ordered by schema ID.
+     *
+     * @param indexSetIds the index sets the indices must belong to
+     * @param indexNames  the indices
+     * @return the schemas of all indices which belong to one of the given index sets
+     */
+    public List<Schema> schemas(final Collection<String> indexSetIds, final Collection<String> indexNames) {
+        final Set<String> indexSetIdSet = Set.copyOf(indexSetIds);
+        loadExpired(indexSetIdSet);
+
+        final Map<Integer, Schema> result = new HashMap<>();
+        for (final String indexName : indexNames) {
+            final IndexEntry entry = indices.get(indexName);
+            if (entry != null && indexSetIdSet.contains(entry.indexSetId())) {
+                result.putIfAbsent(entry.schema().id(), entry.schema());
+            }
+        }
+        final List<Schema> schemaList = new ArrayList<>(result.values());
+        schemaList.sort(Comparator.comparingInt(Schema::id));
+        return schemaList;
+    }
+
+    /**
+     * Returns the fields of the given index if the catalog knows them.
+     */
+    public Optional<Set<FieldTypeDTO>> fields(final String indexName) {
+        return Optional.ofNullable(indices.get(indexName)).map(entry -> entry.schema().fields());
+    }
+
+    /**
+     * Stores the field types of an index.
+     *
+     * @param dto the field types of the index
+     * @return true if the fields of the index differ from the previously stored ones or if the index was unknown
+     */
+    public synchronized boolean update(final IndexFieldTypesDTO dto) {
+        final boolean changed = put(dto);
+        if (changed) {
+            pruneSchemas();
+        }
+        return changed;
+    }
+
+    /**
+     * Removes the field types of the given indices.
+     */
+    public synchronized void remove(final Collection<String> indexNames) {
+        indexNames.forEach(indices::remove);
+        pruneSchemas();
+    }
+
+    private void loadExpired(final Set<String> indexSetIds) {
+        final long now = ticker.read();
+        final Set<String> expired = indexSetIds.stream()
+                .filter(indexSetId -> {
+                    final Long loadedAt = loadedIndexSets.get(indexSetId);
+                    return loadedAt == null || now - loadedAt >= maxAgeNanos;
+                })
+                .collect(Collectors.toSet());
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        LOG.debug("Loading index field types for index sets {}", expired);
+        final Collection<IndexFieldTypesDTO> dtos = indexFieldTypesService.findForIndexSets(expired);
+        synchronized (this) {
+            final Set<String> loadedIndexNames = dtos.stream().map(IndexFieldTypesDTO::indexName).collect(Collectors.toSet());
+            indices.entrySet().removeIf(entry -> expired.contains(entry.getValue().indexSetId()) && !loadedIndexNames.contains(entry.getKey()));
+            dtos.forEach(this::put);
+            pruneSchemas();
+            expired.forEach(indexSetId -> loadedIndexSets.put(indexSetId, now));
+        }
+    }
+
+    private boolean put(final IndexFieldTypesDTO dto) {
+        final Schema schema = schemas.computeIfAbsent(dto.fields(), fields -> new Schema(nextSchemaId.getAndIncrement(), Set.copyOf(fields)));
+        final IndexEntry previous = indices.put(dto.indexName(), new IndexEntry(dto.indexSetId(), schema));
+        return previous == null || previous.schema() != schema || !previous.indexSetId().equals(dto.indexSetId());
+    }
+
+    private void pruneSchemas() {
+        final Set<Schema> referenced = indices.values().stream()
+                .map(IndexEntry::schema)
+                .collect(Collectors.toCollection(HashSet::new));
+        schemas.values().removeIf(schema -> !referenced.contains(schema));
+    }
+
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void handleIndexFieldTypesUpdated(final IndexFieldTypesUpdatedEvent event) {
+        // Index sets which haven't been loaded yet will be loaded with the latest field types on first use
+        if (!loadedIndexSets.containsKey(event.indexSetId())) {
+            return;
+        }
+        final List<IndexFieldTypesDTO> dtos = indexFieldTypesService.findByIndexNames(event.indexNames());
+        synchronized (this) {
+            final Set<String> removed = new HashSet<>(event.indexNames());
+            dtos.forEach(dto -> {
+                put(dto);
+                removed.remove(dto.indexName());
+            });
+            removed.forEach(indices::remove);
+            pruneSchemas();
+        }
+    }
+
+    @Subscribe
+    @SuppressWarnings("unused")
+    public void handleIndicesDeleted(final IndicesDeletedEvent event) {
+        remove(event.indices());
+    }
+
+    @Subscribe
+    @SuppressWarnings("unused")
+    public synchronized void handleIndexSetDeleted(final IndexSetDeletedEvent event) {
+        loadedIndexSets.remove(event.id());
+        indices.values().removeIf(entry -> entry.indexSetId().equals(event.id()));
+        pruneSchemas();
+    }
+}
@@ -30,6 +30,7 @@ import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
 import org.graylog2.database.MongoConnection;
 import org.graylog2.database.MongoDBUpsertRetryer;
 import org.mongojack.DBQuery;
+import org.mongojack.DBUpdate;
 import org.mongojack.JacksonDBCollection;
 import org.mongojack.WriteResult;
 
@@ -151,6 +152,25 @@ public class IndexFieldTypesService {
         return Optional.empty();
     }
 
+    /**
+     * Adds fields to the stored field types of an index.
+     *
+     * @param indexSetId index set ID of the index
+     * @param indexName  name of the index
+     * @param fields     the fields to add
+     * @return true if field types for the index exist and have been updated, false otherwise
+     */
+    public boolean addFields(String indexSetId, String indexName, Collection<FieldTypeDTO> fields) {
+        final WriteResult<IndexFieldTypesDTO, ObjectId> update = db.update(
+                DBQuery.and(
+                        DBQuery.is(FIELD_INDEX_NAME, indexName),
+                        DBQuery.is(FIELD_INDEX_SET_ID, indexSetId)
+                ),
+                DBUpdate.addToSet(FIELD_FIELDS, List.copyOf(fields))
+        );
+        return update.getN() > 0;
+    }
+
     public void delete(String idOrIndexName) {
         try {
             db.removeById(new ObjectId(idOrIndexName));
@@ -16,6 +16,8 @@
  */
 package org.graylog2.indexer.fieldtypes;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import jakarta.inject.Inject;
@@ -30,7 +32,9 @@ import org.graylog2.streams.StreamService;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 import static com.google.common.collect.ImmutableSet.of;
@@ -39,24 +43,37 @@ import static org.graylog2.indexer.fieldtypes.FieldTypes.Type.createType;
 public class MappedFieldTypesServiceImpl implements MappedFieldTypesService {
     private static final FieldTypes.Type UNKNOWN_TYPE = createType("unknown", of());
     private static final String PROP_COMPOUND_TYPE = "compound";
+    private static final int MERGED_FIELD_TYPES_CACHE_SIZE = 1000;
+
+    /**
+     * Identifies the merged field types of a set of schemas.
+     *
+     * @param schemaIds the IDs of the schemas
+     * @param streamIds the streams the fields are filtered by, empty if field types aren't stream-aware
+     */
+    private record MergedFieldTypesKey(List<Integer> schemaIds, Set<String> streamIds) {}
 
     private final StreamService streamService;
-    private final IndexFieldTypesService indexFieldTypesService;
+    private final IndexFieldTypesCatalog indexFieldTypesCatalog;
     private final FieldTypeMapper fieldTypeMapper;
     private final IndexLookup indexLookup;
     private final boolean streamAwareFieldTypes;
     private final FieldUnitObtainer fieldUnitObtainer;
 
+    // Schemas never change, so the cached results don't need to be invalidated
+    private final Cache<MergedFieldTypesKey, Set<MappedFieldTypeDTO>> mergedFieldTypes = CacheBuilder.newBuilder()
+            .maximumSize(MERGED_FIELD_TYPES_CACHE_SIZE)
+            .build();
 
     @Inject
     public MappedFieldTypesServiceImpl(final Configuration configuration,
                                        final StreamService streamService,
-                                       final IndexFieldTypesService indexFieldTypesService,
+                                       final IndexFieldTypesCatalog indexFieldTypesCatalog,
                                        final FieldTypeMapper fieldTypeMapper,
                                        final IndexLookup indexLookup,
                                        final FieldUnitObtainer fieldUnitObtainer) {
         this.streamService = streamService;
-        this.indexFieldTypesService = indexFieldTypesService;
+        this.indexFieldTypesCatalog = indexFieldTypesCatalog;
         this.fieldTypeMapper = fieldTypeMapper;
         this.indexLookup = indexLookup;
         this.streamAwareFieldTypes = configuration.maintainsStreamAwareFieldTypes();
@@ -67,15 +84,26 @@ public class MappedFieldTypesServiceImpl implements MappedFieldTypesService {
     public Set<MappedFieldTypeDTO> fieldTypesByStreamIds(Collection<String> streamIds, TimeRange timeRange) {
         final Set<String> indexSets = streamService.indexSetIdsByIds(streamIds);
         final Set<String> indexNames = this.indexLookup.indexNamesForStreamsInTimeRange(ImmutableSet.copyOf(streamIds), timeRange);
-        final Set<FieldTypeDTO> fieldTypeDTOs = this.indexFieldTypesService.findForIndexSets(indexSets)
-                .stream()
-                .filter(fieldTypes -> indexNames.contains(fieldTypes.indexName()))
-                .flatMap(fieldTypes -> fieldTypes.fields().stream())
+        final List<IndexFieldTypesCatalog.Schema> schemas = indexFieldTypesCatalog.schemas(indexSets, indexNames);
+        final Set<String> streamFilter = streamAwareFieldTypes ? ImmutableSet.copyOf(streamIds) : ImmutableSet.of();
+        final MergedFieldTypesKey key = new MergedFieldTypesKey(
+                schemas.stream().map(IndexFieldTypesCatalog.Schema::id).toList(), streamFilter);
+
+        try {
+            return mergedFieldTypes.get(key, () -> mergeFieldTypes(schemas, streamFilter));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Couldn't merge field types", e.getCause());
+        }
+    }
+
+    private Set<MappedFieldTypeDTO> mergeFieldTypes(List<IndexFieldTypesCatalog.Schema> schemas, Set<String> streamIds) {
+        final Set<FieldTypeDTO> fieldTypeDTOs = schemas.stream()
+                .flatMap(schema -> schema.fields().stream())
                 .filter(fieldTypeDTO -> !streamAwareFieldTypes || !Collections.disjoint(fieldTypeDTO.streams(), streamIds))
                 .collect(Collectors.toSet());
 
-        return mergeCompoundFieldTypes(fieldTypeDTOs.stream()
-                .map(this::mapPhysicalFieldType));
+        return ImmutableSet.copyOf(mergeCompoundFieldTypes(fieldTypeDTOs.stream()
+                .map(this::mapPhysicalFieldType)));
     }
 
     private MappedFieldTypeDTO mapPhysicalFieldType(FieldTypeDTO fieldType) {
@@ -414,6 +414,15 @@ public class Indices {
         return indicesAdapter.indexRangeStatsOfIndex(index);
     }
 
+    /**
+     * Calculates the range stats of several indices with as few requests as possible.
+     *
+     * @see IndicesAdapter#indexRangeStatsOfIndices(Collection)
+     */
+    public Map<String, IndexRangeStats> indexRangeStatsOfIndices(Collection<String> indices) {
+        return indicesAdapter.indexRangeStatsOfIndices(indices);
+    }
+
     /**
      * Returns ES UUID of the index; null if it does not exist
      */
@@ -29,6 +29,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -125,6 +126,22 @@ public interface IndicesAdapter {
 
     IndexRangeStats indexRangeStatsOfIndex(String index);
 
+    /**
+     * Calculates the range stats of several indices, preferably with a single request.
+     * Indices which couldn't be covered by the request (e.g. because they don't contain any documents with a timestamp)
+     * are missing from the result and have to be calculated with {@link #indexRangeStatsOfIndex(String)}.
+     *
+     * @param indices the names of the indices
+     * @return the range stats by index name
+     */
+    default Map<String, IndexRangeStats> indexRangeStatsOfIndices(Collection<String> indices) {
+        final Map<String, IndexRangeStats> stats = new HashMap<>();
+        for (String index : indices) {
+            stats.put(index, indexRangeStatsOfIndex(index));
+        }
+        return stats;
+    }
+
     HealthStatus waitForRecovery(String index);
     HealthStatus waitForRecovery(String index, int timeout);
 
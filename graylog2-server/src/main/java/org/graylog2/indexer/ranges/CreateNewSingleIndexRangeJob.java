@@ -31,7 +31,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class CreateNewSingleIndexRangeJob extends RebuildIndexRangesJob {
     private static final Logger LOG = LoggerFactory.getLogger(CreateNewSingleIndexRangeJob.class);
     private final String indexName;
-    private final Indices indices;
 
     public interface Factory {
         CreateNewSingleIndexRangeJob create(Set<IndexSet> indexSets, String indexName);
@@ -43,9 +42,8 @@ public class CreateNewSingleIndexRangeJob extends RebuildIndexRangesJob {
                                         ActivityWriter activityWriter,
                                         Indices indices,
                                         IndexRangeService indexRangeService) {
-        super(indexSets, activityWriter, indexRangeService);
+        super(indexSets, true, activityWriter, indices, indexRangeService, 1, 1);
         this.indexName = checkNotNull(indexName);
-        this.indices = indices;
     }
 
     @Override
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.ranges;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.graylog2.database.NotFoundException;
+import org.graylog2.indexer.ranges.events.IndexRangesUpdatedEvent;
+import org.joda.time.DateTime;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Node-local copy of the index ranges stored by {@link IndexRangeService}, used to select the indices of a search.
+ * <p>
+ * The ranges are loaded on first use and kept in an {@link IndexRangeIntervalTree}. Changes are applied from
+ * {@link IndexRangesUpdatedEvent} cluster events. As a safety net for missed events, all ranges are loaded again
+ * from the database after a while.
+ */
+@Singleton
+public class IndexRangeCache {
+    private static final long MAX_AGE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final IndexRangeService indexRangeService;
+    private final Ticker ticker;
+
+    // Only accessed while holding the lock on this instance
+    private final Map<String, IndexRange> ranges = new HashMap<>();
+    private boolean loaded = false;
+    private volatile long loadedAt;
+    // Rebuilt on the next lookup if null
+    private volatile IndexRangeIntervalTree tree;
+
+    @Inject
+    public IndexRangeCache(IndexRangeService indexRangeService, EventBus eventBus) {
+        this(indexRangeService, Ticker.systemTicker());
+        eventBus.register(this);
+    }
+
+    @VisibleForTesting
+    IndexRangeCache(IndexRangeService indexRangeService, Ticker ticker) {
+        this.indexRangeService = indexRangeService;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Returns the same index ranges as {@link IndexRangeService#find(DateTime, DateTime)}, without reading them from
+     * the database.
+     */
+    public SortedSet<IndexRange> find(DateTime begin, DateTime end) {
+        return tree().find(begin, end);
+    }
+
+    private IndexRangeIntervalTree tree() {
+        final IndexRangeIntervalTree current = tree;
+        if (current != null && !isExpired()) {
+            return current;
+        }
+        synchronized (this) {
+            if (!loaded || isExpired()) {
+                ranges.clear();
+                for (IndexRange indexRange : indexRangeService.findAll()) {
+                    ranges.put(indexRange.indexName(), indexRange);
+                }
+                loaded = true;
+                loadedAt = ticker.read();
+                tree = null;
+            }
+            if (tree == null) {
+                tree = IndexRangeIntervalTree.of(ranges.values());
+            }
+            return tree;
+        }
+    }
+
+    private boolean isExpired() {
+        return ticker.read() - loadedAt > MAX_AGE_NANOS;
+    }
+
+    @Subscribe
+    public void handleIndexRangesUpdated(IndexRangesUpdatedEvent event) {
+        synchronized (this) {
+            if (!loaded) {
+                // Everything is loaded on first use anyway
+                return;
+            }
+        }
+        final Map<String, Optional<IndexRange>> updatedRanges = new HashMap<>();
+        for (String index : event.indexNames()) {
+            try {
+                updatedRanges.put(index, Optional.of(indexRangeService.get(index)));
+            } catch (NotFoundException e) {
+                updatedRanges.put(index, Optional.empty());
+            }
+        }
+        synchronized (this) {
+            updatedRanges.forEach((index, indexRange) -> indexRange.ifPresentOrElse(
+                    range -> ranges.put(index, range),
+                    () -> ranges.remove(index)));
+            tree = null;
+        }
+    }
+}
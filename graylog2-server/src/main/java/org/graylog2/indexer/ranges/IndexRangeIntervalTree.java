@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.ranges;
+
+import com.google.common.collect.ImmutableSortedSet;
+import org.joda.time.DateTime;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Immutable interval tree of index ranges which finds the ranges overlapping a time range in logarithmic time.
+ * <p>
+ * The ranges are sorted by their begin, the tree is implicitly formed by bisecting the sorted array. Each node knows
+ * the maximum end of its subtree, so subtrees without overlapping ranges can be skipped.
+ */
+class IndexRangeIntervalTree {
+    private final IndexRange[] ranges;
+    private final long[] begins;
+    private final long[] ends;
+    private final long[] maxEnds;
+
+    private IndexRangeIntervalTree(IndexRange[] ranges) {
+        this.ranges = ranges;
+        this.begins = new long[ranges.length];
+        this.ends = new long[ranges.length];
+        this.maxEnds = new long[ranges.length];
+        for (int i = 0; i < ranges.length; i++) {
+            begins[i] = ranges[i].begin().getMillis();
+            ends[i] = ranges[i].end().getMillis();
+        }
+        computeMaxEnds(0, ranges.length);
+    }
+
+    static IndexRangeIntervalTree of(Collection<? extends IndexRange> indexRanges) {
+        final IndexRange[] ranges = indexRanges.toArray(new IndexRange[0]);
+        Arrays.sort(ranges, Comparator.comparingLong(range -> range.begin().getMillis()));
+        return new IndexRangeIntervalTree(ranges);
+    }
+
+    int size() {
+        return ranges.length;
+    }
+
+    /**
+     * Finds the same index ranges as {@link IndexRangeService#find(DateTime, DateTime)}: the ranges overlapping the
+     * given time range and the ranges containing the epoch, e.g. the unknown range of the current write index.
+     */
+    ImmutableSortedSet<IndexRange> find(DateTime begin, DateTime end) {
+        final ImmutableSortedSet.Builder<IndexRange> result = ImmutableSortedSet.orderedBy(IndexRange.COMPARATOR);
+        collectOverlapping(0, ranges.length, begin.getMillis(), end.getMillis(), result);
+        collectOverlapping(0, ranges.length, 0L, 0L, result);
+        return result.build();
+    }
+
+    private long computeMaxEnds(int from, int to) {
+        if (from >= to) {
+            return Long.MIN_VALUE;
+        }
+        final int mid = (from + to) >>> 1;
+        final long maxEnd = Math.max(ends[mid], Math.max(computeMaxEnds(from, mid), computeMaxEnds(mid + 1, to)));
+        maxEnds[mid] = maxEnd;
+        return maxEnd;
+    }
+
+    private void collectOverlapping(int from, int to, long begin, long end, ImmutableSortedSet.Builder<IndexRange> result) {
+        if (from >= to) {
+            return;
+        }
+        final int mid = (from + to) >>> 1;
+        if (maxEnds[mid] < begin) {
+            // No range in this subtree ends after the begin of the time range
+            return;
+        }
+        collectOverlapping(from, mid, begin, end, result);
+        if (begins[mid] <= end) {
+            if (ends[mid] >= begin) {
+                result.add(ranges[mid]);
+            }
+            collectOverlapping(mid + 1, to, begin, end, result);
+        }
+    }
+}
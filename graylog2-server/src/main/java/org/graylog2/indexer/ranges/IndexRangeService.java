@@ -21,6 +21,9 @@ import org.graylog2.database.NotFoundException;
 import org.joda.time.DateTime;
 import org.mongojack.WriteResult;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.SortedSet;
 
 public interface IndexRangeService {
@@ -32,11 +35,42 @@ public interface IndexRangeService {
 
     WriteResult<MongoIndexRange, ObjectId> save(IndexRange indexRange);
 
+    /**
+     * Saves several index ranges at once. Implementations should notify the index range caches only once for the
+     * whole batch instead of once per range.
+     *
+     * @param indexRanges the index ranges to save
+     */
+    default void saveAll(Collection<IndexRange> indexRanges) {
+        for (IndexRange indexRange : indexRanges) {
+            save(indexRange);
+        }
+    }
+
     boolean renameIndex(String from, String to);
 
     boolean remove(String index);
 
     IndexRange calculateRange(String index);
 
+    /**
+     * Calculates the ranges of several indices at once. Indices whose range couldn't be calculated are missing from
+     * the result, callers can use {@link #calculateRange(String)} to get the reason.
+     *
+     * @param indices the names of the indices
+     * @return the calculated ranges by index name
+     */
+    default Map<String, IndexRange> calculateRanges(Collection<String> indices) {
+        final Map<String, IndexRange> ranges = new HashMap<>();
+        for (String index : indices) {
+            try {
+                ranges.put(index, calculateRange(index));
+            } catch (Exception e) {
+                // Left to the caller
+            }
+        }
+        return ranges;
+    }
+
     IndexRange createUnknownRange(String index);
 }
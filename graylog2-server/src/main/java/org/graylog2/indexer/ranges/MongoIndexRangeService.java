@@ -18,6 +18,7 @@ package org.graylog2.indexer.ranges;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.EventBus;
@@ -31,11 +32,14 @@ import org.graylog2.audit.AuditEventSender;
 import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
 import org.graylog2.database.MongoConnection;
 import org.graylog2.database.NotFoundException;
+import org.graylog2.events.ClusterEventBus;
 import org.graylog2.indexer.IndexSetRegistry;
+import org.graylog2.indexer.indices.HealthStatus;
 import org.graylog2.indexer.indices.Indices;
 import org.graylog2.indexer.indices.events.IndicesClosedEvent;
 import org.graylog2.indexer.indices.events.IndicesDeletedEvent;
 import org.graylog2.indexer.indices.events.IndicesReopenedEvent;
+import org.graylog2.indexer.ranges.events.IndexRangesUpdatedEvent;
 import org.graylog2.indexer.searches.IndexRangeStats;
 import org.graylog2.plugin.system.NodeId;
 import org.joda.time.DateTime;
@@ -51,9 +55,16 @@ import org.slf4j.LoggerFactory;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.graylog2.audit.AuditEventTypes.ES_INDEX_RANGE_CREATE;
 import static org.graylog2.audit.AuditEventTypes.ES_INDEX_RANGE_DELETE;
@@ -69,6 +80,7 @@ public class MongoIndexRangeService implements IndexRangeService {
     private final AuditEventSender auditEventSender;
     private final NodeId nodeId;
     private final JacksonDBCollection<MongoIndexRange, ObjectId> collection;
+    private final ClusterEventBus clusterEventBus;
 
     @Inject
     public MongoIndexRangeService(MongoConnection mongoConnection,
@@ -77,7 +89,8 @@ public class MongoIndexRangeService implements IndexRangeService {
                                   IndexSetRegistry indexSetRegistry,
                                   AuditEventSender auditEventSender,
                                   NodeId nodeId,
-                                  EventBus eventBus) {
+                                  EventBus eventBus,
+                                  ClusterEventBus clusterEventBus) {
         this.indices = indices;
         this.indexSetRegistry = indexSetRegistry;
         this.auditEventSender = auditEventSender;
@@ -87,6 +100,7 @@ public class MongoIndexRangeService implements IndexRangeService {
                 MongoIndexRange.class,
                 ObjectId.class,
                 objectMapperProvider.get());
+        this.clusterEventBus = clusterEventBus;
 
         eventBus.register(this);
 
@@ -150,6 +164,27 @@ public class MongoIndexRangeService implements IndexRangeService {
         return MongoIndexRange.create(index, stats.min(), stats.max(), now, duration, stats.streamIds());
     }
 
+    @Override
+    public Map<String, IndexRange> calculateRanges(Collection<String> indices) {
+        // Unhealthy indices are left to the caller, calculateRange() reports them
+        final List<String> healthyIndices = indices.stream()
+                .filter(index -> this.indices.waitForRecovery(index) != HealthStatus.Red)
+                .toList();
+        if (healthyIndices.isEmpty()) {
+            return Map.of();
+        }
+        final DateTime now = DateTime.now(DateTimeZone.UTC);
+        final Stopwatch sw = Stopwatch.createStarted();
+        final Map<String, IndexRangeStats> stats = this.indices.indexRangeStatsOfIndices(healthyIndices);
+        final int duration = Ints.saturatedCast(sw.stop().elapsed(TimeUnit.MILLISECONDS));
+
+        LOG.info("Calculated ranges of {} indices in [{}ms].", stats.size(), duration);
+        final Map<String, IndexRange> ranges = new HashMap<>(stats.size());
+        stats.forEach((index, indexStats) -> ranges.put(index,
+                MongoIndexRange.create(index, indexStats.min(), indexStats.max(), now, duration, indexStats.streamIds())));
+        return ranges;
+    }
+
     @Override
     public IndexRange createUnknownRange(String index) {
         final DateTime begin = new DateTime(0L, DateTimeZone.UTC);
@@ -160,48 +195,84 @@ public class MongoIndexRangeService implements IndexRangeService {
 
     @Override
     public WriteResult<MongoIndexRange, ObjectId> save(IndexRange indexRange) {
-        remove(indexRange.indexName());
+        collection.remove(DBQuery.in(IndexRange.FIELD_INDEX_NAME, indexRange.indexName()));
         final WriteResult<MongoIndexRange, ObjectId> save = collection.save(MongoIndexRange.create(indexRange));
+        clusterEventBus.post(IndexRangesUpdatedEvent.create(indexRange.indexName()));
         return save;
     }
 
+    @Override
+    public void saveAll(Collection<IndexRange> indexRanges) {
+        if (indexRanges.isEmpty()) {
+            return;
+        }
+        final Set<String> indexNames = indexRanges.stream().map(IndexRange::indexName).collect(Collectors.toSet());
+        collection.remove(DBQuery.in(IndexRange.FIELD_INDEX_NAME, indexNames));
+        collection.insert(indexRanges.stream().map(MongoIndexRange::create).toList());
+        clusterEventBus.post(IndexRangesUpdatedEvent.create(ImmutableSet.copyOf(indexNames)));
+    }
+
     @Override
     public boolean renameIndex(String from, String to) {
-        return collection.updateMulti(
+        final boolean renamed = collection.updateMulti(
                         DBQuery.is(IndexRange.FIELD_INDEX_NAME, from),
                         DBUpdate.set(IndexRange.FIELD_INDEX_NAME, to))
                 .getN() > 0;
+        if (renamed) {
+            clusterEventBus.post(IndexRangesUpdatedEvent.create(from, to));
+        }
+        return renamed;
     }
 
     @Override
     public boolean remove(String index) {
-        final WriteResult<MongoIndexRange, ObjectId> remove = collection.remove(DBQuery.in(IndexRange.FIELD_INDEX_NAME, index));
-        return remove.getN() > 0;
+        return !removeAll(Set.of(index)).isEmpty();
+    }
+
+    /**
+     * Removes the ranges of the given indices and notifies the index range caches once for all of them.
+     *
+     * @return the names of the indices which had a range
+     */
+    private Set<String> removeAll(Set<String> indexNames) {
+        if (indexNames.isEmpty()) {
+            return Set.of();
+        }
+        final Set<String> existing = new HashSet<>();
+        try (DBCursor<MongoIndexRange> cursor = collection.find(DBQuery.in(IndexRange.FIELD_INDEX_NAME, indexNames))) {
+            cursor.forEach(indexRange -> existing.add(indexRange.indexName()));
+        }
+        if (existing.isEmpty()) {
+            return Set.of();
+        }
+        collection.remove(DBQuery.in(IndexRange.FIELD_INDEX_NAME, existing));
+        clusterEventBus.post(IndexRangesUpdatedEvent.create(ImmutableSet.copyOf(existing)));
+        return existing;
     }
 
     @Subscribe
     @AllowConcurrentEvents
     public void handleIndexDeletion(IndicesDeletedEvent event) {
-        for (String index : event.indices()) {
-            LOG.debug("Index \"{}\" has been deleted. Removing index range.", index);
-            if (remove(index)) {
-                auditEventSender.success(AuditActor.system(nodeId), ES_INDEX_RANGE_DELETE, ImmutableMap.of("index_name", index));
-            }
+        LOG.debug("Indices {} have been deleted. Removing index ranges.", event.indices());
+        for (String index : removeAll(event.indices())) {
+            auditEventSender.success(AuditActor.system(nodeId), ES_INDEX_RANGE_DELETE, ImmutableMap.of("index_name", index));
         }
     }
 
     @Subscribe
     @AllowConcurrentEvents
     public void handleIndexClosing(IndicesClosedEvent event) {
+        final Set<String> closedIndices = new HashSet<>();
         for (String index : event.indices()) {
             if (!indexSetRegistry.isManagedIndex(index)) {
                 LOG.debug("Not handling closed index <{}> because it's not managed by any index set.", index);
                 continue;
             }
             LOG.debug("Index \"{}\" has been closed. Removing index range.", index);
-            if (remove(index)) {
-                auditEventSender.success(AuditActor.system(nodeId), ES_INDEX_RANGE_DELETE, ImmutableMap.of("index_name", index));
-            }
+            closedIndices.add(index);
+        }
+        for (String index : removeAll(closedIndices)) {
+            auditEventSender.success(AuditActor.system(nodeId), ES_INDEX_RANGE_DELETE, ImmutableMap.of("index_name", index));
         }
     }
 
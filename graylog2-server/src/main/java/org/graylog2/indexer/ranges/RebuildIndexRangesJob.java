@@ -16,47 +16,83 @@
  */
 package org.graylog2.indexer.ranges;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.MultimapBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import org.graylog2.database.NotFoundException;
 import org.graylog2.indexer.IndexSet;
+import org.graylog2.indexer.indices.Indices;
 import org.graylog2.indexer.indices.TooManyAliasesException;
+import org.graylog2.indexer.indices.blocks.IndicesBlockStatus;
 import org.graylog2.shared.system.activities.Activity;
 import org.graylog2.shared.system.activities.ActivityWriter;
 import org.graylog2.system.jobs.SystemJob;
+import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jakarta.inject.Named;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class RebuildIndexRangesJob extends SystemJob {
     public interface Factory {
-        RebuildIndexRangesJob create(Set<IndexSet> indexSets);
+        /**
+         * @param indexSets the index sets whose ranges should be rebuilt
+         * @param force     recalculate the ranges of read-only indices even if they are still valid
+         */
+        RebuildIndexRangesJob create(Set<IndexSet> indexSets, boolean force);
     }
 
     private static final Logger LOG = LoggerFactory.getLogger(RebuildIndexRangesJob.class);
     private static final int MAX_CONCURRENCY = 1;
+    // Keeps the request URLs for the block status of many indices short enough
+    private static final int BLOCK_STATUS_BATCH_SIZE = 100;
 
     private volatile boolean cancelRequested = false;
     private volatile int indicesToCalculate = 0;
     private final AtomicInteger indicesCalculated = new AtomicInteger(0);
 
     protected final Set<IndexSet> indexSets;
+    private final boolean force;
     private final ActivityWriter activityWriter;
+    protected final Indices indices;
     protected final IndexRangeService indexRangeService;
+    private final int concurrency;
+    private final int batchSize;
 
     @AssistedInject
     public RebuildIndexRangesJob(@Assisted Set<IndexSet> indexSets,
+                                 @Assisted boolean force,
                                  ActivityWriter activityWriter,
-                                 IndexRangeService indexRangeService) {
+                                 Indices indices,
+                                 IndexRangeService indexRangeService,
+                                 @Named("index_ranges_rebuild_concurrency") int concurrency,
+                                 @Named("index_ranges_rebuild_batch_size") int batchSize) {
         this.indexSets = indexSets;
+        this.force = force;
         this.activityWriter = activityWriter;
+        this.indices = indices;
         this.indexRangeService = indexRangeService;
+        this.concurrency = concurrency;
+        this.batchSize = batchSize;
     }
 
     @Override
@@ -99,6 +135,7 @@ public class RebuildIndexRangesJob extends SystemJob {
         indicesToCalculate = indexSets.values().size();
 
         Stopwatch sw = Stopwatch.createStarted();
+        final List<String> indicesToRecalculate = new ArrayList<>();
         for (IndexSet indexSet : indexSets.keySet()) {
             LOG.info("Recalculating index ranges for index set {} ({}): {} indices affected.",
                     indexSet.getConfig().title(),
@@ -128,25 +165,146 @@ public class RebuildIndexRangesJob extends SystemJob {
                     indicesCalculated.incrementAndGet();
                     continue;
                 }
-                if (cancelRequested) {
-                    info("Stop requested. Not calculating next index range, not updating ranges.");
-                    sw.stop();
-                    return;
-                }
+                indicesToRecalculate.add(index);
+            }
+        }
 
-                try {
-                    final IndexRange indexRange = indexRangeService.calculateRange(index);
-                    indexRangeService.save(indexRange);
-                    LOG.info("Created ranges for index {}: {}", index, indexRange);
-                } catch (Exception e) {
-                    LOG.info("Could not calculate range of index [" + index + "]. Skipping.", e);
-                } finally {
-                    indicesCalculated.incrementAndGet();
+        final List<String> outdatedIndices = force ? indicesToRecalculate : withoutValidRanges(indicesToRecalculate);
+        final int skipped = indicesToRecalculate.size() - outdatedIndices.size();
+        if (skipped > 0) {
+            LOG.info("Skipping {} read-only indices whose ranges have been calculated after they were closed.", skipped);
+            indicesCalculated.addAndGet(skipped);
+        }
+
+        calculateRanges(outdatedIndices);
+        if (cancelRequested) {
+            info("Stop requested. Not calculating next index ranges, not updating ranges.");
+            sw.stop();
+            return;
+        }
+
+        info("Done calculating index ranges for " + indicesToCalculate + " indices. Took " + sw.stop().elapsed(TimeUnit.MILLISECONDS) + "ms.");
+    }
+
+    /**
+     * Returns the indices whose stored range has to be recalculated. The range of an index doesn't change anymore
+     * once it doesn't accept writes, so a range calculated after the index has been closed is still valid.
+     */
+    @VisibleForTesting
+    List<String> withoutValidRanges(List<String> indexNames) {
+        final Map<String, IndexRange> storedRanges = new HashMap<>();
+        for (IndexRange indexRange : indexRangeService.findAll()) {
+            storedRanges.put(indexRange.indexName(), indexRange);
+        }
+        final List<String> candidates = indexNames.stream()
+                .filter(index -> isKnownRange(storedRanges.get(index)))
+                .toList();
+        if (candidates.isEmpty()) {
+            return indexNames;
+        }
+
+        final Map<String, Collection<String>> blocks = new HashMap<>();
+        for (List<String> batch : Lists.partition(candidates, BLOCK_STATUS_BATCH_SIZE)) {
+            try {
+                final IndicesBlockStatus blockStatus = indices.getIndicesBlocksStatus(batch);
+                blockStatus.getBlockedIndices().forEach(index -> blocks.put(index, blockStatus.getIndexBlocks(index)));
+            } catch (Exception e) {
+                LOG.debug("Couldn't get block status of indices {}, recalculating their ranges.", batch, e);
+            }
+        }
+
+        final List<String> result = new ArrayList<>();
+        for (String index : indexNames) {
+            if (!hasValidRange(index, storedRanges.get(index), blocks.get(index))) {
+                result.add(index);
+            }
+        }
+        return result;
+    }
+
+    private boolean isKnownRange(IndexRange indexRange) {
+        return indexRange != null && (indexRange.begin().getMillis() != 0 || indexRange.end().getMillis() != 0);
+    }
+
+    private boolean hasValidRange(String index, IndexRange storedRange, Collection<String> blocks) {
+        if (!isKnownRange(storedRange) || blocks == null
+                || !(blocks.contains("index.blocks.write") || blocks.contains("index.blocks.read_only"))) {
+            return false;
+        }
+        try {
+            final Optional<DateTime> closingDate = indices.indexClosingDate(index);
+            return closingDate.isPresent() && !storedRange.calculatedAt().isBefore(closingDate.get());
+        } catch (Exception e) {
+            LOG.debug("Couldn't get closing date of index {}, recalculating its range.", index, e);
+            return false;
+        }
+    }
+
+    private void calculateRanges(List<String> indexNames) {
+        if (indexNames.isEmpty()) {
+            return;
+        }
+        final List<List<String>> batches = Lists.partition(indexNames, batchSize);
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, batches.size()),
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("rebuild-index-ranges-%d")
+                        .build());
+        try {
+            final List<Future<?>> futures = new ArrayList<>(batches.size());
+            for (List<String> batch : batches) {
+                futures.add(executor.submit(() -> calculateBatch(batch)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelRequested = true;
+        } catch (ExecutionException e) {
+            LOG.error("Couldn't calculate index ranges.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void calculateBatch(List<String> batch) {
+        if (cancelRequested) {
+            return;
+        }
+        Map<String, IndexRange> indexRanges;
+        try {
+            indexRanges = indexRangeService.calculateRanges(batch);
+        } catch (Exception e) {
+            LOG.debug("Couldn't calculate ranges of indices {} at once, calculating them one by one.", batch, e);
+            indexRanges = Map.of();
+        }
+
+        // Save the whole batch at once, so the index range caches are only notified once per batch.
+        final List<IndexRange> calculated = new ArrayList<>(batch.size());
+        for (String index : batch) {
+            if (cancelRequested) {
+                break;
+            }
+            try {
+                IndexRange indexRange = indexRanges.get(index);
+                if (indexRange == null) {
+                    indexRange = indexRangeService.calculateRange(index);
                 }
+                calculated.add(indexRange);
+            } catch (Exception e) {
+                LOG.info("Could not calculate range of index [" + index + "]. Skipping.", e);
+            } finally {
+                indicesCalculated.incrementAndGet();
             }
         }
 
-        info("Done calculating index ranges for " + indicesToCalculate + " indices. Took " + sw.stop().elapsed(TimeUnit.MILLISECONDS) + "ms.");
+        try {
+            indexRangeService.saveAll(calculated);
+            calculated.forEach(indexRange -> LOG.info("Created ranges for index {}: {}", indexRange.indexName(), indexRange));
+        } catch (Exception e) {
+            LOG.info("Could not save ranges of indices {}. Skipping.", batch, e);
+        }
     }
 
     protected void info(String what) {
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.ranges.events;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableSet;
+import org.graylog.autovalue.WithBeanGetter;
+
+/**
+ * Signals that the stored index ranges of the given indices have been created, changed or removed.
+ */
+@JsonAutoDetect
+@AutoValue
+@WithBeanGetter
+public abstract class IndexRangesUpdatedEvent {
+    private static final String FIELD_INDEX_NAMES = "index_names";
+
+    @JsonProperty(FIELD_INDEX_NAMES)
+    public abstract ImmutableSet<String> indexNames();
+
+    @JsonCreator
+    public static IndexRangesUpdatedEvent create(@JsonProperty(FIELD_INDEX_NAMES) ImmutableSet<String> indexNames) {
+        return new AutoValue_IndexRangesUpdatedEvent(indexNames);
+    }
+
+    public static IndexRangesUpdatedEvent create(String... indexNames) {
+        return create(ImmutableSet.copyOf(indexNames));
+    }
+}
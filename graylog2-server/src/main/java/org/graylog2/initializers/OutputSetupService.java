@@ -20,6 +20,7 @@ import com.codahale.metrics.InstrumentedExecutorService;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.graylog2.buffers.processors.StreamOutputWriters;
 import org.graylog2.outputs.DefaultMessageOutput;
 import org.graylog2.outputs.OutputRegistry;
 import org.graylog2.plugin.outputs.MessageOutput;
@@ -42,14 +43,17 @@ public class OutputSetupService extends AbstractIdleService {
 
     private final OutputRegistry outputRegistry;
     private final MessageOutput defaultMessageOutput;
+    private final StreamOutputWriters streamOutputWriters;
 
     @Inject
     public OutputSetupService(final OutputRegistry outputRegistry,
                               final BufferSynchronizerService bufferSynchronizerService,
                               final MetricRegistry metricRegistry,
-                              @DefaultMessageOutput MessageOutput defaultMessageOutput) {
+                              @DefaultMessageOutput MessageOutput defaultMessageOutput,
+                              final StreamOutputWriters streamOutputWriters) {
         this.outputRegistry = outputRegistry;
         this.defaultMessageOutput = defaultMessageOutput;
+        this.streamOutputWriters = streamOutputWriters;
 
         // Shutdown after the BufferSynchronizerService has stopped to avoid shutting down outputs too early.
         bufferSynchronizerService.addListener(new Listener() {
@@ -69,6 +73,9 @@ public class OutputSetupService extends AbstractIdleService {
     }
 
     private void shutDownRunningOutputs() {
+        // Write the messages which are still queued for the stream outputs
+        streamOutputWriters.shutdown();
+
         for (MessageOutput output : outputRegistry.getMessageOutputs()) {
 
             // Do not execute the stop() method for Outputs that implement the GracefulShutdown mechanism.
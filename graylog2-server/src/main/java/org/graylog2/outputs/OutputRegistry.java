@@ -27,6 +27,7 @@ import com.google.common.collect.Sets;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.graylog2.buffers.processors.StreamOutputWriters;
 import org.graylog2.database.NotFoundException;
 import org.graylog2.notifications.Notification;
 import org.graylog2.notifications.NotificationService;
@@ -47,10 +48,12 @@ import javax.annotation.Nullable;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
+import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
 
 import java.time.Duration;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -73,6 +76,7 @@ public class OutputRegistry {
     private final StreamService streamService;
     private final long faultCountThreshold;
     private final long faultPenaltySeconds;
+    private final Provider<StreamOutputWriters> streamOutputWriters;
 
     @Inject
     public OutputRegistry(@DefaultMessageOutput MessageOutput defaultMessageOutput,
@@ -83,7 +87,8 @@ public class OutputRegistry {
                           EventBus eventBus,
                           StreamService streamService,
                           @Named("output_fault_count_threshold") long faultCountThreshold,
-                          @Named("output_fault_penalty_seconds") long faultPenaltySeconds) {
+                          @Named("output_fault_penalty_seconds") long faultPenaltySeconds,
+                          Provider<StreamOutputWriters> streamOutputWriters) {
         this.defaultMessageOutput = defaultMessageOutput;
         this.outputService = outputService;
         this.notificationService = notificationService;
@@ -93,6 +98,7 @@ public class OutputRegistry {
         this.runningMessageOutputs = CacheBuilder.newBuilder().build();
         this.faultCountThreshold = faultCountThreshold;
         this.faultPenaltySeconds = faultPenaltySeconds;
+        this.streamOutputWriters = streamOutputWriters;
         this.faultCounters = CacheBuilder.newBuilder()
                 .expireAfterWrite(this.faultPenaltySeconds, TimeUnit.SECONDS)
                 .build(new CacheLoader<>() {
@@ -226,17 +232,29 @@ public class OutputRegistry {
                 .build();
     }
 
+    /**
+     * Returns the ID of the given running stream output.
+     */
+    public Optional<String> getIdForOutput(MessageOutput messageOutput) {
+        return runningMessageOutputs.asMap().entrySet().stream()
+                .filter(entry -> entry.getValue() == messageOutput)
+                .map(Map.Entry::getKey)
+                .findFirst();
+    }
+
     public void removeOutput(Output output) {
         removeOutput(output.getId());
     }
 
     private void removeOutput(String outputId) {
         final MessageOutput messageOutput = runningMessageOutputs.getIfPresent(outputId);
+        runningMessageOutputs.invalidate(outputId);
+        faultCounters.invalidate(outputId);
+
         if (messageOutput != null) {
+            // Write the messages which have already been queued for the output before stopping it
+            streamOutputWriters.get().drain(messageOutput);
             messageOutput.stop();
         }
-
-        runningMessageOutputs.invalidate(outputId);
-        faultCounters.invalidate(outputId);
     }
 }
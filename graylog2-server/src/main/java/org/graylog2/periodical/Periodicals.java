@@ -90,6 +90,11 @@ public class Periodicals {
             if (futures.containsKey(periodical)) {
                 futures.remove(periodical).cancel(false);
                 periodicals.remove(periodical);
+                try {
+                    periodical.stop();
+                } catch (Exception e) {
+                    LOG.error("Error while stopping periodical [{}].", periodical.getClass().getCanonicalName(), e);
+                }
                 LOG.debug("Shutdown of periodical [{}] complete.", periodical.getClass().getCanonicalName());
             } else {
                 LOG.error("Could not find periodical [{}] in futures list. Not stopping execution.",
@@ -28,6 +28,7 @@ import org.graylog2.plugin.ServerStatus;
 import org.graylog2.plugin.ThrottleState;
 import org.graylog2.plugin.periodical.Periodical;
 import org.graylog2.shared.buffers.ProcessBuffer;
+import org.graylog2.shared.inputs.InputAdmissionController;
 import org.graylog2.shared.journal.Journal;
 import org.graylog2.shared.journal.LocalKafkaJournal;
 import org.slf4j.Logger;
@@ -59,6 +60,7 @@ public class ThrottleStateUpdaterThread extends Periodical {
     private final Size retentionSize;
     private final NotificationService notificationService;
     private final ServerStatus serverStatus;
+    private final InputAdmissionController inputAdmissionController;
 
     private boolean firstRun = true;
     private long logEndOffset;
@@ -72,6 +74,7 @@ public class ThrottleStateUpdaterThread extends Periodical {
                                       EventBus eventBus,
                                       NotificationService notificationService,
                                       ServerStatus serverStatus,
+                                      InputAdmissionController inputAdmissionController,
                                       MetricRegistry metricRegistry,
                                       @Named("message_journal_max_size") Size retentionSize) {
         this.processBuffer = processBuffer;
@@ -79,6 +82,7 @@ public class ThrottleStateUpdaterThread extends Periodical {
         this.retentionSize = retentionSize;
         this.notificationService = notificationService;
         this.serverStatus = serverStatus;
+        this.inputAdmissionController = inputAdmissionController;
         // leave this.journal null, we'll say "don't start" in that case, see startOnThisNode() below.
         if (journal instanceof LocalKafkaJournal) {
             this.journal = (LocalKafkaJournal) journal;
@@ -227,6 +231,8 @@ public class ThrottleStateUpdaterThread extends Periodical {
         } else {
             throttleState.uncommittedJournalEntries = logEndOffset - committedOffset;
         }
+        final double journalUtilizationPercentage = throttleState.journalSizeLimit > 0 ? (throttleState.journalSize * 100) / throttleState.journalSizeLimit : 0.0;
+        throttleState.admittedInputs = inputAdmissionController.update(throttleState.readEventsPerSec, journalUtilizationPercentage);
         log.debug("ThrottleState: {}", throttleState);
 
         // the journal needs this to provide information to rest clients
@@ -236,7 +242,6 @@ public class ThrottleStateUpdaterThread extends Periodical {
         eventBus.post(throttleState);
 
         // Abusing the current thread to send notifications from KafkaJournal in the graylog2-shared module
-        final double journalUtilizationPercentage = throttleState.journalSizeLimit > 0 ? (throttleState.journalSize * 100) / throttleState.journalSizeLimit : 0.0;
 
         if (journalUtilizationPercentage > LocalKafkaJournal.NOTIFY_ON_UTILIZATION_PERCENTAGE) {
             Notification notification = notificationService.buildNow()
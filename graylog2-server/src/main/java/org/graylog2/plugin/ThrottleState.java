@@ -18,6 +18,9 @@ package org.graylog2.plugin;
 
 import com.google.common.base.MoreObjects;
 
+import java.util.Collections;
+import java.util.Set;
+
 public class ThrottleState {
     public long uncommittedJournalEntries;
     public long appendEventsPerSec;
@@ -25,6 +28,10 @@ public class ThrottleState {
     public long journalSizeLimit;
     public long readEventsPerSec;
     public long processBufferCapacity;
+    /**
+     * IDs of the throttleable inputs which don't exceed their share of the processing capacity.
+     */
+    public Set<String> admittedInputs = Collections.emptySet();
 
     public ThrottleState() {
     }
@@ -36,6 +43,7 @@ public class ThrottleState {
         this.journalSizeLimit = o.journalSizeLimit;
         this.readEventsPerSec = o.readEventsPerSec;
         this.processBufferCapacity = o.processBufferCapacity;
+        this.admittedInputs = o.admittedInputs;
     }
 
     @Override
@@ -48,6 +56,7 @@ public class ThrottleState {
                 .add("journalSize", journalSize)
                 .add("journalSizeLimit", journalSizeLimit)
                 .add("pbCapacity", processBufferCapacity)
+                .add("admittedInputs", admittedInputs)
                 .toString();
     }
 }
@@ -404,6 +404,13 @@ public abstract class MessageInput implements Stoppable {
         globalRawSize.inc(payloadLength);
     }
 
+    /**
+     * @return the number of messages this input received since it has been created
+     */
+    public long getIncomingMessagesCount() {
+        return incomingMessages.getCount();
+    }
+
     public String getType() {
         return this.getClass().getCanonicalName();
     }
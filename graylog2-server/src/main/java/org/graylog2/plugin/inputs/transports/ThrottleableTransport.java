@@ -22,6 +22,8 @@ import org.graylog2.plugin.ThrottleState;
 import org.graylog2.plugin.configuration.Configuration;
 import org.graylog2.plugin.configuration.ConfigurationRequest;
 import org.graylog2.plugin.configuration.fields.BooleanField;
+import org.graylog2.plugin.configuration.fields.ConfigurationField;
+import org.graylog2.plugin.configuration.fields.NumberField;
 import org.graylog2.plugin.inputs.MessageInput;
 import org.graylog2.plugin.inputs.MisfireException;
 import org.slf4j.Logger;
@@ -43,11 +45,13 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public abstract class ThrottleableTransport implements Transport {
     private static final Logger log = LoggerFactory.getLogger(ThrottleableTransport.class);
     public static final String CK_THROTTLING_ALLOWED = "throttling_allowed";
+    public static final String CK_THROTTLING_WEIGHT = "throttling_weight";
     protected final boolean throttlingAllowed;
     private final AtomicBoolean currentlyThrottled = new AtomicBoolean(false);
     protected final EventBus eventBus;
     private volatile CountDownLatch blockLatch = null;
     private long lastUncommitted;
+    private volatile String inputId;
 
     public static class Config implements Transport.Config {
         @Override
@@ -63,6 +67,15 @@ public abstract class ThrottleableTransport implements Transport {
                     "If you regularly poll an external system, e.g. via HTTP, you normally want to leave this disabled."
 
             ));
+            request.addField(new NumberField(
+                    CK_THROTTLING_WEIGHT,
+                    "Throttling weight",
+                    1,
+                    "Share of the processing capacity for this input relative to other throttleable inputs. " +
+                    "If Graylog can't keep up with its message load, only inputs which read more than their share are throttled.",
+                    ConfigurationField.Optional.OPTIONAL,
+                    NumberField.Attribute.ONLY_POSITIVE
+            ));
             return request;
         }
     }
@@ -74,6 +87,7 @@ public abstract class ThrottleableTransport implements Transport {
 
     @Override
     public void launch(MessageInput input) throws MisfireException {
+        setInputId(input);
         // Call this before registering on the event bus. There might be stuff in doLaunch() that needs to run first.
         doLaunch(input);
 
@@ -83,6 +97,10 @@ public abstract class ThrottleableTransport implements Transport {
         }
     }
 
+    protected void setInputId(MessageInput input) {
+        this.inputId = input.getId();
+    }
+
     /**
      * Performs the same purpose as {@link #launch(org.graylog2.plugin.inputs.MessageInput)} but guarantees that the superclass'
      * actions are performed.
@@ -125,8 +143,8 @@ public abstract class ThrottleableTransport implements Transport {
         if (!throttlingAllowed) {
             return;
         }
-        // check if we are throttled
-        final boolean throttled = determineIfThrottled(throttleState);
+        // check if we are throttled, inputs which don't exceed their share of the capacity keep reading
+        final boolean throttled = determineIfThrottled(throttleState) && !isAdmitted(throttleState);
         if (currentlyThrottled.get()) {
             // no need to unblock
             if (throttled) {
@@ -147,6 +165,10 @@ public abstract class ThrottleableTransport implements Transport {
         }
     }
 
+    private boolean isAdmitted(ThrottleState throttleState) {
+        return inputId != null && throttleState.admittedInputs.contains(inputId);
+    }
+
     /**
      * Transports can override this to be notified when the throttled state changes. Only called when throttled state changes.
      *
@@ -34,6 +34,7 @@ public abstract class ThrottleableTransport2 extends ThrottleableTransport {
 
     @Override
     public void launch(MessageInput input, InputFailureRecorder inputFailureRecorder) throws MisfireException {
+        setInputId(input);
         // Call this before registering on the event bus. There might be stuff in doLaunch() that needs to run first.
         doLaunch(input, inputFailureRecorder);
 
@@ -91,6 +91,13 @@ public abstract class Periodical implements Runnable {
     public void initialize() {
     }
 
+    /**
+     * Called after future executions have been cancelled. Periodicals which start their own threads in
+     * {@link #initialize()} have to stop them here.
+     */
+    public void stop() {
+    }
+
     @WithSpan
     @Override
     public void run() {
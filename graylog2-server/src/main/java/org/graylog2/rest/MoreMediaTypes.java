@@ -47,6 +47,22 @@ public abstract class MoreMediaTypes {
      * A {@link MediaType} constant representing {@value #TEXT_CSV} media type.
      */
     public final static MediaType TEXT_CSV_TYPE = new MediaType("text", "csv");
+    /**
+     * A {@code String} constant representing {@value #TEXT_CSV_GZIP} media type.
+     */
+    public final static String TEXT_CSV_GZIP = "text/csv+gzip";
+    /**
+     * A {@link MediaType} constant representing {@value #TEXT_CSV_GZIP} media type.
+     */
+    public final static MediaType TEXT_CSV_GZIP_TYPE = new MediaType("text", "csv+gzip");
+    /**
+     * A {@code String} constant representing {@value #TEXT_CSV_ZSTD} media type.
+     */
+    public final static String TEXT_CSV_ZSTD = "text/csv+zstd";
+    /**
+     * A {@link MediaType} constant representing {@value #TEXT_CSV_ZSTD} media type.
+     */
+    public final static MediaType TEXT_CSV_ZSTD_TYPE = new MediaType("text", "csv+zstd");
     /**
      * A {@code String} constant representing {@value #APPLICATION_PDF} media type.
      */
@@ -87,6 +103,22 @@ public abstract class MoreMediaTypes {
      * A {@link MediaType} constant representing {@value #APPLICATION_NDJSON} media type.
      */
     public final static MediaType APPLICATION_NDJSON_TYPE = new MediaType("application", "x-ndjson");
+    /**
+     * A {@code String} constant representing {@value #APPLICATION_NDJSON_GZIP} media type.
+     */
+    public final static String APPLICATION_NDJSON_GZIP = "application/x-ndjson+gzip";
+    /**
+     * A {@link MediaType} constant representing {@value #APPLICATION_NDJSON_GZIP} media type.
+     */
+    public final static MediaType APPLICATION_NDJSON_GZIP_TYPE = new MediaType("application", "x-ndjson+gzip");
+    /**
+     * A {@code String} constant representing {@value #APPLICATION_NDJSON_ZSTD} media type.
+     */
+    public final static String APPLICATION_NDJSON_ZSTD = "application/x-ndjson+zstd";
+    /**
+     * A {@link MediaType} constant representing {@value #APPLICATION_NDJSON_ZSTD} media type.
+     */
+    public final static MediaType APPLICATION_NDJSON_ZSTD_TYPE = new MediaType("application", "x-ndjson+zstd");
     /**
      * A {@code String} constant representing {@value #APPLICATION_JSON} media type.
      */
@@ -51,11 +51,13 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 
 import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.ForbiddenException;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -155,9 +157,10 @@ public class IndexRangesResource extends RestResource {
     })
     @Produces(MediaType.APPLICATION_JSON)
     @AuditEvent(type = AuditEventTypes.ES_INDEX_RANGE_UPDATE_JOB)
-    public Response rebuild() {
+    public Response rebuild(@ApiParam(name = "force", value = "Recalculate the ranges of read-only indices even if they are still valid")
+                            @QueryParam("force") @DefaultValue("true") boolean force) {
         submitIndexRangesCleanupJob();
-        submitIndexRangesJob(indexSetRegistry.getAll());
+        submitIndexRangesJob(indexSetRegistry.getAll(), force);
 
         return Response.accepted().build();
     }
@@ -175,11 +178,13 @@ public class IndexRangesResource extends RestResource {
     })
     @Produces(MediaType.APPLICATION_JSON)
     @AuditEvent(type = AuditEventTypes.ES_INDEX_RANGE_UPDATE_JOB)
-    public Response rebuildIndexSet(@ApiParam(name = "indexSetId") @PathParam("indexSetId") @NotBlank final String indexSetId) {
+    public Response rebuildIndexSet(@ApiParam(name = "indexSetId") @PathParam("indexSetId") @NotBlank final String indexSetId,
+                                    @ApiParam(name = "force", value = "Recalculate the ranges of read-only indices even if they are still valid")
+                                    @QueryParam("force") @DefaultValue("true") boolean force) {
         final IndexSet indexSet = indexSetRegistry.get(indexSetId)
                 .orElseThrow(() -> new jakarta.ws.rs.NotFoundException("Index set <" + indexSetId + "> not found!"));
 
-        submitIndexRangesJob(Collections.singleton(indexSet));
+        submitIndexRangesJob(Collections.singleton(indexSet), force);
 
         return Response.accepted().build();
     }
@@ -216,8 +221,8 @@ public class IndexRangesResource extends RestResource {
         return Response.accepted().build();
     }
 
-    private void submitIndexRangesJob(final Set<IndexSet> indexSets) {
-        final SystemJob rebuildJob = rebuildIndexRangesJobFactory.create(indexSets);
+    private void submitIndexRangesJob(final Set<IndexSet> indexSets, final boolean force) {
+        final SystemJob rebuildJob = rebuildIndexRangesJobFactory.create(indexSets, force);
         try {
             this.systemJobManager.submit(rebuildJob);
         } catch (SystemJobConcurrencyException e) {
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.inputs;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.graylog2.plugin.IOState;
+import org.graylog2.plugin.inputs.MessageInput;
+import org.graylog2.plugin.inputs.transports.ThrottleableTransport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Shares the processing capacity between the throttleable inputs of this node in proportion to their configured
+ * {@link ThrottleableTransport#CK_THROTTLING_WEIGHT weights}.
+ * <p>
+ * The controller is updated once per second with the number of messages which have been read from the journal in
+ * the last second. The part of this capacity that is not taken by inputs which can't be throttled is shared between
+ * the throttleable inputs with weighted max-min fairness: inputs that need less than their share keep their demand
+ * and the rest is split between the other inputs. Every input has a token bucket which is filled with its share and
+ * drained by the messages it received. Inputs with an empty bucket exceed their share.
+ * <p>
+ * The throttleable transports only consult the controller if the journal or the process buffer is under pressure.
+ * Instead of throttling all inputs, only the inputs which exceed their share are throttled then. Once the journal
+ * utilization reaches the critical threshold, no input is admitted, so all throttleable inputs are throttled until
+ * the journal has recovered.
+ */
+@Singleton
+public class InputAdmissionController {
+    private final InputRegistry inputRegistry;
+    private final MetricRegistry metricRegistry;
+    private final boolean enabled;
+    private final int criticalJournalUtilization;
+    private final Map<String, InputState> inputStates = new HashMap<>();
+
+    private long lastUpdateNanos = -1;
+
+    @Inject
+    public InputAdmissionController(InputRegistry inputRegistry,
+                                    MetricRegistry metricRegistry,
+                                    @Named("input_fair_share_throttling") boolean enabled,
+                                    @Named("input_fair_share_throttling_critical_journal_utilization") int criticalJournalUtilization) {
+        this.inputRegistry = inputRegistry;
+        this.metricRegistry = metricRegistry;
+        this.enabled = enabled;
+        this.criticalJournalUtilization = criticalJournalUtilization;
+    }
+
+    /**
+     * Updates the shares of the inputs.
+     *
+     * @param readEventsPerSec             the number of messages read from the journal in the last second
+     * @param journalUtilizationPercentage the utilization of the journal size limit
+     * @return the IDs of the throttleable inputs which don't exceed their share
+     */
+    public synchronized Set<String> update(long readEventsPerSec, double journalUtilizationPercentage) {
+        return update(readEventsPerSec, journalUtilizationPercentage, System.nanoTime());
+    }
+
+    @VisibleForTesting
+    synchronized Set<String> update(long readEventsPerSec, double journalUtilizationPercentage, long nowNanos) {
+        if (!enabled) {
+            return Set.of();
+        }
+        final double elapsedSeconds = lastUpdateNanos < 0 ? 1.0 : Math.max((nowNanos - lastUpdateNanos) / 1.0E09, 0.001);
+        lastUpdateNanos = nowNanos;
+
+        final List<InputState> throttleable = new ArrayList<>();
+        final Set<String> runningInputIds = new HashSet<>();
+        double otherInputsRate = 0;
+        for (IOState<MessageInput> inputState : inputRegistry.getRunningInputs()) {
+            final MessageInput input = inputState.getStoppable();
+            runningInputIds.add(input.getId());
+            final InputState state = inputStates.computeIfAbsent(input.getId(), id -> new InputState(input));
+            state.update(input, elapsedSeconds);
+            if (state.throttleable) {
+                throttleable.add(state);
+            } else {
+                otherInputsRate += state.rate;
+            }
+        }
+        inputStates.entrySet().removeIf(entry -> {
+            if (!runningInputIds.contains(entry.getKey())) {
+                entry.getValue().removeMetrics();
+                return true;
+            }
+            return false;
+        });
+
+        final double capacity = Math.max(0, readEventsPerSec - otherInputsRate);
+        distribute(throttleable, capacity);
+
+        final Set<String> admitted = new HashSet<>();
+        for (InputState state : throttleable) {
+            if (state.admit(elapsedSeconds, capacity > 0)) {
+                admitted.add(state.inputId);
+            }
+        }
+        // The shares are still updated so the token buckets reflect the current load once the journal has recovered
+        if (journalUtilizationPercentage >= criticalJournalUtilization) {
+            return Set.of();
+        }
+        return admitted;
+    }
+
+    /**
+     * Weighted max-min fair distribution of the capacity.
+     */
+    private static void distribute(List<InputState> inputs, double capacity) {
+        final List<InputState> unsatisfied = new ArrayList<>(inputs);
+        double remaining = capacity;
+        boolean changed = true;
+        while (changed && !unsatisfied.isEmpty()) {
+            changed = false;
+            final double totalWeight = unsatisfied.stream().mapToDouble(state -> state.weight).sum();
+            final double perWeight = remaining / totalWeight;
+            for (final var it = unsatisfied.iterator(); it.hasNext(); ) {
+                final InputState state = it.next();
+                final double demand = state.demand();
+                if (demand <= state.weight * perWeight) {
+                    state.share = demand;
+                    remaining -= demand;
+                    it.remove();
+                    changed = true;
+                }
+            }
+        }
+        final double totalWeight = unsatisfied.stream().mapToDouble(state -> state.weight).sum();
+        for (InputState state : unsatisfied) {
+            state.share = remaining * state.weight / totalWeight;
+        }
+    }
+
+    private class InputState {
+        private final String inputId;
+        private final String metricPrefix;
+        private final Meter admittedMessages;
+        private final Meter deferredMessages;
+
+        private boolean throttleable;
+        private int weight;
+        private long lastCount;
+        private long consumed;
+        private double rate;
+        private double share;
+        private double tokens;
+        private boolean admitted = true;
+
+        InputState(MessageInput input) {
+            this.inputId = input.getId();
+            this.metricPrefix = name(input.getUniqueReadableId(), "throttling");
+            this.lastCount = input.getIncomingMessagesCount();
+            this.admittedMessages = metricRegistry.meter(name(metricPrefix, "admittedMessages"));
+            this.deferredMessages = metricRegistry.meter(name(metricPrefix, "deferredMessages"));
+            metricRegistry.register(name(metricPrefix, "fairShare"), (Gauge<Double>) () -> share);
+        }
+
+        void update(MessageInput input, double elapsedSeconds) {
+            throttleable = input.getConfiguration().getBoolean(ThrottleableTransport.CK_THROTTLING_ALLOWED, false);
+            weight = Math.max(1, input.getConfiguration().getInt(ThrottleableTransport.CK_THROTTLING_WEIGHT, 1));
+            final long count = input.getIncomingMessagesCount();
+            consumed = Math.max(0, count - lastCount);
+            lastCount = count;
+            rate = consumed / elapsedSeconds;
+        }
+
+        /**
+         * The demand of an input which has been throttled is unknown, so it could take everything.
+         */
+        double demand() {
+            return admitted ? rate : Double.POSITIVE_INFINITY;
+        }
+
+        boolean admit(double elapsedSeconds, boolean hasCapacity) {
+            final double allowance = share * elapsedSeconds;
+            // The bucket holds at most one second of the share, as credit or as debt
+            tokens = Math.max(-share, Math.min(share, tokens + allowance - consumed));
+            final long deferred = Math.max(0, Math.round(consumed - allowance));
+            admittedMessages.mark(consumed - deferred);
+            deferredMessages.mark(deferred);
+            // Without any capacity, all inputs have to be throttled
+            admitted = hasCapacity && tokens >= 0;
+            return admitted;
+        }
+
+        void removeMetrics() {
+            metricRegistry.removeMatching((name, metric) -> name.startsWith(metricPrefix + "."));
+        }
+    }
+}
@@ -113,4 +113,15 @@ public class HdrHistogram extends com.codahale.metrics.Histogram {
             log.debug("Ignoring value {} for HdrHistogram, it exceeds the highest trackable value {}", value, hdrHistogram.getHighestTrackableValue());
         }
     }
+
+    /**
+     * Records the value as if it had been recorded {@code count} times, e.g. for sampled values.
+     */
+    public void update(long value, long count) {
+        try {
+            hdrHistogram.recordValueWithCount(value, count);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            log.debug("Ignoring value {} for HdrHistogram, it exceeds the highest trackable value {}", value, hdrHistogram.getHighestTrackableValue());
+        }
+    }
 }
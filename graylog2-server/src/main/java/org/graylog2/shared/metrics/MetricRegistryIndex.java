@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricRegistryListener;
+import com.codahale.metrics.Timer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A view of the metric registry which is sorted by metric name, so all metrics with a common prefix can be looked up
+ * without iterating over the whole registry. The view is kept up to date by listening to the registry.
+ * <p>
+ * Additionally, the summaries of metrics (see {@link MetricUtils#map(String, Metric)}) are cached for a second, so
+ * clients polling the same metrics don't cause repeated snapshots of their reservoirs.
+ */
+@Singleton
+public class MetricRegistryIndex extends MetricRegistryListener.Base {
+    private record Summary(Metric metric, Map<String, Object> summary) {}
+
+    private final NavigableMap<String, Metric> metrics = new ConcurrentSkipListMap<>();
+    private final Cache<String, Summary> summaries = Caffeine.newBuilder()
+            .expireAfterWrite(1, TimeUnit.SECONDS)
+            .maximumSize(10_000)
+            .build();
+
+    @Inject
+    public MetricRegistryIndex(MetricRegistry metricRegistry) {
+        // Calls the listener for all existing metrics
+        metricRegistry.addListener(this);
+    }
+
+    @Nullable
+    public Metric get(String name) {
+        return metrics.get(name);
+    }
+
+    /**
+     * Returns all metrics whose name starts with the given prefix.
+     *
+     * @param prefix the prefix of the metric names
+     * @return a live view of the metrics sorted by name
+     */
+    public SortedMap<String, Metric> byPrefix(String prefix) {
+        // The end of the range is the smallest string which is greater than all strings with the prefix
+        int length = prefix.length();
+        while (length > 0 && prefix.charAt(length - 1) == Character.MAX_VALUE) {
+            length--;
+        }
+        if (length == 0) {
+            return metrics.tailMap(prefix, true);
+        }
+        final String end = prefix.substring(0, length - 1) + (char) (prefix.charAt(length - 1) + 1);
+        return metrics.subMap(prefix, true, end, false);
+    }
+
+    /**
+     * Returns the summary of the metric as created by {@link MetricUtils#map(String, Metric)}. Summaries which have
+     * been created less than a second ago are reused.
+     */
+    public Map<String, Object> summary(String name, Metric metric) {
+        final Summary cached = summaries.getIfPresent(name);
+        if (cached != null && cached.metric() == metric) {
+            return cached.summary();
+        }
+        final Map<String, Object> summary = MetricUtils.map(name, metric);
+        summaries.put(name, new Summary(metric, summary));
+        return summary;
+    }
+
+    private void add(String name, Metric metric) {
+        metrics.put(name, metric);
+    }
+
+    private void remove(String name) {
+        metrics.remove(name);
+        summaries.invalidate(name);
+    }
+
+    @Override
+    public void onGaugeAdded(String name, Gauge<?> gauge) {
+        add(name, gauge);
+    }
+
+    @Override
+    public void onGaugeRemoved(String name) {
+        remove(name);
+    }
+
+    @Override
+    public void onCounterAdded(String name, Counter counter) {
+        add(name, counter);
+    }
+
+    @Override
+    public void onCounterRemoved(String name) {
+        remove(name);
+    }
+
+    @Override
+    public void onHistogramAdded(String name, Histogram histogram) {
+        add(name, histogram);
+    }
+
+    @Override
+    public void onHistogramRemoved(String name) {
+        remove(name);
+    }
+
+    @Override
+    public void onMeterAdded(String name, Meter meter) {
+        add(name, meter);
+    }
+
+    @Override
+    public void onMeterRemoved(String name) {
+        remove(name);
+    }
+
+    @Override
+    public void onTimerAdded(String name, Timer timer) {
+        add(name, timer);
+    }
+
+    @Override
+    public void onTimerRemoved(String name) {
+        remove(name);
+    }
+}
@@ -24,6 +24,7 @@ import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricFilter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.Snapshot;
 import com.codahale.metrics.Timer;
 import com.google.common.collect.Maps;
 import org.graylog2.rest.models.metrics.responses.RateMetricsResponse;
@@ -105,14 +106,16 @@ public class MetricUtils {
             return result;
         }
 
+        // Taking a snapshot copies (and usually sorts) the reservoir, so only take it once
+        final Snapshot snapshot = t.getSnapshot();
         final TimerMetricsResponse time = new TimerMetricsResponse();
-        time.max = TimeUnit.MICROSECONDS.convert(t.getSnapshot().getMax(), TimeUnit.NANOSECONDS);
-        time.min = TimeUnit.MICROSECONDS.convert(t.getSnapshot().getMin(), TimeUnit.NANOSECONDS);
-        time.mean = TimeUnit.MICROSECONDS.convert((long) t.getSnapshot().getMean(), TimeUnit.NANOSECONDS);
-        time.percentile95th = TimeUnit.MICROSECONDS.convert((long) t.getSnapshot().get95thPercentile(), TimeUnit.NANOSECONDS);
-        time.percentile98th = TimeUnit.MICROSECONDS.convert((long) t.getSnapshot().get98thPercentile(), TimeUnit.NANOSECONDS);
-        time.percentile99th = TimeUnit.MICROSECONDS.convert((long) t.getSnapshot().get99thPercentile(), TimeUnit.NANOSECONDS);
-        time.stdDev = TimeUnit.MICROSECONDS.convert((long) t.getSnapshot().getStdDev(), TimeUnit.NANOSECONDS);
+        time.max = TimeUnit.MICROSECONDS.convert(snapshot.getMax(), TimeUnit.NANOSECONDS);
+        time.min = TimeUnit.MICROSECONDS.convert(snapshot.getMin(), TimeUnit.NANOSECONDS);
+        time.mean = TimeUnit.MICROSECONDS.convert((long) snapshot.getMean(), TimeUnit.NANOSECONDS);
+        time.percentile95th = TimeUnit.MICROSECONDS.convert((long) snapshot.get95thPercentile(), TimeUnit.NANOSECONDS);
+        time.percentile98th = TimeUnit.MICROSECONDS.convert((long) snapshot.get98thPercentile(), TimeUnit.NANOSECONDS);
+        time.percentile99th = TimeUnit.MICROSECONDS.convert((long) snapshot.get99thPercentile(), TimeUnit.NANOSECONDS);
+        time.stdDev = TimeUnit.MICROSECONDS.convert((long) snapshot.getStdDev(), TimeUnit.NANOSECONDS);
 
         final RateMetricsResponse rate = new RateMetricsResponse();
         rate.oneMinute = t.getOneMinuteRate();
@@ -136,14 +139,15 @@ public class MetricUtils {
             return metrics;
         }
 
+        final Snapshot snapshot = h.getSnapshot();
         Map<String, Object> time = Maps.newHashMap();
-        time.put("max", h.getSnapshot().getMax());
-        time.put("min", h.getSnapshot().getMin());
-        time.put("mean", (long) h.getSnapshot().getMean());
-        time.put("95th_percentile", (long) h.getSnapshot().get95thPercentile());
-        time.put("98th_percentile", (long) h.getSnapshot().get98thPercentile());
-        time.put("99th_percentile", (long) h.getSnapshot().get99thPercentile());
-        time.put("std_dev", (long) h.getSnapshot().getStdDev());
+        time.put("max", snapshot.getMax());
+        time.put("min", snapshot.getMin());
+        time.put("mean", (long) snapshot.getMean());
+        time.put("95th_percentile", (long) snapshot.get95thPercentile());
+        time.put("98th_percentile", (long) snapshot.get98thPercentile());
+        time.put("99th_percentile", (long) snapshot.get99thPercentile());
+        time.put("std_dev", (long) snapshot.getStdDev());
 
         metrics.put("time", time);
         metrics.put("count", h.getCount());
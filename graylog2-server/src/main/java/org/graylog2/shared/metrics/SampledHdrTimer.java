@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.metrics;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A timer for sampled durations, where each recorded duration stands for a number of events.
+ * <p>
+ * Unlike {@link Timer}, recording a duration doesn't involve a locking reservoir. Durations are recorded lock-free into
+ * an HDR histogram and the count and rates are scaled with the number of events each duration stands for, so they are
+ * comparable with an unsampled timer.
+ */
+public class SampledHdrTimer extends Timer {
+    private final HdrHistogram hdrHistogram;
+    private final Meter meter = new Meter();
+
+    public SampledHdrTimer(long highestTrackableValue, TimeUnit unit, int numberOfSignificantValueDigits) {
+        // The reservoir of the parent class is never updated
+        super(new SlidingWindowReservoir(1));
+        this.hdrHistogram = new HdrHistogram(unit.toNanos(highestTrackableValue), numberOfSignificantValueDigits);
+    }
+
+    /**
+     * Records a sampled duration.
+     *
+     * @param durationNanos the duration in nanoseconds
+     * @param events        the number of events the duration stands for, i.e. the inverse of the sampling rate
+     */
+    public void update(long durationNanos, int events) {
+        if (durationNanos >= 0 && events > 0) {
+            hdrHistogram.update(durationNanos, events);
+            meter.mark(events);
+        }
+    }
+
+    @Override
+    public void update(long duration, TimeUnit unit) {
+        update(unit.toNanos(duration), 1);
+    }
+
+    // The parent class doesn't call update(long, TimeUnit) for the following methods
+
+    @Override
+    public <T> T time(Callable<T> event) throws Exception {
+        final long start = System.nanoTime();
+        try {
+            return event.call();
+        } finally {
+            update(System.nanoTime() - start, 1);
+        }
+    }
+
+    @Override
+    public <T> T timeSupplier(Supplier<T> event) {
+        final long start = System.nanoTime();
+        try {
+            return event.get();
+        } finally {
+            update(System.nanoTime() - start, 1);
+        }
+    }
+
+    @Override
+    public void time(Runnable event) {
+        final long start = System.nanoTime();
+        try {
+            event.run();
+        } finally {
+            update(System.nanoTime() - start, 1);
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return meter.getCount();
+    }
+
+    @Override
+    public double getFifteenMinuteRate() {
+        return meter.getFifteenMinuteRate();
+    }
+
+    @Override
+    public double getFiveMinuteRate() {
+        return meter.getFiveMinuteRate();
+    }
+
+    @Override
+    public double getMeanRate() {
+        return meter.getMeanRate();
+    }
+
+    @Override
+    public double getOneMinuteRate() {
+        return meter.getOneMinuteRate();
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        return hdrHistogram.getSnapshot();
+    }
+}
@@ -31,7 +31,7 @@ import org.graylog2.audit.jersey.NoAuditEvent;
 import org.graylog2.rest.models.system.metrics.requests.MetricsReadRequest;
 import org.graylog2.rest.models.system.metrics.responses.MetricNamesResponse;
 import org.graylog2.rest.models.system.metrics.responses.MetricsSummaryResponse;
-import org.graylog2.shared.metrics.MetricUtils;
+import org.graylog2.shared.metrics.MetricRegistryIndex;
 import org.graylog2.shared.rest.resources.RestResource;
 import org.graylog2.shared.security.RestPermissions;
 import org.slf4j.Logger;
@@ -60,10 +60,12 @@ public class MetricsResource extends RestResource {
 
     private static final Logger LOG = LoggerFactory.getLogger(MetricsResource.class);
     private final MetricRegistry metricRegistry;
+    private final MetricRegistryIndex metricRegistryIndex;
 
     @Inject
-    public MetricsResource(MetricRegistry metricRegistry) {
+    public MetricsResource(MetricRegistry metricRegistry, MetricRegistryIndex metricRegistryIndex) {
         this.metricRegistry = metricRegistry;
+        this.metricRegistryIndex = metricRegistryIndex;
     }
 
     @GET
@@ -98,7 +100,7 @@ public class MetricsResource extends RestResource {
                                @PathParam("metricName") String metricName) {
         checkPermission(RestPermissions.METRICS_READ, metricName);
 
-        final Metric metric = metricRegistry.getMetrics().get(metricName);
+        final Metric metric = metricRegistryIndex.get(metricName);
         if (metric == null) {
             final String msg = "I do not have a metric called [" + metricName + "].";
             LOG.debug(msg);
@@ -118,8 +120,6 @@ public class MetricsResource extends RestResource {
     @NoAuditEvent("only used to retrieve multiple metrics")
     public MetricsSummaryResponse multipleMetrics(@ApiParam(name = "Requested metrics", required = true)
                                                   @Valid @NotNull MetricsReadRequest request) {
-        final Map<String, Metric> metrics = metricRegistry.getMetrics();
-
         final List<Map<String, Object>> metricsList = Lists.newArrayList();
 
         for (String name : request.metrics()) {
@@ -127,9 +127,9 @@ public class MetricsResource extends RestResource {
                 continue;
             }
 
-            final Metric metric = metrics.get(name);
+            final Metric metric = metricRegistryIndex.get(name);
             if (metric != null) {
-                metricsList.add(MetricUtils.map(name, metric));
+                metricsList.add(metricRegistryIndex.summary(name, metric));
             }
         }
 
@@ -147,12 +147,12 @@ public class MetricsResource extends RestResource {
     public MetricsSummaryResponse byNamespace(@ApiParam(name = "namespace", required = true)
                                               @PathParam("namespace") String namespace) {
         final List<Map<String, Object>> metrics = Lists.newArrayList();
-        for (Map.Entry<String, Metric> e : metricRegistry.getMetrics().entrySet()) {
+        for (Map.Entry<String, Metric> e : metricRegistryIndex.byPrefix(namespace).entrySet()) {
             final String metricName = e.getKey();
-            if (metricName.startsWith(namespace) && isPermitted(RestPermissions.METRICS_READ, metricName)) {
+            if (isPermitted(RestPermissions.METRICS_READ, metricName)) {
                 try {
                     final Metric metric = e.getValue();
-                    metrics.add(MetricUtils.map(metricName, metric));
+                    metrics.add(metricRegistryIndex.summary(metricName, metric));
                 } catch (Exception ex) {
                     LOG.warn("Could not read metric in namespace list.", ex);
                 }
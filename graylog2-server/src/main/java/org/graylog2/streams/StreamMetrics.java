@@ -18,44 +18,60 @@ package org.graylog2.streams;
 
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
-import com.codahale.metrics.Timer;
 import com.google.common.collect.Maps;
 import org.graylog2.plugin.streams.Stream;
-import org.graylog2.plugin.streams.StreamRule;
+import org.graylog2.shared.metrics.SampledHdrTimer;
 
 import jakarta.inject.Inject;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class StreamMetrics {
     private final MetricRegistry metricRegistry;
+    private final StreamRuleTiming streamRuleTiming;
 
     private final Map<String, Meter> streamIncomingMeters = Maps.newHashMap();
-    private final Map<String, Timer> streamExecutionTimers = Maps.newHashMap();
+    private final Map<String, SampledHdrTimer> streamExecutionTimers = Maps.newHashMap();
     private final Map<String, Meter> streamExceptionMeters = Maps.newHashMap();
     private final Map<String, Meter> streamRuleTimeoutMeters = Maps.newHashMap();
     private final Map<String, Meter> streamFaultsExceededMeters = Maps.newHashMap();
 
 
     @Inject
-    public StreamMetrics(final MetricRegistry metricRegistry) {
+    public StreamMetrics(final MetricRegistry metricRegistry, final StreamRuleTiming streamRuleTiming) {
         this.metricRegistry = metricRegistry;
+        this.streamRuleTiming = streamRuleTiming;
     }
 
     public void markIncomingMeter(String streamId) {
         getIncomingMeter(streamId).mark();
     }
 
-    public Timer getExecutionTimer(String streamId, String streamRuleId) {
-        Timer timer = this.streamExecutionTimers.get(streamRuleId);
+    /**
+     * Returns the timer for the execution time of a stream rule. Only sampled evaluations should be recorded, see
+     * {@link #sampleExecutionTime()}.
+     */
+    public SampledHdrTimer getExecutionTimer(String streamId, String streamRuleId) {
+        SampledHdrTimer timer = this.streamExecutionTimers.get(streamRuleId);
         if (timer == null) {
-            timer = metricRegistry.timer(MetricRegistry.name(Stream.class, streamId, "StreamRule", streamRuleId, "executionTime"));
+            timer = (SampledHdrTimer) metricRegistry.timer(MetricRegistry.name(Stream.class, streamId, "StreamRule", streamRuleId, "executionTime"),
+                    () -> new SampledHdrTimer(1, TimeUnit.MINUTES, 1));
             this.streamExecutionTimers.put(streamRuleId, timer);
         }
 
         return timer;
     }
 
+    /**
+     * Decides whether the current evaluation of a stream rule is timed.
+     *
+     * @return the number of evaluations the duration of the current evaluation stands for, 0 if it isn't timed
+     */
+    public int sampleExecutionTime() {
+        return streamRuleTiming.sample();
+    }
+
 
     public void markExceptionMeter(String streamId) {
         getExceptionMeter(streamId).mark();
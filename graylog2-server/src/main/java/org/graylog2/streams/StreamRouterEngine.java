@@ -18,7 +18,6 @@ package org.graylog2.streams;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.MetricRegistry;
-import com.codahale.metrics.Timer;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -35,6 +34,7 @@ import org.graylog2.plugin.streams.DefaultStream;
 import org.graylog2.plugin.streams.Stream;
 import org.graylog2.plugin.streams.StreamRule;
 import org.graylog2.plugin.streams.StreamRuleType;
+import org.graylog2.shared.metrics.SampledHdrTimer;
 import org.graylog2.shared.utilities.ExceptionUtils;
 import org.graylog2.streams.matchers.StreamRuleMatcher;
 import org.slf4j.Logger;
@@ -282,6 +282,7 @@ public class StreamRouterEngine {
         private final String streamRuleId;
         private final StreamRuleMatcher matcher;
         private final Stream.MatchingType matchingType;
+        private final SampledHdrTimer executionTimer;
 
         public Rule(Stream stream, StreamRule rule, Stream.MatchingType matchingType) throws InvalidStreamRuleTypeException {
             this.stream = stream;
@@ -290,6 +291,7 @@ public class StreamRouterEngine {
             this.streamRuleId = rule.getId();
             this.matchingType = matchingType;
             this.matcher = StreamRuleMatcherFactory.build(rule.getType());
+            this.executionTimer = streamMetrics.getExecutionTimer(streamId, streamRuleId);
         }
 
         public Stream.MatchingType getMatchingType() {
@@ -299,7 +301,10 @@ public class StreamRouterEngine {
         @Nullable
         public Stream match(Message message) {
             // TODO Add missing message recordings!
-            try (final Timer.Context ignored = streamMetrics.getExecutionTimer(streamId, streamRuleId).time()) {
+            // Timing every evaluation is too expensive with lots of rules, so only a sample of them is timed
+            final int sampledEvaluations = streamMetrics.sampleExecutionTime();
+            final long start = sampledEvaluations > 0 ? System.nanoTime() : 0L;
+            try {
                 if (matcher.match(message, rule)) {
                     return stream;
                 } else {
@@ -315,13 +320,18 @@ public class StreamRouterEngine {
                 message.addProcessingError(new Message.ProcessingError(
                         ProcessingFailureCause.StreamMatchException, error, ExceptionUtils.getRootCauseMessage(e)));
                 return null;
+            } finally {
+                if (sampledEvaluations > 0) {
+                    executionTimer.update(System.nanoTime() - start, sampledEvaluations);
+                }
             }
         }
 
         @Nullable
         private Stream matchWithTimeOut(final Message message, long timeout, TimeUnit unit) {
             Stream matchedStream = null;
-            try (final Timer.Context ignored = streamMetrics.getExecutionTimer(streamId, streamRuleId).time()) {
+            // The execution time is recorded by match()
+            try {
                 matchedStream = timeLimiter.callWithTimeout(new Callable<Stream>() {
                     @Override
                     @Nullable
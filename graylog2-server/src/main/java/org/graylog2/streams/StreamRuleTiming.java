@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.streams;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.graylog2.cluster.ClusterConfigChangedEvent;
+import org.graylog2.plugin.cluster.ClusterConfigService;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which stream rule evaluations are timed, based on the {@link StreamRuleTimingConfig} of the cluster.
+ */
+@Singleton
+public class StreamRuleTiming {
+    private final ClusterConfigService clusterConfigService;
+    private volatile int sampleRate;
+
+    @Inject
+    public StreamRuleTiming(ClusterConfigService clusterConfigService, EventBus eventBus) {
+        this.clusterConfigService = clusterConfigService;
+        this.sampleRate = loadSampleRate();
+        eventBus.register(this);
+    }
+
+    /**
+     * Decides whether the current rule evaluation is timed.
+     *
+     * @return the number of evaluations the duration of the current evaluation stands for, 0 if it isn't timed
+     */
+    public int sample() {
+        final int rate = sampleRate;
+        if (rate <= 1) {
+            return rate;
+        }
+        return ThreadLocalRandom.current().nextInt(rate) == 0 ? rate : 0;
+    }
+
+    @Subscribe
+    public void handleConfigUpdate(ClusterConfigChangedEvent event) {
+        if (StreamRuleTimingConfig.class.getCanonicalName().equals(event.type())) {
+            sampleRate = loadSampleRate();
+        }
+    }
+
+    private int loadSampleRate() {
+        final StreamRuleTimingConfig config = clusterConfigService.get(StreamRuleTimingConfig.class);
+        return config == null ? StreamRuleTimingConfig.DEFAULT_SAMPLE_RATE : config.sampleRate();
+    }
+}
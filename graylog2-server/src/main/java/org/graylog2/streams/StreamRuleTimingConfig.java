@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.streams;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import org.graylog.autovalue.WithBeanGetter;
+
+/**
+ * Cluster configuration for the execution time metrics of stream rules.
+ * <p>
+ * Only one in {@link #sampleRate()} rule evaluations is timed. A sample rate of 1 times every evaluation, a sample
+ * rate of 0 disables the timing.
+ */
+@AutoValue
+@WithBeanGetter
+@JsonAutoDetect
+public abstract class StreamRuleTimingConfig {
+    public static final int DEFAULT_SAMPLE_RATE = 100;
+
+    @JsonProperty("sample_rate")
+    public abstract int sampleRate();
+
+    @JsonCreator
+    public static StreamRuleTimingConfig create(@JsonProperty("sample_rate") int sampleRate) {
+        if (sampleRate < 0) {
+            throw new IllegalArgumentException("Sample rate must not be negative");
+        }
+        return new AutoValue_StreamRuleTimingConfig(sampleRate);
+    }
+
+    public static StreamRuleTimingConfig defaultConfig() {
+        return create(DEFAULT_SAMPLE_RATE);
+    }
+}
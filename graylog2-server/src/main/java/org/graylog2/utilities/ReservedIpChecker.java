@@ -17,16 +17,19 @@
 
 package org.graylog2.utilities;
 
+import com.google.common.net.InetAddresses;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.util.Arrays;
-import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
+/**
+ * Checks whether addresses are in one of the reserved IPv4 blocks. The blocks are stored in a binary prefix trie, so
+ * a lookup needs at most 32 steps regardless of the number of blocks.
+ */
 public class ReservedIpChecker {
     private static final Logger LOG = LoggerFactory.getLogger(ReservedIpChecker.class);
     private static final String[] RESERVED_IPV4_BLOCKS = {
@@ -51,23 +54,36 @@ public class ReservedIpChecker {
 
     private static ReservedIpChecker instance;
 
-    private final List<IpSubnet> ipBlocks;
+    private final TrieNode ipBlocks = new TrieNode();
+    private final boolean empty;
 
     public ReservedIpChecker() {
-        this.ipBlocks = loadReservedIpBlocks();
+        this.empty = loadReservedIpBlocks() == 0;
     }
 
-    private List<IpSubnet> loadReservedIpBlocks() {
+    private int loadReservedIpBlocks() {
+        int blocks = 0;
+        for (String block : RESERVED_IPV4_BLOCKS) {
+            final Optional<IpSubnet> subnet = stringToSubnet(block);
+            if (subnet.isPresent()) {
+                addBlock(subnet.get());
+                blocks++;
+            }
+        }
+        return blocks;
+    }
 
-        return Arrays.stream(RESERVED_IPV4_BLOCKS)
-                .map(ReservedIpChecker::stringToSubnet)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
+    private void addBlock(IpSubnet subnet) {
+        final byte[] network = InetAddresses.forString(subnet.getNetworkAddress()).getAddress();
+        TrieNode node = ipBlocks;
+        for (int bit = 0; bit < subnet.getPrefixLength(); bit++) {
+            node = node.child(isBitSet(network, bit), true);
+        }
+        node.terminal = true;
     }
 
     public boolean isEmpty() {
-        return ipBlocks.isEmpty();
+        return empty;
     }
 
     public boolean isReservedIpAddress(String address) {
@@ -75,7 +91,40 @@ public class ReservedIpChecker {
             return false;
         }
 
-        return ipBlocks.stream().anyMatch(e -> subnetContainsAddress(e, address));
+        try {
+            // Only resolve the address if it's not an IP address literal to avoid the overhead of InetAddress#getByName
+            return isReservedIpAddress(InetAddresses.isInetAddress(address) ? InetAddresses.forString(address) : InetAddress.getByName(address));
+        } catch (UnknownHostException ignore) {
+            return false;
+        }
+    }
+
+    public boolean isReservedIpAddress(InetAddress address) {
+        final byte[] bytes = address.getAddress();
+        final int offset = bytes.length - 4;
+        // Like IpSubnet#contains, an IPv6 address is treated as its numeric value. It's only in one of the IPv4 blocks
+        // if its upper 96 bits are zero.
+        for (int i = 0; i < offset; i++) {
+            if (bytes[i] != 0) {
+                return false;
+            }
+        }
+
+        TrieNode node = ipBlocks;
+        for (int bit = 0; bit < 32; bit++) {
+            if (node.terminal) {
+                return true;
+            }
+            node = node.child(isBitSet(bytes, offset * 8 + bit), false);
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.terminal;
+    }
+
+    private static boolean isBitSet(byte[] bytes, int bit) {
+        return (bytes[bit / 8] & (0x80 >>> (bit % 8))) != 0;
     }
 
     public static Optional<IpSubnet> stringToSubnet(String range) {
@@ -106,4 +155,21 @@ public class ReservedIpChecker {
 
         return instance;
     }
+
+    private static class TrieNode {
+        private TrieNode zero;
+        private TrieNode one;
+        private boolean terminal;
+
+        private TrieNode child(boolean bit, boolean create) {
+            if (create) {
+                if (bit && one == null) {
+                    one = new TrieNode();
+                } else if (!bit && zero == null) {
+                    zero = new TrieNode();
+                }
+            }
+            return bit ? one : zero;
+        }
+    }
 }
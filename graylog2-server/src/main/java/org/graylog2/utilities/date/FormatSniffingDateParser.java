@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.utilities.date;
+
+import com.google.common.collect.ImmutableList;
+import org.joda.time.Chronology;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.DateTimeParser;
+import org.joda.time.format.DateTimeParserBucket;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Parses timestamps in one of several formats without trying every format one after another.
+ * <p>
+ * A hand-written scanner first determines the {@link Shape} of the input (e.g. ISO-8601 or a syslog style
+ * timestamp), so only the formats registered for that shape are tried. The last format that matched for a shape is
+ * tried first for the next input of the same shape, which is usually a hit because timestamps from the same source
+ * share a format. If none of the formats for the shape match, the remaining formats are tried in registration order,
+ * so the result is the same as trying all formats one after another.
+ * <p>
+ * Formats are tried without throwing exceptions for mismatches.
+ */
+public class FormatSniffingDateParser {
+    public enum Shape {
+        /**
+         * An optionally signed integer, e.g. {@code 1505741140123}.
+         */
+        EPOCH,
+        /**
+         * ISO-8601 extended format, e.g. {@code 2017-09-18T13:25:40.123+01:00}.
+         */
+        ISO_EXTENDED,
+        /**
+         * ISO-8601 basic format, e.g. {@code 20170918T132540.123+01:00}.
+         */
+        ISO_BASIC,
+        /**
+         * Syslog style timestamp without a year, e.g. {@code Sep 18 13:25:40}.
+         */
+        SYSLOG,
+        /**
+         * Syslog style timestamp with a year, e.g. {@code Sep 18 2017 13:25:40}.
+         */
+        SYSLOG_WITH_YEAR,
+        OTHER
+    }
+
+    private static final Shape[] SHAPES = Shape.values();
+
+    private final boolean epochMillis;
+    private final List<DateTimeFormatter> formatters;
+    private final Map<Shape, List<DateTimeFormatter>> formattersByShape;
+    private final AtomicReferenceArray<DateTimeFormatter> lastMatch = new AtomicReferenceArray<>(SHAPES.length);
+
+    private FormatSniffingDateParser(boolean epochMillis, List<DateTimeFormatter> formatters,
+                                     Map<Shape, List<DateTimeFormatter>> formattersByShape) {
+        this.epochMillis = epochMillis;
+        this.formatters = formatters;
+        this.formattersByShape = formattersByShape;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Parses the given timestamp. Leading and trailing whitespace is ignored and repeated whitespace is consolidated.
+     *
+     * @param value    the timestamp to parse
+     * @param timeZone the time zone of the result and for timestamps without a time zone
+     * @param locale   the locale for month and day names
+     * @return the parsed timestamp or null if none of the formats match
+     */
+    @Nullable
+    public DateTime parse(String value, DateTimeZone timeZone, Locale locale) {
+        final String text = normalizeWhitespace(value);
+        final Shape shape = sniff(text);
+
+        if (shape == Shape.EPOCH && epochMillis) {
+            final Long millis = parseLong(text);
+            if (millis != null) {
+                return new DateTime(millis, DateTimeZone.UTC);
+            }
+        }
+
+        final DateTimeFormatter last = lastMatch.get(shape.ordinal());
+        if (last != null) {
+            final DateTime dateTime = tryParse(last.withZone(timeZone).withLocale(locale), text);
+            if (dateTime != null) {
+                return dateTime;
+            }
+        }
+
+        final List<DateTimeFormatter> candidates = formattersByShape.getOrDefault(shape, List.of());
+        for (final DateTimeFormatter formatter : candidates) {
+            if (formatter == last) {
+                continue;
+            }
+            final DateTime dateTime = tryParse(formatter.withZone(timeZone).withLocale(locale), text);
+            if (dateTime != null) {
+                lastMatch.set(shape.ordinal(), formatter);
+                return dateTime;
+            }
+        }
+
+        // The shape is only a hint, so we still have to try the other formats
+        for (final DateTimeFormatter formatter : formatters) {
+            if (formatter == last || candidates.contains(formatter)) {
+                continue;
+            }
+            final DateTime dateTime = tryParse(formatter.withZone(timeZone).withLocale(locale), text);
+            if (dateTime != null) {
+                return dateTime;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Determines the shape of the given timestamp.
+     *
+     * @param text the timestamp, without leading or trailing whitespace
+     * @return the shape of the timestamp, {@link Shape#OTHER} if it has none of the known shapes
+     */
+    public static Shape sniff(String text) {
+        final int length = text.length();
+        if (length == 0) {
+            return Shape.OTHER;
+        }
+
+        final int sign = text.charAt(0) == '-' || text.charAt(0) == '+' ? 1 : 0;
+        final int digits = countDigits(text, sign);
+        if (digits > 0 && sign + digits == length) {
+            return Shape.EPOCH;
+        }
+        if (sign > 0) {
+            return Shape.OTHER;
+        }
+        if (digits == 4 && length > 10 && text.charAt(4) == '-' && countDigits(text, 5) == 2
+                && text.charAt(7) == '-' && countDigits(text, 8) == 2 && text.charAt(10) == 'T') {
+            return Shape.ISO_EXTENDED;
+        }
+        if (digits == 8 && length > 8 && text.charAt(8) == 'T') {
+            return Shape.ISO_BASIC;
+        }
+
+        // Syslog style: <month name> <day> [<year>] <hour>:...
+        int pos = 0;
+        while (pos < length && Character.isLetter(text.charAt(pos))) {
+            pos++;
+        }
+        if (pos < 3 || pos >= length || text.charAt(pos) != ' ') {
+            return Shape.OTHER;
+        }
+        final int dayDigits = countDigits(text, ++pos);
+        if (dayDigits < 1 || dayDigits > 2) {
+            return Shape.OTHER;
+        }
+        pos += dayDigits;
+        if (pos >= length || text.charAt(pos) != ' ') {
+            return Shape.OTHER;
+        }
+        final int nextDigits = countDigits(text, ++pos);
+        pos += nextDigits;
+        if (pos >= length) {
+            return Shape.OTHER;
+        }
+        if (nextDigits == 4 && text.charAt(pos) == ' ') {
+            return Shape.SYSLOG_WITH_YEAR;
+        }
+        if (nextDigits >= 1 && nextDigits <= 2 && text.charAt(pos) == ':') {
+            return Shape.SYSLOG;
+        }
+        return Shape.OTHER;
+    }
+
+    /**
+     * Parses the given text with the formatter. Unlike {@link DateTimeFormatter#parseDateTime(String)} this doesn't
+     * throw an exception if the text doesn't match the format.
+     *
+     * @param formatter the formatter to use
+     * @param text      the text to parse
+     * @return the parsed timestamp or null if the text doesn't match the format
+     */
+    @Nullable
+    public static DateTime tryParse(DateTimeFormatter formatter, String text) {
+        final DateTimeParser parser = formatter.getParser();
+        if (parser == null) {
+            return null;
+        }
+        Chronology chronology = DateTimeUtils.getChronology(formatter.getChronology());
+        if (formatter.getZone() != null) {
+            chronology = chronology.withZone(formatter.getZone());
+        }
+
+        // Same steps as DateTimeFormatter#parseDateTime
+        final DateTimeParserBucket bucket = new DateTimeParserBucket(0, chronology, formatter.getLocale(),
+                formatter.getPivotYear(), formatter.getDefaultYear());
+        final int position;
+        try {
+            position = parser.parseInto(bucket, text, 0);
+        } catch (RuntimeException e) {
+            // Some localized style formats can't be parsed at all, e.g. if they contain time zone names
+            return null;
+        }
+        if (position < 0 || position < text.length()) {
+            return null;
+        }
+
+        final long millis;
+        try {
+            millis = bucket.computeMillis(true, text);
+        } catch (IllegalArgumentException e) {
+            // The text matches the format but contains illegal values, e.g. February 30th
+            return null;
+        }
+        if (formatter.isOffsetParsed() && bucket.getOffsetInteger() != null) {
+            chronology = chronology.withZone(DateTimeZone.forOffsetMillis(bucket.getOffsetInteger()));
+        } else if (bucket.getZone() != null) {
+            chronology = chronology.withZone(bucket.getZone());
+        }
+        final DateTime dateTime = new DateTime(millis, chronology);
+        return formatter.getZone() != null ? dateTime.withZone(formatter.getZone()) : dateTime;
+    }
+
+    /**
+     * Removes leading and trailing whitespace and replaces each sequence of two or more whitespace characters with
+     * a single blank.
+     */
+    static String normalizeWhitespace(String value) {
+        final String text = value.trim();
+        final int length = text.length();
+        for (int i = 1; i < length; i++) {
+            if (Character.isWhitespace(text.charAt(i)) && Character.isWhitespace(text.charAt(i - 1))) {
+                return consolidateWhitespace(text);
+            }
+        }
+        return text;
+    }
+
+    private static String consolidateWhitespace(String text) {
+        final StringBuilder sb = new StringBuilder(text.length());
+        int i = 0;
+        while (i < text.length()) {
+            final char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                int end = i + 1;
+                while (end < text.length() && Character.isWhitespace(text.charAt(end))) {
+                    end++;
+                }
+                sb.append(end - i > 1 ? ' ' : c);
+                i = end;
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int countDigits(String text, int from) {
+        int pos = from;
+        while (pos < text.length() && text.charAt(pos) >= '0' && text.charAt(pos) <= '9') {
+            pos++;
+        }
+        return pos - from;
+    }
+
+    @Nullable
+    private static Long parseLong(String text) {
+        // Up to 18 digits always fit into a long
+        final boolean negative = text.charAt(0) == '-';
+        final int sign = negative || text.charAt(0) == '+' ? 1 : 0;
+        if (text.length() - sign > 18) {
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        long value = 0;
+        for (int i = sign; i < text.length(); i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    public static class Builder {
+        private boolean epochMillis = false;
+        private final List<DateTimeFormatter> formatters = new ArrayList<>();
+        private final Map<Shape, List<DateTimeFormatter>> formattersByShape = new EnumMap<>(Shape.class);
+
+        /**
+         * Parse integers as milliseconds since the epoch.
+         */
+        public Builder epochMillis() {
+            this.epochMillis = true;
+            return this;
+        }
+
+        /**
+         * Registers formats for timestamps of the given shape. Formats are tried in registration order.
+         */
+        public Builder formats(Shape shape, DateTimeFormatter... shapeFormatters) {
+            for (final DateTimeFormatter formatter : shapeFormatters) {
+                formatters.add(formatter);
+                formattersByShape.computeIfAbsent(shape, s -> new ArrayList<>()).add(formatter);
+            }
+            return this;
+        }
+
+        public FormatSniffingDateParser build() {
+            final Map<Shape, List<DateTimeFormatter>> byShape = new EnumMap<>(Shape.class);
+            formattersByShape.forEach((shape, list) -> byShape.put(shape, ImmutableList.copyOf(list)));
+            return new FormatSniffingDateParser(epochMillis, ImmutableList.copyOf(formatters), byShape);
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package org.graylog.events.processor;
 
 import com.google.common.collect.ImmutableSet;
+import org.graylog.events.processor.aggregation.AggregationSlices;
 import org.graylog.testing.mongodb.MongoDBFixtures;
 import org.graylog.testing.mongodb.MongoDBInstance;
 import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
@@ -29,7 +30,10 @@ import org.junit.Test;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -251,4 +255,29 @@ public class DBEventProcessorStateServiceTest {
         assertThat(stateService.deleteByEventDefinitionId("54e3deadbeefdeadbeefaff3")).isEqualTo(1);
         assertThat(stateService.deleteByEventDefinitionId("nope")).isEqualTo(0);
     }
+
+    @Test
+    public void setAggregationSlices() {
+        final DateTime now = DateTime.now(DateTimeZone.UTC);
+        final AggregationSlices slices = new AggregationSlices("fingerprint", List.of(
+                new AggregationSlices.Slice(now.minusMinutes(1), now, 42, Set.of("stream-1"),
+                        List.of(new AggregationSlices.Row(List.of("a"), Collections.singletonList(null))))
+        ));
+
+        // Slices are only stored for existing state records
+        stateService.setAggregationSlices("yolo", slices);
+        assertThat(stateService.findByEventDefinitionId("yolo")).isNotPresent();
+
+        stateService.setState("yolo", now.minusHours(1), now);
+        stateService.setAggregationSlices("yolo", slices);
+
+        assertThat(stateService.getAggregationSlices("yolo")).get().isEqualTo(slices);
+
+        // Updating the state keeps the slices
+        stateService.setState("yolo", now, now.plusMinutes(1));
+        assertThat(stateService.getAggregationSlices("yolo")).get().isEqualTo(slices);
+
+        stateService.setAggregationSlices("yolo", null);
+        assertThat(stateService.getAggregationSlices("yolo")).isNotPresent();
+    }
 }
@@ -23,6 +23,7 @@ import jakarta.annotation.Nonnull;
 import org.graylog.events.conditions.Expr;
 import org.graylog.events.event.Event;
 import org.graylog.events.event.EventFactory;
+import org.graylog.events.event.EventOriginContext;
 import org.graylog.events.event.EventWithContext;
 import org.graylog.events.event.TestEvent;
 import org.graylog.events.notifications.EventNotificationSettings;
@@ -33,6 +34,8 @@ import org.graylog.events.processor.EventProcessorDependencyCheck;
 import org.graylog.events.processor.EventProcessorException;
 import org.graylog.events.processor.EventProcessorPreconditionException;
 import org.graylog.events.processor.EventStreamService;
+import org.graylog.events.processor.streaming.StreamedMessageClaims;
+import org.graylog.events.processor.streaming.StreamingFilterCoverage;
 import org.graylog.events.search.MoreSearch;
 import org.graylog.plugins.views.search.SearchType;
 import org.graylog.plugins.views.search.rest.PermittedStreams;
@@ -42,7 +45,11 @@ import org.graylog.plugins.views.search.searchtypes.pivot.PivotResult;
 import org.graylog.plugins.views.search.searchtypes.pivot.SeriesSpec;
 import org.graylog.plugins.views.search.searchtypes.pivot.series.Cardinality;
 import org.graylog.plugins.views.search.searchtypes.pivot.series.Count;
+import org.graylog2.indexer.IndexSet;
 import org.graylog2.indexer.messages.Messages;
+import org.graylog2.indexer.results.ResultMessageFactory;
+import org.graylog2.indexer.results.TestResultMessageFactory;
+import org.graylog2.notifications.Notification;
 import org.graylog2.notifications.NotificationService;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.MessageFactory;
@@ -50,6 +57,7 @@ import org.graylog2.plugin.MessageSummary;
 import org.graylog2.plugin.TestMessageFactory;
 import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
 import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
+import org.graylog2.plugin.streams.Stream;
 import org.graylog2.streams.StreamImpl;
 import org.graylog2.streams.StreamMock;
 import org.graylog2.streams.StreamService;
@@ -64,9 +72,11 @@ import org.mockito.junit.MockitoRule;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 import static java.util.Collections.emptyList;
@@ -74,8 +84,12 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
@@ -106,6 +120,10 @@ public class AggregationEventProcessorTest {
     private NotificationService notificationService;
     @Mock
     private StreamService streamService;
+    @Mock
+    private StreamingFilterCoverage streamingFilterCoverage;
+    @Mock
+    private StreamedMessageClaims streamedMessageClaims;
 
     private PermittedStreams permittedStreams;
     private EventStreamService eventStreamService;
@@ -125,6 +143,8 @@ public class AggregationEventProcessorTest {
 
         eventStreamService = new EventStreamService(streamService);
         permittedStreams = new PermittedStreams(streamService);
+        when(streamingFilterCoverage.check(anyString(), any(TimeRange.class)))
+                .thenAnswer(invocation -> new StreamingFilterCoverage.Coverage(false, invocation.getArgument(1)));
     }
 
     @Test
@@ -145,7 +165,7 @@ public class AggregationEventProcessorTest {
                 .build();
 
         final AggregationEventProcessor eventProcessor = new AggregationEventProcessor(
-                eventDefinitionDto, searchFactory, eventProcessorDependencyCheck, stateService, moreSearch, eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory);
+                eventDefinitionDto, searchFactory, eventProcessorDependencyCheck, stateService, moreSearch, eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory, streamingFilterCoverage, streamedMessageClaims);
 
         final AggregationResult result = AggregationResult.builder()
                 .effectiveTimerange(timerange)
@@ -251,7 +271,7 @@ public class AggregationEventProcessorTest {
         final AggregationEventProcessor eventProcessor = new AggregationEventProcessor(
                 eventDefinitionDto, searchFactory, eventProcessorDependencyCheck, stateService, moreSearch,
                 eventStreamService, messages, notificationService, permittedStreams,
-                Set.of(queryModifier), messageFactory);
+                Set.of(queryModifier), messageFactory, streamingFilterCoverage, streamedMessageClaims);
 
         final AggregationResult result = AggregationResult.builder()
                 .effectiveTimerange(timerange)
@@ -330,7 +350,7 @@ public class AggregationEventProcessorTest {
                 .build();
 
         final AggregationEventProcessor eventProcessor = new AggregationEventProcessor(eventDefinitionDto, searchFactory,
-                eventProcessorDependencyCheck, stateService, moreSearch, eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory);
+                eventProcessorDependencyCheck, stateService, moreSearch, eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory, streamingFilterCoverage, streamedMessageClaims);
 
         final AggregationResult result = AggregationResult.builder()
                 .effectiveTimerange(timerange)
@@ -434,7 +454,7 @@ public class AggregationEventProcessorTest {
                 .build();
 
         final AggregationEventProcessor eventProcessor = new AggregationEventProcessor(eventDefinitionDto, searchFactory,
-                eventProcessorDependencyCheck, stateService, moreSearch, eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory);
+                eventProcessorDependencyCheck, stateService, moreSearch, eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory, streamingFilterCoverage, streamedMessageClaims);
 
         assertThatCode(() -> eventProcessor.createEvents(eventFactory, parameters, (events) -> {})).doesNotThrowAnyException();
 
@@ -450,6 +470,184 @@ public class AggregationEventProcessorTest {
         verify(searchFactory, never()).create(eq(config), eq(parameters), any(AggregationSearch.User.class), eq(eventDefinitionDto), eq(List.of()));
     }
 
+    @Test
+    public void createEventsWithStreamedFilterOnlyCreatesEventsForUnclaimedMessages() throws Exception {
+        when(eventProcessorDependencyCheck.hasMessagesIndexedUpTo(any(TimeRange.class))).thenReturn(true);
+
+        final DateTime now = DateTime.now(DateTimeZone.UTC);
+        final AbsoluteRange timerange = AbsoluteRange.create(now.minusHours(1), now.minusHours(1).plusMillis(SEARCH_WINDOW_MS));
+
+        final EventDefinitionDto eventDefinitionDto = buildEventDefinitionDto(ImmutableSet.of(), ImmutableList.of(), null, emptyList());
+        final AggregationEventProcessorParameters parameters = AggregationEventProcessorParameters.builder()
+                .timerange(timerange)
+                .build();
+        when(streamingFilterCoverage.check(eventDefinitionDto.id(), timerange)).thenReturn(new StreamingFilterCoverage.Coverage(true, timerange));
+        when(eventFactory.createEvent(any(EventDefinition.class), any(DateTime.class), anyString())).thenAnswer(invocation -> new TestEvent(now));
+
+        final ResultMessageFactory resultMessageFactory = new TestResultMessageFactory();
+        final Message streamedMessage = messageFactory.createMessage("streamed", "a source", now);
+        final Message missedMessage = messageFactory.createMessage("missed", "a source", now);
+        // The processing chain already created an event for the first message
+        when(streamedMessageClaims.claim(eventDefinitionDto.id(), List.of(streamedMessage.getId(), missedMessage.getId())))
+                .thenReturn(Set.of(missedMessage.getId()));
+        doAnswer(invocation -> {
+            final MoreSearch.ScrollCallback callback = invocation.getArgument(6);
+            callback.call(List.of(resultMessageFactory.createFromMessage(streamedMessage), resultMessageFactory.createFromMessage(missedMessage)),
+                    new AtomicBoolean(true));
+            return null;
+        }).when(moreSearch).scrollQuery(any(), any(), any(), any(), any(), any(Integer.class), any());
+
+        final AggregationEventProcessor eventProcessor = new AggregationEventProcessor(eventDefinitionDto, searchFactory,
+                eventProcessorDependencyCheck, stateService, moreSearch, eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory, streamingFilterCoverage, streamedMessageClaims);
+
+        final List<EventWithContext> createdEvents = new ArrayList<>();
+        eventProcessor.createEvents(eventFactory, parameters, createdEvents::addAll);
+
+        assertThat(createdEvents).hasSize(1);
+        assertThat(createdEvents.get(0).messageContext()).contains(missedMessage);
+        verify(stateService, times(1)).setState(eventDefinitionDto.id(), timerange.from(), timerange.to());
+    }
+
+    @Test
+    public void createEventsWithStreamedFilterOnlySearchesUncoveredTimerange() throws Exception {
+        when(eventProcessorDependencyCheck.hasMessagesIndexedUpTo(any(TimeRange.class))).thenReturn(true);
+
+        final DateTime now = DateTime.now(DateTimeZone.UTC);
+        final AbsoluteRange timerange = AbsoluteRange.create(now.minusHours(1), now.minusHours(1).plusMillis(SEARCH_WINDOW_MS));
+        final AbsoluteRange uncovered = AbsoluteRange.create(timerange.from(), timerange.from().plusSeconds(5));
+
+        final EventDefinitionDto eventDefinitionDto = buildEventDefinitionDto(ImmutableSet.of(), ImmutableList.of(), null, emptyList());
+        final AggregationEventProcessorParameters parameters = AggregationEventProcessorParameters.builder()
+                .timerange(timerange)
+                .build();
+        when(streamingFilterCoverage.check(eventDefinitionDto.id(), timerange)).thenReturn(new StreamingFilterCoverage.Coverage(true, uncovered));
+
+        final AggregationEventProcessor eventProcessor = new AggregationEventProcessor(eventDefinitionDto, searchFactory,
+                eventProcessorDependencyCheck, stateService, moreSearch, eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory, streamingFilterCoverage, streamedMessageClaims);
+        eventProcessor.createEvents(eventFactory, parameters, events -> {});
+
+        verify(moreSearch, times(1)).scrollQuery(any(), any(), any(), any(), eq(uncovered), any(Integer.class), any());
+        verify(stateService, times(1)).setState(eventDefinitionDto.id(), timerange.from(), timerange.to());
+    }
+
+    @Test
+    public void createEventsWithStreamedFilterSkipsSearchIfTimerangeIsCovered() throws Exception {
+        when(eventProcessorDependencyCheck.hasMessagesIndexedUpTo(any(TimeRange.class))).thenReturn(true);
+
+        final DateTime now = DateTime.now(DateTimeZone.UTC);
+        final AbsoluteRange timerange = AbsoluteRange.create(now.minusHours(1), now.minusHours(1).plusMillis(SEARCH_WINDOW_MS));
+
+        final EventDefinitionDto eventDefinitionDto = buildEventDefinitionDto(ImmutableSet.of(), ImmutableList.of(), null, emptyList());
+        final AggregationEventProcessorParameters parameters = AggregationEventProcessorParameters.builder()
+                .timerange(timerange)
+                .build();
+        when(streamingFilterCoverage.check(eventDefinitionDto.id(), timerange)).thenReturn(new StreamingFilterCoverage.Coverage(true, null));
+
+        final AggregationEventProcessor eventProcessor = new AggregationEventProcessor(eventDefinitionDto, searchFactory,
+                eventProcessorDependencyCheck, stateService, moreSearch, eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory, streamingFilterCoverage, streamedMessageClaims);
+        eventProcessor.createEvents(eventFactory, parameters, events -> {});
+
+        verify(moreSearch, never()).scrollQuery(any(), any(), any(), any(), any(), any(Integer.class), any());
+        verify(stateService, times(1)).setState(eventDefinitionDto.id(), timerange.from(), timerange.to());
+    }
+
+    @Test
+    public void createEventsFromMessagesAppliesEventLimitPerExecutionWindow() throws Exception {
+        final DateTime windowStart = new DateTime(SEARCH_WINDOW_MS * 1000L, DateTimeZone.UTC);
+        when(eventFactory.createEvent(any(EventDefinition.class), any(DateTime.class), anyString())).thenAnswer(invocation -> new TestEvent(windowStart));
+        when(streamedMessageClaims.claim(anyString(), anyList())).thenAnswer(invocation -> new HashSet<>(invocation.<List<String>>getArgument(1)));
+        // Another node has already created one of the two events of the first window
+        when(streamedMessageClaims.reserveEvents("dto-id-1", windowStart.toDate(), 2, 2)).thenReturn(1);
+        when(streamedMessageClaims.reserveEvents("dto-id-1", windowStart.plusMillis(SEARCH_WINDOW_MS).toDate(), 1, 2)).thenReturn(1);
+        when(notificationService.buildNow()).thenReturn(mock(Notification.class, RETURNS_SELF));
+
+        final EventDefinitionDto definition = buildEventDefinitionDto(ImmutableSet.of(), ImmutableList.of(), null, emptyList());
+        final EventDefinitionDto eventDefinitionDto = definition.toBuilder()
+                .config(((AggregationEventProcessorConfig) definition.config()).toBuilder().eventLimit(2).build())
+                .build();
+        final AggregationEventProcessor eventProcessor = new AggregationEventProcessor(eventDefinitionDto, searchFactory,
+                eventProcessorDependencyCheck, stateService, moreSearch, eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory, streamingFilterCoverage, streamedMessageClaims);
+
+        final List<Message> matched = List.of(
+                messageFactory.createMessage("first", "a source", windowStart),
+                messageFactory.createMessage("second", "a source", windowStart.plusSeconds(1)),
+                messageFactory.createMessage("third", "a source", windowStart.plusMillis(SEARCH_WINDOW_MS)));
+        matched.forEach(message -> message.addStream(mockStream("stream-2")));
+
+        final List<EventWithContext> createdEvents = new ArrayList<>();
+        eventProcessor.createEventsFromMessages(eventFactory, matched, createdEvents::addAll);
+
+        assertThat(createdEvents).extracting(eventWithContext -> eventWithContext.messageContext().orElseThrow())
+                .containsExactly(matched.get(0), matched.get(2));
+        verify(notificationService, times(1)).publishIfFirst(any());
+    }
+
+    @Test
+    public void createEventsFromMessagesOnlyUsesPermittedStreams() throws Exception {
+        final DateTime now = DateTime.now(DateTimeZone.UTC);
+        when(eventFactory.createEvent(any(EventDefinition.class), any(DateTime.class), anyString())).thenAnswer(invocation -> new TestEvent(now));
+        when(streamedMessageClaims.claim(anyString(), anyList())).thenAnswer(invocation -> new HashSet<>(invocation.<List<String>>getArgument(1)));
+
+        final EventDefinitionDto eventDefinitionDto = buildEventDefinitionDto(ImmutableSet.of(), ImmutableList.of(), null, emptyList());
+        final AggregationEventProcessor eventProcessor = new AggregationEventProcessor(eventDefinitionDto, searchFactory,
+                eventProcessorDependencyCheck, stateService, moreSearch, eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory, streamingFilterCoverage, streamedMessageClaims);
+
+        final Message permitted = messageFactory.createMessage("permitted", "a source", now);
+        permitted.addStream(mockStream("stream-2"));
+        final Message eventsStreamOnly = messageFactory.createMessage("system event", "a source", now);
+        eventsStreamOnly.addStream(mockStream(StreamImpl.DEFAULT_SYSTEM_EVENTS_STREAM_ID));
+
+        final List<EventWithContext> createdEvents = new ArrayList<>();
+        eventProcessor.createEventsFromMessages(eventFactory, List.of(permitted, eventsStreamOnly), createdEvents::addAll);
+
+        assertThat(createdEvents).hasSize(1);
+        assertThat(createdEvents.get(0).messageContext()).contains(permitted);
+    }
+
+    private Stream mockStream(String id) {
+        final Stream stream = mock(Stream.class);
+        when(stream.getId()).thenReturn(id);
+        when(stream.getIndexSet()).thenReturn(mock(IndexSet.class));
+        return stream;
+    }
+
+    @Test
+    public void createEventsFromMessages() throws Exception {
+        final DateTime now = DateTime.now(DateTimeZone.UTC);
+        final TestEvent event1 = new TestEvent(now);
+        when(eventFactory.createEvent(any(EventDefinition.class), any(DateTime.class), anyString())).thenReturn(event1);
+
+        when(streamedMessageClaims.claim(anyString(), anyList())).thenAnswer(invocation -> new HashSet<>(invocation.<List<String>>getArgument(1)));
+
+        final EventDefinitionDto eventDefinitionDto = buildEventDefinitionDto(ImmutableSet.of("stream-2"), ImmutableList.of(), null, emptyList());
+        final AggregationEventProcessor eventProcessor = new AggregationEventProcessor(eventDefinitionDto, searchFactory,
+                eventProcessorDependencyCheck, stateService, moreSearch, eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory, streamingFilterCoverage, streamedMessageClaims);
+
+        final IndexSet indexSet = mock(IndexSet.class);
+        when(indexSet.getWriteIndexAlias()).thenReturn("graylog_deflector");
+        final Stream stream = mock(Stream.class);
+        when(stream.getId()).thenReturn("stream-2");
+        when(stream.getIndexSet()).thenReturn(indexSet);
+
+        final Message message = messageFactory.createMessage("a message", "a source", now);
+        message.addStream(stream);
+
+        final List<EventWithContext> createdEvents = new ArrayList<>();
+        eventProcessor.createEventsFromMessages(eventFactory, List.of(message), createdEvents::addAll);
+
+        assertThat(createdEvents).hasSize(1);
+        assertThat(createdEvents.get(0)).satisfies(eventWithContext -> {
+            final Event event = eventWithContext.event();
+
+            assertThat(event.getSourceStreams()).containsOnly("stream-2");
+            assertThat(event.getTimerangeStart()).isEqualTo(now.minusMillis(SEARCH_WINDOW_MS));
+            assertThat(event.getTimerangeEnd()).isEqualTo(now);
+            assertThat(event.getOriginContext()).isEqualTo(EventOriginContext.elasticsearchMessage("graylog_deflector", message.getId()));
+            assertThat(eventWithContext.messageContext()).contains(message);
+        });
+        verify(moreSearch, never()).scrollQuery(any(), any(), any(), any(), any(), any(Integer.class), any());
+    }
+
     @Test
     public void createEventsWithoutRequiredMessagesBeingIndexed() throws Exception {
         final DateTime now = DateTime.now(DateTimeZone.UTC);
@@ -470,7 +668,7 @@ public class AggregationEventProcessorTest {
                 .build();
 
         final AggregationEventProcessor eventProcessor = new AggregationEventProcessor(eventDefinitionDto, searchFactory,
-                eventProcessorDependencyCheck, stateService, moreSearch, eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory);
+                eventProcessorDependencyCheck, stateService, moreSearch, eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory, streamingFilterCoverage, streamedMessageClaims);
 
         // If the dependency check returns true, there should be no exception raised and the state service should be called
         when(eventProcessorDependencyCheck.hasMessagesIndexedUpTo(timerange)).thenReturn(true);
@@ -530,7 +728,7 @@ public class AggregationEventProcessorTest {
                 .build();
 
         final AggregationEventProcessor eventProcessor = new AggregationEventProcessor(eventDefinitionDto, searchFactory,
-                eventProcessorDependencyCheck, stateService, moreSearch, eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory);
+                eventProcessorDependencyCheck, stateService, moreSearch, eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory, streamingFilterCoverage, streamedMessageClaims);
         final AggregationResult result = buildAggregationResult(timerange, timerange.to(), ImmutableList.of("one", "two"));
         final ImmutableList<EventWithContext> eventsWithContext = eventProcessor.eventsFromAggregationResult(eventFactory, parameters, result);
 
@@ -575,7 +773,7 @@ public class AggregationEventProcessorTest {
                 .build();
 
         final AggregationEventProcessor eventProcessor = new AggregationEventProcessor(eventDefinitionDto, searchFactory, eventProcessorDependencyCheck, stateService, moreSearch,
-                eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory);
+                eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory, streamingFilterCoverage, streamedMessageClaims);
         final AggregationResult result = buildAggregationResult(timerange, timerange.to(), ImmutableList.of("one", "two"));
         final ImmutableList<EventWithContext> eventsWithContext = eventProcessor.eventsFromAggregationResult(eventFactory, parameters, result);
 
@@ -680,7 +878,7 @@ public class AggregationEventProcessorTest {
         final EventDefinitionDto eventDefinitionDto = buildEventDefinitionDto(ImmutableSet.of(), ImmutableList.of(series), null, filters);
         final AggregationEventProcessor eventProcessor = new AggregationEventProcessor(
                 eventDefinitionDto, searchFactory, eventProcessorDependencyCheck, stateService, moreSearch,
-                eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory);
+                eventStreamService, messages, notificationService, permittedStreams, Set.of(), messageFactory, streamingFilterCoverage, streamedMessageClaims);
 
         eventProcessor.sourceMessagesForEvent(event, messageConsumer, batchLimit);
     }
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.processor.aggregation;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.graylog.events.EventsConfigurationTestProvider;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.QueryResult;
+import org.graylog.plugins.views.search.Search;
+import org.graylog.plugins.views.search.SearchJob;
+import org.graylog.plugins.views.search.SearchType;
+import org.graylog.plugins.views.search.db.SearchJobService;
+import org.graylog.plugins.views.search.engine.QueryEngine;
+import org.graylog.plugins.views.search.errors.SearchTypeError;
+import org.graylog.plugins.views.search.searchtypes.pivot.Pivot;
+import org.graylog.plugins.views.search.searchtypes.pivot.PivotResult;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.Values;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AggregationSearchBatcherTest {
+    private final AbsoluteRange timerange = AbsoluteRange.create(
+            DateTime.parse("2024-01-01T00:00:00Z"), DateTime.parse("2024-01-01T00:05:00Z"));
+
+    private SearchJobService searchJobService;
+    private QueryEngine queryEngine;
+    private MetricRegistry metricRegistry;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        searchJobService = mock(SearchJobService.class);
+        queryEngine = mock(QueryEngine.class);
+        metricRegistry = new MetricRegistry();
+        executor = Executors.newFixedThreadPool(2, new ThreadFactoryBuilder().setNameFormat("batcher-test-%d").build());
+
+        when(searchJobService.create(any(Search.class), anyString(), anyInt())).thenAnswer(invocation -> {
+            final SearchJob searchJob = mock(SearchJob.class);
+            when(searchJob.getSearch()).thenReturn(invocation.getArgument(0));
+            return searchJob;
+        });
+        when(queryEngine.execute(any(SearchJob.class), any(), any())).thenAnswer(invocation -> {
+            final SearchJob searchJob = invocation.getArgument(0);
+            final Query query = searchJob.getSearch().queries().iterator().next();
+            final Map<String, SearchType.Result> results = new HashMap<>();
+            query.searchTypes().forEach(searchType -> results.put(searchType.id(), pivotResult(searchType.id())));
+            final QueryResult queryResult = QueryResult.builder()
+                    .query(query)
+                    .searchTypes(results)
+                    .errors(Set.of(new SearchTypeError(query, "b-pivot", "failed")))
+                    .build();
+            when(searchJob.getResultFuture()).thenReturn(CompletableFuture.completedFuture(null));
+            when(searchJob.results()).thenReturn(Map.of(query.id(), queryResult));
+            return searchJob;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private AggregationSearchBatcher batcher(Duration window, int maxSize) {
+        return new AggregationSearchBatcher(searchJobService, queryEngine, EventsConfigurationTestProvider.create(),
+                metricRegistry, window, maxSize);
+    }
+
+    private AggregationSearchBatcher.Request request(String searchTypeId) {
+        final Pivot pivot = Pivot.builder()
+                .id(searchTypeId)
+                .rollup(true)
+                .rowGroups(Values.builder().field("source").limit(10).build())
+                .series(List.of())
+                .timerange(timerange)
+                .streams(Set.of("000000000000000000000001"))
+                .build();
+        return new AggregationSearchBatcher.Request(Set.of(pivot), timerange, DateTimeZone.UTC, 1);
+    }
+
+    private PivotResult pivotResult(String id) {
+        return PivotResult.builder().id(id).effectiveTimerange(timerange).total(1).build();
+    }
+
+    @Test
+    void isDisabledWithoutWindow() {
+        assertThat(batcher(Duration.milliseconds(0), 50).isEnabled()).isFalse();
+        assertThat(batcher(Duration.milliseconds(100), 50).isEnabled()).isTrue();
+    }
+
+    @Test
+    void combinesConcurrentSearchesIntoSingleSearch() throws Exception {
+        final AggregationSearchBatcher batcher = batcher(Duration.seconds(30), 2);
+
+        final Future<AggregationSearchBatcher.Response> a = executor.submit(() -> batcher.execute(request("a-pivot")));
+        final Future<AggregationSearchBatcher.Response> b = executor.submit(() -> batcher.execute(request("b-pivot")));
+
+        final AggregationSearchBatcher.Response responseA = a.get();
+        final AggregationSearchBatcher.Response responseB = b.get();
+
+        final ArgumentCaptor<Search> searchCaptor = ArgumentCaptor.forClass(Search.class);
+        verify(searchJobService, times(1)).create(searchCaptor.capture(), anyString(), anyInt());
+        verify(queryEngine, times(1)).execute(any(SearchJob.class), any(), eq(DateTimeZone.UTC));
+
+        final Query query = searchCaptor.getValue().queries().iterator().next();
+        assertThat(query.searchTypes()).extracting(SearchType::id).containsExactlyInAnyOrder("a-pivot", "b-pivot");
+        assertThat(query.timerange()).isEqualTo(timerange);
+
+        // Every participant only gets its own results and errors
+        assertThat(responseA.results()).containsOnlyKeys("a-pivot");
+        assertThat(responseA.errors()).isEmpty();
+        assertThat(responseB.results()).containsOnlyKeys("b-pivot");
+        assertThat(responseB.errors()).hasSize(1);
+
+        assertThat(metricRegistry.counter(MetricRegistry.name(AggregationSearchBatcher.class, "savedRoundTrips")).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotBatchConflictingSearchTypeIds() throws Exception {
+        final AggregationSearchBatcher batcher = batcher(Duration.milliseconds(200), 2);
+
+        final Future<AggregationSearchBatcher.Response> first = executor.submit(() -> batcher.execute(request("a-pivot")));
+        final Future<AggregationSearchBatcher.Response> second = executor.submit(() -> batcher.execute(request("a-pivot")));
+
+        assertThat(first.get().results()).containsOnlyKeys("a-pivot");
+        assertThat(second.get().results()).containsOnlyKeys("a-pivot");
+
+        verify(queryEngine, times(2)).execute(any(SearchJob.class), any(), any());
+    }
+}
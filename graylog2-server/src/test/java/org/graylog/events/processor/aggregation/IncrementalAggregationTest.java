@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.processor.aggregation;
+
+import com.google.common.collect.ImmutableList;
+import org.graylog.events.processor.DBEventProcessorStateService;
+import org.graylog.events.processor.EventDefinition;
+import org.graylog.plugins.views.search.searchtypes.pivot.SeriesSpec;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Cardinality;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Count;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Max;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IncrementalAggregationTest {
+    private static final long MINUTE = 60_000;
+    private static final DateTime WINDOW_FROM = DateTime.parse("2024-01-01T00:00:00Z");
+    private static final DateTime WINDOW_TO = DateTime.parse("2024-01-01T00:03:00Z");
+
+    private final SeriesSpec count = Count.builder().id("count()").build();
+    private final SeriesSpec max = Max.builder().id("max(took_ms)").field("took_ms").build();
+
+    private DBEventProcessorStateService stateService;
+    private EventDefinition eventDefinition;
+    private IncrementalAggregation incrementalAggregation;
+
+    @BeforeEach
+    void setUp() {
+        stateService = mock(DBEventProcessorStateService.class);
+        eventDefinition = mock(EventDefinition.class);
+        when(eventDefinition.id()).thenReturn("def-1");
+        when(eventDefinition.title()).thenReturn("Test");
+        incrementalAggregation = new IncrementalAggregation(stateService, true, 100);
+    }
+
+    private AggregationEventProcessorConfig config(List<SeriesSpec> series) {
+        return AggregationEventProcessorConfig.builder()
+                .query("")
+                .streams(Collections.emptySet())
+                .groupBy(List.of("source"))
+                .series(series)
+                .conditions(null)
+                .searchWithinMs(3 * MINUTE)
+                .executeEveryMs(MINUTE)
+                .build();
+    }
+
+    private AggregationEventProcessorParameters parameters(DateTime from, DateTime to) {
+        return AggregationEventProcessorParameters.builder()
+                .streams(Collections.emptySet())
+                .timerange(AbsoluteRange.create(from, to))
+                .batchSize(500)
+                .build();
+    }
+
+    private AggregationKeyResult keyResult(String key, DateTime sliceEnd, double countValue, double maxValue) {
+        return AggregationKeyResult.builder()
+                .key(List.of(key))
+                .timestamp(sliceEnd)
+                .seriesValues(ImmutableList.of(
+                        AggregationSeriesValue.builder().key(List.of(key)).series(count).value(countValue).build(),
+                        AggregationSeriesValue.builder().key(List.of(key)).series(max).value(maxValue).build()))
+                .build();
+    }
+
+    private IncrementalAggregation.SliceSearchResult result(DateTime from, DateTime to, AggregationKeyResult... keyResults) {
+        final Map<Long, Long> totals = new HashMap<>();
+        final Map<Long, Set<String>> sourceStreams = new HashMap<>();
+        for (final AggregationKeyResult keyResult : keyResults) {
+            final long sliceEnd = keyResult.timestamp().orElseThrow().getMillis();
+            totals.merge(sliceEnd, (long) value(keyResult, count), Long::sum);
+            sourceStreams.computeIfAbsent(sliceEnd, k -> new HashSet<>()).add("stream-" + keyResult.key().get(0));
+        }
+        return new IncrementalAggregation.SliceSearchResult(AggregationResult.builder()
+                .keyResults(List.of(keyResults))
+                .effectiveTimerange(AbsoluteRange.create(from, to))
+                .totalAggregatedMessages(totals.values().stream().mapToLong(Long::longValue).sum())
+                .sourceStreams(sourceStreams.values().stream().flatMap(Set::stream).collect(Collectors.toSet()))
+                .build(), totals, sourceStreams);
+    }
+
+    private double value(AggregationKeyResult keyResult, SeriesSpec series) {
+        return keyResult.seriesValues().stream()
+                .filter(seriesValue -> seriesValue.series().equals(series))
+                .findFirst()
+                .orElseThrow()
+                .value();
+    }
+
+    @Test
+    void isApplicable() {
+        final AggregationEventProcessorConfig config = config(List.of(count, max));
+        final AggregationEventProcessorParameters parameters = parameters(WINDOW_FROM, WINDOW_TO);
+
+        assertThat(incrementalAggregation.isApplicable(config, parameters, List.of())).isTrue();
+        // Catch-up executions
+        assertThat(incrementalAggregation.isApplicable(config, parameters(WINDOW_FROM.minusMinutes(5), WINDOW_TO), List.of())).isFalse();
+        // Not mergeable
+        assertThat(incrementalAggregation.isApplicable(config(List.of(count, Cardinality.builder().field("user").build())), parameters, List.of())).isFalse();
+        // Not a sliding window
+        assertThat(incrementalAggregation.isApplicable(config.toBuilder().executeEveryMs(3 * MINUTE).build(), parameters, List.of())).isFalse();
+        assertThat(new IncrementalAggregation(stateService, false, 100).isApplicable(config, parameters, List.of())).isFalse();
+    }
+
+    @Test
+    void searchesWholeWindowWithoutStoredSlices() throws Exception {
+        when(stateService.getAggregationSlices("def-1")).thenReturn(Optional.empty());
+        final List<AggregationEventProcessorParameters> searches = new ArrayList<>();
+
+        final AggregationResult result = incrementalAggregation.search(eventDefinition, config(List.of(count, max)),
+                parameters(WINDOW_FROM, WINDOW_TO), (sliceParameters, sliceMs) -> {
+                    searches.add(sliceParameters);
+                    assertThat(sliceMs).isEqualTo(MINUTE);
+                    return result(WINDOW_FROM, WINDOW_TO,
+                            keyResult("a", WINDOW_FROM.plusMinutes(1), 2, 5),
+                            keyResult("a", WINDOW_FROM.plusMinutes(3), 3, 7),
+                            keyResult("b", WINDOW_FROM.plusMinutes(2), 1, Double.NaN));
+                });
+
+        assertThat(searches).hasSize(1);
+        assertThat(searches.get(0).timerange()).isEqualTo(AbsoluteRange.create(WINDOW_FROM, WINDOW_TO));
+
+        assertThat(result.keyResults()).hasSize(2);
+        final AggregationKeyResult a = result.keyResults().stream().filter(r -> r.key().equals(List.of("a"))).findFirst().orElseThrow();
+        assertThat(a.timestamp()).contains(WINDOW_TO);
+        assertThat(value(a, count)).isEqualTo(5.0);
+        assertThat(value(a, max)).isEqualTo(7.0);
+        final AggregationKeyResult b = result.keyResults().stream().filter(r -> r.key().equals(List.of("b"))).findFirst().orElseThrow();
+        assertThat(value(b, count)).isEqualTo(1.0);
+        assertThat(value(b, max)).isNaN();
+
+        final ArgumentCaptor<AggregationSlices> slicesCaptor = ArgumentCaptor.forClass(AggregationSlices.class);
+        verify(stateService).setAggregationSlices(eq("def-1"), slicesCaptor.capture());
+        assertThat(slicesCaptor.getValue().slices()).hasSize(3);
+        assertThat(slicesCaptor.getValue().slices()).extracting(AggregationSlices.Slice::from)
+                .containsExactly(WINDOW_FROM, WINDOW_FROM.plusMinutes(1), WINDOW_FROM.plusMinutes(2));
+    }
+
+    @Test
+    void searchesOnlyNewestSliceWithStoredSlices() throws Exception {
+        final AggregationEventProcessorConfig config = config(List.of(count, max));
+
+        // First execution stores the slices
+        when(stateService.getAggregationSlices("def-1")).thenReturn(Optional.empty());
+        incrementalAggregation.search(eventDefinition, config, parameters(WINDOW_FROM, WINDOW_TO),
+                (sliceParameters, sliceMs) -> result(WINDOW_FROM, WINDOW_TO,
+                        keyResult("a", WINDOW_FROM.plusMinutes(1), 2, 5),
+                        keyResult("a", WINDOW_FROM.plusMinutes(3), 3, 7)));
+        final ArgumentCaptor<AggregationSlices> slicesCaptor = ArgumentCaptor.forClass(AggregationSlices.class);
+        verify(stateService).setAggregationSlices(eq("def-1"), slicesCaptor.capture());
+
+        // Second execution one minute later only searches the newest minute
+        when(stateService.getAggregationSlices("def-1")).thenReturn(Optional.of(slicesCaptor.getValue()));
+        final DateTime nextFrom = WINDOW_FROM.plusMinutes(1);
+        final DateTime nextTo = WINDOW_TO.plusMinutes(1);
+        final List<AggregationEventProcessorParameters> searches = new ArrayList<>();
+
+        final AggregationResult result = incrementalAggregation.search(eventDefinition, config, parameters(nextFrom, nextTo),
+                (sliceParameters, sliceMs) -> {
+                    searches.add(sliceParameters);
+                    return result(WINDOW_TO, nextTo, keyResult("a", nextTo, 4, 1));
+                });
+
+        assertThat(searches).hasSize(1);
+        assertThat(searches.get(0).timerange()).isEqualTo(AbsoluteRange.create(WINDOW_TO, nextTo));
+
+        // The first minute of the previous window has been dropped
+        assertThat(result.keyResults()).hasSize(1);
+        assertThat(value(result.keyResults().get(0), count)).isEqualTo(7.0);
+        assertThat(value(result.keyResults().get(0), max)).isEqualTo(7.0);
+        assertThat(result.effectiveTimerange()).isEqualTo(AbsoluteRange.create(nextFrom, nextTo));
+    }
+
+    @Test
+    void attributesTotalsAndStreamsToTheirSlices() throws Exception {
+        final AggregationEventProcessorConfig config = config(List.of(count, max));
+
+        when(stateService.getAggregationSlices("def-1")).thenReturn(Optional.empty());
+        final AggregationResult first = incrementalAggregation.search(eventDefinition, config, parameters(WINDOW_FROM, WINDOW_TO),
+                (sliceParameters, sliceMs) -> result(WINDOW_FROM, WINDOW_TO,
+                        keyResult("a", WINDOW_FROM.plusMinutes(1), 2, 5),
+                        keyResult("b", WINDOW_FROM.plusMinutes(2), 3, 7),
+                        keyResult("c", WINDOW_TO, 4, 1)));
+        assertThat(first.totalAggregatedMessages()).isEqualTo(9);
+        assertThat(first.sourceStreams()).containsExactlyInAnyOrder("stream-a", "stream-b", "stream-c");
+
+        final ArgumentCaptor<AggregationSlices> slicesCaptor = ArgumentCaptor.forClass(AggregationSlices.class);
+        verify(stateService).setAggregationSlices(eq("def-1"), slicesCaptor.capture());
+        assertThat(slicesCaptor.getValue().slices()).extracting(AggregationSlices.Slice::total).containsExactly(2L, 3L, 4L);
+
+        // The totals and streams of the dropped first minute must not be carried over
+        when(stateService.getAggregationSlices("def-1")).thenReturn(Optional.of(slicesCaptor.getValue()));
+        final DateTime nextTo = WINDOW_TO.plusMinutes(1);
+        final AggregationResult second = incrementalAggregation.search(eventDefinition, config, parameters(WINDOW_FROM.plusMinutes(1), nextTo),
+                (sliceParameters, sliceMs) -> result(WINDOW_TO, nextTo, keyResult("c", nextTo, 1, 1)));
+
+        assertThat(second.totalAggregatedMessages()).isEqualTo(8);
+        assertThat(second.sourceStreams()).containsExactlyInAnyOrder("stream-b", "stream-c");
+    }
+
+    @Test
+    void ignoresSlicesOfChangedConfig() throws Exception {
+        when(stateService.getAggregationSlices("def-1")).thenReturn(Optional.of(new AggregationSlices("other", List.of(
+                new AggregationSlices.Slice(WINDOW_FROM, WINDOW_FROM.plusMinutes(1), 1, Set.of(),
+                        List.of(new AggregationSlices.Row(List.of("a"), List.of(100.0, 100.0))))))));
+        final List<AggregationEventProcessorParameters> searches = new ArrayList<>();
+
+        final AggregationResult result = incrementalAggregation.search(eventDefinition, config(List.of(count, max)),
+                parameters(WINDOW_FROM, WINDOW_TO), (sliceParameters, sliceMs) -> {
+                    searches.add(sliceParameters);
+                    return result(WINDOW_FROM, WINDOW_TO, keyResult("a", WINDOW_TO, 1, 1));
+                });
+
+        assertThat(searches.get(0).timerange().getFrom()).isEqualTo(WINDOW_FROM);
+        assertThat(value(result.keyResults().get(0), count)).isEqualTo(1.0);
+    }
+
+    @Test
+    void doesNotStoreTooManyKeys() throws Exception {
+        incrementalAggregation = new IncrementalAggregation(stateService, true, 1);
+        when(stateService.getAggregationSlices("def-1")).thenReturn(Optional.empty());
+
+        incrementalAggregation.search(eventDefinition, config(List.of(count, max)), parameters(WINDOW_FROM, WINDOW_TO),
+                (sliceParameters, sliceMs) -> result(WINDOW_FROM, WINDOW_TO,
+                        keyResult("a", WINDOW_TO, 1, 1),
+                        keyResult("b", WINDOW_TO, 1, 1)));
+
+        verify(stateService).setAggregationSlices(eq("def-1"), any());
+        verify(stateService).setAggregationSlices("def-1", null);
+    }
+}
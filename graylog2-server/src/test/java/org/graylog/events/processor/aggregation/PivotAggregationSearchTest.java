@@ -23,6 +23,7 @@ import org.graylog.events.EventsConfigurationTestProvider;
 import org.graylog.events.processor.EventDefinition;
 import org.graylog.events.search.MoreSearch;
 import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.SearchType;
 import org.graylog.plugins.views.search.ValueParameter;
 import org.graylog.plugins.views.search.db.SearchJobService;
 import org.graylog.plugins.views.search.elasticsearch.QueryStringDecorators;
@@ -46,16 +47,20 @@ import org.joda.time.DateTimeZone;
 import org.joda.time.Duration;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
 public class PivotAggregationSearchTest {
     @Rule
@@ -71,6 +76,10 @@ public class PivotAggregationSearchTest {
     private MoreSearch moreSearch;
     @Mock
     private NotificationService notificationService;
+    @Mock
+    private AggregationSearchBatcher searchBatcher;
+    @Mock
+    private IncrementalAggregation incrementalAggregation;
 
     private final PermittedStreams permittedStreams = new PermittedStreams(Stream::of);
 
@@ -107,7 +116,9 @@ public class PivotAggregationSearchTest {
                 moreSearch,
                 permittedStreams,
                 notificationService,
-                new QueryStringDecorators(Optional.empty())
+                new QueryStringDecorators(Optional.empty()),
+                searchBatcher,
+                incrementalAggregation
         );
 
         final String toString = timerange.getTo().toString();
@@ -208,7 +219,9 @@ public class PivotAggregationSearchTest {
                 moreSearch,
                 permittedStreams,
                 notificationService,
-                new QueryStringDecorators(Optional.empty())
+                new QueryStringDecorators(Optional.empty()),
+                searchBatcher,
+                incrementalAggregation
         );
 
         final PivotResult pivotResult = PivotResult.builder()
@@ -287,7 +300,9 @@ public class PivotAggregationSearchTest {
                 moreSearch,
                 permittedStreams,
                 notificationService,
-                new QueryStringDecorators(Optional.empty())
+                new QueryStringDecorators(Optional.empty()),
+                searchBatcher,
+                incrementalAggregation
         );
 
         final PivotResult pivotResult = PivotResult.builder()
@@ -353,7 +368,9 @@ public class PivotAggregationSearchTest {
                 moreSearch,
                 permittedStreams,
                 notificationService,
-                new QueryStringDecorators(Optional.empty())
+                new QueryStringDecorators(Optional.empty()),
+                searchBatcher,
+                incrementalAggregation
         );
 
         final PivotResult pivotResult = PivotResult.builder()
@@ -497,7 +514,9 @@ public class PivotAggregationSearchTest {
                     } else {
                         throw new IllegalArgumentException("Unexpected query decoration request!");
                     }
-                }))
+                })),
+                searchBatcher,
+                incrementalAggregation
         );
         final Query query = pivotAggregationSearch.getAggregationQuery(parameters, WINDOW_LENGTH, WINDOW_LENGTH);
         Assertions.assertThat(query.query().queryString()).isEqualTo("source:example.org");
@@ -542,7 +561,9 @@ public class PivotAggregationSearchTest {
                 moreSearch,
                 new PermittedStreams(() -> Stream.of("00001")),
                 notificationService,
-                new QueryStringDecorators(Optional.empty())
+                new QueryStringDecorators(Optional.empty()),
+                searchBatcher,
+                incrementalAggregation
         );
         final Query query = pivotAggregationSearch.getAggregationQuery(parameters, WINDOW_LENGTH, WINDOW_LENGTH);
         Assertions.assertThatCollection(query.searchTypes()).contains(
@@ -554,4 +575,88 @@ public class PivotAggregationSearchTest {
                         .build());
 
     }
+
+    @Test
+    public void testBatchedSearch() throws Exception {
+        final long WINDOW_LENGTH = 30000;
+        final AbsoluteRange timerange = AbsoluteRange.create(DateTime.now(DateTimeZone.UTC).minusSeconds(30), DateTime.now(DateTimeZone.UTC));
+        final SeriesSpec seriesCount = Count.builder().id("abc123").field("source").build();
+        final AggregationEventProcessorConfig config = AggregationEventProcessorConfig.builder()
+                .query("source:foo")
+                .streams(Collections.emptySet())
+                .groupBy(Collections.emptyList())
+                .series(ImmutableList.of(seriesCount))
+                .conditions(null)
+                .searchWithinMs(WINDOW_LENGTH)
+                .executeEveryMs(WINDOW_LENGTH)
+                .build();
+        final AggregationEventProcessorParameters parameters = AggregationEventProcessorParameters.builder()
+                .streams(Collections.emptySet())
+                .timerange(timerange)
+                .batchSize(500)
+                .build();
+
+        when(eventDefinition.id()).thenReturn("def-1");
+        when(searchBatcher.isEnabled()).thenReturn(true);
+
+        final PivotAggregationSearch pivotAggregationSearch = new PivotAggregationSearch(
+                config,
+                parameters,
+                new AggregationSearch.User("test", DateTimeZone.UTC),
+                eventDefinition,
+                Collections.emptyList(),
+                searchJobService,
+                queryEngine,
+                EventsConfigurationTestProvider.create(),
+                moreSearch,
+                new PermittedStreams(() -> Stream.of("00001")),
+                notificationService,
+                new QueryStringDecorators(Optional.empty()),
+                searchBatcher,
+                incrementalAggregation
+        );
+
+        final PivotResult pivotResult = PivotResult.builder()
+                .id("def-1-pivot-1")
+                .effectiveTimerange(timerange)
+                .total(42)
+                .addRow(PivotResult.Row.builder()
+                        .key(ImmutableList.of(timerange.getTo().toString()))
+                        .addValue(PivotResult.Value.create(ImmutableList.of("metric/count(source)"), 42, true, "row-leaf"))
+                        .source("leaf")
+                        .build())
+                .build();
+        final PivotResult streamsResult = PivotResult.builder()
+                .id("def-1-streams-pivot-1")
+                .effectiveTimerange(timerange)
+                .total(42)
+                .addRow(PivotResult.Row.builder()
+                        .key(ImmutableList.of("00001"))
+                        .source("leaf")
+                        .build())
+                .build();
+        final ArgumentCaptor<AggregationSearchBatcher.Request> requestCaptor = ArgumentCaptor.forClass(AggregationSearchBatcher.Request.class);
+        when(searchBatcher.execute(requestCaptor.capture())).thenReturn(new AggregationSearchBatcher.Response(
+                Query.emptyRoot(),
+                Map.of("def-1-pivot-1", pivotResult, "def-1-streams-pivot-1", streamsResult),
+                Collections.emptySet()));
+
+        final AggregationResult result = pivotAggregationSearch.doSearch();
+
+        verifyNoInteractions(queryEngine);
+        assertThat(result.totalAggregatedMessages()).isEqualTo(42);
+        assertThat(result.sourceStreams()).containsExactly("00001");
+        assertThat(result.keyResults()).hasSize(1);
+        assertThat(result.keyResults().get(0).seriesValues().get(0).value()).isEqualTo(42.0);
+
+        final AggregationSearchBatcher.Request request = requestCaptor.getValue();
+        assertThat(request.timerange()).isEqualTo(timerange);
+        assertThat(request.searchTypes()).extracting(SearchType::id)
+                .containsExactlyInAnyOrder("def-1-pivot-1", "def-1-streams-pivot-1");
+        assertThat(request.searchTypes()).allSatisfy(searchType -> {
+            assertThat(searchType.streams()).containsExactly("00001");
+            assertThat(searchType.query()).isPresent();
+            assertThat(searchType.timerange()).isPresent();
+        });
+    }
 }
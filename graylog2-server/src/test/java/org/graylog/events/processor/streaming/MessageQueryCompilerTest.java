@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.processor.streaming;
+
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.MessageFactory;
+import org.graylog2.plugin.TestMessageFactory;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageQueryCompilerTest {
+    private final MessageFactory messageFactory = new TestMessageFactory();
+    private Message message;
+
+    @BeforeEach
+    void setUp() {
+        message = messageFactory.createMessage("Failed password for root", "Web-01", DateTime.now(DateTimeZone.UTC));
+        message.addField("action", "login");
+        message.addField("user_name", "jane doe");
+        message.addField("http_response_code", 500);
+        message.addField("tags", List.of("auth", "ssh"));
+    }
+
+    private static final Set<String> KEYWORD_FIELDS = Set.of("action", "user_name", "http_response_code", "tags");
+
+    private boolean matches(String query) {
+        final Predicate<Message> matcher = compile(query).orElseThrow();
+        return matcher.test(message);
+    }
+
+    private static Optional<Predicate<Message>> compile(String query) {
+        return MessageQueryCompiler.compile(query, KEYWORD_FIELDS::contains);
+    }
+
+    @Test
+    void matchAll() {
+        assertThat(matches("")).isTrue();
+        assertThat(matches("*")).isTrue();
+        assertThat(matches("*:*")).isTrue();
+    }
+
+    @Test
+    void terms() {
+        assertThat(matches("action:login")).isTrue();
+        assertThat(matches("action:logout")).isFalse();
+        assertThat(matches("action:Login")).isFalse();
+        assertThat(matches("user_name:\"jane doe\"")).isTrue();
+        assertThat(matches("http_response_code:500")).isTrue();
+        assertThat(matches("http_response_code:404")).isFalse();
+        assertThat(matches("tags:ssh")).isTrue();
+    }
+
+    @Test
+    void numbersAndBooleansMatchTheirKeywordRepresentation() {
+        message.addField("http_response_code", 500.0);
+        message.addField("tags", true);
+
+        assertThat(matches("http_response_code:500")).isFalse();
+        assertThat(matches("http_response_code:500.0")).isTrue();
+        assertThat(matches("tags:true")).isTrue();
+        assertThat(matches("tags:TRUE")).isFalse();
+    }
+
+    @Test
+    void onlyKeywordFieldsAreSupported() {
+        assertThat(compile("unknown_field:login")).isEmpty();
+        assertThat(compile("unknown_field:log*")).isEmpty();
+        assertThat(compile("action:login AND unknown_field:l?gin")).isEmpty();
+        assertThat(compile("_exists_:unknown_field")).isPresent();
+        assertThat(compile("unknown_field:*")).isPresent();
+    }
+
+    @Test
+    void sourceIsCaseInsensitive() {
+        assertThat(matches("source:web-01")).isTrue();
+        assertThat(matches("source:WEB-01")).isTrue();
+    }
+
+    @Test
+    void existsAndWildcards() {
+        assertThat(matches("_exists_:action")).isTrue();
+        assertThat(matches("_exists_:missing")).isFalse();
+        assertThat(matches("action:*")).isTrue();
+        assertThat(matches("action:log*")).isTrue();
+        assertThat(matches("action:l?gin")).isTrue();
+        assertThat(matches("action:*gin")).isTrue();
+        assertThat(matches("action:x*")).isFalse();
+    }
+
+    @Test
+    void booleanOperators() {
+        assertThat(matches("action:login AND http_response_code:500")).isTrue();
+        assertThat(matches("action:login AND http_response_code:404")).isFalse();
+        assertThat(matches("action:logout OR http_response_code:500")).isTrue();
+        assertThat(matches("action:logout OR http_response_code:404")).isFalse();
+        assertThat(matches("action:login AND NOT tags:ssh")).isFalse();
+        assertThat(matches("NOT action:logout")).isTrue();
+        assertThat(matches("NOT action:login")).isFalse();
+        assertThat(matches("(action:logout OR tags:auth) AND _exists_:user_name")).isTrue();
+    }
+
+    @Test
+    void unsupportedQueries() {
+        assertThat(compile("password")).isEmpty();
+        assertThat(compile("message:password")).isEmpty();
+        assertThat(compile("action:login AND full_message:password")).isEmpty();
+        assertThat(compile("http_response_code:[500 TO 599]")).isEmpty();
+        assertThat(compile("action:logn~")).isEmpty();
+        assertThat(compile("action:/log.*/")).isEmpty();
+        assertThat(compile("action:(login")).isEmpty();
+    }
+}
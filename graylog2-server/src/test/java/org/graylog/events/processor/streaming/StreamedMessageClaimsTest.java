@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.processor.streaming;
+
+import org.graylog.testing.mongodb.MongoDBInstance;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StreamedMessageClaimsTest {
+    @Rule
+    public final MongoDBInstance mongodb = MongoDBInstance.createForClass();
+
+    private StreamedMessageClaims claims;
+
+    @Before
+    public void setUp() {
+        claims = new StreamedMessageClaims(mongodb.mongoConnection());
+    }
+
+    @Test
+    public void messagesCanOnlyBeClaimedOnce() {
+        assertThat(claims.claim("def-1", List.of("msg-1", "msg-2"))).containsExactlyInAnyOrder("msg-1", "msg-2");
+
+        // Only the new message is claimed, no matter which path claims it
+        assertThat(claims.claim("def-1", List.of("msg-2", "msg-3", "msg-1"))).containsExactly("msg-3");
+        assertThat(claims.claim("def-1", List.of("msg-1", "msg-2", "msg-3"))).isEmpty();
+    }
+
+    @Test
+    public void claimsArePerEventDefinition() {
+        assertThat(claims.claim("def-1", List.of("msg-1"))).containsExactly("msg-1");
+        assertThat(claims.claim("def-2", List.of("msg-1"))).containsExactly("msg-1");
+    }
+
+    @Test
+    public void eventsAreReservedWithinTheLimitOfTheirWindow() {
+        final Date window = new Date(60_000);
+
+        assertThat(claims.reserveEvents("def-1", window, 3, 5)).isEqualTo(3);
+        assertThat(claims.reserveEvents("def-1", window, 3, 5)).isEqualTo(2);
+        assertThat(claims.reserveEvents("def-1", window, 1, 5)).isZero();
+
+        assertThat(claims.reserveEvents("def-1", new Date(120_000), 1, 5)).isEqualTo(1);
+        assertThat(claims.reserveEvents("def-2", window, 1, 5)).isEqualTo(1);
+    }
+
+    @Test
+    public void duplicatesInOneBatchAreClaimedOnce() {
+        assertThat(claims.claim("def-1", List.of("msg-1", "msg-1"))).containsExactly("msg-1");
+        assertThat(claims.claim("def-1", List.of())).isEmpty();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.events.processor.streaming;
+
+import org.graylog.testing.mongodb.MongoDBInstance;
+import org.graylog2.cluster.nodes.NodeService;
+import org.graylog2.cluster.nodes.ServerNodeDto;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.graylog2.plugin.system.SimpleNodeId;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StreamingFilterCoverageTest {
+    @Rule
+    public final MongoDBInstance mongodb = MongoDBInstance.createForClass();
+
+    private static final StreamingFilterRegistry.StreamingFilter FILTER =
+            new StreamingFilterRegistry.StreamingFilter("def-1", "action:login", Set.of(), message -> true);
+
+    @SuppressWarnings("unchecked")
+    private final NodeService<ServerNodeDto> nodeService = mock(NodeService.class);
+    private final AtomicLong clock = new AtomicLong(0);
+    private StreamingFilterCoverage node1;
+    private StreamingFilterCoverage node2;
+
+    @Before
+    public void setUp() {
+        when(nodeService.allActive()).thenReturn(Map.of("node-1", mock(ServerNodeDto.class), "node-2", mock(ServerNodeDto.class)));
+        node1 = new StreamingFilterCoverage(mongodb.mongoConnection(), nodeService, new SimpleNodeId("node-1"), true, clock::get);
+        node2 = new StreamingFilterCoverage(mongodb.mongoConnection(), nodeService, new SimpleNodeId("node-2"), true, clock::get);
+    }
+
+    private static AbsoluteRange range(long fromMs, long toMs) {
+        return AbsoluteRange.create(new DateTime(fromMs, DateTimeZone.UTC), new DateTime(toMs, DateTimeZone.UTC));
+    }
+
+    private void load(StreamingFilterCoverage coverage, long at) {
+        clock.set(at);
+        coverage.filtersLoaded(List.of(FILTER));
+    }
+
+    private void report(StreamingFilterCoverage coverage, long at) {
+        clock.set(at);
+        coverage.dispatchedUntil(at);
+        coverage.report();
+    }
+
+    @Test
+    public void timerangeIsCoveredIfAllNodesHaveStreamedIt() {
+        load(node1, 1_000);
+        load(node2, 2_000);
+        report(node1, 20_000);
+        report(node2, 20_000);
+
+        assertThat(node1.check("def-1", range(5_000, 15_000))).isEqualTo(new StreamingFilterCoverage.Coverage(true, null));
+    }
+
+    @Test
+    public void timerangeBeforeMissedMatchesIsUncovered() {
+        load(node1, 1_000);
+        load(node2, 1_000);
+        clock.set(8_000);
+        node2.missed("def-1");
+        report(node1, 20_000);
+        report(node2, 20_000);
+
+        assertThat(node1.check("def-1", range(5_000, 15_000))).isEqualTo(new StreamingFilterCoverage.Coverage(true, range(5_000, 8_000)));
+        assertThat(node1.check("def-1", range(10_000, 15_000))).isEqualTo(new StreamingFilterCoverage.Coverage(true, null));
+    }
+
+    @Test
+    public void timerangeIsUncoveredIfANodeHasNotDispatchedAllMatches() {
+        load(node1, 1_000);
+        load(node2, 1_000);
+        report(node1, 20_000);
+        report(node2, 12_000);
+
+        assertThat(node1.check("def-1", range(5_000, 15_000))).isEqualTo(new StreamingFilterCoverage.Coverage(true, range(5_000, 15_000)));
+    }
+
+    @Test
+    public void timerangeIsUncoveredIfANodeHasNotLoadedTheFilter() {
+        load(node1, 1_000);
+        report(node1, 20_000);
+        report(node2, 20_000);
+
+        assertThat(node1.check("def-1", range(5_000, 15_000))).isEqualTo(new StreamingFilterCoverage.Coverage(true, range(5_000, 15_000)));
+    }
+
+    @Test
+    public void changedFiltersStartANewCoverage() {
+        load(node1, 1_000);
+        load(node2, 1_000);
+        clock.set(10_000);
+        node2.filtersLoaded(List.of(new StreamingFilterRegistry.StreamingFilter("def-1", "action:logout", Set.of(), message -> true)));
+        report(node1, 20_000);
+        report(node2, 20_000);
+
+        assertThat(node1.check("def-1", range(5_000, 15_000))).isEqualTo(new StreamingFilterCoverage.Coverage(true, range(5_000, 10_000)));
+    }
+
+    @Test
+    public void definitionsWhichAreNotStreamedAreUncovered() {
+        report(node1, 20_000);
+        report(node2, 20_000);
+
+        assertThat(node1.check("def-1", range(5_000, 15_000))).isEqualTo(new StreamingFilterCoverage.Coverage(false, range(5_000, 15_000)));
+    }
+}
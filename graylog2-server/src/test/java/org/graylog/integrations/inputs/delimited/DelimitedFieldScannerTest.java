@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.inputs.delimited;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DelimitedFieldScannerTest {
+    private final DelimitedFieldScanner scanner = new DelimitedFieldScanner(',', '"');
+
+    @Test
+    void matchesCsvParser() throws IOException {
+        final List<String> lines = List.of(
+                "a",
+                "a,b,c",
+                "a,,c,",
+                ",",
+                " a , b ",
+                "\"quoted\",plain",
+                "\"with, comma\",x",
+                "\"escaped \"\"quote\"\"\",x",
+                "\"\"\"fully quoted\"\"\"",
+                "\"\",\"\"",
+                "un\"quoted\"mid,x",
+                "1,2018/08/22 11:21:02,012801096514,TRAFFIC,end,2049,2018/08/22 11:21:02,10.20.30.40,10.20.30.41,,,\"Allow all\",,,incomplete,vsys1");
+
+        for (String line : lines) {
+            assertThat(scanner.scan(line)).as(line).isEqualTo(parseCsv(line));
+        }
+    }
+
+    @Test
+    void rejectsLinesWhichNeedFullParser() {
+        assertThat(scanner.scan("")).isNull();
+        assertThat(scanner.scan("\"unterminated,x")).isNull();
+        assertThat(scanner.scan("\"quoted\" ,x")).isNull();
+        assertThat(scanner.scan("\"quoted\"trailing,x")).isNull();
+        assertThat(scanner.scan("a\nb")).isNull();
+        assertThat(scanner.scan("\"a\r\nb\"")).isNull();
+    }
+
+    @Test
+    void supportsOtherDelimiters() {
+        assertThat(new DelimitedFieldScanner('|', '\'').scan("a|'b|c'|'it''s'"))
+                .containsExactly("a", "b|c", "it's");
+    }
+
+    private static List<String> parseCsv(String line) throws IOException {
+        final List<CSVRecord> records = new CSVParser(new StringReader(line), CSVFormat.DEFAULT).getRecords();
+        assertThat(records).hasSize(1);
+        return Lists.newArrayList(records.get(0).iterator());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.integrations.inputs.delimited;
+
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PositionalFieldPlanTest {
+    private static final FieldConverter STRING = (rawValue, timezone) -> rawValue;
+    private static final FieldConverter LONG = (rawValue, timezone) -> rawValue.isEmpty() ? null : Long.valueOf(rawValue);
+
+    @Test
+    void mapsValuesByPosition() {
+        final PositionalFieldPlan plan = PositionalFieldPlan.builder()
+                .field(3, "count", LONG)
+                .field(1, "name", STRING)
+                .build();
+
+        assertThat(plan.apply(List.of("ignored", "foo", "ignored", "42", "ignored"), DateTimeZone.UTC))
+                .containsExactlyInAnyOrderEntriesOf(Map.of("name", "foo", "count", 42L));
+        // Missing values and values converted to null are skipped
+        assertThat(plan.apply(List.of("ignored", "foo"), DateTimeZone.UTC)).containsExactlyEntriesOf(Map.of("name", "foo"));
+        assertThat(plan.apply(List.of("ignored", "foo", "ignored", ""), DateTimeZone.UTC)).containsExactlyEntriesOf(Map.of("name", "foo"));
+        assertThat(plan.apply(List.of(), DateTimeZone.UTC)).isEmpty();
+    }
+
+    @Test
+    void collectsDifferingValuesOfRepeatedFields() {
+        final PositionalFieldPlan plan = PositionalFieldPlan.builder()
+                .field(0, "category", STRING)
+                .field(1, "category", STRING)
+                .field(2, "category", STRING)
+                .build();
+
+        assertThat(plan.apply(List.of("a", "b", "c"), DateTimeZone.UTC).get("category")).isEqualTo(List.of("a", "b", "c"));
+        assertThat(plan.apply(List.of("a", "a", "b"), DateTimeZone.UTC).get("category")).isEqualTo(List.of("a", "b"));
+        assertThat(plan.apply(List.of("a", "a", "a"), DateTimeZone.UTC).get("category")).isEqualTo("a");
+        // Later empty values replace earlier ones
+        assertThat(plan.apply(List.of("a", "", ""), DateTimeZone.UTC).get("category")).isEqualTo("");
+    }
+
+    @Test
+    void rejectsNegativePositions() {
+        assertThatThrownBy(() -> PositionalFieldPlan.builder().field(-1, "foo", STRING))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.beats;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.Resources;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.TestMessageFactory;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.shared.SuppressForbidden;
+import org.graylog2.shared.bindings.providers.ObjectMapperProvider;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the tree based and the streaming decoder of {@link Beats2Codec} on real Winlogbeat and Metricbeat events.
+ * <p>
+ * Prints the throughput and the allocated bytes per decoded event. Run with e.g. {@code -Xmx512m -XX:+UseG1GC}.
+ */
+public class Beats2CodecBenchmark {
+    private static final List<String> RESOURCES = List.of("winlogbeat.json", "winlogbeat-v7.json",
+            "metricbeat-docker-container.json", "metricbeat-mongodb-status.json", "metricbeat-mysql-status.json",
+            "metricbeat-system-cpu.json", "metricbeat-system-filesystem.json", "metricbeat-system-process.json");
+    private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long MEASUREMENT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        final ObjectMapper objectMapper = new ObjectMapperProvider().get();
+        final Beats2Codec codec = new Beats2Codec(Configuration.EMPTY_CONFIGURATION, objectMapper, new TestMessageFactory());
+
+        final List<byte[]> payloads = new ArrayList<>();
+        for (String resource : RESOURCES) {
+            payloads.add(Resources.toByteArray(Resources.getResource(Beats2CodecBenchmark.class, resource)));
+        }
+
+        for (int round = 0; round < 2; round++) {
+            run("tree", payloads, codec::decodeTree);
+            run("streaming", payloads, codec::decodeStreaming);
+        }
+    }
+
+    private static void run(String name, List<byte[]> payloads, Decoder decoder) throws IOException {
+        measure(payloads, decoder, WARMUP_NANOS);
+        final long allocatedBefore = allocatedBytes();
+        final long start = System.nanoTime();
+        final long operations = measure(payloads, decoder, MEASUREMENT_NANOS);
+        final long elapsed = System.nanoTime() - start;
+        final long allocated = allocatedBytes() - allocatedBefore;
+
+        System.out.printf(Locale.ROOT, "%-10s %12.0f events/s %10d bytes/event%n", name,
+                operations / (elapsed / 1_000_000_000.0), allocated / operations);
+    }
+
+    private static long measure(List<byte[]> payloads, Decoder decoder, long durationNanos) throws IOException {
+        final long end = System.nanoTime() + durationNanos;
+        long operations = 0;
+        while (System.nanoTime() < end) {
+            for (byte[] payload : payloads) {
+                sink = decoder.decode(payload);
+            }
+            operations += payloads.size();
+        }
+        return operations;
+    }
+
+    @SuppressForbidden("Allocation measurement is only available through the HotSpot specific interface")
+    private static long allocatedBytes() {
+        final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private interface Decoder {
+        Message decode(byte[] payload) throws IOException;
+    }
+}
@@ -34,10 +34,14 @@ import org.mockito.junit.MockitoRule;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class Beats2CodecTest {
     @Rule
@@ -322,6 +326,62 @@ public class Beats2CodecTest {
         assertThat(message.getField("beat_meta_cloud_availability_zone")).isEqualTo("gz-azone2");
     }
 
+    @Test
+    public void streamingDecoderFlattensLikeTreeDecoder() throws Exception {
+        final List<String> resources = List.of("filebeat.json", "packetbeat-dns.json", "packetbeat-mongodb-v8.json",
+                "winlogbeat.json", "winlogbeat-v7.json", "metricbeat-system-process.json", "metricbeat-system-cpu.json",
+                "metricbeat-docker-container.json", "metricbeat-mongodb-status.json", "generic-with-kubernetes.json",
+                "generic-with-docker.json", "topbeat-process.json");
+        final Beats2Codec noPrefixCodec = new Beats2Codec(new Configuration(Collections.singletonMap("no_beats_prefix", true)), objectMapper, messageFactory);
+
+        for (String resource : resources) {
+            final byte[] payload = messageFromJson(resource).getPayload();
+            assertThat(fieldsWithoutId(codec.decodeStreaming(payload))).as(resource).isEqualTo(fieldsWithoutId(codec.decodeTree(payload)));
+            assertThat(fieldsWithoutId(noPrefixCodec.decodeStreaming(payload))).as(resource).isEqualTo(fieldsWithoutId(noPrefixCodec.decodeTree(payload)));
+        }
+    }
+
+    @Test
+    public void streamingDecoderHandlesEdgeCasesLikeTreeDecoder() throws Exception {
+        final List<String> events = List.of(
+                "{\"@timestamp\":\"2016-04-01T00:00:00.000Z\",\"a\":{\"b\":1,\"a_b\":2},\"a_b\":3,\"@metadata\":{\"beat\":\"test\"}}",
+                "{\"@timestamp\":\"2016-04-01T00:00:00.000Z\",\"list\":[1,\"two\",3.5,null,true,[4,5],{\"x\":1},{\"y\":[{\"z\":2}]}],\"empty\":[]}",
+                "{\"@timestamp\":\"2016-04-01T00:00:00.000Z\",\"int\":2147483647,\"long\":2147483648,\"big\":92233720368547758070,\"double\":1.0E-5}",
+                "{\"@timestamp\":\"2016-04-01T00:00:00.000Z\",\"\":{\"\":1,\"k\":2},\"message\":{\"nested\":1},\"agent\":{\"name\":{\"o\":1}}}",
+                "{\"@timestamp\":\"2016-04-01T00:00:00.000Z\",\"dup\":{\"a\":1},\"other\":1,\"dup\":{\"b\":2}}",
+                "{\"list\":[{\"a\":1}],\"\":{\"\":{\"k\":1}},\"@timestamp\":\"2016-04-01T00:00:00.000Z\",\"@metadata\":{\"beat\":\"late\"}}",
+                "{\"a\":{\"b\":1},\"@timestamp\":\"2016-04-01T00:00:00.000Z\",\"@metadata\":{\"beat\":\"\"}}",
+                "{\"@metadata\":{\"beat\":\"\"},\"a\":{\"b\":1},\"@timestamp\":\"2016-04-01T00:00:00.000Z\"}",
+                "{\"@metadata\":{\"beat\":{\"name\":\"object\"}},\"a\":1,\"@timestamp\":\"2016-04-01T00:00:00.000Z\"}",
+                "{\"a\":1,\"@timestamp\":\"2016-04-01T00:00:00.000Z\",\"beats_type\":\"override\",\"agent\":{\"hostname\":\"host\"}}"
+        );
+        final Beats2Codec noPrefixCodec = new Beats2Codec(new Configuration(Collections.singletonMap("no_beats_prefix", true)), objectMapper, messageFactory);
+
+        for (String event : events) {
+            final byte[] payload = event.getBytes(StandardCharsets.UTF_8);
+            assertThat(fieldsWithoutId(codec.decodeStreaming(payload))).as(event).isEqualTo(fieldsWithoutId(codec.decodeTree(payload)));
+            assertThat(fieldsWithoutId(noPrefixCodec.decodeStreaming(payload))).as(event).isEqualTo(fieldsWithoutId(noPrefixCodec.decodeTree(payload)));
+        }
+    }
+
+    @Test
+    public void streamingDecoderRejectsNonObjectEventsLikeTreeDecoder() {
+        final byte[] payload = "[{\"a\":1},2]".getBytes(StandardCharsets.UTF_8);
+        assertThatThrownBy(() -> codec.decodeTree(payload)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> codec.decodeStreaming(payload)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void decodeReturnsNullForInvalidJson() throws Exception {
+        assertThat(codec.decode(new RawMessage("{\"@timestamp\":\"2016-04-01T00:00:00.000Z\",\"a\":".getBytes(StandardCharsets.UTF_8)))).isNull();
+    }
+
+    private static Map<String, Object> fieldsWithoutId(Message message) {
+        final Map<String, Object> fields = new HashMap<>(message.getFields());
+        fields.remove(Message.FIELD_ID);
+        return fields;
+    }
+
     private RawMessage messageFromJson(String resourceName) throws IOException {
         final URL resource = Resources.getResource(this.getClass(), resourceName);
         final byte[] json = Resources.toByteArray(resource);
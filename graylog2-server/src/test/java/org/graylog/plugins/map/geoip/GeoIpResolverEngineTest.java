@@ -36,18 +36,20 @@ import org.junit.jupiter.api.Assertions;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class GeoIpResolverEngineTest {
@@ -93,10 +95,10 @@ public class GeoIpResolverEngineTest {
         when(s3GeoIpFileService.getActiveAsnFile()).thenReturn("/etc/graylog/server/asn.mmdb");
         when(s3GeoIpFileService.getActiveCityFile()).thenReturn("/etc/graylog/server/standard_location.mmdb");
         when(maxMindAsnResolver.isEnabled()).thenReturn(true);
-        when(maxMindCityResolver.getGeoIpData(publicIp))
-                .thenReturn(Optional.of(maxMindLocationInfo));
-        when(maxMindAsnResolver.getGeoIpData(publicIp))
-                .thenReturn(Optional.of(maxMindAsnInfo));
+        when(maxMindCityResolver.resolve(publicIp))
+                .thenReturn(GeoIpResolver.Result.of(maxMindLocationInfo));
+        when(maxMindAsnResolver.resolve(publicIp))
+                .thenReturn(GeoIpResolver.Result.of(maxMindAsnInfo));
         when(maxMindCityResolver.isEnabled()).thenReturn(true);
 
         when(geoIpVendorResolverService.createCityResolver(any(GeoIpResolverConfig.class), any(Timer.class)))
@@ -263,9 +265,9 @@ public class GeoIpResolverEngineTest {
     public void testFilterIpInfo() {
 
         when(ipInfoAsnResolver.isEnabled()).thenReturn(true);
-        when(ipInfoAsnResolver.getGeoIpData(publicIp)).thenReturn(Optional.of(ipInfoAsnInfo));
+        when(ipInfoAsnResolver.resolve(publicIp)).thenReturn(GeoIpResolver.Result.of(ipInfoAsnInfo));
         when(ipInfoCityResolver.isEnabled()).thenReturn(true);
-        when(ipInfoCityResolver.getGeoIpData(publicIp)).thenReturn(Optional.of(ipInfoLocationInfo));
+        when(ipInfoCityResolver.resolve(publicIp)).thenReturn(GeoIpResolver.Result.of(ipInfoLocationInfo));
 
         when(geoIpVendorResolverService.createCityResolver(any(GeoIpResolverConfig.class), any(Timer.class)))
                 .thenReturn(ipInfoCityResolver);
@@ -328,6 +330,48 @@ public class GeoIpResolverEngineTest {
         assertNull(engine.getIpFromFieldValue("Test message with no IP"));
     }
 
+    @Test
+    public void mightBeIpAddress() {
+        for (String ip : List.of("1.2.3.4", "255.255.255.255", "::", "::1", "2001:4860:4860::8888", "::ffff:1.2.3.4",
+                "FE80::1", "fe80::1%eth0")) {
+            Assert.assertTrue(ip, GeoIpResolverEngine.mightBeIpAddress(ip));
+        }
+        for (String value : List.of("", "1", "1234", "1.2.3", "1.2.3.4.5", "1111.2222.3333.4444", "a.b.c.d", "deadbeef",
+                "Test message with no IP", "Message from 1.2.3.4", "2024-01-01")) {
+            assertFalse(value, GeoIpResolverEngine.mightBeIpAddress(value));
+        }
+    }
+
+    @Test
+    public void cachesResolverResults() {
+        final GeoIpResolverEngine engine = new GeoIpResolverEngine(geoIpVendorResolverService, config, s3GeoIpFileService, metricRegistry);
+
+        for (int i = 0; i < 3; i++) {
+            final Message message = messageFactory.createMessage(Map.of("_id", java.util.UUID.randomUUID().toString(), "source_ip", publicIp));
+            engine.filter(message);
+            Assert.assertTrue(message.hasField("source_geo_city"));
+            Assert.assertTrue(message.hasField("source_as_number"));
+        }
+
+        verify(maxMindCityResolver, times(1)).resolve(publicIp);
+        verify(maxMindAsnResolver, times(1)).resolve(publicIp);
+        assertEquals(4, metricRegistry.meter(MetricRegistry.name(GeoIpResolverEngine.class, "cache", "hits")).getCount());
+        assertEquals(2, metricRegistry.meter(MetricRegistry.name(GeoIpResolverEngine.class, "cache", "misses")).getCount());
+    }
+
+    @Test
+    public void doesNotCacheFailedLookups() {
+        when(maxMindCityResolver.resolve(publicIp)).thenReturn(GeoIpResolver.Result.failed(new IOException("Lookup failed")));
+        final GeoIpResolverEngine engine = new GeoIpResolverEngine(geoIpVendorResolverService, config, s3GeoIpFileService, metricRegistry);
+
+        for (int i = 0; i < 2; i++) {
+            engine.filter(messageFactory.createMessage(Map.of("_id", java.util.UUID.randomUUID().toString(), "source_ip", publicIp)));
+        }
+
+        verify(maxMindCityResolver, times(2)).resolve(publicIp);
+        verify(maxMindAsnResolver, times(1)).resolve(publicIp);
+    }
+
     @Test
     public void trimFieldValueBeforeLookup() {
         final GeoIpResolverEngine resolver = new GeoIpResolverEngine(geoIpVendorResolverService, config, s3GeoIpFileService, metricRegistry);
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.netflow.codecs;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local stand-in for the cluster wide template store.
+ */
+public class InMemoryNetFlowV9TemplateStore implements NetFlowV9TemplateStore {
+    private record ExporterTemplateKey(String exporter, long sourceId, int templateId) {}
+
+    private record VersionKey(int templateId, long version) {}
+
+    private final Map<ExporterTemplateKey, Template> latest = new ConcurrentHashMap<>();
+    private final Map<VersionKey, Template> versions = new ConcurrentHashMap<>();
+    private volatile boolean persisted = true;
+
+    @Override
+    public void save(String exporter, long sourceId, Template template) {
+        latest.put(new ExporterTemplateKey(exporter, sourceId, template.templateId()), template);
+        versions.put(new VersionKey(template.templateId(), template.version()), template);
+    }
+
+    @Override
+    public Optional<Template> findLatest(String exporter, long sourceId, int templateId) {
+        return Optional.ofNullable(latest.get(new ExporterTemplateKey(exporter, sourceId, templateId)));
+    }
+
+    @Override
+    public Optional<Template> find(int templateId, long version) {
+        return Optional.ofNullable(versions.get(new VersionKey(templateId, version)));
+    }
+
+    @Override
+    public boolean isPersisted(int templateId, long version) {
+        return persisted && versions.containsKey(new VersionKey(templateId, version));
+    }
+
+    public void setPersisted(boolean persisted) {
+        this.persisted = persisted;
+    }
+
+    public void clear() {
+        latest.clear();
+        versions.clear();
+    }
+}
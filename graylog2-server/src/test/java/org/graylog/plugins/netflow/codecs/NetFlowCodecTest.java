@@ -16,14 +16,19 @@
  */
 package org.graylog.plugins.netflow.codecs;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import org.graylog.plugins.netflow.flows.FlowException;
 import org.graylog.plugins.netflow.flows.NetFlowFormatter;
+import org.graylog.plugins.netflow.v9.NetFlowV9Journal;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.MessageFactory;
 import org.graylog2.plugin.TestMessageFactory;
 import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.inputs.codecs.CodecAggregator;
 import org.graylog2.plugin.journal.RawMessage;
 import org.junit.Before;
 import org.junit.Rule;
@@ -36,6 +41,7 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Collection;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -50,11 +56,13 @@ public class NetFlowCodecTest {
     private NetflowV9CodecAggregator codecAggregator;
     private final MessageFactory messageFactory = new TestMessageFactory();
     private final NetFlowFormatter netFlowFormatter = new NetFlowFormatter(messageFactory);
+    private final InMemoryNetFlowV9TemplateStore templateStore = new InMemoryNetFlowV9TemplateStore();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
 
     @Before
     public void setUp() throws Exception {
-        codecAggregator = new NetflowV9CodecAggregator();
-        codec = new NetFlowCodec(Configuration.EMPTY_CONFIGURATION, codecAggregator, netFlowFormatter);
+        codecAggregator = new NetflowV9CodecAggregator(templateStore, metricRegistry);
+        codec = new NetFlowCodec(Configuration.EMPTY_CONFIGURATION, codecAggregator, netFlowFormatter, templateStore, metricRegistry);
     }
 
     @Test
@@ -67,7 +75,7 @@ public class NetFlowCodecTest {
         final Configuration configuration = new Configuration(configMap);
 
         assertThatExceptionOfType(FileNotFoundException.class)
-                .isThrownBy(() -> new NetFlowCodec(configuration, codecAggregator, netFlowFormatter))
+                .isThrownBy(() -> new NetFlowCodec(configuration, codecAggregator, netFlowFormatter, templateStore, metricRegistry))
                 .withMessageEndingWith("(No such file or directory)");
     }
 
@@ -77,7 +85,7 @@ public class NetFlowCodecTest {
                 NetFlowCodec.CK_NETFLOW9_DEFINITION_PATH, "");
         final Configuration configuration = new Configuration(configMap);
 
-        assertThat(new NetFlowCodec(configuration, codecAggregator, netFlowFormatter)).isNotNull();
+        assertThat(new NetFlowCodec(configuration, codecAggregator, netFlowFormatter, templateStore, metricRegistry)).isNotNull();
     }
 
     @Test
@@ -86,7 +94,7 @@ public class NetFlowCodecTest {
                 NetFlowCodec.CK_NETFLOW9_DEFINITION_PATH, "   ");
         final Configuration configuration = new Configuration(configMap);
 
-        assertThat(new NetFlowCodec(configuration, codecAggregator, netFlowFormatter)).isNotNull();
+        assertThat(new NetFlowCodec(configuration, codecAggregator, netFlowFormatter, templateStore, metricRegistry)).isNotNull();
     }
 
     @Test
@@ -99,7 +107,7 @@ public class NetFlowCodecTest {
         final Configuration configuration = new Configuration(configMap);
 
         assertThatIllegalArgumentException()
-                .isThrownBy(() -> new NetFlowCodec(configuration, codecAggregator, netFlowFormatter))
+                .isThrownBy(() -> new NetFlowCodec(configuration, codecAggregator, netFlowFormatter, templateStore, metricRegistry))
                 .withMessageMatching("Unable to parse NetFlow 9 definitions");
     }
 
@@ -147,4 +155,70 @@ public class NetFlowCodecTest {
 
         assertThat(codec.decodeMessages(new RawMessage(b, source))).isNull();
     }
+
+    @Test
+    public void journalEntriesReferenceTemplates() throws Exception {
+        final InetSocketAddress source = new InetSocketAddress(InetAddress.getLoopbackAddress(), 12345);
+        aggregate(codecAggregator, "netflow-data/netflow-v9-2-1.dat", source);
+        final CodecAggregator.Result result = aggregate(codecAggregator, "netflow-data/netflow-v9-2-2.dat", source);
+
+        final byte[] journalEntry = ByteBufUtil.getBytes(result.getMessage());
+        assertThat(journalEntry[0]).isEqualTo(NetFlowCodec.ORDERED_V9_MARKER);
+        final NetFlowV9Journal.RawNetflowV9 rawNetflowV9 = NetFlowV9Journal.RawNetflowV9.parseFrom(
+                Arrays.copyOfRange(journalEntry, 1, journalEntry.length));
+        assertThat(rawNetflowV9.getTemplatesMap()).isEmpty();
+        assertThat(rawNetflowV9.getTemplateRefsList()).isNotEmpty();
+        assertThat(metricRegistry.histogram(MetricRegistry.name(NetflowV9CodecAggregator.class, "journalBytesPerFlow")).getCount()).isEqualTo(2);
+
+        final Collection<Message> messages = codec.decodeMessages(new RawMessage(journalEntry, source));
+        assertThat(messages).hasSize(1);
+        assertThat(messages.iterator().next().getField("nf_dst_address")).isEqualTo("239.255.255.250");
+    }
+
+    @Test
+    public void journalEntriesContainTemplatesWhichAreNotPersisted() throws Exception {
+        final InetSocketAddress source = new InetSocketAddress(InetAddress.getLoopbackAddress(), 12345);
+        templateStore.setPersisted(false);
+        aggregate(codecAggregator, "netflow-data/netflow-v9-2-1.dat", source);
+        final CodecAggregator.Result result = aggregate(codecAggregator, "netflow-data/netflow-v9-2-2.dat", source);
+
+        final byte[] journalEntry = ByteBufUtil.getBytes(result.getMessage());
+        final NetFlowV9Journal.RawNetflowV9 rawNetflowV9 = NetFlowV9Journal.RawNetflowV9.parseFrom(
+                Arrays.copyOfRange(journalEntry, 1, journalEntry.length));
+        assertThat(rawNetflowV9.getTemplatesMap()).isNotEmpty();
+        assertThat(rawNetflowV9.getTemplateRefsList()).isEmpty();
+
+        // the journal entry can still be decoded if the template store has lost the template
+        templateStore.clear();
+        assertThat(codec.decodeMessages(new RawMessage(journalEntry, source))).hasSize(1);
+    }
+
+    @Test
+    public void templatesAreSharedBetweenNodes() throws Exception {
+        final InetSocketAddress source = new InetSocketAddress(InetAddress.getLoopbackAddress(), 12345);
+        final NetflowV9CodecAggregator otherNodeAggregator = new NetflowV9CodecAggregator(templateStore, metricRegistry);
+
+        // the template is received by this node, the data flow by the other one
+        aggregate(codecAggregator, "netflow-data/netflow-v9-2-1.dat", source);
+        final CodecAggregator.Result result = aggregate(otherNodeAggregator, "netflow-data/netflow-v9-2-2.dat", source);
+
+        assertThat(result.getMessage()).isNotNull();
+        assertThat(codec.decodeMessages(new RawMessage(ByteBufUtil.getBytes(result.getMessage()), source))).hasSize(1);
+    }
+
+    @Test
+    public void decodeMessagesCountsMissingTemplates() throws Exception {
+        final InetSocketAddress source = new InetSocketAddress(InetAddress.getLoopbackAddress(), 12345);
+        aggregate(codecAggregator, "netflow-data/netflow-v9-2-1.dat", source);
+        final CodecAggregator.Result result = aggregate(codecAggregator, "netflow-data/netflow-v9-2-2.dat", source);
+        templateStore.clear();
+
+        assertThat(codec.decodeMessages(new RawMessage(ByteBufUtil.getBytes(result.getMessage()), source))).isNull();
+        assertThat(metricRegistry.counter(MetricRegistry.name(NetFlowCodec.class, "templateMissDrops")).getCount()).isEqualTo(1);
+    }
+
+    private CodecAggregator.Result aggregate(NetflowV9CodecAggregator aggregator, String resourceName, InetSocketAddress source) throws Exception {
+        final byte[] bytes = Resources.toByteArray(Resources.getResource(resourceName));
+        return aggregator.addChunk(Unpooled.wrappedBuffer(bytes), source);
+    }
 }
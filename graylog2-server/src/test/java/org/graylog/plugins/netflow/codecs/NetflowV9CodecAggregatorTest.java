@@ -16,6 +16,7 @@
  */
 package org.graylog.plugins.netflow.codecs;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
@@ -65,6 +66,8 @@ public class NetflowV9CodecAggregatorTest {
     private InetSocketAddress source;
     private final MessageFactory messageFactory = new TestMessageFactory();
     private final NetFlowFormatter netFlowFormatter = new NetFlowFormatter(messageFactory);
+    private final InMemoryNetFlowV9TemplateStore templateStore = new InMemoryNetFlowV9TemplateStore();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
 
     public NetflowV9CodecAggregatorTest() throws IOException {
         source = new InetSocketAddress(InetAddress.getLocalHost(), 12345);
@@ -74,8 +77,8 @@ public class NetflowV9CodecAggregatorTest {
     public void setup() throws IOException {
         // the codec aggregator creates "netflowv9"ish packets, that always contain all necessary templates before the data flows
         // this is not an RFC netflow packet, but greatly simplifies decoding
-        codecAggregator = new NetflowV9CodecAggregator();
-        codec = new NetFlowCodec(Configuration.EMPTY_CONFIGURATION, codecAggregator, netFlowFormatter);
+        codecAggregator = new NetflowV9CodecAggregator(templateStore, metricRegistry);
+        codec = new NetFlowCodec(Configuration.EMPTY_CONFIGURATION, codecAggregator, netFlowFormatter, templateStore, metricRegistry);
     }
 
 
@@ -16,9 +16,11 @@
  */
 package org.graylog.plugins.netflow.transport;
 
+import com.codahale.metrics.MetricRegistry;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
+import org.graylog.plugins.netflow.codecs.NetFlowV9TemplateStore;
 import org.graylog.plugins.netflow.codecs.NetflowV9CodecAggregator;
 import org.graylog2.inputs.transports.NettyTransportConfiguration;
 import org.graylog2.inputs.transports.netty.EventLoopGroupFactory;
@@ -52,7 +54,7 @@ public class NetFlowUdpTransportTest {
                 nettyTransportConfiguration,
                 new ThroughputCounter(eventLoopGroup),
                 new LocalMetricRegistry());
-        transport.setMessageAggregator(new NetflowV9CodecAggregator());
+        transport.setMessageAggregator(new NetflowV9CodecAggregator(mock(NetFlowV9TemplateStore.class), new MetricRegistry()));
     }
 
     @After
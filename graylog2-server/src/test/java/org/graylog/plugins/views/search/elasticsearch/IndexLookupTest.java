@@ -18,7 +18,7 @@ package org.graylog.plugins.views.search.elasticsearch;
 
 import org.graylog.plugins.views.search.IndexRangeContainsOneOfStreams;
 import org.graylog2.indexer.ranges.IndexRange;
-import org.graylog2.indexer.ranges.IndexRangeService;
+import org.graylog2.indexer.ranges.IndexRangeCache;
 import org.graylog2.plugin.indexer.searches.timeranges.KeywordRange;
 import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
 import org.graylog2.plugin.streams.Stream;
@@ -55,7 +55,7 @@ class IndexLookupTest {
         final SortedSet<IndexRange> indexRanges = sortedSetOf(indexRange1, indexRange2);
 
         final IndexLookup sut = new IndexLookup(
-                mockIndexRangeService(indexRanges, timeRangeWithMatchingIndexRange),
+                mockIndexRangeCache(indexRanges, timeRangeWithMatchingIndexRange),
                 mockStreamService(streamIds),
                 mockIndexRangeContains(indexRange1));
 
@@ -65,22 +65,22 @@ class IndexLookupTest {
 
     @Test
     void returnsEmptySetForEmptyStreamIds() {
-        final IndexLookup sut = new IndexLookup(mock(IndexRangeService.class), mockStreamService(Collections.emptySet()), mock(IndexRangeContainsOneOfStreams.class));
+        final IndexLookup sut = new IndexLookup(mock(IndexRangeCache.class), mockStreamService(Collections.emptySet()), mock(IndexRangeContainsOneOfStreams.class));
         Set<String> result = sut.indexNamesForStreamsInTimeRange(emptySet(), timeRangeWithNoIndexRanges);
         assertThat(result).isEmpty();
     }
 
     @Test
     void returnsEmptySetIfNoIndicesFound() {
-        final IndexLookup sut = new IndexLookup(mock(IndexRangeService.class), mockStreamService(streamIds), mock(IndexRangeContainsOneOfStreams.class));
+        final IndexLookup sut = new IndexLookup(mock(IndexRangeCache.class), mockStreamService(streamIds), mock(IndexRangeContainsOneOfStreams.class));
         Set<String> result = sut.indexNamesForStreamsInTimeRange(streamIds, timeRangeWithNoIndexRanges);
         assertThat(result).isEmpty();
     }
 
-    private IndexRangeService mockIndexRangeService(SortedSet<IndexRange> indexRanges, TimeRange timeRangeWithMatchingIndexRange) {
-        final IndexRangeService indexRangeService = mock(IndexRangeService.class);
-        when(indexRangeService.find(timeRangeWithMatchingIndexRange.getFrom(), timeRangeWithMatchingIndexRange.getTo())).thenReturn(indexRanges);
-        return indexRangeService;
+    private IndexRangeCache mockIndexRangeCache(SortedSet<IndexRange> indexRanges, TimeRange timeRangeWithMatchingIndexRange) {
+        final IndexRangeCache indexRangeCache = mock(IndexRangeCache.class);
+        when(indexRangeCache.find(timeRangeWithMatchingIndexRange.getFrom(), timeRangeWithMatchingIndexRange.getTo())).thenReturn(indexRanges);
+        return indexRangeCache;
     }
 
     private static IndexRangeContainsOneOfStreams mockIndexRangeContains(IndexRange matchingIndexRange) {
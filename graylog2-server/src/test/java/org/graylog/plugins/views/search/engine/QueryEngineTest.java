@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Size;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.QueryResult;
+import org.graylog.plugins.views.search.Search;
+import org.graylog.plugins.views.search.SearchJob;
+import org.graylog.plugins.views.search.elasticsearch.IndexLookup;
+import org.graylog.plugins.views.search.rollups.RollupQueryRewriter;
+import org.graylog.plugins.views.search.rollups.RollupRetention;
+import org.graylog.plugins.views.search.rollups.RollupService;
+import org.graylog2.indexer.indices.Indices;
+import org.graylog2.shared.bindings.providers.ObjectMapperProvider;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QueryEngineTest {
+    private final Query query1 = Query.builder().id("query-1").build();
+    private final Query query2 = Query.builder().id("query-2").build();
+
+    private QueryBackend<GeneratedQueryContext> backend;
+    private SearchJob searchJob;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        backend = mock(QueryBackend.class);
+        when(backend.generate(any(), any(), any())).thenAnswer(invocation -> mock(GeneratedQueryContext.class));
+        searchJob = new SearchJob("job-1", Search.builder().id("search-1").queries(ImmutableSet.of(query1, query2)).build(),
+                "admin", "node-1");
+    }
+
+    private QueryEngine queryEngine(boolean batchQueries) {
+        final SearchTypeResultCache resultCache = new SearchTypeResultCache(false, Size.megabytes(1), Duration.standardMinutes(1),
+                mock(IndexLookup.class), mock(Indices.class), new ObjectMapperProvider().get(), new MetricRegistry(), new EventBus());
+        final QueryExecutor queryExecutor = new QueryExecutor(Runnable::run, 1, 0, 0, new MetricRegistry());
+        final RollupQueryRewriter rollupQueryRewriter = new RollupQueryRewriter(false, mock(RollupService.class), mock(RollupRetention.class));
+        return new QueryEngine(backend, Set.of(), mock(QueryParser.class), resultCache, rollupQueryRewriter, queryExecutor,
+                new MetricRegistry(), batchQueries);
+    }
+
+    private static QueryResult result(Query query) {
+        return QueryResult.builder().query(query).searchTypes(Map.of()).build();
+    }
+
+    @Test
+    void runsQueriesOneByOneByDefault() {
+        when(backend.run(any(), any(), any())).thenAnswer(invocation -> result(invocation.getArgument(1)));
+
+        queryEngine(false).execute(searchJob, Set.of(), DateTimeZone.UTC);
+
+        assertThat(searchJob.results()).containsOnlyKeys("query-1", "query-2");
+        verify(backend, never()).runBatch(any(), anyList(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void runsAllQueriesOfSearchAsBatch() {
+        when(backend.runBatch(any(), anyList(), anyList())).thenAnswer(invocation -> {
+            final List<Query> queries = invocation.getArgument(1);
+            return queries.stream().map(QueryEngineTest::result).toList();
+        });
+
+        queryEngine(true).execute(searchJob, Set.of(), DateTimeZone.UTC);
+
+        final ArgumentCaptor<List<Query>> queries = ArgumentCaptor.forClass(List.class);
+        verify(backend).runBatch(any(), queries.capture(), anyList());
+        assertThat(queries.getValue()).containsExactlyInAnyOrder(query1, query2);
+        assertThat(searchJob.results()).containsOnlyKeys("query-1", "query-2");
+        assertThat(searchJob.results().get("query-1").query()).isEqualTo(query1);
+        assertThat(searchJob.results().get("query-2").query()).isEqualTo(query2);
+        verify(backend, never()).run(any(), any(), any());
+    }
+
+    @Test
+    void failedGenerationOnlyFailsAffectedQueryOfBatch() {
+        when(backend.generate(any(), any(), any())).thenAnswer(invocation -> {
+            if (invocation.getArgument(0).equals(query1)) {
+                throw new IllegalStateException("Boom");
+            }
+            return mock(GeneratedQueryContext.class);
+        });
+        when(backend.runBatch(any(), anyList(), anyList())).thenReturn(List.of(result(query2)));
+
+        queryEngine(true).execute(searchJob, Set.of(), DateTimeZone.UTC);
+
+        assertThat(searchJob.results().get("query-1").state()).isEqualTo(QueryResult.State.FAILED);
+        assertThat(searchJob.results().get("query-2").state()).isNotEqualTo(QueryResult.State.FAILED);
+        assertThat(searchJob.getErrors()).hasSize(1);
+    }
+}
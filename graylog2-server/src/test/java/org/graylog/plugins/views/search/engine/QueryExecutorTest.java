@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryExecutorTest {
+    // Runs tasks only when asked to, so the test controls which queries are running
+    private final ArrayDeque<Runnable> startedTasks = new ArrayDeque<>();
+    private final List<String> ranQueries = new ArrayList<>();
+
+    private QueryExecutor executor(int threads, int maxQueued, int maxPerUser) {
+        return new QueryExecutor(startedTasks::addLast, threads, maxQueued, maxPerUser, new MetricRegistry());
+    }
+
+    private CompletableFuture<String> submit(QueryExecutor executor, String user, String query) {
+        return executor.submit(user, () -> {
+            ranQueries.add(query);
+            return query;
+        });
+    }
+
+    private void runStartedTasks() {
+        while (!startedTasks.isEmpty()) {
+            startedTasks.pollFirst().run();
+        }
+    }
+
+    @Test
+    void servesUsersRoundRobin() {
+        final QueryExecutor executor = executor(1, 0, 0);
+
+        submit(executor, "alice", "a1");
+        submit(executor, "alice", "a2");
+        submit(executor, "alice", "a3");
+        submit(executor, "bob", "b1");
+        submit(executor, "carol", "c1");
+        runStartedTasks();
+
+        assertThat(ranQueries).containsExactly("a1", "a2", "b1", "c1", "a3");
+        assertThat(executor.queued()).isZero();
+        assertThat(executor.running()).isZero();
+    }
+
+    @Test
+    void limitsRunningQueriesPerUser() {
+        final QueryExecutor executor = executor(4, 0, 2);
+
+        submit(executor, "alice", "a1");
+        submit(executor, "alice", "a2");
+        submit(executor, "alice", "a3");
+        submit(executor, "bob", "b1");
+
+        assertThat(executor.running()).isEqualTo(3);
+        assertThat(executor.queued()).isEqualTo(1);
+
+        startedTasks.pollFirst().run();
+
+        assertThat(executor.running()).isEqualTo(3);
+        assertThat(executor.queued()).isZero();
+        runStartedTasks();
+        assertThat(ranQueries).containsExactlyInAnyOrder("a1", "a2", "a3", "b1");
+    }
+
+    @Test
+    void rejectsQueriesIfQueueIsFull() {
+        final QueryExecutor executor = executor(1, 1, 0);
+
+        final CompletableFuture<String> first = submit(executor, "alice", "a1");
+        final CompletableFuture<String> second = submit(executor, "alice", "a2");
+        final CompletableFuture<String> third = submit(executor, "bob", "b1");
+
+        assertThat(third).isCompletedExceptionally();
+        assertThat(third.handle((result, t) -> t.getCause())).isCompletedWithValueMatching(RejectedExecutionException.class::isInstance);
+
+        runStartedTasks();
+        assertThat(first).isCompletedWithValue("a1");
+        assertThat(second).isCompletedWithValue("a2");
+    }
+
+    @Test
+    void completesFutureExceptionallyIfQueryFails() {
+        final QueryExecutor executor = executor(1, 0, 0);
+
+        final CompletableFuture<Object> failed = executor.submit("alice", () -> {
+            throw new IllegalStateException("Boom");
+        });
+        final CompletableFuture<String> next = submit(executor, "alice", "a1");
+        runStartedTasks();
+
+        assertThat(failed.handle((result, t) -> t)).isCompletedWithValueMatching(t ->
+                t instanceof CompletionException && t.getCause() instanceof IllegalStateException);
+        assertThat(next).isCompletedWithValue("a1");
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Size;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.EventBus;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.QueryResult;
+import org.graylog.plugins.views.search.Search;
+import org.graylog.plugins.views.search.SearchType;
+import org.graylog.plugins.views.search.elasticsearch.ElasticsearchQueryString;
+import org.graylog.plugins.views.search.elasticsearch.IndexLookup;
+import org.graylog.plugins.views.search.errors.SearchTypeError;
+import org.graylog.plugins.views.search.filter.StreamFilter;
+import org.graylog.plugins.views.search.searchtypes.MessageList;
+import org.graylog2.indexer.indices.Indices;
+import org.graylog2.indexer.indices.events.IndicesDeletedEvent;
+import org.graylog2.indexer.ranges.IndexRange;
+import org.graylog2.indexer.ranges.MongoIndexRange;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.graylog2.plugin.indexer.searches.timeranges.RelativeRange;
+import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
+import org.graylog2.shared.bindings.providers.ObjectMapperProvider;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SearchTypeResultCacheTest {
+    private static final DateTime FROM = new DateTime(2024, 1, 1, 0, 0, DateTimeZone.UTC);
+    private static final DateTime TO = FROM.plusHours(1);
+
+    private IndexLookup indexLookup;
+    private Indices indices;
+    private MetricRegistry metricRegistry;
+    private SearchTypeResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        indexLookup = mock(IndexLookup.class);
+        indices = mock(Indices.class);
+        metricRegistry = new MetricRegistry();
+        cache = new SearchTypeResultCache(true, Size.megabytes(1), Duration.standardMinutes(10), indexLookup, indices,
+                new ObjectMapperProvider().get(), metricRegistry, new EventBus());
+        when(indexLookup.indexRangesForStreamsInTimeRange(any(), any())).thenReturn(Set.of(
+                range("graylog_1", FROM.minusHours(1), TO.plusHours(1)),
+                range("graylog_2", new DateTime(0L, DateTimeZone.UTC), new DateTime(0L, DateTimeZone.UTC))));
+        when(indices.indexCreationDate("graylog_2")).thenReturn(Optional.of(TO.plusHours(2)));
+    }
+
+    private static IndexRange range(String index, DateTime begin, DateTime end) {
+        return MongoIndexRange.create(index, begin, end, DateTime.now(DateTimeZone.UTC), 0);
+    }
+
+    private static Query query(TimeRange timeRange, SearchType... searchTypes) {
+        return Query.builder()
+                .id("query-1")
+                .timerange(timeRange)
+                .filter(StreamFilter.ofId("stream-1"))
+                .query(ElasticsearchQueryString.of("source:example"))
+                .searchTypes(ImmutableSet.copyOf(searchTypes))
+                .build();
+    }
+
+    private static SearchType.Result result(String id, long total) {
+        return MessageList.Result.result(id)
+                .messages(List.of())
+                .totalResults(total)
+                .effectiveTimerange(AbsoluteRange.create(FROM, TO))
+                .build();
+    }
+
+    private static QueryResult queryResult(Query query, SearchType.Result... results) {
+        final QueryResult.Builder builder = QueryResult.builder().query(query);
+        final Map<String, SearchType.Result> searchTypes = new HashMap<>();
+        for (SearchType.Result result : results) {
+            searchTypes.put(result.id(), result);
+        }
+        return builder.searchTypes(searchTypes).build();
+    }
+
+    @Test
+    void returnsStoredResults() {
+        final Query query = query(AbsoluteRange.create(FROM, TO), MessageList.builder().id("messages").build());
+        final Search search = Search.builder().queries(ImmutableSet.of(query)).build();
+
+        final SearchTypeResultCache.Lookup first = cache.lookup(search, query, DateTimeZone.UTC);
+        assertThat(first.hits()).isEmpty();
+        assertThat(first.keys()).containsOnlyKeys("messages");
+        assertThat(first.keys().get("messages").indices()).containsExactly("graylog_1", "graylog_2");
+
+        cache.store(first, queryResult(query, result("messages", 42)), List.of());
+
+        final SearchTypeResultCache.Lookup second = cache.lookup(search, query, DateTimeZone.UTC);
+        assertThat(second.hits()).containsExactly(Map.entry("messages", result("messages", 42)));
+        assertThat(second.keys()).isEmpty();
+        assertThat(metricRegistry.getMeters().get(MetricRegistry.name(SearchTypeResultCache.class, "hits")).getCount()).isEqualTo(1);
+        assertThat(metricRegistry.getCounters().get(MetricRegistry.name(SearchTypeResultCache.class, "bytes-saved")).getCount()).isPositive();
+    }
+
+    @Test
+    void differentTimezonesUseDifferentEntries() {
+        final Query query = query(AbsoluteRange.create(FROM, TO), MessageList.builder().id("messages").build());
+        final Search search = Search.builder().queries(ImmutableSet.of(query)).build();
+        cache.store(cache.lookup(search, query, DateTimeZone.UTC), queryResult(query, result("messages", 42)), List.of());
+
+        assertThat(cache.lookup(search, query, DateTimeZone.forID("Europe/Berlin")).hits()).isEmpty();
+    }
+
+    @Test
+    void doesNotCacheRangesCoveredByWriteIndices() {
+        when(indices.indexCreationDate("graylog_2")).thenReturn(Optional.of(TO.minusMinutes(1)));
+        final Query query = query(AbsoluteRange.create(FROM, TO), MessageList.builder().id("messages").build());
+        final Search search = Search.builder().queries(ImmutableSet.of(query)).build();
+
+        assertThat(cache.lookup(search, query, DateTimeZone.UTC).keys()).isEmpty();
+    }
+
+    @Test
+    void doesNotCacheRelativeRanges() {
+        final Query query = query(RelativeRange.create(300), MessageList.builder().id("messages").build());
+        final Search search = Search.builder().queries(ImmutableSet.of(query)).build();
+
+        assertThat(cache.lookup(search, query, DateTimeZone.UTC).keys()).isEmpty();
+    }
+
+    @Test
+    void doesNotStoreFailedSearchTypes() {
+        final Query query = query(AbsoluteRange.create(FROM, TO), MessageList.builder().id("messages").build());
+        final Search search = Search.builder().queries(ImmutableSet.of(query)).build();
+
+        cache.store(cache.lookup(search, query, DateTimeZone.UTC), queryResult(query, result("messages", 42)),
+                List.of(new SearchTypeError(query, "messages", "Boom")));
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void removesEntriesOfDeletedIndices() {
+        final Query query = query(AbsoluteRange.create(FROM, TO), MessageList.builder().id("messages").build());
+        final Search search = Search.builder().queries(ImmutableSet.of(query)).build();
+        cache.store(cache.lookup(search, query, DateTimeZone.UTC), queryResult(query, result("messages", 42)), List.of());
+        assertThat(cache.size()).isEqualTo(1);
+
+        cache.handleIndicesDeleted(IndicesDeletedEvent.create("graylog_3"));
+        assertThat(cache.size()).isEqualTo(1);
+
+        cache.handleIndicesDeleted(IndicesDeletedEvent.create("graylog_1"));
+        assertThat(cache.size()).isZero();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine.suggestions;
+
+import org.graylog.plugins.views.search.engine.QuerySuggestionsService;
+import org.graylog2.plugin.indexer.searches.timeranges.RelativeRange;
+import org.joda.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SuggestionsCacheTest {
+    private QuerySuggestionsService querySuggestionsService;
+    private SuggestionsCache suggestionsCache;
+
+    @BeforeEach
+    void setUp() {
+        querySuggestionsService = mock(QuerySuggestionsService.class);
+        suggestionsCache = new SuggestionsCache(querySuggestionsService, Duration.standardSeconds(10));
+    }
+
+    private SuggestionRequest request(String input, int size) {
+        return request(input, size, SuggestionFieldType.TEXTUAL);
+    }
+
+    private SuggestionRequest request(String input, int size, SuggestionFieldType fieldType) {
+        return SuggestionRequest.builder()
+                .field("source")
+                .fieldType(fieldType)
+                .input(input)
+                .streams(Set.of("stream-1"))
+                .timerange(RelativeRange.create(300))
+                .size(size)
+                .build();
+    }
+
+    private static List<String> values(SuggestionResponse response) {
+        return response.suggestions().stream().map(SuggestionEntry::getValue).toList();
+    }
+
+    @Test
+    void prefetchesAndLimitsSuggestions() {
+        when(querySuggestionsService.suggest(any())).thenReturn(SuggestionResponse.forSuggestions("source", "a", List.of(
+                new SuggestionEntry("alpha", 5), new SuggestionEntry("apple", 3), new SuggestionEntry("avocado", 1)), 0L));
+
+        final SuggestionResponse response = suggestionsCache.suggest("jane", request("a", 2));
+
+        final ArgumentCaptor<SuggestionRequest> captor = ArgumentCaptor.forClass(SuggestionRequest.class);
+        verify(querySuggestionsService).suggest(captor.capture());
+        assertThat(captor.getValue().size()).isEqualTo(SuggestionsCache.PREFETCH_SIZE);
+        assertThat(values(response)).containsExactly("alpha", "apple");
+        assertThat(response.sumOtherDocsCount()).isEqualTo(1L);
+    }
+
+    @Test
+    void filtersLongerInputFromCompleteResult() {
+        when(querySuggestionsService.suggest(any())).thenReturn(SuggestionResponse.forSuggestions("source", "a", List.of(
+                new SuggestionEntry("alpha", 5), new SuggestionEntry("apple", 3), new SuggestionEntry("application", 1)), 0L));
+
+        suggestionsCache.suggest("jane", request("a", 10));
+        final SuggestionResponse response = suggestionsCache.suggest("jane", request("app", 10));
+
+        verify(querySuggestionsService, times(1)).suggest(any());
+        assertThat(response.input()).isEqualTo("app");
+        assertThat(values(response)).containsExactly("apple", "application");
+        assertThat(response.sumOtherDocsCount()).isZero();
+    }
+
+    @Test
+    void searchesAgainIfCachedResultIsIncomplete() {
+        when(querySuggestionsService.suggest(any())).thenReturn(SuggestionResponse.forSuggestions("source", "a", List.of(
+                new SuggestionEntry("alpha", 5), new SuggestionEntry("apple", 3)), 42L));
+
+        suggestionsCache.suggest("jane", request("a", 10));
+        suggestionsCache.suggest("jane", request("ap", 10));
+
+        verify(querySuggestionsService, times(2)).suggest(any());
+    }
+
+    @Test
+    void searchesAgainWithoutMatchingCachedValues() {
+        when(querySuggestionsService.suggest(any())).thenReturn(SuggestionResponse.forSuggestions("source", "a", List.of(
+                new SuggestionEntry("alpha", 5)), 0L));
+
+        suggestionsCache.suggest("jane", request("a", 10));
+        // The search backend returns spelling corrections in this case
+        suggestionsCache.suggest("jane", request("ab", 10));
+
+        verify(querySuggestionsService, times(2)).suggest(any());
+    }
+
+    @Test
+    void doesNotShareSuggestionsBetweenUsersOrFilterNonTextualFields() {
+        when(querySuggestionsService.suggest(any())).thenReturn(SuggestionResponse.forSuggestions("source", "1", List.of(
+                new SuggestionEntry("10", 5), new SuggestionEntry("12", 3)), 0L));
+
+        suggestionsCache.suggest("jane", request("1", 10, SuggestionFieldType.OTHER));
+        suggestionsCache.suggest("jane", request("12", 10, SuggestionFieldType.OTHER));
+        suggestionsCache.suggest("john", request("1", 10, SuggestionFieldType.OTHER));
+        suggestionsCache.suggest("jane", request("1", 10, SuggestionFieldType.OTHER));
+
+        verify(querySuggestionsService, times(3)).suggest(any());
+    }
+
+    @Test
+    void doesNotCacheErrors() {
+        when(querySuggestionsService.suggest(any())).thenReturn(SuggestionResponse.forError("source", "a", SuggestionError.create("timeout", "Timed out")));
+
+        assertThat(suggestionsCache.suggest("jane", request("a", 10)).suggestionError()).isPresent();
+        suggestionsCache.suggest("jane", request("a", 10));
+
+        verify(querySuggestionsService, times(2)).suggest(any());
+    }
+}
@@ -23,9 +23,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.graylog.plugins.views.search.export.LinkedHashSetUtil.linkedHashSetOf;
@@ -117,6 +120,32 @@ class SimpleMessageChunkCsvWriterTest {
                         "\"2015-01-01 01:00:00.000\",\"source-1\",\"some text\"");
     }
 
+    @Test
+    void isWritableForCompressedCsv() {
+        assertThat(sut.isWriteable(SimpleMessageChunk.class, null, null, MoreMediaTypes.TEXT_CSV_GZIP_TYPE)).isTrue();
+        assertThat(sut.isWriteable(SimpleMessageChunk.class, null, null, MoreMediaTypes.TEXT_CSV_ZSTD_TYPE)).isTrue();
+        assertThat(sut.isWriteable(SimpleMessageChunk.class, null, null, MoreMediaTypes.APPLICATION_NDJSON_TYPE)).isFalse();
+    }
+
+    @Test
+    void writesEachChunkAsSeparateGzipMember() throws IOException {
+        SimpleMessageChunk chunk = simpleMessageChunk("timestamp,source,message",
+                new Object[]{"2015-01-01 01:00:00.000", "source-1", "some text"});
+        ByteArrayOutputStream entityStream = new ByteArrayOutputStream();
+
+        sut.writeTo(chunk.toBuilder().chunkOrder(SimpleMessageChunk.ChunkOrder.FIRST).build(),
+                SimpleMessageChunk.class, null, null, MoreMediaTypes.TEXT_CSV_GZIP_TYPE, null, entityStream);
+        sut.writeTo(chunk, SimpleMessageChunk.class, null, null, MoreMediaTypes.TEXT_CSV_GZIP_TYPE, null, entityStream);
+
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(entityStream.toByteArray()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n"))
+                    .containsExactly(
+                            "\"timestamp\",\"source\",\"message\"",
+                            "\"2015-01-01 01:00:00.000\",\"source-1\",\"some text\"",
+                            "\"2015-01-01 01:00:00.000\",\"source-1\",\"some text\"");
+        }
+    }
+
     private String write(SimpleMessageChunk chunk) {
         ByteArrayOutputStream entityStream = new ByteArrayOutputStream();
         try {
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.export;
+
+import com.github.luben.zstd.ZstdInputStream;
+import jakarta.ws.rs.core.MediaType;
+import org.graylog2.rest.MoreMediaTypes;
+import org.graylog2.shared.bindings.providers.ObjectMapperProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.graylog.plugins.views.search.export.LinkedHashSetUtil.linkedHashSetOf;
+import static org.graylog.plugins.views.search.export.TestData.simpleMessage;
+import static org.graylog.plugins.views.search.export.TestData.simpleMessageChunk;
+
+class SimpleMessageChunkNdjsonWriterTest {
+    private SimpleMessageChunkNdjsonWriter sut;
+
+    @BeforeEach
+    void setUp() {
+        sut = new SimpleMessageChunkNdjsonWriter(new ObjectMapperProvider().get());
+    }
+
+    @Test
+    void isWritableForNdjson() {
+        assertThat(sut.isWriteable(SimpleMessageChunk.class, null, null, MoreMediaTypes.APPLICATION_NDJSON_TYPE)).isTrue();
+        assertThat(sut.isWriteable(SimpleMessageChunk.class, null, null, MoreMediaTypes.APPLICATION_NDJSON_GZIP_TYPE)).isTrue();
+        assertThat(sut.isWriteable(SimpleMessageChunk.class, null, null, MoreMediaTypes.APPLICATION_NDJSON_ZSTD_TYPE)).isTrue();
+        assertThat(sut.isWriteable(SimpleMessageChunk.class, null, null, MoreMediaTypes.TEXT_CSV_TYPE)).isFalse();
+    }
+
+    @Test
+    void writesOneObjectPerLineAndLeavesOutMissingFields() throws IOException {
+        SimpleMessageChunk chunk = SimpleMessageChunk.from(
+                linkedHashSetOf("timestamp", "source", "message"),
+                simpleMessage("timestamp,source,message", new Object[]{"2015-01-01 01:00:00.000", "source-1", "some \"text\""}),
+                simpleMessage("timestamp,message", new Object[]{"2015-01-02 01:00:00.000", 42}));
+
+        assertThat(write(chunk, MoreMediaTypes.APPLICATION_NDJSON_TYPE))
+                .isEqualTo("""
+                        {"timestamp":"2015-01-01 01:00:00.000","source":"source-1","message":"some \\"text\\""}
+                        {"timestamp":"2015-01-02 01:00:00.000","message":42}
+                        """);
+    }
+
+    @Test
+    void writesEachChunkAsSeparateZstdFrame() throws IOException {
+        SimpleMessageChunk chunk = simpleMessageChunk("source,message", new Object[]{"source-1", "some text"});
+        ByteArrayOutputStream entityStream = new ByteArrayOutputStream();
+
+        sut.writeTo(chunk, SimpleMessageChunk.class, null, null, MoreMediaTypes.APPLICATION_NDJSON_ZSTD_TYPE, null, entityStream);
+        sut.writeTo(chunk, SimpleMessageChunk.class, null, null, MoreMediaTypes.APPLICATION_NDJSON_ZSTD_TYPE, null, entityStream);
+
+        try (InputStream in = new ZstdInputStream(new ByteArrayInputStream(entityStream.toByteArray()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo("""
+                            {"source":"source-1","message":"some text"}
+                            {"source":"source-1","message":"some text"}
+                            """);
+        }
+    }
+
+    private String write(SimpleMessageChunk chunk, MediaType mediaType) throws IOException {
+        ByteArrayOutputStream entityStream = new ByteArrayOutputStream();
+        sut.writeTo(chunk, SimpleMessageChunk.class, null, null, mediaType, null, entityStream);
+        return entityStream.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.rollups;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.QueryResult;
+import org.graylog.plugins.views.search.SearchType;
+import org.graylog.plugins.views.search.aggregations.MissingBucketConstants;
+import org.graylog.plugins.views.search.elasticsearch.ElasticsearchQueryString;
+import org.graylog.plugins.views.search.filter.StreamFilter;
+import org.graylog.plugins.views.search.searchtypes.pivot.BucketSpec;
+import org.graylog.plugins.views.search.searchtypes.pivot.Pivot;
+import org.graylog.plugins.views.search.searchtypes.pivot.PivotResult;
+import org.graylog.plugins.views.search.searchtypes.pivot.SeriesSpec;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.Time;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.TimeUnitInterval;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.Values;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Average;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Cardinality;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Count;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Max;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Min;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Sum;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the results of pivots answered from rollups with the results of the same pivots over the raw messages.
+ * <p>
+ * The raw results are computed by a reference implementation of the pivot semantics of the search backend, which is
+ * also used to compute the rollups from the results of the materialization pivots.
+ */
+class RollupQueryRewriterTest {
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final String STREAM = "stream-1";
+    private static final DateTime DATA_START = DateTime.parse("2024-01-01T00:00:00.000Z");
+    private static final DateTime DATA_END = DATA_START.plusDays(5);
+    private static final DateTime MATERIALIZED_UNTIL = DATA_END.minusHours(7);
+
+    private record Message(long timestamp, Map<String, Object> fields) {}
+
+    private final List<Message> messages = new ArrayList<>();
+    private final List<RollupBucket> buckets = new ArrayList<>();
+    private RollupService rollupService;
+    private RollupRetention retention;
+    private DateTime retainedFrom = DATA_START;
+
+    @BeforeEach
+    void setUp() {
+        final Random random = new Random(42);
+        final List<String> sources = Arrays.asList("a", "b", "c", "d", "e", null);
+        for (int i = 0; i < 5000; i++) {
+            final long timestamp = DATA_START.getMillis() + (long) (random.nextDouble() * (DATA_END.getMillis() - DATA_START.getMillis()));
+            if (timestamp >= DATA_START.plusDays(2).getMillis() && timestamp < DATA_START.plusDays(2).plusHours(9).getMillis()) {
+                // Leave a gap without any messages
+                continue;
+            }
+            final Map<String, Object> fields = new HashMap<>();
+            // Skewed, so the groups have different counts
+            final String source = sources.get(Math.min(random.nextInt(6), random.nextInt(6)));
+            if (source != null) {
+                fields.put("source", source);
+            }
+            if (random.nextInt(10) > 0) {
+                fields.put("took_ms", random.nextInt(1000));
+            }
+            messages.add(new Message(timestamp, fields));
+        }
+        // Messages on interval boundaries
+        messages.add(new Message(DATA_START.plusDays(1).getMillis(), Map.of("source", "a", "took_ms", 1)));
+        messages.add(new Message(MATERIALIZED_UNTIL.getMillis(), Map.of("source", "b", "took_ms", 2)));
+
+        retention = mock(RollupRetention.class);
+        when(retention.retainedFrom(any(), any())).thenAnswer(invocation -> Optional.ofNullable(retainedFrom));
+        rollupService = mock(RollupService.class);
+        when(rollupService.buckets(anyString(), any(), any())).thenAnswer(invocation -> {
+            final DateTime from = invocation.getArgument(1);
+            final DateTime to = invocation.getArgument(2);
+            return buckets.stream()
+                    .filter(bucket -> bucket.definitionId().equals(invocation.getArgument(0)))
+                    .filter(bucket -> !bucket.timestamp().isBefore(from) && bucket.timestamp().isBefore(to))
+                    .toList();
+        });
+    }
+
+    private RollupQueryRewriter rewriter(boolean enabled) {
+        return new RollupQueryRewriter(enabled, rollupService, retention);
+    }
+
+    private RollupDefinition definition(String id, List<String> groupBy, long intervalMs, int maxGroups) {
+        return new RollupDefinition(id, "Test", Set.of(STREAM), groupBy, List.of("took_ms"), intervalMs, maxGroups, null);
+    }
+
+    private RollupQueryRewriter materialize(RollupDefinition... definitions) {
+        final List<RollupDefinition> materialized = new ArrayList<>();
+        for (RollupDefinition definition : definitions) {
+            final Pivot pivot = RollupMaterializer.materializationPivot(definition);
+            final Query query = query(pivot, DATA_START, MATERIALIZED_UNTIL.minus(1));
+            buckets.addAll(RollupMaterializer.toBuckets(definition, rawPivot(query, pivot)));
+            materialized.add(definition.withMaterializedUntil(MATERIALIZED_UNTIL));
+        }
+        when(rollupService.definitions()).thenReturn(materialized);
+        return rewriter(true);
+    }
+
+    private static Query query(Pivot pivot, DateTime from, DateTime to) {
+        return Query.builder()
+                .id("query-1")
+                .query(ElasticsearchQueryString.empty())
+                .timerange(AbsoluteRange.create(from, to))
+                .filter(StreamFilter.ofId(STREAM))
+                .searchTypes(ImmutableSet.of(pivot))
+                .build();
+    }
+
+    private static Pivot pivot(List<BucketSpec> rowGroups, List<SeriesSpec> series, boolean rollup) {
+        return Pivot.builder()
+                .id("pivot-1")
+                .rowGroups(rowGroups)
+                .series(series)
+                .rollup(rollup)
+                .build();
+    }
+
+    private static Time time(String timeunit) {
+        return Time.builder().field("timestamp").interval(TimeUnitInterval.Builder.builder().timeunit(timeunit).build()).build();
+    }
+
+    private static List<SeriesSpec> allSeries() {
+        return List.of(
+                Count.builder().build(),
+                Count.builder().field("took_ms").build(),
+                Sum.builder().field("took_ms").build(),
+                Min.builder().field("took_ms").build(),
+                Max.builder().field("took_ms").build(),
+                Average.builder().field("took_ms").build(),
+                Average.builder().id("avg-whole").field("took_ms").wholeNumber(true).build());
+    }
+
+    /**
+     * Executes the rewritten query with the reference implementation and merges the results.
+     */
+    private PivotResult viaRollups(RollupQueryRewriter rewriter, Query query) {
+        final RollupQueryRewriter.Rewrite rewrite = rewriter.rewrite(query);
+        assertThat(rewrite.partials()).containsOnlyKeys("pivot-1");
+
+        final Map<String, SearchType.Result> results = new HashMap<>();
+        rewrite.query().searchTypes().forEach(searchType -> results.put(searchType.id(), rawPivot(rewrite.query(), (Pivot) searchType)));
+        final QueryResult merged = rewriter.merge(rewrite, QueryResult.builder().query(rewrite.query()).searchTypes(results).build());
+
+        assertThat(merged.searchTypes()).containsOnlyKeys("pivot-1");
+        return (PivotResult) merged.searchTypes().get("pivot-1");
+    }
+
+    private void assertSameResults(RollupQueryRewriter rewriter, Pivot pivot, DateTime from, DateTime to) {
+        final Query query = query(pivot, from, to);
+        final PivotResult expected = rawPivot(query, pivot);
+
+        assertThat(expected.rows()).hasSizeGreaterThan(3);
+        assertThat(viaRollups(rewriter, query)).isEqualTo(expected);
+    }
+
+    @Test
+    void timeHistogramWithTotals() {
+        final RollupQueryRewriter rewriter = materialize(definition("def-1", List.of("source"), HOUR, 100));
+        final Pivot pivot = pivot(List.of(time("1h")), allSeries(), true);
+
+        assertSameResults(rewriter, pivot, DATA_START.plusMinutes(17), DATA_END);
+        assertSameResults(rewriter, pivot, DATA_START, DATA_END.minusHours(1).plusMillis(1));
+        assertSameResults(rewriter, pivot, DATA_START.plusDays(1).minusMillis(1), DATA_START.plusDays(3).plusMinutes(1));
+    }
+
+    @Test
+    void coarserTimeHistogramWithoutTotals() {
+        final RollupQueryRewriter rewriter = materialize(definition("def-1", List.of(), HOUR, 100));
+
+        assertSameResults(rewriter, pivot(List.of(time("6h")), allSeries(), false), DATA_START.plusMinutes(95), DATA_END);
+        assertSameResults(rewriter, pivot(List.of(time("1d")), allSeries(), true), DATA_START.plusHours(5), DATA_END);
+    }
+
+    @Test
+    void timeHistogramWithGroups() {
+        final RollupQueryRewriter rewriter = materialize(definition("def-1", List.of("source"), HOUR, 100));
+
+        for (int limit : List.of(2, 3, 15)) {
+            final Values values = Values.builder().field("source").limit(limit).build();
+            assertSameResults(rewriter, pivot(List.of(time("2h"), values), allSeries(), true),
+                    DATA_START.plusMinutes(150), DATA_END);
+        }
+    }
+
+    @Test
+    void timeHistogramWithGroupsSkippingEmptyValues() {
+        final RollupQueryRewriter rewriter = materialize(definition("def-1", List.of("source"), HOUR, 100));
+        final Values values = Values.builder().field("source").limit(3).skipEmptyValues().build();
+
+        assertSameResults(rewriter, pivot(List.of(time("3h"), values), allSeries(), true), DATA_START.plusMinutes(1), DATA_END);
+    }
+
+    @Test
+    void usesDefinitionWithLargestInterval() {
+        final RollupQueryRewriter rewriter = materialize(
+                definition("def-1", List.of("source"), HOUR, 100),
+                definition("def-2", List.of("source"), 2 * HOUR, 100));
+        final Query query = query(pivot(List.of(time("4h")), allSeries(), true), DATA_START, DATA_END);
+
+        final RollupQueryRewriter.Rewrite rewrite = rewriter.rewrite(query);
+
+        assertThat(rewrite.partials().get("pivot-1").rows()).isNotEmpty();
+        assertThat(viaRollups(rewriter, query)).isEqualTo(rawPivot(query, (Pivot) query.searchTypes().iterator().next()));
+    }
+
+    @Test
+    void doesNotRewriteIncompatiblePivots() {
+        final RollupQueryRewriter rewriter = materialize(definition("def-1", List.of("source"), HOUR, 100));
+        final Pivot pivot = pivot(List.of(time("1h")), allSeries(), true);
+        final Query query = query(pivot, DATA_START, DATA_END);
+
+        // Not mergeable
+        assertThat(rewriter.rewrite(query(pivot(List.of(time("1h")), List.of(Cardinality.builder().field("source").build()), false),
+                DATA_START, DATA_END)).partials()).isEmpty();
+        // Unknown field
+        assertThat(rewriter.rewrite(query(pivot(List.of(time("1h")), List.of(Max.builder().field("other").build()), false),
+                DATA_START, DATA_END)).partials()).isEmpty();
+        // Calendar and smaller intervals
+        assertThat(rewriter.rewrite(query(pivot(List.of(time("1w")), allSeries(), false), DATA_START, DATA_END)).partials()).isEmpty();
+        assertThat(rewriter.rewrite(query(pivot(List.of(time("30m")), allSeries(), false), DATA_START, DATA_END)).partials()).isEmpty();
+        // Other group-by fields
+        assertThat(rewriter.rewrite(query(pivot(List.of(time("1h"), Values.builder().field("took_ms").build()), allSeries(), false),
+                DATA_START, DATA_END)).partials()).isEmpty();
+        // Query string
+        assertThat(rewriter.rewrite(query.toBuilder().query(ElasticsearchQueryString.of("source:a")).build()).partials()).isEmpty();
+        // Other streams
+        assertThat(rewriter.rewrite(query.toBuilder().filter(StreamFilter.ofId("stream-2")).build()).partials()).isEmpty();
+        // Nothing materialized within the time range
+        assertThat(rewriter.rewrite(query(pivot, MATERIALIZED_UNTIL.minusMinutes(30), DATA_END)).partials()).isEmpty();
+        // Disabled
+        assertThat(rewriter(false).rewrite(query).partials()).isEmpty();
+        // No indices within the time range
+        retainedFrom = null;
+        assertThat(rewriter.rewrite(query).partials()).isEmpty();
+    }
+
+    @Test
+    void ignoresRollupsOfRemovedMessages() {
+        final RollupQueryRewriter rewriter = materialize(definition("def-1", List.of("source"), HOUR, 100));
+
+        // Index retention removed the oldest messages, but their rollups haven't been pruned yet
+        retainedFrom = DATA_START.plusDays(1).plusMinutes(30);
+        messages.removeIf(message -> message.timestamp() < retainedFrom.getMillis());
+
+        assertSameResults(rewriter, pivot(List.of(time("1h")), allSeries(), true), DATA_START, DATA_END);
+        final Query query = query(pivot(List.of(time("1h")), allSeries(), true), DATA_START, DATA_END);
+        assertThat(rewriter.rewrite(query).partials().get("pivot-1").from()).isEqualTo(retainedFrom.plusMinutes(30));
+    }
+
+    @Test
+    void materializationFailsIfGroupsMightBeMissing() {
+        final RollupDefinition definition = definition("def-1", List.of("source"), HOUR, 3);
+        final Pivot pivot = RollupMaterializer.materializationPivot(definition);
+
+        assertThatThrownBy(() -> RollupMaterializer.toBuckets(definition, rawPivot(query(pivot, DATA_START, MATERIALIZED_UNTIL), pivot)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    // Reference implementation of the pivot semantics of the search backend
+
+    private PivotResult rawPivot(Query query, Pivot pivot) {
+        final TimeRange timeRange = query.effectiveTimeRange(pivot);
+        final List<Message> matching = messages.stream()
+                .filter(message -> message.timestamp() >= timeRange.getFrom().getMillis() && message.timestamp() <= timeRange.getTo().getMillis())
+                .toList();
+
+        final Time time = (Time) pivot.rowGroups().get(0);
+        final long intervalMs = intervalMs(((TimeUnitInterval) time.interval()).timeunit());
+        final TreeMap<Long, List<Message>> intervals = new TreeMap<>();
+        matching.forEach(message -> intervals.computeIfAbsent(Math.floorDiv(message.timestamp(), intervalMs) * intervalMs, i -> new ArrayList<>()).add(message));
+
+        final PivotResult.Builder result = PivotResult.builder()
+                .id(pivot.id())
+                .total(matching.size())
+                .effectiveTimerange(AbsoluteRange.create(timeRange.getFrom(), timeRange.getTo()));
+        if (!intervals.isEmpty()) {
+            for (long interval = intervals.firstKey(); interval <= intervals.lastKey(); interval += intervalMs) {
+                final String timeKey = new DateTime(interval, DateTimeZone.UTC).toString();
+                final List<Message> intervalMessages = intervals.getOrDefault(interval, List.of());
+                if (pivot.rowGroups().size() == 1) {
+                    result.addRow(row(pivot, List.of(timeKey), intervalMessages, "leaf", "row-leaf"));
+                } else {
+                    groups((Values) pivot.rowGroups().get(1), intervalMessages).forEach((key, groupMessages) -> result.addRow(
+                            row(pivot, ImmutableList.<String>builder().add(timeKey).addAll(key).build(), groupMessages, "leaf", "row-leaf")));
+                }
+            }
+        }
+        if (pivot.rollup()) {
+            result.addRow(row(pivot, List.of(), matching, "non-leaf", "row-inner"));
+        }
+        return result.build();
+    }
+
+    private static Map<List<String>, List<Message>> groups(Values values, List<Message> messages) {
+        final Predicate<Message> hasAnyField = message -> values.fields().stream().anyMatch(message.fields()::containsKey);
+        final Predicate<Message> hasAllFields = message -> values.fields().stream().allMatch(message.fields()::containsKey);
+
+        final Map<List<String>, List<Message>> groups = new LinkedHashMap<>();
+        groups.putAll(limitedGroups(values, messages.stream().filter(values.skipEmptyValues() ? hasAllFields : hasAnyField).toList()));
+        if (!values.skipEmptyValues()) {
+            groups.putAll(limitedGroups(values, messages.stream().filter(hasAnyField.negate()).toList()));
+        }
+        return groups;
+    }
+
+    private static Map<List<String>, List<Message>> limitedGroups(Values values, List<Message> messages) {
+        final Map<List<String>, List<Message>> groups = new HashMap<>();
+        messages.forEach(message -> groups.computeIfAbsent(values.fields().stream()
+                .map(field -> message.fields().containsKey(field) ? String.valueOf(message.fields().get(field)) : MissingBucketConstants.MISSING_BUCKET_NAME)
+                .toList(), key -> new ArrayList<>()).add(message));
+
+        final Map<List<String>, List<Message>> limited = new LinkedHashMap<>();
+        groups.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<List<String>, List<Message>>>comparingInt(entry -> -entry.getValue().size())
+                        .thenComparing(entry -> Joiner.on("\u2E31").join(entry.getKey())))
+                .limit(values.limit())
+                .forEach(entry -> limited.put(entry.getKey(), entry.getValue()));
+        return limited;
+    }
+
+    private static PivotResult.Row row(Pivot pivot, List<String> key, List<Message> messages, String rowSource, String valueSource) {
+        final PivotResult.Row.Builder row = PivotResult.Row.builder().key(ImmutableList.copyOf(key)).source(rowSource);
+        pivot.series().forEach(series -> row.addValue(PivotResult.Value.create(List.of(series.id()), value(series, messages), true, valueSource)));
+        return row.build();
+    }
+
+    private static Object value(SeriesSpec series, List<Message> messages) {
+        if (series instanceof Count count) {
+            return count.field()
+                    .map(field -> messages.stream().filter(message -> message.fields().containsKey(field)).count())
+                    .orElse((long) messages.size());
+        }
+        final String field = switch (series.type()) {
+            case Sum.NAME -> ((Sum) series).field();
+            case Min.NAME -> ((Min) series).field();
+            case Max.NAME -> ((Max) series).field();
+            case Average.NAME -> ((Average) series).field();
+            default -> throw new IllegalArgumentException(series.type());
+        };
+        final List<Double> fieldValues = messages.stream()
+                .filter(message -> message.fields().containsKey(field))
+                .map(message -> ((Number) message.fields().get(field)).doubleValue())
+                .toList();
+        final double sum = fieldValues.stream().mapToDouble(Double::doubleValue).sum();
+        return switch (series.type()) {
+            case Sum.NAME -> sum;
+            case Min.NAME -> fieldValues.stream().mapToDouble(Double::doubleValue).min().orElse(Double.POSITIVE_INFINITY);
+            case Max.NAME -> fieldValues.stream().mapToDouble(Double::doubleValue).max().orElse(Double.NEGATIVE_INFINITY);
+            default -> {
+                final double average = sum / fieldValues.size();
+                if (((Average) series).wholeNumber()) {
+                    yield Double.isNaN(average) ? 0.0 : (double) Math.round(average);
+                }
+                yield average;
+            }
+        };
+    }
+
+    private static long intervalMs(String timeunit) {
+        final long quantity = Long.parseLong(timeunit.substring(0, timeunit.length() - 1));
+        return switch (timeunit.charAt(timeunit.length() - 1)) {
+            case 's' -> TimeUnit.SECONDS.toMillis(quantity);
+            case 'm' -> TimeUnit.MINUTES.toMillis(quantity);
+            case 'h' -> TimeUnit.HOURS.toMillis(quantity);
+            case 'd' -> TimeUnit.DAYS.toMillis(quantity);
+            default -> throw new IllegalArgumentException(timeunit);
+        };
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.rollups;
+
+import org.graylog.plugins.views.search.elasticsearch.IndexLookup;
+import org.graylog2.indexer.ranges.MongoIndexRange;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RollupRetentionTest {
+    private static final DateTime EPOCH = DateTime.parse("1970-01-01T00:00:00.000Z");
+    private static final DateTime START = DateTime.parse("2024-01-01T00:00:00.000Z");
+    private static final AbsoluteRange RANGE = AbsoluteRange.create(START, START.plusDays(10));
+
+    private final IndexLookup indexLookup = mock(IndexLookup.class);
+    private final RollupRetention retention = new RollupRetention(indexLookup);
+
+    @Test
+    void returnsBeginOfOldestIndex() {
+        when(indexLookup.indexRangesForStreamsInTimeRange(any(), any())).thenReturn(Set.of(
+                MongoIndexRange.create("graylog_1", START.plusDays(2), START.plusDays(3), START.plusDays(3), 0),
+                MongoIndexRange.create("graylog_0", START.plusDays(1), START.plusDays(2), START.plusDays(2), 0),
+                MongoIndexRange.create("graylog_2", EPOCH, EPOCH, START.plusDays(3), 0)));
+
+        assertThat(retention.retainedFrom(Set.of("stream-1"), RANGE)).contains(START.plusDays(1));
+    }
+
+    @Test
+    void assumesWriteIndexStartsWhenItsRangeWasCreated() {
+        when(indexLookup.indexRangesForStreamsInTimeRange(any(), any())).thenReturn(Set.of(
+                MongoIndexRange.create("graylog_2", EPOCH, EPOCH, START.plusDays(3), 0)));
+
+        assertThat(retention.retainedFrom(Set.of("stream-1"), RANGE)).contains(START.plusDays(3));
+    }
+
+    @Test
+    void returnsNothingWithoutIndices() {
+        when(indexLookup.indexRangesForStreamsInTimeRange(any(), any())).thenReturn(Set.of());
+
+        assertThat(retention.retainedFrom(Set.of("stream-1"), RANGE)).isEmpty();
+    }
+}
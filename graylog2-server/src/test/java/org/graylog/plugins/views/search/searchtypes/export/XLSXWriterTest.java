@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.searchtypes.export;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.graylog.plugins.views.search.searchtypes.export.ExportTabularResultResponse.DataRow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class XLSXWriterTest {
+
+    @Test
+    void writesBlankCellsForNullValues() throws Exception {
+        final ExportTabularResultResponse response = new ExportTabularResultResponse(
+                List.of("source", "count"),
+                List.of(new DataRow(Arrays.asList("example.org", null)), new DataRow(Arrays.asList(null, 42))));
+
+        try (Workbook wb = writeAndRead(response)) {
+            final Sheet sheet = wb.getSheet("export");
+            assertEquals(CellType.BLANK, sheet.getRow(1).getCell(1).getCellType());
+            assertEquals(CellType.BLANK, sheet.getRow(2).getCell(0).getCellType());
+            assertEquals(42, sheet.getRow(2).getCell(1).getNumericCellValue());
+        }
+    }
+
+    @Test
+    void keepsTypesOfValues() throws Exception {
+        final ExportTabularResultResponse response = new ExportTabularResultResponse(
+                List.of("string", "integer", "long", "double", "boolean"),
+                List.of(new DataRow(List.of("example.org", 42, 1507337L, 0.5, true))));
+
+        try (Workbook wb = writeAndRead(response)) {
+            final Row row = wb.getSheet("export").getRow(1);
+            assertEquals(CellType.STRING, row.getCell(0).getCellType());
+            assertEquals("example.org", row.getCell(0).getStringCellValue());
+            assertEquals(CellType.NUMERIC, row.getCell(1).getCellType());
+            assertEquals(42, row.getCell(1).getNumericCellValue());
+            assertEquals(CellType.NUMERIC, row.getCell(2).getCellType());
+            assertEquals(1507337, row.getCell(2).getNumericCellValue());
+            assertEquals(CellType.NUMERIC, row.getCell(3).getCellType());
+            assertEquals(0.5, row.getCell(3).getNumericCellValue());
+            assertEquals(CellType.BOOLEAN, row.getCell(4).getCellType());
+            assertEquals(true, row.getCell(4).getBooleanCellValue());
+        }
+    }
+
+    @Test
+    void writesHeaderAndAllRows() throws Exception {
+        final List<DataRow> rows = IntStream.range(0, 250)
+                .mapToObj(i -> new DataRow(List.of("row-" + i)))
+                .toList();
+
+        try (Workbook wb = writeAndRead(new ExportTabularResultResponse(List.of("name"), rows))) {
+            final Sheet sheet = wb.getSheet("export");
+            assertEquals("name", sheet.getRow(0).getCell(0).getStringCellValue());
+            assertEquals(250, sheet.getLastRowNum());
+            assertEquals("row-249", sheet.getRow(250).getCell(0).getStringCellValue());
+        }
+    }
+
+    private static Workbook writeAndRead(ExportTabularResultResponse response) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XLSXWriter.writeXlsx(response, out);
+        return new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
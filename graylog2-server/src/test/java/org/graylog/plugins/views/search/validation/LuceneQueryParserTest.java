@@ -36,6 +36,14 @@ class LuceneQueryParserTest {
         assertThat(fields.allFieldNames()).contains("foo");
     }
 
+    @Test
+    void memoizesParsedQueries() throws ParseException {
+        final ParsedQuery first = parser.parse("foo:bar AND lorem:ipsum");
+        assertThat(parser.parse("foo:bar AND lorem:ipsum")).isSameAs(first);
+        assertThatThrownBy(() -> parser.parse("foo:")).isInstanceOf(ParseException.class);
+        assertThatThrownBy(() -> parser.parse("foo:")).isInstanceOf(ParseException.class);
+    }
+
     @Test
     void getFieldNamesSimple() throws ParseException {
         final ParsedQuery fields = parser.parse("foo:bar AND lorem:ipsum");
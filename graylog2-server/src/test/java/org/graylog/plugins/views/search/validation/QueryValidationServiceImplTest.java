@@ -23,6 +23,8 @@ import org.graylog2.plugin.indexer.searches.timeranges.RelativeRange;
 import org.junit.jupiter.api.Test;
 
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -124,6 +126,35 @@ class QueryValidationServiceImplTest {
                 .containsOnly(ValidationStatus.ERROR, ValidationStatus.WARNING);
     }
 
+    @Test
+    void stopsSupersededValidationBeforeExpensiveSteps() {
+        final AtomicBoolean superseded = new AtomicBoolean(false);
+        final AtomicInteger fieldTypeLookups = new AtomicInteger();
+        final MappedFieldTypesService fieldTypesService = (streamIds, timeRange) -> {
+            fieldTypeLookups.incrementAndGet();
+            // The user types on while the field types are looked up
+            superseded.set(true);
+            return Collections.emptySet();
+        };
+        final AtomicInteger validations = new AtomicInteger();
+        final QueryValidator queryValidator = context -> {
+            validations.incrementAndGet();
+            return Collections.emptyList();
+        };
+
+        final QueryValidationServiceImpl service = new QueryValidationServiceImpl(
+                LUCENE_QUERY_PARSER,
+                fieldTypesService,
+                Collections.singleton(queryValidator));
+
+        assertThat(service.validate(req(), superseded::get)).isEmpty();
+        assertThat(fieldTypeLookups).hasValue(1);
+        assertThat(validations).hasValue(0);
+
+        assertThat(service.validate(req(), superseded::get)).isEmpty();
+        assertThat(fieldTypeLookups).hasValue(1);
+    }
+
     private ValidationRequest req() {
         return ValidationRequest.builder()
                 .query(ElasticsearchQueryString.of("foo:bar"))
@@ -44,6 +44,7 @@ import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.mongojack.DBQuery;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -521,6 +522,49 @@ public class DBJobTriggerServiceTest {
         assertThat(dbJobTriggerService.nextRunnableTrigger()).isEmpty();
     }
 
+    @Test
+    public void nextRunnableTriggers() {
+        // No triggers yet
+        assertThat(dbJobTriggerService.nextRunnableTriggers(10)).isEmpty();
+        assertThat(dbJobTriggerService.nextUpcomingTriggerTime()).isEmpty();
+
+        final List<JobTriggerDto> triggers = new ArrayList<>();
+        for (int seconds : List.of(12, 10, 11, 30)) {
+            triggers.add(dbJobTriggerService.create(JobTriggerDto.Builder.create(clock)
+                    .jobDefinitionId("abc-123")
+                    .jobDefinitionType("event-processor-execution-v1")
+                    .nextTime(clock.nowUTC().plusSeconds(seconds))
+                    .schedule(IntervalJobSchedule.builder()
+                            .interval(1)
+                            .unit(TimeUnit.SECONDS)
+                            .build())
+                    .build()));
+        }
+
+        // Nothing is runnable yet, but we know when the first trigger will be
+        assertThat(dbJobTriggerService.nextRunnableTriggers(10)).isEmpty();
+        assertThat(dbJobTriggerService.nextUpcomingTriggerTime()).contains(triggers.get(1).nextTime());
+
+        clock.plus(20, TimeUnit.SECONDS);
+
+        // The oldest triggers are locked first
+        final List<JobTriggerDto> locked = dbJobTriggerService.nextRunnableTriggers(2);
+        assertThat(locked).hasSize(2);
+        assertNextTrigger(Optional.of(locked.get(0)), triggers.get(1));
+        assertNextTrigger(Optional.of(locked.get(1)), triggers.get(2));
+
+        // Triggers which are already locked are skipped
+        final List<JobTriggerDto> remaining = dbJobTriggerService.nextRunnableTriggers(10);
+        assertThat(remaining).hasSize(1);
+        assertNextTrigger(Optional.of(remaining.get(0)), triggers.get(0));
+        assertThat(dbJobTriggerService.nextUpcomingTriggerTime()).contains(triggers.get(3).nextTime());
+
+        clock.plus(20, TimeUnit.SECONDS);
+
+        assertThat(dbJobTriggerService.nextRunnableTriggers(10)).hasSize(1);
+        assertThat(dbJobTriggerService.nextRunnableTriggers(10)).isEmpty();
+    }
+
     @Test
     @MongoDBFixtures("job-triggers.json")
     public void nextRunnableTriggerWithEndTime() {
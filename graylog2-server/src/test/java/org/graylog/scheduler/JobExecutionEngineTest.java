@@ -18,17 +18,28 @@ package org.graylog.scheduler;
 
 import com.codahale.metrics.MetricRegistry;
 import org.graylog.scheduler.eventbus.JobSchedulerEventBus;
+import org.graylog.scheduler.schedule.IntervalJobSchedule;
 import org.graylog.scheduler.worker.JobWorkerPool;
 import org.graylog2.cluster.lock.RefreshingLockService;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -67,4 +78,66 @@ class JobExecutionEngineTest {
 
         verify(jobTriggerService, times(1)).updateLockedJobTriggers();
     }
+
+    @Test
+    void executeBatchLocksTriggersForFreeSlots() {
+        JobExecutionEngine underTest = new JobExecutionEngine(jobTriggerService, jobDefinitionService, eventBus, scheduleStrategies, jobTriggerUpdatesFactory,
+                refreshingLockServiceFactory, jobFactory, workerPool, jobSchedulerConfig, metricRegistry);
+        final JobTriggerDto trigger1 = trigger("54e3deadbeefdeadbeef0001");
+        final JobTriggerDto trigger2 = trigger("54e3deadbeefdeadbeef0002");
+
+        given(workerPool.freeSlots()).willReturn(2);
+        given(jobTriggerService.nextRunnableTriggers(2)).willReturn(List.of(trigger1, trigger2));
+        given(workerPool.execute(any())).willReturn(true, false);
+
+        assertThat(underTest.executeBatch()).isTrue();
+
+        // The trigger which couldn't be executed is released again
+        verify(jobTriggerService, never()).releaseTrigger(eq(trigger1), any());
+        verify(jobTriggerService).releaseTrigger(eq(trigger2), any());
+        verify(jobTriggerService, never()).nextRunnableTrigger();
+        assertThat(metricRegistry.timer(MetricRegistry.name(JobExecutionEngine.class, "executions", "dispatch-latency")).getCount())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void executeBatchWithoutFreeSlots() {
+        JobExecutionEngine underTest = new JobExecutionEngine(jobTriggerService, jobDefinitionService, eventBus, scheduleStrategies, jobTriggerUpdatesFactory,
+                refreshingLockServiceFactory, jobFactory, workerPool, jobSchedulerConfig, metricRegistry);
+
+        assertThat(underTest.executeBatch()).isFalse();
+        assertThat(underTest.millisUntilNextTrigger(1000)).isEqualTo(1000);
+
+        verify(jobTriggerService, never()).nextRunnableTriggers(anyInt());
+        verify(jobTriggerService, never()).nextUpcomingTriggerTime();
+    }
+
+    @Test
+    void millisUntilNextTrigger() {
+        JobExecutionEngine underTest = new JobExecutionEngine(jobTriggerService, jobDefinitionService, eventBus, scheduleStrategies, jobTriggerUpdatesFactory,
+                refreshingLockServiceFactory, jobFactory, workerPool, jobSchedulerConfig, metricRegistry);
+        given(workerPool.hasFreeSlots()).willReturn(true);
+
+        given(jobTriggerService.nextUpcomingTriggerTime()).willReturn(Optional.empty());
+        assertThat(underTest.millisUntilNextTrigger(1000)).isEqualTo(1000);
+
+        given(jobTriggerService.nextUpcomingTriggerTime()).willReturn(Optional.of(DateTime.now(DateTimeZone.UTC).plusMinutes(1)));
+        assertThat(underTest.millisUntilNextTrigger(1000)).isEqualTo(1000);
+
+        given(jobTriggerService.nextUpcomingTriggerTime()).willReturn(Optional.of(DateTime.now(DateTimeZone.UTC).minusSeconds(1)));
+        assertThat(underTest.millisUntilNextTrigger(1000)).isZero();
+
+        given(jobTriggerService.nextUpcomingTriggerTime()).willReturn(Optional.of(DateTime.now(DateTimeZone.UTC).plusMillis(500)));
+        assertThat(underTest.millisUntilNextTrigger(1000)).isBetween(1L, 500L);
+    }
+
+    private JobTriggerDto trigger(String id) {
+        return JobTriggerDto.Builder.create()
+                .id(id)
+                .jobDefinitionId("abc-123")
+                .jobDefinitionType("event-processor-execution-v1")
+                .nextTime(DateTime.now(DateTimeZone.UTC).minusSeconds(1))
+                .schedule(IntervalJobSchedule.builder().interval(1).unit(TimeUnit.SECONDS).build())
+                .build();
+    }
 }
@@ -152,7 +152,7 @@ class JobSchedulerServiceIT {
 
         final Duration loopSleepDuration = Duration.milliseconds(200);
 
-        jobSchedulerService = new JobSchedulerService(engineFactory, workerPoolFactory, schedulerConfig, clock, eventBus, serverStatus, loopSleepDuration);
+        jobSchedulerService = new JobSchedulerService(engineFactory, workerPoolFactory, schedulerConfig, clock, eventBus, serverStatus, loopSleepDuration, false);
     }
 
     @Test
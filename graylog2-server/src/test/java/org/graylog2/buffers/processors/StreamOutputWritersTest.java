@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.buffers.processors;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.graylog2.outputs.OutputRegistry;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.MessageFactory;
+import org.graylog2.plugin.TestMessageFactory;
+import org.graylog2.plugin.outputs.MessageOutput;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StreamOutputWritersTest {
+    private final MessageFactory messageFactory = new TestMessageFactory();
+
+    private OutputRegistry outputRegistry;
+    private MetricRegistry metricRegistry;
+    private MessageOutput output;
+    private AtomicBoolean running;
+
+    @BeforeEach
+    void setUp() {
+        outputRegistry = mock(OutputRegistry.class);
+        metricRegistry = new MetricRegistry();
+        output = mock(MessageOutput.class);
+        running = new AtomicBoolean(true);
+        when(output.isRunning()).thenAnswer(invocation -> running.get());
+        when(outputRegistry.getIdForOutput(output)).thenReturn(Optional.of("output-1"));
+    }
+
+    private Message message(String text) {
+        return messageFactory.createMessage(text, "source", DateTime.now(DateTimeZone.UTC));
+    }
+
+    private StreamOutputWriters writers(int queueSize, int batchSize) {
+        return new StreamOutputWriters(outputRegistry, metricRegistry, queueSize, batchSize, 1, 2, 10_000);
+    }
+
+    private String metricName(String name) {
+        return MetricRegistry.name(StreamOutputWriters.class, "output-1", name);
+    }
+
+    @Test
+    void writesMessagesInBatches() throws Exception {
+        final List<Message> written = new CopyOnWriteArrayList<>();
+        final CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        final CountDownLatch firstWriteBlocked = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            written.addAll(invocation.getArgument(0));
+            firstWriteStarted.countDown();
+            firstWriteBlocked.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(output).write(anyList());
+        final StreamOutputWriters writers = writers(100, 10);
+
+        assertThat(writers.offer(output, message("first"))).isTrue();
+        assertThat(firstWriteStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 5; i++) {
+            assertThat(writers.offer(output, message("queued-" + i))).isTrue();
+        }
+        assertThat(metricRegistry.getGauges().get(metricName("queueSize")).getValue()).isEqualTo(5);
+        firstWriteBlocked.countDown();
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> written.size() == 6);
+        assertThat(written).extracting(Message::getMessage)
+                .containsExactly("first", "queued-0", "queued-1", "queued-2", "queued-3", "queued-4");
+        // The queued messages have been written in a single batch
+        await().atMost(10, TimeUnit.SECONDS).until(() -> metricRegistry.meter(metricName("written")).getCount() == 6);
+        assertThat(metricRegistry.histogram(metricName("batchSize")).getSnapshot().getMax()).isEqualTo(5);
+        assertThat(metricRegistry.timer(metricName("latency")).getCount()).isEqualTo(6);
+        verify(output, never()).write(any(Message.class));
+    }
+
+    @Test
+    void dropsMessagesIfQueueIsFull() throws Exception {
+        final CountDownLatch writeStarted = new CountDownLatch(1);
+        final CountDownLatch writeBlocked = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writeStarted.countDown();
+            writeBlocked.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(output).write(anyList());
+        final StreamOutputWriters writers = writers(2, 10);
+
+        try {
+            assertThat(writers.offer(output, message("in-flight"))).isTrue();
+            assertThat(writeStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(writers.offer(output, message("queued-1"))).isTrue();
+            assertThat(writers.offer(output, message("queued-2"))).isTrue();
+            assertThat(writers.offer(output, message("dropped"))).isFalse();
+
+            assertThat(writers.queuedMessages(output)).isEqualTo(2);
+            assertThat(metricRegistry.meter(metricName("dropped")).getCount()).isEqualTo(1);
+        } finally {
+            writeBlocked.countDown();
+        }
+    }
+
+    @Test
+    void discardsQueueWhenOutputIsStoppedWithoutDraining() {
+        final StreamOutputWriters writers = writers(10, 10);
+        assertThat(writers.offer(output, message("message"))).isTrue();
+        assertThat(metricRegistry.getGauges()).containsKey(metricName("queueSize"));
+
+        running.set(false);
+        writers.offer(output, message("discarded"));
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> metricRegistry.getMetrics().keySet().stream()
+                .noneMatch(name -> name.startsWith(MetricRegistry.name(StreamOutputWriters.class, "output-1"))));
+    }
+
+    @Test
+    void drainWritesQueuedMessages() throws Exception {
+        final List<Message> written = new CopyOnWriteArrayList<>();
+        final CountDownLatch writeBlocked = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writeBlocked.await(10, TimeUnit.SECONDS);
+            written.addAll(invocation.getArgument(0));
+            return null;
+        }).when(output).write(anyList());
+        final StreamOutputWriters writers = writers(100, 2);
+        for (int i = 0; i < 5; i++) {
+            assertThat(writers.offer(output, message("queued-" + i))).isTrue();
+        }
+
+        writeBlocked.countDown();
+        writers.drain(output);
+
+        assertThat(written).extracting(Message::getMessage)
+                .containsExactly("queued-0", "queued-1", "queued-2", "queued-3", "queued-4");
+        assertThat(writers.queuedMessages(output)).isZero();
+        assertThat(metricRegistry.getMetrics().keySet())
+                .noneMatch(name -> name.startsWith(MetricRegistry.name(StreamOutputWriters.class, "output-1")));
+    }
+
+    @Test
+    void drainDropsMessagesAfterTimeout() throws Exception {
+        final CountDownLatch writeBlocked = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writeBlocked.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(output).write(anyList());
+        final StreamOutputWriters writers = new StreamOutputWriters(outputRegistry, metricRegistry, 100, 1, 1, 1, 100);
+        final Meter dropped = metricRegistry.meter(metricName("dropped"));
+
+        try {
+            for (int i = 0; i < 3; i++) {
+                assertThat(writers.offer(output, message("queued-" + i))).isTrue();
+            }
+            final long start = System.nanoTime();
+            writers.drain(output);
+
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5000);
+            // The first message is being written, the others have been dropped
+            assertThat(dropped.getCount()).isEqualTo(2);
+        } finally {
+            writeBlocked.countDown();
+        }
+    }
+
+    @Test
+    void sharesWriterThreadsBetweenOutputs() throws Exception {
+        final Set<String> threadNames = ConcurrentHashMap.newKeySet();
+        final List<MessageOutput> outputs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final MessageOutput messageOutput = mock(MessageOutput.class);
+            when(messageOutput.isRunning()).thenReturn(true);
+            when(outputRegistry.getIdForOutput(messageOutput)).thenReturn(Optional.of("output-" + i));
+            doAnswer(invocation -> threadNames.add(Thread.currentThread().getName())).when(messageOutput).write(anyList());
+            outputs.add(messageOutput);
+        }
+        final StreamOutputWriters writers = writers(10, 10);
+
+        for (final MessageOutput messageOutput : outputs) {
+            assertThat(writers.offer(messageOutput, message("message"))).isTrue();
+        }
+        writers.shutdown();
+
+        for (final MessageOutput messageOutput : outputs) {
+            verify(messageOutput).write(anyList());
+        }
+        assertThat(threadNames).hasSizeLessThanOrEqualTo(2);
+    }
+}
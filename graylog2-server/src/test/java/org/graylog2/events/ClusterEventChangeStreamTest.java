@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.events;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Timeout(10)
+class ClusterEventChangeStreamTest {
+    private final BlockingQueue<List<ClusterEvent>> batches = new LinkedBlockingQueue<>();
+    private final CountDownLatch opened = new CountDownLatch(1);
+
+    private MongoCollection<ClusterEvent> collection;
+    private ChangeStreamIterable<ClusterEvent> changeStreamIterable;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        collection = mock(MongoCollection.class);
+        changeStreamIterable = mock(ChangeStreamIterable.class);
+        when(collection.watch(anyList())).thenReturn(changeStreamIterable);
+    }
+
+    @Test
+    void nextBatchDrainsAvailableEvents() {
+        final MongoChangeStreamCursor<ChangeStreamDocument<ClusterEvent>> cursor = cursor();
+        final ClusterEvent first = event("first");
+        final ClusterEvent second = event("second");
+        final ClusterEvent third = event("third");
+        final ChangeStreamDocument<ClusterEvent> firstDocument = document(first);
+        final ChangeStreamDocument<ClusterEvent> secondDocument = document(second);
+        final ChangeStreamDocument<ClusterEvent> thirdDocument = document(third);
+        when(cursor.next()).thenReturn(firstDocument);
+        when(cursor.tryNext()).thenReturn(secondDocument, thirdDocument, null);
+
+        assertThat(ClusterEventChangeStream.nextBatch(cursor, 100)).containsExactly(first, second, third);
+    }
+
+    @Test
+    void nextBatchIsLimitedToMaxSize() {
+        final MongoChangeStreamCursor<ChangeStreamDocument<ClusterEvent>> cursor = cursor();
+        final ChangeStreamDocument<ClusterEvent> document = document(event("event"));
+        when(cursor.next()).thenReturn(document);
+        when(cursor.tryNext()).thenReturn(document);
+
+        assertThat(ClusterEventChangeStream.nextBatch(cursor, 3)).hasSize(3);
+        verify(cursor, times(2)).tryNext();
+    }
+
+    @Test
+    void stopClosesCursorAndEndsThread() throws Exception {
+        final ClusterEvent event = event("event");
+        final MongoChangeStreamCursor<ChangeStreamDocument<ClusterEvent>> cursor = blockingCursor(event);
+        when(changeStreamIterable.cursor()).thenReturn(cursor);
+
+        final ClusterEventChangeStream changeStream = changeStream();
+        changeStream.start();
+
+        assertThat(batches.poll(5, TimeUnit.SECONDS)).containsExactly(event);
+        assertThat(changeStream.isActive()).isTrue();
+
+        changeStream.stop();
+        changeStream.thread().join(TimeUnit.SECONDS.toMillis(5));
+
+        assertThat(changeStream.thread().isAlive()).isFalse();
+        assertThat(changeStream.isActive()).isFalse();
+        verify(cursor, atLeastOnce()).close();
+        verify(changeStreamIterable, times(1)).cursor();
+    }
+
+    @Test
+    void reopensChangeStreamAfterErrors() throws Exception {
+        final MongoChangeStreamCursor<ChangeStreamDocument<ClusterEvent>> cursor = blockingCursor(event("event"));
+        when(changeStreamIterable.cursor()).thenThrow(new MongoException("Boom")).thenReturn(cursor);
+
+        final ClusterEventChangeStream changeStream = changeStream();
+        changeStream.start();
+
+        assertThat(opened.await(5, TimeUnit.SECONDS)).isTrue();
+        changeStream.stop();
+        changeStream.thread().join(TimeUnit.SECONDS.toMillis(5));
+
+        assertThat(changeStream.thread().isAlive()).isFalse();
+        verify(changeStreamIterable, times(2)).cursor();
+    }
+
+    @Test
+    void givesUpIfChangeStreamsAreNotSupported() throws Exception {
+        final BsonDocument response = new BsonDocument("ok", new BsonInt32(0))
+                .append("code", new BsonInt32(40573))
+                .append("errmsg", new BsonString("The $changeStream stage is only supported on replica sets"));
+        when(changeStreamIterable.cursor()).thenThrow(new MongoCommandException(response, new ServerAddress()));
+
+        final ClusterEventChangeStream changeStream = changeStream();
+        changeStream.start();
+        changeStream.thread().join(TimeUnit.SECONDS.toMillis(5));
+
+        assertThat(changeStream.thread().isAlive()).isFalse();
+        assertThat(changeStream.isActive()).isFalse();
+        assertThat(opened.getCount()).isEqualTo(1);
+        verify(changeStreamIterable, times(1)).cursor();
+    }
+
+    private ClusterEventChangeStream changeStream() {
+        return new ClusterEventChangeStream(collection, "node-id", batches::add, opened::countDown, 10);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MongoChangeStreamCursor<ChangeStreamDocument<ClusterEvent>> cursor() {
+        return mock(MongoChangeStreamCursor.class);
+    }
+
+    /**
+     * Returns a cursor which provides the given event and then blocks until it is closed, like a change stream
+     * without new events.
+     */
+    private static MongoChangeStreamCursor<ChangeStreamDocument<ClusterEvent>> blockingCursor(ClusterEvent event) {
+        final MongoChangeStreamCursor<ChangeStreamDocument<ClusterEvent>> cursor = cursor();
+        final ChangeStreamDocument<ClusterEvent> document = document(event);
+        final CountDownLatch closed = new CountDownLatch(1);
+        when(cursor.next()).thenReturn(document).thenAnswer(invocation -> {
+            closed.await();
+            throw new IllegalStateException("Cursor has been closed");
+        });
+        doAnswer(invocation -> {
+            closed.countDown();
+            return null;
+        }).when(cursor).close();
+        return cursor;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamDocument<ClusterEvent> document(ClusterEvent event) {
+        final ChangeStreamDocument<ClusterEvent> document = mock(ChangeStreamDocument.class);
+        when(document.getFullDocument()).thenReturn(event);
+        return document;
+    }
+
+    private static ClusterEvent event(String payload) {
+        return ClusterEvent.create("producer", SimpleEvent.class.getCanonicalName(), new SimpleEvent(payload));
+    }
+}
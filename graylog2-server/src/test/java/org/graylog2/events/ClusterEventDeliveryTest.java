@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.events;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.eventbus.EventBus;
+import org.graylog2.security.RestrictedChainingClassLoader;
+import org.graylog2.security.SafeClasses;
+import org.graylog2.shared.bindings.providers.ObjectMapperProvider;
+import org.graylog2.shared.plugins.ChainingClassLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ClusterEventDeliveryTest {
+    private final ObjectMapper objectMapper = new ObjectMapperProvider().get();
+    private final RestrictedChainingClassLoader classLoader = new RestrictedChainingClassLoader(
+            new ChainingClassLoader(getClass().getClassLoader()), new SafeClasses(Set.of(SimpleEvent.class.getName())));
+    private final List<List<String>> consumerUpdates = new ArrayList<>();
+    private final Meter meter = new Meter();
+
+    private EventBus serverEventBus;
+    private ClusterEventDelivery delivery;
+
+    @BeforeEach
+    void setUp() {
+        serverEventBus = mock(EventBus.class);
+        delivery = new ClusterEventDelivery(objectMapper, classLoader, serverEventBus, consumerUpdates::add, new Timer());
+    }
+
+    @Test
+    void postsEventsAndUpdatesConsumersOfBatchAtOnce() {
+        delivery.deliver(List.of(event("1", "a"), event("2", "b"), event("3", "c")), meter);
+
+        verify(serverEventBus).post(new SimpleEvent("a"));
+        verify(serverEventBus).post(new SimpleEvent("b"));
+        verify(serverEventBus).post(new SimpleEvent("c"));
+        assertThat(meter.getCount()).isEqualTo(3);
+        assertThat(consumerUpdates).containsExactly(List.of(id("1"), id("2"), id("3")));
+    }
+
+    @Test
+    void skipsEventsWhichHaveAlreadyBeenDelivered() {
+        delivery.deliver(List.of(event("1", "a")), meter);
+        // e.g. received by the change stream and by polling
+        delivery.deliver(List.of(event("1", "a"), event("2", "b")), meter);
+        delivery.deliver(List.of(event("2", "b")), meter);
+
+        verify(serverEventBus, times(1)).post(new SimpleEvent("a"));
+        verify(serverEventBus, times(1)).post(new SimpleEvent("b"));
+        assertThat(meter.getCount()).isEqualTo(2);
+        assertThat(consumerUpdates).containsExactly(List.of(id("1")), List.of(id("2")));
+    }
+
+    @Test
+    void marksEventsWithInvalidPayloadAsConsumed() {
+        final ClusterEvent invalidPayload = ClusterEvent.create(id("1"), 0L, "producer", Set.of(),
+                SimpleEvent.class.getCanonicalName(), Map.of("HAHA", "test"));
+        final ClusterEvent unsafeClass = ClusterEvent.create(id("2"), 0L, "producer", Set.of(),
+                String.class.getCanonicalName(), "test");
+
+        delivery.deliver(List.of(invalidPayload, unsafeClass), meter);
+
+        verify(serverEventBus, never()).post(any());
+        assertThat(meter.getCount()).isZero();
+        assertThat(consumerUpdates).containsExactly(List.of(id("1"), id("2")));
+    }
+
+    @Test
+    void skipsEventsWithoutId() {
+        final ClusterEvent withoutId = ClusterEvent.create(null, 0L, "producer", Set.of(),
+                SimpleEvent.class.getCanonicalName(), Map.of("payload", "a"));
+
+        delivery.deliver(Arrays.asList(null, withoutId), meter);
+        delivery.deliver(List.of(), meter);
+
+        verify(serverEventBus, never()).post(any());
+        assertThat(consumerUpdates).isEmpty();
+    }
+
+    private static String id(String suffix) {
+        return "5c2e6f9a4b3c2d1e0f00000" + suffix;
+    }
+
+    private static ClusterEvent event(String idSuffix, String payload) {
+        return ClusterEvent.create(id(idSuffix), System.currentTimeMillis(), "producer", Set.of(),
+                SimpleEvent.class.getCanonicalName(), Map.of("payload", payload));
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.graylog2.events;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.eventbus.DeadEvent;
@@ -94,7 +95,8 @@ public class ClusterEventPeriodicalTest {
                         new SafeClasses(Set.of(
                                 SimpleEvent.class.getName(), DebugEvent.class.getName(), Safe.class.getName()))),
                 serverEventBus,
-                clusterEventBus
+                clusterEventBus,
+                new MetricRegistry()
         );
     }
 
@@ -223,6 +225,31 @@ public class ClusterEventPeriodicalTest {
         verify(clusterEventBus, never()).post(event);
     }
 
+    @Test
+    public void runMarksAllDeliveredEventsAsConsumed() throws Exception {
+        @SuppressWarnings("deprecation")
+        final DBCollection collection = mongoConnection.getDatabase().getCollection(ClusterEventPeriodical.COLLECTION_NAME);
+        for (String payload : List.of("test1", "test2", "test3")) {
+            collection.save(new BasicDBObjectBuilder()
+                    .add("timestamp", TIME.getMillis())
+                    .add("producer", "TEST-PRODUCER")
+                    .add("consumers", Collections.emptyList())
+                    .add("event_class", SimpleEvent.class.getCanonicalName())
+                    .add("payload", ImmutableMap.of("payload", payload))
+                    .get());
+        }
+
+        clusterEventPeriodical.run();
+
+        assertThat(collection.count()).isEqualTo(3L);
+        for (DBObject dbObject : collection.find()) {
+            @SuppressWarnings("unchecked")
+            final List<String> consumers = (List<String>) dbObject.get("consumers");
+            assertThat(consumers).containsExactly(nodeId.getNodeId());
+        }
+        verify(serverEventBus, times(3)).post(any(SimpleEvent.class));
+    }
+
     @Test
     public void testPublishClusterEvent() throws Exception {
         @SuppressWarnings("deprecation")
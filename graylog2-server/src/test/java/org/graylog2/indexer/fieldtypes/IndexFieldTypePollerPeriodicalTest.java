@@ -17,10 +17,14 @@
 package org.graylog2.indexer.fieldtypes;
 
 import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.eventbus.EventBus;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.graylog2.events.ClusterEventBus;
 import org.graylog2.indexer.MongoIndexSet;
 import org.graylog2.indexer.cluster.Cluster;
+import org.graylog2.indexer.fieldtypes.events.IndexFieldTypesUpdatedEvent;
 import org.graylog2.indexer.indexset.IndexSetConfig;
 import org.graylog2.indexer.indexset.IndexSetService;
 import org.graylog2.indexer.indices.Indices;
@@ -28,20 +32,28 @@ import org.graylog2.indexer.retention.strategies.NoopRetentionStrategyConfig;
 import org.graylog2.indexer.rotation.strategies.MessageCountRotationStrategyConfig;
 import org.graylog2.plugin.ServerStatus;
 import org.graylog2.plugin.lifecycles.Lifecycle;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.stubbing.Answer;
 
 import java.time.ZonedDateTime;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -58,25 +70,40 @@ class IndexFieldTypePollerPeriodicalTest {
     private final Cluster cluster = mock(Cluster.class);
     @SuppressWarnings("UnstableApiUsage")
     private final EventBus eventBus = mock(EventBus.class);
+    private final ClusterEventBus clusterEventBus = mock(ClusterEventBus.class);
     private final ServerStatus serverStatus = mock(ServerStatus.class);
-    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(2,
-            new ThreadFactoryBuilder().setNameFormat("index-field-type-poller-periodical-test-%d").build()
-    );
+    private final ThreadPoolExecutor executor = newExecutor(2);
 
     @BeforeEach
     void setUp() {
-        this.periodical = new IndexFieldTypePollerPeriodical(indexFieldTypePoller,
+        this.periodical = createPeriodical(executor);
+        when(serverStatus.getLifecycle()).thenReturn(Lifecycle.RUNNING);
+        when(cluster.isConnected()).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        periodical.stop();
+    }
+
+    private IndexFieldTypePollerPeriodical createPeriodical(ExecutorService executor) {
+        return new IndexFieldTypePollerPeriodical(indexFieldTypePoller,
                 indexFieldTypesService,
+                new IndexFieldTypesCatalog(indexFieldTypesService, Duration.seconds(0), Ticker.systemTicker()),
                 indexSetService,
                 indices,
                 mongoIndexSetFactory,
                 cluster,
                 eventBus,
+                clusterEventBus,
                 serverStatus,
                 Duration.seconds(0),
-                scheduler);
-        when(serverStatus.getLifecycle()).thenReturn(Lifecycle.RUNNING);
-        when(cluster.isConnected()).thenReturn(true);
+                executor);
+    }
+
+    private static ThreadPoolExecutor newExecutor(int threads) {
+        return (ThreadPoolExecutor) Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("index-field-type-poller-periodical-test-%d").build());
     }
 
     @Test
@@ -90,21 +117,7 @@ class IndexFieldTypePollerPeriodicalTest {
 
     @Test
     void noConcurrentPollingForFieldTypes() throws InterruptedException {
-        final IndexSetConfig indexSet = IndexSetConfig.builder()
-                .id("indexSet1")
-                .title("Test Index Set")
-                .indexPrefix("test")
-                .shards(2)
-                .creationDate(ZonedDateTime.now())
-                .indexAnalyzer("standard")
-                .indexTemplateName("test")
-                .indexOptimizationMaxNumSegments(2048)
-                .indexOptimizationDisabled(false)
-                .fieldTypeRefreshInterval(org.joda.time.Duration.standardSeconds(1))
-                .retentionStrategy(NoopRetentionStrategyConfig.createDefault())
-                .rotationStrategy(MessageCountRotationStrategyConfig.createDefault())
-                .replicas(1)
-                .build();
+        final IndexSetConfig indexSet = indexSetConfig();
         final List<IndexSetConfig> indexSets = List.of(indexSet);
         when(indexSetService.findAll()).thenReturn(indexSets);
 
@@ -126,17 +139,138 @@ class IndexFieldTypePollerPeriodicalTest {
         // Wait until first job is waiting for index field type poller
         start.await();
 
-        // Then start second job
+        // Then start second job, which is coalesced with the running one
         periodical.doRun();
-
-        // Waiting for second job to complete
-        await().atMost(1, TimeUnit.MINUTES).until(() -> scheduler.getCompletedTaskCount() == 1);
+        assertThat(executor.getTaskCount()).isEqualTo(1);
 
         // And release first job
         done.countDown();
 
-        await().atMost(1, TimeUnit.MINUTES).until(() -> scheduler.getCompletedTaskCount() == 2);
+        await().atMost(1, TimeUnit.MINUTES).until(() -> executor.getCompletedTaskCount() == 1);
 
         verify(indexFieldTypePoller, times(1)).pollIndex(anyString(), anyString());
     }
+
+    @Test
+    void pollsAreQueuedWhileAllThreadsAreBusy() throws InterruptedException {
+        final ThreadPoolExecutor singleThreadExecutor = newExecutor(1);
+        final IndexFieldTypePollerPeriodical singleThreadPeriodical = createPeriodical(singleThreadExecutor);
+        try {
+            final IndexSetConfig indexSet1 = indexSetConfig("indexSet1");
+            final IndexSetConfig indexSet2 = indexSetConfig("indexSet2");
+            when(indexSetService.findAll()).thenReturn(List.of(indexSet1, indexSet2));
+
+            final MongoIndexSet mongoIndexSet1 = mock(MongoIndexSet.class);
+            when(mongoIndexSet1.getActiveWriteIndex()).thenReturn("test_0");
+            when(mongoIndexSetFactory.create(eq(indexSet1))).thenReturn(mongoIndexSet1);
+            final MongoIndexSet mongoIndexSet2 = mock(MongoIndexSet.class);
+            when(mongoIndexSet2.getActiveWriteIndex()).thenReturn("other_0");
+            when(mongoIndexSetFactory.create(eq(indexSet2))).thenReturn(mongoIndexSet2);
+
+            final CountDownLatch start = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(1);
+            when(indexFieldTypePoller.pollIndex("test_0", "indexSet1"))
+                    .thenAnswer((Answer<Optional<IndexFieldTypesDTO>>) invocationOnMock -> {
+                        start.countDown();
+                        done.await();
+                        return Optional.empty();
+                    });
+
+            singleThreadPeriodical.doRun();
+            start.await();
+
+            // The poll of the second index set waits for the busy thread instead of being dropped
+            assertThat(singleThreadExecutor.getQueue()).hasSize(1);
+            done.countDown();
+
+            await().atMost(1, TimeUnit.MINUTES).until(() -> singleThreadExecutor.getCompletedTaskCount() == 2);
+            verify(indexFieldTypePoller, times(1)).pollIndex("other_0", "indexSet2");
+        } finally {
+            singleThreadPeriodical.stop();
+        }
+    }
+
+    @Test
+    void postsUpdatedEventOnlyIfFieldTypesChanged() {
+        final IndexSetConfig indexSet = indexSetConfig();
+        when(indexSetService.findAll()).thenReturn(List.of(indexSet));
+
+        final MongoIndexSet mongoIndexSet = mock(MongoIndexSet.class);
+        when(mongoIndexSet.getActiveWriteIndex()).thenReturn("test_0");
+        when(mongoIndexSetFactory.create(eq(indexSet))).thenReturn(mongoIndexSet);
+        when(indexFieldTypePoller.pollIndex("test_0", "indexSet1")).thenReturn(Optional.of(IndexFieldTypesDTO.create("indexSet1", "test_0",
+                Set.of(FieldTypeDTO.builder().fieldName("message").physicalType("text").build()))));
+
+        // Keep running until the active write index has been polled twice
+        await().atMost(1, TimeUnit.MINUTES).untilAsserted(() -> {
+            periodical.doRun();
+            verify(indexFieldTypePoller, atLeast(2)).pollIndex("test_0", "indexSet1");
+        });
+        await().atMost(1, TimeUnit.MINUTES).until(() -> executor.getCompletedTaskCount() == executor.getTaskCount());
+
+        verify(indexFieldTypesService, times(1)).upsert(any());
+        verify(clusterEventBus, times(1)).post(IndexFieldTypesUpdatedEvent.create("indexSet1", ImmutableSet.of("test_0")));
+    }
+
+    @Test
+    void writesOnlyNewFields() {
+        final IndexSetConfig indexSet = indexSetConfig();
+        when(indexSetService.findAll()).thenReturn(List.of(indexSet));
+
+        final MongoIndexSet mongoIndexSet = mock(MongoIndexSet.class);
+        when(mongoIndexSet.getActiveWriteIndex()).thenReturn("test_0");
+        when(mongoIndexSetFactory.create(eq(indexSet))).thenReturn(mongoIndexSet);
+        final FieldTypeDTO message = FieldTypeDTO.builder().fieldName("message").physicalType("text").build();
+        final FieldTypeDTO source = FieldTypeDTO.builder().fieldName("source").physicalType("keyword").build();
+        when(indexFieldTypePoller.pollIndex("test_0", "indexSet1")).thenReturn(
+                Optional.of(IndexFieldTypesDTO.create("indexSet1", "test_0", Set.of(message))),
+                Optional.of(IndexFieldTypesDTO.create("indexSet1", "test_0", Set.of(message, source))));
+        when(indexFieldTypesService.addFields("indexSet1", "test_0", Set.of(source))).thenReturn(true);
+
+        await().atMost(1, TimeUnit.MINUTES).untilAsserted(() -> {
+            periodical.doRun();
+            verify(indexFieldTypePoller, atLeast(2)).pollIndex("test_0", "indexSet1");
+        });
+        await().atMost(1, TimeUnit.MINUTES).until(() -> executor.getCompletedTaskCount() == executor.getTaskCount());
+
+        verify(indexFieldTypesService, times(1)).upsert(any());
+        verify(indexFieldTypesService, times(1)).addFields("indexSet1", "test_0", Set.of(source));
+        verify(clusterEventBus, times(2)).post(IndexFieldTypesUpdatedEvent.create("indexSet1", ImmutableSet.of("test_0")));
+    }
+
+    @Test
+    void fingerprintDependsOnContentOnly() {
+        final FieldTypeDTO message = FieldTypeDTO.builder().fieldName("message").physicalType("text").streams(Set.of("s1", "s2")).build();
+        final FieldTypeDTO source = FieldTypeDTO.builder().fieldName("source").physicalType("keyword").build();
+
+        assertThat(IndexFieldTypePollerPeriodical.fingerprint(new LinkedHashSet<>(List.of(message, source)), true))
+                .isEqualTo(IndexFieldTypePollerPeriodical.fingerprint(new LinkedHashSet<>(List.of(source, message)), true));
+        assertThat(IndexFieldTypePollerPeriodical.fingerprint(Set.of(message, source), true))
+                .isNotEqualTo(IndexFieldTypePollerPeriodical.fingerprint(Set.of(message, source), false))
+                .isNotEqualTo(IndexFieldTypePollerPeriodical.fingerprint(Set.of(message), true))
+                .isNotEqualTo(IndexFieldTypePollerPeriodical.fingerprint(Set.of(message.toBuilder().streams(Set.of("s1")).build(), source), true))
+                .isNotEqualTo(IndexFieldTypePollerPeriodical.fingerprint(Set.of(message, source.toBuilder().physicalType("text").build()), true));
+    }
+
+    private IndexSetConfig indexSetConfig() {
+        return indexSetConfig("indexSet1");
+    }
+
+    private IndexSetConfig indexSetConfig(String id) {
+        return IndexSetConfig.builder()
+                .id(id)
+                .title("Test Index Set")
+                .indexPrefix("test")
+                .shards(2)
+                .creationDate(ZonedDateTime.now())
+                .indexAnalyzer("standard")
+                .indexTemplateName("test")
+                .indexOptimizationMaxNumSegments(2048)
+                .indexOptimizationDisabled(false)
+                .fieldTypeRefreshInterval(org.joda.time.Duration.standardSeconds(1))
+                .retentionStrategy(NoopRetentionStrategyConfig.createDefault())
+                .rotationStrategy(MessageCountRotationStrategyConfig.createDefault())
+                .replicas(1)
+                .build();
+    }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.fieldtypes;
+
+import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableSet;
+import org.graylog2.indexer.fieldtypes.events.IndexFieldTypesUpdatedEvent;
+import org.graylog2.indexer.indexset.events.IndexSetDeletedEvent;
+import org.graylog2.indexer.indices.events.IndicesDeletedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IndexFieldTypesCatalogTest {
+    private static final FieldTypeDTO MESSAGE = FieldTypeDTO.builder().fieldName("message").physicalType("text").build();
+    private static final FieldTypeDTO SOURCE = FieldTypeDTO.builder().fieldName("source").physicalType("keyword").build();
+
+    private final IndexFieldTypesService indexFieldTypesService = mock(IndexFieldTypesService.class);
+    private final AtomicLong nanos = new AtomicLong();
+    private IndexFieldTypesCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        final Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        };
+        catalog = new IndexFieldTypesCatalog(indexFieldTypesService, Duration.minutes(5), ticker);
+    }
+
+    @Test
+    void sharesSchemasOfIndicesWithSameFields() {
+        when(indexFieldTypesService.findForIndexSets(Set.of("set1", "set2"))).thenReturn(List.of(
+                IndexFieldTypesDTO.create("set1", "index_0", Set.of(MESSAGE)),
+                IndexFieldTypesDTO.create("set1", "index_1", Set.of(MESSAGE)),
+                IndexFieldTypesDTO.create("set2", "other_0", Set.of(MESSAGE, SOURCE))));
+
+        final List<IndexFieldTypesCatalog.Schema> schemas = catalog.schemas(Set.of("set1", "set2"), Set.of("index_0", "index_1", "other_0"));
+
+        assertThat(schemas).extracting(IndexFieldTypesCatalog.Schema::fields)
+                .containsExactlyInAnyOrder(Set.of(MESSAGE), Set.of(MESSAGE, SOURCE));
+        // Indices of other index sets and unknown indices are ignored
+        assertThat(catalog.schemas(Set.of("set1"), Set.of("index_0", "other_0", "unknown"))).extracting(IndexFieldTypesCatalog.Schema::fields)
+                .containsExactly(Set.of(MESSAGE));
+        verify(indexFieldTypesService, times(1)).findForIndexSets(any());
+    }
+
+    @Test
+    void reloadsIndexSetsAfterMaxAge() {
+        when(indexFieldTypesService.findForIndexSets(Set.of("set1"))).thenReturn(List.of(
+                IndexFieldTypesDTO.create("set1", "index_0", Set.of(MESSAGE))));
+        final IndexFieldTypesCatalog.Schema schema = catalog.schemas(Set.of("set1"), Set.of("index_0")).get(0);
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(4));
+        assertThat(catalog.schemas(Set.of("set1"), Set.of("index_0"))).containsExactly(schema);
+
+        when(indexFieldTypesService.findForIndexSets(Set.of("set1"))).thenReturn(List.of(
+                IndexFieldTypesDTO.create("set1", "index_1", Set.of(MESSAGE, SOURCE))));
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        assertThat(catalog.schemas(Set.of("set1"), Set.of("index_0"))).isEmpty();
+        assertThat(catalog.schemas(Set.of("set1"), Set.of("index_1"))).extracting(IndexFieldTypesCatalog.Schema::fields)
+                .containsExactly(Set.of(MESSAGE, SOURCE));
+        verify(indexFieldTypesService, times(2)).findForIndexSets(any());
+    }
+
+    @Test
+    void updateReportsChangedFields() {
+        when(indexFieldTypesService.findForIndexSets(Set.of("set1"))).thenReturn(List.of());
+        assertThat(catalog.schemas(Set.of("set1"), Set.of("index_0"))).isEmpty();
+
+        assertThat(catalog.update(IndexFieldTypesDTO.create("set1", "index_0", Set.of(MESSAGE)))).isTrue();
+        assertThat(catalog.update(IndexFieldTypesDTO.create("set1", "index_0", Set.of(MESSAGE)))).isFalse();
+        assertThat(catalog.update(IndexFieldTypesDTO.create("set1", "index_1", Set.of(MESSAGE)))).isTrue();
+        assertThat(catalog.update(IndexFieldTypesDTO.create("set1", "index_0", Set.of(MESSAGE, SOURCE)))).isTrue();
+
+        final List<IndexFieldTypesCatalog.Schema> schemas = catalog.schemas(Set.of("set1"), Set.of("index_0", "index_1"));
+        assertThat(schemas).extracting(IndexFieldTypesCatalog.Schema::fields)
+                .containsExactly(Set.of(MESSAGE), Set.of(MESSAGE, SOURCE));
+        assertThat(schemas.get(0).id()).isLessThan(schemas.get(1).id());
+    }
+
+    @Test
+    void appliesUpdatesOfLoadedIndexSets() {
+        when(indexFieldTypesService.findForIndexSets(Set.of("set1"))).thenReturn(List.of(
+                IndexFieldTypesDTO.create("set1", "index_0", Set.of(MESSAGE)),
+                IndexFieldTypesDTO.create("set1", "index_1", Set.of(MESSAGE))));
+        catalog.schemas(Set.of("set1"), Set.of("index_0"));
+        when(indexFieldTypesService.findByIndexNames(Set.of("index_0", "index_1"))).thenReturn(List.of(
+                IndexFieldTypesDTO.create("set1", "index_0", Set.of(MESSAGE, SOURCE))));
+
+        catalog.handleIndexFieldTypesUpdated(IndexFieldTypesUpdatedEvent.create("set1", ImmutableSet.of("index_0", "index_1")));
+        catalog.handleIndexFieldTypesUpdated(IndexFieldTypesUpdatedEvent.create("set2", ImmutableSet.of("other_0")));
+
+        assertThat(catalog.schemas(Set.of("set1"), Set.of("index_0", "index_1"))).extracting(IndexFieldTypesCatalog.Schema::fields)
+                .containsExactly(Set.of(MESSAGE, SOURCE));
+        verify(indexFieldTypesService, never()).findByIndexNames(Set.of("other_0"));
+    }
+
+    @Test
+    void removesDeletedIndicesAndIndexSets() {
+        when(indexFieldTypesService.findForIndexSets(Set.of("set1"))).thenReturn(List.of(
+                IndexFieldTypesDTO.create("set1", "index_0", Set.of(MESSAGE)),
+                IndexFieldTypesDTO.create("set1", "index_1", Set.of(MESSAGE, SOURCE))));
+        assertThat(catalog.schemas(Set.of("set1"), Set.of("index_0", "index_1"))).hasSize(2);
+
+        catalog.handleIndicesDeleted(IndicesDeletedEvent.create("index_1"));
+        assertThat(catalog.schemas(Set.of("set1"), Set.of("index_0", "index_1"))).extracting(IndexFieldTypesCatalog.Schema::fields)
+                .containsExactly(Set.of(MESSAGE));
+
+        catalog.handleIndexSetDeleted(IndexSetDeletedEvent.create("set1"));
+        when(indexFieldTypesService.findForIndexSets(Set.of("set1"))).thenReturn(List.of());
+        assertThat(catalog.schemas(Set.of("set1"), Set.of("index_0", "index_1"))).isEmpty();
+    }
+}
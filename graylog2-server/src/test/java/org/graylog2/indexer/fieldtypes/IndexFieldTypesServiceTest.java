@@ -165,6 +165,19 @@ public class IndexFieldTypesServiceTest {
         assertThat(dbService.findAll().size()).isEqualTo(2);
     }
 
+    @Test
+    public void addFields() {
+        final FieldTypeDTO message = FieldTypeDTO.create("message", "text");
+        final FieldTypeDTO source = FieldTypeDTO.create("source", "keyword");
+
+        assertThat(dbService.addFields("abc123", "graylog_0", Set.of(source))).isFalse();
+
+        dbService.save(createDto("graylog_0", Set.of(message)));
+
+        assertThat(dbService.addFields("abc123", "graylog_0", Set.of(source))).isTrue();
+        assertThat(dbService.get("graylog_0")).get().satisfies(dto -> assertThat(dto.fields()).containsExactlyInAnyOrder(message, source));
+    }
+
     @Test
     public void streamForIndexSet() {
         final IndexFieldTypesDTO newDto1 = createDto("graylog_0", "abc", Collections.emptySet());
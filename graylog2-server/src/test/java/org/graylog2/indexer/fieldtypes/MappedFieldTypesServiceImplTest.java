@@ -16,6 +16,8 @@
  */
 package org.graylog2.indexer.fieldtypes;
 
+import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import org.graylog.plugins.formatting.units.fields.FieldUnitObtainer;
@@ -75,26 +77,30 @@ public class MappedFieldTypesServiceImplTest {
     public void setUp() throws Exception {
         final Configuration withStreamAwarenessOff = spy(new Configuration());
         doReturn(false).when(withStreamAwarenessOff).maintainsStreamAwareFieldTypes();
-        this.mappedFieldTypesService = new MappedFieldTypesServiceImpl(withStreamAwarenessOff, streamService, indexFieldTypesService, new FieldTypeMapper(), indexLookup, fieldUnitObtainer);
+        this.mappedFieldTypesService = new MappedFieldTypesServiceImpl(withStreamAwarenessOff, streamService, catalog(), new FieldTypeMapper(), indexLookup, fieldUnitObtainer);
         when(streamService.indexSetIdsByIds(Collections.singleton("stream1"))).thenReturn(Collections.singleton("indexSetId"));
         when(streamService.indexSetIdsByIds(Collections.singleton("stream2"))).thenReturn(Collections.singleton("indexSetId"));
     }
 
+    private IndexFieldTypesCatalog catalog() {
+        return new IndexFieldTypesCatalog(indexFieldTypesService, Duration.minutes(5), Ticker.systemTicker());
+    }
+
     @Test
     public void testDifferenceBetweenStreamAwareAndUnawareFieldTypeRetrieval() {
         final Configuration withStreamAwarenessOn = spy(new Configuration());
         doReturn(true).when(withStreamAwarenessOn).maintainsStreamAwareFieldTypes();
-        MappedFieldTypesServiceImpl streamAwareMappedFieldTypesService = new MappedFieldTypesServiceImpl(withStreamAwarenessOn, streamService, indexFieldTypesService, new FieldTypeMapper(), indexLookup, fieldUnitObtainer);
+        MappedFieldTypesServiceImpl streamAwareMappedFieldTypesService = new MappedFieldTypesServiceImpl(withStreamAwarenessOn, streamService, catalog(), new FieldTypeMapper(), indexLookup, fieldUnitObtainer);
 
         final List<IndexFieldTypesDTO> fieldTypes = ImmutableList.of(
                 createIndexTypes(
-                        "deadbeef",
+                        "indexSetId",
                         "testIndex",
                         FieldTypeDTO.builder().fieldName("field1").physicalType("keyword").streams(Set.of("stream1")).build(),
                         FieldTypeDTO.builder().fieldName("field3").physicalType("keyword").streams(Set.of("stream1")).build()
                 ),
                 createIndexTypes(
-                        "affeaffe",
+                        "indexSetId",
                         "testIndex2",
                         FieldTypeDTO.builder().fieldName("field1").physicalType("keyword").streams(Set.of("stream1", "stream2")).build(),
                         FieldTypeDTO.builder().fieldName("field2").physicalType("keyword").streams(Set.of("stream2")).build(),
@@ -142,12 +148,12 @@ public class MappedFieldTypesServiceImplTest {
     public void fieldsOfSameTypeDoNotReturnCompoundTypeIfPropertiesAreDifferent() {
         final List<IndexFieldTypesDTO> fieldTypes = ImmutableList.of(
                 createIndexTypes(
-                        "deadbeef",
+                        "indexSetId",
                         "testIndex",
                         FieldTypeDTO.builder().fieldName("field1").physicalType("keyword").streams(Set.of("stream1")).build()
                 ),
                 createIndexTypes(
-                        "affeaffe",
+                        "indexSetId",
                         "testIndex2",
                         FieldTypeDTO.builder().fieldName("field1").physicalType("text").streams(Set.of("stream1")).build()
                 )
@@ -165,13 +171,13 @@ public class MappedFieldTypesServiceImplTest {
     public void fieldsOfDifferentTypesDoReturnCompoundType() {
         final List<IndexFieldTypesDTO> fieldTypes = ImmutableList.of(
                 createIndexTypes(
-                        "deadbeef",
+                        "indexSetId",
                         "testIndex",
                         FieldTypeDTO.builder().fieldName("field1").physicalType("long").streams(Set.of("stream1")).build(),
                         FieldTypeDTO.builder().fieldName("field2").physicalType("long").streams(Set.of("stream1")).build()
                 ),
                 createIndexTypes(
-                        "affeaffe",
+                        "indexSetId",
                         "testIndex2",
                         FieldTypeDTO.builder().fieldName("field1").physicalType("text").streams(Set.of("stream1")).build(),
                         FieldTypeDTO.builder().fieldName("field2").physicalType("long").streams(Set.of("stream1")).build()
@@ -197,7 +203,7 @@ public class MappedFieldTypesServiceImplTest {
         assertThat(timeRangeCaptor.getValue()).isEqualTo(AbsoluteRange.create("2010-05-17T23:28:14.000+02:00", "2021-05-05T12:09:23.213+02:00"));
     }
 
-    private IndexFieldTypesDTO createIndexTypes(String indexId, String indexName, FieldTypeDTO... fieldTypes) {
-        return IndexFieldTypesDTO.create(indexId, indexName, java.util.stream.Stream.of(fieldTypes).collect(Collectors.toSet()));
+    private IndexFieldTypesDTO createIndexTypes(String indexSetId, String indexName, FieldTypeDTO... fieldTypes) {
+        return IndexFieldTypesDTO.create(indexSetId, indexName, java.util.stream.Stream.of(fieldTypes).collect(Collectors.toSet()));
     }
 }
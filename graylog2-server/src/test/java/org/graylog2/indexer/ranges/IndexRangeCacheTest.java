@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.ranges;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableSortedSet;
+import org.graylog2.database.NotFoundException;
+import org.graylog2.indexer.ranges.events.IndexRangesUpdatedEvent;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IndexRangeCacheTest {
+    private static final DateTime FROM = new DateTime(100L, DateTimeZone.UTC);
+    private static final DateTime TO = new DateTime(400L, DateTimeZone.UTC);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private IndexRangeService indexRangeService;
+    private IndexRangeCache cache;
+
+    @BeforeEach
+    void setUp() {
+        indexRangeService = mock(IndexRangeService.class);
+        cache = new IndexRangeCache(indexRangeService, new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        });
+        when(indexRangeService.findAll()).thenReturn(ImmutableSortedSet.orderedBy(IndexRange.COMPARATOR)
+                .add(range("graylog_0", 100, 200))
+                .add(range("graylog_1", 200, 300))
+                .build());
+    }
+
+    private static IndexRange range(String index, long begin, long end) {
+        return MongoIndexRange.create(index, new DateTime(begin, DateTimeZone.UTC), new DateTime(end, DateTimeZone.UTC),
+                new DateTime(0L, DateTimeZone.UTC), 0);
+    }
+
+    @Test
+    void loadsRangesOnce() {
+        assertThat(cache.find(FROM, TO)).extracting(IndexRange::indexName).containsExactly("graylog_0", "graylog_1");
+        assertThat(cache.find(FROM, TO)).extracting(IndexRange::indexName).containsExactly("graylog_0", "graylog_1");
+
+        verify(indexRangeService, times(1)).findAll();
+    }
+
+    @Test
+    void appliesUpdatedRanges() throws Exception {
+        cache.find(FROM, TO);
+        when(indexRangeService.get("graylog_0")).thenThrow(new NotFoundException("deleted"));
+        when(indexRangeService.get("graylog_2")).thenReturn(range("graylog_2", 300, 400));
+
+        cache.handleIndexRangesUpdated(IndexRangesUpdatedEvent.create("graylog_0", "graylog_2"));
+
+        assertThat(cache.find(FROM, TO)).extracting(IndexRange::indexName).containsExactly("graylog_1", "graylog_2");
+        verify(indexRangeService, times(1)).findAll();
+    }
+
+    @Test
+    void ignoresUpdatesBeforeFirstUse() throws Exception {
+        cache.handleIndexRangesUpdated(IndexRangesUpdatedEvent.create("graylog_0"));
+
+        verify(indexRangeService, never()).get("graylog_0");
+    }
+
+    @Test
+    void reloadsExpiredRanges() {
+        cache.find(FROM, TO);
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(10));
+        cache.find(FROM, TO);
+
+        verify(indexRangeService, times(2)).findAll();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.ranges;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndexRangeIntervalTreeTest {
+    private static IndexRange range(String index, long begin, long end) {
+        return MongoIndexRange.create(index, new DateTime(begin, DateTimeZone.UTC), new DateTime(end, DateTimeZone.UTC),
+                DateTime.now(DateTimeZone.UTC), 0);
+    }
+
+    private static DateTime time(long millis) {
+        return new DateTime(millis, DateTimeZone.UTC);
+    }
+
+    @Test
+    void findsOverlappingRanges() {
+        final IndexRangeIntervalTree tree = IndexRangeIntervalTree.of(List.of(
+                range("graylog_0", 100, 200),
+                range("graylog_1", 200, 300),
+                range("graylog_2", 300, 400),
+                range("graylog_3", 0, 0)));
+
+        assertThat(tree.find(time(150), time(250))).extracting(IndexRange::indexName)
+                .containsExactlyInAnyOrder("graylog_0", "graylog_1", "graylog_3");
+        assertThat(tree.find(time(300), time(300))).extracting(IndexRange::indexName)
+                .containsExactlyInAnyOrder("graylog_1", "graylog_2", "graylog_3");
+        assertThat(tree.find(time(500), time(600))).extracting(IndexRange::indexName)
+                .containsExactly("graylog_3");
+    }
+
+    @Test
+    void returnsEmptySetWithoutRanges() {
+        assertThat(IndexRangeIntervalTree.of(List.of()).find(time(0), time(100))).isEmpty();
+    }
+
+    @Test
+    void findsSameRangesAsLinearScan() {
+        final Random random = new Random(42L);
+        final List<IndexRange> ranges = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            final long begin = random.nextInt(10_000) - 100;
+            ranges.add(range("graylog_" + i, begin, begin + random.nextInt(1_000)));
+        }
+        final IndexRangeIntervalTree tree = IndexRangeIntervalTree.of(ranges);
+        assertThat(tree.size()).isEqualTo(500);
+
+        for (int i = 0; i < 200; i++) {
+            final long from = random.nextInt(11_000) - 500;
+            final long to = from + random.nextInt(2_000);
+            final List<IndexRange> expected = ranges.stream()
+                    .filter(range -> (range.begin().getMillis() <= to && range.end().getMillis() >= from)
+                            || (range.begin().getMillis() <= 0 && range.end().getMillis() >= 0))
+                    .toList();
+
+            assertThat(tree.find(time(from), time(to))).containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.graylog2.indexer.ranges;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
 import org.assertj.jodatime.api.Assertions;
 import org.bson.types.ObjectId;
 import org.graylog.testing.mongodb.MongoDBFixtures;
@@ -25,6 +26,7 @@ import org.graylog.testing.mongodb.MongoDBInstance;
 import org.graylog2.audit.NullAuditEventSender;
 import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
 import org.graylog2.database.NotFoundException;
+import org.graylog2.events.ClusterEventBus;
 import org.graylog2.indexer.ElasticsearchException;
 import org.graylog2.indexer.IndexSetRegistry;
 import org.graylog2.indexer.indices.HealthStatus;
@@ -32,6 +34,7 @@ import org.graylog2.indexer.indices.Indices;
 import org.graylog2.indexer.indices.events.IndicesClosedEvent;
 import org.graylog2.indexer.indices.events.IndicesDeletedEvent;
 import org.graylog2.indexer.indices.events.IndicesReopenedEvent;
+import org.graylog2.indexer.ranges.events.IndexRangesUpdatedEvent;
 import org.graylog2.indexer.searches.IndexRangeStats;
 import org.graylog2.plugin.system.SimpleNodeId;
 import org.graylog2.shared.bindings.providers.ObjectMapperProvider;
@@ -44,7 +47,9 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 
@@ -67,12 +72,22 @@ public class MongoIndexRangeServiceTest {
     @Mock
     private IndexSetRegistry indexSetRegistry;
     private EventBus localEventBus;
+    private ClusterEventBus clusterEventBus;
+    private List<IndexRangesUpdatedEvent> updatedEvents;
     private MongoIndexRangeService indexRangeService;
 
     @Before
     public void setUp() throws Exception {
         localEventBus = new EventBus("local-event-bus");
-        indexRangeService = new MongoIndexRangeService(mongodb.mongoConnection(), objectMapperProvider, indices, indexSetRegistry, new NullAuditEventSender(), new SimpleNodeId("5ca1ab1e-0000-4000-a000-000000000000"), localEventBus);
+        clusterEventBus = new ClusterEventBus();
+        updatedEvents = new ArrayList<>();
+        clusterEventBus.registerClusterEventSubscriber(new Object() {
+            @Subscribe
+            public void handle(IndexRangesUpdatedEvent event) {
+                updatedEvents.add(event);
+            }
+        });
+        indexRangeService = new MongoIndexRangeService(mongodb.mongoConnection(), objectMapperProvider, indices, indexSetRegistry, new NullAuditEventSender(), new SimpleNodeId("5ca1ab1e-0000-4000-a000-000000000000"), localEventBus, clusterEventBus);
     }
 
     @Test
@@ -242,6 +257,24 @@ public class MongoIndexRangeServiceTest {
         assertThat(after.calculationDuration()).isEqualTo(2);
     }
 
+    @Test
+    @MongoDBFixtures("MongoIndexRangeServiceTest.json")
+    public void saveAllPersistsIndexRangesAndPostsSingleEvent() throws Exception {
+        final DateTime begin = new DateTime(2015, 1, 1, 0, 0, DateTimeZone.UTC);
+        final DateTime end = new DateTime(2015, 1, 2, 0, 0, DateTimeZone.UTC);
+        final DateTime now = DateTime.now(DateTimeZone.UTC);
+
+        indexRangeService.saveAll(List.of(
+                MongoIndexRange.create("graylog_1", begin, end, now, 42),
+                MongoIndexRange.create("graylog_3", begin, end, now, 23)));
+
+        assertThat(indexRangeService.findAll()).hasSize(3);
+        assertThat(indexRangeService.get("graylog_1").calculationDuration()).isEqualTo(42);
+        assertThat(indexRangeService.get("graylog_3").calculationDuration()).isEqualTo(23);
+        assertThat(updatedEvents).hasSize(1);
+        assertThat(updatedEvents.get(0).indexNames()).containsExactlyInAnyOrder("graylog_1", "graylog_3");
+    }
+
     @Test
     @MongoDBFixtures("MongoIndexRangeServiceTest.json")
     public void remove() throws Exception {
@@ -258,9 +291,11 @@ public class MongoIndexRangeServiceTest {
     public void testHandleIndexDeletion() throws Exception {
         assertThat(indexRangeService.findAll()).hasSize(2);
 
-        localEventBus.post(IndicesDeletedEvent.create(Collections.singleton("graylog_1")));
+        localEventBus.post(IndicesDeletedEvent.create(Set.of("graylog_1", "graylog_2", "does-not-exist")));
 
-        assertThat(indexRangeService.findAll()).hasSize(1);
+        assertThat(indexRangeService.findAll()).isEmpty();
+        assertThat(updatedEvents).hasSize(1);
+        assertThat(updatedEvents.get(0).indexNames()).containsExactlyInAnyOrder("graylog_1", "graylog_2");
     }
 
     @Test
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.ranges;
+
+import com.google.common.collect.ImmutableSortedSet;
+import org.graylog2.indexer.IndexSet;
+import org.graylog2.indexer.indexset.IndexSetConfig;
+import org.graylog2.indexer.indices.Indices;
+import org.graylog2.indexer.indices.blocks.IndicesBlockStatus;
+import org.graylog2.shared.system.activities.ActivityWriter;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RebuildIndexRangesJobTest {
+    private static final DateTime CLOSING_DATE = new DateTime(2024, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private Indices indices;
+    private IndexRangeService indexRangeService;
+    private IndexSet indexSet;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        indices = mock(Indices.class);
+        indexRangeService = mock(IndexRangeService.class);
+        indexSet = mock(IndexSet.class);
+        final IndexSetConfig config = mock(IndexSetConfig.class);
+        when(config.title()).thenReturn("Default");
+        when(indexSet.getConfig()).thenReturn(config);
+        when(indexSet.getIndexWildcard()).thenReturn("graylog_*");
+        when(indexSet.getActiveWriteIndex()).thenReturn("graylog_3");
+        when(indexSet.getManagedIndices()).thenReturn(new String[]{"graylog_0", "graylog_1", "graylog_2", "graylog_3"});
+        when(indexRangeService.createUnknownRange("graylog_3")).thenReturn(range("graylog_3", 0, CLOSING_DATE));
+        when(indexRangeService.get("graylog_3")).thenReturn(range("graylog_3", 0, CLOSING_DATE));
+    }
+
+    private RebuildIndexRangesJob job(int concurrency, int batchSize) {
+        return job(false, concurrency, batchSize);
+    }
+
+    private RebuildIndexRangesJob job(boolean force, int concurrency, int batchSize) {
+        return new RebuildIndexRangesJob(Set.of(indexSet), force, mock(ActivityWriter.class), indices, indexRangeService,
+                concurrency, batchSize);
+    }
+
+    private static IndexRange range(String index, long end, DateTime calculatedAt) {
+        return MongoIndexRange.create(index, new DateTime(0L, DateTimeZone.UTC), new DateTime(end, DateTimeZone.UTC),
+                calculatedAt, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<IndexRange> savedRanges() {
+        final ArgumentCaptor<Collection<IndexRange>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(indexRangeService, atLeastOnce()).saveAll(captor.capture());
+        return captor.getAllValues().stream().flatMap(Collection::stream).toList();
+    }
+
+    private IndicesBlockStatus writeBlocked(String... blockedIndices) {
+        final IndicesBlockStatus status = new IndicesBlockStatus();
+        for (String index : blockedIndices) {
+            status.addIndexBlocks(index, List.of("index.blocks.write"));
+        }
+        return status;
+    }
+
+    @Test
+    void skipsRangesCalculatedAfterClosingReadOnlyIndices() {
+        when(indexRangeService.findAll()).thenReturn(ImmutableSortedSet.orderedBy(IndexRange.COMPARATOR)
+                // Calculated after closing
+                .add(range("graylog_0", 10, CLOSING_DATE.plusMinutes(1)))
+                // Calculated before closing
+                .add(range("graylog_1", 20, CLOSING_DATE.minusMinutes(1)))
+                // Not read-only
+                .add(range("graylog_2", 30, CLOSING_DATE.plusMinutes(1)))
+                .build());
+        when(indices.getIndicesBlocksStatus(any())).thenReturn(writeBlocked("graylog_0", "graylog_1"));
+        when(indices.indexClosingDate(any())).thenReturn(Optional.of(CLOSING_DATE));
+
+        assertThat(job(1, 10).withoutValidRanges(List.of("graylog_0", "graylog_1", "graylog_2")))
+                .containsExactly("graylog_1", "graylog_2");
+    }
+
+    @Test
+    void forcedRebuildRecalculatesValidRanges() {
+        when(indexRangeService.findAll()).thenReturn(ImmutableSortedSet.orderedBy(IndexRange.COMPARATOR)
+                .add(range("graylog_0", 10, CLOSING_DATE.plusMinutes(1)))
+                .build());
+        when(indices.getIndicesBlocksStatus(any())).thenReturn(writeBlocked("graylog_0"));
+        when(indices.indexClosingDate(any())).thenReturn(Optional.of(CLOSING_DATE));
+        when(indexRangeService.calculateRanges(anyCollection())).thenAnswer(invocation -> {
+            final Collection<String> batch = invocation.getArgument(0);
+            return batch.stream().collect(Collectors.toMap(index -> index, index -> range(index, 20, CLOSING_DATE)));
+        });
+
+        job(true, 1, 10).execute();
+
+        assertThat(savedRanges()).contains(range("graylog_0", 20, CLOSING_DATE));
+        verify(indices, never()).getIndicesBlocksStatus(any());
+    }
+
+    @Test
+    void recalculatesIndicesWithoutClosingDate() {
+        when(indexRangeService.findAll()).thenReturn(ImmutableSortedSet.orderedBy(IndexRange.COMPARATOR)
+                .add(range("graylog_0", 10, CLOSING_DATE.plusMinutes(1)))
+                .build());
+        when(indices.getIndicesBlocksStatus(any())).thenReturn(writeBlocked("graylog_0"));
+        when(indices.indexClosingDate("graylog_0")).thenReturn(Optional.empty());
+
+        assertThat(job(1, 10).withoutValidRanges(List.of("graylog_0"))).containsExactly("graylog_0");
+    }
+
+    @Test
+    void calculatesRangesInBatchesAndFallsBackToSingleIndices() throws Exception {
+        when(indexRangeService.findAll()).thenReturn(ImmutableSortedSet.orderedBy(IndexRange.COMPARATOR).build());
+        when(indexRangeService.calculateRanges(anyCollection())).thenAnswer(invocation -> {
+            final Collection<String> batch = invocation.getArgument(0);
+            // graylog_1 isn't covered by the batch request
+            return batch.stream()
+                    .filter(index -> !index.equals("graylog_1"))
+                    .collect(Collectors.toMap(index -> index, index -> range(index, 10, CLOSING_DATE)));
+        });
+        when(indexRangeService.calculateRange("graylog_1")).thenReturn(range("graylog_1", 20, CLOSING_DATE));
+
+        final RebuildIndexRangesJob job = job(2, 2);
+        job.execute();
+
+        // One save per batch of two indices
+        assertThat(savedRanges()).containsExactlyInAnyOrder(
+                range("graylog_0", 10, CLOSING_DATE),
+                range("graylog_1", 20, CLOSING_DATE),
+                range("graylog_2", 10, CLOSING_DATE));
+        verify(indexRangeService, times(2)).saveAll(anyCollection());
+        verify(indexRangeService, never()).save(any());
+        verify(indexRangeService, never()).calculateRange("graylog_0");
+        verify(indexRangeService, never()).calculateRange("graylog_3");
+        assertThat(job.getProgress()).isEqualTo(100);
+    }
+
+    @Test
+    void calculatesSingleIndicesIfBatchFails() throws Exception {
+        when(indexRangeService.findAll()).thenReturn(ImmutableSortedSet.orderedBy(IndexRange.COMPARATOR).build());
+        when(indexRangeService.calculateRanges(anyCollection())).thenThrow(new RuntimeException("Boom"));
+        when(indexRangeService.calculateRange(any())).thenAnswer(invocation -> range(invocation.getArgument(0), 10, CLOSING_DATE));
+
+        job(4, 10).execute();
+
+        assertThat(savedRanges()).containsExactlyInAnyOrder(
+                range("graylog_0", 10, CLOSING_DATE),
+                range("graylog_1", 10, CLOSING_DATE),
+                range("graylog_2", 10, CLOSING_DATE));
+    }
+}
@@ -20,6 +20,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.eventbus.EventBus;
+import org.graylog2.buffers.processors.StreamOutputWriters;
 import org.graylog2.database.NotFoundException;
 import org.graylog2.outputs.events.OutputChangedEvent;
 import org.graylog2.plugin.configuration.Configuration;
@@ -35,6 +36,7 @@ import org.graylog2.streams.events.StreamsChangedEvent;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
@@ -50,6 +52,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -72,13 +75,15 @@ public class OutputRegistryTest {
     private EventBus eventBus;
     @Mock
     private StreamService streamService;
+    @Mock
+    private StreamOutputWriters streamOutputWriters;
 
     private OutputRegistry registry;
 
     @Before
     public void setUp() throws Exception {
         registry = new OutputRegistry(messageOutput, outputService, messageOutputFactory, null,
-                null, eventBus, streamService, FAULT_COUNT_THRESHOLD, FAULT_PENALTY_SECONDS);
+                null, eventBus, streamService, FAULT_COUNT_THRESHOLD, FAULT_PENALTY_SECONDS, () -> streamOutputWriters);
     }
 
     @Test
@@ -144,9 +149,14 @@ public class OutputRegistryTest {
         loadIntoRegistry(output("output-1"), output("output-2"));
         assertThat(registry.getRunningMessageOutputs()).containsOnlyKeys("output-1", "output-2");
 
+        final MessageOutput messageOutput1 = registry.getRunningMessageOutputs().get("output-1");
+
         registry.handleOutputChanged(OutputChangedEvent.create("output-1"));
 
         assertThat(registry.getRunningMessageOutputs()).containsOnlyKeys("output-2");
+        final InOrder inOrder = inOrder(streamOutputWriters, messageOutput1);
+        inOrder.verify(streamOutputWriters).drain(messageOutput1);
+        inOrder.verify(messageOutput1).stop();
     }
 
     @Test
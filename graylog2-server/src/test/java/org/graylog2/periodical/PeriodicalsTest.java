@@ -155,6 +155,17 @@ public class PeriodicalsTest {
         assertEquals("getAll() did not return a copy of the periodicals List", 1, periodicals.getAll().size());
     }
 
+    @Test
+    public void testUnregisterAndStopStopsPeriodical() throws Exception {
+        when(periodical.runsForever()).thenReturn(false);
+
+        periodicals.registerAndStart(periodical);
+        periodicals.unregisterAndStop(periodical);
+
+        assertFalse("Periodical should not be in the futures Map", periodicals.getFutures().containsKey(periodical));
+        verify(periodical).stop();
+    }
+
     @Test
     public void testGetAllStoppedOnGracefulShutdown() throws Exception {
         final Periodical periodical2 = mock(Periodical.class);
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.inputs;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.eventbus.EventBus;
+import org.graylog2.plugin.IOState;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.inputs.MessageInput;
+import org.graylog2.plugin.inputs.transports.ThrottleableTransport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InputAdmissionControllerTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final EventBus eventBus = new EventBus();
+    private final Set<IOState<MessageInput>> runningInputs = new HashSet<>();
+    private final Map<String, AtomicLong> counts = new HashMap<>();
+
+    private InputRegistry inputRegistry;
+    private MetricRegistry metricRegistry;
+    private InputAdmissionController controller;
+
+    @BeforeEach
+    void setUp() {
+        inputRegistry = mock(InputRegistry.class);
+        when(inputRegistry.getRunningInputs()).thenAnswer(invocation -> Set.copyOf(runningInputs));
+        metricRegistry = new MetricRegistry();
+        controller = new InputAdmissionController(inputRegistry, metricRegistry, true, 90);
+    }
+
+    private IOState<MessageInput> input(String id, boolean throttleable, int weight) {
+        final MessageInput input = mock(MessageInput.class);
+        final AtomicLong count = new AtomicLong();
+        counts.put(id, count);
+        when(input.getId()).thenReturn(id);
+        when(input.getUniqueReadableId()).thenReturn("input." + id);
+        when(input.getConfiguration()).thenReturn(new Configuration(Map.of(
+                ThrottleableTransport.CK_THROTTLING_ALLOWED, throttleable,
+                ThrottleableTransport.CK_THROTTLING_WEIGHT, weight)));
+        when(input.getIncomingMessagesCount()).thenAnswer(invocation -> count.get());
+        final IOState<MessageInput> state = new IOState<>(eventBus, input);
+        runningInputs.add(state);
+        return state;
+    }
+
+    private void receive(String id, long messages) {
+        counts.get(id).addAndGet(messages);
+    }
+
+    private double fairShare(String id) {
+        return (Double) metricRegistry.getGauges().get("input." + id + ".throttling.fairShare").getValue();
+    }
+
+    @Test
+    void onlyInputsExceedingTheirShareAreDeferred() {
+        input("noisy", true, 1);
+        input("audit", true, 1);
+        assertThat(controller.update(100, 0, 0)).containsExactlyInAnyOrder("noisy", "audit");
+
+        receive("noisy", 150);
+        receive("audit", 30);
+
+        // The audit input needs less than half of the capacity, the noisy input gets the rest
+        assertThat(controller.update(100, 0, SECOND)).containsExactly("audit");
+        assertThat(fairShare("audit")).isEqualTo(30.0);
+        assertThat(fairShare("noisy")).isEqualTo(70.0);
+        assertThat(metricRegistry.meter("input.noisy.throttling.deferredMessages").getCount()).isEqualTo(80);
+        assertThat(metricRegistry.meter("input.noisy.throttling.admittedMessages").getCount()).isEqualTo(70);
+        assertThat(metricRegistry.meter("input.audit.throttling.admittedMessages").getCount()).isEqualTo(30);
+
+        // The deferred input didn't read anything and earns new tokens
+        receive("audit", 30);
+        assertThat(controller.update(100, 0, 2 * SECOND)).containsExactlyInAnyOrder("noisy", "audit");
+    }
+
+    @Test
+    void sharesCapacityByWeight() {
+        input("critical", true, 3);
+        input("bulk", true, 1);
+        controller.update(100, 0, 0);
+
+        receive("critical", 1000);
+        receive("bulk", 1000);
+
+        assertThat(controller.update(100, 0, SECOND)).isEmpty();
+        assertThat(fairShare("critical")).isEqualTo(75.0);
+        assertThat(fairShare("bulk")).isEqualTo(25.0);
+    }
+
+    @Test
+    void inputsWhichCannotBeThrottledReduceCapacity() {
+        input("syslog", false, 1);
+        input("kafka", true, 1);
+        controller.update(100, 0, 0);
+
+        receive("syslog", 80);
+        receive("kafka", 30);
+
+        assertThat(controller.update(100, 0, SECOND)).isEmpty();
+        assertThat(fairShare("kafka")).isEqualTo(20.0);
+    }
+
+    @Test
+    void defersAllInputsWithoutCapacity() {
+        input("idle", true, 1);
+        controller.update(0, 0, 0);
+
+        assertThat(controller.update(0, 0, SECOND)).isEmpty();
+        assertThat(controller.update(10, 0, 2 * SECOND)).containsExactly("idle");
+    }
+
+    @Test
+    void throttlesAllInputsWhenJournalIsCritical() {
+        input("audit", true, 1);
+        controller.update(100, 0, 0);
+
+        receive("audit", 10);
+
+        assertThat(controller.update(100, 89, SECOND)).containsExactly("audit");
+        assertThat(controller.update(100, 90, 2 * SECOND)).isEmpty();
+        assertThat(controller.update(100, 50, 3 * SECOND)).containsExactly("audit");
+    }
+
+    @Test
+    void removesMetricsOfStoppedInputs() {
+        final IOState<MessageInput> input = input("input", true, 1);
+        controller.update(100, 0, 0);
+        assertThat(metricRegistry.getNames()).anyMatch(name -> name.startsWith("input.input.throttling."));
+
+        runningInputs.remove(input);
+        controller.update(100, 0, SECOND);
+
+        assertThat(metricRegistry.getNames()).noneMatch(name -> name.startsWith("input.input.throttling."));
+    }
+
+    @Test
+    void admitsNothingIfDisabled() {
+        input("input", true, 1);
+        controller = new InputAdmissionController(inputRegistry, metricRegistry, false, 90);
+
+        assertThat(controller.update(100, 0, 0)).isEmpty();
+    }
+}
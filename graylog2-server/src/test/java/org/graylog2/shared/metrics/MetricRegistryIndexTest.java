@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetricRegistryIndexTest {
+    private MetricRegistry metricRegistry;
+    private MetricRegistryIndex index;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        metricRegistry.counter("org.graylog2.existing");
+        index = new MetricRegistryIndex(metricRegistry);
+    }
+
+    @Test
+    public void tracksMetricsOfRegistry() {
+        final Counter counter = metricRegistry.counter("org.graylog2.counter");
+
+        assertThat(index.get("org.graylog2.existing")).isNotNull();
+        assertThat(index.get("org.graylog2.counter")).isSameAs(counter);
+
+        metricRegistry.remove("org.graylog2.counter");
+        assertThat(index.get("org.graylog2.counter")).isNull();
+    }
+
+    @Test
+    public void findsMetricsByPrefix() {
+        metricRegistry.counter("org.graylog2.inputs.a");
+        metricRegistry.timer("org.graylog2.inputs.b");
+        metricRegistry.meter("org.graylog2.inputsX");
+        metricRegistry.meter("org.graylog2.input");
+        metricRegistry.meter("org.graylog2.other");
+
+        assertThat(index.byPrefix("org.graylog2.inputs").keySet())
+                .containsExactly("org.graylog2.inputs.a", "org.graylog2.inputs.b", "org.graylog2.inputsX");
+        assertThat(index.byPrefix("org.graylog2.inputs.").keySet())
+                .containsExactly("org.graylog2.inputs.a", "org.graylog2.inputs.b");
+        assertThat(index.byPrefix("org.graylog3")).isEmpty();
+        assertThat(index.byPrefix("")).hasSize(6);
+        assertThat(index.byPrefix("org.graylog2.other" + Character.MAX_VALUE)).isEmpty();
+
+        // The view is live
+        metricRegistry.counter("org.graylog2.inputs.c");
+        assertThat(index.byPrefix("org.graylog2.inputs.")).hasSize(3);
+    }
+
+    @Test
+    public void reusesRecentSummaries() {
+        final Timer timer = metricRegistry.timer("org.graylog2.timer");
+        final Map<String, Object> summary = index.summary("org.graylog2.timer", timer);
+
+        assertThat(summary).containsEntry("type", "timer");
+        assertThat(index.summary("org.graylog2.timer", timer)).isSameAs(summary);
+
+        // A metric registered again under the same name gets a new summary
+        metricRegistry.remove("org.graylog2.timer");
+        final Timer newTimer = metricRegistry.timer("org.graylog2.timer");
+        assertThat(index.summary("org.graylog2.timer", newTimer)).isNotSameAs(summary);
+    }
+}
@@ -18,19 +18,38 @@ package org.graylog2.streams;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import com.google.common.eventbus.EventBus;
+import org.graylog2.cluster.ClusterConfigChangedEvent;
+import org.graylog2.plugin.cluster.ClusterConfigService;
+import org.graylog2.shared.metrics.SampledHdrTimer;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.stream.IntStream;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class StreamMetricsTest {
     private MetricRegistry metricRegistry;
+    private ClusterConfigService clusterConfigService;
+    private StreamRuleTiming streamRuleTiming;
     private StreamMetrics streamMetrics;
 
     @Before
     public void setUp() {
         metricRegistry = new MetricRegistry();
-        streamMetrics = new StreamMetrics(metricRegistry);
+        clusterConfigService = mock(ClusterConfigService.class);
+        streamRuleTiming = new StreamRuleTiming(clusterConfigService, new EventBus());
+        streamMetrics = new StreamMetrics(metricRegistry, streamRuleTiming);
+    }
+
+    private void setSampleRate(int sampleRate) {
+        when(clusterConfigService.get(StreamRuleTimingConfig.class)).thenReturn(StreamRuleTimingConfig.create(sampleRate));
+        streamRuleTiming.handleConfigUpdate(ClusterConfigChangedEvent.create(DateTime.now(DateTimeZone.UTC), "node-id", StreamRuleTimingConfig.class.getCanonicalName()));
     }
 
     @Test
@@ -41,4 +60,29 @@ public class StreamMetricsTest {
         assertThat(metricRegistry.getTimers())
                 .containsKey("org.graylog2.plugin.streams.Stream.stream-id.StreamRule.stream-rule-id.executionTime");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void samplesExecutionTime() {
+        final SampledHdrTimer timer = streamMetrics.getExecutionTimer("stream-id", "stream-rule-id");
+
+        setSampleRate(10);
+        final int samples = (int) IntStream.range(0, 10_000).filter(i -> streamMetrics.sampleExecutionTime() == 10).count();
+        assertThat(samples).isBetween(800, 1200);
+
+        timer.update(1000, 10);
+        timer.update(3000, 10);
+        assertThat(timer.getCount()).isEqualTo(20);
+        assertThat(timer.getSnapshot().getMax()).isBetween(2900L, 3100L);
+    }
+
+    @Test
+    public void executionTimeSamplingCanBeAdjusted() {
+        assertThat(streamMetrics.sampleExecutionTime()).isIn(0, StreamRuleTimingConfig.DEFAULT_SAMPLE_RATE);
+
+        setSampleRate(1);
+        assertThat(IntStream.range(0, 100).map(i -> streamMetrics.sampleExecutionTime())).containsOnly(1);
+
+        setSampleRate(0);
+        assertThat(IntStream.range(0, 100).map(i -> streamMetrics.sampleExecutionTime())).containsOnly(0);
+    }
+}
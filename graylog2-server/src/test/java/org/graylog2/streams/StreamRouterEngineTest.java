@@ -19,11 +19,13 @@ package org.graylog2.streams;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.eventbus.EventBus;
 import jakarta.inject.Provider;
 import org.bson.types.ObjectId;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.MessageFactory;
 import org.graylog2.plugin.TestMessageFactory;
+import org.graylog2.plugin.cluster.ClusterConfigService;
 import org.graylog2.plugin.streams.Stream;
 import org.graylog2.plugin.streams.StreamRule;
 import org.graylog2.plugin.streams.StreamRuleType;
@@ -68,7 +70,7 @@ public class StreamRouterEngineTest {
     @Before
     public void setUp() throws Exception {
         defaultStreamProvider = () -> defaultStream;
-        streamMetrics = new StreamMetrics(new MetricRegistry());
+        streamMetrics = new StreamMetrics(new MetricRegistry(), new StreamRuleTiming(mock(ClusterConfigService.class), new EventBus()));
         when(streamFaultManager.getStreamProcessingTimeout()).thenReturn(250L);
     }
 
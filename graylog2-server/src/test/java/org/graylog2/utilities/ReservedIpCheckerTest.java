@@ -17,6 +17,7 @@
 
 package org.graylog2.utilities;
 
+import com.google.common.net.InetAddresses;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -38,4 +39,22 @@ class ReservedIpCheckerTest {
         Assertions.assertFalse(ReservedIpChecker.getInstance().isReservedIpAddress("104.44.23.89"));
     }
 
+    @Test
+    void testIsReservedInetAddress() {
+        final ReservedIpChecker checker = ReservedIpChecker.getInstance();
+
+        // Block boundaries
+        Assertions.assertTrue(checker.isReservedIpAddress(InetAddresses.forString("172.16.0.0")));
+        Assertions.assertTrue(checker.isReservedIpAddress(InetAddresses.forString("172.31.255.255")));
+        Assertions.assertFalse(checker.isReservedIpAddress(InetAddresses.forString("172.32.0.0")));
+        Assertions.assertFalse(checker.isReservedIpAddress(InetAddresses.forString("172.15.255.255")));
+        Assertions.assertTrue(checker.isReservedIpAddress(InetAddresses.forString("255.255.255.255")));
+        Assertions.assertFalse(checker.isReservedIpAddress(InetAddresses.forString("223.255.255.255")));
+        Assertions.assertTrue(checker.isReservedIpAddress(InetAddresses.forString("198.19.1.1")));
+        Assertions.assertFalse(checker.isReservedIpAddress(InetAddresses.forString("198.20.1.1")));
+
+        Assertions.assertFalse(checker.isReservedIpAddress(InetAddresses.forString("2001:4860:4860::8888")));
+        Assertions.assertFalse(checker.isReservedIpAddress("Not an IP address"));
+    }
+
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.utilities.date;
+
+import org.graylog2.utilities.date.FormatSniffingDateParser.Shape;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FormatSniffingDateParserTest {
+    private final DateTimeZone cet = DateTimeZone.forID("CET");
+
+    @Test
+    void sniffsShapes() {
+        assertThat(FormatSniffingDateParser.sniff("1505741140123")).isEqualTo(Shape.EPOCH);
+        assertThat(FormatSniffingDateParser.sniff("-1")).isEqualTo(Shape.EPOCH);
+        assertThat(FormatSniffingDateParser.sniff("2017-09-18T13:25:40.123+01:00")).isEqualTo(Shape.ISO_EXTENDED);
+        assertThat(FormatSniffingDateParser.sniff("20170918T132540Z")).isEqualTo(Shape.ISO_BASIC);
+        assertThat(FormatSniffingDateParser.sniff("Sep 18 13:25:40")).isEqualTo(Shape.SYSLOG);
+        assertThat(FormatSniffingDateParser.sniff("Sep 8 13:25:40.123 CET")).isEqualTo(Shape.SYSLOG);
+        assertThat(FormatSniffingDateParser.sniff("Mai 18 2017 13:25:40")).isEqualTo(Shape.SYSLOG_WITH_YEAR);
+        assertThat(FormatSniffingDateParser.sniff("2017-09-18 13:25:40")).isEqualTo(Shape.OTHER);
+        assertThat(FormatSniffingDateParser.sniff("Monday, September 18, 2017")).isEqualTo(Shape.OTHER);
+        assertThat(FormatSniffingDateParser.sniff("")).isEqualTo(Shape.OTHER);
+    }
+
+    @Test
+    void tryParseReturnsNullForMismatches() {
+        final DateTimeFormatter formatter = ISODateTimeFormat.dateTime().withZone(DateTimeZone.UTC);
+
+        assertThat(FormatSniffingDateParser.tryParse(formatter, "2017-09-18T13:25:40.123+01:00"))
+                .isEqualTo(new DateTime(2017, 9, 18, 12, 25, 40, 123, DateTimeZone.UTC));
+        assertThat(FormatSniffingDateParser.tryParse(formatter, "2017-09-18T13:25:40+01:00")).isNull();
+        assertThat(FormatSniffingDateParser.tryParse(formatter, "2017-09-18T13:25:40.123+01:00 trailing")).isNull();
+        assertThat(FormatSniffingDateParser.tryParse(formatter, "2017-02-30T13:25:40.123Z")).isNull();
+    }
+
+    @Test
+    void tryParseBehavesLikeParseDateTime() {
+        final DateTimeFormatter offsetParsed = ISODateTimeFormat.dateTimeNoMillis().withOffsetParsed();
+        assertThat(FormatSniffingDateParser.tryParse(offsetParsed, "2017-09-18T13:25:40+01:00"))
+                .isEqualTo(offsetParsed.parseDateTime("2017-09-18T13:25:40+01:00"));
+
+        final DateTimeFormatter withZone = DateTimeFormat.forPattern("MMM dd HH:mm:ss").withZone(cet).withLocale(Locale.ENGLISH);
+        assertThat(FormatSniffingDateParser.tryParse(withZone, "Sep 18 13:25:40"))
+                .isEqualTo(withZone.parseDateTime("Sep 18 13:25:40"));
+    }
+
+    @Test
+    void parsesWithFormatsOfAllShapes() {
+        final FormatSniffingDateParser parser = FormatSniffingDateParser.builder()
+                .epochMillis()
+                .formats(Shape.ISO_EXTENDED, ISODateTimeFormat.dateTime())
+                .formats(Shape.SYSLOG,
+                        DateTimeFormat.forPattern("MMM dd HH:mm:ss.SSS"),
+                        DateTimeFormat.forPattern("MMM dd HH:mm:ss"))
+                .formats(Shape.OTHER, DateTimeFormat.forPattern("yyyy-MM-dd HH:mm:ss"))
+                .build();
+
+        assertThat(parser.parse(" 1505741140123 ", cet, Locale.ROOT))
+                .isEqualTo(new DateTime(1505741140123L, DateTimeZone.UTC));
+        assertThat(parser.parse("2017-09-18T13:25:40.123+01:00", cet, Locale.ROOT))
+                .isEqualTo(new DateTime(2017, 9, 18, 14, 25, 40, 123, cet));
+        assertThat(parser.parse("Sep  18   13:25:40", cet, Locale.ENGLISH))
+                .isEqualTo(new DateTime(2000, 9, 18, 13, 25, 40, cet));
+        // Remembered format doesn't match, the other one of the shape does
+        assertThat(parser.parse("Sep 18 13:25:40.123", cet, Locale.ENGLISH))
+                .isEqualTo(new DateTime(2000, 9, 18, 13, 25, 40, 123, cet));
+        assertThat(parser.parse("Sep 18 13:25:40", cet, Locale.ENGLISH))
+                .isEqualTo(new DateTime(2000, 9, 18, 13, 25, 40, cet));
+        assertThat(parser.parse("2017-09-18 13:25:40", cet, Locale.ROOT))
+                .isEqualTo(new DateTime(2017, 9, 18, 13, 25, 40, cet));
+        assertThat(parser.parse("not a date", cet, Locale.ROOT)).isNull();
+    }
+
+    @Test
+    void fallsBackToFormatsOfOtherShapes() {
+        // Formats registered for the wrong shape are still tried
+        final FormatSniffingDateParser parser = FormatSniffingDateParser.builder()
+                .formats(Shape.OTHER, DateTimeFormat.forPattern("MMM dd HH:mm:ss"))
+                .build();
+
+        assertThat(parser.parse("Sep 18 13:25:40", DateTimeZone.UTC, Locale.ENGLISH))
+                .isEqualTo(new DateTime(2000, 9, 18, 13, 25, 40, DateTimeZone.UTC));
+        assertThat(parser.parse("1505741140123", DateTimeZone.UTC, Locale.ROOT)).isNull();
+    }
+
+    @Test
+    void normalizesWhitespace() {
+        assertThat(FormatSniffingDateParser.normalizeWhitespace("  a b  c\t\td\te ")).isEqualTo("a b c d\te");
+        assertThat(FormatSniffingDateParser.normalizeWhitespace("abc")).isEqualTo("abc");
+    }
+}
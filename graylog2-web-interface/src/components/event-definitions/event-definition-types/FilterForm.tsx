@@ -141,7 +141,11 @@ const FilterForm = ({
       };
 
       validateQuery(request, timezone).then((result) => {
-        if (result?.status === 'WARNING' || result?.status === 'ERROR') {
+        if (!result) {
+          return;
+        }
+
+        if (result.status === 'WARNING' || result.status === 'ERROR') {
           setFieldWarning('queryString', result);
         } else {
           setFieldWarning('queryString', undefined);
@@ -45,6 +45,7 @@ describe('validateQuery', () => {
     filter: undefined,
     timerange: { type: 'relative', from: 300 },
     streams: ['stream-id'],
+    client_id: expect.any(String),
   };
 
   const userTimezone = 'Europe/Berlin';
@@ -77,6 +78,14 @@ describe('validateQuery', () => {
     expect(fetch).toHaveBeenCalledWith('POST', expect.any(String), expectedPayload);
   });
 
+  it('discards results of superseded requests', async () => {
+    asMock(fetch).mockReturnValue(Promise.resolve({ status: 'SUPERSEDED', context: { searched_index_ranges: [] } }));
+
+    const result = await validateQuery(validationInput, userTimezone);
+
+    expect(result).toBeUndefined();
+  });
+
   it('should display user notification and return status OK on server error', async () => {
     asMock(fetch).mockImplementation(() => Promise.reject(new Error('Unexpected error')));
 
@@ -30,6 +30,9 @@ export type ValidationQuery = {
   validation_mode?: 'QUERY' | 'SEARCH_FILTER'
 }
 
+// Identifies this browser tab, so only its own validation requests supersede each other.
+const CLIENT_ID = generateId();
+
 const queryExists = (query: string | ElasticsearchQueryString) => (typeof query === 'object' ? !!query.query_string : !!query);
 
 export const validateQuery = (
@@ -51,10 +54,16 @@ export const validateQuery = (
     timerange: timeRange ? normalizeFromSearchBarForBackend(timeRange, userTimezone) : undefined,
     streams,
     filter,
+    client_id: CLIENT_ID,
     ...rest,
   };
 
   return fetch('POST', qualifyUrl('/search/validate'), payload).then((result) => {
+    // A newer request has been sent in the meantime, its result will be used instead.
+    if (result?.status === 'SUPERSEDED') {
+      return undefined;
+    }
+
     if (result) {
       const explanations = result.explanations?.map(({
         error_type: errorType,